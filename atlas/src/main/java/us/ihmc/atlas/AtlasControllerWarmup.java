@@ -3,9 +3,6 @@ package us.ihmc.atlas;
 import us.ihmc.avatar.drcRobot.RobotTarget;
 import us.ihmc.avatar.warmup.HumanoidControllerWarmup;
 import us.ihmc.avatar.warmup.HumanoidControllerWarmupVisualizer;
-import us.ihmc.avatar.warmup.HumanoidControllerWarumupTools;
-import us.ihmc.humanoidRobotics.frames.HumanoidReferenceFrames;
-import us.ihmc.robotModels.FullHumanoidRobotModel;
 import us.ihmc.robotics.robotSide.RobotSide;
 import us.ihmc.simulationconstructionset.FloatingRootJointRobot;
 
@@ -24,9 +21,6 @@ public class AtlasControllerWarmup extends HumanoidControllerWarmup
    @Override
    protected void runWarmup()
    {
-      HumanoidReferenceFrames referenceFrames = getReferenceFrames();
-      FullHumanoidRobotModel fullRobotModel = getFullRobotModel();
-
       for (RobotSide side : RobotSide.values)
       {
          getYoVariable(side.getLowerCaseName() + "FootAssumeFootBarelyLoaded").setValueFromDouble(1.0);
@@ -37,18 +31,9 @@ public class AtlasControllerWarmup extends HumanoidControllerWarmup
       getYoVariable("maxICPErrorBeforeSingleSupportInnerY").setValueFromDouble(Double.POSITIVE_INFINITY);
       getYoVariable("maxICPErrorBeforeSingleSupportOuterY").setValueFromDouble(Double.POSITIVE_INFINITY);
 
-      simulate(1.0);
-      for (int i = 0; i < 5; i++)
+      for (int i = 0; i < 2; i++)
       {
-         submitMessage(HumanoidControllerWarumupTools.createStepsInPlace(referenceFrames));
-         simulate(1.5);
-
-         for (RobotSide side : RobotSide.values)
-         {
-            submitMessage(HumanoidControllerWarumupTools.createArmMessage(fullRobotModel, side));
-         }
-         submitMessage(HumanoidControllerWarumupTools.createChestMessage(referenceFrames));
-         simulate(1.0);
+         runScriptedWarmup();
       }
    }
 
@@ -9,6 +9,7 @@ import org.apache.commons.lang3.mutable.MutableInt;
 import org.junit.jupiter.api.Test;
 
 import us.ihmc.avatar.warmup.HumanoidControllerWarumupTools;
+import us.ihmc.avatar.warmup.WarmupCompilationReport;
 import us.ihmc.commonWalkingControlModules.highLevelHumanoidControl.highLevelStates.walkingController.states.WalkingStateEnum;
 import us.ihmc.robotics.Assert;
 import us.ihmc.yoVariables.variable.YoEnum;
@@ -42,6 +43,16 @@ public class AtlasControllerWarmupTest
       }
    }
 
+   @Test
+   public void testWarmupCompilationReport()
+   {
+      AtlasControllerWarmup controllerWarmup = new AtlasControllerWarmup();
+      WarmupCompilationReport report = HumanoidControllerWarumupTools.warmup(controllerWarmup, null, 1);
+
+      Assert.assertTrue("The warmup did not exercise any controller method", report.getNumberOfHotMethods() > 0);
+      Assert.assertFalse(report.getStageCompilationTimes().isEmpty());
+   }
+
    private Collection<WalkingStateEnum> getWalkingStatesToCheck()
    {
       return Arrays.asList(new WalkingStateEnum[] {WalkingStateEnum.STANDING, WalkingStateEnum.TO_STANDING, WalkingStateEnum.TO_WALKING_LEFT_SUPPORT,
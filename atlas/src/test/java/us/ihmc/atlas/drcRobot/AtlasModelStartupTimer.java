@@ -0,0 +1,19 @@
+package us.ihmc.atlas.drcRobot;
+
+import java.io.IOException;
+
+import javax.xml.bind.JAXBException;
+
+import us.ihmc.atlas.AtlasRobotModel;
+import us.ihmc.atlas.AtlasRobotVersion;
+import us.ihmc.avatar.drcRobot.RobotModelStartupTimer;
+import us.ihmc.avatar.drcRobot.RobotTarget;
+
+public class AtlasModelStartupTimer
+{
+   public static void main(String[] args) throws IOException, JAXBException
+   {
+      AtlasRobotVersion robotVersion = AtlasRobotVersion.ATLAS_UNPLUGGED_V5_NO_HANDS;
+      RobotModelStartupTimer.run("Atlas", robotVersion::getSdfFileAsStream, () -> new AtlasRobotModel(robotVersion, RobotTarget.SCS, true));
+   }
+}
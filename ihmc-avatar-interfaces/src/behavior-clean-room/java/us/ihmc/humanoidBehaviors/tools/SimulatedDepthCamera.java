@@ -2,20 +2,17 @@ package us.ihmc.humanoidBehaviors.tools;
 
 import java.util.*;
 
-import org.apache.commons.lang3.tuple.ImmutablePair;
-
 import org.apache.commons.lang3.tuple.Pair;
 import us.ihmc.euclid.referenceFrame.FramePose3D;
 import us.ihmc.euclid.referenceFrame.ReferenceFrame;
-import us.ihmc.euclid.tuple2D.Point2D;
 import us.ihmc.euclid.tuple3D.Point3D;
 import us.ihmc.euclid.tuple3D.Vector3D;
 import us.ihmc.euclid.tuple3D.interfaces.Point3DReadOnly;
 import us.ihmc.euclid.tuple3D.interfaces.Vector3DReadOnly;
 import us.ihmc.humanoidBehaviors.tools.perception.FOVPlanesCalculator;
+import us.ihmc.humanoidBehaviors.tools.perception.PlanarRegionRayCaster;
 import us.ihmc.humanoidBehaviors.tools.perception.PointCloudPolygonizer;
 import us.ihmc.robotics.geometry.PlanarRegion;
-import us.ihmc.robotics.geometry.PlanarRegionTools;
 import us.ihmc.robotics.geometry.PlanarRegionsList;
 import us.ihmc.robotics.geometry.SpiralBasedAlgorithm;
 
@@ -24,16 +21,25 @@ import us.ihmc.robotics.geometry.SpiralBasedAlgorithm;
  */
 public class SimulatedDepthCamera
 {
+   private static final int NUMBER_OF_RAYS = 50000;
+   private static final double SPHERE_RADIUS = 5.0;
+
    private final ReferenceFrame cameraFrame;
    private final double verticalFOV;
    private final double horizontalFOV;
    private final double range;
    private final HashMap<PlanarRegion, List<Point3D>> pointsInRegions = new HashMap<>();
    private final FramePose3D tempCameraPose = new FramePose3D();
-   private final Point2D tempCircleOrigin = new Point2D();
    private final FOVPlanesCalculator fovPlanesCalculator;
    private final PointCloudPolygonizer polygonizer = new PointCloudPolygonizer();
 
+   private final PlanarRegionRayCaster rayCaster = new PlanarRegionRayCaster();
+   private final double[] unitSphereDirections = new double[3 * NUMBER_OF_RAYS];
+   private final double[] rayDirections = new double[3 * NUMBER_OF_RAYS];
+   private final double[] intersections = new double[3 * NUMBER_OF_RAYS];
+   private final int[] hitRegionIndices = new int[NUMBER_OF_RAYS];
+   private final Point3D tempPointOnSphere = new Point3D();
+
    public SimulatedDepthCamera(double verticalFOV, double horizontalFOV, double range, ReferenceFrame cameraFrame)
    {
       this.cameraFrame = cameraFrame;
@@ -42,6 +48,12 @@ public class SimulatedDepthCamera
       this.horizontalFOV = horizontalFOV;
 
       fovPlanesCalculator = new FOVPlanesCalculator(verticalFOV, horizontalFOV, cameraFrame);
+
+      Point3D[] pointsOnUnitSphere = SpiralBasedAlgorithm.generatePointsOnSphere(1.0, NUMBER_OF_RAYS);
+      for (int i = 0; i < NUMBER_OF_RAYS; i++)
+      {
+         pointsOnUnitSphere[i].get(3 * i, unitSphereDirections);
+      }
    }
 
    public PlanarRegionsList computeAndPolygonize(PlanarRegionsList map)
@@ -84,61 +96,48 @@ public class SimulatedDepthCamera
          pointsInRegions.put(planarRegion, new ArrayList<>());
       }
 
+      rayCaster.setMap(map);
+
       tempCameraPose.setToZero(cameraFrame);
       tempCameraPose.changeFrame(ReferenceFrame.getWorldFrame());
 
-      int numberOfPointsToGenerate = 50000;
-      double sphereRadius = 5.0;
-      Point3D[] pointsOnSphere = SpiralBasedAlgorithm.generatePointsOnSphere(tempCameraPose.getPosition(), sphereRadius, numberOfPointsToGenerate);
+      int numberOfRaysInView = 0;
+      boolean filterWithFOV = !Double.isNaN(verticalFOV) && !Double.isNaN(horizontalFOV);
+      if (filterWithFOV)
+         fovPlanesCalculator.update();
 
-      ArrayList<Point3D> pointsInView = new ArrayList<>();;
-      if (!Double.isNaN(verticalFOV) && !Double.isNaN(horizontalFOV))
+      for (int i = 0; i < NUMBER_OF_RAYS; i++)
       {
-         fovPlanesCalculator.update();
+         double directionX = unitSphereDirections[3 * i];
+         double directionY = unitSphereDirections[3 * i + 1];
+         double directionZ = unitSphereDirections[3 * i + 2];
 
-         for (Point3D point3D : pointsOnSphere)
+         if (filterWithFOV)
          {
-            if (fovPlanesCalculator.isPointInView(point3D))
-            {
-               pointsInView.add(point3D);
-            }
+            tempPointOnSphere.set(directionX, directionY, directionZ);
+            tempPointOnSphere.scale(SPHERE_RADIUS);
+            tempPointOnSphere.add(tempCameraPose.getPosition());
+
+            if (!fovPlanesCalculator.isPointInView(tempPointOnSphere))
+               continue;
          }
-      }
-      else
-      {
-         pointsInView.addAll(Arrays.asList(pointsOnSphere));
+
+         rayDirections[3 * numberOfRaysInView] = directionX;
+         rayDirections[3 * numberOfRaysInView + 1] = directionY;
+         rayDirections[3 * numberOfRaysInView + 2] = directionZ;
+         numberOfRaysInView++;
       }
 
-      tempCircleOrigin.set(tempCameraPose.getPosition());
-      List<PlanarRegion> filteredRegions = map.getPlanarRegionsAsList();
-//      List<PlanarRegion> filteredRegions = PlanarRegionTools.filterPlanarRegionsWithBoundingCircle(tempCircleOrigin, range, map.getPlanarRegionsAsList());
+      rayCaster.castRays(tempCameraPose.getPosition(), rayDirections, numberOfRaysInView, range, intersections, hitRegionIndices);
 
-      for (Point3D pointInView : pointsInView)
+      for (int i = 0; i < numberOfRaysInView; i++)
       {
-         Vector3D rayDirection = new Vector3D();
-         rayDirection.sub(pointInView, tempCameraPose.getPosition());
-         ImmutablePair<Point3D, PlanarRegion> intersectionPair = PlanarRegionTools.intersectRegionsWithRay(filteredRegions,
-                                                                                                           tempCameraPose.getPosition(),
-                                                                                                           rayDirection);
-         if (intersectionPair == null)
-         {
+         int regionIndex = hitRegionIndices[i];
+         if (regionIndex == PlanarRegionRayCaster.NO_HIT)
             continue;
-         }
-//         if (intersectionPair.getLeft().distanceSquared(tempCameraPose.getPosition()) > rayLengthSquared)
-//         {
-//            continue;
-//         }
-
-         Point3D intersection = intersectionPair.getLeft();
-         PlanarRegion region = intersectionPair.getRight();
-
-         if (intersection.distance(tempCameraPose.getPosition()) > range)
-            continue;
-
-         Point3D pointOnPlane = new Point3D(intersection);
-         region.transformFromWorldToLocal(pointOnPlane);
 
-         pointsInRegions.get(region).add(intersection);
+         Point3D intersection = new Point3D(intersections[3 * i], intersections[3 * i + 1], intersections[3 * i + 2]);
+         pointsInRegions.get(rayCaster.getPlanarRegion(regionIndex)).add(intersection);
       }
    }
 }
@@ -3,6 +3,8 @@ package us.ihmc.humanoidBehaviors.tools;
 import us.ihmc.euclid.referenceFrame.FramePose3D;
 import us.ihmc.euclid.referenceFrame.ReferenceFrame;
 import us.ihmc.euclid.tuple3D.Point3D;
+import us.ihmc.euclid.tuple3D.Vector3D;
+import us.ihmc.humanoidBehaviors.tools.perception.PlanarRegionRayCaster;
 import us.ihmc.robotEnvironmentAwareness.geometry.ConcaveHullFactoryParameters;
 import us.ihmc.robotEnvironmentAwareness.planarRegion.PolygonizerParameters;
 import us.ihmc.robotics.geometry.PlanarRegion;
@@ -33,6 +35,12 @@ public class SimulatedLidar
    private final PolygonizerParameters polygonizerParameters = new PolygonizerParameters();
    private HashMap<PlanarRegion, List<Point3D>> pointsInRegions = new HashMap<>();
 
+   private final PlanarRegionRayCaster rayCaster = new PlanarRegionRayCaster();
+   private final Vector3D tempRayDirection = new Vector3D();
+   private final double[] rayDirections;
+   private final double[] intersections;
+   private final int[] hitRegionIndices;
+
    public SimulatedLidar(double range,
                          double fov,
                          int scanSize,
@@ -45,24 +53,54 @@ public class SimulatedLidar
       this.angularVelocity = angularVelocity;
       this.cameraFrame = cameraFrame;
 
-
-
-
+      rayDirections = new double[3 * scanSize];
+      intersections = new double[3 * scanSize];
+      hitRegionIndices = new int[scanSize];
    }
 
+   /**
+    * Casts one scan line of {@code scanSize} rays spread over the field of view in the sensor XY
+    * plane and returns the regions that were hit.
+    */
    public PlanarRegionsList filterMapToVisible(PlanarRegionsList map)
    {
-
       pointsInRegions.clear();
 
-      for (PlanarRegion planarRegion : map.getPlanarRegionsAsList())
-      {
-         pointsInRegions.put(planarRegion, new ArrayList<>());
-      }
+      rayCaster.setMap(map);
 
       tempCameraPose.setToZero(cameraFrame);
       tempCameraPose.changeFrame(ReferenceFrame.getWorldFrame());
 
-      return new PlanarRegionsList();
+      double minYaw = -fov / 2.0;
+      double angleIncrement = scanSize > 1 ? fov / (scanSize - 1) : 0.0;
+      for (int i = 0; i < scanSize; i++)
+      {
+         double yaw = minYaw + i * angleIncrement;
+         tempRayDirection.set(Math.cos(yaw), Math.sin(yaw), 0.0);
+         tempCameraPose.getOrientation().transform(tempRayDirection);
+         tempRayDirection.get(3 * i, rayDirections);
+      }
+
+      rayCaster.castRays(tempCameraPose.getPosition(), rayDirections, scanSize, range, intersections, hitRegionIndices);
+
+      PlanarRegionsList visibleRegions = new PlanarRegionsList();
+
+      for (int i = 0; i < scanSize; i++)
+      {
+         if (hitRegionIndices[i] == PlanarRegionRayCaster.NO_HIT)
+            continue;
+
+         PlanarRegion region = rayCaster.getPlanarRegion(hitRegionIndices[i]);
+         List<Point3D> points = pointsInRegions.get(region);
+         if (points == null)
+         {
+            points = new ArrayList<>();
+            pointsInRegions.put(region, points);
+            visibleRegions.addPlanarRegion(region);
+         }
+         points.add(new Point3D(intersections[3 * i], intersections[3 * i + 1], intersections[3 * i + 2]));
+      }
+
+      return visibleRegions;
    }
 }
@@ -1,8 +1,6 @@
 package us.ihmc.humanoidBehaviors.tools.perception;
 
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import us.ihmc.avatar.drcRobot.DRCRobotModel;
-import us.ihmc.euclid.Axis3D;
 import us.ihmc.euclid.geometry.interfaces.Pose3DReadOnly;
 import us.ihmc.euclid.referenceFrame.FramePose3D;
 import us.ihmc.euclid.referenceFrame.ReferenceFrame;
@@ -12,8 +10,6 @@ import us.ihmc.euclid.tuple3D.interfaces.Point3DReadOnly;
 import us.ihmc.euclid.yawPitchRoll.YawPitchRoll;
 import us.ihmc.avatar.drcRobot.RemoteSyncedRobotModel;
 import us.ihmc.mecano.frames.MovingReferenceFrame;
-import us.ihmc.robotics.geometry.PlanarRegion;
-import us.ihmc.robotics.geometry.PlanarRegionTools;
 import us.ihmc.robotics.geometry.PlanarRegionsList;
 import us.ihmc.robotics.partNames.NeckJointName;
 import us.ihmc.robotics.referenceFrames.PoseReferenceFrame;
@@ -44,9 +40,15 @@ public class MultisenseLidarSimulator
    private final int scanSize = 500;
    private final double angularVelocity = 2.183;
 
+   private final PlanarRegionRayCaster rayCaster;
+   private final double[] rayDirections = new double[3 * (scanSize + 2)];
+   private final double[] intersections = new double[3 * (scanSize + 2)];
+   private final int[] hitRegionIndices = new int[scanSize + 2];
+
    public MultisenseLidarSimulator(DRCRobotModel robotModel, ROS2Node ros2Node, PlanarRegionsList map)
    {
       this.map = map;
+      rayCaster = new PlanarRegionRayCaster(map);
       syncedRobot = new RemoteSyncedRobotModel(robotModel, ros2Node);
       neckFrame = syncedRobot.getReferenceFrames().getNeckFrame(NeckJointName.PROXIMAL_NECK_PITCH);
       sensorFrame = new PoseReferenceFrame("LidarSensorFrame", neckFrame); // TODO: Add actual Multisense offset
@@ -64,28 +66,27 @@ public class MultisenseLidarSimulator
 
          ArrayList<Point3DReadOnly> scan = new ArrayList<>();
 
-         // TODO: Calculate sections in parallel
+         sensorPose.setToZero(sensorFrame);
+         sensorPose.changeFrame(ReferenceFrame.getWorldFrame());
 
          double maxYaw = fov / 2.0;
          double minYaw = -maxYaw;
          double angleIncrement = fov / scanSize;
-         for (double yaw = minYaw; yaw <= maxYaw; yaw += angleIncrement)
+         int numberOfRays = 0;
+         for (double yaw = minYaw; yaw <= maxYaw && numberOfRays < rayDirections.length / 3; yaw += angleIncrement)
          {
-            sensorPose.setToZero(sensorFrame);
-            sensorPose.getOrientation().setToYawOrientation(yaw);
-            sensorPose.changeFrame(ReferenceFrame.getWorldFrame());
-
-            rangeRay.set(Axis3D.X);
+            rangeRay.set(Math.cos(yaw), Math.sin(yaw), 0.0);
             sensorPose.getOrientation().transform(rangeRay);
+            rangeRay.get(3 * numberOfRays, rayDirections);
+            numberOfRays++;
+         }
 
-            ImmutablePair<Point3D, PlanarRegion> planarRegionIntersection = PlanarRegionTools.intersectRegionsWithRay(map,
-                                                                                                                      sensorPose.getPosition(),
-                                                                                                                      rangeRay);
-            if (planarRegionIntersection == null
-             || planarRegionIntersection.getLeft().distance(sensorPose.getPosition()) > range)
-               continue;
+         rayCaster.castRays(sensorPose.getPosition(), rayDirections, numberOfRays, range, intersections, hitRegionIndices);
 
-            scan.add(planarRegionIntersection.getLeft());
+         for (int i = 0; i < numberOfRays; i++)
+         {
+            if (hitRegionIndices[i] != PlanarRegionRayCaster.NO_HIT)
+               scan.add(new Point3D(intersections[3 * i], intersections[3 * i + 1], intersections[3 * i + 2]));
          }
 
          for (Consumer<ArrayList<Point3DReadOnly>> scanListener : scanListeners)
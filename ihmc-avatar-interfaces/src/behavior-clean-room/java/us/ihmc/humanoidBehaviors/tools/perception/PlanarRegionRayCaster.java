@@ -0,0 +1,558 @@
+package us.ihmc.humanoidBehaviors.tools.perception;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import us.ihmc.euclid.geometry.ConvexPolygon2D;
+import us.ihmc.euclid.matrix.interfaces.RotationMatrixReadOnly;
+import us.ihmc.euclid.transform.interfaces.RigidBodyTransformReadOnly;
+import us.ihmc.euclid.tuple2D.interfaces.Point2DReadOnly;
+import us.ihmc.euclid.tuple3D.Point3D;
+import us.ihmc.euclid.tuple3D.interfaces.Point3DBasics;
+import us.ihmc.euclid.tuple3D.interfaces.Point3DReadOnly;
+import us.ihmc.euclid.tuple3D.interfaces.Vector3DReadOnly;
+import us.ihmc.euclid.tuple3D.interfaces.Tuple3DReadOnly;
+import us.ihmc.robotics.geometry.PlanarRegion;
+import us.ihmc.robotics.geometry.PlanarRegionTools;
+import us.ihmc.robotics.geometry.PlanarRegionsList;
+
+/**
+ * CPU ray caster against a {@link PlanarRegionsList}, shared by the simulated depth and lidar
+ * sensors.
+ * <p>
+ * A hit is computed the same way as
+ * {@link PlanarRegionTools#intersectRegionWithRay(PlanarRegion, Point3DReadOnly, us.ihmc.euclid.tuple3D.Vector3D)},
+ * i.e. against the convex hull of each region, but the regions are organized in a bounding volume
+ * hierarchy that is built once per map and the rays are traced in parallel into primitive arrays
+ * provided by the caller.
+ * </p>
+ */
+public class PlanarRegionRayCaster
+{
+   public static final int NO_HIT = -1;
+
+   private static final int MAX_PRIMITIVES_PER_LEAF = 4;
+   private static final int RAYS_PER_TASK = 1024;
+   private static final double EPSILON = 1.0e-12;
+   private static final double BOUNDS_MARGIN = 1.0e-6;
+
+   private PlanarRegionsList map;
+   private List<PlanarRegion> regions;
+
+   // Per region data, indexed by region index.
+   /** Plane normal (3) and plane offset (1) in world. */
+   private double[] planes;
+   /** Transform from world to region local frame: row-major rotation (9) then translation (3). */
+   private double[] worldToLocalTransforms;
+   private int[] hullVertexStartIndices;
+   /** Convex hull vertices in region local frame: x, y pairs. */
+   private double[] hullVertices;
+
+   // Flattened bounding volume hierarchy. The left child of a node is always the next node.
+   private int numberOfNodes;
+   /** Min x, y, z then max x, y, z for each node. */
+   private double[] nodeBounds;
+   private int[] nodeRightChildIndices;
+   private int[] nodePrimitiveStartIndices;
+   /** Number of regions in a leaf, 0 for internal nodes. */
+   private int[] nodePrimitiveCounts;
+   private int[] orderedRegionIndices;
+   private int maximumDepth;
+
+   // Scratch buffers for castRay and the batches cast on the calling thread.
+   private final double[] singleRayOrigin = new double[3];
+   private final double[] singleRayDirection = new double[3];
+   private final double[] singleRayIntersection = new double[3];
+   private final int[] singleRayRegionIndex = new int[1];
+   private int[] callingThreadStack = new int[1];
+
+   public PlanarRegionRayCaster()
+   {
+   }
+
+   public PlanarRegionRayCaster(PlanarRegionsList map)
+   {
+      setMap(map);
+   }
+
+   /**
+    * Sets the map to cast rays against. The bounding volume hierarchy is only rebuilt if the map is a
+    * different instance than the current one, such that this can be called every frame. A map that is
+    * modified in place is not re-indexed, call {@link #rebuild()} after modifying it.
+    */
+   public void setMap(PlanarRegionsList map)
+   {
+      if (map == this.map)
+         return;
+
+      this.map = map;
+      rebuild();
+   }
+
+   /**
+    * Rebuilds the bounding volume hierarchy from the current map, to be called after the regions of
+    * the map have been modified in place.
+    */
+   public void rebuild()
+   {
+      regions = map.getPlanarRegionsAsList();
+      int numberOfRegions = regions.size();
+
+      planes = new double[4 * numberOfRegions];
+      worldToLocalTransforms = new double[12 * numberOfRegions];
+      hullVertexStartIndices = new int[numberOfRegions + 1];
+      double[] regionBounds = new double[6 * numberOfRegions];
+      double[] regionCentroids = new double[3 * numberOfRegions];
+
+      int totalNumberOfVertices = 0;
+      for (int i = 0; i < numberOfRegions; i++)
+      {
+         hullVertexStartIndices[i] = totalNumberOfVertices;
+         totalNumberOfVertices += regions.get(i).getConvexHull().getNumberOfVertices();
+      }
+      hullVertexStartIndices[numberOfRegions] = totalNumberOfVertices;
+      hullVertices = new double[2 * totalNumberOfVertices];
+
+      Point3D vertexInWorld = new Point3D();
+
+      for (int i = 0; i < numberOfRegions; i++)
+      {
+         PlanarRegion region = regions.get(i);
+         RigidBodyTransformReadOnly transformToWorld = region.getTransformToWorld();
+         RigidBodyTransformReadOnly transformToLocal = region.getTransformToLocal();
+
+         RotationMatrixReadOnly rotationToWorld = transformToWorld.getRotation();
+         Tuple3DReadOnly regionOrigin = transformToWorld.getTranslation();
+         double normalX = rotationToWorld.getM02();
+         double normalY = rotationToWorld.getM12();
+         double normalZ = rotationToWorld.getM22();
+         planes[4 * i] = normalX;
+         planes[4 * i + 1] = normalY;
+         planes[4 * i + 2] = normalZ;
+         planes[4 * i + 3] = normalX * regionOrigin.getX() + normalY * regionOrigin.getY() + normalZ * regionOrigin.getZ();
+
+         RotationMatrixReadOnly rotationToLocal = transformToLocal.getRotation();
+         Tuple3DReadOnly translationToLocal = transformToLocal.getTranslation();
+         int transformIndex = 12 * i;
+         for (int row = 0; row < 3; row++)
+         {
+            for (int column = 0; column < 3; column++)
+            {
+               worldToLocalTransforms[transformIndex++] = rotationToLocal.getElement(row, column);
+            }
+         }
+         worldToLocalTransforms[transformIndex++] = translationToLocal.getX();
+         worldToLocalTransforms[transformIndex++] = translationToLocal.getY();
+         worldToLocalTransforms[transformIndex] = translationToLocal.getZ();
+
+         Arrays.fill(regionBounds, 6 * i, 6 * i + 3, Double.POSITIVE_INFINITY);
+         Arrays.fill(regionBounds, 6 * i + 3, 6 * i + 6, Double.NEGATIVE_INFINITY);
+
+         ConvexPolygon2D convexHull = region.getConvexHull();
+         for (int vertexIndex = 0; vertexIndex < convexHull.getNumberOfVertices(); vertexIndex++)
+         {
+            Point2DReadOnly vertex = convexHull.getVertex(vertexIndex);
+            int index = 2 * (hullVertexStartIndices[i] + vertexIndex);
+            hullVertices[index] = vertex.getX();
+            hullVertices[index + 1] = vertex.getY();
+
+            vertexInWorld.set(vertex.getX(), vertex.getY(), 0.0);
+            transformToWorld.transform(vertexInWorld);
+            for (int axis = 0; axis < 3; axis++)
+            {
+               regionBounds[6 * i + axis] = Math.min(regionBounds[6 * i + axis], vertexInWorld.getElement(axis));
+               regionBounds[6 * i + 3 + axis] = Math.max(regionBounds[6 * i + 3 + axis], vertexInWorld.getElement(axis));
+            }
+         }
+
+         for (int axis = 0; axis < 3; axis++)
+         {
+            // Inflating the bounds such that flat regions do not get culled because of rounding errors.
+            regionBounds[6 * i + axis] -= BOUNDS_MARGIN;
+            regionBounds[6 * i + 3 + axis] += BOUNDS_MARGIN;
+            regionCentroids[3 * i + axis] = 0.5 * (regionBounds[6 * i + axis] + regionBounds[6 * i + 3 + axis]);
+         }
+      }
+
+      buildHierarchy(numberOfRegions, regionBounds, regionCentroids);
+   }
+
+   private void buildHierarchy(int numberOfRegions, double[] regionBounds, double[] regionCentroids)
+   {
+      int maximumNumberOfNodes = Math.max(1, 2 * numberOfRegions);
+      nodeBounds = new double[6 * maximumNumberOfNodes];
+      nodeRightChildIndices = new int[maximumNumberOfNodes];
+      nodePrimitiveStartIndices = new int[maximumNumberOfNodes];
+      nodePrimitiveCounts = new int[maximumNumberOfNodes];
+      orderedRegionIndices = new int[numberOfRegions];
+      for (int i = 0; i < numberOfRegions; i++)
+         orderedRegionIndices[i] = i;
+
+      numberOfNodes = 0;
+      maximumDepth = 0;
+
+      if (numberOfRegions > 0)
+         buildNode(0, numberOfRegions, 1, regionBounds, regionCentroids);
+
+      if (callingThreadStack.length < maximumDepth)
+         callingThreadStack = new int[maximumDepth];
+   }
+
+   private int buildNode(int start, int end, int depth, double[] regionBounds, double[] regionCentroids)
+   {
+      int nodeIndex = numberOfNodes++;
+      maximumDepth = Math.max(maximumDepth, depth);
+
+      double[] centroidBounds = new double[6];
+      Arrays.fill(centroidBounds, 0, 3, Double.POSITIVE_INFINITY);
+      Arrays.fill(centroidBounds, 3, 6, Double.NEGATIVE_INFINITY);
+      Arrays.fill(nodeBounds, 6 * nodeIndex, 6 * nodeIndex + 3, Double.POSITIVE_INFINITY);
+      Arrays.fill(nodeBounds, 6 * nodeIndex + 3, 6 * nodeIndex + 6, Double.NEGATIVE_INFINITY);
+
+      for (int i = start; i < end; i++)
+      {
+         int regionIndex = orderedRegionIndices[i];
+         for (int axis = 0; axis < 3; axis++)
+         {
+            nodeBounds[6 * nodeIndex + axis] = Math.min(nodeBounds[6 * nodeIndex + axis], regionBounds[6 * regionIndex + axis]);
+            nodeBounds[6 * nodeIndex + 3 + axis] = Math.max(nodeBounds[6 * nodeIndex + 3 + axis], regionBounds[6 * regionIndex + 3 + axis]);
+            centroidBounds[axis] = Math.min(centroidBounds[axis], regionCentroids[3 * regionIndex + axis]);
+            centroidBounds[3 + axis] = Math.max(centroidBounds[3 + axis], regionCentroids[3 * regionIndex + axis]);
+         }
+      }
+
+      if (end - start <= MAX_PRIMITIVES_PER_LEAF)
+      {
+         makeLeaf(nodeIndex, start, end);
+         return nodeIndex;
+      }
+
+      int splitAxis = 0;
+      for (int axis = 1; axis < 3; axis++)
+      {
+         if (centroidBounds[3 + axis] - centroidBounds[axis] > centroidBounds[3 + splitAxis] - centroidBounds[splitAxis])
+            splitAxis = axis;
+      }
+
+      if (centroidBounds[3 + splitAxis] - centroidBounds[splitAxis] <= EPSILON)
+      { // All the centroids are at the same location, splitting is pointless.
+         makeLeaf(nodeIndex, start, end);
+         return nodeIndex;
+      }
+
+      int middle = (start + end) / 2;
+      selectNthSmallest(start, end - 1, middle, splitAxis, regionCentroids);
+
+      nodePrimitiveCounts[nodeIndex] = 0;
+      buildNode(start, middle, depth + 1, regionBounds, regionCentroids);
+      nodeRightChildIndices[nodeIndex] = buildNode(middle, end, depth + 1, regionBounds, regionCentroids);
+      return nodeIndex;
+   }
+
+   private void makeLeaf(int nodeIndex, int start, int end)
+   {
+      nodePrimitiveStartIndices[nodeIndex] = start;
+      nodePrimitiveCounts[nodeIndex] = end - start;
+      nodeRightChildIndices[nodeIndex] = -1;
+   }
+
+   /**
+    * Partially sorts {@link #orderedRegionIndices} such that the element at {@code n} is at its
+    * sorted position along the given axis.
+    */
+   private void selectNthSmallest(int left, int right, int n, int axis, double[] regionCentroids)
+   {
+      while (left < right)
+      {
+         double pivot = regionCentroids[3 * orderedRegionIndices[(left + right) >>> 1] + axis];
+         int i = left;
+         int j = right;
+
+         while (i <= j)
+         {
+            while (regionCentroids[3 * orderedRegionIndices[i] + axis] < pivot)
+               i++;
+            while (regionCentroids[3 * orderedRegionIndices[j] + axis] > pivot)
+               j--;
+
+            if (i <= j)
+            {
+               int temp = orderedRegionIndices[i];
+               orderedRegionIndices[i] = orderedRegionIndices[j];
+               orderedRegionIndices[j] = temp;
+               i++;
+               j--;
+            }
+         }
+
+         if (n <= j)
+            right = j;
+         else if (n >= i)
+            left = i;
+         else
+            return;
+      }
+   }
+
+   /**
+    * Casts a single ray. Uses scratch buffers of this caster, so it must not be called concurrently.
+    *
+    * @param rayOrigin        the start of the ray.
+    * @param rayDirection     the direction of the ray, does not need to be normalized.
+    * @param maximumRange     hits further than this distance from the origin are discarded.
+    * @param intersectionToPack the closest intersection. Modified only if there is a hit.
+    * @return the index of the region hit in the map or {@link #NO_HIT}.
+    */
+   public int castRay(Point3DReadOnly rayOrigin, Vector3DReadOnly rayDirection, double maximumRange, Point3DBasics intersectionToPack)
+   {
+      rayOrigin.get(singleRayOrigin);
+      rayDirection.get(singleRayDirection);
+
+      castRays(singleRayOrigin, 0, singleRayDirection, maximumRange, singleRayIntersection, singleRayRegionIndex, callingThreadStack, 0, 1);
+
+      if (singleRayRegionIndex[0] != NO_HIT)
+         intersectionToPack.set(singleRayIntersection);
+
+      return singleRayRegionIndex[0];
+   }
+
+   /**
+    * Casts rays that all start from the same origin.
+    *
+    * @param rayOrigin              the start of the rays.
+    * @param rayDirections          the ray directions as x, y, z triplets. Directions do not need to be
+    *                               normalized.
+    * @param numberOfRays           the number of rays to cast.
+    * @param maximumRange           hits further than this distance from the origin are discarded.
+    * @param intersectionsToPack    the intersections as x, y, z triplets. Left untouched for the rays
+    *                               that do not hit anything.
+    * @param regionIndicesToPack    the index in the map of the region hit by each ray or
+    *                               {@link #NO_HIT}.
+    */
+   public void castRays(Point3DReadOnly rayOrigin, double[] rayDirections, int numberOfRays, double maximumRange, double[] intersectionsToPack,
+                        int[] regionIndicesToPack)
+   {
+      double[] origin = {rayOrigin.getX(), rayOrigin.getY(), rayOrigin.getZ()};
+      castRaysInParallel(origin, 0, rayDirections, numberOfRays, maximumRange, intersectionsToPack, regionIndicesToPack);
+   }
+
+   /**
+    * Same as {@link #castRays(Point3DReadOnly, double[], int, double, double[], int[])} with one
+    * origin per ray, given as x, y, z triplets in {@code rayOrigins}.
+    */
+   public void castRays(double[] rayOrigins, double[] rayDirections, int numberOfRays, double maximumRange, double[] intersectionsToPack,
+                        int[] regionIndicesToPack)
+   {
+      castRaysInParallel(rayOrigins, 3, rayDirections, numberOfRays, maximumRange, intersectionsToPack, regionIndicesToPack);
+   }
+
+   private void castRaysInParallel(double[] rayOrigins, int originStride, double[] rayDirections, int numberOfRays, double maximumRange,
+                                   double[] intersectionsToPack, int[] regionIndicesToPack)
+   {
+      int numberOfTasks = (numberOfRays + RAYS_PER_TASK - 1) / RAYS_PER_TASK;
+      int stackSize = Math.max(1, maximumDepth);
+
+      if (numberOfTasks <= 1)
+      {
+         castRays(rayOrigins, originStride, rayDirections, maximumRange, intersectionsToPack, regionIndicesToPack, callingThreadStack, 0, numberOfRays);
+         return;
+      }
+
+      IntStream.range(0, numberOfTasks).parallel().forEach(task ->
+      {
+         int start = task * RAYS_PER_TASK;
+         int end = Math.min(start + RAYS_PER_TASK, numberOfRays);
+         castRays(rayOrigins, originStride, rayDirections, maximumRange, intersectionsToPack, regionIndicesToPack, new int[stackSize], start,
+                  end);
+      });
+   }
+
+   private void castRays(double[] rayOrigins, int originStride, double[] rayDirections, double maximumRange, double[] intersectionsToPack,
+                         int[] regionIndicesToPack, int[] stack, int start, int end)
+   {
+      for (int rayIndex = start; rayIndex < end; rayIndex++)
+      {
+         int originIndex = originStride * rayIndex;
+         double originX = rayOrigins[originIndex];
+         double originY = rayOrigins[originIndex + 1];
+         double originZ = rayOrigins[originIndex + 2];
+         double directionX = rayDirections[3 * rayIndex];
+         double directionY = rayDirections[3 * rayIndex + 1];
+         double directionZ = rayDirections[3 * rayIndex + 2];
+
+         regionIndicesToPack[rayIndex] = NO_HIT;
+
+         double directionLength = Math.sqrt(directionX * directionX + directionY * directionY + directionZ * directionZ);
+         if (numberOfNodes == 0 || directionLength < EPSILON)
+            continue;
+
+         // The ray parameter t is the distance from the origin.
+         directionX /= directionLength;
+         directionY /= directionLength;
+         directionZ /= directionLength;
+         double inverseDirectionX = 1.0 / directionX;
+         double inverseDirectionY = 1.0 / directionY;
+         double inverseDirectionZ = 1.0 / directionZ;
+
+         double closestDistance = maximumRange;
+         int closestRegionIndex = NO_HIT;
+
+         int stackSize = 0;
+         int nodeIndex = 0;
+
+         while (true)
+         {
+            if (intersectsBounds(nodeIndex, originX, originY, originZ, inverseDirectionX, inverseDirectionY, inverseDirectionZ, closestDistance))
+            {
+               int primitiveCount = nodePrimitiveCounts[nodeIndex];
+
+               if (primitiveCount > 0)
+               {
+                  int primitiveStart = nodePrimitiveStartIndices[nodeIndex];
+                  for (int i = primitiveStart; i < primitiveStart + primitiveCount; i++)
+                  {
+                     int regionIndex = orderedRegionIndices[i];
+                     double distance = intersectRegion(regionIndex, originX, originY, originZ, directionX, directionY, directionZ, closestDistance);
+                     // a miss is infinite, which is not rejected by an infinite range.
+                     if (Double.isFinite(distance) && (distance < closestDistance || closestRegionIndex == NO_HIT))
+                     {
+                        closestDistance = distance;
+                        closestRegionIndex = regionIndex;
+                     }
+                  }
+               }
+               else
+               {
+                  stack[stackSize++] = nodeRightChildIndices[nodeIndex];
+                  nodeIndex++;
+                  continue;
+               }
+            }
+
+            if (stackSize == 0)
+               break;
+            nodeIndex = stack[--stackSize];
+         }
+
+         if (closestRegionIndex != NO_HIT)
+         {
+            regionIndicesToPack[rayIndex] = closestRegionIndex;
+            intersectionsToPack[3 * rayIndex] = originX + closestDistance * directionX;
+            intersectionsToPack[3 * rayIndex + 1] = originY + closestDistance * directionY;
+            intersectionsToPack[3 * rayIndex + 2] = originZ + closestDistance * directionZ;
+         }
+      }
+   }
+
+   private boolean intersectsBounds(int nodeIndex, double originX, double originY, double originZ, double inverseDirectionX, double inverseDirectionY,
+                                    double inverseDirectionZ, double maximumDistance)
+   {
+      int boundsIndex = 6 * nodeIndex;
+      double tMin = 0.0;
+      double tMax = maximumDistance;
+
+      double t1 = (nodeBounds[boundsIndex] - originX) * inverseDirectionX;
+      double t2 = (nodeBounds[boundsIndex + 3] - originX) * inverseDirectionX;
+      tMin = Math.max(tMin, Math.min(t1, t2));
+      tMax = Math.min(tMax, Math.max(t1, t2));
+
+      t1 = (nodeBounds[boundsIndex + 1] - originY) * inverseDirectionY;
+      t2 = (nodeBounds[boundsIndex + 4] - originY) * inverseDirectionY;
+      tMin = Math.max(tMin, Math.min(t1, t2));
+      tMax = Math.min(tMax, Math.max(t1, t2));
+
+      t1 = (nodeBounds[boundsIndex + 2] - originZ) * inverseDirectionZ;
+      t2 = (nodeBounds[boundsIndex + 5] - originZ) * inverseDirectionZ;
+      tMin = Math.max(tMin, Math.min(t1, t2));
+      tMax = Math.min(tMax, Math.max(t1, t2));
+
+      // A ray parallel to and on the boundary of a slab gives NaN, in which case the node is not discarded.
+      return !(tMin > tMax);
+   }
+
+   /**
+    * @return the distance along the normalized ray to the region, or {@link Double#POSITIVE_INFINITY}
+    *         if there is no intersection closer than {@code maximumDistance}.
+    */
+   private double intersectRegion(int regionIndex, double originX, double originY, double originZ, double directionX, double directionY, double directionZ,
+                                  double maximumDistance)
+   {
+      int planeIndex = 4 * regionIndex;
+      double normalX = planes[planeIndex];
+      double normalY = planes[planeIndex + 1];
+      double normalZ = planes[planeIndex + 2];
+
+      double normalDotDirection = normalX * directionX + normalY * directionY + normalZ * directionZ;
+      if (Math.abs(normalDotDirection) < EPSILON)
+         return Double.POSITIVE_INFINITY;
+
+      double distance = (planes[planeIndex + 3] - (normalX * originX + normalY * originY + normalZ * originZ)) / normalDotDirection;
+      if (distance < 0.0 || distance > maximumDistance)
+         return Double.POSITIVE_INFINITY;
+
+      double intersectionX = originX + distance * directionX;
+      double intersectionY = originY + distance * directionY;
+      double intersectionZ = originZ + distance * directionZ;
+
+      int transformIndex = 12 * regionIndex;
+      double[] transform = worldToLocalTransforms;
+      double localX = transform[transformIndex] * intersectionX + transform[transformIndex + 1] * intersectionY + transform[transformIndex + 2] * intersectionZ
+            + transform[transformIndex + 9];
+      double localY = transform[transformIndex + 3] * intersectionX + transform[transformIndex + 4] * intersectionY
+            + transform[transformIndex + 5] * intersectionZ + transform[transformIndex + 10];
+
+      return isPointInsideConvexHull(regionIndex, localX, localY) ? distance : Double.POSITIVE_INFINITY;
+   }
+
+   private boolean isPointInsideConvexHull(int regionIndex, double x, double y)
+   {
+      int start = hullVertexStartIndices[regionIndex];
+      int end = hullVertexStartIndices[regionIndex + 1];
+      int numberOfVertices = end - start;
+
+      if (numberOfVertices < 3)
+         return false;
+
+      // Works for either vertex ordering: the point is inside if it is on the same side of every edge.
+      boolean hasPositive = false;
+      boolean hasNegative = false;
+
+      for (int i = 0; i < numberOfVertices; i++)
+      {
+         int index = 2 * (start + i);
+         int nextIndex = 2 * (start + (i + 1) % numberOfVertices);
+         double edgeX = hullVertices[nextIndex] - hullVertices[index];
+         double edgeY = hullVertices[nextIndex + 1] - hullVertices[index + 1];
+         double cross = edgeX * (y - hullVertices[index + 1]) - edgeY * (x - hullVertices[index]);
+
+         if (cross > 0.0)
+            hasPositive = true;
+         else if (cross < 0.0)
+            hasNegative = true;
+
+         if (hasPositive && hasNegative)
+            return false;
+      }
+
+      return true;
+   }
+
+   public PlanarRegionsList getMap()
+   {
+      return map;
+   }
+
+   /**
+    * Gets the region from its index as returned by the ray casting methods.
+    */
+   public PlanarRegion getPlanarRegion(int regionIndex)
+   {
+      return regions.get(regionIndex);
+   }
+
+   public int getNumberOfRegions()
+   {
+      return regions == null ? 0 : regions.size();
+   }
+}
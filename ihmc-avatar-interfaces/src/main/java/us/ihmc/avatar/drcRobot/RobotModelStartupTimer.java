@@ -0,0 +1,106 @@
+package us.ihmc.avatar.drcRobot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.function.Supplier;
+
+import javax.xml.bind.JAXBException;
+
+import us.ihmc.log.LogTools;
+import us.ihmc.modelFileLoaders.SdfLoader.SDFModelSnapshotCache;
+
+/**
+ * Reports the time needed to create a robot model, its {@code RobotDescription}, and a
+ * {@code FullRobotModel}, with and without the binary snapshot of the parsed SDF.
+ * <p>
+ * Each iteration first clears the snapshot cache so the next creation parses the SDF with JAXB and
+ * writes a new snapshot, then creates the model again from that snapshot. Both cases run in the
+ * same JVM such that class loading and JIT compilation are not counted against either.
+ * </p>
+ * <p>
+ * The snapshot only replaces the parsing of the SDF, the parsing is therefore also timed on its own
+ * to show which share of the model creation it accounts for.
+ * </p>
+ */
+public class RobotModelStartupTimer
+{
+   private static final int warmupIterations = 3;
+   private static final int iterations = 10;
+
+   /**
+    * @param robotName         used for the report.
+    * @param sdfSupplier       opens the SDF the robot model is created from.
+    * @param robotModelFactory creates a new robot model.
+    */
+   public static void run(String robotName, Supplier<InputStream> sdfSupplier, Supplier<? extends DRCRobotModel> robotModelFactory)
+         throws IOException, JAXBException
+   {
+      if (SDFModelSnapshotCache.getDefaultCache() == null)
+      {
+         System.setProperty(SDFModelSnapshotCache.ENABLE_PROPERTY, "true");
+         System.setProperty(SDFModelSnapshotCache.DIRECTORY_PROPERTY, Files.createTempDirectory("modelSnapshots").toString());
+      }
+
+      SDFModelSnapshotCache snapshotCache = SDFModelSnapshotCache.getDefaultCache();
+
+      byte[] sdfBytes;
+      try (InputStream sdfStream = sdfSupplier.get())
+      {
+         sdfBytes = SDFModelSnapshotCache.readFully(sdfStream);
+      }
+
+      for (int i = 0; i < warmupIterations; i++)
+      {
+         snapshotCache.clear();
+         SDFModelSnapshotCache.unmarshal(sdfBytes);
+         snapshotCache.load(sdfBytes);
+         snapshotCache.clear();
+         createRobot(robotModelFactory);
+         createRobot(robotModelFactory);
+      }
+
+      long parsingTime = 0;
+      long snapshotTime = 0;
+      long coldTime = 0;
+      long warmTime = 0;
+
+      for (int i = 0; i < iterations; i++)
+      {
+         snapshotCache.clear();
+         snapshotCache.load(sdfBytes);
+
+         parsingTime -= System.nanoTime();
+         SDFModelSnapshotCache.unmarshal(sdfBytes);
+         parsingTime += System.nanoTime();
+
+         snapshotTime -= System.nanoTime();
+         snapshotCache.load(sdfBytes);
+         snapshotTime += System.nanoTime();
+
+         snapshotCache.clear();
+         coldTime += createRobot(robotModelFactory);
+         warmTime += createRobot(robotModelFactory);
+      }
+
+      LogTools.info(String.format("%s model startup, snapshots in %s", robotName, snapshotCache.getCacheDirectory()));
+      LogTools.info(String.format("SDF only: parsing %.1f ms, from the snapshot %.1f ms, speedup %.1fx",
+                                  1.0e-6 * parsingTime / iterations,
+                                  1.0e-6 * snapshotTime / iterations,
+                                  (double) parsingTime / snapshotTime));
+      LogTools.info(String.format("Model creation: parsing the SDF %.1f ms, from the snapshot %.1f ms, speedup %.2fx, parsing is %.0f%% of the creation",
+                                  1.0e-6 * coldTime / iterations,
+                                  1.0e-6 * warmTime / iterations,
+                                  (double) coldTime / warmTime,
+                                  100.0 * parsingTime / coldTime));
+   }
+
+   private static long createRobot(Supplier<? extends DRCRobotModel> robotModelFactory)
+   {
+      long startTime = System.nanoTime();
+      DRCRobotModel robotModel = robotModelFactory.get();
+      robotModel.getRobotDescription();
+      robotModel.createFullRobotModel();
+      return System.nanoTime() - startTime;
+   }
+}
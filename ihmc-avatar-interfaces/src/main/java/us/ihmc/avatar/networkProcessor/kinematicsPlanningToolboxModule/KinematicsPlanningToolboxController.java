@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.fest.swing.util.Pair;
@@ -17,13 +18,17 @@ import controller_msgs.msg.dds.KinematicsToolboxRigidBodyMessage;
 import controller_msgs.msg.dds.RobotConfigurationData;
 import controller_msgs.msg.dds.WholeBodyTrajectoryMessage;
 import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.map.hash.TObjectIntHashMap;
 import us.ihmc.avatar.drcRobot.DRCRobotModel;
+import us.ihmc.avatar.networkProcessor.kinematicsToolboxModule.HumanoidKinematicsSolver;
+import us.ihmc.avatar.networkProcessor.kinematicsToolboxModule.HumanoidKinematicsSolverPool;
 import us.ihmc.avatar.networkProcessor.kinematicsToolboxModule.HumanoidKinematicsToolboxController;
 import us.ihmc.avatar.networkProcessor.kinematicsToolboxModule.KinematicsToolboxCommandConverter;
 import us.ihmc.avatar.networkProcessor.kinematicsToolboxModule.KinematicsToolboxController;
 import us.ihmc.avatar.networkProcessor.kinematicsToolboxModule.KinematicsToolboxHelper;
 import us.ihmc.avatar.networkProcessor.kinematicsToolboxModule.KinematicsToolboxModule;
 import us.ihmc.avatar.networkProcessor.modules.ToolboxController;
+import us.ihmc.commons.Conversions;
 import us.ihmc.communication.controllerAPI.CommandInputManager;
 import us.ihmc.communication.controllerAPI.StatusMessageOutputManager;
 import us.ihmc.communication.packets.MessageTools;
@@ -93,13 +98,33 @@ public class KinematicsPlanningToolboxController extends ToolboxController
 
    private final HumanoidKinematicsToolboxController ikController;
    private final KinematicsToolboxOutputStatus initialRobotConfiguration;
+   private final CapturabilityBasedStatus initialCapturabilityBasedStatus = new CapturabilityBasedStatus();
    private final CommandInputManager ikCommandInputManager = new CommandInputManager(getClass().getSimpleName(), KinematicsToolboxModule.supportedCommands());
 
    private final YoInteger indexOfCurrentKeyFrame;
    private final YoDouble totalComputationTime;
 
+   private final SolutionQualityConvergenceSettings optimizationSettings;
    private final SolutionQualityConvergenceDetector solutionQualityConvergenceDetector;
 
+   /**
+    * When {@code true}, the key frames are all solved at once on independent solvers seeded with the
+    * current robot configuration, then a sequential pass re-solves from the previous key frame only
+    * the ones that are invalid or that would exceed the joint velocity limits, see
+    * {@link #solveKeyFramesConcurrently()}.
+    */
+   private final YoBoolean useConcurrentKeyFrameSolver;
+   private final YoInteger numberOfKeyFrameSolvers;
+   private boolean isSolvingKeyFramesConcurrently = false;
+   private final DRCRobotModel drcRobotModel;
+   /**
+    * Created on the first concurrent solve and when the number of solvers changes, the first solver
+    * is also used for the sequential pass.
+    */
+   private HumanoidKinematicsSolverPool keyFrameSolverPool = null;
+   private HumanoidKinematicsSolver keyFrameSolver = null;
+   private final TObjectIntHashMap<String> armJointIndices = new TObjectIntHashMap<>();
+
    public KinematicsPlanningToolboxController(DRCRobotModel drcRobotModel, FullHumanoidRobotModel fullRobotModel, CommandInputManager commandInputManager,
                                               StatusMessageOutputManager statusOutputManager, YoGraphicsListRegistry yoGraphicsListRegistry,
                                               YoRegistry parentRegistry)
@@ -107,6 +132,7 @@ public class KinematicsPlanningToolboxController extends ToolboxController
       super(statusOutputManager, parentRegistry);
 
       this.desiredFullRobotModel = fullRobotModel;
+      this.drcRobotModel = drcRobotModel;
 
       armJointVelocityLimitMap = new HashMap<>();
       fullRobotModelTrajectoryCalculator = new WholeBodyTrajectoryPointCalculator(drcRobotModel);
@@ -144,9 +170,13 @@ public class KinematicsPlanningToolboxController extends ToolboxController
       indexOfCurrentKeyFrame = new YoInteger("indexOfCurrentKeyFrame", parentRegistry);
       totalComputationTime = new YoDouble("totalComputationTime", parentRegistry);
 
-      SolutionQualityConvergenceSettings optimizationSettings = new KinematicsPlanningToolboxOptimizationSettings();
+      optimizationSettings = new KinematicsPlanningToolboxOptimizationSettings();
       solutionQualityConvergenceDetector = new SolutionQualityConvergenceDetector(optimizationSettings, parentRegistry);
 
+      useConcurrentKeyFrameSolver = new YoBoolean("useConcurrentKeyFrameSolver", parentRegistry);
+      useConcurrentKeyFrameSolver.set(false);
+      numberOfKeyFrameSolvers = new YoInteger("numberOfKeyFrameSolvers", parentRegistry);
+      numberOfKeyFrameSolvers.set(HumanoidKinematicsSolverPool.DEFAULT_NUMBER_OF_SOLVERS);
    }
 
    @Override
@@ -214,11 +244,12 @@ public class KinematicsPlanningToolboxController extends ToolboxController
       if (!updateIKMessages())
          return false;
 
-      ikController.updateFootSupportState(true, true);
       boolean initialized = ikController.initialize();
       if (!initialized)
          throw new RuntimeException("Could not initialize the " + KinematicsToolboxController.class.getSimpleName());
 
+      armJointNames.clear();
+      armJointIndices.clear();
       armJointVelocityLimitMap.clear();
       for (RobotSide robotSide : RobotSide.values)
       {
@@ -233,6 +264,7 @@ public class KinematicsPlanningToolboxController extends ToolboxController
                Pair<Double, Double> velocityLimit = new Pair<Double, Double>(oneDoFJointByName.getVelocityLimitLower(),
                                                                              oneDoFJointByName.getVelocityLimitUpper());
                armJointVelocityLimitMap.put(armJointName, velocityLimit);
+               armJointIndices.put(armJointName, indexOfJoint(oneDoFJointByName));
             }
             armJoint = armJoint.getPredecessor().getParentJoint();
          }
@@ -248,8 +280,11 @@ public class KinematicsPlanningToolboxController extends ToolboxController
       for (int i = 0; i < getNumberOfKeyFrames(); i++)
          solution.getKeyFrameTimes().add(keyFrameTimes.get(i));
 
+      isSolvingKeyFramesConcurrently = useConcurrentKeyFrameSolver.getBooleanValue();
+
       solutionQualityConvergenceDetector.initialize();
-      submitKeyFrameMessages();
+      if (!isSolvingKeyFramesConcurrently)
+         submitKeyFrameMessages();
 
       if (DEBUG)
          System.out.println("Initializing is done");
@@ -451,9 +486,14 @@ public class KinematicsPlanningToolboxController extends ToolboxController
    }
 
    @Override
-   public void updateInternal() throws RuntimeException
+   public void updateInternal() throws InterruptedException, ExecutionException
    {
-      if (solutionQualityConvergenceDetector.isSolved())
+      if (isSolvingKeyFramesConcurrently)
+      {
+         solveKeyFramesConcurrently();
+         packSolution();
+      }
+      else if (solutionQualityConvergenceDetector.isSolved())
       {
          if (DEBUG)
             System.out.println("solved " + solutionQualityConvergenceDetector.isValid() + " " + solutionQualityConvergenceDetector.getNumberOfIteration());
@@ -559,15 +599,156 @@ public class KinematicsPlanningToolboxController extends ToolboxController
 
    private void appendRobotConfigurationOnToolboxSolution()
    {
-      KinematicsToolboxOutputStatus keyFrame = new KinematicsToolboxOutputStatus(ikController.getSolution());
+      appendRobotConfigurationOnToolboxSolution(ikController.getSolution(), solutionQualityConvergenceDetector.isValid());
+   }
+
+   private void appendRobotConfigurationOnToolboxSolution(KinematicsToolboxOutputStatus keyFrameSolution, boolean isValid)
+   {
+      KinematicsToolboxOutputStatus keyFrame = new KinematicsToolboxOutputStatus(keyFrameSolution);
       solution.getRobotConfigurations().add().set(keyFrame);
 
-      solution.setSolutionQuality(solution.getSolutionQuality() + ikController.getSolution().getSolutionQuality());
+      solution.setSolutionQuality(solution.getSolutionQuality() + keyFrameSolution.getSolutionQuality());
 
-      if (!solutionQualityConvergenceDetector.isValid())
+      if (!isValid)
          solution.setPlanId(KinematicsPlanningToolboxOutputStatus.KINEMATICS_PLANNING_RESULT_UNREACHABLE_KEYFRAME);
    }
 
+   /**
+    * Solves all the key frames at once, each seeded with the current robot configuration, then walks
+    * them in order and re-solves from the previous key frame only the ones that are invalid or that
+    * exceed the arm joint velocity limits. The valid key frames that respect the limits are kept as
+    * they are, so this pass does not smooth the plan.
+    */
+   private void solveKeyFramesConcurrently() throws InterruptedException, ExecutionException
+   {
+      long startTime = System.nanoTime();
+
+      int numberOfSolvers = Math.max(1, numberOfKeyFrameSolvers.getIntegerValue());
+
+      if (keyFrameSolverPool == null || keyFrameSolverPool.getNumberOfSolvers() != numberOfSolvers)
+      {
+         if (keyFrameSolverPool != null)
+            keyFrameSolverPool.shutdown();
+         // Not attached to the toolbox registry, the solvers are only created when this option is used.
+         if (keyFrameSolver == null)
+            keyFrameSolver = new HumanoidKinematicsSolver(drcRobotModel, null, new YoRegistry("KeyFrameSolver"));
+         keyFrameSolverPool = new HumanoidKinematicsSolverPool(keyFrameSolver, drcRobotModel, numberOfSolvers);
+      }
+
+      int numberOfKeyFrames = getNumberOfKeyFrames();
+      KinematicsToolboxOutputStatus[] keyFrameSolutions = new KinematicsToolboxOutputStatus[numberOfKeyFrames];
+      boolean[] keyFrameValidities = new boolean[numberOfKeyFrames];
+
+      // all the key frames are seeded with the current robot configuration such that they do not depend on each other.
+      keyFrameSolverPool.evaluate(numberOfKeyFrames, (solver, keyFrameIndex) ->
+      {
+         keyFrameValidities[keyFrameIndex] = solveKeyFrame(solver, keyFrameIndex, initialRobotConfiguration);
+         keyFrameSolutions[keyFrameIndex] = new KinematicsToolboxOutputStatus(solver.getSolution());
+      });
+
+      KinematicsToolboxOutputStatus previousKeyFrame = initialRobotConfiguration;
+      double previousKeyFrameTime = 0.0;
+      for (int i = 0; i < numberOfKeyFrames; i++)
+      {
+         double keyFrameDuration = keyFrameTimes.get(i) - previousKeyFrameTime;
+
+         double velocityLimitExcess = computeAverageVelocityLimitExcess(previousKeyFrame, keyFrameSolutions[i], keyFrameDuration);
+
+         // solving from the previous key frame is what the sequential solver does, the solution stays closer to it.
+         if (!keyFrameValidities[i] || velocityLimitExcess > 0.0)
+         {
+            boolean isValid = solveKeyFrame(keyFrameSolver, i, previousKeyFrame);
+            double newVelocityLimitExcess = computeAverageVelocityLimitExcess(previousKeyFrame, keyFrameSolver.getSolution(), keyFrameDuration);
+
+            // a valid key frame is preferred, then the one that is the closest to the velocity limits.
+            boolean isBetter = isValid != keyFrameValidities[i] ? isValid : newVelocityLimitExcess < velocityLimitExcess;
+
+            if (isBetter)
+            {
+               keyFrameValidities[i] = isValid;
+               keyFrameSolutions[i] = new KinematicsToolboxOutputStatus(keyFrameSolver.getSolution());
+            }
+         }
+
+         if (DEBUG)
+            System.out.println("solved " + keyFrameValidities[i]);
+
+         appendRobotConfigurationOnToolboxSolution(keyFrameSolutions[i], keyFrameValidities[i]);
+         previousKeyFrame = keyFrameSolutions[i];
+         previousKeyFrameTime = keyFrameTimes.get(i);
+      }
+
+      MessageTools.unpackDesiredJointState(previousKeyFrame,
+                                           getDesiredFullRobotModel().getRootJoint(),
+                                           FullRobotModelUtils.getAllJointsExcludingHands(getDesiredFullRobotModel()));
+      indexOfCurrentKeyFrame.set(numberOfKeyFrames);
+      totalComputationTime.set(Conversions.nanosecondsToSeconds(System.nanoTime() - startTime));
+   }
+
+   private boolean solveKeyFrame(HumanoidKinematicsSolver solver, int keyFrameIndex, KinematicsToolboxOutputStatus initialGuess)
+   {
+      solver.setMaximumNumberOfIterations(optimizationSettings.getDefaultTerminalIteration());
+      solver.setSolutionQualityThreshold(optimizationSettings.getSolutionQualityThreshold());
+      solver.setSolutionStabilityThreshold(optimizationSettings.getSolutionStabilityThreshold());
+      solver.setSolutionMinimumProgression(optimizationSettings.getMinimumProgression());
+
+      solver.setInitialConfiguration(initialGuess);
+      // Same support state as the sequential solver.
+      solver.updateCapturabilityBasedStatus(initialCapturabilityBasedStatus);
+      solver.initialize();
+
+      for (int i = 0; i < ikRigidBodies.size(); i++)
+         solver.submit(ikRigidBodyMessageMap.get(ikRigidBodies.get(i)).get(keyFrameIndex));
+      if (ikCenterOfMassMessages.get(keyFrameIndex) != null)
+         solver.submit(ikCenterOfMassMessages.get(keyFrameIndex));
+      if (ikConfigurationMessage.get() != null)
+         solver.submit(ikConfigurationMessage.get());
+
+      return solver.solve();
+   }
+
+   /**
+    * Computes by how much the average velocity of the arm joints between two key frames exceeds the
+    * joint velocity limits. A key frame that still exceeds them once re-solved is left to the key
+    * frame time optimization done when packing the solution, which reports the plan as exceeding the
+    * limits if it cannot fix it.
+    *
+    * @return the largest excess over all the arm joints, 0 when all the limits are respected.
+    */
+   private double computeAverageVelocityLimitExcess(KinematicsToolboxOutputStatus previousKeyFrame, KinematicsToolboxOutputStatus keyFrame,
+                                                    double keyFrameDuration)
+   {
+      if (keyFrameDuration <= 0.0)
+         return 0.0;
+
+      double maximumExcess = 0.0;
+
+      for (String armJointName : armJointNames)
+      {
+         int jointIndex = armJointIndices.get(armJointName);
+         if (jointIndex < 0)
+            continue;
+
+         double jointVelocity = (keyFrame.getDesiredJointAngles().get(jointIndex) - previousKeyFrame.getDesiredJointAngles().get(jointIndex))
+               / keyFrameDuration;
+         Pair<Double, Double> velocityLimit = armJointVelocityLimitMap.get(armJointName);
+         maximumExcess = Math.max(maximumExcess, Math.max(velocityLimit.i - jointVelocity, jointVelocity - velocityLimit.ii));
+      }
+
+      return maximumExcess;
+   }
+
+   private int indexOfJoint(OneDoFJointBasics joint)
+   {
+      OneDoFJointBasics[] allJointsExcludingHands = FullRobotModelUtils.getAllJointsExcludingHands(getDesiredFullRobotModel());
+      for (int i = 0; i < allJointsExcludingHands.length; i++)
+      {
+         if (allJointsExcludingHands[i] == joint)
+            return i;
+      }
+      return -1;
+   }
+
    private boolean submitKeyFrameMessages()
    {
       for (int i = 0; i < ikRigidBodies.size(); i++)
@@ -611,6 +792,7 @@ public class KinematicsPlanningToolboxController extends ToolboxController
       }
 
       ikController.updateCapturabilityBasedStatus(capturabilityBasedStatus);
+      initialCapturabilityBasedStatus.set(capturabilityBasedStatus);
       return true;
    }
 
@@ -625,6 +807,34 @@ public class KinematicsPlanningToolboxController extends ToolboxController
       return true;
    }
 
+   /**
+    * Sets whether the key frames of the next plans are solved concurrently, see
+    * {@link #useConcurrentKeyFrameSolver}. Takes effect on the next call to {@link #initialize()}.
+    */
+   public void setUseConcurrentKeyFrameSolver(boolean useConcurrentKeyFrameSolver)
+   {
+      this.useConcurrentKeyFrameSolver.set(useConcurrentKeyFrameSolver);
+   }
+
+   /**
+    * Sets the number of solvers used to solve the key frames concurrently. Takes effect on the next
+    * plan solved concurrently.
+    */
+   public void setNumberOfKeyFrameSolvers(int numberOfKeyFrameSolvers)
+   {
+      this.numberOfKeyFrameSolvers.set(numberOfKeyFrameSolvers);
+   }
+
+   @Override
+   public void closeAndDispose()
+   {
+      if (keyFrameSolverPool != null)
+      {
+         keyFrameSolverPool.shutdown();
+         keyFrameSolverPool = null;
+      }
+   }
+
    private int getNumberOfKeyFrames()
    {
       return keyFrameTimes.size();
@@ -1,6 +1,8 @@
 package us.ihmc.avatar.networkProcessor.kinematicsToolboxModule;
 
+import controller_msgs.msg.dds.CapturabilityBasedStatus;
 import controller_msgs.msg.dds.KinematicsToolboxCenterOfMassMessage;
+import controller_msgs.msg.dds.KinematicsToolboxConfigurationMessage;
 import controller_msgs.msg.dds.KinematicsToolboxOutputStatus;
 import controller_msgs.msg.dds.KinematicsToolboxRigidBodyMessage;
 import controller_msgs.msg.dds.RobotConfigurationData;
@@ -44,6 +46,9 @@ public class HumanoidKinematicsSolver
 
    private final YoDouble solutionQuality = new YoDouble("solutionQuality", registry);
 
+   private final CapturabilityBasedStatus capturabilityBasedStatus = new CapturabilityBasedStatus();
+   private boolean hasCapturabilityBasedStatus = false;
+
    public HumanoidKinematicsSolver(FullHumanoidRobotModelFactory fullRobotModelFactory, YoGraphicsListRegistry yoGraphicsListRegistry,
                                    YoRegistry parentRegistry)
    {
@@ -84,6 +89,16 @@ public class HumanoidKinematicsSolver
       controller.updateRobotConfigurationData(robotConfigurationData);
    }
 
+   /**
+    * Sets the support state used from the next call to {@link #initialize()}. When it is never set,
+    * both feet are considered in support.
+    */
+   public void updateCapturabilityBasedStatus(CapturabilityBasedStatus newStatus)
+   {
+      capturabilityBasedStatus.set(newStatus);
+      hasCapturabilityBasedStatus = true;
+   }
+
    public void submit(Iterable<KinematicsToolboxRigidBodyMessage> rigidBodyMessages)
    {
       rigidBodyMessages.forEach(this::submit);
@@ -99,9 +114,37 @@ public class HumanoidKinematicsSolver
       commandInputManager.submitMessage(centerOfMassMessage);
    }
 
+   public void submit(KinematicsToolboxConfigurationMessage configurationMessage)
+   {
+      commandInputManager.submitMessage(configurationMessage);
+   }
+
+   public void setMaximumNumberOfIterations(int maximumNumberOfIterations)
+   {
+      this.maximumNumberOfIterations.set(maximumNumberOfIterations);
+   }
+
+   public void setSolutionQualityThreshold(double solutionQualityThreshold)
+   {
+      this.solutionQualityThreshold.set(solutionQualityThreshold);
+   }
+
+   public void setSolutionStabilityThreshold(double solutionStabilityThreshold)
+   {
+      this.solutionStabilityThreshold.set(solutionStabilityThreshold);
+   }
+
+   public void setSolutionMinimumProgression(double solutionMinimumProgression)
+   {
+      this.solutionMinimumProgression.set(solutionMinimumProgression);
+   }
+
    public void initialize()
    {
-      controller.updateFootSupportState(true, true);
+      if (hasCapturabilityBasedStatus)
+         controller.updateCapturabilityBasedStatus(capturabilityBasedStatus);
+      else
+         controller.updateFootSupportState(true, true);
 
       boolean initialized = controller.initialize();
 
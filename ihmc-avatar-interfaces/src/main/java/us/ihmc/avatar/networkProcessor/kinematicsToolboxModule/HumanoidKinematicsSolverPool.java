@@ -0,0 +1,98 @@
+package us.ihmc.avatar.networkProcessor.kinematicsToolboxModule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import us.ihmc.commons.thread.ThreadTools;
+import us.ihmc.robotModels.FullHumanoidRobotModelFactory;
+import us.ihmc.yoVariables.registry.YoRegistry;
+
+/**
+ * Set of kinematics solvers, each with its own robot model, used to evaluate several candidate
+ * configurations concurrently.
+ * <p>
+ * The first solver is the one given at construction and is run on the calling thread, the others
+ * are run on daemon threads. The tasks are striped over the solvers by index, such that a given
+ * task is always evaluated by the same solver and the results do not depend on thread scheduling.
+ * </p>
+ */
+public class HumanoidKinematicsSolverPool
+{
+   public static final int DEFAULT_NUMBER_OF_SOLVERS = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors() / 2));
+
+   public interface SolverTask
+   {
+      void evaluate(HumanoidKinematicsSolver solver, int taskIndex);
+   }
+
+   private final List<HumanoidKinematicsSolver> solvers = new ArrayList<>();
+   private final ExecutorService executor;
+   private final List<Future<?>> futures = new ArrayList<>();
+
+   public HumanoidKinematicsSolverPool(HumanoidKinematicsSolver mainSolver, FullHumanoidRobotModelFactory fullRobotModelFactory, int numberOfSolvers)
+   {
+      solvers.add(mainSolver);
+
+      for (int i = 1; i < numberOfSolvers; i++)
+      {
+         // Not attached to the toolbox registry, the variables would be updated from several threads.
+         YoRegistry solverRegistry = new YoRegistry(getClass().getSimpleName() + i);
+         solvers.add(new HumanoidKinematicsSolver(fullRobotModelFactory, null, solverRegistry));
+      }
+
+      if (numberOfSolvers > 1)
+         executor = Executors.newFixedThreadPool(numberOfSolvers - 1, ThreadTools.createNamedDaemonThreadFactory(getClass().getSimpleName()));
+      else
+         executor = null;
+   }
+
+   /**
+    * Runs the tasks {@code 0} to {@code numberOfTasks - 1} and waits for all of them to be done.
+    */
+   public void evaluate(int numberOfTasks, SolverTask task) throws InterruptedException, ExecutionException
+   {
+      int numberOfActiveSolvers = Math.min(solvers.size(), numberOfTasks);
+      futures.clear();
+
+      for (int solverIndex = 1; solverIndex < numberOfActiveSolvers; solverIndex++)
+      {
+         int firstTaskIndex = solverIndex;
+         HumanoidKinematicsSolver solver = solvers.get(solverIndex);
+         futures.add(executor.submit(() -> evaluateStripe(solver, firstTaskIndex, numberOfTasks, task)));
+      }
+
+      try
+      {
+         evaluateStripe(solvers.get(0), 0, numberOfTasks, task);
+      }
+      finally
+      {
+         for (int i = 0; i < futures.size(); i++)
+            futures.get(i).get();
+      }
+   }
+
+   private void evaluateStripe(HumanoidKinematicsSolver solver, int firstTaskIndex, int numberOfTasks, SolverTask task)
+   {
+      for (int taskIndex = firstTaskIndex; taskIndex < numberOfTasks; taskIndex += solvers.size())
+         task.evaluate(solver, taskIndex);
+   }
+
+   public int getNumberOfSolvers()
+   {
+      return solvers.size();
+   }
+
+   /**
+    * Stops the threads of this pool, it cannot be used afterwards.
+    */
+   public void shutdown()
+   {
+      if (executor != null)
+         executor.shutdownNow();
+   }
+}
@@ -99,6 +99,15 @@ public abstract class ToolboxController
 
    }
 
+   /**
+    * Implement this method to release the resources, such as threads, held by this toolbox
+    * controller. It is called when the toolbox module is destroyed.
+    */
+   public void closeAndDispose()
+   {
+
+   }
+
    /**
     * Get the initialization state of this toolbox controller:
     * <ul>
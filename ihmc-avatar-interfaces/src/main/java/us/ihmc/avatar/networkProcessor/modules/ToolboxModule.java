@@ -368,6 +368,7 @@ public abstract class ToolboxModule implements CloseableAndDisposable
          yoVariableServerScheduled = null;
       }
       executorService.shutdownNow();
+      getToolboxController().closeAndDispose();
 
       if (yoVariableServer != null)
       {
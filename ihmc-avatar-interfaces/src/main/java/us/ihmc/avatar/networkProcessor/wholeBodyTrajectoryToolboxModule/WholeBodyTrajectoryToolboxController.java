@@ -7,10 +7,12 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 
 import controller_msgs.msg.dds.KinematicsToolboxOutputStatus;
+import controller_msgs.msg.dds.KinematicsToolboxRigidBodyMessage;
 import controller_msgs.msg.dds.RobotConfigurationData;
 import controller_msgs.msg.dds.WholeBodyTrajectoryToolboxOutputStatus;
 import us.ihmc.avatar.drcRobot.DRCRobotModel;
 import us.ihmc.avatar.networkProcessor.kinematicsToolboxModule.HumanoidKinematicsSolver;
+import us.ihmc.avatar.networkProcessor.kinematicsToolboxModule.HumanoidKinematicsSolverPool;
 import us.ihmc.avatar.networkProcessor.modules.ToolboxController;
 import us.ihmc.commons.Conversions;
 import us.ihmc.commons.PrintTools;
@@ -52,12 +54,19 @@ public class WholeBodyTrajectoryToolboxController extends ToolboxController
    private static final int DEFAULT_MAXIMUM_EXPANSION_SIZE_VALUE = 1000;
    private static final int DEFAULT_NUMBER_OF_INITIAL_GUESSES_VALUE = 200;
    private static final int TERMINAL_CONDITION_NUMBER_OF_VALID_INITIAL_GUESSES = 20;
+   /**
+    * Number of candidates sampled from the tree before evaluating them. It does not depend on the
+    * number of solvers such that the tree does not depend on the machine running the toolbox.
+    */
+   private static final int CANDIDATE_BATCH_SIZE = 8;
 
    private static final ReferenceFrame worldFrame = ReferenceFrame.getWorldFrame();
 
    private final Random randomManager = new Random(1);
 
    private final HumanoidKinematicsSolver humanoidKinematicsSolver;
+   /** Evaluates batches of candidates concurrently, the candidates are sampled on the toolbox thread in fixed size batches so the results stay reproducible. */
+   private final HumanoidKinematicsSolverPool solverPool;
 
    private final WholeBodyTrajectoryToolboxOutputStatus toolboxSolution;
 
@@ -155,6 +164,20 @@ public class WholeBodyTrajectoryToolboxController extends ToolboxController
    public WholeBodyTrajectoryToolboxController(DRCRobotModel drcRobotModel, FullHumanoidRobotModel fullRobotModel, CommandInputManager commandInputManager,
                                                StatusMessageOutputManager statusOutputManager, YoRegistry registry,
                                                YoGraphicsListRegistry yoGraphicsListRegistry, boolean visualize)
+   {
+      this(drcRobotModel,
+           fullRobotModel,
+           commandInputManager,
+           statusOutputManager,
+           registry,
+           yoGraphicsListRegistry,
+           visualize,
+           HumanoidKinematicsSolverPool.DEFAULT_NUMBER_OF_SOLVERS);
+   }
+
+   public WholeBodyTrajectoryToolboxController(DRCRobotModel drcRobotModel, FullHumanoidRobotModel fullRobotModel, CommandInputManager commandInputManager,
+                                               StatusMessageOutputManager statusOutputManager, YoRegistry registry,
+                                               YoGraphicsListRegistry yoGraphicsListRegistry, boolean visualize, int numberOfSolvers)
    {
       super(statusOutputManager, registry);
       this.commandInputManager = commandInputManager;
@@ -187,6 +210,7 @@ public class WholeBodyTrajectoryToolboxController extends ToolboxController
       terminalConditionNumberOfValidInitialGuesses.set(TERMINAL_CONDITION_NUMBER_OF_VALID_INITIAL_GUESSES);
 
       humanoidKinematicsSolver = new HumanoidKinematicsSolver(drcRobotModel, yoGraphicsListRegistry, registry);
+      solverPool = new HumanoidKinematicsSolverPool(humanoidKinematicsSolver, drcRobotModel, numberOfSolvers);
 
       toolboxSolution = new WholeBodyTrajectoryToolboxOutputStatus();
       toolboxSolution.setDestination(-1);
@@ -295,7 +319,7 @@ public class WholeBodyTrajectoryToolboxController extends ToolboxController
    /**
     * state = SHORTCUT_PATH
     */
-   private void shortcutPath()
+   private void shortcutPath() throws InterruptedException, ExecutionException
    {
       path.clear();
 
@@ -384,85 +408,78 @@ public class WholeBodyTrajectoryToolboxController extends ToolboxController
    /**
     * state == EXPAND_TREE
     */
-   private void expandingTree()
+   private void expandingTree() throws InterruptedException, ExecutionException
    {
-      currentExpansionSize.increment();
       boolean isExpandingTerminalCondition = false;
 
-      boolean randomNodeHasParentNode = false;
-      int maximumPatientCounter = 1000;
-      while (!randomNodeHasParentNode)
+      /*
+       * sample a batch of candidates from the current tree and evaluate them concurrently.
+       */
+      int numberOfCandidates = Math.min(CANDIDATE_BATCH_SIZE, maximumExpansionSize.getIntegerValue() - currentExpansionSize.getIntegerValue());
+      numberOfCandidates = Math.max(1, numberOfCandidates);
+
+      List<SpatialNode> candidates = new ArrayList<>();
+      List<List<KinematicsToolboxRigidBodyMessage>> candidateMessages = new ArrayList<>();
+      for (int i = 0; i < numberOfCandidates; i++)
       {
-         SpatialNode randomNode;
+         SpatialNode candidate = sampleCandidate();
+         candidates.add(candidate);
+         candidateMessages.add(toolboxData.createMessages(candidate));
+      }
 
-         SpatialData randomData = toolboxData.createRandomSpatialData();
-         double nextDouble = WholeBodyTrajectoryToolboxSettings.randomManager.nextDouble();
-         double randomTime = nextDouble * (1.0 + WholeBodyTrajectoryToolboxSettings.timeCoefficient * tree.getMostAdvancedTime());
+      solverPool.evaluate(numberOfCandidates, (solver, taskIndex) -> updateValidity(solver, candidates.get(taskIndex), candidateMessages.get(taskIndex)));
 
-         randomNode = new SpatialNode(randomTime, randomData);
+      for (int i = 0; i < numberOfCandidates; i++)
+      {
+         currentExpansionSize.increment();
+         SpatialNode candidate = candidates.get(i);
 
-         tree.setRandomNode(randomNode);
-         if (trajectoryCommands != null)
-            randomNodeHasParentNode = tree.findNearestValidNodeToCandidate(true);
-         if (manifoldCommands != null)
-            randomNodeHasParentNode = tree.findNearestValidNodeToCandidate(false);
+         /*
+          * visualize
+          */
+         visualizedNode = new SpatialNode(candidate);
+         nodePlotter.update(candidate, 1);
 
-         if (randomNodeHasParentNode)
+         if (candidate.isValid())
          {
-            tree.limitCandidateDistanceFromParent(toolboxData.getTrajectoryTime());
-            SpatialNode candidate = tree.getCandidate();
-            updateValidity(candidate);
+            tree.attachCandidate(candidate);
+            numberOfValidPosture++;
 
-            /*
-             * visualize
-             */
-            visualizedNode = new SpatialNode(candidate);
-            nodePlotter.update(candidate, 1);
-
-            if (candidate.isValid())
+            // TODO: generic terminal conditions.
+            if (trajectoryCommands != null)
             {
-               tree.attachCandidate();
-               numberOfValidPosture++;
-
-               // TODO: generic terminal conditions.
-               if (trajectoryCommands != null)
-               {
-                  if (tree.getMostAdvancedTime() >= toolboxData.getTrajectoryTime())
-                     isExpandingTerminalCondition = true;
-               }
-               else if (manifoldCommands != null)
-               {  
-                  Pose3D testFrame = toolboxData.getTestFrame(tree.getLastNodeAdded());
-
-                  testFramePose.setPosition(testFrame.getPosition());
-                  testFramePose.setOrientation(testFrame.getOrientation());
-                  testFrameViz.setVisible(true);
-                  testFrameViz.update();
-
-                  // TODO : terminal condition for manifold command.
-                  double maximumDistanceFromManifolds = toolboxData.getMaximumDistanceFromManifolds(tree.getLastNodeAdded());
-                  minimumDistanceFromManifold.set(maximumDistanceFromManifolds);
-                  if(maximumDistanceFromManifolds < 0.05)
-                     isExpandingTerminalCondition = true;
-               }
-               else
-               {
-                  if (VERBOSE)
-                     PrintTools.warn("any command is available");
-               }
+               if (tree.getMostAdvancedTime() >= toolboxData.getTrajectoryTime())
+                  isExpandingTerminalCondition = true;
+            }
+            else if (manifoldCommands != null)
+            {  
+               Pose3D testFrame = toolboxData.getTestFrame(tree.getLastNodeAdded());
+
+               testFramePose.setPosition(testFrame.getPosition());
+               testFramePose.setOrientation(testFrame.getOrientation());
+               testFrameViz.setVisible(true);
+               testFrameViz.update();
+
+               // TODO : terminal condition for manifold command.
+               double maximumDistanceFromManifolds = toolboxData.getMaximumDistanceFromManifolds(tree.getLastNodeAdded());
+               minimumDistanceFromManifold.set(maximumDistanceFromManifolds);
+               if(maximumDistanceFromManifolds < 0.05)
+                  isExpandingTerminalCondition = true;
             }
             else
             {
-               tree.dismissCandidate();
-               numberOfInvalidPosture++;
+               if (VERBOSE)
+                  PrintTools.warn("any command is available");
             }
          }
          else
          {
-            maximumPatientCounter--;
-            if (maximumPatientCounter == 0)
-               continue;
+            tree.dismissCandidate(candidate);
+            numberOfInvalidPosture++;
          }
+
+         if (isExpandingTerminalCondition)
+            break;
       }
 
       /*
@@ -488,6 +505,31 @@ public class WholeBodyTrajectoryToolboxController extends ToolboxController
       shortcutStartTime = updateTimer(treeExpansionComputationTime, treeExpansionStartTime);
    }
 
+   /**
+    * Samples random nodes until one can be connected to the tree and returns the candidate node towards it.
+    */
+   private SpatialNode sampleCandidate()
+   {
+      boolean randomNodeHasParentNode = false;
+      while (!randomNodeHasParentNode)
+      {
+         SpatialData randomData = toolboxData.createRandomSpatialData();
+         double nextDouble = WholeBodyTrajectoryToolboxSettings.randomManager.nextDouble();
+         double randomTime = nextDouble * (1.0 + WholeBodyTrajectoryToolboxSettings.timeCoefficient * tree.getMostAdvancedTime());
+
+         SpatialNode randomNode = new SpatialNode(randomTime, randomData);
+
+         tree.setRandomNode(randomNode);
+         if (trajectoryCommands != null)
+            randomNodeHasParentNode = tree.findNearestValidNodeToCandidate(true);
+         if (manifoldCommands != null)
+            randomNodeHasParentNode = tree.findNearestValidNodeToCandidate(false);
+      }
+
+      tree.limitCandidateDistanceFromParent(toolboxData.getTrajectoryTime());
+      return tree.getCandidate();
+   }
+
    /**
     * state == FIND_INITIAL_GUESS
     */
@@ -554,47 +596,65 @@ public class WholeBodyTrajectoryToolboxController extends ToolboxController
       treeExpansionStartTime = updateTimer(initialGuessComputationTime, initialGuessStartTime);
    }
 
-   private void findInitialGuess()
+   private void findInitialGuess() throws InterruptedException, ExecutionException
    {
-      SpatialData initialGuessData = toolboxData.createRandomSpatialData();
+      int numberOfGuesses = Math.min(CANDIDATE_BATCH_SIZE,
+                                     desiredNumberOfInitialGuesses.getIntegerValue() - currentNumberOfInitialGuesses.getIntegerValue());
+      numberOfGuesses = Math.max(1, numberOfGuesses);
 
-      SpatialNode initialGuessNode = new SpatialNode(initialGuessData);
-      updateValidity(initialGuessNode);
-
-      visualizedNode = initialGuessNode;
-
-      double jointScore = 0.0;
-      if (initialGuessNode.isValid())
+      List<SpatialNode> initialGuessNodes = new ArrayList<>();
+      List<List<KinematicsToolboxRigidBodyMessage>> initialGuessMessages = new ArrayList<>();
+      for (int i = 0; i < numberOfGuesses; i++)
       {
-         tree.addInitialNode(initialGuessNode);
-         currentNumberOfValidInitialGuesses.increment();
-         jointScore = computeArmJointsLimitScore(humanoidKinematicsSolver.getDesiredFullRobotModel());
+         SpatialNode initialGuessNode = new SpatialNode(toolboxData.createRandomSpatialData());
+         initialGuessNodes.add(initialGuessNode);
+         initialGuessMessages.add(toolboxData.createMessages(initialGuessNode));
       }
-      jointlimitScore.set(jointScore);
-
-      nodePlotter.update(initialGuessNode, 1);
 
-      /*
-       * terminate finding initial guess.
-       */
-      currentNumberOfInitialGuesses.increment();
+      double[] jointScores = new double[numberOfGuesses];
+      solverPool.evaluate(numberOfGuesses, (solver, taskIndex) ->
+      {
+         if (updateValidity(solver, initialGuessNodes.get(taskIndex), initialGuessMessages.get(taskIndex)))
+            jointScores[taskIndex] = computeArmJointsLimitScore(solver.getDesiredFullRobotModel());
+      });
 
-      if (currentNumberOfInitialGuesses.getIntegerValue() >= desiredNumberOfInitialGuesses.getIntegerValue()
-            || currentNumberOfValidInitialGuesses.getIntegerValue() >= terminalConditionNumberOfValidInitialGuesses.getIntegerValue())
+      for (int i = 0; i < numberOfGuesses; i++)
       {
-         if (tree.getValidNodes().size() == 0)
+         SpatialNode initialGuessNode = initialGuessNodes.get(i);
+         visualizedNode = initialGuessNode;
+
+         if (initialGuessNode.isValid())
          {
-            if (VERBOSE)
-               PrintTools.info("Did not find a single valid root node.");
-            setOutputStatus(toolboxSolution, 1);
-            terminateToolboxController();
+            tree.addInitialNode(initialGuessNode);
+            currentNumberOfValidInitialGuesses.increment();
          }
-         else
+         jointlimitScore.set(jointScores[i]);
+
+         nodePlotter.update(initialGuessNode, 1);
+
+         /*
+          * terminate finding initial guess.
+          */
+         currentNumberOfInitialGuesses.increment();
+
+         if (currentNumberOfInitialGuesses.getIntegerValue() >= desiredNumberOfInitialGuesses.getIntegerValue()
+               || currentNumberOfValidInitialGuesses.getIntegerValue() >= terminalConditionNumberOfValidInitialGuesses.getIntegerValue())
          {
-            if (VERBOSE)
-               PrintTools.info("Successfully finished initial guess stage. " + currentNumberOfInitialGuesses.getIntegerValue() + " "
-                     + currentNumberOfValidInitialGuesses.getIntegerValue());
-            state.set(CWBToolboxState.EXPAND_TREE);
+            if (tree.getValidNodes().size() == 0)
+            {
+               if (VERBOSE)
+                  PrintTools.info("Did not find a single valid root node.");
+               setOutputStatus(toolboxSolution, 1);
+               terminateToolboxController();
+            }
+            else
+            {
+               if (VERBOSE)
+                  PrintTools.info("Successfully finished initial guess stage. " + currentNumberOfInitialGuesses.getIntegerValue() + " "
+                        + currentNumberOfValidInitialGuesses.getIntegerValue());
+               state.set(CWBToolboxState.EXPAND_TREE);
+            }
+            break;
          }
       }
       treeExpansionStartTime = updateTimer(initialGuessComputationTime, initialGuessStartTime);
@@ -804,28 +864,42 @@ public class WholeBodyTrajectoryToolboxController extends ToolboxController
       return isDone.getBooleanValue();
    }
 
+   @Override
+   public void closeAndDispose()
+   {
+      solverPool.shutdown();
+   }
+
    /**
     * update validity of input node.
     */
    private boolean updateValidity(SpatialNode node)
+   {
+      return updateValidity(humanoidKinematicsSolver, node, toolboxData.createMessages(node));
+   }
+
+   /**
+    * update validity of input node using the given solver, the messages have to be created on the toolbox thread.
+    */
+   private boolean updateValidity(HumanoidKinematicsSolver solver, SpatialNode node, List<KinematicsToolboxRigidBodyMessage> messages)
    {
       if (node.getParent() != null && node.getParent().getConfiguration() != null)
       {
-         humanoidKinematicsSolver.setInitialConfiguration(node.getParent().getConfiguration());
+         solver.setInitialConfiguration(node.getParent().getConfiguration());
       }
       else
       {
-         humanoidKinematicsSolver.setInitialConfiguration(initialConfiguration);
+         solver.setInitialConfiguration(initialConfiguration);
       }
 
-      humanoidKinematicsSolver.initialize();
-      humanoidKinematicsSolver.submit(toolboxData.createMessages(node));
+      solver.initialize();
+      solver.submit(messages);
       /*
        * result
        */
-      boolean success = humanoidKinematicsSolver.solve();
+      boolean success = solver.solve();
 
-      node.setConfiguration(humanoidKinematicsSolver.getSolution());
+      node.setConfiguration(solver.getSolution());
       node.setValidity(success);
 
       return success;
@@ -875,41 +949,10 @@ public class WholeBodyTrajectoryToolboxController extends ToolboxController
       }
    }
 
-   /**
-    * oneTime shortcut : try to make a shortcut from index to index+2
-    */
-   private boolean updateShortcutPath(List<SpatialNode> path, int index)
-   {
-      // check out when index is over the size.
-      if (index > path.size() - 3)
-      {
-         return false;
-      }
-
-      SpatialNode nodeDummy = new SpatialNode(path.get(index + 1));
-
-      nodeDummy.setParent(path.get(index));
-      nodeDummy.interpolate(path.get(index), path.get(index + 2), 0.5);
-
-      updateValidity(nodeDummy);
-
-      if (nodeDummy.isValid())
-      {
-         path.get(index + 1).interpolate(path.get(index), path.get(index + 2), 0.5);
-         path.get(index + 1).setConfiguration(nodeDummy.getConfiguration());
-
-         return true;
-      }
-      else
-      {
-         return false;
-      }
-   }
-
    /**
     * return distance of the paths before and after shortcut.
     */
-   private double updateShortcutPath(List<SpatialNode> path)
+   private double updateShortcutPath(List<SpatialNode> path) throws InterruptedException, ExecutionException
    {
       ArrayList<SpatialNode> pathBeforeShortcut = new ArrayList<SpatialNode>();
 
@@ -918,10 +961,34 @@ public class WholeBodyTrajectoryToolboxController extends ToolboxController
          pathBeforeShortcut.add(new SpatialNode(path.get(i)));
       }
 
-      for (int i = 0; i < path.size(); i++)
+      // The shortcut at index i moves the node i + 1 using the nodes i and i + 2, so all the even, then all the odd, indices can be processed concurrently.
+      for (int parity = 0; parity < 2; parity++)
       {
-         if (updateShortcutPath(path, i))
-            ;
+         List<SpatialNode> shortcutNodes = new ArrayList<>();
+         List<List<KinematicsToolboxRigidBodyMessage>> shortcutMessages = new ArrayList<>();
+
+         for (int i = parity; i <= path.size() - 3; i += 2)
+         {
+            SpatialNode nodeDummy = new SpatialNode(path.get(i + 1));
+            nodeDummy.setParent(path.get(i));
+            nodeDummy.interpolate(path.get(i), path.get(i + 2), 0.5);
+            shortcutNodes.add(nodeDummy);
+            shortcutMessages.add(toolboxData.createMessages(nodeDummy));
+         }
+
+         solverPool.evaluate(shortcutNodes.size(), (solver, taskIndex) -> updateValidity(solver, shortcutNodes.get(taskIndex), shortcutMessages.get(taskIndex)));
+
+         for (int j = 0; j < shortcutNodes.size(); j++)
+         {
+            int i = parity + 2 * j;
+            SpatialNode nodeDummy = shortcutNodes.get(j);
+
+            if (nodeDummy.isValid())
+            {
+               path.get(i + 1).interpolate(path.get(i), path.get(i + 2), 0.5);
+               path.get(i + 1).setConfiguration(nodeDummy.getConfiguration());
+            }
+         }
       }
 
       double distance = 0.0;
@@ -1,10 +1,14 @@
 package us.ihmc.avatar.warmup;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.ejml.data.DMatrixRMaj;
 
+import controller_msgs.msg.dds.FootstepDataListMessage;
+import controller_msgs.msg.dds.FootstepDataMessage;
+
 import us.ihmc.avatar.drcRobot.DRCRobotModel;
 import us.ihmc.commonWalkingControlModules.configurations.ICPWithTimeFreezingPlannerParameters;
 import us.ihmc.commonWalkingControlModules.configurations.WalkingControllerParameters;
@@ -27,6 +31,7 @@ import us.ihmc.euclid.referenceFrame.ReferenceFrame;
 import us.ihmc.euclid.transform.RigidBodyTransform;
 import us.ihmc.euclid.tuple3D.Point3D;
 import us.ihmc.euclid.tuple3D.Vector3D;
+import us.ihmc.euclid.tuple3D.interfaces.Vector3DReadOnly;
 import us.ihmc.euclid.tuple4D.Quaternion;
 import us.ihmc.graphicsDescription.yoGraphics.YoGraphicsListRegistry;
 import us.ihmc.humanoidRobotics.bipedSupportPolygons.ContactableFoot;
@@ -39,6 +44,7 @@ import us.ihmc.mecano.spatial.Twist;
 import us.ihmc.robotModels.FullHumanoidRobotModel;
 import us.ihmc.robotics.contactable.ContactablePlaneBody;
 import us.ihmc.robotics.geometry.RotationTools;
+import us.ihmc.robotics.trajectories.TrajectoryType;
 import us.ihmc.robotics.robotSide.RobotSide;
 import us.ihmc.robotics.robotSide.SideDependentList;
 import us.ihmc.robotics.screwTheory.TotalMassCalculator;
@@ -57,6 +63,16 @@ import us.ihmc.yoVariables.variable.YoVariable;
 
 public abstract class HumanoidControllerWarmup
 {
+   public static final String STAND_STAGE = "Stand";
+   public static final String UPPER_BODY_STAGE = "Upper body";
+   public static final String WALK_STAGE = "Walk";
+   public static final String STEP_ADJUSTMENT_STAGE = "Step adjustment";
+   public static final String SWING_REPLANNING_STAGE = "Swing replanning";
+   public static final String CONTACT_CHANGES_STAGE = "Contact changes";
+   /** The stages of {@link #runScriptedWarmup()}, in the order they are run. */
+   public static final String[] SCRIPTED_STAGES = {STAND_STAGE, UPPER_BODY_STAGE, WALK_STAGE, STEP_ADJUSTMENT_STAGE, SWING_REPLANNING_STAGE,
+         CONTACT_CHANGES_STAGE};
+
    private static final double gravityZ = 9.81;
    private static final double velocityDecay = 0.98;
 
@@ -83,6 +99,7 @@ public abstract class HumanoidControllerWarmup
    private WalkingControllerState walkingControllerState;
 
    private final List<Runnable> tickListeners = new ArrayList<>();
+   private WarmupCompilationMonitor compilationMonitor = null;
 
    public HumanoidControllerWarmup(DRCRobotModel robotModel)
    {
@@ -115,6 +132,144 @@ public abstract class HumanoidControllerWarmup
       }
    }
 
+   /**
+    * Sets the monitor notified of the stages of the warmup script, see {@link #beginStage(String)}.
+    */
+   public void setCompilationMonitor(WarmupCompilationMonitor compilationMonitor)
+   {
+      this.compilationMonitor = compilationMonitor;
+   }
+
+   /**
+    * Names the part of the warmup script about to be simulated, for the compilation report.
+    */
+   protected void beginStage(String stageName)
+   {
+      if (compilationMonitor != null)
+         compilationMonitor.beginStage(stageName);
+   }
+
+   /**
+    * Runs the controller through the states it goes through when live: standing, moving the upper
+    * body, walking, adjusting steps after a push, replanning the swing, and lifting and putting down
+    * each foot. Subclasses are expected to call this from {@link #runWarmup()} after setting up the
+    * robot specific variables.
+    */
+   protected void runScriptedWarmup()
+   {
+      for (String stage : SCRIPTED_STAGES)
+         runStage(stage);
+   }
+
+   /**
+    * Runs again the given stages of {@link #runScriptedWarmup()}, in the order of the script. Each
+    * stage starts and ends standing with both feet on the ground, so they can be run on their own
+    * once {@link #runWarmup()} has set up the robot specific variables.
+    *
+    * @param stageNames the stages to run, from {@link #SCRIPTED_STAGES}.
+    * @return whether any stage has been run, {@code false} if none of the given stages is part of the
+    *         script.
+    */
+   public boolean replayStages(Collection<String> stageNames)
+   {
+      boolean hasRunStage = false;
+
+      for (String stage : SCRIPTED_STAGES)
+      {
+         if (stageNames.contains(stage))
+         {
+            runStage(stage);
+            hasRunStage = true;
+         }
+      }
+
+      return hasRunStage;
+   }
+
+   private void runStage(String stageName)
+   {
+      WalkingControllerParameters walkingControllerParameters = robotModel.getWalkingControllerParameters();
+      double stepLength = 0.5 * walkingControllerParameters.getSteppingParameters().getDefaultStepLength();
+      double stepWidth = walkingControllerParameters.getSteppingParameters().getInPlaceWidth();
+      double swingDuration = walkingControllerParameters.getDefaultSwingTime();
+      double transferDuration = walkingControllerParameters.getDefaultTransferTime();
+      FootstepDataListMessage steps;
+
+      beginStage(stageName);
+
+      switch (stageName)
+      {
+         case STAND_STAGE:
+            simulate(1.0);
+            break;
+
+         case UPPER_BODY_STAGE:
+            for (RobotSide side : RobotSide.values)
+            {
+               submitMessage(HumanoidControllerWarumupTools.createArmMessage(fullRobotModel, side));
+            }
+            submitMessage(HumanoidControllerWarumupTools.createChestMessage(referenceFrames));
+            simulate(1.0);
+            break;
+
+         case WALK_STAGE:
+            submitMessage(HumanoidControllerWarumupTools.createStepsInPlace(referenceFrames));
+            simulate(1.5);
+            steps = HumanoidControllerWarumupTools.createForwardSteps(referenceFrames, 4, stepLength, stepWidth, swingDuration, transferDuration);
+            submitMessage(steps);
+            simulate(HumanoidControllerWarumupTools.computeDuration(steps) + 0.5);
+            break;
+
+         case STEP_ADJUSTMENT_STAGE:
+            steps = HumanoidControllerWarumupTools.createForwardSteps(referenceFrames, 4, stepLength, stepWidth, swingDuration, transferDuration);
+            steps.setAreFootstepsAdjustable(true);
+            submitMessage(steps);
+            simulate(transferDuration + 0.5 * swingDuration);
+            // Push towards the swing side so the ICP leaves the nominal plan and the step has to move.
+            applyPush(new Vector3D(0.0, 0.3, 0.0));
+            simulate(HumanoidControllerWarumupTools.computeDuration(steps) - transferDuration - 0.5 * swingDuration + 0.5);
+            break;
+
+         case SWING_REPLANNING_STAGE:
+            steps = HumanoidControllerWarumupTools.createForwardSteps(referenceFrames, 4, stepLength, stepWidth, swingDuration, transferDuration);
+            FootstepDataMessage firstStep = steps.getFootstepDataList().get(0);
+            firstStep.setTrajectoryType(TrajectoryType.OBSTACLE_CLEARANCE.toByte());
+            firstStep.setSwingHeight(0.1);
+            submitMessage(steps);
+            simulate(transferDuration + 0.3 * swingDuration);
+            submitMessage(HumanoidControllerWarumupTools.createAdjustFootstepMessage(firstStep, 0.05, 0.0));
+            simulate(HumanoidControllerWarumupTools.computeDuration(steps) - transferDuration - 0.3 * swingDuration + 0.5);
+            break;
+
+         case CONTACT_CHANGES_STAGE:
+            for (RobotSide side : RobotSide.values)
+            {
+               submitMessage(HumanoidControllerWarumupTools.createPickUpFootMessage(side, referenceFrames));
+               simulate(0.5);
+               submitMessage(HumanoidControllerWarumupTools.createPutDownFootMessage(side, referenceFrames));
+               simulate(0.5);
+            }
+            break;
+
+         default:
+            throw new IllegalArgumentException("Unknown warmup stage: " + stageName);
+      }
+   }
+
+   /**
+    * Changes the velocity of the pelvis instantly, the controller then has to recover as it would
+    * from a push.
+    */
+   protected void applyPush(Vector3DReadOnly velocityChangeInWorld)
+   {
+      FloatingJointBasics rootJoint = fullRobotModel.getRootJoint();
+      rootJointTwist.setIncludingFrame(rootJoint.getJointTwist());
+      frameLinearVelocity.setIncludingFrame(ReferenceFrame.getWorldFrame(), velocityChangeInWorld);
+      frameLinearVelocity.changeFrame(rootJoint.getFrameAfterJoint());
+      rootJointTwist.getLinearPart().add(frameLinearVelocity);
+      rootJoint.setJointTwist(rootJointTwist);
+   }
+
    protected <M extends Settable<M>> void submitMessage(M message)
    {
       commandInputManager.submitMessage(message);
@@ -1,5 +1,12 @@
 package us.ihmc.avatar.warmup;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import controller_msgs.msg.dds.AdjustFootstepMessage;
 import controller_msgs.msg.dds.ArmTrajectoryMessage;
 import controller_msgs.msg.dds.ChestTrajectoryMessage;
 import controller_msgs.msg.dds.FootTrajectoryMessage;
@@ -14,6 +21,7 @@ import us.ihmc.commons.PrintTools;
 import us.ihmc.communication.packets.MessageTools;
 import us.ihmc.euclid.referenceFrame.FramePose3D;
 import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.euclid.tuple3D.Point3D;
 import us.ihmc.euclid.tuple3D.Vector3D;
 import us.ihmc.euclid.tuple4D.Quaternion;
 import us.ihmc.humanoidRobotics.communication.packets.HumanoidMessageTools;
@@ -43,6 +51,139 @@ public class HumanoidControllerWarumupTools
       PrintTools.info("Warmup took " + duration + "s.");
    }
 
+   /**
+    * Runs the warmup while monitoring which of the controller methods it exercises, and whether they
+    * get compiled. While some hot methods are still not compiled, the stages of the warmup script in
+    * which they have been sampled are run again, up to the given number of runs.
+    *
+    * @param profileFile if not {@code null}, the hot methods recorded in this profile are checked on
+    *                    top of the ones sampled during this warmup and the stages they were recorded
+    *                    in are replayed until they are compiled. The profile is then updated.
+    */
+   public static WarmupCompilationReport warmup(HumanoidControllerWarmup controllerWarmup, Path profileFile, int maximumNumberOfRuns)
+   {
+      WarmupCompilationMonitor monitor = new WarmupCompilationMonitor();
+
+      if (profileFile != null && Files.exists(profileFile))
+      {
+         try
+         {
+            monitor.loadProfile(profileFile);
+         }
+         catch (IOException e)
+         {
+            PrintTools.warn("Could not load the warmup profile " + profileFile + ": " + e.getMessage());
+         }
+      }
+
+      controllerWarmup.setCompilationMonitor(monitor);
+      WarmupCompilationReport report = repeatUntilCompiled(() -> warmup(controllerWarmup), controllerWarmup::replayStages, monitor, maximumNumberOfRuns);
+      controllerWarmup.setCompilationMonitor(null);
+      PrintTools.info(report.toString());
+
+      if (profileFile != null)
+      {
+         try
+         {
+            monitor.saveProfile(profileFile);
+         }
+         catch (IOException e)
+         {
+            PrintTools.warn("Could not save the warmup profile " + profileFile + ": " + e.getMessage());
+         }
+      }
+
+      return report;
+   }
+
+   /**
+    * Runs the warmup once, and again while the monitor reports hot methods that are not compiled yet,
+    * up to the given number of runs. The monitor samples the calling thread.
+    */
+   static WarmupCompilationReport repeatUntilCompiled(Runnable warmup, WarmupCompilationMonitor monitor, int maximumNumberOfRuns)
+   {
+      return repeatUntilCompiled(warmup, stages -> false, monitor, maximumNumberOfRuns);
+   }
+
+   /**
+    * Runs the warmup once, then replays the stages in which the hot methods that are not compiled yet
+    * have been sampled, up to the given number of runs. The whole warmup is run again when these
+    * stages are unknown. The monitor samples the calling thread.
+    *
+    * @param stageReplayer runs the given stages and returns whether it could run any of them.
+    */
+   static WarmupCompilationReport repeatUntilCompiled(Runnable warmup, Predicate<Set<String>> stageReplayer, WarmupCompilationMonitor monitor,
+                                                      int maximumNumberOfRuns)
+   {
+      monitor.startSampling(Thread.currentThread());
+      warmup.run();
+      WarmupCompilationReport report = monitor.createReport();
+      int run = 1;
+
+      while (!report.isComplete() && run < maximumNumberOfRuns)
+      {
+         Set<String> stagesToReplay = monitor.getStagesToReplay(report);
+         if (stagesToReplay == null || !stageReplayer.test(stagesToReplay))
+            warmup.run();
+         report = monitor.createReport();
+         run++;
+      }
+
+      monitor.stopSampling();
+      return report;
+   }
+
+   /**
+    * Creates steps walking forward, starting with the left foot. The last step squares up the feet.
+    */
+   public static FootstepDataListMessage createForwardSteps(HumanoidReferenceFrames referenceFrames, int numberOfSteps, double stepLength,
+                                                            double stepWidth, double swingDuration, double transferDuration)
+   {
+      FootstepDataListMessage message = new FootstepDataListMessage();
+      double z = referenceFrames.getSoleFrame(RobotSide.LEFT).getTransformToWorldFrame().getTranslationZ();
+      RobotSide side = RobotSide.LEFT;
+
+      for (int i = 0; i < numberOfSteps; i++)
+      {
+         FootstepDataMessage step = message.getFootstepDataList().add();
+         step.setRobotSide(side.toByte());
+         FramePose3D footPose = new FramePose3D(referenceFrames.getMidFeetZUpFrame());
+         footPose.setX(Math.min(i + 1, numberOfSteps - 1) * stepLength);
+         footPose.setY(side.negateIfRightSide(0.5 * stepWidth));
+         footPose.changeFrame(ReferenceFrame.getWorldFrame());
+         footPose.setZ(z);
+         step.getLocation().set(footPose.getPosition());
+         step.getOrientation().set(footPose.getOrientation());
+         step.setSwingDuration(swingDuration);
+         step.setTransferDuration(transferDuration);
+         side = side.getOppositeSide();
+      }
+      message.setFinalTransferDuration(transferDuration);
+      return message;
+   }
+
+   /**
+    * Creates a message moving the given step, to have the controller replan the swing trajectory
+    * while the foot is in the air.
+    */
+   public static AdjustFootstepMessage createAdjustFootstepMessage(FootstepDataMessage step, double offsetX, double offsetY)
+   {
+      Point3D location = new Point3D(step.getLocation());
+      location.add(offsetX, offsetY, 0.0);
+      return HumanoidMessageTools.createAdjustFootstepMessage(RobotSide.fromByte(step.getRobotSide()), location, new Quaternion(step.getOrientation()));
+   }
+
+   public static double computeDuration(FootstepDataListMessage message)
+   {
+      double duration = message.getFinalTransferDuration();
+      for (int i = 0; i < message.getFootstepDataList().size(); i++)
+      {
+         FootstepDataMessage step = message.getFootstepDataList().get(i);
+         duration += step.getSwingDuration() + step.getTransferDuration();
+      }
+      return duration;
+   }
+
    public static FootstepDataListMessage createStepsInPlace(HumanoidReferenceFrames referenceFrames)
    {
       FootstepDataListMessage message = new FootstepDataListMessage();
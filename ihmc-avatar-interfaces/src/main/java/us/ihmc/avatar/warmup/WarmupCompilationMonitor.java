@@ -0,0 +1,423 @@
+package us.ihmc.avatar.warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
+
+import us.ihmc.commons.PrintTools;
+import us.ihmc.commons.thread.ThreadTools;
+
+/**
+ * Finds out which methods the controller warmup exercised, and whether the JIT compiler actually
+ * compiled them.
+ * <p>
+ * The hot methods are found by periodically sampling the stack of the warmup thread, only keeping
+ * the methods of the packages of interest. Their compilation state is then read from the code cache
+ * through the {@code compilerCodelist} diagnostic command, which is available from Java 9. On older
+ * JVMs, the report only contains the hot methods and the compilation time spent in each stage.
+ * </p>
+ * <p>
+ * Small methods are usually inlined by the optimizing compiler and then never get optimized code of
+ * their own. The sampled stacks still show them as separate frames, so the monitor also records the
+ * callers of each method. The report lists the methods only called from optimized code as assumed
+ * inlined, without counting them as covered.
+ * </p>
+ * <p>
+ * The monitor also records the stages of the warmup script, see {@link #beginStage(String)}, in
+ * which each method has been sampled. The hot methods and their stages can be saved to a profile.
+ * Loading it before the next warmup adds these methods to the ones the report checks, and
+ * {@link #getStagesToReplay(WarmupCompilationReport)} gives the stages to run again for the ones
+ * that are not compiled yet.
+ * </p>
+ * <p>
+ * The default packages only cover the controller: the scripted warmup integrates the desired
+ * accelerations and does not run the state estimator.
+ * </p>
+ */
+public class WarmupCompilationMonitor
+{
+   /** Level of the methods compiled by the optimizing compiler, C2 or Graal. */
+   public static final int TOP_COMPILATION_LEVEL = 4;
+
+   public static final String[] DEFAULT_PACKAGES_OF_INTEREST = {"us.ihmc.commonWalkingControlModules.controllerCore",
+         "us.ihmc.commonWalkingControlModules.capturePoint", "us.ihmc.commonWalkingControlModules.momentumBasedController"};
+
+   private static final String DIAGNOSTIC_COMMAND_NAME = "com.sun.management:type=DiagnosticCommand";
+   private static final String PROFILE_COMMENT = "#";
+   private static final String PROFILE_SEPARATOR = "\t";
+
+   private final String[] packagesOfInterest;
+   private final Map<String, AtomicInteger> sampleCounts = new ConcurrentHashMap<>();
+   private final Map<String, Set<String>> sampledCallers = new ConcurrentHashMap<>();
+   private final Map<String, Set<String>> sampledStages = new ConcurrentHashMap<>();
+   /** The methods of the loaded profile, with the stages they were sampled in. */
+   private final Map<String, Set<String>> profiledMethods = new HashMap<>();
+   private final Map<String, Long> stageCompilationTimes = new LinkedHashMap<>();
+
+   private final CompilationMXBean compilationMXBean = ManagementFactory.getCompilationMXBean();
+   private volatile String currentStage = null;
+   private long currentStageStartCompilationTime;
+
+   private long samplingPeriodMillis = 2;
+   private int minimumNumberOfSamples = 5;
+   private volatile boolean sampling = false;
+   private Thread samplingThread = null;
+
+   public WarmupCompilationMonitor()
+   {
+      this(DEFAULT_PACKAGES_OF_INTEREST);
+   }
+
+   public WarmupCompilationMonitor(String... packagesOfInterest)
+   {
+      this.packagesOfInterest = packagesOfInterest;
+   }
+
+   public void setSamplingPeriodMillis(long samplingPeriodMillis)
+   {
+      this.samplingPeriodMillis = samplingPeriodMillis;
+   }
+
+   /** Sets how many times a method has to be sampled before it is considered hot. */
+   public void setMinimumNumberOfSamples(int minimumNumberOfSamples)
+   {
+      this.minimumNumberOfSamples = minimumNumberOfSamples;
+   }
+
+   /**
+    * Starts sampling the stack of the given thread on a daemon thread. Sampling a thread requires a
+    * safepoint, so this is not meant to be used while the robot is live.
+    */
+   public void startSampling(Thread threadToSample)
+   {
+      if (sampling)
+         return;
+
+      sampling = true;
+      samplingThread = new Thread(() ->
+      {
+         Set<String> methodsInSample = new HashSet<>();
+
+         while (sampling && threadToSample.isAlive())
+         {
+            // Read before the stack such that the stage is not already over when the stack is from its end.
+            String stage = currentStage;
+            StackTraceElement[] stackTrace = threadToSample.getStackTrace();
+            methodsInSample.clear();
+
+            for (int i = 0; i < stackTrace.length; i++)
+            {
+               StackTraceElement element = stackTrace[i];
+               if (element.isNativeMethod() || !isOfInterest(element.getClassName()))
+                  continue;
+
+               String methodName = toMethodName(element);
+               // Recursive calls only count once per sample.
+               if (methodsInSample.add(methodName))
+               {
+                  sampleCounts.computeIfAbsent(methodName, name -> new AtomicInteger()).incrementAndGet();
+
+                  if (stage != null)
+                     sampledStages.computeIfAbsent(methodName, name -> ConcurrentHashMap.newKeySet()).add(stage);
+               }
+
+               String callerName = findCallerName(stackTrace, i);
+               if (callerName != null)
+                  sampledCallers.computeIfAbsent(methodName, name -> ConcurrentHashMap.newKeySet()).add(callerName);
+            }
+
+            ThreadTools.sleep(samplingPeriodMillis);
+         }
+      }, getClass().getSimpleName());
+      samplingThread.setDaemon(true);
+      samplingThread.start();
+   }
+
+   public void stopSampling()
+   {
+      sampling = false;
+
+      if (samplingThread != null)
+      {
+         try
+         {
+            samplingThread.join();
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+         }
+         samplingThread = null;
+      }
+   }
+
+   /**
+    * Marks the beginning of a new stage of the warmup script, the compilation time is reported per
+    * stage. A stage still spending time in the compiler at the end of the warmup hints that the
+    * warmup is too short.
+    */
+   public void beginStage(String stageName)
+   {
+      endStage();
+
+      currentStage = stageName;
+      currentStageStartCompilationTime = getTotalCompilationTime();
+   }
+
+   private void endStage()
+   {
+      if (currentStage == null)
+         return;
+
+      long compilationTime = getTotalCompilationTime() - currentStageStartCompilationTime;
+      stageCompilationTimes.merge(currentStage, compilationTime, Long::sum);
+      currentStage = null;
+   }
+
+   private long getTotalCompilationTime()
+   {
+      if (compilationMXBean == null || !compilationMXBean.isCompilationTimeMonitoringSupported())
+         return 0;
+      return compilationMXBean.getTotalCompilationTime();
+   }
+
+   /**
+    * Returns the methods considered hot: the ones sampled at least the minimum number of times
+    * during this warmup, and the ones from the loaded profile.
+    */
+   public Set<String> getHotMethods()
+   {
+      Set<String> hotMethods = new HashSet<>(profiledMethods.keySet());
+
+      for (Map.Entry<String, AtomicInteger> entry : sampleCounts.entrySet())
+      {
+         if (entry.getValue().get() >= minimumNumberOfSamples)
+            hotMethods.add(entry.getKey());
+      }
+
+      return hotMethods;
+   }
+
+   /**
+    * Looks up the compilation state of the hot methods in the code cache.
+    */
+   public WarmupCompilationReport createReport()
+   {
+      endStage();
+
+      Set<String> hotMethods = getHotMethods();
+      Map<String, Long> stageCompilationTimes = new LinkedHashMap<>(this.stageCompilationTimes);
+      String codelist = queryCodelist();
+
+      if (codelist == null)
+         return new WarmupCompilationReport(hotMethods, null, null, null, stageCompilationTimes);
+
+      // The callers are looked up as well, they tell whether the methods without optimized code of their own have been inlined.
+      Map<String, Set<String>> callers = new HashMap<>();
+      Set<String> methodsToLookUp = new HashSet<>(hotMethods);
+
+      for (String method : hotMethods)
+      {
+         Set<String> methodCallers = sampledCallers.get(method);
+         if (methodCallers == null)
+            continue;
+         callers.put(method, new HashSet<>(methodCallers));
+         methodsToLookUp.addAll(methodCallers);
+      }
+
+      // For each method: the highest level of its live compiled versions, if any, and whether its optimized code has been invalidated.
+      Map<String, Integer> liveCompilationLevels = new HashMap<>();
+      Set<String> invalidatedMethods = new HashSet<>();
+
+      for (String line : codelist.split("\n"))
+      {
+         // Format: compile_id comp_level state method_name(signature) [addresses]
+         String[] tokens = line.trim().split("\\s+", 4);
+         if (tokens.length < 4)
+            continue;
+
+         int compilationLevel, state;
+         try
+         {
+            compilationLevel = Integer.parseInt(tokens[1]);
+            state = Integer.parseInt(tokens[2]);
+         }
+         catch (NumberFormatException e)
+         {
+            continue;
+         }
+
+         int signatureStart = tokens[3].indexOf('(');
+         String methodName = signatureStart < 0 ? tokens[3] : tokens[3].substring(0, signatureStart);
+         if (!methodsToLookUp.contains(methodName))
+            continue;
+
+         if (state == 0) // in use
+            liveCompilationLevels.merge(methodName, compilationLevel, Math::max);
+         else if (compilationLevel >= TOP_COMPILATION_LEVEL) // Lower tiers are also made not entrant once the method gets optimized.
+            invalidatedMethods.add(methodName);
+      }
+
+      return new WarmupCompilationReport(hotMethods, liveCompilationLevels, invalidatedMethods, callers, stageCompilationTimes);
+   }
+
+   /**
+    * @return the output of the {@code compilerCodelist} diagnostic command, or {@code null} if this
+    *         JVM does not support it.
+    */
+   private static String queryCodelist()
+   {
+      try
+      {
+         ObjectName diagnosticCommand = new ObjectName(DIAGNOSTIC_COMMAND_NAME);
+         Object result = ManagementFactory.getPlatformMBeanServer().invoke(diagnosticCommand, "compilerCodelist", new Object[] {null},
+                                                                           new String[] {String[].class.getName()});
+         return (String) result;
+      }
+      catch (Exception e)
+      {
+         return null;
+      }
+   }
+
+   /**
+    * Gets the stages of the warmup script to run again to exercise the hot methods that are not
+    * compiled yet: the stages in which they have been sampled during this warmup or when the loaded
+    * profile was recorded.
+    *
+    * @return the stages to replay, or {@code null} if some of these methods have not been sampled in
+    *         any stage, in which case the whole warmup has to be run again.
+    */
+   public Set<String> getStagesToReplay(WarmupCompilationReport report)
+   {
+      Set<String> compiledMethods = new HashSet<>(report.getCompiledMethods());
+      Set<String> stagesToReplay = new HashSet<>();
+
+      for (String method : getHotMethods())
+      {
+         if (compiledMethods.contains(method))
+            continue;
+
+         Set<String> stages = getStages(method);
+         if (stages.isEmpty())
+            return null;
+         stagesToReplay.addAll(stages);
+      }
+
+      return stagesToReplay.isEmpty() ? null : stagesToReplay;
+   }
+
+   private Set<String> getStages(String method)
+   {
+      Set<String> stages = new TreeSet<>();
+      if (sampledStages.containsKey(method))
+         stages.addAll(sampledStages.get(method));
+      if (profiledMethods.containsKey(method))
+         stages.addAll(profiledMethods.get(method));
+      return stages;
+   }
+
+   /**
+    * Adds the methods of a profile previously saved with {@link #saveProfile(Path)} to the hot
+    * methods. The stages they were sampled in are then replayed by the warmup as long as they are
+    * not compiled, see {@link #getStagesToReplay(WarmupCompilationReport)}.
+    */
+   public void loadProfile(Path profileFile) throws IOException
+   {
+      try (BufferedReader reader = Files.newBufferedReader(profileFile))
+      {
+         String line;
+         while ((line = reader.readLine()) != null)
+         {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith(PROFILE_COMMENT))
+               continue;
+
+            // Each line is the method name, its number of samples when the profile was recorded, and the stages it was sampled in.
+            String[] tokens = line.split(PROFILE_SEPARATOR);
+            Set<String> stages = profiledMethods.computeIfAbsent(tokens[0].split("\\s+")[0], name -> new HashSet<>());
+            for (int i = 2; i < tokens.length; i++)
+               stages.add(tokens[i]);
+         }
+      }
+   }
+
+   /**
+    * Saves the hot methods to the given file, sorted by name so profiles can be compared.
+    */
+   public void saveProfile(Path profileFile) throws IOException
+   {
+      Map<String, Integer> sortedMethods = new TreeMap<>();
+      for (String method : getHotMethods())
+      {
+         AtomicInteger sampleCount = sampleCounts.get(method);
+         sortedMethods.put(method, sampleCount == null ? 0 : sampleCount.get());
+      }
+
+      if (profileFile.getParent() != null)
+         Files.createDirectories(profileFile.getParent());
+
+      try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(profileFile)))
+      {
+         writer.println(PROFILE_COMMENT + " Controller warmup profile: method name, number of samples, and the stages it was sampled in.");
+         for (Map.Entry<String, Integer> entry : sortedMethods.entrySet())
+         {
+            StringBuilder line = new StringBuilder(entry.getKey() + PROFILE_SEPARATOR + entry.getValue());
+            for (String stage : getStages(entry.getKey()))
+               line.append(PROFILE_SEPARATOR + stage);
+            writer.println(line);
+         }
+      }
+
+      PrintTools.info("Saved warmup profile with " + sortedMethods.size() + " methods to " + profileFile);
+   }
+
+   /**
+    * @return the method calling the frame at the given index, skipping the frames of the classes
+    *         generated for the lambdas, or {@code null} if it is the bottom of the stack.
+    */
+   private static String findCallerName(StackTraceElement[] stackTrace, int index)
+   {
+      for (int i = index + 1; i < stackTrace.length; i++)
+      {
+         StackTraceElement caller = stackTrace[i];
+         if (!caller.isNativeMethod() && !caller.getClassName().contains("$$Lambda"))
+            return toMethodName(caller);
+      }
+      return null;
+   }
+
+   private static String toMethodName(StackTraceElement element)
+   {
+      return element.getClassName() + "." + element.getMethodName();
+   }
+
+   private boolean isOfInterest(String className)
+   {
+      // Skip the classes generated for the lambdas, the lambda bodies are sampled in their declaring class.
+      if (className.contains("$$Lambda"))
+         return false;
+
+      for (String packageOfInterest : packagesOfInterest)
+      {
+         if (className.startsWith(packageOfInterest))
+            return true;
+      }
+      return false;
+   }
+}
@@ -0,0 +1,221 @@
+package us.ihmc.avatar.warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compilation state of the hot methods at the end of a controller warmup, see
+ * {@link WarmupCompilationMonitor}.
+ */
+public class WarmupCompilationReport
+{
+   private final int numberOfHotMethods;
+   private final boolean isCompilationStateAvailable;
+   private final List<String> compiledMethods = new ArrayList<>();
+   private final List<String> assumedInlinedMethods = new ArrayList<>();
+   private final List<String> partiallyCompiledMethods = new ArrayList<>();
+   private final List<String> deoptimizedMethods = new ArrayList<>();
+   private final List<String> interpretedMethods = new ArrayList<>();
+   private final Map<String, Long> stageCompilationTimes;
+
+   /**
+    * @param liveCompilationLevels highest level of the live compiled versions of each method, or
+    *                              {@code null} if the compilation state is not available.
+    * @param invalidatedMethods    methods with at least one optimized version that has been made not
+    *                              entrant.
+    * @param callers               the methods seen calling each hot method, their compilation level
+    *                              is expected in {@code liveCompilationLevels}.
+    */
+   WarmupCompilationReport(Set<String> hotMethods, Map<String, Integer> liveCompilationLevels, Set<String> invalidatedMethods,
+                           Map<String, Set<String>> callers, Map<String, Long> stageCompilationTimes)
+   {
+      numberOfHotMethods = hotMethods.size();
+      isCompilationStateAvailable = liveCompilationLevels != null;
+      this.stageCompilationTimes = stageCompilationTimes;
+
+      if (!isCompilationStateAvailable)
+         return;
+
+      Set<String> methodsAssumedInlined = findMethodsAssumedInlined(hotMethods, liveCompilationLevels, callers);
+
+      for (String method : hotMethods)
+      {
+         Integer compilationLevel = liveCompilationLevels.get(method);
+
+         if (isOptimized(method, liveCompilationLevels))
+            compiledMethods.add(method);
+         else if (methodsAssumedInlined.contains(method))
+            assumedInlinedMethods.add(method);
+         else if (invalidatedMethods.contains(method))
+            deoptimizedMethods.add(method);
+         else if (compilationLevel != null)
+            partiallyCompiledMethods.add(method);
+         else
+            interpretedMethods.add(method);
+      }
+
+      Collections.sort(compiledMethods);
+      Collections.sort(assumedInlinedMethods);
+      Collections.sort(partiallyCompiledMethods);
+      Collections.sort(deoptimizedMethods);
+      Collections.sort(interpretedMethods);
+   }
+
+   /**
+    * A method without any compiled code of its own that is called from an optimized method, or from
+    * a method itself assumed inlined, has probably been inlined there. The sampled callers do not
+    * tell whether the caller was running its optimized code at the time, so this is only a guess.
+    * <p>
+    * A method with compiled code at a lower tier is never assumed inlined: it is still running that
+    * code from some callers.
+    * </p>
+    */
+   private static Set<String> findMethodsAssumedInlined(Set<String> hotMethods, Map<String, Integer> liveCompilationLevels,
+                                                        Map<String, Set<String>> callers)
+   {
+      Set<String> methodsAssumedInlined = new HashSet<>();
+      boolean hasChanged = true;
+
+      // Propagates through chains of inlined methods.
+      while (hasChanged)
+      {
+         hasChanged = false;
+
+         for (String method : hotMethods)
+         {
+            if (liveCompilationLevels.get(method) != null || methodsAssumedInlined.contains(method))
+               continue;
+
+            if (isCalledFromOptimizedCode(method, liveCompilationLevels, callers, methodsAssumedInlined))
+            {
+               methodsAssumedInlined.add(method);
+               hasChanged = true;
+            }
+         }
+      }
+
+      return methodsAssumedInlined;
+   }
+
+   private static boolean isCalledFromOptimizedCode(String method, Map<String, Integer> liveCompilationLevels, Map<String, Set<String>> callers,
+                                                    Set<String> methodsAssumedInlined)
+   {
+      Set<String> methodCallers = callers == null ? null : callers.get(method);
+      if (methodCallers == null)
+         return false;
+
+      for (String caller : methodCallers)
+      {
+         if (!caller.equals(method) && (methodsAssumedInlined.contains(caller) || isOptimized(caller, liveCompilationLevels)))
+            return true;
+      }
+      return false;
+   }
+
+   private static boolean isOptimized(String method, Map<String, Integer> liveCompilationLevels)
+   {
+      Integer compilationLevel = liveCompilationLevels.get(method);
+      return compilationLevel != null && compilationLevel >= WarmupCompilationMonitor.TOP_COMPILATION_LEVEL;
+   }
+
+   /**
+    * Whether the compilation state of the methods could be read from the JVM. When it is not, only
+    * the number of hot methods and the compilation time of each stage are available.
+    */
+   public boolean isCompilationStateAvailable()
+   {
+      return isCompilationStateAvailable;
+   }
+
+   /**
+    * @return whether all the hot methods have been compiled by the optimizing compiler and are still
+    *         in use. The methods assumed inlined are not counted since it cannot be verified. Always
+    *         {@code true} when the compilation state is not available, since warming up longer would
+    *         not tell more.
+    */
+   public boolean isComplete()
+   {
+      return compiledMethods.size() == numberOfHotMethods || !isCompilationStateAvailable;
+   }
+
+   public int getNumberOfHotMethods()
+   {
+      return numberOfHotMethods;
+   }
+
+   public List<String> getCompiledMethods()
+   {
+      return compiledMethods;
+   }
+
+   /**
+    * Methods without any compiled code of their own, only seen called from optimized methods or from
+    * other methods assumed inlined. They are probably inlined, but they are not counted as covered.
+    */
+   public List<String> getAssumedInlinedMethods()
+   {
+      return assumedInlinedMethods;
+   }
+
+   /** Methods only compiled at a lower tier, typically C1 with profiling. */
+   public List<String> getPartiallyCompiledMethods()
+   {
+      return partiallyCompiledMethods;
+   }
+
+   /** Methods whose optimized code has been invalidated and not been recompiled yet. */
+   public List<String> getDeoptimizedMethods()
+   {
+      return deoptimizedMethods;
+   }
+
+   public List<String> getInterpretedMethods()
+   {
+      return interpretedMethods;
+   }
+
+   /** Time spent by the JIT compiler during each stage of the warmup script, in milliseconds. */
+   public Map<String, Long> getStageCompilationTimes()
+   {
+      return stageCompilationTimes;
+   }
+
+   @Override
+   public String toString()
+   {
+      StringBuilder builder = new StringBuilder();
+
+      if (isCompilationStateAvailable)
+      {
+         builder.append("Warmup compiled " + compiledMethods.size() + " of " + numberOfHotMethods + " hot methods.");
+         appendMethods(builder, "Assumed inlined, not verified", assumedInlinedMethods);
+         appendMethods(builder, "Deoptimized", deoptimizedMethods);
+         appendMethods(builder, "Only partially compiled", partiallyCompiledMethods);
+         appendMethods(builder, "Still interpreted", interpretedMethods);
+      }
+      else
+      {
+         builder.append("Warmup exercised " + numberOfHotMethods + " hot methods, their compilation state is not available on this JVM.");
+      }
+
+      builder.append("\nCompilation time per stage:");
+      for (Map.Entry<String, Long> entry : stageCompilationTimes.entrySet())
+         builder.append("\n   " + entry.getKey() + ": " + entry.getValue() + "ms");
+
+      return builder.toString();
+   }
+
+   private static void appendMethods(StringBuilder builder, String category, List<String> methods)
+   {
+      if (methods.isEmpty())
+         return;
+
+      builder.append("\n" + category + " (" + methods.size() + "):");
+      for (String method : methods)
+         builder.append("\n   " + method);
+   }
+}
@@ -0,0 +1,62 @@
+package us.ihmc.avatar.drcRobot;
+
+import java.util.function.Supplier;
+
+import us.ihmc.modelFileLoaders.SdfLoader.SDFModelSnapshotCache;
+
+/**
+ * Reports the time needed to create a robot model, its {@code RobotDescription}, and a
+ * {@code FullRobotModel}, with and without the binary snapshot of the parsed SDF.
+ * <p>
+ * Each iteration first clears the snapshot cache so the next creation parses the SDF with JAXB and
+ * writes a new snapshot, then creates the model again from that snapshot. Both cases run in the
+ * same JVM such that class loading and JIT compilation are not counted against either.
+ * </p>
+ */
+public class RobotModelStartupTimer
+{
+   private static final int warmupIterations = 3;
+   private static final int iterations = 10;
+
+   public static void run(String robotName, Supplier<? extends DRCRobotModel> robotModelFactory)
+   {
+      SDFModelSnapshotCache snapshotCache = SDFModelSnapshotCache.getDefaultCache();
+
+      if (snapshotCache == null)
+      {
+         System.err.println("The model snapshot cache is disabled, set -D" + SDFModelSnapshotCache.ENABLE_PROPERTY + "=true to run this timer.");
+         return;
+      }
+
+      for (int i = 0; i < warmupIterations; i++)
+      {
+         snapshotCache.clear();
+         createRobot(robotModelFactory);
+         createRobot(robotModelFactory);
+      }
+
+      long coldTime = 0;
+      long warmTime = 0;
+
+      for (int i = 0; i < iterations; i++)
+      {
+         snapshotCache.clear();
+         coldTime += createRobot(robotModelFactory);
+         warmTime += createRobot(robotModelFactory);
+      }
+
+      System.out.println(robotName + " model startup, snapshots in " + snapshotCache.getCacheDirectory() + ":");
+      System.out.println("   Parsing the SDF:    " + 1.0e-6 * coldTime / iterations + " ms");
+      System.out.println("   From the snapshot:  " + 1.0e-6 * warmTime / iterations + " ms");
+      System.out.println("   Speedup:            " + ((double) coldTime / warmTime));
+   }
+
+   private static long createRobot(Supplier<? extends DRCRobotModel> robotModelFactory)
+   {
+      long startTime = System.nanoTime();
+      DRCRobotModel robotModel = robotModelFactory.get();
+      robotModel.getRobotDescription();
+      robotModel.createFullRobotModel();
+      return System.nanoTime() - startTime;
+   }
+}
@@ -1,10 +1,12 @@
 package us.ihmc.avatar.networkProcessor.kinematicsPlanningToolboxModule;
 
+import static us.ihmc.robotics.Assert.assertEquals;
 import static us.ihmc.robotics.Assert.assertTrue;
 
 import java.awt.Color;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.jupiter.api.AfterEach;
@@ -23,8 +25,10 @@ import us.ihmc.communication.controllerAPI.CommandInputManager;
 import us.ihmc.communication.controllerAPI.StatusMessageOutputManager;
 import us.ihmc.communication.packets.MessageTools;
 import us.ihmc.euclid.axisAngle.AxisAngle;
+import us.ihmc.euclid.geometry.ConvexPolygon2D;
 import us.ihmc.euclid.geometry.Pose3D;
 import us.ihmc.euclid.geometry.interfaces.Pose3DReadOnly;
+import us.ihmc.euclid.referenceFrame.FramePoint3D;
 import us.ihmc.euclid.referenceFrame.FramePose3D;
 import us.ihmc.euclid.referenceFrame.ReferenceFrame;
 import us.ihmc.euclid.referenceFrame.tools.ReferenceFrameTools;
@@ -36,8 +40,11 @@ import us.ihmc.graphicsDescription.appearance.YoAppearanceRGBColor;
 import us.ihmc.graphicsDescription.yoGraphics.YoGraphicsListRegistry;
 import us.ihmc.humanoidRobotics.communication.kinematicsPlanningToolboxAPI.KinematicsPlanningToolboxMessageFactory;
 import us.ihmc.humanoidRobotics.communication.packets.HumanoidMessageTools;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.OneDoFJointBasics;
 import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
 import us.ihmc.robotModels.FullHumanoidRobotModel;
+import us.ihmc.robotModels.FullRobotModelUtils;
 import us.ihmc.robotics.robotDescription.RobotDescription;
 import us.ihmc.robotics.robotSide.RobotSide;
 import us.ihmc.robotics.screwTheory.SelectionMatrix3D;
@@ -161,7 +168,11 @@ public abstract class AvatarKinematicsPlanningToolboxControllerTest implements M
 
       commandInputManager = null;
 
-      toolboxController = null;
+      if (toolboxController != null)
+      {
+         toolboxController.closeAndDispose();
+         toolboxController = null;
+      }
 
       robot = null;
       toolboxUpdater = null;
@@ -298,6 +309,231 @@ public abstract class AvatarKinematicsPlanningToolboxControllerTest implements M
       runKinematicsPlanningToolboxController(numberOfIterations, KinematicsPlanningToolboxOutputStatus.KINEMATICS_PLANNING_RESULT_OPTIMAL_SOLUTION);
    }
 
+   @Test
+   public void testConcurrentKeyFrameSolving() throws Exception, UnreasonableAccelerationException
+   {
+      FullHumanoidRobotModel initialFullRobotModel = createFullRobotModelAtInitialConfiguration();
+      snapGhostToFullRobotModel(initialFullRobotModel);
+
+      RobotSide robotSide = RobotSide.LEFT;
+      RigidBodyBasics endEffector = initialFullRobotModel.getHand(robotSide);
+      double trajectoryTime = 5.0;
+      int numberOfKeyFrames = 10;
+      FramePose3D initialPose = new FramePose3D(endEffector.getBodyFixedFrame());
+      FramePose3D desiredPose = new FramePose3D(endEffector.getBodyFixedFrame(), new Point3D(0.1, 0.1, 0.6), new AxisAngle(1.0, 0.0, 0.0, 0.5 * Math.PI));
+      initialPose.changeFrame(worldFrame);
+      desiredPose.changeFrame(worldFrame);
+
+      TDoubleArrayList keyFrameTimes = new TDoubleArrayList();
+      List<Pose3DReadOnly> keyFramePoses = new ArrayList<Pose3DReadOnly>();
+
+      for (int i = 0; i < numberOfKeyFrames; i++)
+      {
+         double alpha = (i + 1) / (double) (numberOfKeyFrames);
+         keyFrameTimes.add(alpha * trajectoryTime);
+         Pose3D pose = new Pose3D(initialPose);
+         pose.interpolate(desiredPose, alpha);
+         keyFramePoses.add(pose);
+         if (visualize)
+            scs.addStaticLinkGraphics(createEndEffectorKeyFrameVisualization(pose));
+      }
+
+      KinematicsPlanningToolboxRigidBodyMessage endEffectorMessage = HumanoidMessageTools.createKinematicsPlanningToolboxRigidBodyMessage(endEffector,
+                                                                                                                                          keyFrameTimes,
+                                                                                                                                          keyFramePoses);
+
+      endEffectorMessage.getAngularWeightMatrix().set(MessageTools.createWeightMatrix3DMessage(20.0));
+      endEffectorMessage.getLinearWeightMatrix().set(MessageTools.createWeightMatrix3DMessage(20.0));
+
+      commandInputManager.submitMessage(endEffectorMessage);
+
+      KinematicsPlanningToolboxRigidBodyMessage holdAnotherHandMessage = KinematicsPlanningToolboxMessageFactory.holdRigidBodyCurrentPose(initialFullRobotModel.getHand(robotSide.getOppositeSide()),
+                                                                                                                                          keyFrameTimes);
+      commandInputManager.submitMessage(holdAnotherHandMessage);
+
+      RobotConfigurationData robotConfigurationData = HumanoidKinematicsToolboxControllerTest.extractRobotConfigurationData(initialFullRobotModel);
+      toolboxController.updateRobotConfigurationData(robotConfigurationData);
+      toolboxController.updateCapturabilityBasedStatus(HumanoidKinematicsToolboxControllerTest.createCapturabilityBasedStatus(initialFullRobotModel, getRobotModel(), true, true));
+      toolboxController.setUseConcurrentKeyFrameSolver(true);
+
+      int numberOfIterations = 350;
+
+      runKinematicsPlanningToolboxController(numberOfIterations, KinematicsPlanningToolboxOutputStatus.KINEMATICS_PLANNING_RESULT_OPTIMAL_SOLUTION);
+
+      KinematicsPlanningToolboxOutputStatus solution = toolboxController.getSolution();
+      assertEquals(numberOfKeyFrames + 1, solution.getRobotConfigurations().size());
+      assertEquals(numberOfKeyFrames + 1, solution.getKeyFrameTimes().size());
+      assertArmJointAverageVelocitiesWithinLimits(solution, initialFullRobotModel);
+   }
+
+   @Test
+   public void testConcurrentKeyFrameSolvingKeepsSequentialSupport() throws Exception
+   {
+      FullHumanoidRobotModel initialFullRobotModel = createFullRobotModelAtInitialConfiguration();
+      snapGhostToFullRobotModel(initialFullRobotModel);
+
+      RobotSide robotSide = RobotSide.LEFT;
+      RigidBodyBasics endEffector = initialFullRobotModel.getHand(robotSide);
+      double trajectoryTime = 5.0;
+      int numberOfKeyFrames = 10;
+      FramePose3D initialPose = new FramePose3D(endEffector.getBodyFixedFrame());
+      FramePose3D desiredPose = new FramePose3D(endEffector.getBodyFixedFrame(), new Point3D(0.1, 0.1, 0.6), new AxisAngle(1.0, 0.0, 0.0, 0.5 * Math.PI));
+      initialPose.changeFrame(worldFrame);
+      desiredPose.changeFrame(worldFrame);
+
+      TDoubleArrayList keyFrameTimes = new TDoubleArrayList();
+      List<Pose3DReadOnly> keyFramePoses = new ArrayList<Pose3DReadOnly>();
+
+      for (int i = 0; i < numberOfKeyFrames; i++)
+      {
+         double alpha = (i + 1) / (double) (numberOfKeyFrames);
+         keyFrameTimes.add(alpha * trajectoryTime);
+         Pose3D pose = new Pose3D(initialPose);
+         pose.interpolate(desiredPose, alpha);
+         keyFramePoses.add(pose);
+      }
+
+      KinematicsPlanningToolboxRigidBodyMessage endEffectorMessage = HumanoidMessageTools.createKinematicsPlanningToolboxRigidBodyMessage(endEffector,
+                                                                                                                                          keyFrameTimes,
+                                                                                                                                          keyFramePoses);
+
+      endEffectorMessage.getAngularWeightMatrix().set(MessageTools.createWeightMatrix3DMessage(20.0));
+      endEffectorMessage.getLinearWeightMatrix().set(MessageTools.createWeightMatrix3DMessage(20.0));
+
+      KinematicsPlanningToolboxRigidBodyMessage holdAnotherHandMessage = KinematicsPlanningToolboxMessageFactory.holdRigidBodyCurrentPose(initialFullRobotModel.getHand(robotSide.getOppositeSide()),
+                                                                                                                                          keyFrameTimes);
+
+      RobotConfigurationData robotConfigurationData = HumanoidKinematicsToolboxControllerTest.extractRobotConfigurationData(initialFullRobotModel);
+      CapturabilityBasedStatus capturabilityBasedStatus = HumanoidKinematicsToolboxControllerTest.createCapturabilityBasedStatus(initialFullRobotModel,
+                                                                                                                                 getRobotModel(),
+                                                                                                                                 true,
+                                                                                                                                 true);
+
+      int numberOfIterations = 350;
+
+      KinematicsPlanningToolboxOutputStatus sequentialPlan = planKeyFrames(false,
+                                                                           robotConfigurationData,
+                                                                           capturabilityBasedStatus,
+                                                                           numberOfIterations,
+                                                                           endEffectorMessage,
+                                                                           holdAnotherHandMessage);
+      KinematicsPlanningToolboxOutputStatus concurrentPlan = planKeyFrames(true,
+                                                                           robotConfigurationData,
+                                                                           capturabilityBasedStatus,
+                                                                           numberOfIterations,
+                                                                           endEffectorMessage,
+                                                                           holdAnotherHandMessage);
+
+      assertEquals(numberOfKeyFrames + 1, sequentialPlan.getRobotConfigurations().size());
+      assertEquals(numberOfKeyFrames + 1, concurrentPlan.getRobotConfigurations().size());
+
+      ConvexPolygon2D supportPolygon = new ConvexPolygon2D();
+      for (Point3D vertex : capturabilityBasedStatus.getLeftFootSupportPolygon3d())
+         supportPolygon.addVertex(vertex.getX(), vertex.getY());
+      for (Point3D vertex : capturabilityBasedStatus.getRightFootSupportPolygon3d())
+         supportPolygon.addVertex(vertex.getX(), vertex.getY());
+      supportPolygon.update();
+
+      FullHumanoidRobotModel sequentialFullRobotModel = getRobotModel().createFullRobotModel();
+      FullHumanoidRobotModel concurrentFullRobotModel = getRobotModel().createFullRobotModel();
+      double centerOfMassEpsilon = 1.0e-2;
+      double solePoseEpsilon = 5.0e-3;
+
+      for (int i = 1; i <= numberOfKeyFrames; i++)
+      {
+         String message = "key frame " + i;
+         unpackRobotConfiguration(sequentialPlan.getRobotConfigurations().get(i), sequentialFullRobotModel);
+         unpackRobotConfiguration(concurrentPlan.getRobotConfigurations().get(i), concurrentFullRobotModel);
+
+         // Both plans keep the center of mass above the same support polygon, and at the same place.
+         FramePoint3D sequentialCenterOfMass = HumanoidKinematicsToolboxControllerTest.computeCenterOfMass3D(sequentialFullRobotModel);
+         FramePoint3D concurrentCenterOfMass = HumanoidKinematicsToolboxControllerTest.computeCenterOfMass3D(concurrentFullRobotModel);
+         assertTrue(message, supportPolygon.isPointInside(sequentialCenterOfMass.getX(), sequentialCenterOfMass.getY()));
+         assertTrue(message, supportPolygon.isPointInside(concurrentCenterOfMass.getX(), concurrentCenterOfMass.getY()));
+         assertEquals(message, sequentialCenterOfMass.getX(), concurrentCenterOfMass.getX(), centerOfMassEpsilon);
+         assertEquals(message, sequentialCenterOfMass.getY(), concurrentCenterOfMass.getY(), centerOfMassEpsilon);
+
+         // Both plans hold the support feet in place.
+         for (RobotSide footSide : RobotSide.values)
+         {
+            FramePose3D initialSolePose = new FramePose3D(initialFullRobotModel.getSoleFrame(footSide));
+            FramePose3D sequentialSolePose = new FramePose3D(sequentialFullRobotModel.getSoleFrame(footSide));
+            FramePose3D concurrentSolePose = new FramePose3D(concurrentFullRobotModel.getSoleFrame(footSide));
+            initialSolePose.changeFrame(worldFrame);
+            sequentialSolePose.changeFrame(worldFrame);
+            concurrentSolePose.changeFrame(worldFrame);
+            assertTrue(message + " " + footSide, initialSolePose.epsilonEquals(sequentialSolePose, solePoseEpsilon));
+            assertTrue(message + " " + footSide, initialSolePose.epsilonEquals(concurrentSolePose, solePoseEpsilon));
+         }
+      }
+   }
+
+   /**
+    * Runs the toolbox controller directly, without the simulation, until the plan for the given
+    * messages is done.
+    */
+   private KinematicsPlanningToolboxOutputStatus planKeyFrames(boolean useConcurrentKeyFrameSolver, RobotConfigurationData robotConfigurationData,
+                                                               CapturabilityBasedStatus capturabilityBasedStatus, int maximumNumberOfIterations,
+                                                               KinematicsPlanningToolboxRigidBodyMessage... rigidBodyMessages)
+         throws Exception
+   {
+      for (KinematicsPlanningToolboxRigidBodyMessage rigidBodyMessage : rigidBodyMessages)
+         commandInputManager.submitMessage(rigidBodyMessage);
+      toolboxController.updateRobotConfigurationData(robotConfigurationData);
+      toolboxController.updateCapturabilityBasedStatus(capturabilityBasedStatus);
+      toolboxController.setUseConcurrentKeyFrameSolver(useConcurrentKeyFrameSolver);
+
+      assertTrue(toolboxController.initialize());
+      for (int i = 0; !toolboxController.isDone() && i < maximumNumberOfIterations; i++)
+         toolboxController.updateInternal();
+
+      assertTrue(toolboxController.isDone());
+      assertEquals(KinematicsPlanningToolboxOutputStatus.KINEMATICS_PLANNING_RESULT_OPTIMAL_SOLUTION, toolboxController.getSolution().getPlanId());
+      return new KinematicsPlanningToolboxOutputStatus(toolboxController.getSolution());
+   }
+
+   private static void unpackRobotConfiguration(KinematicsToolboxOutputStatus robotConfiguration, FullHumanoidRobotModel fullRobotModel)
+   {
+      MessageTools.unpackDesiredJointState(robotConfiguration, fullRobotModel.getRootJoint(), FullRobotModelUtils.getAllJointsExcludingHands(fullRobotModel));
+      fullRobotModel.updateFrames();
+   }
+
+   /**
+    * Checks the average velocity of the arm joints between consecutive key frames of the plan, the
+    * first key frame being the initial configuration.
+    */
+   private static void assertArmJointAverageVelocitiesWithinLimits(KinematicsPlanningToolboxOutputStatus solution, FullHumanoidRobotModel fullRobotModel)
+   {
+      OneDoFJointBasics[] allJointsExcludingHands = FullRobotModelUtils.getAllJointsExcludingHands(fullRobotModel);
+      List<KinematicsToolboxOutputStatus> robotConfigurations = solution.getRobotConfigurations();
+
+      for (RobotSide robotSide : RobotSide.values)
+      {
+         JointBasics armJoint = fullRobotModel.getHand(robotSide).getParentJoint();
+         while (armJoint.getPredecessor() != fullRobotModel.getElevator())
+         {
+            if (armJoint.getName().contains(robotSide.getLowerCaseName()))
+            {
+               OneDoFJointBasics oneDoFJoint = fullRobotModel.getOneDoFJointByName(armJoint.getName());
+               int jointIndex = Arrays.asList(allJointsExcludingHands).indexOf(oneDoFJoint);
+               assertTrue(jointIndex >= 0);
+
+               for (int i = 1; i < robotConfigurations.size(); i++)
+               {
+                  double duration = solution.getKeyFrameTimes().get(i) - solution.getKeyFrameTimes().get(i - 1);
+                  double displacement = robotConfigurations.get(i).getDesiredJointAngles().get(jointIndex)
+                        - robotConfigurations.get(i - 1).getDesiredJointAngles().get(jointIndex);
+                  double averageVelocity = displacement / duration;
+                  String message = oneDoFJoint.getName() + " key frame " + i + " average velocity: " + averageVelocity;
+                  assertTrue(message, averageVelocity >= oneDoFJoint.getVelocityLimitLower());
+                  assertTrue(message, averageVelocity <= oneDoFJoint.getVelocityLimitUpper());
+               }
+            }
+            armJoint = armJoint.getPredecessor().getParentJoint();
+         }
+      }
+   }
+
    @Test
    public void testReachToAPoint() throws Exception, UnreasonableAccelerationException
    {
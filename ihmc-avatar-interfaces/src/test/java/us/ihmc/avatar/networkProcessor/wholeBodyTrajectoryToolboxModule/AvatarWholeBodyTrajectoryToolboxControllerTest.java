@@ -6,6 +6,7 @@ import static us.ihmc.humanoidRobotics.communication.packets.manipulation.wholeB
 import static us.ihmc.humanoidRobotics.communication.packets.manipulation.wholeBodyTrajectory.ConfigurationSpaceName.ROLL;
 import static us.ihmc.humanoidRobotics.communication.packets.manipulation.wholeBodyTrajectory.ConfigurationSpaceName.YAW;
 import static us.ihmc.humanoidRobotics.communication.packets.manipulation.wholeBodyTrajectory.WholeBodyTrajectoryToolboxMessageTools.createTrajectoryMessage;
+import static us.ihmc.robotics.Assert.assertEquals;
 import static us.ihmc.robotics.Assert.assertNotNull;
 import static us.ihmc.robotics.Assert.fail;
 
@@ -59,6 +60,7 @@ import us.ihmc.humanoidRobotics.communication.packets.KinematicsToolboxMessageFa
 import us.ihmc.humanoidRobotics.communication.packets.KinematicsToolboxOutputConverter;
 import us.ihmc.humanoidRobotics.communication.packets.manipulation.wholeBodyTrajectory.ConfigurationSpaceName;
 import us.ihmc.humanoidRobotics.communication.packets.manipulation.wholeBodyTrajectory.WholeBodyTrajectoryToolboxMessageTools;
+import us.ihmc.humanoidRobotics.communication.packets.manipulation.wholeBodyTrajectory.WholeBodyTrajectoryToolboxSettings;
 import us.ihmc.humanoidRobotics.communication.packets.manipulation.wholeBodyTrajectory.WholeBodyTrajectoryToolboxMessageTools.FunctionTrajectory;
 import us.ihmc.mecano.multiBodySystem.interfaces.FloatingJointBasics;
 import us.ihmc.mecano.multiBodySystem.interfaces.OneDoFJointBasics;
@@ -212,7 +214,11 @@ public abstract class AvatarWholeBodyTrajectoryToolboxControllerTest implements
       commandInputManager = null;
       statusOutputManager = null;
 
-      toolboxController = null;
+      if (toolboxController != null)
+      {
+         toolboxController.closeAndDispose();
+         toolboxController = null;
+      }
 
       robot = null;
       toolboxUpdater = null;
@@ -226,6 +232,24 @@ public abstract class AvatarWholeBodyTrajectoryToolboxControllerTest implements
 
    @Test
    public void testOneBigCircle() throws Exception, UnreasonableAccelerationException
+   {
+      // run toolbox
+      runTrajectoryTest(createOneBigCircleMessage(), 100000);
+   }
+
+   @Test
+   public void testSameSolutionForAnyNumberOfSolvers() throws Exception
+   {
+      WholeBodyTrajectoryToolboxOutputStatus singleSolverSolution = runToolboxController(createOneBigCircleMessage(), 1, 100000);
+      WholeBodyTrajectoryToolboxOutputStatus multipleSolversSolution = runToolboxController(createOneBigCircleMessage(), 4, 100000);
+
+      assertNotNull("The toolbox did not report a solution.", singleSolverSolution);
+      assertNotNull("The toolbox did not report a solution.", multipleSolversSolution);
+      assertEquals(4, singleSolverSolution.getPlanningResult());
+      assertEquals(singleSolverSolution, multipleSolversSolution);
+   }
+
+   private WholeBodyTrajectoryToolboxMessage createOneBigCircleMessage()
    {
       // Trajectory parameters
       double trajectoryTime = 10.0;
@@ -293,13 +317,7 @@ public abstract class AvatarWholeBodyTrajectoryToolboxControllerTest implements
          }
       }
 
-      WholeBodyTrajectoryToolboxMessage message = HumanoidMessageTools.createWholeBodyTrajectoryToolboxMessage(configuration,
-                                                                                                               handTrajectories,
-                                                                                                               null,
-                                                                                                               rigidBodyConfigurations);
-
-      // run toolbox
-      runTrajectoryTest(message, 100000);
+      return HumanoidMessageTools.createWholeBodyTrajectoryToolboxMessage(configuration, handTrajectories, null, rigidBodyConfigurations);
    }
 
    @Test
@@ -905,6 +923,56 @@ public abstract class AvatarWholeBodyTrajectoryToolboxControllerTest implements
       return status.getAndSet(null);
    }
 
+   /**
+    * Runs a new toolbox controller, without simulation, using the given number of solvers.
+    */
+   private WholeBodyTrajectoryToolboxOutputStatus runToolboxController(WholeBodyTrajectoryToolboxMessage message, int numberOfSolvers,
+                                                                       int maxNumberOfIterations)
+         throws Exception
+   {
+      WholeBodyTrajectoryToolboxSettings.randomManager.setSeed(1);
+
+      DRCRobotModel robotModel = getRobotModel();
+      FullHumanoidRobotModel desiredFullRobotModel = robotModel.createFullRobotModel();
+      CommandInputManager commandInputManager = new CommandInputManager(WholeBodyTrajectoryToolboxModule.supportedCommands());
+      commandInputManager.registerConversionHelper(new WholeBodyTrajectoryToolboxCommandConverter(desiredFullRobotModel));
+      commandInputManager.registerMessageUnpacker(WholeBodyTrajectoryToolboxMessage.class,
+                                                  MessageUnpackingTools.createWholeBodyTrajectoryToolboxMessageUnpacker());
+      StatusMessageOutputManager statusOutputManager = new StatusMessageOutputManager(WholeBodyTrajectoryToolboxModule.supportedStatus());
+
+      WholeBodyTrajectoryToolboxController controller = new WholeBodyTrajectoryToolboxController(robotModel,
+                                                                                                 desiredFullRobotModel,
+                                                                                                 commandInputManager,
+                                                                                                 statusOutputManager,
+                                                                                                 new YoRegistry("toolbox" + numberOfSolvers),
+                                                                                                 new YoGraphicsListRegistry(),
+                                                                                                 false,
+                                                                                                 numberOfSolvers);
+
+      AtomicReference<WholeBodyTrajectoryToolboxOutputStatus> status = new AtomicReference<>(null);
+      statusOutputManager.attachStatusMessageListener(WholeBodyTrajectoryToolboxOutputStatus.class, status::set);
+
+      commandInputManager.submitMessage(message);
+
+      try
+      {
+         boolean initialized = false;
+         for (int i = 0; !controller.isDone() && i < maxNumberOfIterations; i++)
+         {
+            if (!initialized)
+               initialized = controller.initialize();
+            if (initialized)
+               controller.updateInternal();
+         }
+
+         return status.get();
+      }
+      finally
+      {
+         controller.closeAndDispose();
+      }
+   }
+
    private RobotController createToolboxUpdater()
    {
       return new RobotController()
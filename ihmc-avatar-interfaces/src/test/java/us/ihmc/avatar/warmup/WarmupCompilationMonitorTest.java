@@ -0,0 +1,164 @@
+package us.ihmc.avatar.warmup;
+
+import static us.ihmc.robotics.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class WarmupCompilationMonitorTest
+{
+   @Test
+   public void testAssumedInlinedMethodsAreNotCovered()
+   {
+      Set<String> hotMethods = new HashSet<>(Arrays.asList("A.run", "A.inlined", "A.inlinedTwice", "A.partiallyCompiled", "A.calledFromC1",
+                                                           "A.calledFromPartiallyCompiled", "B.interpreted"));
+      Map<String, Integer> liveCompilationLevels = new HashMap<>();
+      liveCompilationLevels.put("A.run", 4);
+      liveCompilationLevels.put("A.partiallyCompiled", 3); // Called from optimized code, but its C1 version is still in use.
+      liveCompilationLevels.put("A.c1Caller", 3);
+      Map<String, Set<String>> callers = new HashMap<>();
+      callers.put("A.inlined", Collections.singleton("A.run"));
+      callers.put("A.inlinedTwice", Collections.singleton("A.inlined"));
+      callers.put("A.partiallyCompiled", Collections.singleton("A.run"));
+      callers.put("A.calledFromC1", Collections.singleton("A.c1Caller"));
+      callers.put("A.calledFromPartiallyCompiled", Collections.singleton("A.partiallyCompiled"));
+      callers.put("B.interpreted", Collections.singleton("B.interpreted"));
+
+      WarmupCompilationReport report = new WarmupCompilationReport(hotMethods, liveCompilationLevels, Collections.emptySet(), callers, new LinkedHashMap<>());
+
+      assertEquals(Arrays.asList("A.run"), report.getCompiledMethods());
+      assertEquals(Arrays.asList("A.inlined", "A.inlinedTwice"), report.getAssumedInlinedMethods());
+      assertEquals(Arrays.asList("A.partiallyCompiled"), report.getPartiallyCompiledMethods());
+      assertEquals(Arrays.asList("A.calledFromC1", "A.calledFromPartiallyCompiled", "B.interpreted"), report.getInterpretedMethods());
+      assertFalse(report.isComplete());
+
+      // The methods assumed inlined are not counted as covered.
+      hotMethods.removeAll(Arrays.asList("A.partiallyCompiled", "A.calledFromC1", "A.calledFromPartiallyCompiled", "B.interpreted"));
+      report = new WarmupCompilationReport(hotMethods, liveCompilationLevels, Collections.emptySet(), callers, new LinkedHashMap<>());
+      assertFalse(report.isComplete());
+
+      hotMethods.removeAll(Arrays.asList("A.inlined", "A.inlinedTwice"));
+      report = new WarmupCompilationReport(hotMethods, liveCompilationLevels, Collections.emptySet(), callers, new LinkedHashMap<>());
+      assertTrue(report.isComplete());
+   }
+
+   @Test
+   public void testProfileStagesAreReplayed() throws IOException
+   {
+      Path profileFile = Files.createTempFile("warmupProfile", ".txt");
+      Files.write(profileFile, Arrays.asList("# Comment", "A.walk\t12\tWalk", "A.stepAfterStanding\t3\tStand\tStep adjustment"));
+
+      // Nothing is sampled, the profiled methods are not compiled.
+      WarmupCompilationMonitor monitor = new WarmupCompilationMonitor(Workload.class.getName());
+      monitor.loadProfile(profileFile);
+      Set<String> expectedStages = new HashSet<>(Arrays.asList("Walk", "Stand", "Step adjustment"));
+
+      assertEquals(new HashSet<>(Arrays.asList("A.walk", "A.stepAfterStanding")), monitor.getHotMethods());
+      assertEquals(expectedStages, monitor.getStagesToReplay(monitor.createReport()));
+
+      // The stages are kept when the profile is saved again.
+      monitor.saveProfile(profileFile);
+      WarmupCompilationMonitor reloadedMonitor = new WarmupCompilationMonitor(Workload.class.getName());
+      reloadedMonitor.loadProfile(profileFile);
+      assertEquals(expectedStages, reloadedMonitor.getStagesToReplay(reloadedMonitor.createReport()));
+
+      // A method recorded outside of the warmup stages, the whole warmup has to be run again.
+      Files.write(profileFile, Arrays.asList("A.walk\t12\tWalk", "A.live\t40"));
+      reloadedMonitor = new WarmupCompilationMonitor(Workload.class.getName());
+      reloadedMonitor.loadProfile(profileFile);
+      assertNull(reloadedMonitor.getStagesToReplay(reloadedMonitor.createReport()));
+
+      Files.delete(profileFile);
+   }
+
+   @Test
+   public void testWarmupReplaysStages()
+   {
+      int maximumNumberOfRuns = 200;
+      AtomicInteger numberOfRuns = new AtomicInteger();
+      AtomicInteger numberOfReplays = new AtomicInteger();
+      Workload workload = new Workload();
+
+      WarmupCompilationMonitor monitor = new WarmupCompilationMonitor(Workload.class.getName());
+      monitor.setSamplingPeriodMillis(1);
+
+      WarmupCompilationReport report = HumanoidControllerWarumupTools.repeatUntilCompiled(() ->
+      {
+         numberOfRuns.incrementAndGet();
+         monitor.beginStage("Workload");
+         workload.run(20000);
+      }, stages ->
+      {
+         assertEquals(Collections.singleton("Workload"), stages);
+         numberOfReplays.incrementAndGet();
+         monitor.beginStage("Workload");
+         workload.run(20000);
+         return true;
+      }, monitor, maximumNumberOfRuns);
+
+      assertTrue(report.toString(), report.isComplete());
+      // Every run after the first one only replays the stage.
+      assertEquals(1, numberOfRuns.get());
+      assertTrue("The stage was replayed " + numberOfReplays.get() + " times.", numberOfReplays.get() < maximumNumberOfRuns);
+   }
+
+   @Test
+   public void testWarmupStopsOnceCompiled()
+   {
+      int maximumNumberOfRuns = 200;
+      AtomicInteger numberOfRuns = new AtomicInteger();
+      Workload workload = new Workload();
+
+      WarmupCompilationMonitor monitor = new WarmupCompilationMonitor(Workload.class.getName());
+      monitor.setSamplingPeriodMillis(1);
+
+      WarmupCompilationReport report = HumanoidControllerWarumupTools.repeatUntilCompiled(() ->
+      {
+         numberOfRuns.incrementAndGet();
+         workload.run(20000);
+      }, monitor, maximumNumberOfRuns);
+
+      assertTrue(report.toString(), report.isComplete());
+      assertTrue("The warmup ran " + numberOfRuns.get() + " times.", numberOfRuns.get() < maximumNumberOfRuns);
+
+      if (report.isCompilationStateAvailable())
+         assertTrue(report.getNumberOfHotMethods() > 0);
+   }
+
+   /**
+    * The outer loop is part of the workload: once optimized, the thread is only sampled at the
+    * safepoints of the loops, in the frame of the method holding them.
+    */
+   private static class Workload
+   {
+      private double value = 0.0;
+
+      void run(int numberOfIterations)
+      {
+         for (int i = 0; i < numberOfIterations; i++)
+            iterate();
+      }
+
+      void iterate()
+      {
+         for (int i = 0; i < 500; i++)
+            value = compute(value + i);
+      }
+
+      double compute(double input)
+      {
+         return Math.sqrt(Math.abs(input)) + 1.0e-3 * input;
+      }
+   }
+}
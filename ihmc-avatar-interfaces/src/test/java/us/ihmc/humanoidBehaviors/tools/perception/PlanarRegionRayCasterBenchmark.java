@@ -0,0 +1,68 @@
+package us.ihmc.humanoidBehaviors.tools.perception;
+
+import java.util.Random;
+
+import us.ihmc.euclid.tools.EuclidCoreRandomTools;
+import us.ihmc.euclid.tuple3D.Point3D;
+import us.ihmc.euclid.tuple3D.Vector3D;
+import us.ihmc.log.LogTools;
+import us.ihmc.robotics.geometry.PlanarRegionTools;
+import us.ihmc.robotics.geometry.PlanarRegionsList;
+
+/**
+ * Compares {@link PlanarRegionRayCaster} against casting each ray with {@link PlanarRegionTools}
+ * for 100k rays from a single origin against maps of 10 to 1000 regions.
+ */
+public class PlanarRegionRayCasterBenchmark
+{
+   private static final int NUMBER_OF_RAYS = 100000;
+   private static final int NUMBER_OF_WARMUP_RUNS = 5;
+   private static final int NUMBER_OF_RUNS = 10;
+
+   public static void main(String[] args)
+   {
+      Random random = new Random(3489);
+      double[] directions = new double[3 * NUMBER_OF_RAYS];
+      double[] intersections = new double[3 * NUMBER_OF_RAYS];
+      int[] regionIndices = new int[NUMBER_OF_RAYS];
+
+      for (int i = 0; i < NUMBER_OF_RAYS; i++)
+         EuclidCoreRandomTools.nextVector3DWithFixedLength(random, 1.0).get(3 * i, directions);
+
+      Point3D origin = new Point3D(0.0, 0.0, 1.5);
+
+      for (int numberOfRegions : new int[] {10, 100, 1000})
+      {
+         PlanarRegionsList map = PlanarRegionRayCasterTest.createRandomMap(random, numberOfRegions);
+
+         long startTime = System.nanoTime();
+         PlanarRegionRayCaster rayCaster = new PlanarRegionRayCaster(map);
+         double buildTime = 1.0e-6 * (System.nanoTime() - startTime);
+
+         for (int i = 0; i < NUMBER_OF_WARMUP_RUNS; i++)
+            rayCaster.castRays(origin, directions, NUMBER_OF_RAYS, Double.POSITIVE_INFINITY, intersections, regionIndices);
+
+         startTime = System.nanoTime();
+         for (int i = 0; i < NUMBER_OF_RUNS; i++)
+            rayCaster.castRays(origin, directions, NUMBER_OF_RAYS, Double.POSITIVE_INFINITY, intersections, regionIndices);
+         double rayCasterTime = 1.0e-6 * (System.nanoTime() - startTime) / NUMBER_OF_RUNS;
+
+         // The brute force version is slow, a single run is enough.
+         Vector3D direction = new Vector3D();
+         startTime = System.nanoTime();
+         for (int i = 0; i < NUMBER_OF_RAYS; i++)
+         {
+            direction.set(3 * i, directions);
+            PlanarRegionTools.intersectRegionsWithRay(map, origin, direction);
+         }
+         double bruteForceTime = 1.0e-6 * (System.nanoTime() - startTime);
+
+         LogTools.info(String.format("%4d regions: BVH build %.2f ms, BVH cast %.2f ms, brute force cast %.2f ms, speedup %.1fx",
+                                     numberOfRegions,
+                                     buildTime,
+                                     rayCasterTime,
+                                     bruteForceTime,
+                                     bruteForceTime / rayCasterTime));
+      }
+   }
+}
@@ -0,0 +1,137 @@
+package us.ihmc.humanoidBehaviors.tools.perception;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.euclid.tools.EuclidCoreRandomTools;
+import us.ihmc.euclid.tools.EuclidCoreTestTools;
+import us.ihmc.euclid.tuple3D.Point3D;
+import us.ihmc.euclid.tuple3D.Vector3D;
+import us.ihmc.robotics.geometry.PlanarRegion;
+import us.ihmc.robotics.geometry.PlanarRegionTools;
+import us.ihmc.robotics.geometry.PlanarRegionsList;
+
+public class PlanarRegionRayCasterTest
+{
+   private static final int ITERATIONS = 1000;
+   private static final double EPSILON = 1.0e-7;
+
+   @Test
+   public void testAgainstPlanarRegionTools()
+   {
+      Random random = new Random(4598);
+
+      for (int numberOfRegions : new int[] {1, 5, 50})
+      {
+         PlanarRegionsList map = createRandomMap(random, numberOfRegions);
+         PlanarRegionRayCaster rayCaster = new PlanarRegionRayCaster(map);
+
+         double[] origins = new double[3 * ITERATIONS];
+         double[] directions = new double[3 * ITERATIONS];
+         double[] intersections = new double[3 * ITERATIONS];
+         int[] regionIndices = new int[ITERATIONS];
+
+         for (int i = 0; i < ITERATIONS; i++)
+         {
+            EuclidCoreRandomTools.nextPoint3D(random, 5.0).get(3 * i, origins);
+            EuclidCoreRandomTools.nextVector3DWithFixedLength(random, 1.0).get(3 * i, directions);
+         }
+
+         rayCaster.castRays(origins, directions, ITERATIONS, Double.POSITIVE_INFINITY, intersections, regionIndices);
+
+         int numberOfHits = 0;
+
+         for (int i = 0; i < ITERATIONS; i++)
+         {
+            Point3D origin = new Point3D();
+            origin.set(3 * i, origins);
+            Vector3D direction = new Vector3D();
+            direction.set(3 * i, directions);
+
+            ImmutablePair<Point3D, PlanarRegion> expected = PlanarRegionTools.intersectRegionsWithRay(map, origin, direction);
+
+            Point3D singleRayIntersection = new Point3D();
+            int singleRayRegionIndex = rayCaster.castRay(origin, direction, Double.POSITIVE_INFINITY, singleRayIntersection);
+            assertEquals(regionIndices[i], singleRayRegionIndex);
+
+            if (expected == null)
+            {
+               assertEquals(PlanarRegionRayCaster.NO_HIT, regionIndices[i]);
+               continue;
+            }
+
+            numberOfHits++;
+            assertTrue(regionIndices[i] != PlanarRegionRayCaster.NO_HIT);
+            assertTrue(expected.getRight() == rayCaster.getPlanarRegion(regionIndices[i]));
+
+            Point3D intersection = new Point3D();
+            intersection.set(3 * i, intersections);
+            EuclidCoreTestTools.assertTuple3DEquals(expected.getLeft(), intersection, EPSILON);
+            EuclidCoreTestTools.assertTuple3DEquals(intersection, singleRayIntersection, EPSILON);
+         }
+
+         assertTrue(numberOfHits > 0);
+      }
+   }
+
+   @Test
+   public void testMaximumRange()
+   {
+      PlanarRegionsList map = PlanarRegionsList.flatGround(10.0);
+      PlanarRegionRayCaster rayCaster = new PlanarRegionRayCaster(map);
+
+      Point3D origin = new Point3D(0.0, 0.0, 2.0);
+      Vector3D direction = new Vector3D(0.0, 0.0, -3.0);
+      Point3D intersection = new Point3D();
+
+      assertEquals(0, rayCaster.castRay(origin, direction, 2.5, intersection));
+      EuclidCoreTestTools.assertTuple3DEquals(new Point3D(), intersection, EPSILON);
+      assertEquals(PlanarRegionRayCaster.NO_HIT, rayCaster.castRay(origin, direction, 1.5, intersection));
+
+      direction.negate();
+      assertEquals(PlanarRegionRayCaster.NO_HIT, rayCaster.castRay(origin, direction, 2.5, intersection));
+   }
+
+   @Test
+   public void testInfiniteRangeWithMisses()
+   {
+      PlanarRegionsList map = PlanarRegionsList.flatGround(10.0);
+      PlanarRegionRayCaster rayCaster = new PlanarRegionRayCaster(map);
+
+      int numberOfRays = 4;
+      double[] origins = new double[3 * numberOfRays];
+      double[] directions = {0.0, 0.0, -1.0, 0.0, 0.0, 1.0, 1.0, 0.0, 0.0, 0.1, 0.0, -1.0};
+      for (int i = 0; i < numberOfRays; i++)
+         origins[3 * i + 2] = 1.0;
+      double[] intersections = new double[3 * numberOfRays];
+      int[] regionIndices = new int[numberOfRays];
+
+      rayCaster.castRays(origins, directions, numberOfRays, Double.POSITIVE_INFINITY, intersections, regionIndices);
+
+      assertEquals(0, regionIndices[0]);
+      assertEquals(PlanarRegionRayCaster.NO_HIT, regionIndices[1]);
+      assertEquals(PlanarRegionRayCaster.NO_HIT, regionIndices[2]);
+      assertEquals(0, regionIndices[3]);
+
+      for (int i = 0; i < intersections.length; i++)
+         assertTrue(Double.isFinite(intersections[i]));
+      EuclidCoreTestTools.assertTuple3DEquals(new Point3D(), new Point3D(intersections[0], intersections[1], intersections[2]), EPSILON);
+      EuclidCoreTestTools.assertTuple3DEquals(new Point3D(0.1, 0.0, 0.0), new Point3D(intersections[9], intersections[10], intersections[11]), EPSILON);
+
+      Point3D intersection = new Point3D();
+      assertEquals(PlanarRegionRayCaster.NO_HIT, rayCaster.castRay(new Point3D(0.0, 0.0, 1.0), new Vector3D(0.0, 0.0, 1.0), Double.POSITIVE_INFINITY, intersection));
+   }
+
+   static PlanarRegionsList createRandomMap(Random random, int numberOfRegions)
+   {
+      PlanarRegionsList map = new PlanarRegionsList();
+      while (map.getNumberOfPlanarRegions() < numberOfRegions)
+         map.addPlanarRegion(PlanarRegion.generatePlanarRegionFromRandomPolygonsWithRandomTransform(random, 3, 1.0, 6));
+      return map;
+   }
+}
@@ -128,6 +128,12 @@ public class ICPOptimizationQPSolver
 
    /** Flag to use the quad prog QP solver vs. the active set QP solver. **/
    private final AbstractSimpleActiveSetQPSolver solver = new JavaQuadProgSolver();
+   /**
+    * Solver specialized for this small problem that is warm-started with the previous active set. Falls back on {@link #solver} when it cannot find the
+    * optimum.
+    */
+   private final ICPQPActiveSetSolver activeSetSolver;
+   private boolean useActiveSetSolver = true;
 
    /** Full solution vector to the quadratic program. */
    private final DMatrixRMaj solution;
@@ -245,6 +251,8 @@ public class ICPOptimizationQPSolver
                                              maximumNumberOfCMPVertices + maximumNumberOfReachabilityVertices);
       solverInput_bineq = new DMatrixRMaj(maximumNumberOfCMPVertices + maximumNumberOfReachabilityVertices, 1);
 
+      activeSetSolver = new ICPQPActiveSetSolver(maximumNumberOfFreeVariables, maximumNumberOfCMPVertices + maximumNumberOfReachabilityVertices);
+
       solution = new DMatrixRMaj(maximumNumberOfFreeVariables + maximumNumberOfLagrangeMultipliers, 1);
       footstepLocationSolution = new DMatrixRMaj(2, 1);
       copDeltaSolution = new DMatrixRMaj(2, 1);
@@ -305,6 +313,16 @@ public class ICPOptimizationQPSolver
       inputCalculator.setConsiderFeedbackInAdjustment(considerFeedbackInAdjustment);
    }
 
+   /**
+    * Sets whether or not to first try the warm-started {@link ICPQPActiveSetSolver} before falling back on the general QP solver.
+    * By default, this is true.
+    */
+   public void setUseActiveSetSolver(boolean useActiveSetSolver)
+   {
+      this.useActiveSetSolver = useActiveSetSolver;
+      activeSetSolver.resetActiveSet();
+   }
+
    /**
     * Sets the maximum number of iterations to be used by the active set solver.
     */
@@ -1080,9 +1098,23 @@ public class ICPOptimizationQPSolver
             throw new RuntimeException("Hey this is bad.");
       }
 
+      boolean resetActiveSet = useWarmStart && pollResetActiveSet() || previousTickFailed;
+
+      if (useActiveSetSolver)
+      {
+         if (resetActiveSet)
+            activeSetSolver.resetActiveSet();
+
+         if (activeSetSolver.solve(solverInput_H, solverInput_h, solverInput_Aineq, solverInput_bineq, solutionToPack))
+         {
+            numberOfIterations = activeSetSolver.getNumberOfIterations();
+            return true;
+         }
+      }
+
       solver.clear();
 
-      if (useWarmStart && pollResetActiveSet() || previousTickFailed)
+      if (resetActiveSet)
          solver.resetActiveSet();
 
       solver.setQuadraticCostFunction(solverInput_H, solverInput_h, solverInputResidualCost.get(0, 0));
@@ -1091,6 +1123,9 @@ public class ICPOptimizationQPSolver
       try
       {
          numberOfIterations = solver.solve(solutionToPack);
+
+         if (useActiveSetSolver && !MatrixTools.containsNaN(solutionToPack))
+            activeSetSolver.setActiveSetFromSolution(solverInput_Aineq, solverInput_bineq, solutionToPack);
       }
       catch (Exception e)
       {
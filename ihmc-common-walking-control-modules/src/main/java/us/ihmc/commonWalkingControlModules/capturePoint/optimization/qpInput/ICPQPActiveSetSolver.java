@@ -0,0 +1,510 @@
+package us.ihmc.commonWalkingControlModules.capturePoint.optimization.qpInput;
+
+import org.ejml.data.DMatrixRMaj;
+
+/**
+ * Small dense active set solver specialized for the ICP optimization quadratic program:
+ * <p>
+ * min 0.5 x<sup>T</sup> H x + f<sup>T</sup> x, subject to Aineq x <= bineq
+ * </p>
+ * <p>
+ * The problem only has a handful of variables (CoP feedback, CMP feedback, and one footstep) and a
+ * few polygon constraints, and it barely changes from one control tick to the next. This solver
+ * takes advantage of that:
+ * <li>the working set is initialized with the active set of the previous tick, such that the solve
+ * usually terminates after a single iteration,</li>
+ * <li>the Cholesky factorization of the cost Hessian is kept and only recomputed when the Hessian
+ * changes,</li>
+ * <li>no memory is allocated once the solver has seen the largest problem.</li>
+ * </p>
+ * <p>
+ * A solution is only returned when it satisfies the KKT conditions, i.e. it is primal feasible and
+ * all the Lagrange multipliers of the active constraints are non-negative, which makes it the
+ * optimum of the convex problem. When that cannot be achieved within the maximum number of
+ * iterations, or when the working set becomes degenerate, {@link #solve} returns {@code false} and
+ * the caller should fall back on a general purpose solver.
+ * </p>
+ */
+public class ICPQPActiveSetSolver
+{
+   private static final double defaultFeasibilityTolerance = 1.0e-9;
+   private static final double defaultMultiplierTolerance = 1.0e-9;
+   private static final int defaultMaxNumberOfIterations = 10;
+
+   private double feasibilityTolerance = defaultFeasibilityTolerance;
+   private double multiplierTolerance = defaultMultiplierTolerance;
+   private int maxNumberOfIterations = defaultMaxNumberOfIterations;
+
+   private int numberOfVariables = -1;
+   private int numberOfConstraints;
+
+   /** Copy of the last factorized Hessian, used to detect when the factorization can be reused. */
+   private double[] factorizedH = new double[0];
+   /** Lower triangular Cholesky factor of the Hessian, stored row-major. */
+   private double[] hessianFactor = new double[0];
+   private boolean hasHessianFactorization = false;
+   private boolean reusedHessianFactorization = false;
+
+   /** Unconstrained optimum: -H<sup>-1</sup> f. */
+   private double[] unconstrainedSolution = new double[0];
+   private double[] currentSolution = new double[0];
+   private double[] tempVector = new double[0];
+
+   private int[] workingSet = new int[0];
+   private int workingSetSize = 0;
+   private boolean[] isInWorkingSet = new boolean[0];
+   private boolean[] previousActiveSet = new boolean[0];
+   private int previousNumberOfConstraints = 0;
+
+   /** L<sup>-1</sup> A<sub>W</sub><sup>T</sup>, one column per constraint in the working set, stored column-major. */
+   private double[] reducedConstraints = new double[0];
+   /** Cholesky factor of A<sub>W</sub> H<sup>-1</sup> A<sub>W</sub><sup>T</sup>, stored row-major. */
+   private double[] workingSetFactor = new double[0];
+   private double[] lagrangeMultipliers = new double[0];
+
+   private int numberOfIterations;
+
+   public ICPQPActiveSetSolver()
+   {
+      this(6, 16);
+   }
+
+   public ICPQPActiveSetSolver(int maximumNumberOfVariables, int maximumNumberOfConstraints)
+   {
+      ensureCapacity(maximumNumberOfVariables, maximumNumberOfConstraints);
+   }
+
+   public void setMaxNumberOfIterations(int maxNumberOfIterations)
+   {
+      this.maxNumberOfIterations = maxNumberOfIterations;
+   }
+
+   public void setFeasibilityTolerance(double feasibilityTolerance)
+   {
+      this.feasibilityTolerance = feasibilityTolerance;
+   }
+
+   public void setMultiplierTolerance(double multiplierTolerance)
+   {
+      this.multiplierTolerance = multiplierTolerance;
+   }
+
+   /**
+    * Discards the active set of the previous solve, such that the next solve starts from an empty
+    * working set.
+    */
+   public void resetActiveSet()
+   {
+      previousNumberOfConstraints = 0;
+   }
+
+   /**
+    * Sets the active set to use for the next solve from a solution obtained elsewhere, typically by a
+    * fallback solver. The constraints that are satisfied with equality at that solution are
+    * considered active.
+    */
+   public void setActiveSetFromSolution(DMatrixRMaj Aineq, DMatrixRMaj bineq, DMatrixRMaj solution)
+   {
+      int numberOfConstraints = Aineq.getNumRows();
+      int numberOfVariables = Aineq.getNumCols();
+      ensureCapacity(numberOfVariables, numberOfConstraints);
+
+      int numberOfActiveConstraints = 0;
+
+      for (int i = 0; i < numberOfConstraints; i++)
+      {
+         double constraintValue = 0.0;
+         for (int j = 0; j < numberOfVariables; j++)
+            constraintValue += Aineq.unsafe_get(i, j) * solution.unsafe_get(j, 0);
+
+         boolean isActive = numberOfActiveConstraints < numberOfVariables && Math.abs(constraintValue - bineq.unsafe_get(i, 0)) <= 1.0e-7;
+         previousActiveSet[i] = isActive;
+         if (isActive)
+            numberOfActiveConstraints++;
+      }
+
+      previousNumberOfConstraints = numberOfConstraints;
+   }
+
+   /**
+    * Solves the quadratic program.
+    *
+    * @param H              quadratic cost matrix. Has to be symmetric positive definite. Not modified.
+    * @param f              linear cost vector. Not modified.
+    * @param Aineq          inequality constraint matrix. Not modified.
+    * @param bineq          inequality constraint vector. Not modified.
+    * @param solutionToPack the optimal solution. Modified only when a solution is found.
+    * @return whether the optimal solution was found.
+    */
+   public boolean solve(DMatrixRMaj H, DMatrixRMaj f, DMatrixRMaj Aineq, DMatrixRMaj bineq, DMatrixRMaj solutionToPack)
+   {
+      int numberOfVariables = H.getNumRows();
+      int numberOfConstraints = bineq.getNumRows();
+      numberOfIterations = 0;
+
+      if (numberOfConstraints > 0 && Aineq.getNumCols() != numberOfVariables)
+         throw new IllegalArgumentException("Aineq has " + Aineq.getNumCols() + " columns, expected " + numberOfVariables + ".");
+
+      ensureCapacity(numberOfVariables, numberOfConstraints);
+
+      if (numberOfVariables != this.numberOfVariables)
+         hasHessianFactorization = false;
+      this.numberOfVariables = numberOfVariables;
+      this.numberOfConstraints = numberOfConstraints;
+
+      if (!factorizeHessian(H))
+         return false;
+
+      for (int i = 0; i < numberOfVariables; i++)
+         tempVector[i] = -f.unsafe_get(i, 0);
+      solveWithHessianFactor(tempVector, unconstrainedSolution);
+
+      initializeWorkingSet(Aineq, bineq);
+
+      boolean success = false;
+      boolean hasRestarted = false;
+
+      while (numberOfIterations < maxNumberOfIterations)
+      {
+         numberOfIterations++;
+
+         if (!solveWorkingSet(Aineq, bineq))
+         {
+            // The warm start may be degenerate for the current constraints, start over from scratch once.
+            if (hasRestarted)
+               break;
+            hasRestarted = true;
+            clearWorkingSet();
+            continue;
+         }
+
+         int constraintToRemove = -1;
+         double minimumMultiplier = -multiplierTolerance;
+         for (int i = 0; i < workingSetSize; i++)
+         {
+            if (lagrangeMultipliers[i] < minimumMultiplier)
+            {
+               minimumMultiplier = lagrangeMultipliers[i];
+               constraintToRemove = i;
+            }
+         }
+
+         if (constraintToRemove >= 0)
+         {
+            removeFromWorkingSet(constraintToRemove);
+            continue;
+         }
+
+         int constraintToAdd = -1;
+         double maximumViolation = feasibilityTolerance;
+         for (int i = 0; i < numberOfConstraints; i++)
+         {
+            if (isInWorkingSet[i])
+               continue;
+
+            double violation = computeConstraintValue(Aineq, i, currentSolution) - bineq.unsafe_get(i, 0);
+            if (violation > maximumViolation)
+            {
+               maximumViolation = violation;
+               constraintToAdd = i;
+            }
+         }
+
+         if (constraintToAdd < 0)
+         {
+            success = true;
+            break;
+         }
+
+         if (workingSetSize == numberOfVariables)
+            break;
+
+         addToWorkingSet(constraintToAdd);
+      }
+
+      if (!success)
+      {
+         resetActiveSet();
+         return false;
+      }
+
+      for (int i = 0; i < numberOfVariables; i++)
+      {
+         if (!Double.isFinite(currentSolution[i]))
+         {
+            resetActiveSet();
+            return false;
+         }
+      }
+
+      solutionToPack.reshape(numberOfVariables, 1);
+      for (int i = 0; i < numberOfVariables; i++)
+         solutionToPack.unsafe_set(i, 0, currentSolution[i]);
+
+      System.arraycopy(isInWorkingSet, 0, previousActiveSet, 0, numberOfConstraints);
+      previousNumberOfConstraints = numberOfConstraints;
+
+      return true;
+   }
+
+   /**
+    * Returns the number of working set iterations performed during the last solve.
+    */
+   public int getNumberOfIterations()
+   {
+      return numberOfIterations;
+   }
+
+   /**
+    * Returns the number of constraints that were active at the last solution.
+    */
+   public int getNumberOfActiveConstraints()
+   {
+      return workingSetSize;
+   }
+
+   /**
+    * Returns whether the last solve could reuse the factorization of the Hessian from the previous
+    * solve.
+    */
+   public boolean reusedHessianFactorization()
+   {
+      return reusedHessianFactorization;
+   }
+
+   private boolean factorizeHessian(DMatrixRMaj H)
+   {
+      int n = numberOfVariables;
+
+      if (hasHessianFactorization)
+      {
+         boolean hasChanged = false;
+         for (int i = 0; i < n * n; i++)
+         {
+            if (factorizedH[i] != H.data[i])
+            {
+               hasChanged = true;
+               break;
+            }
+         }
+
+         if (!hasChanged)
+         {
+            reusedHessianFactorization = true;
+            return true;
+         }
+      }
+
+      reusedHessianFactorization = false;
+      System.arraycopy(H.data, 0, factorizedH, 0, n * n);
+      hasHessianFactorization = choleskyDecomposition(factorizedH, hessianFactor, n);
+      return hasHessianFactorization;
+   }
+
+   private void initializeWorkingSet(DMatrixRMaj Aineq, DMatrixRMaj bineq)
+   {
+      clearWorkingSet();
+
+      int numberOfConstraintsToCheck = Math.min(previousNumberOfConstraints, numberOfConstraints);
+
+      for (int i = 0; i < numberOfConstraintsToCheck; i++)
+      {
+         if (previousActiveSet[i] && workingSetSize < numberOfVariables && Double.isFinite(bineq.unsafe_get(i, 0)))
+            addToWorkingSet(i);
+      }
+   }
+
+   private void clearWorkingSet()
+   {
+      for (int i = 0; i < numberOfConstraints; i++)
+         isInWorkingSet[i] = false;
+      workingSetSize = 0;
+   }
+
+   private void addToWorkingSet(int constraintIndex)
+   {
+      workingSet[workingSetSize++] = constraintIndex;
+      isInWorkingSet[constraintIndex] = true;
+   }
+
+   private void removeFromWorkingSet(int workingSetIndex)
+   {
+      isInWorkingSet[workingSet[workingSetIndex]] = false;
+      workingSetSize--;
+      for (int i = workingSetIndex; i < workingSetSize; i++)
+         workingSet[i] = workingSet[i + 1];
+   }
+
+   /**
+    * Solves the equality constrained problem given by the current working set with the range-space
+    * method:
+    * <p>
+    * (A<sub>W</sub> H<sup>-1</sup> A<sub>W</sub><sup>T</sup>) &lambda; = A<sub>W</sub> x<sub>0</sub>
+    * - b<sub>W</sub><br>
+    * x = x<sub>0</sub> - H<sup>-1</sup> A<sub>W</sub><sup>T</sup> &lambda;
+    * </p>
+    * where x<sub>0</sub> is the unconstrained optimum.
+    *
+    * @return whether the working set is linearly independent.
+    */
+   private boolean solveWorkingSet(DMatrixRMaj Aineq, DMatrixRMaj bineq)
+   {
+      int n = numberOfVariables;
+      int k = workingSetSize;
+
+      if (k == 0)
+      {
+         System.arraycopy(unconstrainedSolution, 0, currentSolution, 0, n);
+         return true;
+      }
+
+      for (int col = 0; col < k; col++)
+      {
+         int constraintIndex = workingSet[col];
+         int offset = col * n;
+         for (int i = 0; i < n; i++)
+            tempVector[i] = Aineq.unsafe_get(constraintIndex, i);
+         forwardSubstitution(hessianFactor, n, tempVector, reducedConstraints, offset);
+      }
+
+      for (int row = 0; row < k; row++)
+      {
+         for (int col = 0; col <= row; col++)
+         {
+            double value = 0.0;
+            for (int i = 0; i < n; i++)
+               value += reducedConstraints[row * n + i] * reducedConstraints[col * n + i];
+            workingSetFactor[row * k + col] = value;
+            workingSetFactor[col * k + row] = value;
+         }
+      }
+
+      if (!choleskyDecomposition(workingSetFactor, workingSetFactor, k))
+         return false;
+
+      for (int i = 0; i < k; i++)
+      {
+         int constraintIndex = workingSet[i];
+         tempVector[i] = computeConstraintValue(Aineq, constraintIndex, unconstrainedSolution) - bineq.unsafe_get(constraintIndex, 0);
+      }
+
+      forwardSubstitution(workingSetFactor, k, tempVector, lagrangeMultipliers, 0);
+      backwardSubstitution(workingSetFactor, k, lagrangeMultipliers, lagrangeMultipliers);
+
+      // x = x0 - L^-T (L^-1 A_W^T) lambda
+      for (int i = 0; i < n; i++)
+      {
+         double value = 0.0;
+         for (int col = 0; col < k; col++)
+            value += reducedConstraints[col * n + i] * lagrangeMultipliers[col];
+         tempVector[i] = value;
+      }
+      backwardSubstitution(hessianFactor, n, tempVector, currentSolution);
+
+      for (int i = 0; i < n; i++)
+         currentSolution[i] = unconstrainedSolution[i] - currentSolution[i];
+
+      return true;
+   }
+
+   private void solveWithHessianFactor(double[] b, double[] x)
+   {
+      forwardSubstitution(hessianFactor, numberOfVariables, b, x, 0);
+      backwardSubstitution(hessianFactor, numberOfVariables, x, x);
+   }
+
+   private static double computeConstraintValue(DMatrixRMaj Aineq, int constraintIndex, double[] x)
+   {
+      int n = Aineq.getNumCols();
+      int offset = constraintIndex * n;
+      double value = 0.0;
+      for (int i = 0; i < n; i++)
+         value += Aineq.data[offset + i] * x[i];
+      return value;
+   }
+
+   /**
+    * In-place capable Cholesky decomposition of the symmetric matrix {@code A = L L<sup>T</sup>}.
+    * Only the lower triangle of {@code L} is written.
+    *
+    * @return whether the matrix is positive definite.
+    */
+   private static boolean choleskyDecomposition(double[] A, double[] L, int n)
+   {
+      for (int i = 0; i < n; i++)
+      {
+         for (int j = 0; j <= i; j++)
+         {
+            double sum = A[i * n + j];
+            for (int k = 0; k < j; k++)
+               sum -= L[i * n + k] * L[j * n + k];
+
+            if (i == j)
+            {
+               if (!(sum > 0.0))
+                  return false;
+               L[i * n + i] = Math.sqrt(sum);
+            }
+            else
+            {
+               L[i * n + j] = sum / L[j * n + j];
+            }
+         }
+      }
+
+      return true;
+   }
+
+   /** Solves L x = b, with x stored in {@code x} starting at {@code xOffset}. */
+   private static void forwardSubstitution(double[] L, int n, double[] b, double[] x, int xOffset)
+   {
+      for (int i = 0; i < n; i++)
+      {
+         double sum = b[i];
+         for (int k = 0; k < i; k++)
+            sum -= L[i * n + k] * x[xOffset + k];
+         x[xOffset + i] = sum / L[i * n + i];
+      }
+   }
+
+   /** Solves L<sup>T</sup> x = b. {@code b} and {@code x} can be the same array. */
+   private static void backwardSubstitution(double[] L, int n, double[] b, double[] x)
+   {
+      for (int i = n - 1; i >= 0; i--)
+      {
+         double sum = b[i];
+         for (int k = i + 1; k < n; k++)
+            sum -= L[k * n + i] * x[k];
+         x[i] = sum / L[i * n + i];
+      }
+   }
+
+   private void ensureCapacity(int numberOfVariables, int numberOfConstraints)
+   {
+      int size = Math.max(numberOfVariables, numberOfConstraints);
+
+      if (factorizedH.length < numberOfVariables * numberOfVariables)
+      {
+         factorizedH = new double[numberOfVariables * numberOfVariables];
+         hessianFactor = new double[numberOfVariables * numberOfVariables];
+         reducedConstraints = new double[numberOfVariables * numberOfVariables];
+         workingSetFactor = new double[numberOfVariables * numberOfVariables];
+         unconstrainedSolution = new double[numberOfVariables];
+         currentSolution = new double[numberOfVariables];
+         lagrangeMultipliers = new double[numberOfVariables];
+         workingSet = new int[numberOfVariables];
+         hasHessianFactorization = false;
+      }
+
+      if (tempVector.length < size)
+         tempVector = new double[size];
+
+      if (isInWorkingSet.length < numberOfConstraints)
+      {
+         isInWorkingSet = new boolean[numberOfConstraints];
+         boolean[] newPreviousActiveSet = new boolean[numberOfConstraints];
+         System.arraycopy(previousActiveSet, 0, newPreviousActiveSet, 0, previousActiveSet.length);
+         previousActiveSet = newPreviousActiveSet;
+      }
+   }
+}
@@ -0,0 +1,332 @@
+package us.ihmc.commonWalkingControlModules.polygonWiggling;
+
+import org.ejml.data.DMatrixRMaj;
+
+import us.ihmc.convexOptimization.quadraticProgram.QuadProgSolver;
+import us.ihmc.euclid.geometry.ConvexPolygon2D;
+import us.ihmc.euclid.geometry.interfaces.ConvexPolygon2DReadOnly;
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.euclid.tuple2D.interfaces.Point2DReadOnly;
+import us.ihmc.log.LogTools;
+import us.ihmc.robotics.geometry.ConvexPolygonTools;
+import us.ihmc.robotics.geometry.PlanarRegion;
+
+/**
+ * Reusable version of the {@link PolygonWiggler}. Solves the same quadratic program, but is meant to be kept around and called many times, as done when
+ * snapping and wiggling footsteps in the footstep planner:
+ * <li>all the matrices are preallocated and only resized when the problem size changes,</li>
+ * <li>the cost function is assembled from its block structure rather than with dense matrix products,</li>
+ * <li>the constraints on the slack variables only get rebuilt when the number of vertices of either polygon changes,</li>
+ * <li>when two consecutive problems have the same size, the quadratic program is warm started from the previous solve.</li>
+ * <p>
+ * This class is not thread safe and the transforms it returns are overwritten at the next call.
+ * </p>
+ */
+public class PolygonWiggleSolver
+{
+   private static final boolean DEBUG = false;
+
+   /** Weight associated with moving into the polygon. */
+   private static final double polygonWeight = 1.0e6;
+   /** Regularization weight preferring a zero solution. */
+   private static final double regularization = 1.0e-10;
+   /** Weight associated with moving the polygon. */
+   private static final double moveWeight = 1.0;
+
+   private static final int[] emptyArray = new int[0];
+   private static final int boundConstraints = 6;
+
+   /** If x is contained in the polygon to wiggle into, this can be expressed by Ax <= b */
+   private final DMatrixRMaj A = new DMatrixRMaj(0, 0);
+   private final DMatrixRMaj b = new DMatrixRMaj(0, 0);
+
+   /** For each vertex and each edge of the region, the row of Aeq multiplying the polygon transform (x, y, yaw). */
+   private final DMatrixRMaj transformJacobian = new DMatrixRMaj(0, 3);
+   /** For each vertex and each edge of the region, the constraint offset b - A * p. */
+   private final DMatrixRMaj beq = new DMatrixRMaj(0, 1);
+
+   private final DMatrixRMaj costMatrix = new DMatrixRMaj(0, 0);
+   private final DMatrixRMaj costVector = new DMatrixRMaj(0, 1);
+   private final DMatrixRMaj Aeq = new DMatrixRMaj(0, 0);
+   private final DMatrixRMaj emptyBeq = new DMatrixRMaj(0, 1);
+   private final DMatrixRMaj Aineq = new DMatrixRMaj(0, 0);
+   private final DMatrixRMaj bineq = new DMatrixRMaj(0, 1);
+   private final DMatrixRMaj result = new DMatrixRMaj(0, 1);
+
+   private final QuadProgSolver solver = new QuadProgSolver();
+   private boolean warmStart = true;
+   private int previousNumberOfVariables = -1;
+   private int iterations;
+
+   private final ConvexPolygonTools convexPolygonTools = new ConvexPolygonTools();
+   private final ConvexPolygon2D intersection = new ConvexPolygon2D();
+
+   private final RigidBodyTransform wiggleTransform = new RigidBodyTransform();
+   private final RigidBodyTransform toOriginTransform = new RigidBodyTransform();
+   private final RigidBodyTransform rotationTransform = new RigidBodyTransform();
+
+   /**
+    * Sets whether or not consecutive problems of the same size should be warm started. Enabled by default.
+    */
+   public void setWarmStart(boolean warmStart)
+   {
+      this.warmStart = warmStart;
+   }
+
+   /**
+    * Forces the next solve to start from scratch.
+    */
+   public void reset()
+   {
+      previousNumberOfVariables = -1;
+   }
+
+   /**
+    * Returns the number of iterations the quadratic program required at the last call.
+    */
+   public int getNumberOfIterations()
+   {
+      return iterations;
+   }
+
+   /**
+    * Returns a transform that will move the given polygon into the convex hull of a planar region.
+    *
+    * @see PolygonWiggler#wigglePolygonIntoConvexHullOfRegion(ConvexPolygon2D, PlanarRegion, WiggleParameters)
+    */
+   public RigidBodyTransform wigglePolygonIntoConvexHullOfRegion(ConvexPolygon2DReadOnly polygonToWiggleInRegionFrame, PlanarRegion regionToWiggleInto,
+                                                                 WiggleParameters parameters)
+   {
+      return findWiggleTransform(polygonToWiggleInRegionFrame, regionToWiggleInto.getConvexHull(), parameters);
+   }
+
+   /**
+    * Returns a transform that will move the given polygon into the convex polygon of the planar region it overlaps the most with.
+    *
+    * @see PolygonWiggler#wigglePolygonIntoRegion(ConvexPolygon2D, PlanarRegion, WiggleParameters)
+    */
+   public RigidBodyTransform wigglePolygonIntoRegion(ConvexPolygon2DReadOnly polygonToWiggleInRegionFrame, PlanarRegion regionToWiggleInto,
+                                                     WiggleParameters parameters)
+   {
+      // find the part of the region that has the biggest intersection with the polygon
+      ConvexPolygon2D bestMatch = null;
+      double overlap = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < regionToWiggleInto.getNumberOfConvexPolygons(); i++)
+      {
+         intersection.clearAndUpdate();
+         convexPolygonTools.computeIntersectionOfPolygons(regionToWiggleInto.getConvexPolygon(i), polygonToWiggleInRegionFrame, intersection);
+         if (intersection.getArea() > overlap)
+         {
+            overlap = intersection.getArea();
+            bestMatch = regionToWiggleInto.getConvexPolygon(i);
+         }
+      }
+
+      if (bestMatch == null)
+         return null;
+
+      return findWiggleTransform(polygonToWiggleInRegionFrame, bestMatch, parameters);
+   }
+
+   public RigidBodyTransform findWiggleTransform(ConvexPolygon2DReadOnly polygonToWiggle, ConvexPolygon2DReadOnly planeToWiggleInto, WiggleParameters parameters)
+   {
+      return findWiggleTransform(polygonToWiggle, planeToWiggleInto, parameters, emptyArray);
+   }
+
+   /**
+    * This method will find a transform that moves a convex polygon into a given convex region. The algorithm assumes a small rotation
+    * angle (it will linearize sin and cos around 0.0). For that reason it is possible to specify a maximum and a minimum rotation.
+    *
+    * @return the wiggle transform, or {@code null} if the quadratic program failed. The transform is overwritten at the next call.
+    */
+   public RigidBodyTransform findWiggleTransform(ConvexPolygon2DReadOnly polygonToWiggle, ConvexPolygon2DReadOnly planeToWiggleInto, WiggleParameters parameters,
+                                                int[] startingVerticesToIgnore)
+   {
+      int numberOfPoints = polygonToWiggle.getNumberOfVertices();
+      Point2DReadOnly pointToRotateAbout = polygonToWiggle.getCentroid();
+
+      // This creates inequality constraints for points to lie inside the desired polygon.
+      PolygonWiggler.convertToInequalityConstraints(planeToWiggleInto, A, b, parameters.deltaInside, startingVerticesToIgnore);
+
+      int constraintsPerPoint = A.getNumRows();
+      int slackVariables = constraintsPerPoint * numberOfPoints;
+      int numberOfVariables = 3 + slackVariables;
+
+      // The inequality constraints of form
+      // Ax <= b
+      // are converted to new constraints with a new optimization vector s:
+      // Ax - s - b == 0.0
+      // s <= 0
+      // The equality constraint will be converted to an objective causing the wiggler to do the best it can instead of failing when the wiggle is not possible.
+      // Aeq = [A*V_i, -I], beq_i = b - A*p_i
+      transformJacobian.reshape(slackVariables, 3);
+      beq.reshape(slackVariables, 1);
+
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         Point2DReadOnly vertex = polygonToWiggle.getVertex(i);
+         double offsetX = vertex.getX() - pointToRotateAbout.getX();
+         double offsetY = vertex.getY() - pointToRotateAbout.getY();
+
+         for (int j = 0; j < constraintsPerPoint; j++)
+         {
+            int row = constraintsPerPoint * i + j;
+            double ax = A.get(j, 0);
+            double ay = A.get(j, 1);
+
+            // inequality constraint becomes A*V * x <= b - A*p, with V = [1, 0, -y; 0, 1, x]
+            transformJacobian.set(row, 0, ax);
+            transformJacobian.set(row, 1, ay);
+            transformJacobian.set(row, 2, ay * offsetX - ax * offsetY);
+            beq.set(row, b.get(j) - ax * vertex.getX() - ay * vertex.getY());
+         }
+      }
+
+      computeCostFunction(slackVariables, parameters);
+      computeInequalityConstraints(slackVariables, parameters);
+
+      result.reshape(numberOfVariables, 1);
+      boolean initialize = !warmStart || numberOfVariables != previousNumberOfVariables;
+
+      boolean foundSolution = solve(initialize);
+      if (!foundSolution && !initialize)
+      {
+         // The warm start did not work out, try again from scratch.
+         foundSolution = solve(true);
+      }
+
+      if (!foundSolution)
+      {
+         previousNumberOfVariables = -1;
+         return null;
+      }
+
+      previousNumberOfVariables = numberOfVariables;
+
+      // assemble the transform
+      double theta = result.get(2);
+      toOriginTransform.setTranslationAndIdentityRotation(pointToRotateAbout.getX(), pointToRotateAbout.getY(), 0.0);
+      rotationTransform.setRotationYawAndZeroTranslation(theta);
+
+      wiggleTransform.set(toOriginTransform);
+      wiggleTransform.multiply(rotationTransform);
+      toOriginTransform.invert();
+      wiggleTransform.multiply(toOriginTransform);
+
+      // Translation expressed in the rotated frame: R^T * t
+      double cosTheta = Math.cos(theta);
+      double sinTheta = Math.sin(theta);
+      double translationX = cosTheta * result.get(0) + sinTheta * result.get(1);
+      double translationY = -sinTheta * result.get(0) + cosTheta * result.get(1);
+      wiggleTransform.appendTranslation(translationX, translationY, 0.0);
+
+      return wiggleTransform;
+   }
+
+   private boolean solve(boolean initialize)
+   {
+      try
+      {
+         iterations = solver.solve(costMatrix, costVector, Aeq, emptyBeq, Aineq, bineq, result, initialize);
+         if (DEBUG)
+         {
+            LogTools.info("Iterations: " + iterations);
+            LogTools.info("Result: " + result);
+         }
+      }
+      catch (Exception e)
+      {
+         if (initialize)
+            e.printStackTrace();
+         return false;
+      }
+
+      if (Double.isInfinite(solver.getCost()))
+      {
+         if (initialize)
+            LogTools.info("Could not wiggle!");
+         return false;
+      }
+
+      return true;
+   }
+
+   /**
+    * Converts the equality constraint Aeq x = beq, with Aeq = [J, -I], into the objective
+    * <p>
+    * 0.5 * w * || Aeq x - beq ||<sup>2</sup>
+    * </p>
+    * whose Hessian and gradient are computed directly from their block structure:
+    * <p>
+    * H = w * [J<sup>T</sup>J, -J<sup>T</sup>; -J, I], f = -w * [J<sup>T</sup>beq; -beq]
+    * </p>
+    */
+   private void computeCostFunction(int slackVariables, WiggleParameters parameters)
+   {
+      int numberOfVariables = 3 + slackVariables;
+      costMatrix.reshape(numberOfVariables, numberOfVariables);
+      costVector.reshape(numberOfVariables, 1);
+      costMatrix.zero();
+
+      for (int row = 0; row < slackVariables; row++)
+      {
+         double beqRow = beq.get(row);
+         int slackIndex = 3 + row;
+
+         for (int i = 0; i < 3; i++)
+         {
+            double jacobianI = transformJacobian.get(row, i);
+            for (int j = 0; j < 3; j++)
+               costMatrix.add(i, j, polygonWeight * jacobianI * transformJacobian.get(row, j));
+
+            costMatrix.set(i, slackIndex, -polygonWeight * jacobianI);
+            costMatrix.set(slackIndex, i, -polygonWeight * jacobianI);
+         }
+
+         costMatrix.set(slackIndex, slackIndex, polygonWeight + regularization);
+         costVector.set(slackIndex, polygonWeight * beqRow);
+      }
+
+      for (int i = 0; i < 3; i++)
+      {
+         double gradient = 0.0;
+         for (int row = 0; row < slackVariables; row++)
+            gradient += transformJacobian.get(row, i) * beq.get(row);
+         costVector.set(i, -polygonWeight * gradient);
+
+         // Add regularization
+         costMatrix.add(i, i, regularization);
+      }
+
+      // Add movement weight
+      costMatrix.add(0, 0, moveWeight);
+      costMatrix.add(1, 1, moveWeight);
+      costMatrix.add(2, 2, moveWeight * parameters.rotationWeight);
+   }
+
+   /**
+    * The slack variables have to be non-positive and the transform is bounded. Only the bounds change when the problem size remains the same.
+    */
+   private void computeInequalityConstraints(int slackVariables, WiggleParameters parameters)
+   {
+      int numberOfVariables = 3 + slackVariables;
+      int numberOfConstraints = slackVariables + boundConstraints;
+
+      if (Aineq.getNumRows() != numberOfConstraints || Aineq.getNumCols() != numberOfVariables)
+      {
+         Aineq.reshape(numberOfConstraints, numberOfVariables);
+         bineq.reshape(numberOfConstraints, 1);
+         Aineq.zero();
+         bineq.zero();
+
+         for (int i = 0; i < slackVariables; i++)
+            Aineq.set(i, 3 + i, 1.0);
+
+         Aeq.reshape(0, numberOfVariables);
+         emptyBeq.reshape(0, 1);
+      }
+
+      // add limits on allowed rotation and translation
+      PolygonWiggler.addRotationAndTranslationConstraint(Aineq, bineq, slackVariables, parameters);
+   }
+}
@@ -1,33 +1,16 @@
 package us.ihmc.commonWalkingControlModules.polygonWiggling;
 
 import org.ejml.data.DMatrixRMaj;
-import org.ejml.dense.row.CommonOps_DDRM;
 
-import us.ihmc.convexOptimization.quadraticProgram.QuadProgSolver;
 import us.ihmc.euclid.geometry.ConvexPolygon2D;
 import us.ihmc.euclid.geometry.interfaces.ConvexPolygon2DReadOnly;
-import us.ihmc.euclid.matrix.RotationMatrix;
 import us.ihmc.euclid.transform.RigidBodyTransform;
-import us.ihmc.euclid.tuple2D.Point2D;
 import us.ihmc.euclid.tuple2D.Vector2D;
 import us.ihmc.euclid.tuple2D.interfaces.Point2DReadOnly;
-import us.ihmc.euclid.tuple3D.Vector3D;
-import us.ihmc.log.LogTools;
-import us.ihmc.robotics.geometry.ConvexPolygonTools;
 import us.ihmc.robotics.geometry.PlanarRegion;
 
 public class PolygonWiggler
 {
-   private static final boolean DEBUG = false;
-   private static final boolean coldStart = true;
-
-   /** Weight associated with moving into the polygon. */
-   private static final double polygonWeight = 1.0e6;
-   /** Regularization weight preferring a zero solution. */
-   private static final double regularization = 1.0e-10;
-   /** Weight associated with moving the polygon. */
-   private static final double moveWeight = 1.0;
-
    private static int[] emptyArray = new int[0];
 
    /**
@@ -54,25 +37,8 @@ public class PolygonWiggler
     */
    public static RigidBodyTransform wigglePolygonIntoRegion(ConvexPolygon2D polygonToWiggleInRegionFrame, PlanarRegion regionToWiggleInto, WiggleParameters parameters)
    {
-      // find the part of the region that has the biggest intersection with the polygon
-      ConvexPolygon2D bestMatch = null;
-      double overlap = Double.NEGATIVE_INFINITY;
-      ConvexPolygonTools convexPolygonTools = new ConvexPolygonTools();
-      for (int i = 0; i < regionToWiggleInto.getNumberOfConvexPolygons(); i++)
-      {
-         ConvexPolygon2D intersection = new ConvexPolygon2D();
-         convexPolygonTools.computeIntersectionOfPolygons(regionToWiggleInto.getConvexPolygon(i), polygonToWiggleInRegionFrame, intersection);
-         if (intersection.getArea() > overlap)
-         {
-            overlap = intersection.getArea();
-            bestMatch = regionToWiggleInto.getConvexPolygon(i);
-         }
-      }
-
-      if (bestMatch == null)
-         return null;
-
-      return findWiggleTransform(polygonToWiggleInRegionFrame, bestMatch, parameters);
+      RigidBodyTransform wiggleTransform = new PolygonWiggleSolver().wigglePolygonIntoRegion(polygonToWiggleInRegionFrame, regionToWiggleInto, parameters);
+      return wiggleTransform == null ? null : new RigidBodyTransform(wiggleTransform);
    }
 
    /**
@@ -126,128 +92,8 @@ public class PolygonWiggler
    public static RigidBodyTransform findWiggleTransform(ConvexPolygon2DReadOnly polygonToWiggle, ConvexPolygon2DReadOnly planeToWiggleInto, WiggleParameters parameters,
                                                         int[] startingVerticesToIgnore)
    {
-      int numberOfPoints = polygonToWiggle.getNumberOfVertices();
-      Point2DReadOnly pointToRotateAbout = polygonToWiggle.getCentroid();
-
-      // This creates inequality constraints for points to lie inside the desired polygon.
-      DMatrixRMaj A = new DMatrixRMaj(0);
-      DMatrixRMaj b = new DMatrixRMaj(0);
-      convertToInequalityConstraints(planeToWiggleInto, A, b, parameters.deltaInside, startingVerticesToIgnore);
-
-      int constraintsPerPoint = A.getNumRows();
-
-      int boundConstraints = 6;
-      DMatrixRMaj A_full = new DMatrixRMaj(constraintsPerPoint * numberOfPoints + boundConstraints, 3 + constraintsPerPoint * numberOfPoints);
-      DMatrixRMaj b_full = new DMatrixRMaj(constraintsPerPoint * numberOfPoints + boundConstraints, 1);
-      // add limits on allowed rotation and translation
-      PolygonWiggler.addRotationAndTranslationConstraint(A_full, b_full, constraintsPerPoint * numberOfPoints, parameters);
-
-      // The inequality constraints of form
-      // Ax <= b
-      // are converted to new constraints with a new optimization vector s:
-      // Ax - s - b == 0.0
-      // s <= 0
-      // The equality constraint will be converted to an objective causing the wiggler to do the best it can instead of failing when the wiggle is not possible.
-      DMatrixRMaj Aeq = new DMatrixRMaj(constraintsPerPoint * numberOfPoints, 3 + constraintsPerPoint * numberOfPoints);
-      DMatrixRMaj beq = new DMatrixRMaj(constraintsPerPoint * numberOfPoints, 1);
-      DMatrixRMaj indentity = new DMatrixRMaj(constraintsPerPoint * numberOfPoints, constraintsPerPoint * numberOfPoints);
-      CommonOps_DDRM.setIdentity(indentity);
-      CommonOps_DDRM.insert(indentity, A_full, 0, 3);
-      CommonOps_DDRM.scale(-1.0, indentity);
-      CommonOps_DDRM.insert(indentity, Aeq, 0, 3);
-
-      for (int i = 0; i < numberOfPoints; i++)
-      {
-         DMatrixRMaj p = new DMatrixRMaj(2, 1);
-         p.set(0, polygonToWiggle.getVertex(i).getX());
-         p.set(1, polygonToWiggle.getVertex(i).getY());
-
-         // inequality constraint becomes A*V * x <= b - A*p
-         Point2D point = new Point2D(polygonToWiggle.getVertex(i));
-         point.sub(pointToRotateAbout);
-         DMatrixRMaj V = new DMatrixRMaj(new double[][] {{1.0, 0.0, -point.getY()}, {0.0, 1.0, point.getX()}});
-
-         DMatrixRMaj A_new = new DMatrixRMaj(constraintsPerPoint, 3);
-         DMatrixRMaj b_new = new DMatrixRMaj(constraintsPerPoint, 1);
-         CommonOps_DDRM.mult(A, V, A_new);
-         CommonOps_DDRM.mult(A, p, b_new);
-         CommonOps_DDRM.changeSign(b_new);
-         CommonOps_DDRM.add(b, b_new, b_new);
-
-         CommonOps_DDRM.insert(A_new, Aeq, constraintsPerPoint * i, 0);
-         CommonOps_DDRM.insert(b_new, beq, constraintsPerPoint * i, 0);
-      }
-
-      // Convert the inequality constraint for being inside the polygon to an objective.
-      DMatrixRMaj costMatrix = new DMatrixRMaj(3 + constraintsPerPoint * numberOfPoints, 3 + constraintsPerPoint * numberOfPoints);
-      CommonOps_DDRM.multInner(Aeq, costMatrix);
-      DMatrixRMaj costVector = new DMatrixRMaj(3 + constraintsPerPoint * numberOfPoints, 1);
-      CommonOps_DDRM.multTransA(Aeq, beq, costVector);
-      CommonOps_DDRM.changeSign(costVector);
-      CommonOps_DDRM.scale(polygonWeight, costMatrix);
-      CommonOps_DDRM.scale(polygonWeight, costVector);
-
-      // Add regularization
-      indentity.reshape(3 + constraintsPerPoint * numberOfPoints, 3 + constraintsPerPoint * numberOfPoints);
-      CommonOps_DDRM.setIdentity(indentity);
-      CommonOps_DDRM.scale(regularization, indentity);
-      CommonOps_DDRM.add(costMatrix, indentity, costMatrix);
-
-      // Add movement weight
-      costMatrix.add(0, 0, moveWeight);
-      costMatrix.add(1, 1, moveWeight);
-      costMatrix.add(2, 2, moveWeight * parameters.rotationWeight);
-
-      QuadProgSolver solver = new QuadProgSolver();
-      DMatrixRMaj result = new DMatrixRMaj(3 + constraintsPerPoint * numberOfPoints, 1);
-      Aeq = new DMatrixRMaj(0, 3 + constraintsPerPoint * numberOfPoints);
-      beq = new DMatrixRMaj(0, 3 + constraintsPerPoint * numberOfPoints);
-      try
-      {
-         int iterations = solver.solve(costMatrix, costVector, Aeq, beq, A_full, b_full, result, coldStart);
-         if (DEBUG)
-         {
-            LogTools.info("Iterations: " + iterations);
-            LogTools.info("Result: " + result);
-         }
-      }
-      catch (Exception e)
-      {
-         e.printStackTrace();
-         return null;
-      }
-
-      if (Double.isInfinite(solver.getCost()))
-      {
-         LogTools.info("Could not wiggle!");
-         return null;
-      }
-
-      // assemble the transform
-      double theta = result.get(2);
-      Vector3D translation = new Vector3D(result.get(0), result.get(1), 0.0);
-      Vector3D offset = new Vector3D(pointToRotateAbout.getX(), pointToRotateAbout.getY(), 0.0);
-
-      RigidBodyTransform toOriginTransform = new RigidBodyTransform();
-      toOriginTransform.setTranslationAndIdentityRotation(offset);
-
-      RigidBodyTransform rotationTransform = new RigidBodyTransform();
-      rotationTransform.appendYawRotation(theta);
-
-      RigidBodyTransform fullTransform = new RigidBodyTransform(toOriginTransform);
-      fullTransform.multiply(rotationTransform);
-      toOriginTransform.invert();
-      fullTransform.multiply(toOriginTransform);
-
-      RotationMatrix rotationMatrix = new RotationMatrix();
-      rotationMatrix.set(rotationTransform.getRotation());
-      rotationMatrix.transpose();
-      rotationMatrix.transform(translation);
-      RigidBodyTransform translationTransform = new RigidBodyTransform();
-      translationTransform.setTranslationAndIdentityRotation(translation);
-      fullTransform.multiply(translationTransform);
-
-      return fullTransform;
+      RigidBodyTransform wiggleTransform = new PolygonWiggleSolver().findWiggleTransform(polygonToWiggle, planeToWiggleInto, parameters, startingVerticesToIgnore);
+      return wiggleTransform == null ? null : new RigidBodyTransform(wiggleTransform);
    }
 
    public static void addRotationAndTranslationConstraint(DMatrixRMaj A, DMatrixRMaj b, int constraintRowStart, WiggleParameters parameters)
@@ -0,0 +1,125 @@
+package us.ihmc.commonWalkingControlModules.capturePoint.optimization.qpInput;
+
+import java.util.Random;
+
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.RandomMatrices_DDRM;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.commons.RandomNumbers;
+import us.ihmc.convexOptimization.quadraticProgram.JavaQuadProgSolver;
+import us.ihmc.robotics.Assert;
+
+public class ICPQPActiveSetSolverTest
+{
+   private static final double epsilon = 1.0e-6;
+
+   @Test
+   public void testAgainstQuadProg()
+   {
+      Random random = new Random(1738L);
+
+      ICPQPActiveSetSolver activeSetSolver = new ICPQPActiveSetSolver();
+      JavaQuadProgSolver quadProgSolver = new JavaQuadProgSolver();
+
+      DMatrixRMaj solution = new DMatrixRMaj(6, 1);
+      DMatrixRMaj expectedSolution = new DMatrixRMaj(6, 1);
+
+      int numberOfSolvedProblems = 0;
+
+      for (int i = 0; i < 1000; i++)
+      {
+         int numberOfVariables = 2 * RandomNumbers.nextInt(random, 1, 3);
+         int numberOfConstraints = RandomNumbers.nextInt(random, 0, 12);
+
+         DMatrixRMaj H = nextPositiveDefiniteMatrix(random, numberOfVariables);
+         DMatrixRMaj f = RandomMatrices_DDRM.rectangle(numberOfVariables, 1, -10.0, 10.0, random);
+         DMatrixRMaj Aineq = RandomMatrices_DDRM.rectangle(numberOfConstraints, numberOfVariables, -1.0, 1.0, random);
+         DMatrixRMaj bineq = nextFeasibleBounds(random, Aineq);
+
+         activeSetSolver.resetActiveSet();
+         if (!activeSetSolver.solve(H, f, Aineq, bineq, solution))
+            continue;
+
+         quadProgSolver.clear();
+         quadProgSolver.resetActiveSet();
+         quadProgSolver.setQuadraticCostFunction(H, f, 0.0);
+         quadProgSolver.setLinearInequalityConstraints(Aineq, bineq);
+         quadProgSolver.solve(expectedSolution);
+
+         for (int j = 0; j < numberOfVariables; j++)
+            Assert.assertEquals(expectedSolution.get(j, 0), solution.get(j, 0), epsilon);
+
+         numberOfSolvedProblems++;
+      }
+
+      Assert.assertTrue(numberOfSolvedProblems > 900);
+   }
+
+   @Test
+   public void testWarmStart()
+   {
+      Random random = new Random(1776L);
+
+      int numberOfVariables = 6;
+      int numberOfConstraints = 8;
+
+      ICPQPActiveSetSolver activeSetSolver = new ICPQPActiveSetSolver();
+
+      DMatrixRMaj H = nextPositiveDefiniteMatrix(random, numberOfVariables);
+      DMatrixRMaj f = RandomMatrices_DDRM.rectangle(numberOfVariables, 1, -10.0, 10.0, random);
+      DMatrixRMaj Aineq = RandomMatrices_DDRM.rectangle(numberOfConstraints, numberOfVariables, -1.0, 1.0, random);
+      DMatrixRMaj bineq = nextFeasibleBounds(random, Aineq);
+      DMatrixRMaj solution = new DMatrixRMaj(numberOfVariables, 1);
+
+      Assert.assertTrue(activeSetSolver.solve(H, f, Aineq, bineq, solution));
+      int numberOfActiveConstraints = activeSetSolver.getNumberOfActiveConstraints();
+      Assert.assertTrue(numberOfActiveConstraints > 0);
+
+      for (int i = 0; i < 100; i++)
+      {
+         for (int j = 0; j < numberOfVariables; j++)
+            f.add(j, 0, RandomNumbers.nextDouble(random, 1.0e-6));
+
+         Assert.assertTrue(activeSetSolver.solve(H, f, Aineq, bineq, solution));
+         Assert.assertTrue(activeSetSolver.reusedHessianFactorization());
+         Assert.assertEquals(numberOfActiveConstraints, activeSetSolver.getNumberOfActiveConstraints());
+         Assert.assertEquals(1, activeSetSolver.getNumberOfIterations());
+      }
+   }
+
+   @Test
+   public void testInfeasible()
+   {
+      ICPQPActiveSetSolver activeSetSolver = new ICPQPActiveSetSolver();
+
+      DMatrixRMaj H = CommonOps_DDRM.identity(2);
+      DMatrixRMaj f = new DMatrixRMaj(2, 1);
+      // x <= -1 and -x <= -1
+      DMatrixRMaj Aineq = new DMatrixRMaj(new double[][] {{1.0, 0.0}, {-1.0, 0.0}});
+      DMatrixRMaj bineq = new DMatrixRMaj(new double[] {-1.0, -1.0});
+      DMatrixRMaj solution = new DMatrixRMaj(2, 1);
+
+      Assert.assertFalse(activeSetSolver.solve(H, f, Aineq, bineq, solution));
+   }
+
+   private static DMatrixRMaj nextPositiveDefiniteMatrix(Random random, int size)
+   {
+      DMatrixRMaj J = RandomMatrices_DDRM.rectangle(size, size, -1.0, 1.0, random);
+      DMatrixRMaj H = CommonOps_DDRM.identity(size);
+      CommonOps_DDRM.scale(0.1, H);
+      CommonOps_DDRM.multAddTransA(J, J, H);
+      return H;
+   }
+
+   private static DMatrixRMaj nextFeasibleBounds(Random random, DMatrixRMaj Aineq)
+   {
+      DMatrixRMaj feasiblePoint = RandomMatrices_DDRM.rectangle(Aineq.getNumCols(), 1, -1.0, 1.0, random);
+      DMatrixRMaj bineq = new DMatrixRMaj(Aineq.getNumRows(), 1);
+      CommonOps_DDRM.mult(Aineq, feasiblePoint, bineq);
+      for (int i = 0; i < bineq.getNumRows(); i++)
+         bineq.add(i, 0, RandomNumbers.nextDouble(random, 0.0, 0.5));
+      return bineq;
+   }
+}
@@ -2,14 +2,8 @@ package us.ihmc.communication.producers;
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.nio.ByteBuffer;
 
 import boofcv.struct.calib.CameraPinholeBrown;
-import us.ihmc.codecs.generated.YUVPicture;
-import us.ihmc.codecs.generated.YUVPicture.YUVSubsamplingType;
-import us.ihmc.codecs.yuv.JPEGEncoder;
-import us.ihmc.codecs.yuv.YUVPictureConverter;
 import us.ihmc.commons.Conversions;
 import us.ihmc.commons.MathTools;
 import us.ihmc.euclid.tuple3D.interfaces.Point3DReadOnly;
@@ -17,10 +11,9 @@ import us.ihmc.euclid.tuple4D.interfaces.QuaternionReadOnly;
 
 public class JPEGCompressedVideoDataServer implements CompressedVideoDataServer
 {
-   private static final Object hackyLockBecauseJPEGEncoderIsNotThreadsafe = new Object();
+   /** Shared by all the video streams of this process, such that the encoders are pooled per resolution. */
+   private static final PooledJPEGCompressor compressor = new PooledJPEGCompressor();
 
-   private final YUVPictureConverter converter = new YUVPictureConverter();
-   private final JPEGEncoder encoder = new JPEGEncoder();
    private final CompressedVideoHandler handler;
 
    private boolean videoEnabled = true;
@@ -32,6 +25,7 @@ public class JPEGCompressedVideoDataServer implements CompressedVideoDataServer
    private int fps = 0;
 
    private long previousTimestamp = -1;
+   private BufferedImage croppedImage = null;
 
    public JPEGCompressedVideoDataServer(CompressedVideoHandler handler)
    {
@@ -71,33 +65,21 @@ public class JPEGCompressedVideoDataServer implements CompressedVideoDataServer
          int x = (newWidth * cropX) / 100;
          int y = (newHeight * cropY) / 100;
 
-         BufferedImage croppedImage = new BufferedImage(newWidth, newHeight, bufferedImage.getType());
+         if (croppedImage == null || croppedImage.getWidth() != newWidth || croppedImage.getHeight() != newHeight
+               || croppedImage.getType() != bufferedImage.getType())
+            croppedImage = new BufferedImage(newWidth, newHeight, bufferedImage.getType());
+
          Graphics2D graphics = croppedImage.createGraphics();
          graphics.drawImage(bufferedImage, 0, 0, newWidth, newHeight, x, y, x + newWidth, y + newHeight, null);
          graphics.dispose();
          bufferedImage = croppedImage;
       }
 
-      YUVPicture picture = converter.fromBufferedImage(bufferedImage, YUVSubsamplingType.YUV420);
-
-      try
-      {
-         ByteBuffer buffer;
-         synchronized (hackyLockBecauseJPEGEncoderIsNotThreadsafe)
-         {
-            buffer = encoder.encode(picture, qualityFactor);
-         }
-         byte[] data = new byte[buffer.remaining()];
-         buffer.get(data);
-         handler.onFrame(videoSource, data, timeStamp, cameraPosition, cameraOrientation, intrinsicParameters);
-      }
-      catch (IOException e)
-      {
-         e.printStackTrace();
-      }
+      compressor.compress(bufferedImage,
+                          qualityFactor,
+                          jpegData -> handler.onFrame(videoSource, jpegData, timeStamp, cameraPosition, cameraOrientation, intrinsicParameters));
 
       previousTimestamp = timeStamp;
-      picture.delete();
    }
 
    @Override
@@ -0,0 +1,111 @@
+package us.ihmc.communication.producers;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import us.ihmc.codecs.generated.YUVPicture;
+import us.ihmc.codecs.generated.YUVPicture.YUVSubsamplingType;
+import us.ihmc.codecs.yuv.JPEGEncoder;
+import us.ihmc.codecs.yuv.YUVPictureConverter;
+import us.ihmc.log.LogTools;
+
+/**
+ * Thread-safe JPEG compressor meant to be shared by several video streams.
+ * <p>
+ * The encoders are pooled per resolution: a frame borrows an encoder, and its converter, only for
+ * the time it takes to compress it. Frames from different cameras are then converted to YUV
+ * concurrently, and an encoder keeps reusing the output buffer sized for its resolution.
+ * </p>
+ * <p>
+ * The native JPEG encoding itself is still serialized with a process-wide lock, the codec library
+ * is not known to be thread-safe across encoder instances.
+ * </p>
+ */
+public class PooledJPEGCompressor
+{
+   public interface JPEGDataConsumer
+   {
+      /**
+       * Called with the compressed data. The buffer belongs to the encoder and is only valid during
+       * this call.
+       */
+      void accept(ByteBuffer jpegData);
+   }
+
+   private static final Object nativeEncoderLock = new Object();
+
+   private final ConcurrentHashMap<Long, ConcurrentLinkedQueue<EncoderSlot>> encoderPools = new ConcurrentHashMap<>();
+
+   public PooledJPEGCompressor()
+   {
+   }
+
+   /**
+    * Compresses the given image and passes the compressed data to the consumer, without copying it.
+    *
+    * @return whether the image could be compressed.
+    */
+   public boolean compress(BufferedImage image, int qualityFactor, JPEGDataConsumer consumer)
+   {
+      ConcurrentLinkedQueue<EncoderSlot> encoderPool = encoderPools.computeIfAbsent(resolutionKey(image), key -> new ConcurrentLinkedQueue<>());
+      EncoderSlot encoderSlot = encoderPool.poll();
+      if (encoderSlot == null)
+         encoderSlot = new EncoderSlot();
+
+      YUVPicture picture = null;
+
+      try
+      {
+         picture = encoderSlot.converter.fromBufferedImage(image, YUVSubsamplingType.YUV420);
+         ByteBuffer jpegData;
+         synchronized (nativeEncoderLock)
+         {
+            jpegData = encoderSlot.encoder.encode(picture, qualityFactor);
+         }
+         consumer.accept(jpegData);
+         return true;
+      }
+      catch (IOException e)
+      {
+         LogTools.error("Failed to compress a {}x{} image: {}", image.getWidth(), image.getHeight(), e.getMessage());
+         return false;
+      }
+      finally
+      {
+         // The picture is allocated in native memory, release it right away instead of waiting for the GC.
+         if (picture != null)
+            picture.delete();
+         encoderPool.offer(encoderSlot);
+      }
+   }
+
+   /**
+    * Compresses the given image into a new array, for the consumers that need to keep the data.
+    *
+    * @return the compressed data, or {@code null} if the image could not be compressed.
+    */
+   public byte[] compress(BufferedImage image, int qualityFactor)
+   {
+      byte[][] result = new byte[1][];
+      compress(image, qualityFactor, jpegData ->
+      {
+         result[0] = new byte[jpegData.remaining()];
+         jpegData.get(result[0]);
+      });
+      return result[0];
+   }
+
+   private static long resolutionKey(BufferedImage image)
+   {
+      return ((long) image.getWidth() << 32) | image.getHeight();
+   }
+
+   private static class EncoderSlot
+   {
+      private final YUVPictureConverter converter = new YUVPictureConverter();
+      private final JPEGEncoder encoder = new JPEGEncoder();
+   }
+}
@@ -1,5 +1,7 @@
 package us.ihmc.communication.video;
 
+import java.nio.ByteBuffer;
+
 import boofcv.struct.calib.CameraPinholeBrown;
 import us.ihmc.communication.producers.VideoSource;
 import us.ihmc.euclid.tuple3D.interfaces.Point3DReadOnly;
@@ -9,4 +11,17 @@ public interface CompressedVideoCallback
 {
    public void onFrame(VideoSource videoSource, byte[] compressedImageData, long timestamp, Point3DReadOnly cameraPosition,
                        QuaternionReadOnly cameraOrientation, CameraPinholeBrown intrinsicParamaters);
+
+   /**
+    * Same as {@link #onFrame(VideoSource, byte[], long, Point3DReadOnly, QuaternionReadOnly, CameraPinholeBrown)}
+    * but the data is only valid during this call. Implementations can override it to copy the data
+    * directly to its destination, by default it is copied into a new array.
+    */
+   public default void onFrame(VideoSource videoSource, ByteBuffer compressedImageData, long timestamp, Point3DReadOnly cameraPosition,
+                               QuaternionReadOnly cameraOrientation, CameraPinholeBrown intrinsicParamaters)
+   {
+      byte[] data = new byte[compressedImageData.remaining()];
+      compressedImageData.get(data);
+      onFrame(videoSource, data, timestamp, cameraPosition, cameraOrientation, intrinsicParamaters);
+   }
 }
@@ -0,0 +1,156 @@
+package us.ihmc.communication.producers;
+
+import static us.ihmc.robotics.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+public class PooledJPEGCompressorTest
+{
+   @Test
+   public void testCompressedImageDecodes() throws IOException
+   {
+      PooledJPEGCompressor compressor = new PooledJPEGCompressor();
+      BufferedImage image = nextGradientImage(new Random(4524), 320, 240);
+
+      byte[] jpegData = compressor.compress(image, 90);
+      assertNotNull(jpegData);
+
+      BufferedImage decodedImage = ImageIO.read(new ByteArrayInputStream(jpegData));
+      assertNotNull(decodedImage);
+      assertEquals(image.getWidth(), decodedImage.getWidth());
+      assertEquals(image.getHeight(), decodedImage.getHeight());
+      assertTrue(averageChannelError(image, decodedImage) < 10.0);
+   }
+
+   @Test
+   public void testBufferedCompressionMatchesArrayCompression()
+   {
+      PooledJPEGCompressor compressor = new PooledJPEGCompressor();
+      Random random = new Random(3456);
+
+      for (int i = 0; i < 10; i++)
+      {
+         BufferedImage image = nextGradientImage(random, 160, 120);
+         byte[] expected = compressor.compress(image, 75);
+         byte[][] actual = new byte[1][];
+
+         assertTrue(compressor.compress(image, 75, jpegData ->
+         {
+            actual[0] = new byte[jpegData.remaining()];
+            jpegData.get(actual[0]);
+         }));
+         assertArrayEquals(expected, actual[0]);
+      }
+   }
+
+   @Test
+   public void testConcurrentCompression() throws Exception
+   {
+      Random random = new Random(9834);
+      int[][] resolutions = {{320, 240}, {320, 240}, {640, 480}, {160, 120}};
+      List<BufferedImage> images = new ArrayList<>();
+      List<byte[]> expectedData = new ArrayList<>();
+
+      PooledJPEGCompressor referenceCompressor = new PooledJPEGCompressor();
+
+      for (int[] resolution : resolutions)
+      {
+         BufferedImage image = nextGradientImage(random, resolution[0], resolution[1]);
+         images.add(image);
+         expectedData.add(referenceCompressor.compress(image, 75));
+      }
+
+      // Several streams sharing one compressor, as the video data servers do.
+      PooledJPEGCompressor compressor = new PooledJPEGCompressor();
+      int numberOfFrames = 50;
+      ExecutorService executor = Executors.newFixedThreadPool(images.size());
+      List<Future<Boolean>> futures = new ArrayList<>();
+
+      try
+      {
+         for (int streamIndex = 0; streamIndex < images.size(); streamIndex++)
+         {
+            BufferedImage image = images.get(streamIndex);
+            byte[] expected = expectedData.get(streamIndex);
+
+            futures.add(executor.submit(() ->
+            {
+               for (int frame = 0; frame < numberOfFrames; frame++)
+               {
+                  byte[][] actual = new byte[1][];
+                  boolean success = compressor.compress(image, 75, jpegData ->
+                  {
+                     actual[0] = new byte[jpegData.remaining()];
+                     jpegData.get(actual[0]);
+                  });
+
+                  if (!success || !Arrays.equals(expected, actual[0]))
+                     return false;
+               }
+               return true;
+            }));
+         }
+
+         for (Future<Boolean> future : futures)
+            assertTrue("A frame compressed concurrently differs from its sequential compression.", future.get(60, TimeUnit.SECONDS));
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+   private static BufferedImage nextGradientImage(Random random, int width, int height)
+   {
+      BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      int red = random.nextInt(256);
+      int green = random.nextInt(256);
+      int blue = random.nextInt(256);
+
+      for (int x = 0; x < width; x++)
+      {
+         for (int y = 0; y < height; y++)
+         {
+            int r = (red + x) & 0xFF;
+            int g = (green + y) & 0xFF;
+            int b = (blue + (x + y) / 2) & 0xFF;
+            image.setRGB(x, y, (r << 16) | (g << 8) | b);
+         }
+      }
+
+      return image;
+   }
+
+   private static double averageChannelError(BufferedImage expected, BufferedImage actual)
+   {
+      double error = 0.0;
+
+      for (int x = 0; x < expected.getWidth(); x++)
+      {
+         for (int y = 0; y < expected.getHeight(); y++)
+         {
+            int expectedRGB = expected.getRGB(x, y);
+            int actualRGB = actual.getRGB(x, y);
+
+            for (int shift = 0; shift <= 16; shift += 8)
+               error += Math.abs(((expectedRGB >> shift) & 0xFF) - ((actualRGB >> shift) & 0xFF));
+         }
+      }
+
+      return error / (3.0 * expected.getWidth() * expected.getHeight());
+   }
+}
@@ -13,6 +13,9 @@ public class BoundingBoxCollisionDetector
 {
    private PlanarRegionsList planarRegionsList;
    private final GilbertJohnsonKeerthiCollisionDetector collisionDetector = new GilbertJohnsonKeerthiCollisionDetector();
+   // built once per planar regions list, used to only run the exact collision check on the regions around the box
+   private final PlanarRegionsHeightGrid heightGrid = new PlanarRegionsHeightGrid();
+   private int[] candidateRegions = new int[0];
 
    private double boxDepth = Double.NaN;
    private double boxWidth = Double.NaN;
@@ -35,6 +38,9 @@ public class BoundingBoxCollisionDetector
    public void setPlanarRegionsList(PlanarRegionsList planarRegions)
    {
       this.planarRegionsList = planarRegions;
+      heightGrid.build(planarRegions);
+      if (candidateRegions.length < heightGrid.getNumberOfRegions())
+         candidateRegions = new int[heightGrid.getNumberOfRegions()];
    }
 
    public void setBoxDimensions(double boxDepth, double boxWidth, double boxHeight, double xyProximityCheck)
@@ -60,8 +66,12 @@ public class BoundingBoxCollisionDetector
       setBoundingBoxPosition();
       BodyCollisionData collisionData = new BodyCollisionData();
 
-      for(int i = 0; i < planarRegionsList.getNumberOfPlanarRegions(); i++)
+      setDimensionsToUpperBound();
+      int numberOfCandidateRegions = heightGrid.findCandidateRegions(boundingBox, candidateRegions);
+
+      for(int candidateIndex = 0; candidateIndex < numberOfCandidateRegions; candidateIndex++)
       {
+         int i = candidateRegions[candidateIndex];
          setDimensionsToUpperBound();
          PlanarRegion planarRegion = planarRegionsList.getPlanarRegion(i);
 
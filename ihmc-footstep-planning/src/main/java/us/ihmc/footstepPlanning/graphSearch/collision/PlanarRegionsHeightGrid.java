@@ -0,0 +1,229 @@
+package us.ihmc.footstepPlanning.graphSearch.collision;
+
+import java.util.Arrays;
+
+import us.ihmc.euclid.geometry.BoundingBox3D;
+import us.ihmc.euclid.geometry.interfaces.BoundingBox3DReadOnly;
+import us.ihmc.euclid.tuple3D.interfaces.Vector3DReadOnly;
+import us.ihmc.robotics.geometry.PlanarRegion;
+import us.ihmc.robotics.geometry.PlanarRegionsList;
+
+/**
+ * 2.5D grid built once from a planar regions list, storing for each xy-cell the regions passing
+ * over it along with the height range they span within the cell.
+ * <p>
+ * It is used to quickly find the few regions that may collide with a box: a region is a candidate
+ * only if, in one of the cells covered by the box, its height range overlaps the box. The height
+ * ranges are conservative, so a region that is not a candidate cannot collide with the box, and the
+ * candidates still need an exact collision check.
+ * </p>
+ */
+public class PlanarRegionsHeightGrid
+{
+   public static final double DEFAULT_CELL_SIZE = 0.1;
+   private static final int MAXIMUM_NUMBER_OF_CELLS = 1 << 22;
+   /** Below this, the normal of a region is considered horizontal and its whole height range is used in every cell. */
+   private static final double MINIMUM_NORMAL_Z = 1.0e-3;
+   private static final double HEIGHT_MARGIN = 1.0e-6;
+
+   private final double nominalCellSize;
+
+   private double cellSize;
+   private double xMin, yMin;
+   private int numberOfCellsX, numberOfCellsY;
+
+   /** The entries of the cell {@code i} are stored between {@code cellStartIndices[i]} and {@code cellStartIndices[i + 1]}. */
+   private int[] cellStartIndices = new int[1];
+   private int[] entryRegionIndices = new int[0];
+   private double[] entryMinHeights = new double[0];
+   private double[] entryMaxHeights = new double[0];
+
+   private int[] regionQueryStamps = new int[0];
+   private int queryStamp = 0;
+
+   public PlanarRegionsHeightGrid()
+   {
+      this(DEFAULT_CELL_SIZE);
+   }
+
+   public PlanarRegionsHeightGrid(double cellSize)
+   {
+      this.nominalCellSize = cellSize;
+   }
+
+   public void build(PlanarRegionsList planarRegionsList)
+   {
+      int numberOfRegions = planarRegionsList == null ? 0 : planarRegionsList.getNumberOfPlanarRegions();
+      regionQueryStamps = new int[numberOfRegions];
+      queryStamp = 0;
+
+      if (numberOfRegions == 0)
+      {
+         numberOfCellsX = 0;
+         numberOfCellsY = 0;
+         cellStartIndices = new int[1];
+         return;
+      }
+
+      double xMax = Double.NEGATIVE_INFINITY, yMax = Double.NEGATIVE_INFINITY;
+      xMin = Double.POSITIVE_INFINITY;
+      yMin = Double.POSITIVE_INFINITY;
+
+      for (int i = 0; i < numberOfRegions; i++)
+      {
+         BoundingBox3D boundingBox = planarRegionsList.getPlanarRegion(i).getBoundingBox3dInWorld();
+         xMin = Math.min(xMin, boundingBox.getMinX());
+         yMin = Math.min(yMin, boundingBox.getMinY());
+         xMax = Math.max(xMax, boundingBox.getMaxX());
+         yMax = Math.max(yMax, boundingBox.getMaxY());
+      }
+
+      // grow the cells on very large maps to bound the memory
+      cellSize = nominalCellSize;
+      double numberOfCells = Math.ceil((xMax - xMin) / cellSize + 1.0) * Math.ceil((yMax - yMin) / cellSize + 1.0);
+      if (numberOfCells > MAXIMUM_NUMBER_OF_CELLS)
+         cellSize *= Math.sqrt(numberOfCells / MAXIMUM_NUMBER_OF_CELLS);
+
+      numberOfCellsX = (int) ((xMax - xMin) / cellSize) + 1;
+      numberOfCellsY = (int) ((yMax - yMin) / cellSize) + 1;
+
+      // first pass counts the entries of each cell, second pass fills them in
+      cellStartIndices = new int[numberOfCellsX * numberOfCellsY + 1];
+
+      for (int i = 0; i < numberOfRegions; i++)
+      {
+         BoundingBox3D boundingBox = planarRegionsList.getPlanarRegion(i).getBoundingBox3dInWorld();
+         for (int xIndex = toIndexX(boundingBox.getMinX()); xIndex <= toIndexX(boundingBox.getMaxX()); xIndex++)
+         {
+            for (int yIndex = toIndexY(boundingBox.getMinY()); yIndex <= toIndexY(boundingBox.getMaxY()); yIndex++)
+               cellStartIndices[toCellIndex(xIndex, yIndex) + 1]++;
+         }
+      }
+
+      for (int i = 1; i < cellStartIndices.length; i++)
+         cellStartIndices[i] += cellStartIndices[i - 1];
+
+      int numberOfEntries = cellStartIndices[cellStartIndices.length - 1];
+      entryRegionIndices = new int[numberOfEntries];
+      entryMinHeights = new double[numberOfEntries];
+      entryMaxHeights = new double[numberOfEntries];
+      int[] cellFillIndices = Arrays.copyOf(cellStartIndices, cellStartIndices.length - 1);
+
+      for (int i = 0; i < numberOfRegions; i++)
+      {
+         PlanarRegion planarRegion = planarRegionsList.getPlanarRegion(i);
+         BoundingBox3D boundingBox = planarRegion.getBoundingBox3dInWorld();
+         Vector3DReadOnly normal = planarRegion.getNormal();
+         boolean isVertical = Math.abs(normal.getZ()) < MINIMUM_NORMAL_Z;
+
+         for (int xIndex = toIndexX(boundingBox.getMinX()); xIndex <= toIndexX(boundingBox.getMaxX()); xIndex++)
+         {
+            double cellMinX = Math.max(boundingBox.getMinX(), xMin + xIndex * cellSize);
+            double cellMaxX = Math.min(boundingBox.getMaxX(), xMin + (xIndex + 1) * cellSize);
+
+            for (int yIndex = toIndexY(boundingBox.getMinY()); yIndex <= toIndexY(boundingBox.getMaxY()); yIndex++)
+            {
+               double minHeight = boundingBox.getMinZ();
+               double maxHeight = boundingBox.getMaxZ();
+
+               if (!isVertical)
+               {
+                  // the plane height is linear in x and y, its extrema over the cell are at the corners
+                  double cellMinY = Math.max(boundingBox.getMinY(), yMin + yIndex * cellSize);
+                  double cellMaxY = Math.min(boundingBox.getMaxY(), yMin + (yIndex + 1) * cellSize);
+                  double z00 = planarRegion.getPlaneZGivenXY(cellMinX, cellMinY);
+                  double z01 = planarRegion.getPlaneZGivenXY(cellMinX, cellMaxY);
+                  double z10 = planarRegion.getPlaneZGivenXY(cellMaxX, cellMinY);
+                  double z11 = planarRegion.getPlaneZGivenXY(cellMaxX, cellMaxY);
+                  minHeight = Math.max(minHeight, Math.min(Math.min(z00, z01), Math.min(z10, z11)));
+                  maxHeight = Math.min(maxHeight, Math.max(Math.max(z00, z01), Math.max(z10, z11)));
+               }
+
+               int entryIndex = cellFillIndices[toCellIndex(xIndex, yIndex)]++;
+               entryRegionIndices[entryIndex] = i;
+               entryMinHeights[entryIndex] = minHeight - HEIGHT_MARGIN;
+               entryMaxHeights[entryIndex] = maxHeight + HEIGHT_MARGIN;
+            }
+         }
+      }
+   }
+
+   /**
+    * Finds the regions that may collide with the given box.
+    *
+    * @param boundingBox            the bounding box of the shape to check.
+    * @param candidateRegionsToPack the indices of the candidate regions, sorted in increasing order.
+    *                               Needs to be at least as long as the number of regions. Modified.
+    * @return the number of candidate regions.
+    */
+   public int findCandidateRegions(BoundingBox3DReadOnly boundingBox, int[] candidateRegionsToPack)
+   {
+      if (numberOfCellsX == 0)
+         return 0;
+      if (boundingBox.getMaxX() < xMin || boundingBox.getMinX() > xMin + numberOfCellsX * cellSize)
+         return 0;
+      if (boundingBox.getMaxY() < yMin || boundingBox.getMinY() > yMin + numberOfCellsY * cellSize)
+         return 0;
+
+      int minIndexX = toIndexX(boundingBox.getMinX());
+      int maxIndexX = toIndexX(boundingBox.getMaxX());
+      int minIndexY = toIndexY(boundingBox.getMinY());
+      int maxIndexY = toIndexY(boundingBox.getMaxY());
+
+      if (++queryStamp == 0)
+      {
+         Arrays.fill(regionQueryStamps, 0);
+         queryStamp = 1;
+      }
+      int numberOfCandidates = 0;
+
+      for (int xIndex = minIndexX; xIndex <= maxIndexX; xIndex++)
+      {
+         for (int yIndex = minIndexY; yIndex <= maxIndexY; yIndex++)
+         {
+            int cellIndex = toCellIndex(xIndex, yIndex);
+
+            for (int entryIndex = cellStartIndices[cellIndex]; entryIndex < cellStartIndices[cellIndex + 1]; entryIndex++)
+            {
+               if (entryMinHeights[entryIndex] > boundingBox.getMaxZ() || entryMaxHeights[entryIndex] < boundingBox.getMinZ())
+                  continue;
+
+               int regionIndex = entryRegionIndices[entryIndex];
+               if (regionQueryStamps[regionIndex] != queryStamp)
+               {
+                  regionQueryStamps[regionIndex] = queryStamp;
+                  candidateRegionsToPack[numberOfCandidates++] = regionIndex;
+               }
+            }
+         }
+      }
+
+      Arrays.sort(candidateRegionsToPack, 0, numberOfCandidates);
+      return numberOfCandidates;
+   }
+
+   public int getNumberOfRegions()
+   {
+      return regionQueryStamps.length;
+   }
+
+   public double getCellSize()
+   {
+      return cellSize;
+   }
+
+   private int toIndexX(double x)
+   {
+      return Math.min(Math.max((int) Math.floor((x - xMin) / cellSize), 0), numberOfCellsX - 1);
+   }
+
+   private int toIndexY(double y)
+   {
+      return Math.min(Math.max((int) Math.floor((y - yMin) / cellSize), 0), numberOfCellsY - 1);
+   }
+
+   private int toCellIndex(int xIndex, int yIndex)
+   {
+      return xIndex * numberOfCellsY + yIndex;
+   }
+}
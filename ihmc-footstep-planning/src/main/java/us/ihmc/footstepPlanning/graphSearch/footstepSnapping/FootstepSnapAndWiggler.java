@@ -27,6 +27,7 @@ public class FootstepSnapAndWiggler implements FootstepSnapperReadOnly
 
    private final GradientDescentStepConstraintSolver gradientDescentStepConstraintSolver = new GradientDescentStepConstraintSolver();
    private final WiggleParameters wiggleParameters = new WiggleParameters();
+   private final PolygonWiggleSolver polygonWiggleSolver = new PolygonWiggleSolver();
    private final PlanarRegion planarRegionToPack = new PlanarRegion();
    private final ConvexPolygon2D footPolygon = new ConvexPolygon2D();
    private final Cylinder3D legCollisionShape = new Cylinder3D();
@@ -270,7 +271,7 @@ public class FootstepSnapAndWiggler implements FootstepSnapperReadOnly
    /** Extracted to method for testing purposes */
    protected RigidBodyTransform wiggleIntoConvexHull(ConvexPolygon2D footPolygonInRegionFrame)
    {
-      return PolygonWiggler.wigglePolygonIntoConvexHullOfRegion(footPolygonInRegionFrame, planarRegionToPack, wiggleParameters);
+      return polygonWiggleSolver.wigglePolygonIntoConvexHullOfRegion(footPolygonInRegionFrame, planarRegionToPack, wiggleParameters);
    }
 
    private final RigidBodyTransform transform1 = new RigidBodyTransform();
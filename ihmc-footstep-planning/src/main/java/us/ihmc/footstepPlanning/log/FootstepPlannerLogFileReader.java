@@ -0,0 +1,433 @@
+package us.ihmc.footstepPlanning.log;
+
+import us.ihmc.euclid.geometry.ConvexPolygon2D;
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.euclid.tuple2D.Point2D;
+import us.ihmc.euclid.tuple3D.Vector3D;
+import us.ihmc.euclid.tuple4D.Quaternion;
+import us.ihmc.footstepPlanning.graphSearch.footstepSnapping.FootstepSnapData;
+import us.ihmc.footstepPlanning.graphSearch.graph.DiscreteFootstep;
+import us.ihmc.footstepPlanning.graphSearch.graph.FootstepGraphNode;
+import us.ihmc.log.LogTools;
+import us.ihmc.pathPlanning.graph.structure.GraphEdge;
+import us.ihmc.pathPlanning.visibilityGraphs.clusterManagement.Cluster;
+import us.ihmc.pathPlanning.visibilityGraphs.clusterManagement.Cluster.ClusterType;
+import us.ihmc.pathPlanning.visibilityGraphs.clusterManagement.Cluster.ExtrusionSide;
+import us.ihmc.pathPlanning.visibilityGraphs.clusterManagement.ExtrusionHull;
+import us.ihmc.pathPlanning.visibilityGraphs.dataStructure.*;
+import us.ihmc.robotics.geometry.PlanarRegion;
+import us.ihmc.robotics.robotSide.RobotSide;
+import us.ihmc.robotics.robotSide.SideDependentList;
+import us.ihmc.yoVariables.variable.YoVariableType;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static us.ihmc.footstepPlanning.log.FootstepPlannerLogger.*;
+
+/**
+ * Reads the session file written by {@link FootstepPlannerLogger}.
+ *
+ * <p> The file starts with a magic number and the format version, followed by sections each holding a part of the log. A section
+ * starts with its type, whether it is compressed, its size once uncompressed and its size in the file. The packets are stored as json,
+ * the rest of the data is binary. The iterations of the planner are stored in chunks, each starting with the offset of each iteration
+ * in the chunk. The file ends with the index of the sections, the position of that index and the magic number again.
+ *
+ * <p> The index is read when opening the file, any iteration can then be read by only decompressing the chunk holding it.
+ */
+public class FootstepPlannerLogFileReader implements Closeable
+{
+   private final RandomAccessFile file;
+   private final Inflater inflater = new Inflater();
+
+   private final Map<Byte, Long> sectionPositions = new HashMap<>();
+   private final int[] chunkFirstIterations;
+   private final long[] chunkPositions;
+   private final int numberOfIterations;
+
+   private int cachedChunkIndex = -1;
+   private byte[] cachedChunkData = null;
+
+   public FootstepPlannerLogFileReader(File sessionFile) throws IOException
+   {
+      file = new RandomAccessFile(sessionFile, "r");
+
+      try
+      {
+         if (file.readInt() != SESSION_FILE_MAGIC)
+            throw new IOException("Not a footstep planner session file: " + sessionFile);
+         int version = file.readInt();
+         if (version > SESSION_FILE_VERSION)
+            throw new IOException("Unsupported footstep planner session file version " + version + ": " + sessionFile);
+
+         // a missing magic number at the end means the log was not fully written
+         file.seek(file.length() - 12);
+         long indexPosition = file.readLong();
+         if (file.readInt() != SESSION_FILE_MAGIC)
+            throw new IOException("Truncated footstep planner session file: " + sessionFile);
+
+         file.seek(indexPosition);
+         int numberOfSections = file.readInt();
+         List<long[]> chunks = new ArrayList<>();
+         int numberOfIterations = 0;
+
+         for (int i = 0; i < numberOfSections; i++)
+         {
+            byte type = file.readByte();
+            long position = file.readLong();
+            int firstIteration = file.readInt();
+            int numberOfIterationsInChunk = file.readInt();
+
+            if (type == ITERATION_CHUNK_SECTION)
+            {
+               chunks.add(new long[] {firstIteration, position});
+               numberOfIterations = Math.max(numberOfIterations, firstIteration + numberOfIterationsInChunk);
+            }
+            else
+            {
+               sectionPositions.put(type, position);
+            }
+         }
+
+         this.numberOfIterations = numberOfIterations;
+         chunkFirstIterations = new int[chunks.size()];
+         chunkPositions = new long[chunks.size()];
+         for (int i = 0; i < chunks.size(); i++)
+         {
+            chunkFirstIterations[i] = (int) chunks.get(i)[0];
+            chunkPositions[i] = chunks.get(i)[1];
+         }
+      }
+      catch (IOException e)
+      {
+         close();
+         throw e;
+      }
+   }
+
+   public int getNumberOfIterations()
+   {
+      return numberOfIterations;
+   }
+
+   public boolean hasSection(byte type)
+   {
+      return sectionPositions.containsKey(type);
+   }
+
+   /**
+    * @return the uncompressed content of the given section
+    */
+   public byte[] readSection(byte type) throws IOException
+   {
+      Long position = sectionPositions.get(type);
+      if (position == null)
+         throw new IOException("Missing section " + type + " in footstep planner session file");
+      return readSectionAt(position);
+   }
+
+   public void readBodyPathPlan(VisibilityGraphHolder visibilityGraphHolderToPack, List<PlanarRegion> planarRegionsList) throws IOException
+   {
+      DataInputStream input = toInput(readSection(BODY_PATH_PLAN_SECTION));
+
+      visibilityGraphHolderToPack.setStartMapId(input.readInt());
+      visibilityGraphHolderToPack.setGoalMapId(input.readInt());
+      visibilityGraphHolderToPack.setInterRegionsMapId(input.readInt());
+      readVisibilityMap(input, visibilityGraphHolderToPack.getStartVisibilityMap());
+      readVisibilityMap(input, visibilityGraphHolderToPack.getGoalVisibilityMap());
+      readVisibilityMap(input, visibilityGraphHolderToPack.getInterRegionsVisibilityMap());
+
+      int numberOfNavigableRegions = input.readInt();
+      for (int i = 0; i < numberOfNavigableRegions; i++)
+      {
+         VisibilityMapWithNavigableRegion navigableRegion = readNavigableRegion(input, planarRegionsList);
+         if (navigableRegion == null)
+         {
+            LogTools.error("Couldn't find corresponding planar region in visibility graph log");
+            break;
+         }
+         visibilityGraphHolderToPack.addNavigableRegion(navigableRegion);
+      }
+   }
+
+   public void readHeader(List<VariableDescriptor> variableDescriptorsToPack, SideDependentList<ConvexPolygon2D> footPolygonsToPack) throws IOException
+   {
+      DataInputStream input = toInput(readSection(HEADER_SECTION));
+
+      int numberOfEnums = input.readInt();
+      List<String[]> enumValues = new ArrayList<>();
+      for (int i = 0; i < numberOfEnums; i++)
+      {
+         String[] values = new String[input.readInt()];
+         for (int j = 0; j < values.length; j++)
+         {
+            values[j] = input.readUTF();
+         }
+         enumValues.add(values);
+      }
+
+      int numberOfVariables = input.readInt();
+      for (int i = 0; i < numberOfVariables; i++)
+      {
+         String name = input.readUTF();
+         YoVariableType type = YoVariableType.valueOf(input.readUTF());
+         String registryName = input.readUTF();
+
+         if (type == YoVariableType.ENUM)
+            variableDescriptorsToPack.add(new VariableDescriptor(name, type, registryName, enumValues.get(input.readInt())));
+         else
+            variableDescriptorsToPack.add(new VariableDescriptor(name, type, registryName));
+      }
+
+      for (RobotSide robotSide : RobotSide.values)
+      {
+         footPolygonsToPack.put(robotSide, readPolygon(input));
+      }
+   }
+
+   /**
+    * Reads a single iteration, only decompressing the chunk it belongs to. Reading the iterations in order is the quickest.
+    *
+    * @param iterationIndex the index of the iteration in the planning session
+    * @param edgeDataMapToPack the data of the edges expanded at this iteration are added to this map, can be {@code null}. Modified.
+    */
+   public FootstepPlannerIterationData readIteration(int iterationIndex, Map<GraphEdge<FootstepGraphNode>, FootstepPlannerEdgeData> edgeDataMapToPack)
+         throws IOException
+   {
+      if (iterationIndex < 0 || iterationIndex >= numberOfIterations)
+         throw new IndexOutOfBoundsException("Iteration " + iterationIndex + " out of " + numberOfIterations);
+
+      int chunkIndex = Arrays.binarySearch(chunkFirstIterations, iterationIndex);
+      if (chunkIndex < 0)
+         chunkIndex = -chunkIndex - 2;
+
+      if (chunkIndex != cachedChunkIndex)
+      {
+         cachedChunkData = readSectionAt(chunkPositions[chunkIndex]);
+         cachedChunkIndex = chunkIndex;
+      }
+
+      DataInputStream input = toInput(cachedChunkData);
+      int indexInChunk = iterationIndex - chunkFirstIterations[chunkIndex];
+      input.skipBytes(4 * indexInChunk);
+      int iterationOffset = input.readInt();
+
+      int numberOfIterationsInChunk = numberOfIterationsInChunk(chunkIndex);
+      input = toInput(cachedChunkData);
+      input.skipBytes(4 * numberOfIterationsInChunk + iterationOffset);
+      return readIteration(input, edgeDataMapToPack);
+   }
+
+   private int numberOfIterationsInChunk(int chunkIndex)
+   {
+      int nextFirstIteration = chunkIndex == chunkFirstIterations.length - 1 ? numberOfIterations : chunkFirstIterations[chunkIndex + 1];
+      return nextFirstIteration - chunkFirstIterations[chunkIndex];
+   }
+
+   private static FootstepPlannerIterationData readIteration(DataInputStream input,
+                                                             Map<GraphEdge<FootstepGraphNode>, FootstepPlannerEdgeData> edgeDataMapToPack)
+         throws IOException
+   {
+      FootstepPlannerIterationData iterationData = new FootstepPlannerIterationData();
+      iterationData.setParentNode(readNode(input));
+      iterationData.setIdealChildNode(readNode(input));
+      int edges = input.readInt();
+      readSnapData(input, iterationData.getParentStartSnapData());
+      readSnapData(input, iterationData.getParentEndSnapData());
+
+      for (int i = 0; i < edges; i++)
+      {
+         FootstepGraphNode childNode = readNode(input);
+         boolean solutionEdge = input.readBoolean();
+         FootstepSnapData endStepSnapData = FootstepSnapData.identityData();
+         readSnapData(input, endStepSnapData);
+
+         FootstepPlannerEdgeData edgeData = new FootstepPlannerEdgeData(input.readInt());
+         edgeData.setParentNode(iterationData.getParentNode());
+         edgeData.setChildNode(childNode);
+         edgeData.setSolutionEdge(solutionEdge);
+         edgeData.setEndStepSnapData(endStepSnapData);
+         for (int j = 0; j < edgeData.getDataBuffer().length; j++)
+         {
+            edgeData.setData(j, input.readLong());
+         }
+
+         iterationData.getChildNodes().add(childNode);
+         if (edgeDataMapToPack != null)
+            edgeDataMapToPack.put(new GraphEdge<>(iterationData.getParentNode(), childNode), edgeData);
+      }
+
+      return iterationData;
+   }
+
+   private byte[] readSectionAt(long position) throws IOException
+   {
+      file.seek(position);
+      file.readByte();
+      boolean compressed = (file.readByte() & SECTION_COMPRESSED) != 0;
+      int uncompressedLength = file.readInt();
+      byte[] storedData = new byte[file.readInt()];
+      file.readFully(storedData);
+
+      if (!compressed)
+         return storedData;
+
+      byte[] data = new byte[uncompressedLength];
+      inflater.reset();
+      inflater.setInput(storedData);
+
+      try
+      {
+         int length = 0;
+         while (length < uncompressedLength && !inflater.finished())
+         {
+            int inflated = inflater.inflate(data, length, uncompressedLength - length);
+            if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+               break;
+            length += inflated;
+         }
+
+         if (length != uncompressedLength)
+            throw new IOException("Corrupted section in footstep planner session file");
+      }
+      catch (DataFormatException e)
+      {
+         throw new IOException(e);
+      }
+
+      return data;
+   }
+
+   private static DataInputStream toInput(byte[] data)
+   {
+      return new DataInputStream(new ByteArrayInputStream(data));
+   }
+
+   private static FootstepGraphNode readNode(DataInputStream input) throws IOException
+   {
+      if (!input.readBoolean())
+         return null;
+
+      DiscreteFootstep firstStep = readStep(input);
+      DiscreteFootstep secondStep = readStep(input);
+      return new FootstepGraphNode(firstStep, secondStep);
+   }
+
+   private static DiscreteFootstep readStep(DataInputStream input) throws IOException
+   {
+      int xIndex = input.readInt();
+      int yIndex = input.readInt();
+      int yawIndex = input.readInt();
+      return new DiscreteFootstep(xIndex, yIndex, yawIndex, RobotSide.values[input.readByte()]);
+   }
+
+   private static void readSnapData(DataInputStream input, FootstepSnapData footstepSnapDataToPack) throws IOException
+   {
+      footstepSnapDataToPack.getSnapTransform().set(readTransform(input));
+      footstepSnapDataToPack.getWiggleTransformInWorld().set(readTransform(input));
+      footstepSnapDataToPack.getCroppedFoothold().set(readPolygon(input));
+      footstepSnapDataToPack.setRegionIndex(input.readInt());
+      footstepSnapDataToPack.setAchievedInsideDelta(input.readDouble());
+   }
+
+   private static RigidBodyTransform readTransform(DataInputStream input) throws IOException
+   {
+      Quaternion orientation = new Quaternion(input.readDouble(), input.readDouble(), input.readDouble(), input.readDouble());
+      Vector3D translation = new Vector3D(input.readDouble(), input.readDouble(), input.readDouble());
+      return new RigidBodyTransform(orientation, translation);
+   }
+
+   private static ConvexPolygon2D readPolygon(DataInputStream input) throws IOException
+   {
+      ConvexPolygon2D polygon = new ConvexPolygon2D();
+      int numberOfVertices = input.readInt();
+      for (int i = 0; i < numberOfVertices; i++)
+      {
+         polygon.addVertex(input.readDouble(), input.readDouble());
+      }
+      polygon.update();
+      return polygon;
+   }
+
+   private static Point2D readPoint2D(DataInputStream input) throws IOException
+   {
+      return new Point2D(input.readDouble(), input.readDouble());
+   }
+
+   private static ConnectionPoint3D readConnectionPoint(DataInputStream input) throws IOException
+   {
+      return new ConnectionPoint3D(input.readDouble(), input.readDouble(), input.readDouble(), 0);
+   }
+
+   private static void readVisibilityMap(DataInputStream input, VisibilityMap visibilityMap) throws IOException
+   {
+      int numberOfConnections = input.readInt();
+      for (int i = 0; i < numberOfConnections; i++)
+      {
+         ConnectionPoint3D sourcePoint = readConnectionPoint(input);
+         ConnectionPoint3D targetPoint = readConnectionPoint(input);
+         visibilityMap.addConnection(new Connection(sourcePoint, targetPoint));
+      }
+
+      int numberOfVertices = input.readInt();
+      for (int i = 0; i < numberOfVertices; i++)
+      {
+         visibilityMap.getVertices().add(readConnectionPoint(input));
+      }
+   }
+
+   private static ExtrusionHull readExtrusionHull(DataInputStream input, ExtrusionHull extrusionHullToPack) throws IOException
+   {
+      int numberOfPoints = input.readInt();
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         extrusionHullToPack.addPoint(readPoint2D(input));
+      }
+      return extrusionHullToPack;
+   }
+
+   private static VisibilityMapWithNavigableRegion readNavigableRegion(DataInputStream input, List<PlanarRegion> planarRegionsList) throws IOException
+   {
+      int mapId = input.readInt();
+      ClusterType clusterType = ClusterType.fromByte(input.readByte());
+      ExtrusionSide extrusionSide = ExtrusionSide.fromByte(input.readByte());
+      Optional<PlanarRegion> region = planarRegionsList.stream().filter(r -> r.getRegionId() == mapId).findFirst();
+
+      Cluster homeRegionCluster = new Cluster(extrusionSide, clusterType);
+      readExtrusionHull(input, homeRegionCluster.getNavigableExtrusionsInLocal());
+      readExtrusionHull(input, homeRegionCluster.getNonNavigableExtrusionsInLocal());
+
+      int numberOfPreferredNavigableExtrusions = input.readInt();
+      for (int i = 0; i < numberOfPreferredNavigableExtrusions; i++)
+      {
+         homeRegionCluster.getPreferredNavigableExtrusionsInLocal().add(readExtrusionHull(input, new ExtrusionHull()));
+      }
+
+      int numberOfPreferredNonNavigableExtrusions = input.readInt();
+      for (int i = 0; i < numberOfPreferredNonNavigableExtrusions; i++)
+      {
+         homeRegionCluster.getPreferredNonNavigableExtrusionsInLocal().add(readExtrusionHull(input, new ExtrusionHull()));
+      }
+
+      VisibilityMap visibilityMapInLocal = new VisibilityMap();
+      readVisibilityMap(input, visibilityMapInLocal);
+
+      if (!region.isPresent())
+         return null;
+
+      VisibilityMapWithNavigableRegion visibilityMapWithNavigableRegion = new VisibilityMapWithNavigableRegion(new NavigableRegion(region.get(),
+                                                                                                                                   homeRegionCluster,
+                                                                                                                                   new ArrayList<>()));
+      visibilityMapWithNavigableRegion.setVisibilityMapInLocal(visibilityMapInLocal);
+      return visibilityMapWithNavigableRegion;
+   }
+
+   @Override
+   public void close() throws IOException
+   {
+      inflater.end();
+      file.close();
+   }
+}
@@ -148,6 +148,13 @@ public class FootstepPlannerLogLoader
          return LoadResult.ERROR;
       }
 
+      File sessionFile = new File(logDirectory, FootstepPlannerLogger.sessionFileName);
+      if (sessionFile.exists())
+      {
+         return loadSessionFile(logDirectory.getName(), sessionFile);
+      }
+
+      // logs written before the session file
       try
       {
          log = new FootstepPlannerLog(logDirectory.getName());
@@ -302,6 +309,48 @@ public class FootstepPlannerLogLoader
       }
    }
 
+   private LoadResult loadSessionFile(String logName, File sessionFile)
+   {
+      try (FootstepPlannerLogFileReader reader = new FootstepPlannerLogFileReader(sessionFile))
+      {
+         log = new FootstepPlannerLog(logName);
+
+         log.getRequestPacket().set(requestPacketSerializer.deserialize(readJSONSection(reader, FootstepPlannerLogger.REQUEST_PACKET_SECTION)));
+         log.getBodyPathParametersPacket()
+            .set(bodyPathParametersSerializer.deserialize(readJSONSection(reader, FootstepPlannerLogger.BODY_PATH_PARAMETERS_SECTION)));
+         log.getFootstepParametersPacket()
+            .set(footstepParametersSerializer.deserialize(readJSONSection(reader, FootstepPlannerLogger.FOOTSTEP_PARAMETERS_SECTION)));
+         if (reader.hasSection(FootstepPlannerLogger.SWING_PARAMETERS_SECTION))
+         {
+            log.getSwingPlannerParametersPacket()
+               .set(swingParametersSerializer.deserialize(readJSONSection(reader, FootstepPlannerLogger.SWING_PARAMETERS_SECTION)));
+         }
+         log.getStatusPacket().set(statusPacketSerializer.deserialize(readJSONSection(reader, FootstepPlannerLogger.STATUS_PACKET_SECTION)));
+
+         List<PlanarRegion> planarRegionsList = PlanarRegionMessageConverter.convertToPlanarRegionsList(log.getRequestPacket().getPlanarRegionsListMessage()).getPlanarRegionsAsList();
+         reader.readBodyPathPlan(log.getVisibilityGraphHolder(), planarRegionsList);
+         reader.readHeader(log.getVariableDescriptors(), log.getFootPolygons());
+
+         for (int i = 0; i < reader.getNumberOfIterations(); i++)
+         {
+            log.getIterationData().add(reader.readIteration(i, log.getEdgeDataMap()));
+         }
+
+         return LoadResult.LOADED;
+      }
+      catch (Exception e)
+      {
+         LogTools.error("Exception while loading log");
+         e.printStackTrace();
+         return LoadResult.ERROR;
+      }
+   }
+
+   private String readJSONSection(FootstepPlannerLogFileReader reader, byte sectionType) throws IOException
+   {
+      return objectMapper.readTree(reader.readSection(sectionType)).toString();
+   }
+
    public FootstepPlannerLog getLog()
    {
       return log;
@@ -1,19 +1,16 @@
 package us.ihmc.footstepPlanning.log;
 
 import controller_msgs.msg.dds.*;
-import org.apache.commons.lang3.tuple.Pair;
 import us.ihmc.commons.ContinuousIntegrationTools;
 import us.ihmc.commons.nio.BasicPathVisitor;
 import us.ihmc.commons.nio.FileTools;
 import us.ihmc.commons.nio.PathTools;
+import us.ihmc.commons.thread.ThreadTools;
 import us.ihmc.euclid.geometry.ConvexPolygon2D;
-import us.ihmc.euclid.tools.EuclidCoreIOTools;
 import us.ihmc.euclid.transform.RigidBodyTransform;
-import us.ihmc.euclid.tuple2D.interfaces.Point2DReadOnly;
 import us.ihmc.euclid.tuple2D.interfaces.Tuple2DReadOnly;
 import us.ihmc.euclid.tuple3D.interfaces.Tuple3DReadOnly;
 import us.ihmc.euclid.tuple4D.Quaternion;
-import us.ihmc.euclid.tuple4D.interfaces.QuaternionReadOnly;
 import us.ihmc.footstepPlanning.FootstepPlanningModule;
 import us.ihmc.footstepPlanning.communication.FootstepPlannerMessagerAPI;
 import us.ihmc.footstepPlanning.graphSearch.footstepSnapping.FootstepSnapData;
@@ -28,6 +25,8 @@ import us.ihmc.pathPlanning.visibilityGraphs.clusterManagement.ExtrusionHull;
 import us.ihmc.pathPlanning.visibilityGraphs.dataStructure.*;
 import us.ihmc.robotics.robotSide.RobotSide;
 import us.ihmc.robotics.robotSide.SideDependentList;
+import us.ihmc.tools.thread.ExecutorServiceTools;
+import us.ihmc.tools.thread.ExecutorServiceTools.ExceptionHandling;
 import us.ihmc.yoVariables.registry.YoRegistry;
 import us.ihmc.yoVariables.variable.YoEnum;
 import us.ihmc.yoVariables.variable.YoVariable;
@@ -39,7 +38,11 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
 
 public class FootstepPlannerLogger
 {
@@ -62,7 +65,24 @@ public class FootstepPlannerLogger
    }
    /** package-private */ static final String FOOTSTEP_PLANNER_LOG_POSTFIX = "_FootstepPlannerLog";
 
-   // File names
+   // Session file, see FootstepPlannerLogFileReader for the format
+   static final String sessionFileName = "PlannerSession.bin";
+   static final int SESSION_FILE_MAGIC = 0x46504C47;
+   static final int SESSION_FILE_VERSION = 1;
+   static final int SECTION_HEADER_SIZE = 10;
+   static final byte SECTION_COMPRESSED = 1;
+   static final int ITERATIONS_PER_CHUNK = 64;
+
+   static final byte REQUEST_PACKET_SECTION = 0;
+   static final byte BODY_PATH_PARAMETERS_SECTION = 1;
+   static final byte FOOTSTEP_PARAMETERS_SECTION = 2;
+   static final byte SWING_PARAMETERS_SECTION = 3;
+   static final byte STATUS_PACKET_SECTION = 4;
+   static final byte BODY_PATH_PLAN_SECTION = 5;
+   static final byte HEADER_SECTION = 6;
+   static final byte ITERATION_CHUNK_SECTION = 7;
+
+   // File names of the text logs written before the session file, still supported by the loader
    static final String requestPacketFileName = "RequestPacket.json";
    static final String bodyPathParametersFileName = "BodyPathParametersPacket.json";
    static final String footstepParametersFileName = "FootstepParametersPacket.json";
@@ -75,16 +95,9 @@ public class FootstepPlannerLogger
 
    private final FootstepPlanningModule planner;
    private final AtomicBoolean generatingLog = new AtomicBoolean();
-   private String latestLogDirectory;
-   private FileOutputStream outputStream = null;
-   private PrintStream printStream = null;
-   private FileWriter fileWriter = null;
-
-   private final FootstepPlanningRequestPacket requestPacket = new FootstepPlanningRequestPacket();
-   private final FootstepPlannerParametersPacket footstepParametersPacket = new FootstepPlannerParametersPacket();
-   private final VisibilityGraphsParametersPacket bodyPathParametersPacket = new VisibilityGraphsParametersPacket();
-   private final SwingPlannerParametersPacket swingPlannerParametersPacket = new SwingPlannerParametersPacket();
-   private final FootstepPlanningToolboxOutputStatus outputStatus = new FootstepPlanningToolboxOutputStatus();
+   private volatile String latestLogDirectory;
+   private boolean compressionEnabled = true;
+   private ExecutorService logWritingExecutor = null;
 
    private final JSONSerializer<FootstepPlanningRequestPacket> requestPacketSerializer = new JSONSerializer<>(new FootstepPlanningRequestPacketPubSubType());
    private final JSONSerializer<VisibilityGraphsParametersPacket> bodyPathParametersPacketSerializer = new JSONSerializer<>(new VisibilityGraphsParametersPacketPubSubType());
@@ -144,419 +157,466 @@ public class FootstepPlannerLogger
     * Generates log in the given directory. For example calling with the input "/home/user/.ihmc/logs/" will create (if empty)
     * and populate that directy with log files.
     *
-    * <p> Contents of the log file include: json of footstep parameters packet, json of visibility parameters packet, json of request packet,
-    * json of terminal output packet, log file containing graph structure and data
+    * <p> The log is a single binary session file, see {@link FootstepPlannerLogFileReader}, holding the footstep parameters packet,
+    * visibility parameters packet, request packet and terminal output packet, along with the body path plan and the graph structure and data.
     *
     * @return if the logger succeeded
     */
    public boolean logSession(String logDirectory)
+   {
+      Session session = captureSession(logDirectory);
+      return session != null && writeSession(session);
+   }
+
+   /**
+    * Same as {@link #logSession(String)}, except the log is written on a separate thread. Only the data that the next plan would
+    * overwrite is copied on the calling thread, so the planner can be used again as soon as this method returns.
+    *
+    * @return the result of the logger, completed once the log is written
+    */
+   public Future<Boolean> logSessionAsync(String logDirectory)
+   {
+      Session session = captureSession(logDirectory);
+      if (session == null)
+         return CompletableFuture.completedFuture(false);
+
+      if (logWritingExecutor == null)
+         logWritingExecutor = ExecutorServiceTools.newSingleThreadScheduledExecutor(ThreadTools.createNamedDaemonThreadFactory(getClass().getSimpleName()),
+                                                                                    ExceptionHandling.CATCH_AND_REPORT);
+      return logWritingExecutor.submit(() -> writeSession(session));
+   }
+
+   /**
+    * Sets whether the sections of the session file are compressed, enabled by default.
+    */
+   public void setCompressionEnabled(boolean compressionEnabled)
+   {
+      this.compressionEnabled = compressionEnabled;
+   }
+
+   private Session captureSession(String logDirectory)
    {
       if (!logDirectory.endsWith(File.separator))
       {
          logDirectory += File.separator;
       }
 
-      String sessionDirectory = logDirectory + dateFormat.format(new Date()) + FOOTSTEP_PLANNER_LOG_POSTFIX + File.separator;
-      latestLogDirectory = sessionDirectory;
+      Session session = new Session();
+      session.directory = logDirectory + dateFormat.format(new Date()) + FOOTSTEP_PLANNER_LOG_POSTFIX + File.separator;
+      latestLogDirectory = session.directory;
 
       try
       {
-         // log request packet
-         String requestPacketFile = sessionDirectory + requestPacketFileName;
-         planner.getRequest().setPacket(requestPacket);
-         byte[] serializedRequest = requestPacketSerializer.serializeToBytes(requestPacket);
-         writeToFile(requestPacketFile, serializedRequest);
-
-         // log body path parameters packet
-         String bodyPathParametersPacketFile = sessionDirectory + bodyPathParametersFileName;
-         FootstepPlannerMessageTools.copyParametersToPacket(bodyPathParametersPacket, planner.getVisibilityGraphParameters());
-         byte[] serializedBodyPathParameters = bodyPathParametersPacketSerializer.serializeToBytes(bodyPathParametersPacket);
-         writeToFile(bodyPathParametersPacketFile, serializedBodyPathParameters);
-
-         // log footstep planner parameters packet
-         String footstepParametersPacketFile = sessionDirectory + footstepParametersFileName;
-         FootstepPlannerMessageTools.copyParametersToPacket(footstepParametersPacket, planner.getFootstepPlannerParameters());
-         byte[] serializedFootstepParameters = footstepParametersPacketSerializer.serializeToBytes(footstepParametersPacket);
-         writeToFile(footstepParametersPacketFile, serializedFootstepParameters);
-
-         // log swing parameters packet
-         String swingParametersPacketFile = sessionDirectory + swingParametersFileName;
-         swingPlannerParametersPacket.set(planner.getSwingPlannerParameters().getAsPacket());
-         byte[] serializedSwingParameters = swingPlannerParametersPacketSerializer.serializeToBytes(swingPlannerParametersPacket);
-         writeToFile(swingParametersPacketFile, serializedSwingParameters);
-
-         // log status packet
-         String statusPacketFile = sessionDirectory + statusPacketFileName;
-         planner.getOutput().setPacket(outputStatus);
-         byte[] serializedStatus = statusPacketSerializer.serializeToBytes(outputStatus);
-         writeToFile(statusPacketFile, serializedStatus);
+         planner.getRequest().setPacket(session.requestPacket);
+         FootstepPlannerMessageTools.copyParametersToPacket(session.bodyPathParametersPacket, planner.getVisibilityGraphParameters());
+         FootstepPlannerMessageTools.copyParametersToPacket(session.footstepParametersPacket, planner.getFootstepPlannerParameters());
+         session.swingPlannerParametersPacket.set(planner.getSwingPlannerParameters().getAsPacket());
+         planner.getOutput().setPacket(session.outputStatus);
+
+         session.bodyPathPlanData = encodeBodyPathPlan(planner.getBodyPathPlanner().getVisibilityGraphHolder());
+         session.headerData = encodeHeader();
+
+         // the planner clears these on the next plan but does not modify the data they hold
+         session.iterationData = new ArrayList<>(planner.getIterationData());
+         session.edgeDataMap = new HashMap<>(planner.getEdgeDataMap());
+         return session;
       }
       catch (Exception e)
       {
          LogTools.error("Error generating log");
-         outputStream = null;
-         printStream = null;
          e.printStackTrace();
-         return false;
+         return null;
       }
+   }
+
+   private synchronized boolean writeSession(Session session)
+   {
+      File sessionFile = new File(session.directory + sessionFileName);
 
-      // log body path data
-      String bodyPathPlannerDataFileName = sessionDirectory + bodyPathPlanFileName;
       try
       {
-         File bodyPathPlannerDataFile = new File(bodyPathPlannerDataFileName);
-         FileTools.ensureFileExists(bodyPathPlannerDataFile.toPath());
-         fileWriter = new FileWriter(bodyPathPlannerDataFile);
-
-         VisibilityGraphHolder visibilityGraphHolder = planner.getBodyPathPlanner().getVisibilityGraphHolder();
-         writeLine(0, "startMapId:" + visibilityGraphHolder.getStartMapId());
-         writeLine(0, "goalMapId:" + visibilityGraphHolder.getGoalMapId());
-         writeLine(0, "interRegionsMapId:" + visibilityGraphHolder.getInterRegionsMapId());
-         writeVisibilityMap("startMap", 0, visibilityGraphHolder.getStartVisibilityMap());
-         writeVisibilityMap("goalMap", 0, visibilityGraphHolder.getGoalVisibilityMap());
-         writeVisibilityMap("interRegionMap", 0, visibilityGraphHolder.getInterRegionsVisibilityMap());
-
-         int numberOfNavigableRegions = visibilityGraphHolder.getNumberOfNavigableRegions();
-         writeLine(0, "navigableRegions:" + numberOfNavigableRegions);
-         for (int i = 0; i < numberOfNavigableRegions; i++)
+         FileTools.ensureFileExists(sessionFile.toPath());
+
+         try (SessionFileWriter writer = new SessionFileWriter(sessionFile, compressionEnabled))
          {
-            VisibilityMapWithNavigableRegion navigableRegion = visibilityGraphHolder.getNavigableRegion(i);
-            writeNavigableRegion(1, i, navigableRegion);
+            writer.writeSection(REQUEST_PACKET_SECTION, requestPacketSerializer.serializeToBytes(session.requestPacket));
+            writer.writeSection(BODY_PATH_PARAMETERS_SECTION, bodyPathParametersPacketSerializer.serializeToBytes(session.bodyPathParametersPacket));
+            writer.writeSection(FOOTSTEP_PARAMETERS_SECTION, footstepParametersPacketSerializer.serializeToBytes(session.footstepParametersPacket));
+            writer.writeSection(SWING_PARAMETERS_SECTION, swingPlannerParametersPacketSerializer.serializeToBytes(session.swingPlannerParametersPacket));
+            writer.writeSection(STATUS_PACKET_SECTION, statusPacketSerializer.serializeToBytes(session.outputStatus));
+            writer.writeSection(BODY_PATH_PLAN_SECTION, session.bodyPathPlanData);
+            writer.writeSection(HEADER_SECTION, session.headerData);
+
+            // iterations are written in chunks, so a single iteration can be read without decoding the whole log
+            ByteArrayOutputStream iterationBytes = new ByteArrayOutputStream();
+            DataOutputStream iterations = new DataOutputStream(iterationBytes);
+            ByteArrayOutputStream chunkBytes = new ByteArrayOutputStream();
+            DataOutputStream chunk = new DataOutputStream(chunkBytes);
+
+            for (int firstIteration = 0; firstIteration < session.iterationData.size(); firstIteration += ITERATIONS_PER_CHUNK)
+            {
+               int numberOfIterations = Math.min(ITERATIONS_PER_CHUNK, session.iterationData.size() - firstIteration);
+               iterationBytes.reset();
+               chunkBytes.reset();
+
+               // the chunk starts with the offset of each iteration
+               for (int i = firstIteration; i < firstIteration + numberOfIterations; i++)
+               {
+                  iterations.flush();
+                  chunk.writeInt(iterationBytes.size());
+                  writeIteration(iterations, session.iterationData.get(i), session.edgeDataMap);
+               }
+
+               iterations.flush();
+               iterationBytes.writeTo(chunk);
+               chunk.flush();
+               writer.writeIterationChunk(firstIteration, numberOfIterations, chunkBytes.toByteArray());
+            }
          }
 
-         fileWriter.flush();
+         return true;
       }
       catch (Exception e)
       {
-         LogTools.error("Error logging body path planner data");
-         fileWriter = null;
-         outputStream = null;
-         printStream = null;
+         LogTools.error("Error logging footstep planner data");
          e.printStackTrace();
          return false;
       }
+   }
 
-      // log planner iteration header file
-      String plannerHeaderFileName = sessionDirectory + headerFileName;
-      Map<Class<?>, Integer> enumIndexMap = new HashMap<>();
-
-      try
+   private static byte[] encodeBodyPathPlan(VisibilityGraphHolder visibilityGraphHolder) throws IOException
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream output = new DataOutputStream(bytes);
+
+      output.writeInt(visibilityGraphHolder.getStartMapId());
+      output.writeInt(visibilityGraphHolder.getGoalMapId());
+      output.writeInt(visibilityGraphHolder.getInterRegionsMapId());
+      writeVisibilityMap(output, visibilityGraphHolder.getStartVisibilityMap());
+      writeVisibilityMap(output, visibilityGraphHolder.getGoalVisibilityMap());
+      writeVisibilityMap(output, visibilityGraphHolder.getInterRegionsVisibilityMap());
+
+      int numberOfNavigableRegions = visibilityGraphHolder.getNumberOfNavigableRegions();
+      output.writeInt(numberOfNavigableRegions);
+      for (int i = 0; i < numberOfNavigableRegions; i++)
       {
-         File plannerHeaderFile = new File(plannerHeaderFileName);
-         FileTools.ensureFileExists(plannerHeaderFile.toPath());
-         fileWriter = new FileWriter(plannerHeaderFile);
+         writeNavigableRegion(output, visibilityGraphHolder.getNavigableRegion(i));
+      }
 
-         YoRegistry registry = planner.getAStarPlannerRegistry();
-         List<YoVariable> allVariables = registry.collectSubtreeVariables();
+      output.flush();
+      return bytes.toByteArray();
+   }
 
-         List<Pair<Class<?>, Enum<?>[]>> enumDescriptions = new ArrayList<>();
+   private byte[] encodeHeader() throws IOException
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream output = new DataOutputStream(bytes);
 
-         for (int i = 0; i < allVariables.size(); i++)
-         {
-            YoVariable yoVariable = allVariables.get(i);
-            if (yoVariable.getType() == YoVariableType.ENUM)
-            {
-               YoEnum<?> yoEnum = (YoEnum<?>) yoVariable;
-               Class<?> enumType = yoEnum.getEnumType();
-               Enum<?>[] enumValues = yoEnum.getEnumValues();
+      YoRegistry registry = planner.getAStarPlannerRegistry();
+      List<YoVariable> allVariables = registry.collectSubtreeVariables();
 
-               if (!enumIndexMap.containsKey(enumType))
-               {
-                  enumIndexMap.put(enumType, enumDescriptions.size());
-                  enumDescriptions.add(Pair.of(enumType, enumValues));
-               }
-            }
-         }
+      Map<Class<?>, Integer> enumIndexMap = new HashMap<>();
+      List<Enum<?>[]> enumDescriptions = new ArrayList<>();
 
-         fileWriter.write("enums:" + enumDescriptions.size() + newLine);
-         for (int i = 0; i < enumDescriptions.size(); i++)
+      for (int i = 0; i < allVariables.size(); i++)
+      {
+         YoVariable yoVariable = allVariables.get(i);
+         if (yoVariable.getType() == YoVariableType.ENUM)
          {
-            fileWriter.write(tab);
-            fileWriter.write(enumDescriptions.get(i).getKey().getSimpleName() + ":");
-
-            Enum<?>[] enumValues = enumDescriptions.get(i).getRight();
-            for (int j = 0; j < enumValues.length; j++)
+            YoEnum<?> yoEnum = (YoEnum<?>) yoVariable;
+            if (!enumIndexMap.containsKey(yoEnum.getEnumType()))
             {
-               fileWriter.write(enumValues[j] + (j == enumValues.length - 1 ? "" : ","));
+               enumIndexMap.put(yoEnum.getEnumType(), enumDescriptions.size());
+               enumDescriptions.add(yoEnum.getEnumValues());
             }
-
-            fileWriter.write(newLine);
          }
+      }
 
-         fileWriter.write("variables:" + allVariables.size() + newLine);
-         for (int i = 0; i < allVariables.size(); i++)
+      output.writeInt(enumDescriptions.size());
+      for (int i = 0; i < enumDescriptions.size(); i++)
+      {
+         Enum<?>[] enumValues = enumDescriptions.get(i);
+         output.writeInt(enumValues.length);
+         for (int j = 0; j < enumValues.length; j++)
          {
-            YoVariable yoVariable = allVariables.get(i);
-            String name = yoVariable.getName();
-            YoVariableType type = yoVariable.getType();
-            String registryName = yoVariable.getRegistry().getName();
-
-            fileWriter.write(tab);
-            fileWriter.write(name + ",");
-            fileWriter.write(type + ",");
-            fileWriter.write(registryName);
-
-            if (type == YoVariableType.ENUM)
-            {
-               YoEnum<?> yoEnum = (YoEnum<?>) yoVariable;
-               Class<?> enumType = yoEnum.getEnumType();
-               fileWriter.write( "," + enumIndexMap.get(enumType));
-               fileWriter.write( "," + yoEnum.isNullAllowed());
-            }
-
-            fileWriter.write(newLine);
+            output.writeUTF(enumValues[j].toString());
          }
+      }
+
+      output.writeInt(allVariables.size());
+      for (int i = 0; i < allVariables.size(); i++)
+      {
+         YoVariable yoVariable = allVariables.get(i);
+         output.writeUTF(yoVariable.getName());
+         output.writeUTF(yoVariable.getType().name());
+         output.writeUTF(yoVariable.getRegistry().getName());
 
-         SideDependentList<ConvexPolygon2D> footPolygons = planner.getFootPolygons();
-         for (RobotSide robotSide : RobotSide.values)
+         if (yoVariable.getType() == YoVariableType.ENUM)
          {
-            writeFootPolygon(0, robotSide.getLowerCaseName() + "FootPolygon:", footPolygons.get(robotSide));
+            output.writeInt(enumIndexMap.get(((YoEnum<?>) yoVariable).getEnumType()));
          }
-
-         fileWriter.flush();
       }
-      catch (Exception e)
+
+      SideDependentList<ConvexPolygon2D> footPolygons = planner.getFootPolygons();
+      for (RobotSide robotSide : RobotSide.values)
       {
-         LogTools.error("Error logging header file");
-         fileWriter = null;
-         outputStream = null;
-         printStream = null;
-         e.printStackTrace();
-         return false;
+         writePolygon(output, footPolygons.get(robotSide));
       }
 
-      // log planner iteration data
-      String plannerIterationDataFileName = sessionDirectory + dataFileName;
-      try
+      output.flush();
+      return bytes.toByteArray();
+   }
+
+   private static void writeIteration(DataOutputStream output,
+                                      FootstepPlannerIterationData iterationData,
+                                      Map<GraphEdge<FootstepGraphNode>, FootstepPlannerEdgeData> edgeDataMap) throws IOException
+   {
+      writeNode(output, iterationData.getParentNode());
+      writeNode(output, iterationData.getIdealChildNode());
+      output.writeInt(iterationData.getChildNodes().size());
+      writeSnapData(output, iterationData.getParentStartSnapData());
+      writeSnapData(output, iterationData.getParentEndSnapData());
+
+      for (int j = 0; j < iterationData.getChildNodes().size(); j++)
       {
-         File plannerDataFile = new File(plannerIterationDataFileName);
-         FileTools.ensureFileExists(plannerDataFile.toPath());
-         fileWriter = new FileWriter(plannerIterationDataFileName);
+         FootstepPlannerEdgeData edgeData = edgeDataMap.get(new GraphEdge<>(iterationData.getParentNode(), iterationData.getChildNodes().get(j)));
+
+         writeNode(output, edgeData.getChildNode());
+         output.writeBoolean(edgeData.isSolutionEdge());
+         writeSnapData(output, edgeData.getEndStepSnapData());
 
-         List<FootstepPlannerIterationData> iterationDataList = planner.getIterationData();
-         for (int i = 0; i < iterationDataList.size(); i++)
+         long[] dataBuffer = edgeData.getDataBuffer();
+         output.writeInt(dataBuffer.length);
+         for (int k = 0; k < dataBuffer.length; k++)
          {
-            FootstepPlannerIterationData iterationData = iterationDataList.get(i);
-            fileWriter.write("Iteration " + i + newLine);
-            writeNode(1, "parentNode", iterationData.getParentNode());
-            writeNode(1, "idealStep", iterationData.getIdealChildNode());
-            writeLine(1, "edges:" + iterationData.getChildNodes().size());
-            writeSnapData(1, iterationData.getParentStartSnapData());
-            writeSnapData(1, iterationData.getParentEndSnapData());
-
-            for (int j = 0; j < iterationData.getChildNodes().size(); j++)
-            {
-               FootstepPlannerEdgeData edgeData = planner.getEdgeDataMap().get(new GraphEdge<>(iterationData.getParentNode(), iterationData.getChildNodes().get(j)));
-
-               // indicate start of data
-               writeLine(1, "Edge:");
-               writeNode(2, "candidateNode", edgeData.getChildNode());
-               writeLine(2, "solutionEdge:" + edgeData.isSolutionEdge());
-               writeSnapData(2, edgeData.getEndStepSnapData());
-
-               // write additional data as doubles
-               fileWriter.write(tab + tab + "data:");
-               long[] dataBuffer = edgeData.getDataBuffer();
-               for (int k = 0; k < dataBuffer.length; k++)
-               {
-                  fileWriter.write(dataBuffer[k] + (k == dataBuffer.length - 1 ? "" : ","));
-               }
-               fileWriter.write(newLine);
-            }
+            output.writeLong(dataBuffer[k]);
          }
-
-         fileWriter.flush();
       }
-      catch (Exception e)
-      {
-         LogTools.error("Error logging footstep planner data");
-         fileWriter = null;
-         outputStream = null;
-         printStream = null;
-         e.printStackTrace();
-         return false;
-      }
-
-      return true;
    }
 
-   private void writeToFile(String file, byte[] fileContents) throws Exception
+   private static void writeNode(DataOutputStream output, FootstepGraphNode node) throws IOException
    {
-      FileTools.ensureFileExists(new File(file).toPath());
-      outputStream = new FileOutputStream(file);
-      printStream = new PrintStream(outputStream);
-
-      FootstepPlanningRequestPacket requestPacket = new FootstepPlanningRequestPacket();
-      planner.getRequest().setPacket(requestPacket);
-      printStream.write(fileContents);
-      printStream.flush();
-      outputStream.close();
-      printStream.close();
+      output.writeBoolean(node != null);
+      if (node == null)
+         return;
+
+      writeStep(output, node.getFirstStep());
+      writeStep(output, node.getSecondStep());
    }
 
-   private void writeNode(int numTabs, String name, FootstepGraphNode node) throws IOException
+   private static void writeStep(DataOutputStream output, DiscreteFootstep step) throws IOException
    {
-      if (node == null)
-      {
-         writeLine(numTabs, name + ":null");
-      }
-      else
-      {
-         DiscreteFootstep firstStep = node.getFirstStep();
-         DiscreteFootstep secondStep = node.getSecondStep();
-         writeLine(numTabs, name + ":" +
-                   firstStep.getXIndex() + "," +
-                   firstStep.getYIndex() + "," +
-                   firstStep.getYawIndex() + "," +
-                   firstStep.getRobotSide().ordinal() + "," +
-                   secondStep.getXIndex() + "," +
-                   secondStep.getYIndex() + "," +
-                   secondStep.getYawIndex() + "," +
-                   secondStep.getRobotSide().ordinal());
-      }
+      output.writeInt(step.getXIndex());
+      output.writeInt(step.getYIndex());
+      output.writeInt(step.getYawIndex());
+      output.writeByte(step.getRobotSide().ordinal());
    }
 
-   private void writeSnapData(int numTabs, FootstepSnapData snapData) throws IOException
+   private static void writeSnapData(DataOutputStream output, FootstepSnapData snapData) throws IOException
    {
-      RigidBodyTransform snapTransform = snapData.getSnapTransform();
-      writeTransform(numTabs, "snapTransform: ", new Quaternion(snapTransform.getRotation()), snapTransform.getTranslation());
-      RigidBodyTransform wiggleTransform = snapData.getWiggleTransformInWorld();
-      writeTransform(numTabs, "wiggleTransform: ", new Quaternion(wiggleTransform.getRotation()), wiggleTransform.getTranslation());
+      writeTransform(output, snapData.getSnapTransform());
+      writeTransform(output, snapData.getWiggleTransformInWorld());
 
       ConvexPolygon2D croppedFoothold = snapData.getCroppedFoothold();
       if (croppedFoothold.isEmpty() || croppedFoothold.containsNaN())
-      {
-         writeLine(numTabs, "croppedFoothold: null");
-      }
+         output.writeInt(0);
       else
-      {
-         writeFootPolygon(numTabs, "croppedFoothold:", croppedFoothold);
-      }
+         writePolygon(output, croppedFoothold);
 
-      int regionIndex = snapData.getRegionIndex();
-      writeLine(numTabs, "regionIndex:" + regionIndex);
-      writeLine(numTabs, "deltaInside:" + snapData.getAchievedInsideDelta());
+      output.writeInt(snapData.getRegionIndex());
+      output.writeDouble(snapData.getAchievedInsideDelta());
    }
 
-   private void writeTransform(int numTabs, String name, QuaternionReadOnly orientation, Tuple3DReadOnly translation) throws IOException
+   private static void writeTransform(DataOutputStream output, RigidBodyTransform transform) throws IOException
    {
-      writeLine(numTabs,
-                name + EuclidCoreIOTools.getStringOf(",",
-                                                     EuclidCoreIOTools.getStringFormat(8, 8),
-                                                     orientation.getX(),
-                                                     orientation.getY(),
-                                                     orientation.getZ(),
-                                                     orientation.getS(),
-                                                     translation.getX(),
-                                                     translation.getY(),
-                                                     translation.getZ()));
+      Quaternion orientation = new Quaternion(transform.getRotation());
+      output.writeDouble(orientation.getX());
+      output.writeDouble(orientation.getY());
+      output.writeDouble(orientation.getZ());
+      output.writeDouble(orientation.getS());
+      writeTuple3D(output, transform.getTranslation());
    }
 
-   private void writeFootPolygon(int numTabs, String name, ConvexPolygon2D footPolygon) throws IOException
+   private static void writePolygon(DataOutputStream output, ConvexPolygon2D polygon) throws IOException
    {
-      for (int i = 0; i < numTabs; i++)
+      output.writeInt(polygon.getNumberOfVertices());
+      for (int vertexIndex = 0; vertexIndex < polygon.getNumberOfVertices(); vertexIndex++)
       {
-         fileWriter.write(tab);
+         writeTuple2D(output, polygon.getVertex(vertexIndex));
       }
+   }
 
-      fileWriter.write(name);
-
-      for (int vertexIndex = 0; vertexIndex < footPolygon.getNumberOfVertices(); vertexIndex++)
-      {
-         Point2DReadOnly vertex = footPolygon.getVertex(vertexIndex);
-         fileWriter.write(vertex.getX() + "," + vertex.getY() + (vertexIndex == footPolygon.getNumberOfVertices() - 1 ? newLine : ","));
-      }
+   private static void writeTuple2D(DataOutputStream output, Tuple2DReadOnly tuple) throws IOException
+   {
+      output.writeDouble(tuple.getX());
+      output.writeDouble(tuple.getY());
    }
 
-   private void writePoint2D(int numTabs, Tuple2DReadOnly tuple) throws IOException
+   private static void writeTuple3D(DataOutputStream output, Tuple3DReadOnly tuple) throws IOException
    {
-      writeLine(numTabs, EuclidCoreIOTools.getStringOf(",", EuclidCoreIOTools.getStringFormat(8, 8), tuple.getX(), tuple.getY()));
+      output.writeDouble(tuple.getX());
+      output.writeDouble(tuple.getY());
+      output.writeDouble(tuple.getZ());
    }
 
-   private void writeVisibilityMap(String name, int numTabs, VisibilityMap visibilityMap) throws IOException
+   private static void writeVisibilityMap(DataOutputStream output, VisibilityMap visibilityMap) throws IOException
    {
-      writeLine(numTabs, name);
-      writeLine(numTabs + 1, "connections:" + visibilityMap.getConnections().size());
-      for(Connection connection : visibilityMap.getConnections())
+      output.writeInt(visibilityMap.getConnections().size());
+      for (Connection connection : visibilityMap.getConnections())
       {
-         ConnectionPoint3D sourcePoint = connection.getSourcePoint();
-         ConnectionPoint3D targetPoint = connection.getTargetPoint();
-         writeLine(numTabs + 2, EuclidCoreIOTools.getStringOf(",",
-                                                                            EuclidCoreIOTools.getStringFormat(8, 8),
-                                                                            sourcePoint.getX(),
-                                                                            sourcePoint.getY(),
-                                                                            sourcePoint.getZ(),
-                                                                            targetPoint.getX(),
-                                                                            targetPoint.getY(),
-                                                                            targetPoint.getZ()));
+         writeTuple3D(output, connection.getSourcePoint());
+         writeTuple3D(output, connection.getTargetPoint());
       }
-      writeLine(numTabs + 1, "vertices:" + visibilityMap.getVertices().size());
+
+      output.writeInt(visibilityMap.getVertices().size());
       for (ConnectionPoint3D vertex : visibilityMap.getVertices())
       {
-         writeLine(numTabs + 2, EuclidCoreIOTools.getStringOf(",", EuclidCoreIOTools.getStringFormat(8, 8), vertex.getX(), vertex.getY(), vertex.getZ()));
+         writeTuple3D(output, vertex);
       }
    }
 
-   private void writeNavigableRegion(int numTabs, int index, VisibilityMapWithNavigableRegion navigableRegion) throws IOException
+   private static void writeNavigableRegion(DataOutputStream output, VisibilityMapWithNavigableRegion navigableRegion) throws IOException
    {
-      writeLine(numTabs, "navigableRegion " + index);
-      writeLine(numTabs + 1, "mapId:" + navigableRegion.getMapId());
-      writeLine(numTabs + 1, "homeClusterType:" + navigableRegion.getHomeRegionCluster().getType().toByte());
-      writeLine(numTabs + 1, "extrusionSide:" + navigableRegion.getHomeRegionCluster().getExtrusionSide().toByte());
-
-      ExtrusionHull navigableExtrusions = navigableRegion.getHomeRegionCluster().getNavigableExtrusionsInLocal();
-      writeLine(numTabs + 1, "navigableExtrusions:" + navigableExtrusions.size());
-      for (int i = 0; i < navigableExtrusions.size(); i++)
-      {
-         writePoint2D(numTabs + 2, navigableExtrusions.get(i));
-      }
+      output.writeInt(navigableRegion.getMapId());
+      output.writeByte(navigableRegion.getHomeRegionCluster().getType().toByte());
+      output.writeByte(navigableRegion.getHomeRegionCluster().getExtrusionSide().toByte());
 
-      ExtrusionHull nonNavigableExtrusions = navigableRegion.getHomeRegionCluster().getNonNavigableExtrusionsInLocal();
-      writeLine(numTabs + 1, "nonNavigableExtrusions:" + nonNavigableExtrusions.size());
-      for (int i = 0; i < nonNavigableExtrusions.size(); i++)
-      {
-         writePoint2D(numTabs + 2, nonNavigableExtrusions.get(i));
-      }
+      writeExtrusionHull(output, navigableRegion.getHomeRegionCluster().getNavigableExtrusionsInLocal());
+      writeExtrusionHull(output, navigableRegion.getHomeRegionCluster().getNonNavigableExtrusionsInLocal());
 
       List<ExtrusionHull> preferredNavigableExtrusions = navigableRegion.getHomeRegionCluster().getPreferredNavigableExtrusionsInLocal();
-      writeLine(numTabs + 1, "preferredNavigableExtrusions:" + preferredNavigableExtrusions.size());
+      output.writeInt(preferredNavigableExtrusions.size());
       for (int i = 0; i < preferredNavigableExtrusions.size(); i++)
       {
-         ExtrusionHull preferredNavigableExtrusion = preferredNavigableExtrusions.get(i);
-         writeLine(numTabs + 2, "extrusion:" + preferredNavigableExtrusion.size());
-         for (int j = 0; j < preferredNavigableExtrusion.size(); j++)
-         {
-            writePoint2D(numTabs + 3, preferredNavigableExtrusion.get(j));
-         }
+         writeExtrusionHull(output, preferredNavigableExtrusions.get(i));
       }
 
       List<ExtrusionHull> preferredNonNavigableExtrusions = navigableRegion.getHomeRegionCluster().getPreferredNonNavigableExtrusionsInLocal();
-      writeLine(numTabs + 1, "preferredNonNavigableExtrusions:" + preferredNonNavigableExtrusions.size());
+      output.writeInt(preferredNonNavigableExtrusions.size());
       for (int i = 0; i < preferredNonNavigableExtrusions.size(); i++)
       {
-         ExtrusionHull preferredNavigableExtrusion = preferredNonNavigableExtrusions.get(i);
-         writeLine(numTabs + 2, "extrusion:" + preferredNavigableExtrusion.size());
-         for (int j = 0; j < preferredNavigableExtrusion.size(); j++)
-         {
-            writePoint2D(numTabs + 3, preferredNavigableExtrusion.get(j));
-         }
+         writeExtrusionHull(output, preferredNonNavigableExtrusions.get(i));
       }
 
-      writeVisibilityMap("visibilityMapInLocal", numTabs + 1, navigableRegion.getVisibilityMapInLocal());
+      writeVisibilityMap(output, navigableRegion.getVisibilityMapInLocal());
+   }
+
+   private static void writeExtrusionHull(DataOutputStream output, ExtrusionHull extrusionHull) throws IOException
+   {
+      output.writeInt(extrusionHull.size());
+      for (int i = 0; i < extrusionHull.size(); i++)
+      {
+         writeTuple2D(output, extrusionHull.get(i));
+      }
    }
 
-   private static final String tab = "\t";
-   private static final String newLine = "\n";
+   /**
+    * Data of a planning session, copied so it can be written while the planner runs again.
+    */
+   private static class Session
+   {
+      private String directory;
+
+      private final FootstepPlanningRequestPacket requestPacket = new FootstepPlanningRequestPacket();
+      private final FootstepPlannerParametersPacket footstepParametersPacket = new FootstepPlannerParametersPacket();
+      private final VisibilityGraphsParametersPacket bodyPathParametersPacket = new VisibilityGraphsParametersPacket();
+      private final SwingPlannerParametersPacket swingPlannerParametersPacket = new SwingPlannerParametersPacket();
+      private final FootstepPlanningToolboxOutputStatus outputStatus = new FootstepPlanningToolboxOutputStatus();
+
+      private byte[] bodyPathPlanData;
+      private byte[] headerData;
+      private List<FootstepPlannerIterationData> iterationData;
+      private Map<GraphEdge<FootstepGraphNode>, FootstepPlannerEdgeData> edgeDataMap;
+   }
 
-   private void writeLine(int numTabs, String lineContent) throws IOException
+   /**
+    * Writes the sections of a session file, followed by the index of the sections when closed.
+    */
+   private static class SessionFileWriter implements Closeable
    {
-      for (int i = 0; i < numTabs; i++)
+      private final DataOutputStream output;
+      private final Deflater deflater;
+      private final byte[] deflaterBuffer = new byte[1 << 16];
+      private final ByteArrayOutputStream compressedBytes = new ByteArrayOutputStream();
+
+      private long position = 0;
+      private final List<long[]> index = new ArrayList<>();
+
+      SessionFileWriter(File file, boolean compress) throws IOException
+      {
+         output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+         deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+
+         output.writeInt(SESSION_FILE_MAGIC);
+         output.writeInt(SESSION_FILE_VERSION);
+         position += 8;
+      }
+
+      void writeSection(byte type, byte[] data) throws IOException
+      {
+         writeSection(type, data, 0, 0);
+      }
+
+      void writeIterationChunk(int firstIteration, int numberOfIterations, byte[] data) throws IOException
+      {
+         writeSection(ITERATION_CHUNK_SECTION, data, firstIteration, numberOfIterations);
+      }
+
+      private void writeSection(byte type, byte[] data, int firstIteration, int numberOfIterations) throws IOException
       {
-         fileWriter.write(tab);
+         index.add(new long[] {type, position, firstIteration, numberOfIterations});
+
+         byte[] storedData = data;
+         boolean compressed = false;
+
+         if (deflater != null)
+         {
+            compressedBytes.reset();
+            deflater.reset();
+            deflater.setInput(data);
+            deflater.finish();
+            while (!deflater.finished())
+            {
+               compressedBytes.write(deflaterBuffer, 0, deflater.deflate(deflaterBuffer));
+            }
+
+            // keep the data uncompressed when it doesn't help, typically for tiny sections
+            if (compressedBytes.size() < data.length)
+            {
+               storedData = compressedBytes.toByteArray();
+               compressed = true;
+            }
+         }
+
+         output.writeByte(type);
+         output.writeByte(compressed ? SECTION_COMPRESSED : 0);
+         output.writeInt(data.length);
+         output.writeInt(storedData.length);
+         output.write(storedData);
+         position += SECTION_HEADER_SIZE + storedData.length;
       }
 
-      fileWriter.write(lineContent);
-      fileWriter.write(newLine);
+      @Override
+      public void close() throws IOException
+      {
+         long indexPosition = position;
+
+         output.writeInt(index.size());
+         for (long[] entry : index)
+         {
+            output.writeByte((int) entry[0]);
+            output.writeLong(entry[1]);
+            output.writeInt((int) entry[2]);
+            output.writeInt((int) entry[3]);
+         }
+
+         output.writeLong(indexPosition);
+         output.writeInt(SESSION_FILE_MAGIC);
+         output.close();
+
+         if (deflater != null)
+            deflater.end();
+      }
    }
 
    public String getLatestLogDirectory()
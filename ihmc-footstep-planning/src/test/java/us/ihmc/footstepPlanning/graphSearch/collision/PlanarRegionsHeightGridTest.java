@@ -0,0 +1,98 @@
+package us.ihmc.footstepPlanning.graphSearch.collision;
+
+import static us.ihmc.robotics.Assert.assertEquals;
+import static us.ihmc.robotics.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.euclid.geometry.BoundingBox3D;
+import us.ihmc.euclid.geometry.ConvexPolygon2D;
+import us.ihmc.euclid.shape.collision.gjk.GilbertJohnsonKeerthiCollisionDetector;
+import us.ihmc.euclid.shape.primitives.Box3D;
+import us.ihmc.euclid.tools.EuclidCoreRandomTools;
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.robotics.geometry.PlanarRegion;
+import us.ihmc.robotics.geometry.PlanarRegionsList;
+
+public class PlanarRegionsHeightGridTest
+{
+   @Test
+   public void testCollidingRegionsAreAlwaysCandidates()
+   {
+      Random random = new Random(3290);
+      GilbertJohnsonKeerthiCollisionDetector collisionDetector = new GilbertJohnsonKeerthiCollisionDetector();
+
+      for (int iteration = 0; iteration < 20; iteration++)
+      {
+         List<PlanarRegion> planarRegions = new ArrayList<>();
+         for (int i = 0; i < 30; i++)
+            planarRegions.add(nextSquarePlanarRegion(random));
+         PlanarRegionsList planarRegionsList = new PlanarRegionsList(planarRegions);
+
+         PlanarRegionsHeightGrid heightGrid = new PlanarRegionsHeightGrid(EuclidCoreRandomTools.nextDouble(random, 0.05, 0.5));
+         heightGrid.build(planarRegionsList);
+         int[] candidateRegions = new int[planarRegions.size()];
+         int numberOfRejectedRegions = 0;
+
+         for (int boxIndex = 0; boxIndex < 200; boxIndex++)
+         {
+            Box3D box = new Box3D(EuclidCoreRandomTools.nextDouble(random, 0.1, 1.0),
+                                  EuclidCoreRandomTools.nextDouble(random, 0.1, 1.0),
+                                  EuclidCoreRandomTools.nextDouble(random, 0.1, 1.0));
+            box.getPose().getTranslation().set(EuclidCoreRandomTools.nextPoint3D(random, 3.0));
+            box.getPose().getRotation().setToYawOrientation(EuclidCoreRandomTools.nextDouble(random, Math.PI));
+            BoundingBox3D boundingBox = new BoundingBox3D();
+            box.getBoundingBox(boundingBox);
+
+            int numberOfCandidates = heightGrid.findCandidateRegions(boundingBox, candidateRegions);
+            numberOfRejectedRegions += planarRegions.size() - numberOfCandidates;
+
+            for (int i = 1; i < numberOfCandidates; i++)
+               assertTrue(candidateRegions[i - 1] < candidateRegions[i]);
+
+            for (int i = 0; i < planarRegions.size(); i++)
+            {
+               if (collisionDetector.evaluateCollision(planarRegions.get(i), box).areShapesColliding())
+                  assertTrue("Colliding region " + i + " was rejected", Arrays.binarySearch(candidateRegions, 0, numberOfCandidates, i) >= 0);
+            }
+         }
+
+         // the grid should discard most of the regions
+         assertTrue(numberOfRejectedRegions > 100 * planarRegions.size());
+      }
+   }
+
+   @Test
+   public void testEmptyGrid()
+   {
+      PlanarRegionsHeightGrid heightGrid = new PlanarRegionsHeightGrid();
+      heightGrid.build(new PlanarRegionsList());
+      assertEquals(0, heightGrid.findCandidateRegions(new BoundingBox3D(-1.0, -1.0, -1.0, 1.0, 1.0, 1.0), new int[0]));
+
+      heightGrid.build(null);
+      assertEquals(0, heightGrid.findCandidateRegions(new BoundingBox3D(-1.0, -1.0, -1.0, 1.0, 1.0, 1.0), new int[0]));
+   }
+
+   private static PlanarRegion nextSquarePlanarRegion(Random random)
+   {
+      double sideLength = EuclidCoreRandomTools.nextDouble(random, 0.1, 1.5);
+      ConvexPolygon2D square = new ConvexPolygon2D();
+      square.addVertex(0.5 * sideLength, 0.5 * sideLength);
+      square.addVertex(-0.5 * sideLength, 0.5 * sideLength);
+      square.addVertex(0.5 * sideLength, -0.5 * sideLength);
+      square.addVertex(-0.5 * sideLength, -0.5 * sideLength);
+      square.update();
+
+      // mix of ground-like, sloped and vertical regions
+      RigidBodyTransform transformToWorld = new RigidBodyTransform();
+      transformToWorld.getTranslation().set(EuclidCoreRandomTools.nextPoint3D(random, 3.0));
+      double pitch = random.nextInt(3) == 0 ? 0.5 * Math.PI : EuclidCoreRandomTools.nextDouble(random, 0.6);
+      transformToWorld.getRotation().setYawPitchRoll(EuclidCoreRandomTools.nextDouble(random, Math.PI), pitch, 0.0);
+      return new PlanarRegion(transformToWorld, Arrays.asList(square));
+   }
+}
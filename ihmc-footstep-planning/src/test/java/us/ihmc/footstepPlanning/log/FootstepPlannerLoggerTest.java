@@ -9,13 +9,18 @@ import us.ihmc.euclid.tuple4D.Quaternion;
 import us.ihmc.footstepPlanning.FootstepPlannerOutput;
 import us.ihmc.footstepPlanning.FootstepPlannerRequest;
 import us.ihmc.footstepPlanning.FootstepPlanningModule;
+import us.ihmc.footstepPlanning.graphSearch.graph.FootstepGraphNode;
 import us.ihmc.footstepPlanning.tools.FootstepPlannerMessageTools;
 import us.ihmc.pathPlanning.DataSet;
 import us.ihmc.pathPlanning.DataSetIOTools;
 import us.ihmc.pathPlanning.DataSetName;
+import us.ihmc.pathPlanning.graph.structure.GraphEdge;
 import us.ihmc.robotics.robotSide.RobotSide;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
 
 public class FootstepPlannerLoggerTest
 {
@@ -76,5 +81,64 @@ public class FootstepPlannerLoggerTest
       Assertions.assertTrue(expectedFootstepParameters.epsilonEquals(log.getFootstepParametersPacket(), 1e-5));
       Assertions.assertTrue(expectedBodyPathParameters.epsilonEquals(log.getBodyPathParametersPacket(), 1e-5));
       Assertions.assertTrue(expectedOutputStatusPacket.epsilonEquals(log.getStatusPacket(), 1e-5));
+
+      List<FootstepPlannerIterationData> expectedIterationData = planningModule.getIterationData();
+      Assertions.assertEquals(expectedIterationData.size(), log.getIterationData().size());
+      for (int i = 0; i < expectedIterationData.size(); i++)
+      {
+         Assertions.assertEquals(expectedIterationData.get(i).getParentNode(), log.getIterationData().get(i).getParentNode());
+         Assertions.assertEquals(expectedIterationData.get(i).getChildNodes(), log.getIterationData().get(i).getChildNodes());
+      }
+
+      for (GraphEdge<FootstepGraphNode> edge : log.getEdgeDataMap().keySet())
+      {
+         FootstepPlannerEdgeData expectedEdgeData = planningModule.getEdgeDataMap().get(edge);
+         FootstepPlannerEdgeData edgeData = log.getEdgeDataMap().get(edge);
+         Assertions.assertEquals(expectedEdgeData.isSolutionEdge(), edgeData.isSolutionEdge());
+         Assertions.assertArrayEquals(expectedEdgeData.getDataBuffer(), edgeData.getDataBuffer());
+         Assertions.assertTrue(expectedEdgeData.getEndStepSnapData().getSnapTransform().epsilonEquals(edgeData.getEndStepSnapData().getSnapTransform(), 1e-12));
+      }
+   }
+
+   @Test
+   public void testAsyncLoggerAndRandomAccess() throws Exception
+   {
+      FootstepPlanningModule planningModule = new FootstepPlanningModule("testModule");
+      DataSet dataSet = DataSetIOTools.loadDataSet(DataSetName._20190220_172417_EOD_Cinders);
+
+      FootstepPlannerRequest request = new FootstepPlannerRequest();
+      Pose3D initialMidFootPose = new Pose3D(dataSet.getPlannerInput().getStartPosition(), new Quaternion(dataSet.getPlannerInput().getStartYaw(), 0.0, 0.0));
+      Pose3D goalMidFootPose = new Pose3D(dataSet.getPlannerInput().getGoalPosition(), new Quaternion(dataSet.getPlannerInput().getGoalYaw(), 0.0, 0.0));
+      request.setRequestedInitialStanceSide(RobotSide.LEFT);
+      request.setStartFootPoses(planningModule.getFootstepPlannerParameters().getIdealFootstepWidth(), initialMidFootPose);
+      request.setGoalFootPoses(planningModule.getFootstepPlannerParameters().getIdealFootstepWidth(), goalMidFootPose);
+      request.setPlanarRegionsList(dataSet.getPlanarRegionsList());
+      request.setAssumeFlatGround(false);
+      planningModule.handleRequest(request);
+
+      List<FootstepPlannerIterationData> expectedIterationData = new ArrayList<>(planningModule.getIterationData());
+
+      FootstepPlannerLogger logger = new FootstepPlannerLogger(planningModule);
+      Future<Boolean> success = logger.logSessionAsync(logDirectory);
+      String sessionDirectory = logger.getLatestLogDirectory();
+
+      // planning again while the log is written doesn't affect it
+      planningModule.handleRequest(request);
+      Assertions.assertTrue(success.get(), "Error generating footstep planner log");
+
+      File sessionFile = new File(sessionDirectory, FootstepPlannerLogger.sessionFileName);
+      try (FootstepPlannerLogFileReader reader = new FootstepPlannerLogFileReader(sessionFile))
+      {
+         Assertions.assertEquals(expectedIterationData.size(), reader.getNumberOfIterations());
+
+         // read in reverse order, so each chunk is decompressed again
+         for (int i = expectedIterationData.size() - 1; i >= 0; i--)
+         {
+            FootstepPlannerIterationData iterationData = reader.readIteration(i, null);
+            Assertions.assertEquals(expectedIterationData.get(i).getParentNode(), iterationData.getParentNode());
+            Assertions.assertEquals(expectedIterationData.get(i).getIdealChildNode(), iterationData.getIdealChildNode());
+            Assertions.assertEquals(expectedIterationData.get(i).getChildNodes(), iterationData.getChildNodes());
+         }
+      }
    }
 }
@@ -17,6 +17,7 @@ import org.ejml.dense.row.CommonOps_DDRM;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import us.ihmc.commonWalkingControlModules.polygonWiggling.PolygonWiggleSolver;
 import us.ihmc.commonWalkingControlModules.polygonWiggling.PolygonWiggler;
 import us.ihmc.commonWalkingControlModules.polygonWiggling.WiggleParameters;
 import us.ihmc.commons.MutationTestFacilitator;
@@ -75,6 +76,40 @@ public class PolygonWigglingTest
       assertTrue(ConvexPolygon2dCalculator.isPolygonInside(foot, 1.0e-5, plane));
    }
 
+   @Test
+   public void testReusedSolverMatchesStaticWiggler()
+   {
+      ConvexPolygon2D plane = new ConvexPolygon2D();
+      plane.addVertex(0.0, 0.0);
+      plane.addVertex(0.5, 0.0);
+      plane.addVertex(0.0, 0.5);
+      plane.addVertex(0.5, 0.5);
+      plane.update();
+
+      Random random = new Random(4827L);
+      WiggleParameters wiggleParameters = new WiggleParameters();
+      PolygonWiggleSolver solver = new PolygonWiggleSolver();
+
+      for (int i = 0; i < 200; i++)
+      {
+         // Nearby candidate steps, as produced by the footstep planner, such that most solves are warm started.
+         ConvexPolygon2D initialFoot = PlannerTools.createDefaultFootPolygon();
+         RigidBodyTransform initialFootTransform = new RigidBodyTransform();
+         initialFootTransform.setRotationYawAndZeroTranslation(Math.toRadians(-30.0 + 5.0 * random.nextDouble()));
+         initialFootTransform.getTranslation().set(-0.1 + 0.05 * random.nextDouble(), -0.3 + 0.05 * random.nextDouble(), 0.0);
+         initialFoot.applyTransform(initialFootTransform, false);
+
+         RigidBodyTransform expectedTransform = PolygonWiggler.findWiggleTransform(initialFoot, plane, wiggleParameters);
+         RigidBodyTransform transform = solver.findWiggleTransform(initialFoot, plane, wiggleParameters);
+
+         assertTrue(expectedTransform.epsilonEquals(transform, 1.0e-6));
+
+         ConvexPolygon2D foot = new ConvexPolygon2D(initialFoot);
+         foot.applyTransform(transform, false);
+         assertTrue(ConvexPolygon2dCalculator.isPolygonInside(foot, 1.0e-5, plane));
+      }
+   }
+
    @Test
    public void testProjectionBestEffort()
    {
@@ -2225,6 +2225,12 @@ public class HumanoidMessageTools
    public static IntrinsicParametersMessage toIntrinsicParametersMessage(CameraPinholeBrown intrinsicParameters)
    {
       IntrinsicParametersMessage intrinsicParametersMessage = new IntrinsicParametersMessage();
+      packIntrinsicParametersMessage(intrinsicParameters, intrinsicParametersMessage);
+      return intrinsicParametersMessage;
+   }
+
+   public static void packIntrinsicParametersMessage(CameraPinholeBrown intrinsicParameters, IntrinsicParametersMessage intrinsicParametersMessage)
+   {
       intrinsicParametersMessage.setWidth(intrinsicParameters.width);
       intrinsicParametersMessage.setHeight(intrinsicParameters.height);
       intrinsicParametersMessage.setFx(intrinsicParameters.fx);
@@ -2232,11 +2238,11 @@ public class HumanoidMessageTools
       intrinsicParametersMessage.setSkew(intrinsicParameters.skew);
       intrinsicParametersMessage.setCx(intrinsicParameters.cx);
       intrinsicParametersMessage.setCy(intrinsicParameters.cy);
+      intrinsicParametersMessage.getRadial().resetQuick();
       if (intrinsicParameters.radial != null)
          intrinsicParametersMessage.getRadial().add(intrinsicParameters.radial);
       intrinsicParametersMessage.setT1(intrinsicParameters.t1);
       intrinsicParametersMessage.setT2(intrinsicParameters.t2);
-      return intrinsicParametersMessage;
    }
 
    public static CameraPinholeBrown toIntrinsicParameters(IntrinsicParametersMessage message)
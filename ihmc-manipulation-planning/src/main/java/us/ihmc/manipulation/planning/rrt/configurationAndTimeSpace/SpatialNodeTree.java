@@ -128,6 +128,15 @@ public class SpatialNodeTree
       invalidNodes.add(currentCandidate);
    }
 
+   public void dismissCandidate(SpatialNode node)
+   {
+      if (node.isValid())
+         throw new RuntimeException("Should attach valid nodes to this tree.");
+
+      node.clearParent();
+      invalidNodes.add(node);
+   }
+
    public SpatialNode getLastNodeAdded()
    {
       return validNodes.get(validNodes.size() - 1);
@@ -3,12 +3,11 @@ package us.ihmc.modelFileLoaders.SdfLoader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
 
 import us.ihmc.euclid.transform.RigidBodyTransform;
 import us.ihmc.modelFileLoaders.SdfLoader.xmlDescription.SDFModel;
@@ -63,9 +62,7 @@ public class JaxbSDFLoader
       {
          throw new RuntimeException("inputStream is null");
       }
-      JAXBContext context = JAXBContext.newInstance(SDFRoot.class);
-      Unmarshaller um = context.createUnmarshaller();
-      SDFRoot sdfRoot = (SDFRoot) um.unmarshal(inputStream);
+      SDFRoot sdfRoot = loadSDFRoot(inputStream);
 
       List<SDFModel> models;
       if (sdfRoot.getWorld() != null)
@@ -99,6 +96,25 @@ public class JaxbSDFLoader
       this(new FileInputStream(file), resourceDirectories, null, mutator);
    }
 
+   private static SDFRoot loadSDFRoot(InputStream inputStream) throws JAXBException
+   {
+      byte[] sdfBytes;
+      try
+      {
+         sdfBytes = SDFModelSnapshotCache.readFully(inputStream);
+      }
+      catch (IOException e)
+      {
+         throw new RuntimeException("Unable to read SDF: " + e.getMessage(), e);
+      }
+
+      SDFModelSnapshotCache snapshotCache = SDFModelSnapshotCache.getDefaultCache();
+      if (snapshotCache == null)
+         return SDFModelSnapshotCache.unmarshal(sdfBytes);
+      else
+         return snapshotCache.load(sdfBytes);
+   }
+
    public Collection<GeneralizedSDFRobotModel> getGeneralizedSDFRobotModels()
    {
       return generalizedSDFRobotModels.values();
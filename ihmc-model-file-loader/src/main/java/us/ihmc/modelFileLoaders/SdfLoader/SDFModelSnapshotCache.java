@@ -0,0 +1,526 @@
+package us.ihmc.modelFileLoaders.SdfLoader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import us.ihmc.log.LogTools;
+import us.ihmc.modelFileLoaders.SdfLoader.xmlDescription.SDFRoot;
+
+/**
+ * Cache of parsed SDF documents stored as compact binary snapshots.
+ * <p>
+ * Unmarshalling a full humanoid SDF with JAXB dominates the time spent creating a robot model. The
+ * first time a given SDF is loaded, the resulting {@link SDFRoot} tree is written to the cache
+ * directory in a binary format. Later loads of the same SDF memory-map the snapshot and rebuild
+ * the tree directly, skipping the XML parser and the JAXB context entirely.
+ * </p>
+ * <p>
+ * Only the parsing is addressed. Building the {@link GeneralizedSDFRobotModel}, resolving the meshes,
+ * and creating the {@code RobotDescription} still happen on every load, so the description mutators
+ * and the resource directories keep their effect. {@code RobotModelStartupTimer} reports how much of
+ * the model creation the parsing accounts for.
+ * </p>
+ * <p>
+ * Snapshots are keyed by a SHA-1 hash of the SDF bytes, the snapshot format version, and the
+ * layout of the {@code xmlDescription} classes, such that editing either the model or the
+ * description classes invalidates old snapshots. The parsed tree does not depend on the resource
+ * directories, meshes are resolved later by {@link GeneralizedSDFRobotModel}.
+ * </p>
+ * <p>
+ * The default cache writes to the user's home directory and is therefore opt-in: it is enabled with
+ * {@code -Dihmc.sdf.enableSnapshotCache=true} and can be relocated with
+ * {@code -Dihmc.sdf.snapshotDirectory=<path>}. Without it, the loaders still share a single JAXB
+ * context instead of creating one per SDF.
+ * </p>
+ */
+public class SDFModelSnapshotCache
+{
+   public static final String ENABLE_PROPERTY = "ihmc.sdf.enableSnapshotCache";
+   public static final String DIRECTORY_PROPERTY = "ihmc.sdf.snapshotDirectory";
+
+   private final static String defaultCacheDirectoryLocation = System.getProperty("user.home") + File.separator + ".ihmc" + File.separator
+         + "modelSnapshots";
+
+   private static final int MAGIC = 0x53444653; // "SDFS"
+   private static final int FORMAT_VERSION = 1;
+   private static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+   private static final Map<Class<?>, FieldCodec[]> codecs = new ConcurrentHashMap<>();
+   private static volatile JAXBContext jaxbContext;
+   private static volatile byte[] schemaFingerprint;
+
+   private final Path cacheDirectory;
+
+   /**
+    * Returns the cache shared by all the loaders of this JVM, or {@code null} unless the cache has
+    * been enabled with the system property {@value #ENABLE_PROPERTY}.
+    */
+   public static SDFModelSnapshotCache getDefaultCache()
+   {
+      if (!Boolean.getBoolean(ENABLE_PROPERTY))
+         return null;
+      return new SDFModelSnapshotCache(Paths.get(System.getProperty(DIRECTORY_PROPERTY, defaultCacheDirectoryLocation)));
+   }
+
+   public SDFModelSnapshotCache(Path cacheDirectory)
+   {
+      this.cacheDirectory = cacheDirectory;
+   }
+
+   /**
+    * Returns the parsed SDF for the given document, reading it from the snapshot if one exists and
+    * parsing it with JAXB otherwise. In the latter case, a snapshot is written for the next load.
+    * Failing to compute the snapshot key, or to read or write the snapshot, only costs the parsing.
+    * <p>
+    * The returned tree is always a fresh instance that the caller is free to modify.
+    * </p>
+    */
+   public SDFRoot load(byte[] sdfBytes) throws JAXBException
+   {
+      Path snapshotFile;
+
+      try
+      {
+         snapshotFile = getSnapshotFile(sdfBytes);
+      }
+      catch (RuntimeException e)
+      {
+         LogTools.warn("Unable to compute the model snapshot key, parsing the SDF: " + e.getMessage());
+         return unmarshal(sdfBytes);
+      }
+
+      if (Files.isRegularFile(snapshotFile))
+      {
+         try
+         {
+            return readSnapshot(snapshotFile);
+         }
+         catch (IOException | RuntimeException e)
+         {
+            LogTools.warn("Discarding unreadable model snapshot " + snapshotFile + ": " + e.getMessage());
+            deleteQuietly(snapshotFile);
+         }
+      }
+
+      SDFRoot sdfRoot = unmarshal(sdfBytes);
+
+      try
+      {
+         writeSnapshot(snapshotFile, encode(sdfRoot));
+      }
+      catch (IOException | RuntimeException e)
+      {
+         LogTools.warn("Unable to write model snapshot " + snapshotFile + ": " + e.getMessage());
+      }
+
+      return sdfRoot;
+   }
+
+   public Path getSnapshotFile(byte[] sdfBytes)
+   {
+      return cacheDirectory.resolve(computeKey(sdfBytes) + SNAPSHOT_EXTENSION);
+   }
+
+   public Path getCacheDirectory()
+   {
+      return cacheDirectory;
+   }
+
+   /**
+    * Removes all the snapshots from this cache's directory.
+    */
+   public void clear()
+   {
+      if (!Files.isDirectory(cacheDirectory))
+         return;
+
+      File[] snapshots = cacheDirectory.toFile().listFiles((dir, name) -> name.endsWith(SNAPSHOT_EXTENSION));
+      if (snapshots == null)
+         return;
+
+      for (File snapshot : snapshots)
+         deleteQuietly(snapshot.toPath());
+   }
+
+   /**
+    * Parses the SDF document with JAXB. The JAXB context is created only once per JVM.
+    */
+   public static SDFRoot unmarshal(byte[] sdfBytes) throws JAXBException
+   {
+      return (SDFRoot) getJAXBContext().createUnmarshaller().unmarshal(new ByteArrayInputStream(sdfBytes));
+   }
+
+   public static byte[] readFully(InputStream inputStream) throws IOException
+   {
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream(1 << 16);
+      byte[] buffer = new byte[1 << 16];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1)
+         outputStream.write(buffer, 0, read);
+      return outputStream.toByteArray();
+   }
+
+   private static JAXBContext getJAXBContext() throws JAXBException
+   {
+      if (jaxbContext == null)
+      {
+         synchronized (SDFModelSnapshotCache.class)
+         {
+            if (jaxbContext == null)
+               jaxbContext = JAXBContext.newInstance(SDFRoot.class);
+         }
+      }
+      return jaxbContext;
+   }
+
+   private static SDFRoot readSnapshot(Path snapshotFile) throws IOException
+   {
+      try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ))
+      {
+         MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+         return decode(buffer);
+      }
+   }
+
+   private static void writeSnapshot(Path snapshotFile, byte[] snapshot) throws IOException
+   {
+      Files.createDirectories(snapshotFile.getParent());
+      // Write to a temporary file first so concurrent loaders never see a partial snapshot.
+      Path temporaryFile = Files.createTempFile(snapshotFile.getParent(), snapshotFile.getFileName().toString(), ".tmp");
+
+      try
+      {
+         Files.write(temporaryFile, snapshot);
+         try
+         {
+            Files.move(temporaryFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE);
+         }
+         catch (AtomicMoveNotSupportedException e)
+         {
+            Files.move(temporaryFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+         }
+      }
+      finally
+      {
+         deleteQuietly(temporaryFile);
+      }
+   }
+
+   private static void deleteQuietly(Path file)
+   {
+      try
+      {
+         Files.deleteIfExists(file);
+      }
+      catch (IOException e)
+      {
+         // Nothing to do, the file will be overwritten by the next successful load.
+      }
+   }
+
+   private static String computeKey(byte[] sdfBytes)
+   {
+      MessageDigest digest;
+      try
+      {
+         digest = MessageDigest.getInstance("SHA-1");
+      }
+      catch (NoSuchAlgorithmException e)
+      {
+         throw new RuntimeException(e);
+      }
+
+      digest.update(getSchemaFingerprint());
+      digest.update(sdfBytes);
+
+      StringBuilder key = new StringBuilder(40);
+      for (byte b : digest.digest())
+      {
+         key.append(Character.forDigit((b >> 4) & 0xF, 16));
+         key.append(Character.forDigit(b & 0xF, 16));
+      }
+      return key.toString();
+   }
+
+   /**
+    * Describes the format version and every field of the description classes reachable from
+    * {@link SDFRoot}, in the order they are serialized.
+    */
+   private static byte[] getSchemaFingerprint()
+   {
+      if (schemaFingerprint == null)
+      {
+         StringBuilder description = new StringBuilder();
+         description.append(FORMAT_VERSION);
+         describeSchema(SDFRoot.class, description, new HashSet<>());
+         schemaFingerprint = description.toString().getBytes(StandardCharsets.UTF_8);
+      }
+      return schemaFingerprint;
+   }
+
+   private static void describeSchema(Class<?> beanClass, StringBuilder description, Set<Class<?>> visited)
+   {
+      if (!visited.add(beanClass))
+         return;
+
+      description.append(';').append(beanClass.getName());
+
+      for (FieldCodec codec : getCodecs(beanClass))
+      {
+         description.append(',').append(codec.field.getName()).append(':').append(codec.field.getGenericType().getTypeName());
+         if (codec.beanClass != null)
+            describeSchema(codec.beanClass, description, visited);
+      }
+   }
+
+   static byte[] encode(SDFRoot sdfRoot)
+   {
+      try
+      {
+         ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+         DataOutputStream output = new DataOutputStream(bytes);
+         output.writeInt(MAGIC);
+         output.writeInt(FORMAT_VERSION);
+         writeBean(sdfRoot, output);
+         output.flush();
+         return bytes.toByteArray();
+      }
+      catch (IOException | IllegalAccessException e)
+      {
+         throw new RuntimeException(e);
+      }
+   }
+
+   static SDFRoot decode(ByteBuffer buffer)
+   {
+      if (buffer.getInt() != MAGIC)
+         throw new IllegalStateException("Not a model snapshot");
+      int version = buffer.getInt();
+      if (version != FORMAT_VERSION)
+         throw new IllegalStateException("Unsupported snapshot version: " + version);
+
+      try
+      {
+         SDFRoot sdfRoot = readBean(SDFRoot.class, buffer);
+         if (buffer.hasRemaining())
+            throw new IllegalStateException("Trailing data in snapshot");
+         return sdfRoot;
+      }
+      catch (BufferUnderflowException e)
+      {
+         throw new IllegalStateException("Truncated snapshot", e);
+      }
+      catch (ReflectiveOperationException e)
+      {
+         throw new RuntimeException(e);
+      }
+   }
+
+   private static void writeBean(Object bean, DataOutputStream output) throws IOException, IllegalAccessException
+   {
+      if (bean == null)
+      {
+         output.writeByte(0);
+         return;
+      }
+
+      output.writeByte(1);
+
+      for (FieldCodec codec : getCodecs(bean.getClass()))
+      {
+         Object value = codec.field.get(bean);
+
+         if (codec.isList)
+         {
+            List<?> list = (List<?>) value;
+            if (list == null)
+            {
+               output.writeInt(-1);
+               continue;
+            }
+
+            output.writeInt(list.size());
+            for (Object element : list)
+               writeValue(codec.beanClass, element, output);
+         }
+         else
+         {
+            writeValue(codec.beanClass, value, output);
+         }
+      }
+   }
+
+   private static void writeValue(Class<?> beanClass, Object value, DataOutputStream output) throws IOException, IllegalAccessException
+   {
+      if (beanClass == null)
+         writeString((String) value, output);
+      else
+         writeBean(value, output);
+   }
+
+   private static void writeString(String value, DataOutputStream output) throws IOException
+   {
+      if (value == null)
+      {
+         output.writeInt(-1);
+         return;
+      }
+
+      byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+      output.writeInt(utf8.length);
+      output.write(utf8);
+   }
+
+   private static <T> T readBean(Class<T> beanClass, ByteBuffer buffer) throws ReflectiveOperationException
+   {
+      if (buffer.get() == 0)
+         return null;
+
+      T bean = beanClass.getDeclaredConstructor().newInstance();
+
+      // Every field is assigned, including nulls, so the snapshot also overrides field initializers.
+      for (FieldCodec codec : getCodecs(beanClass))
+      {
+         if (codec.isList)
+         {
+            int size = buffer.getInt();
+            if (size < 0)
+            {
+               codec.field.set(bean, null);
+               continue;
+            }
+
+            List<Object> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++)
+               list.add(readValue(codec.beanClass, buffer));
+            codec.field.set(bean, list);
+         }
+         else
+         {
+            codec.field.set(bean, readValue(codec.beanClass, buffer));
+         }
+      }
+
+      return bean;
+   }
+
+   private static Object readValue(Class<?> beanClass, ByteBuffer buffer) throws ReflectiveOperationException
+   {
+      if (beanClass == null)
+         return readString(buffer);
+      else
+         return readBean(beanClass, buffer);
+   }
+
+   private static String readString(ByteBuffer buffer)
+   {
+      int length = buffer.getInt();
+      if (length < 0)
+         return null;
+      if (length > buffer.remaining())
+         throw new IllegalStateException("Truncated snapshot");
+
+      byte[] utf8 = new byte[length];
+      buffer.get(utf8);
+      return new String(utf8, StandardCharsets.UTF_8);
+   }
+
+   private static FieldCodec[] getCodecs(Class<?> beanClass)
+   {
+      return codecs.computeIfAbsent(beanClass, SDFModelSnapshotCache::createCodecs);
+   }
+
+   /**
+    * The description classes only hold strings, lists, and other description classes. Fields are
+    * sorted by name as the order returned by reflection is not specified.
+    */
+   private static FieldCodec[] createCodecs(Class<?> beanClass)
+   {
+      List<FieldCodec> fieldCodecs = new ArrayList<>();
+
+      for (Field field : beanClass.getDeclaredFields())
+      {
+         int modifiers = field.getModifiers();
+         if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic())
+            continue;
+
+         field.setAccessible(true);
+         fieldCodecs.add(new FieldCodec(field));
+      }
+
+      FieldCodec[] result = fieldCodecs.toArray(new FieldCodec[fieldCodecs.size()]);
+      Arrays.sort(result, Comparator.comparing(codec -> codec.field.getName()));
+      return result;
+   }
+
+   private static class FieldCodec
+   {
+      private final Field field;
+      private final boolean isList;
+      /** The class of the value or the list elements, {@code null} for strings. */
+      private final Class<?> beanClass;
+
+      FieldCodec(Field field)
+      {
+         this.field = field;
+
+         Class<?> valueClass;
+
+         if (List.class.isAssignableFrom(field.getType()))
+         {
+            isList = true;
+            Type genericType = field.getGenericType();
+            if (!(genericType instanceof ParameterizedType))
+               throw new IllegalArgumentException("Raw list not supported: " + field);
+            Type elementType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+            if (!(elementType instanceof Class))
+               throw new IllegalArgumentException("Unsupported list element type: " + field);
+            valueClass = (Class<?>) elementType;
+         }
+         else
+         {
+            isList = false;
+            valueClass = field.getType();
+         }
+
+         if (valueClass == String.class)
+            beanClass = null;
+         else if (valueClass.getName().startsWith(SDFRoot.class.getPackage().getName()))
+            beanClass = valueClass;
+         else
+            throw new IllegalArgumentException("Unsupported field type: " + field);
+      }
+   }
+}
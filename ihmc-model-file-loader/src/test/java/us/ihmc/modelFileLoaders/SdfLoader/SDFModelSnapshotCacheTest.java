@@ -0,0 +1,141 @@
+package us.ihmc.modelFileLoaders.SdfLoader;
+
+import static us.ihmc.robotics.Assert.assertArrayEquals;
+import static us.ihmc.robotics.Assert.assertEquals;
+import static us.ihmc.robotics.Assert.assertFalse;
+import static us.ihmc.robotics.Assert.assertNotNull;
+import static us.ihmc.robotics.Assert.assertNotSame;
+import static us.ihmc.robotics.Assert.assertNull;
+import static us.ihmc.robotics.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.modelFileLoaders.SdfLoader.xmlDescription.SDFModel;
+import us.ihmc.modelFileLoaders.SdfLoader.xmlDescription.SDFRoot;
+
+public class SDFModelSnapshotCacheTest
+{
+   @Test
+   public void testSnapshotMatchesParsedSDF() throws IOException, JAXBException
+   {
+      byte[] sdfBytes = readTestSDF();
+      Path cacheDirectory = Files.createTempDirectory(getClass().getSimpleName());
+      SDFModelSnapshotCache cache = new SDFModelSnapshotCache(cacheDirectory);
+
+      try
+      {
+         Path snapshotFile = cache.getSnapshotFile(sdfBytes);
+         assertFalse(Files.exists(snapshotFile));
+
+         SDFRoot parsed = cache.load(sdfBytes);
+         assertTrue(Files.isRegularFile(snapshotFile));
+
+         SDFRoot fromSnapshot = cache.load(sdfBytes);
+         assertNotSame(parsed, fromSnapshot);
+         assertArrayEquals(SDFModelSnapshotCache.encode(SDFModelSnapshotCache.unmarshal(sdfBytes)), SDFModelSnapshotCache.encode(fromSnapshot));
+
+         SDFModel expectedModel = parsed.getModels().get(0);
+         SDFModel actualModel = fromSnapshot.getModels().get(0);
+         assertEquals(expectedModel.getName(), actualModel.getName());
+         assertEquals(expectedModel.getLinks().size(), actualModel.getLinks().size());
+         assertEquals(expectedModel.getJoints().size(), actualModel.getJoints().size());
+
+         GeneralizedSDFRobotModel expectedRobotModel = new GeneralizedSDFRobotModel(expectedModel.getName(), expectedModel, null, getClass().getClassLoader(), null);
+         GeneralizedSDFRobotModel actualRobotModel = new GeneralizedSDFRobotModel(actualModel.getName(), actualModel, null, getClass().getClassLoader(), null);
+         assertEquals(expectedRobotModel.getRootLinks().size(), actualRobotModel.getRootLinks().size());
+         assertEquals(expectedRobotModel.getJointHolder(expectedModel.getJoints().get(0).getName()).getName(),
+                      actualRobotModel.getJointHolder(actualModel.getJoints().get(0).getName()).getName());
+      }
+      finally
+      {
+         cache.clear();
+         Files.deleteIfExists(cacheDirectory);
+      }
+   }
+
+   @Test
+   public void testCorruptedSnapshotIsReplaced() throws IOException, JAXBException
+   {
+      byte[] sdfBytes = readTestSDF();
+      Path cacheDirectory = Files.createTempDirectory(getClass().getSimpleName());
+      SDFModelSnapshotCache cache = new SDFModelSnapshotCache(cacheDirectory);
+
+      try
+      {
+         Path snapshotFile = cache.getSnapshotFile(sdfBytes);
+         Files.write(snapshotFile, new byte[] {1, 2, 3});
+
+         SDFRoot sdfRoot = cache.load(sdfBytes);
+         assertEquals("atlas", sdfRoot.getModels().get(0).getName());
+         assertArrayEquals(SDFModelSnapshotCache.encode(sdfRoot), Files.readAllBytes(snapshotFile));
+      }
+      finally
+      {
+         cache.clear();
+         Files.deleteIfExists(cacheDirectory);
+      }
+   }
+
+   @Test
+   public void testKeyFailureFallsBackToParsing() throws IOException, JAXBException
+   {
+      byte[] sdfBytes = readTestSDF();
+      Path cacheDirectory = Files.createTempDirectory(getClass().getSimpleName());
+      SDFModelSnapshotCache cache = new SDFModelSnapshotCache(cacheDirectory)
+      {
+         @Override
+         public Path getSnapshotFile(byte[] sdfBytes)
+         {
+            throw new IllegalArgumentException("Unsupported field type");
+         }
+      };
+
+      try
+      {
+         SDFRoot sdfRoot = cache.load(sdfBytes);
+         assertArrayEquals(SDFModelSnapshotCache.encode(SDFModelSnapshotCache.unmarshal(sdfBytes)), SDFModelSnapshotCache.encode(sdfRoot));
+         assertEquals(0, cacheDirectory.toFile().list().length);
+      }
+      finally
+      {
+         cache.clear();
+         Files.deleteIfExists(cacheDirectory);
+      }
+   }
+
+   @Test
+   public void testDefaultCacheIsOptIn()
+   {
+      String previousValue = System.clearProperty(SDFModelSnapshotCache.ENABLE_PROPERTY);
+
+      try
+      {
+         assertNull(SDFModelSnapshotCache.getDefaultCache());
+
+         System.setProperty(SDFModelSnapshotCache.ENABLE_PROPERTY, "true");
+         assertNotNull(SDFModelSnapshotCache.getDefaultCache());
+      }
+      finally
+      {
+         if (previousValue == null)
+            System.clearProperty(SDFModelSnapshotCache.ENABLE_PROPERTY);
+         else
+            System.setProperty(SDFModelSnapshotCache.ENABLE_PROPERTY, previousValue);
+      }
+   }
+
+   private byte[] readTestSDF() throws IOException
+   {
+      try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("sdfRobotTest.sdf"))
+      {
+         return SDFModelSnapshotCache.readFully(inputStream);
+      }
+   }
+}
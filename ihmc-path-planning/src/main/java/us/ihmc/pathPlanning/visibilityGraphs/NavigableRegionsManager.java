@@ -34,6 +34,7 @@ public class NavigableRegionsManager
    private final EdgeCostCalculator costCalculator;
 
    private final VisibilityMapSolution visibilityMapSolution = new VisibilityMapSolution();
+   private final InterRegionConnectionCache interRegionConnectionCache = new InterRegionConnectionCache();
 
    private VisibilityGraph visibilityGraph;
    private VisibilityGraphNode startNode;
@@ -150,6 +151,7 @@ public class NavigableRegionsManager
                                             parameters.getPreferredToPreferredInterRegionConnectionFilter(),
                                             parameters.getPreferredToNonPreferredInterRegionConnectionFilter(),
                                             parameters);
+      visibilityGraph.setInterRegionConnectionCache(interRegionConnectionCache);
 
       if (fullyExpandVisibilityGraph)
          visibilityGraph.fullyExpandVisibilityGraph();
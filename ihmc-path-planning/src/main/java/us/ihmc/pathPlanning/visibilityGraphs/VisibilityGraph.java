@@ -18,8 +18,11 @@ import us.ihmc.robotics.geometry.PlanarRegion;
 import us.ihmc.robotics.geometry.PlanarRegionTools;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class VisibilityGraph
 {
@@ -31,6 +34,8 @@ public class VisibilityGraph
    // Flag for whether to just connect the shortest interconnecting edge, or all of them.
    //TODO: Try this on for size for a while and if shortest edge seems like always the best way to go, remove the flag.
    protected static final boolean ONLY_USE_SHORTEST_INTER_CONNECTING_EDGE = true;
+   // Evaluates the region pairs that survive the broadphase in parallel when fully expanding the graph. Edges are still registered sequentially.
+   private static final boolean COMPUTE_INTER_REGION_CONNECTIONS_IN_PARALLEL = true;
    private ArrayList<VisibilityGraphNavigableRegion> visibilityGraphNavigableRegions = new ArrayList<>();
    private final NavigableRegions navigableRegions;
    private final List<VisibilityGraphEdge> crossRegionEdges = new ArrayList<>();
@@ -43,6 +48,9 @@ public class VisibilityGraph
    private final InterRegionConnectionFilter preferredToNonPreferredInterRegionConnectionFilter;
    private final InterRegionConnectionFilter allPassFilter;
 
+   private InterRegionConnectionCache interRegionConnectionCache = null;
+   private BoundingBox3D[] navigableNodesBoundingBoxes = null;
+
    public VisibilityGraph(NavigableRegions navigableRegions, InterRegionConnectionFilter interRegionConnectionFilter,
                           InterRegionConnectionFilter preferredInterRegionConnectionFilter,
                           InterRegionConnectionFilter preferredToNonPreferredInterRegionConnectionFilter,
@@ -82,6 +90,15 @@ public class VisibilityGraph
       }
    }
 
+   /**
+    * Sets the cache used to reuse the inter-region connections computed by a previous graph when
+    * fully expanding this graph. The same cache should be passed to the successive graphs.
+    */
+   public void setInterRegionConnectionCache(InterRegionConnectionCache interRegionConnectionCache)
+   {
+      this.interRegionConnectionCache = interRegionConnectionCache;
+   }
+
    public void fullyExpandVisibilityGraph()
    {
       double nonPreferredWeight = parameters.includePreferredExtrusions() ? parameters.getWeightForNonPreferredEdge() : 1.0;
@@ -91,17 +108,7 @@ public class VisibilityGraph
          visibilityGraphNavigableRegion.createGraphBetweenInnerClusterRings(nonPreferredWeight);
       }
 
-      // create inter-region connections
-      for (int sourceIndex = 0; sourceIndex < visibilityGraphNavigableRegions.size(); sourceIndex++)
-      {
-         VisibilityGraphNavigableRegion sourceNavigableRegion = visibilityGraphNavigableRegions.get(sourceIndex);
-
-         for (int targetIndex = sourceIndex + 1; targetIndex < visibilityGraphNavigableRegions.size(); targetIndex++)
-         {
-            VisibilityGraphNavigableRegion targetNavigableRegion = visibilityGraphNavigableRegions.get(targetIndex);
-            createInterRegionVisibilityConnections(sourceNavigableRegion, targetNavigableRegion);
-         }
-      }
+      createAllInterRegionVisibilityConnections(nonPreferredWeight);
 
       // set edges have been determined
       for (VisibilityGraphNavigableRegion visibilityGraphNavigableRegion : visibilityGraphNavigableRegions)
@@ -115,6 +122,138 @@ public class VisibilityGraph
       }
    }
 
+   private void createAllInterRegionVisibilityConnections(double nonPreferredWeight)
+   {
+      int numberOfRegions = visibilityGraphNavigableRegions.size();
+
+      // The nodes are created lazily, make sure this is done before evaluating the pairs in parallel.
+      long[] fingerprints = new long[numberOfRegions];
+      for (int regionIndex = 0; regionIndex < numberOfRegions; regionIndex++)
+      {
+         VisibilityGraphNavigableRegion region = visibilityGraphNavigableRegions.get(regionIndex);
+         region.getAllNavigableNodes();
+         region.getAllPreferredNavigableNodes();
+
+         if (interRegionConnectionCache != null)
+            fingerprints[regionIndex] = InterRegionConnectionCache.computeFingerprint(region);
+      }
+
+      if (interRegionConnectionCache != null)
+      {
+         interRegionConnectionCache.setConnectionParameters(interRegionConnectionFilter.getMaximumInterRegionConnectionDistance(),
+                                                            preferredInterRegionConnectionFilter.getMaximumInterRegionConnectionDistance(),
+                                                            preferredToNonPreferredInterRegionConnectionFilter.getMaximumInterRegionConnectionDistance(),
+                                                            parameters.getTooHighToStepDistance(), parameters.getLengthForLongInterRegionEdge(),
+                                                            parameters.getWeightForInterRegionEdge(), nonPreferredWeight);
+      }
+
+      List<RegionPair> regionPairs = findRegionPairsThatCanConnect();
+      List<RegionPair> regionPairsToEvaluate = new ArrayList<>();
+
+      for (RegionPair regionPair : regionPairs)
+      {
+         VisibilityGraphNavigableRegion sourceRegion = visibilityGraphNavigableRegions.get(regionPair.sourceIndex);
+         VisibilityGraphNavigableRegion targetRegion = visibilityGraphNavigableRegions.get(regionPair.targetIndex);
+
+         if (interRegionConnectionCache == null || !interRegionConnectionCache.getConnections(sourceRegion, fingerprints[regionPair.sourceIndex], targetRegion,
+                                                                                               fingerprints[regionPair.targetIndex], regionPair.edges))
+         {
+            regionPairsToEvaluate.add(regionPair);
+         }
+      }
+
+      double lengthForLongInterRegionEdge = parameters.getLengthForLongInterRegionEdge();
+      double weightForInterRegionEdge = parameters.getWeightForInterRegionEdge();
+
+      Stream<RegionPair> regionPairStream = COMPUTE_INTER_REGION_CONNECTIONS_IN_PARALLEL ? regionPairsToEvaluate.parallelStream()
+            : regionPairsToEvaluate.stream();
+      regionPairStream.forEach(regionPair -> collectInterRegionVisibilityConnections(visibilityGraphNavigableRegions.get(regionPair.sourceIndex),
+                                                                                     visibilityGraphNavigableRegions.get(regionPair.targetIndex),
+                                                                                     interRegionConnectionFilter, preferredInterRegionConnectionFilter,
+                                                                                     preferredToNonPreferredInterRegionConnectionFilter, regionPair.edges,
+                                                                                     lengthForLongInterRegionEdge, weightForInterRegionEdge,
+                                                                                     nonPreferredWeight));
+
+      if (interRegionConnectionCache != null)
+      {
+         for (RegionPair regionPair : regionPairsToEvaluate)
+         {
+            interRegionConnectionCache.putConnections(visibilityGraphNavigableRegions.get(regionPair.sourceIndex), fingerprints[regionPair.sourceIndex],
+                                                      visibilityGraphNavigableRegions.get(regionPair.targetIndex), fingerprints[regionPair.targetIndex],
+                                                      regionPair.edges);
+         }
+
+         interRegionConnectionCache.removeUnusedConnections();
+      }
+
+      // Registering the edges modifies the nodes, which is done sequentially in the same order as the nested loop over the regions.
+      for (RegionPair regionPair : regionPairs)
+      {
+         registerEdges(regionPair.edges, 0);
+         crossRegionEdges.addAll(regionPair.edges);
+      }
+   }
+
+   /**
+    * Broadphase of the inter-region connections: sweeps the home region bounding boxes along x to
+    * skip the pairs that are further apart than the maximum inter-region connection distance.
+    *
+    * @return the pairs that may connect, sorted by source index and then target index with
+    *         {@code sourceIndex < targetIndex}.
+    */
+   private List<RegionPair> findRegionPairsThatCanConnect()
+   {
+      int numberOfRegions = visibilityGraphNavigableRegions.size();
+      double maximumConnectionDistance = interRegionConnectionFilter.getMaximumInterRegionConnectionDistance();
+
+      BoundingBox3D[] boundingBoxes = new BoundingBox3D[numberOfRegions];
+      Integer[] indicesSortedByMinX = new Integer[numberOfRegions];
+
+      for (int regionIndex = 0; regionIndex < numberOfRegions; regionIndex++)
+      {
+         boundingBoxes[regionIndex] = visibilityGraphNavigableRegions.get(regionIndex).getNavigableRegion().getHomePlanarRegion().getBoundingBox3dInWorld();
+         indicesSortedByMinX[regionIndex] = regionIndex;
+      }
+
+      Arrays.sort(indicesSortedByMinX, Comparator.comparingDouble(regionIndex -> boundingBoxes[regionIndex].getMinX()));
+
+      List<RegionPair> regionPairs = new ArrayList<>();
+
+      for (int i = 0; i < numberOfRegions; i++)
+      {
+         int firstIndex = indicesSortedByMinX[i];
+         BoundingBox3D firstBoundingBox = boundingBoxes[firstIndex];
+
+         for (int j = i + 1; j < numberOfRegions; j++)
+         {
+            int secondIndex = indicesSortedByMinX[j];
+            BoundingBox3D secondBoundingBox = boundingBoxes[secondIndex];
+
+            if (secondBoundingBox.getMinX() > firstBoundingBox.getMaxX() + maximumConnectionDistance)
+               break;
+
+            if (firstBoundingBox.intersectsEpsilon(secondBoundingBox, maximumConnectionDistance))
+               regionPairs.add(new RegionPair(Math.min(firstIndex, secondIndex), Math.max(firstIndex, secondIndex)));
+         }
+      }
+
+      regionPairs.sort(Comparator.<RegionPair> comparingInt(regionPair -> regionPair.sourceIndex).thenComparingInt(regionPair -> regionPair.targetIndex));
+      return regionPairs;
+   }
+
+   private static class RegionPair
+   {
+      private final int sourceIndex;
+      private final int targetIndex;
+      private final List<VisibilityGraphEdge> edges = new ArrayList<>();
+
+      private RegionPair(int sourceIndex, int targetIndex)
+      {
+         this.sourceIndex = sourceIndex;
+         this.targetIndex = targetIndex;
+      }
+   }
+
    public void computeInterEdgesWhenOnNoRegion(VisibilityGraphNode sourceNode, InterRegionConnectionFilter filter, double edgeWeight)
    {
       double nonPreferredWeight = parameters.includePreferredExtrusions() ? parameters.getWeightForNonPreferredEdge() : 1.0;
@@ -163,13 +302,12 @@ public class VisibilityGraph
          weightToPreferred = parameters.getWeightForNonPreferredEdge();
       }
 
-      for (VisibilityGraphNavigableRegion targetVisibilityGraphNavigableRegion : visibilityGraphNavigableRegions)
+      for (int targetIndex = 0; targetIndex < visibilityGraphNavigableRegions.size(); targetIndex++)
       {
+         VisibilityGraphNavigableRegion targetVisibilityGraphNavigableRegion = visibilityGraphNavigableRegions.get(targetIndex);
          if (targetVisibilityGraphNavigableRegion == sourceVisibilityGraphNavigableRegion)
             continue;
 
-         //TOOD: +++JerryPratt: Efficiently add Bounding Box check before going through all combinations. Perhaps have a cached bounding box reachable map?
-
          NavigableRegion targetNavigableRegion = targetVisibilityGraphNavigableRegion.getNavigableRegion();
          List<Cluster> targetObstacleClusters = targetNavigableRegion.getObstacleClusters();
          List<PlanarRegion> targetObstacleRegions = targetNavigableRegion.getObstacleRegions();
@@ -190,6 +328,13 @@ public class VisibilityGraph
             toNonPreferredNodeFilter = interRegionConnectionFilter;
          }
 
+         // None of the target nodes can pass the filters if their bounding box is too far from the source.
+         double maximumConnectionDistance = Math.max(toPreferredNodeFilter.getMaximumInterRegionConnectionDistance(),
+                                                     toNonPreferredNodeFilter.getMaximumInterRegionConnectionDistance());
+         BoundingBox3D targetNodesBoundingBox = getNavigableNodesBoundingBox(targetIndex);
+         if (!isWithinXYDistance(sourceNode.getPointInWorld(), targetNodesBoundingBox, maximumConnectionDistance))
+            continue;
+
          double nonPreferredWeight = parameters.includePreferredExtrusions() ? parameters.getWeightForNonPreferredEdge() : 1.0;
 
          createInterRegionVisibilityConnections(sourceNode, allPreferredNavigableNodes, sourceObstacleClusters, sourceObstacleRegions, targetObstacleClusters,
@@ -206,6 +351,40 @@ public class VisibilityGraph
       sourceNode.setEdgesHaveBeenDetermined(true);
    }
 
+   private BoundingBox3D getNavigableNodesBoundingBox(int regionIndex)
+   {
+      if (navigableNodesBoundingBoxes == null)
+         navigableNodesBoundingBoxes = new BoundingBox3D[visibilityGraphNavigableRegions.size()];
+
+      BoundingBox3D boundingBox = navigableNodesBoundingBoxes[regionIndex];
+
+      if (boundingBox == null)
+      {
+         VisibilityGraphNavigableRegion visibilityGraphNavigableRegion = visibilityGraphNavigableRegions.get(regionIndex);
+         boundingBox = new BoundingBox3D();
+         boundingBox.setToNaN();
+
+         for (VisibilityGraphNode node : visibilityGraphNavigableRegion.getAllNavigableNodes())
+            boundingBox.updateToIncludePoint(node.getPointInWorld());
+         for (VisibilityGraphNode node : visibilityGraphNavigableRegion.getAllPreferredNavigableNodes())
+            boundingBox.updateToIncludePoint(node.getPointInWorld());
+
+         navigableNodesBoundingBoxes[regionIndex] = boundingBox;
+      }
+
+      return boundingBox;
+   }
+
+   private static boolean isWithinXYDistance(Point3DReadOnly point, BoundingBox3D boundingBox, double distance)
+   {
+      if (boundingBox.containsNaN())
+         return false;
+
+      double dx = Math.max(0.0, Math.max(boundingBox.getMinX() - point.getX(), point.getX() - boundingBox.getMaxX()));
+      double dy = Math.max(0.0, Math.max(boundingBox.getMinY() - point.getY(), point.getY() - boundingBox.getMaxY()));
+      return dx * dx + dy * dy <= distance * distance;
+   }
+
    public static void connectNodeToInnerRegionNodes(VisibilityGraphNode sourceNode, VisibilityGraphNavigableRegion visibilityGraphNavigableRegion,
                                                     VisibilityGraphNode nodeToAttachToIfInSameRegion, double nonPreferredWeight)
    {
@@ -377,6 +556,25 @@ public class VisibilityGraph
                                                              InterRegionConnectionFilter preferredToNonPreferredInterRegionConnectionFilter,
                                                              List<VisibilityGraphEdge> edgesToPack, double lengthForLongInterRegionEdge,
                                                              double weightForInterRegionEdge, double nonPreferredWeight)
+   {
+      int firstNewEdgeIndex = edgesToPack.size();
+      collectInterRegionVisibilityConnections(sourceNavigableRegion, targetNavigableRegion, interRegionConnectionFilter, preferredInterRegionConnectionFilter,
+                                              preferredToNonPreferredInterRegionConnectionFilter, edgesToPack, lengthForLongInterRegionEdge,
+                                              weightForInterRegionEdge, nonPreferredWeight);
+      registerEdges(edgesToPack, firstNewEdgeIndex);
+   }
+
+   /**
+    * Same as {@link #createInterRegionVisibilityConnections(VisibilityGraphNavigableRegion, VisibilityGraphNavigableRegion, InterRegionConnectionFilter, InterRegionConnectionFilter, InterRegionConnectionFilter, List, double, double, double)}
+    * but without registering the new edges to their nodes, such that it can be called concurrently for different region pairs.
+    */
+   private static void collectInterRegionVisibilityConnections(VisibilityGraphNavigableRegion sourceNavigableRegion,
+                                                               VisibilityGraphNavigableRegion targetNavigableRegion,
+                                                               InterRegionConnectionFilter interRegionConnectionFilter,
+                                                               InterRegionConnectionFilter preferredInterRegionConnectionFilter,
+                                                               InterRegionConnectionFilter preferredToNonPreferredInterRegionConnectionFilter,
+                                                               List<VisibilityGraphEdge> edgesToPack, double lengthForLongInterRegionEdge,
+                                                               double weightForInterRegionEdge, double nonPreferredWeight)
    {
       int sourceId = sourceNavigableRegion.getMapId();
       int targetId = targetNavigableRegion.getMapId();
@@ -406,11 +604,11 @@ public class VisibilityGraph
       List<VisibilityGraphNode> sourceRegionNodes = sourceNavigableRegion.getAllNavigableNodes();
       List<VisibilityGraphNode> targetRegionNodes = targetNavigableRegion.getAllNavigableNodes();
 
-      createInterRegionVisibilityConnections(preferredSourceRegionNodes, preferredTargetRegionNodes, sourceRegionNodes, targetRegionNodes,
-                                             sourceObstacleClusters, sourceObstacleRegions, targetObstacleClusters, targetObstacleRegions,
-                                             interRegionConnectionFilter, preferredInterRegionConnectionFilter,
-                                             preferredToNonPreferredInterRegionConnectionFilter, edgesToPack,
-                                             lengthForLongInterRegionEdge, weightForInterRegionEdge, nonPreferredWeight);
+      collectInterRegionVisibilityConnections(preferredSourceRegionNodes, preferredTargetRegionNodes, sourceRegionNodes, targetRegionNodes,
+                                              sourceObstacleClusters, sourceObstacleRegions, targetObstacleClusters, targetObstacleRegions,
+                                              interRegionConnectionFilter, preferredInterRegionConnectionFilter,
+                                              preferredToNonPreferredInterRegionConnectionFilter, edgesToPack,
+                                              lengthForLongInterRegionEdge, weightForInterRegionEdge, nonPreferredWeight);
    }
 
 
@@ -424,34 +622,53 @@ public class VisibilityGraph
                                                              InterRegionConnectionFilter preferredToNonPreferredInterRegionConnectionFilter,
                                                              List<VisibilityGraphEdge> edgesToPack, double lengthForLongInterRegionEdge,
                                                              double weightForInterRegionEdge, double nonPreferredWeight)
+   {
+      int firstNewEdgeIndex = edgesToPack.size();
+      collectInterRegionVisibilityConnections(preferredSourceNodeList, preferredTargetNodeList, sourceNodeList, targetNodeList, sourceObstacleClusters,
+                                              sourceObstacleRegions, targetObstacleClusters, targetObstacleRegions, interRegionConnectionFilter,
+                                              preferredInterRegionConnectionFilter, preferredToNonPreferredInterRegionConnectionFilter, edgesToPack,
+                                              lengthForLongInterRegionEdge, weightForInterRegionEdge, nonPreferredWeight);
+      registerEdges(edgesToPack, firstNewEdgeIndex);
+   }
+
+   private static void collectInterRegionVisibilityConnections(List<VisibilityGraphNode> preferredSourceNodeList,
+                                                               List<VisibilityGraphNode> preferredTargetNodeList,
+                                                               List<VisibilityGraphNode> sourceNodeList, List<VisibilityGraphNode> targetNodeList,
+                                                               List<Cluster> sourceObstacleClusters, List<PlanarRegion> sourceObstacleRegions,
+                                                               List<Cluster> targetObstacleClusters, List<PlanarRegion> targetObstacleRegions,
+                                                               InterRegionConnectionFilter interRegionConnectionFilter,
+                                                               InterRegionConnectionFilter preferredInterRegionConnectionFilter,
+                                                               InterRegionConnectionFilter preferredToNonPreferredInterRegionConnectionFilter,
+                                                               List<VisibilityGraphEdge> edgesToPack, double lengthForLongInterRegionEdge,
+                                                               double weightForInterRegionEdge, double nonPreferredWeight)
    {
       // preferred to preferred
       for (VisibilityGraphNode sourceNode : preferredSourceNodeList)
       {
-         createInterRegionVisibilityConnections(sourceNode, preferredTargetNodeList, sourceObstacleClusters, sourceObstacleRegions, targetObstacleClusters,
-                                                targetObstacleRegions, preferredInterRegionConnectionFilter, edgesToPack, lengthForLongInterRegionEdge,
-                                                weightForInterRegionEdge);
+         collectInterRegionVisibilityConnections(sourceNode, preferredTargetNodeList, sourceObstacleClusters, sourceObstacleRegions, targetObstacleClusters,
+                                                 targetObstacleRegions, preferredInterRegionConnectionFilter, edgesToPack,
+                                                 ONLY_USE_SHORTEST_INTER_CONNECTING_EDGE, lengthForLongInterRegionEdge, weightForInterRegionEdge);
       }
       // non-preferred to preferred
       for (VisibilityGraphNode sourceNode : sourceNodeList)
       {
-         createInterRegionVisibilityConnections(sourceNode, preferredTargetNodeList, sourceObstacleClusters, sourceObstacleRegions, targetObstacleClusters,
-                                                targetObstacleRegions, preferredToNonPreferredInterRegionConnectionFilter, edgesToPack, lengthForLongInterRegionEdge,
-                                                nonPreferredWeight * weightForInterRegionEdge);
+         collectInterRegionVisibilityConnections(sourceNode, preferredTargetNodeList, sourceObstacleClusters, sourceObstacleRegions, targetObstacleClusters,
+                                                 targetObstacleRegions, preferredToNonPreferredInterRegionConnectionFilter, edgesToPack,
+                                                 ONLY_USE_SHORTEST_INTER_CONNECTING_EDGE, lengthForLongInterRegionEdge, nonPreferredWeight * weightForInterRegionEdge);
       }
       // preferred to non-preferred
       for (VisibilityGraphNode sourceNode : preferredSourceNodeList)
       {
-         createInterRegionVisibilityConnections(sourceNode, targetNodeList, sourceObstacleClusters, sourceObstacleRegions, targetObstacleClusters,
-                                                targetObstacleRegions, preferredToNonPreferredInterRegionConnectionFilter, edgesToPack, lengthForLongInterRegionEdge,
-                                                nonPreferredWeight * weightForInterRegionEdge);
+         collectInterRegionVisibilityConnections(sourceNode, targetNodeList, sourceObstacleClusters, sourceObstacleRegions, targetObstacleClusters,
+                                                 targetObstacleRegions, preferredToNonPreferredInterRegionConnectionFilter, edgesToPack,
+                                                 ONLY_USE_SHORTEST_INTER_CONNECTING_EDGE, lengthForLongInterRegionEdge, nonPreferredWeight * weightForInterRegionEdge);
       }
       // non-preferred to non-preferred
       for (VisibilityGraphNode sourceNode : sourceNodeList)
       {
-         createInterRegionVisibilityConnections(sourceNode, targetNodeList, sourceObstacleClusters, sourceObstacleRegions, targetObstacleClusters,
-                                                targetObstacleRegions, interRegionConnectionFilter, edgesToPack, lengthForLongInterRegionEdge,
-                                                nonPreferredWeight * weightForInterRegionEdge);
+         collectInterRegionVisibilityConnections(sourceNode, targetNodeList, sourceObstacleClusters, sourceObstacleRegions, targetObstacleClusters,
+                                                 targetObstacleRegions, interRegionConnectionFilter, edgesToPack,
+                                                 ONLY_USE_SHORTEST_INTER_CONNECTING_EDGE, lengthForLongInterRegionEdge, nonPreferredWeight * weightForInterRegionEdge);
       }
    }
 
@@ -471,6 +688,20 @@ public class VisibilityGraph
                                                              List<Cluster> targetObstacleClusters, List<PlanarRegion> targetObstacleRegions,
                                                              InterRegionConnectionFilter filter, List<VisibilityGraphEdge> edgesToPack,
                                                              boolean onlyUseShortestEdge, double lengthForLongInterRegionEdge, double weightForInterRegionEdge)
+   {
+      int firstNewEdgeIndex = edgesToPack.size();
+      collectInterRegionVisibilityConnections(sourceNode, targetNodeList, sourceObstacleClusters, sourceObstacleRegions, targetObstacleClusters,
+                                              targetObstacleRegions, filter, edgesToPack, onlyUseShortestEdge, lengthForLongInterRegionEdge,
+                                              weightForInterRegionEdge);
+      registerEdges(edgesToPack, firstNewEdgeIndex);
+   }
+
+   private static void collectInterRegionVisibilityConnections(VisibilityGraphNode sourceNode, List<VisibilityGraphNode> targetNodeList,
+                                                               List<Cluster> sourceObstacleClusters, List<PlanarRegion> sourceObstacleRegions,
+                                                               List<Cluster> targetObstacleClusters, List<PlanarRegion> targetObstacleRegions,
+                                                               InterRegionConnectionFilter filter, List<VisibilityGraphEdge> edgesToPack,
+                                                               boolean onlyUseShortestEdge, double lengthForLongInterRegionEdge,
+                                                               double weightForInterRegionEdge)
    {
       List<VisibilityGraphEdge> potentialEdges = new ArrayList<>();
 
@@ -498,7 +729,6 @@ public class VisibilityGraph
          if (shortestEdgeXY != null)
          {
             shortestEdgeXY.setEdgeWeight(weightForInterRegionEdge);
-            shortestEdgeXY.registerEnds();
             edgesToPack.add(shortestEdgeXY);
          }
       }
@@ -507,12 +737,19 @@ public class VisibilityGraph
          for (VisibilityGraphEdge edge : potentialEdges)
          {
             edge.setEdgeWeight(weightForInterRegionEdge);
-            edge.registerEnds();
          }
          edgesToPack.addAll(potentialEdges);
       }
    }
 
+   private static void registerEdges(List<VisibilityGraphEdge> edges, int firstEdgeIndex)
+   {
+      for (int i = firstEdgeIndex; i < edges.size(); i++)
+      {
+         edges.get(i).registerEnds();
+      }
+   }
+
    private static void addInterEdgeIfVisible(VisibilityGraphNode sourceNode, VisibilityGraphNode targetNode, List<Cluster> sourceObstacleClusters,
                                              List<PlanarRegion> sourceObstacleRegions, List<Cluster> targetObstacleClusters,
                                              List<PlanarRegion> targetObstacleRegions, InterRegionConnectionFilter filter,
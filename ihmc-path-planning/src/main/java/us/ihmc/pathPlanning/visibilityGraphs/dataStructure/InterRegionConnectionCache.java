@@ -0,0 +1,282 @@
+package us.ihmc.pathPlanning.visibilityGraphs.dataStructure;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import us.ihmc.euclid.transform.interfaces.RigidBodyTransformReadOnly;
+import us.ihmc.euclid.tuple2D.interfaces.Point2DReadOnly;
+import us.ihmc.pathPlanning.visibilityGraphs.clusterManagement.Cluster;
+import us.ihmc.pathPlanning.visibilityGraphs.clusterManagement.ExtrusionHull;
+import us.ihmc.robotics.geometry.PlanarRegion;
+
+/**
+ * Keeps the inter-region connections computed between pairs of navigable regions so that the next
+ * {@link us.ihmc.pathPlanning.visibilityGraphs.VisibilityGraph} can reuse them when only a few
+ * regions have changed.
+ * <p>
+ * The connections of a pair are only reused when the fingerprints of both regions are unchanged. A
+ * fingerprint covers everything the inter-region visibility check reads from a region: its pose,
+ * its nodes, and its obstacle clusters. The whole cache is invalidated when the connection
+ * parameters change.
+ * </p>
+ */
+public class InterRegionConnectionCache
+{
+   private final HashMap<Long, CachedConnections> cachedConnections = new HashMap<>();
+   private double[] connectionParameters = null;
+
+   private int numberOfHits = 0;
+   private int numberOfMisses = 0;
+
+   /**
+    * Invalidates the cache if any of the parameters used to compute the connections differs from the
+    * previous call.
+    */
+   public void setConnectionParameters(double... connectionParameters)
+   {
+      if (this.connectionParameters == null || !Arrays.equals(this.connectionParameters, connectionParameters))
+      {
+         cachedConnections.clear();
+         this.connectionParameters = Arrays.copyOf(connectionParameters, connectionParameters.length);
+      }
+
+      for (CachedConnections connections : cachedConnections.values())
+         connections.hasBeenUsed = false;
+
+      numberOfHits = 0;
+      numberOfMisses = 0;
+   }
+
+   /**
+    * Recreates the cached connections from the source to the target region, if they are still valid.
+    *
+    * @return whether the cached connections could be used.
+    */
+   public boolean getConnections(VisibilityGraphNavigableRegion sourceRegion, long sourceFingerprint, VisibilityGraphNavigableRegion targetRegion,
+                                 long targetFingerprint, List<VisibilityGraphEdge> edgesToPack)
+   {
+      CachedConnections connections = cachedConnections.get(key(sourceRegion, targetRegion));
+
+      if (connections == null || connections.sourceFingerprint != sourceFingerprint || connections.targetFingerprint != targetFingerprint)
+      {
+         numberOfMisses++;
+         return false;
+      }
+
+      for (int i = 0; i < connections.weights.length; i++)
+      {
+         VisibilityGraphNode sourceNode = getNode(sourceRegion, connections.sourceNodeIndices[i]);
+         VisibilityGraphNode targetNode = getNode(targetRegion, connections.targetNodeIndices[i]);
+
+         VisibilityGraphEdge edge = new VisibilityGraphEdge(sourceNode, targetNode);
+         edge.setEdgeWeight(connections.weights[i]);
+         edgesToPack.add(edge);
+      }
+
+      connections.hasBeenUsed = true;
+      numberOfHits++;
+      return true;
+   }
+
+   /**
+    * Stores the connections from the source to the target region. The connections are copied, the
+    * edges themselves are not retained.
+    */
+   public void putConnections(VisibilityGraphNavigableRegion sourceRegion, long sourceFingerprint, VisibilityGraphNavigableRegion targetRegion,
+                              long targetFingerprint, List<VisibilityGraphEdge> edges)
+   {
+      CachedConnections connections = new CachedConnections(sourceFingerprint, targetFingerprint, edges.size());
+
+      if (!edges.isEmpty())
+      {
+         IdentityHashMap<VisibilityGraphNode, Integer> sourceNodeIndices = computeNodeIndices(sourceRegion);
+         IdentityHashMap<VisibilityGraphNode, Integer> targetNodeIndices = computeNodeIndices(targetRegion);
+
+         for (int i = 0; i < edges.size(); i++)
+         {
+            VisibilityGraphEdge edge = edges.get(i);
+            connections.sourceNodeIndices[i] = sourceNodeIndices.get(edge.getSourceNode());
+            connections.targetNodeIndices[i] = targetNodeIndices.get(edge.getTargetNode());
+            connections.weights[i] = edge.getEdgeWeight();
+         }
+      }
+
+      cachedConnections.put(key(sourceRegion, targetRegion), connections);
+   }
+
+   /**
+    * Removes the connections that have not been used nor updated since the last call to
+    * {@link #setConnectionParameters(double...)}, i.e. the pairs that no longer exist.
+    */
+   public void removeUnusedConnections()
+   {
+      Iterator<CachedConnections> iterator = cachedConnections.values().iterator();
+
+      while (iterator.hasNext())
+      {
+         if (!iterator.next().hasBeenUsed)
+            iterator.remove();
+      }
+   }
+
+   public void clear()
+   {
+      cachedConnections.clear();
+      connectionParameters = null;
+   }
+
+   public int getNumberOfHits()
+   {
+      return numberOfHits;
+   }
+
+   public int getNumberOfMisses()
+   {
+      return numberOfMisses;
+   }
+
+   public int size()
+   {
+      return cachedConnections.size();
+   }
+
+   /**
+    * Computes a hash of everything the inter-region visibility check reads from the given region.
+    * The region's nodes are created if they have not been already.
+    */
+   public static long computeFingerprint(VisibilityGraphNavigableRegion region)
+   {
+      NavigableRegion navigableRegion = region.getNavigableRegion();
+
+      long hash = region.getMapId();
+      hash = hash(hash, navigableRegion.getTransformToWorld());
+
+      hash = hash(hash, region.getAllPreferredNavigableNodes());
+      hash = hash(hash, region.getAllNavigableNodes());
+
+      List<Cluster> obstacleClusters = navigableRegion.getObstacleClusters();
+      List<PlanarRegion> obstacleRegions = navigableRegion.getObstacleRegions();
+
+      for (int i = 0; i < obstacleClusters.size(); i++)
+      {
+         Cluster cluster = obstacleClusters.get(i);
+         hash = hash(hash, obstacleRegions.get(i).getRegionId());
+         hash = hash(hash, cluster.getExtrusionSide().ordinal());
+         hash = hash(hash, cluster.isClosed() ? 1 : 0);
+         hash = hash(hash, cluster.getNonNavigableExtrusionsInLocal());
+
+         List<ExtrusionHull> preferredNonNavigableExtrusions = cluster.getPreferredNonNavigableExtrusionsInLocal();
+         for (int j = 0; j < preferredNonNavigableExtrusions.size(); j++)
+            hash = hash(hash, preferredNonNavigableExtrusions.get(j));
+      }
+
+      return hash;
+   }
+
+   private static long hash(long hash, List<VisibilityGraphNode> nodes)
+   {
+      hash = hash(hash, nodes.size());
+
+      for (int i = 0; i < nodes.size(); i++)
+      {
+         ConnectionPoint3D point = nodes.get(i).getPointInWorld();
+         hash = hash(hash, point.getX());
+         hash = hash(hash, point.getY());
+         hash = hash(hash, point.getZ());
+      }
+
+      return hash;
+   }
+
+   private static long hash(long hash, ExtrusionHull extrusionHull)
+   {
+      hash = hash(hash, extrusionHull.size());
+
+      for (int i = 0; i < extrusionHull.size(); i++)
+      {
+         Point2DReadOnly point = extrusionHull.get(i);
+         hash = hash(hash, point.getX());
+         hash = hash(hash, point.getY());
+      }
+
+      return hash;
+   }
+
+   private static long hash(long hash, RigidBodyTransformReadOnly transform)
+   {
+      for (int row = 0; row < 3; row++)
+      {
+         for (int column = 0; column < 3; column++)
+            hash = hash(hash, transform.getRotation().getElement(row, column));
+      }
+
+      hash = hash(hash, transform.getTranslation().getX());
+      hash = hash(hash, transform.getTranslation().getY());
+      hash = hash(hash, transform.getTranslation().getZ());
+      return hash;
+   }
+
+   private static long hash(long hash, double value)
+   {
+      return hash(hash, Double.doubleToLongBits(value));
+   }
+
+   private static long hash(long hash, long value)
+   {
+      hash ^= value;
+      hash *= 0x9E3779B97F4A7C15L;
+      return hash ^ (hash >>> 29);
+   }
+
+   private static long key(VisibilityGraphNavigableRegion sourceRegion, VisibilityGraphNavigableRegion targetRegion)
+   {
+      return ((long) sourceRegion.getMapId() << 32) | (targetRegion.getMapId() & 0xFFFFFFFFL);
+   }
+
+   /**
+    * Preferred nodes are stored with a negative index: {@code -1 - indexInPreferredNodes}.
+    */
+   private static VisibilityGraphNode getNode(VisibilityGraphNavigableRegion region, int index)
+   {
+      if (index < 0)
+         return region.getAllPreferredNavigableNodes().get(-1 - index);
+      else
+         return region.getAllNavigableNodes().get(index);
+   }
+
+   private static IdentityHashMap<VisibilityGraphNode, Integer> computeNodeIndices(VisibilityGraphNavigableRegion region)
+   {
+      List<VisibilityGraphNode> preferredNodes = region.getAllPreferredNavigableNodes();
+      List<VisibilityGraphNode> nodes = region.getAllNavigableNodes();
+      IdentityHashMap<VisibilityGraphNode, Integer> nodeIndices = new IdentityHashMap<>(preferredNodes.size() + nodes.size());
+
+      for (int i = 0; i < preferredNodes.size(); i++)
+         nodeIndices.put(preferredNodes.get(i), -1 - i);
+      for (int i = 0; i < nodes.size(); i++)
+         nodeIndices.put(nodes.get(i), i);
+
+      return nodeIndices;
+   }
+
+   private static class CachedConnections
+   {
+      private final long sourceFingerprint;
+      private final long targetFingerprint;
+      private final int[] sourceNodeIndices;
+      private final int[] targetNodeIndices;
+      private final double[] weights;
+      private boolean hasBeenUsed = true;
+
+      private CachedConnections(long sourceFingerprint, long targetFingerprint, int numberOfConnections)
+      {
+         this.sourceFingerprint = sourceFingerprint;
+         this.targetFingerprint = targetFingerprint;
+         sourceNodeIndices = new int[numberOfConnections];
+         targetNodeIndices = new int[numberOfConnections];
+         weights = new double[numberOfConnections];
+      }
+   }
+}
@@ -15,6 +15,7 @@ import us.ihmc.euclid.tuple2D.interfaces.Point2DReadOnly;
 import us.ihmc.euclid.tuple3D.Point3D;
 import us.ihmc.pathPlanning.visibilityGraphs.dataStructure.Connection;
 import us.ihmc.pathPlanning.visibilityGraphs.dataStructure.ConnectionPoint3D;
+import us.ihmc.pathPlanning.visibilityGraphs.dataStructure.InterRegionConnectionCache;
 import us.ihmc.pathPlanning.visibilityGraphs.dataStructure.InterRegionVisibilityMap;
 import us.ihmc.pathPlanning.visibilityGraphs.dataStructure.NavigableRegion;
 import us.ihmc.pathPlanning.visibilityGraphs.dataStructure.VisibilityGraphEdge;
@@ -967,6 +968,109 @@ public class VisibilityGraphTest
 
    }
 
+   @Test
+   public void testInterRegionConnectionsMatchBruteForceAndCache()
+   {
+      VisibilityGraphsParametersReadOnly parameters = createVisibilityGraphParametersForTest();
+      InterRegionConnectionCache cache = new InterRegionConnectionCache();
+
+      List<PlanarRegion> planarRegions = createSteppingStones(0.0);
+      VisibilityGraph visibilityGraph = createFullyExpandedVisibilityGraph(parameters, planarRegions, cache);
+      assertInterRegionEdgesEqual(computeInterRegionEdgesWithNestedLoop(parameters, planarRegions), visibilityGraph.getCrossRegionEdges());
+      assertEquals(0, cache.getNumberOfHits());
+      assertTrue(cache.size() > 0);
+
+      // Same regions, every pair that can connect should come from the cache.
+      int numberOfCachedPairs = cache.size();
+      visibilityGraph = createFullyExpandedVisibilityGraph(parameters, createSteppingStones(0.0), cache);
+      assertInterRegionEdgesEqual(computeInterRegionEdgesWithNestedLoop(parameters, planarRegions), visibilityGraph.getCrossRegionEdges());
+      assertEquals(numberOfCachedPairs, cache.getNumberOfHits());
+      assertEquals(0, cache.getNumberOfMisses());
+
+      // Moving one stone only invalidates the pairs it is part of.
+      planarRegions = createSteppingStones(0.2);
+      visibilityGraph = createFullyExpandedVisibilityGraph(parameters, planarRegions, cache);
+      assertInterRegionEdgesEqual(computeInterRegionEdgesWithNestedLoop(parameters, planarRegions), visibilityGraph.getCrossRegionEdges());
+      assertTrue(cache.getNumberOfHits() > 0);
+      assertTrue(cache.getNumberOfMisses() > 0);
+   }
+
+   private static List<PlanarRegion> createSteppingStones(double firstStoneOffset)
+   {
+      List<PlanarRegion> planarRegions = new ArrayList<>();
+      Random random = new Random(3290L);
+
+      for (int i = 0; i < 40; i++)
+      {
+         // Half of the stones are far from the others and never connect to them.
+         double x = 1.2 * (i % 5) + (i < 20 ? 0.0 : 50.0);
+         double y = 1.2 * ((i / 5) % 4);
+
+         RigidBodyTransform transform = new RigidBodyTransform();
+         transform.getTranslation().set(x, y, 0.1 * random.nextDouble());
+         if (i == 0)
+            transform.getTranslation().addX(firstStoneOffset);
+
+         ConvexPolygon2D polygon = new ConvexPolygon2D(Vertex2DSupplier.asVertex2DSupplier(new Point2D(0.0, 0.0), new Point2D(0.0, 1.0),
+                                                                                           new Point2D(1.0, 1.0), new Point2D(1.0, 0.0)));
+         PlanarRegion planarRegion = new PlanarRegion(transform, polygon);
+         planarRegion.setRegionId(i + 1);
+         planarRegions.add(planarRegion);
+      }
+
+      return planarRegions;
+   }
+
+   private static VisibilityGraph createFullyExpandedVisibilityGraph(VisibilityGraphsParametersReadOnly parameters, List<PlanarRegion> planarRegions,
+                                                                     InterRegionConnectionCache cache)
+   {
+      NavigableRegions navigableRegions = new NavigableRegions(parameters, planarRegions);
+      navigableRegions.createNavigableRegions();
+
+      VisibilityGraph visibilityGraph = new VisibilityGraph(navigableRegions, parameters.getInterRegionConnectionFilter(),
+                                                            parameters.getPreferredToPreferredInterRegionConnectionFilter(),
+                                                            parameters.getPreferredToNonPreferredInterRegionConnectionFilter(), parameters);
+      visibilityGraph.setInterRegionConnectionCache(cache);
+      visibilityGraph.fullyExpandVisibilityGraph();
+      return visibilityGraph;
+   }
+
+   private static List<VisibilityGraphEdge> computeInterRegionEdgesWithNestedLoop(VisibilityGraphsParametersReadOnly parameters,
+                                                                                  List<PlanarRegion> planarRegions)
+   {
+      NavigableRegions navigableRegions = new NavigableRegions(parameters, planarRegions);
+      navigableRegions.createNavigableRegions();
+
+      VisibilityGraph visibilityGraph = new VisibilityGraph(navigableRegions, parameters.getInterRegionConnectionFilter(),
+                                                            parameters.getPreferredToPreferredInterRegionConnectionFilter(),
+                                                            parameters.getPreferredToNonPreferredInterRegionConnectionFilter(), parameters);
+      List<VisibilityGraphNavigableRegion> regions = visibilityGraph.getVisibilityGraphNavigableRegions();
+
+      for (int sourceIndex = 0; sourceIndex < regions.size(); sourceIndex++)
+      {
+         for (int targetIndex = sourceIndex + 1; targetIndex < regions.size(); targetIndex++)
+            visibilityGraph.createInterRegionVisibilityConnections(regions.get(sourceIndex), regions.get(targetIndex));
+      }
+
+      return visibilityGraph.getCrossRegionEdges();
+   }
+
+   private static void assertInterRegionEdgesEqual(List<VisibilityGraphEdge> expectedEdges, List<VisibilityGraphEdge> actualEdges)
+   {
+      assertFalse(expectedEdges.isEmpty());
+      assertEquals(expectedEdges.size(), actualEdges.size());
+
+      for (int i = 0; i < expectedEdges.size(); i++)
+      {
+         VisibilityGraphEdge expectedEdge = expectedEdges.get(i);
+         VisibilityGraphEdge actualEdge = actualEdges.get(i);
+         assertTrue(expectedEdge.getSourcePointInWorld().epsilonEquals(actualEdge.getSourcePointInWorld(), EPSILON));
+         assertTrue(expectedEdge.getTargetPointInWorld().epsilonEquals(actualEdge.getTargetPointInWorld(), EPSILON));
+         assertEquals(expectedEdge.getEdgeWeight(), actualEdge.getEdgeWeight(), EPSILON);
+         assertTrue(actualEdge.getSourceNode().getEdges().contains(actualEdge));
+      }
+   }
+
    private VisibilityGraphsParametersBasics createVisibilityGraphParametersForTest()
    {
       VisibilityGraphsParametersBasics parameters = new DefaultVisibilityGraphParameters()
@@ -1,5 +1,7 @@
 package us.ihmc.ihmcPerception.camera;
 
+import java.nio.ByteBuffer;
+
 import boofcv.struct.calib.CameraPinholeBrown;
 import controller_msgs.msg.dds.VideoPacket;
 import us.ihmc.commons.time.Stopwatch;
@@ -21,6 +23,9 @@ public class VideoPacketHandler implements CompressedVideoHandler
    private final IHMCROS2Publisher<VideoPacket> publisher;
 
    private volatile boolean enable = true;
+   /** Reused for the frames received as a buffer, the publisher serializes the message before returning. */
+   private final VideoPacket reusableMessage = new VideoPacket();
+   private byte[] dataBuffer = new byte[0];
 
    public VideoPacketHandler(ROS2Node ros2Node)
    {
@@ -59,6 +64,32 @@ public class VideoPacketHandler implements CompressedVideoHandler
       publisher.publish(message);
    }
 
+   @Override
+   public synchronized void onFrame(VideoSource videoSource, ByteBuffer data, long timeStamp, Point3DReadOnly position, QuaternionReadOnly orientation,
+                                    CameraPinholeBrown intrinsicParameters)
+   {
+      if (!enable)
+         return;
+
+      reusableMessage.setVideoSource(videoSource.toByte());
+      reusableMessage.setTimestamp(timeStamp);
+      // The encoder's buffer is usually direct, it is copied in bulk through an array that grows with the frames.
+      int length = data.remaining();
+      if (dataBuffer.length < length)
+         dataBuffer = new byte[length];
+      data.get(dataBuffer, 0, length);
+      reusableMessage.getData().resetQuick();
+      reusableMessage.getData().add(dataBuffer, 0, length);
+      reusableMessage.getPosition().set(position);
+      reusableMessage.getOrientation().set(orientation);
+      HumanoidMessageTools.packIntrinsicParametersMessage(intrinsicParameters, reusableMessage.getIntrinsicParameters());
+
+      if (!enable)
+         return;
+
+      publisher.publish(reusableMessage);
+   }
+
    @Override
    public void addNetStateListener(ConnectionStateListener compressedVideoDataServer)
    {
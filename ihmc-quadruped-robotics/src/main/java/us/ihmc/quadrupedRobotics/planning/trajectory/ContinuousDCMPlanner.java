@@ -3,12 +3,16 @@ package us.ihmc.quadrupedRobotics.planning.trajectory;
 import java.util.List;
 
 import us.ihmc.commonWalkingControlModules.capturePoint.CapturePointTools;
+import us.ihmc.commons.Epsilons;
 import us.ihmc.commons.MathTools;
 import us.ihmc.euclid.referenceFrame.FramePoint3D;
 import us.ihmc.euclid.referenceFrame.FrameVector3D;
 import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.euclid.referenceFrame.interfaces.FixedFramePoint3DBasics;
+import us.ihmc.euclid.referenceFrame.interfaces.FixedFrameVector3DBasics;
 import us.ihmc.euclid.referenceFrame.interfaces.FramePoint3DReadOnly;
 import us.ihmc.euclid.referenceFrame.interfaces.FrameVector3DReadOnly;
+import us.ihmc.euclid.tuple3D.interfaces.Tuple3DReadOnly;
 import us.ihmc.graphicsDescription.appearance.YoAppearance;
 import us.ihmc.graphicsDescription.yoGraphics.YoGraphicPosition;
 import us.ihmc.graphicsDescription.yoGraphics.YoGraphicsList;
@@ -103,6 +107,20 @@ public class ContinuousDCMPlanner implements DCMPlannerInterface
    private final FramePoint3D tempPoint = new FramePoint3D();
    private final FrameVector3D tempVector = new FrameVector3D();
 
+   private final DCMPlannerParameters yoDcmPlannerParameters;
+   /** Fingerprint of the inputs the current plan was computed from, the plan is only recomputed when it changes. */
+   private long planInputFingerprint;
+   private boolean isPlanValid = false;
+   private final YoBoolean planWasRecomputed = new YoBoolean("plannerPlanWasRecomputed", registry);
+
+   /**
+    * Coefficients of the two DCM splines, expressed in world, used to evaluate the preview without
+    * touching the state of the planner: for each spline, the initial and final times followed by the
+    * four cubic coefficients of each axis.
+    */
+   private final double[] splineCoefficientTable = new double[2 * SPLINE_TABLE_STRIDE];
+   private static final int SPLINE_TABLE_STRIDE = 2 + 3 * 4;
+
    public ContinuousDCMPlanner(DCMPlannerParameters dcmPlannerParameters, double nominalHeight, double gravity,ReferenceFrame supportFrame,
                                QuadrantDependentList<MovingReferenceFrame> soleFrames, YoRegistry parentRegistry, YoGraphicsListRegistry yoGraphicsListRegistry)
    {
@@ -120,7 +138,7 @@ public class ContinuousDCMPlanner implements DCMPlannerInterface
       splineFinalPosition = new FramePoint3D(supportFrame);
       splineFinalVelocity = new FrameVector3D(supportFrame);
 
-      DCMPlannerParameters yoDcmPlannerParameters = new YoDCMPlannerParameters(dcmPlannerParameters, registry);
+      yoDcmPlannerParameters = new YoDCMPlannerParameters(dcmPlannerParameters, registry);
       dcmTrajectory = new PiecewiseReverseDcmTrajectory(STEP_SEQUENCE_CAPACITY, omega, gravity, registry);
       piecewiseConstantCopTrajectory = new QuadrupedPiecewiseConstantCopTrajectory(2 * STEP_SEQUENCE_CAPACITY, yoDcmPlannerParameters, registry);
 
@@ -165,6 +183,7 @@ public class ContinuousDCMPlanner implements DCMPlannerInterface
    @Override
    public void initialize()
    {
+      isPlanValid = false;
    }
 
    @Override
@@ -327,6 +346,173 @@ public class ContinuousDCMPlanner implements DCMPlannerInterface
       splineFinalVelocity.setMatchingFrame(dcmVelocityAtEndOfSecondSpline);
       dcmSecondSpline.setCubic(secondSplineStartTime.getDoubleValue(), secondSplineEndTime.getDoubleValue(), splineInitialPosition, splineInitialVelocity,
                                splineFinalPosition, splineFinalVelocity);
+
+      setSplineCoefficients(0, firstSplineStartTime.getDoubleValue(), firstSplineEndTime.getDoubleValue(), dcmPositionAtStartOfFirstSpline,
+                            dcmVelocityAtStartOfFirstSpline, dcmPositionAtEndOfFirstSpline, dcmVelocityAtEndOfFirstSpline);
+      setSplineCoefficients(1, secondSplineStartTime.getDoubleValue(), secondSplineEndTime.getDoubleValue(), dcmPositionAtStartOfSecondSpline,
+                            dcmVelocityAtStartOfSecondSpline, dcmPositionAtEndOfSecondSpline, dcmVelocityAtEndOfSecondSpline);
+   }
+
+   private void setSplineCoefficients(int spline, double initialTime, double finalTime, FramePoint3DReadOnly initialPosition,
+                                      FrameVector3DReadOnly initialVelocity, FramePoint3DReadOnly finalPosition, FrameVector3DReadOnly finalVelocity)
+   {
+      int index = spline * SPLINE_TABLE_STRIDE;
+      double duration = finalTime - initialTime;
+      splineCoefficientTable[index++] = initialTime;
+      splineCoefficientTable[index++] = finalTime;
+
+      for (int axis = 0; axis < 3; axis++)
+      {
+         double p0 = initialPosition.getElement(axis);
+         double v0 = initialVelocity.getElement(axis);
+         double p1 = finalPosition.getElement(axis);
+         double v1 = finalVelocity.getElement(axis);
+
+         // cubic Hermite spline in the time since the start of the spline
+         splineCoefficientTable[index++] = p0;
+         splineCoefficientTable[index++] = v0;
+         splineCoefficientTable[index++] = (3.0 * (p1 - p0) / duration - 2.0 * v0 - v1) / duration;
+         splineCoefficientTable[index++] = (2.0 * (p0 - p1) / duration + v0 + v1) / (duration * duration);
+      }
+   }
+
+   private boolean splineContains(int spline, double time)
+   {
+      int index = spline * SPLINE_TABLE_STRIDE;
+      return MathTools.intervalContains(time, splineCoefficientTable[index], splineCoefficientTable[index + 1], Epsilons.ONE_MILLIONTH);
+   }
+
+   private void computeSpline(int spline, double time, FixedFramePoint3DBasics positionToPack, FixedFrameVector3DBasics velocityToPack)
+   {
+      int index = spline * SPLINE_TABLE_STRIDE;
+      double t = time - splineCoefficientTable[index];
+      index += 2;
+
+      tempPoint.setToZero(worldFrame);
+      tempVector.setToZero(worldFrame);
+
+      for (int axis = 0; axis < 3; axis++)
+      {
+         double c0 = splineCoefficientTable[index++];
+         double c1 = splineCoefficientTable[index++];
+         double c2 = splineCoefficientTable[index++];
+         double c3 = splineCoefficientTable[index++];
+         tempPoint.setElement(axis, c0 + t * (c1 + t * (c2 + t * c3)));
+         tempVector.setElement(axis, c1 + t * (2.0 * c2 + t * 3.0 * c3));
+      }
+
+      positionToPack.setMatchingFrame(tempPoint);
+      if (velocityToPack != null)
+         velocityToPack.setMatchingFrame(tempVector);
+   }
+
+   /**
+    * Samples the desired DCM over the whole preview at once, for visualization or for a consumer
+    * optimizing over the plan. The plan computed during the last call to
+    * {@link #computeSetpoints(double, List, List)} is evaluated from its coefficients, the state of
+    * the planner is not modified. The evaluation is the quickest when the times are increasing.
+    *
+    * @param times               the times at which to sample the plan.
+    * @param numberOfTimes       the number of times to use from {@code times}.
+    * @param dcmPositionsToPack  the sampled DCM positions. Modified.
+    * @param dcmVelocitiesToPack the sampled DCM velocities, can be {@code null}. Modified.
+    */
+   public void computePreview(double[] times, int numberOfTimes, List<? extends FixedFramePoint3DBasics> dcmPositionsToPack,
+                              List<? extends FixedFrameVector3DBasics> dcmVelocitiesToPack)
+   {
+      boolean isPlanAvailable = isPlanValid && !isStanding.getBooleanValue() && !holdPosition.getBooleanValue();
+      int step = 0;
+
+      for (int i = 0; i < numberOfTimes; i++)
+      {
+         FixedFramePoint3DBasics dcmPositionToPack = dcmPositionsToPack.get(i);
+         FixedFrameVector3DBasics dcmVelocityToPack = dcmVelocitiesToPack == null ? null : dcmVelocitiesToPack.get(i);
+         double time = times[i];
+
+         if (!isPlanAvailable)
+         {
+            dcmPositionToPack.setMatchingFrame(desiredDCMPosition);
+            if (dcmVelocityToPack != null)
+               dcmVelocityToPack.setMatchingFrame(desiredDCMVelocity);
+         }
+         else if (splineContains(0, time))
+         {
+            computeSpline(0, time, dcmPositionToPack, dcmVelocityToPack);
+         }
+         else if (splineContains(1, time))
+         {
+            computeSpline(1, time, dcmPositionToPack, dcmVelocityToPack);
+         }
+         else
+         {
+            tempPoint.setToZero(worldFrame);
+            tempVector.setToZero(worldFrame);
+            step = dcmTrajectory.compute(time, step, tempPoint, tempVector);
+            dcmPositionToPack.setMatchingFrame(tempPoint);
+            if (dcmVelocityToPack != null)
+               dcmVelocityToPack.setMatchingFrame(tempVector);
+         }
+      }
+   }
+
+   /**
+    * Hashes everything the contact sequence, the center of pressure plan and the DCM corner points
+    * are computed from.
+    */
+   private long computePlanInputFingerprint(List<RobotQuadrant> currentFeetInContact, List<? extends QuadrupedTimedStep> stepSequence)
+   {
+      long hash = hash(1L, timeAtStartOfState.getDoubleValue());
+      hash = hash(hash, omega.getDoubleValue());
+      hash = hash(hash, comHeight.getDoubleValue());
+
+      for (RobotQuadrant robotQuadrant : RobotQuadrant.values)
+      {
+         if (!currentFeetInContact.contains(robotQuadrant))
+            continue;
+
+         hash = hash(hash, robotQuadrant.ordinal());
+         Tuple3DReadOnly solePosition = soleFrames.get(robotQuadrant).getTransformToWorldFrame().getTranslation();
+         hash = hash(hash, solePosition.getX());
+         hash = hash(hash, solePosition.getY());
+         hash = hash(hash, solePosition.getZ());
+      }
+
+      hash = hash(hash, stepSequence.size());
+      for (int i = 0; i < stepSequence.size(); i++)
+      {
+         QuadrupedTimedStep step = stepSequence.get(i);
+         hash = hash(hash, step.getRobotQuadrant().ordinal());
+         hash = hash(hash, step.getTimeInterval().getStartTime());
+         hash = hash(hash, step.getTimeInterval().getEndTime());
+         hash = hash(hash, step.getGoalPosition().getX());
+         hash = hash(hash, step.getGoalPosition().getY());
+         hash = hash(hash, step.getGoalPosition().getZ());
+      }
+
+      hash = hash(hash, yoDcmPlannerParameters.getSafeDistanceFromSupportPolygonEdges());
+      hash = hash(hash, yoDcmPlannerParameters.getStanceWidthCoPShiftFactor());
+      hash = hash(hash, yoDcmPlannerParameters.getStanceLengthCoPShiftFactor());
+      hash = hash(hash, yoDcmPlannerParameters.getMaxStanceWidthCoPShift());
+      hash = hash(hash, yoDcmPlannerParameters.getMaxStanceLengthCoPShift());
+      hash = hash(hash, yoDcmPlannerParameters.getStepWidthCoPShiftFactor());
+      hash = hash(hash, yoDcmPlannerParameters.getStepLengthCoPShiftFactor());
+      hash = hash(hash, yoDcmPlannerParameters.getMaxStepWidthCoPShift());
+      hash = hash(hash, yoDcmPlannerParameters.getMaxStepLengthCoPShift());
+      hash = hash(hash, yoDcmPlannerParameters.getMaximumWeightShiftForward());
+      hash = hash(hash, yoDcmPlannerParameters.getAngleForMaxWeightShiftForward());
+      return hash;
+   }
+
+   private static long hash(long hash, double value)
+   {
+      return hash(hash, Double.doubleToLongBits(value));
+   }
+
+   private static long hash(long hash, long value)
+   {
+      hash ^= value;
+      hash *= 0x9E3779B97F4A7C15L;
+      return hash ^ (hash >>> 29);
    }
 
 
@@ -359,7 +545,16 @@ public class ContinuousDCMPlanner implements DCMPlannerInterface
       }
       else
       {
-         computeDcmTrajectory(currentFeetInContact, stepSequence);
+         // the contact sequence, the center of pressure plan and the DCM corner points only change with the inputs
+         long fingerprint = computePlanInputFingerprint(currentFeetInContact, stepSequence);
+         planWasRecomputed.set(!isPlanValid || fingerprint != planInputFingerprint);
+
+         if (planWasRecomputed.getBooleanValue())
+         {
+            computeDcmTrajectory(currentFeetInContact, stepSequence);
+            planInputFingerprint = fingerprint;
+            isPlanValid = true;
+         }
 
          if (isInitialTransfer.getBooleanValue())
             computeInitialTransitionTrajectory();
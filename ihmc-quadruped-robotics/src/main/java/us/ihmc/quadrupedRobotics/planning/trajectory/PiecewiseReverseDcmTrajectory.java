@@ -12,6 +12,7 @@ import us.ihmc.euclid.referenceFrame.ReferenceFrame;
 import us.ihmc.euclid.referenceFrame.interfaces.FixedFramePoint3DBasics;
 import us.ihmc.euclid.referenceFrame.interfaces.FixedFrameVector3DBasics;
 import us.ihmc.euclid.referenceFrame.interfaces.FramePoint3DReadOnly;
+import us.ihmc.euclid.tuple3D.interfaces.Tuple3DBasics;
 import us.ihmc.graphicsDescription.appearance.YoAppearance;
 import us.ihmc.graphicsDescription.yoGraphics.YoGraphicPosition;
 import us.ihmc.graphicsDescription.yoGraphics.YoGraphicsList;
@@ -31,9 +32,23 @@ public class PiecewiseReverseDcmTrajectory
    private final int maxSteps;
    private int numberOfSteps;
    private final double[] timesAtStartOfSteps;
+
+   /**
+    * Coefficient table of the trajectory: for each step, the VRP and the DCM position at its start,
+    * packed as x, y, z, and the exponential decay over the step. Only the entries affected by a change
+    * of the inputs are recomputed.
+    */
+   private final double[] vrpCornerTable;
+   private final double[] dcmCornerTable;
+   private final double[] exponentialOverStep;
+   private final double[] stepDurations;
+   private double omegaForTable = Double.NaN;
+   private boolean isTableValid = false;
+   private int numberOfRecomputedCorners = 0;
    private final List<YoFramePoint3D> dcmCornerPoints = new ArrayList<>();
    private final List<YoFramePoint3D> vrpCornerPoints = new ArrayList<>();
 
+   private final FramePoint3D tempPoint = new FramePoint3D();
    private final FramePoint3D dcmPosition = new FramePoint3D();
    private final FramePoint3D dcmPositionAtEndOfSwing = new FramePoint3D();
    private final FrameVector3D dcmVelocity = new FrameVector3D();
@@ -56,6 +71,10 @@ public class PiecewiseReverseDcmTrajectory
 
       numberOfSteps = maxSteps;
       timesAtStartOfSteps = new double[maxSteps + 1];
+      vrpCornerTable = new double[3 * maxSteps];
+      dcmCornerTable = new double[3 * (maxSteps + 1)];
+      exponentialOverStep = new double[maxSteps];
+      stepDurations = new double[maxSteps];
       for (int i = 0; i < maxSteps + 1; i++)
       {
          dcmCornerPoints.add(new YoFramePoint3D("dcmCornerPoint" + i, worldFrame, registry));
@@ -71,7 +90,13 @@ public class PiecewiseReverseDcmTrajectory
 
    public void resetVariables()
    {
-      for (int i = 0; i < dcmCornerPoints.size(); i ++)
+      resetVariables(0);
+      isTableValid = false;
+   }
+
+   private void resetVariables(int fromCorner)
+   {
+      for (int i = fromCorner; i < dcmCornerPoints.size(); i ++)
       {
          dcmCornerPoints.get(i).setToNaN();
          vrpCornerPoints.get(i).setToNaN();
@@ -108,6 +133,11 @@ public class PiecewiseReverseDcmTrajectory
    /**
     * Computes a piecewise DCM trajectory assuming a constant CMP during each step. The DCM dynamics
     * are integrated in reverse time given a desired final DCM position at the end of the final step.
+    * <p>
+    * The DCM at the start of a step only depends on the following steps, so when the inputs are
+    * compared to the previous call, only the DCM corner points up to the last changed step are
+    * recomputed.
+    * </p>
     *
     * @param numberOfSteps number of steps
     * @param timesAtStartOfSteps time at the start of each step
@@ -118,7 +148,6 @@ public class PiecewiseReverseDcmTrajectory
    public void initializeTrajectory(int numberOfSteps, List<MutableDouble> timesAtStartOfSteps, List<? extends FramePoint3DReadOnly> cmpPositionAtStartOfSteps,
                                     double finalTime, FramePoint3DReadOnly finalDcmPosition)
    {
-      resetVariables();
       double omega = this.omega.getValue();
       double nominalDeltaZ = gravity / MathTools.square(omega);
 
@@ -127,51 +156,123 @@ public class PiecewiseReverseDcmTrajectory
       {
          throw new RuntimeException("number of steps exceeds the maximum buffer size");
       }
+
+      // everything has to be recomputed when the end of the trajectory moves
+      boolean recomputeAll = !isTableValid || numberOfSteps != this.numberOfSteps || omega != omegaForTable || finalTime != this.timesAtStartOfSteps[numberOfSteps];
+      if (numberOfSteps < this.numberOfSteps)
+         resetVariables(numberOfSteps + 1);
       this.numberOfSteps = numberOfSteps;
+      omegaForTable = omega;
+
+      int lastChangedStep = recomputeAll ? numberOfSteps - 1 : -1;
 
       // compute dcm position at start of each step assuming a piecewise constant vrp trajectory
       for (int i = 0; i < numberOfSteps; i++)
       {
-         this.timesAtStartOfSteps[i] = timesAtStartOfSteps.get(i).doubleValue();
-         vrpCornerPoints.get(i).setMatchingFrame(cmpPositionAtStartOfSteps.get(i));
-         vrpCornerPoints.get(i).addZ(nominalDeltaZ);
+         double timeAtStartOfStep = timesAtStartOfSteps.get(i).doubleValue();
+         tempPoint.setMatchingFrame(cmpPositionAtStartOfSteps.get(i));
+         tempPoint.addZ(nominalDeltaZ);
+
+         int index = 3 * i;
+         if (recomputeAll || timeAtStartOfStep != this.timesAtStartOfSteps[i] || tempPoint.getX() != vrpCornerTable[index] || tempPoint.getY() != vrpCornerTable[index + 1]
+               || tempPoint.getZ() != vrpCornerTable[index + 2])
+         {
+            // the duration of the previous step changed too
+            lastChangedStep = i;
+            this.timesAtStartOfSteps[i] = timeAtStartOfStep;
+            tempPoint.get(index, vrpCornerTable);
+            vrpCornerPoints.get(i).set(tempPoint);
+         }
       }
       this.timesAtStartOfSteps[numberOfSteps] = finalTime;
 
-      dcmCornerPoints.get(numberOfSteps).setMatchingFrame(finalDcmPosition);
+      tempPoint.setMatchingFrame(finalDcmPosition);
+      int finalIndex = 3 * numberOfSteps;
+      if (recomputeAll || tempPoint.getX() != dcmCornerTable[finalIndex] || tempPoint.getY() != dcmCornerTable[finalIndex + 1] || tempPoint.getZ() != dcmCornerTable[finalIndex + 2])
+      {
+         lastChangedStep = numberOfSteps - 1;
+         tempPoint.get(finalIndex, dcmCornerTable);
+         dcmCornerPoints.get(numberOfSteps).set(tempPoint);
+      }
+
+      numberOfRecomputedCorners = lastChangedStep + 1;
 
-      for (int i = numberOfSteps - 1; i >= 0; i--)
+      for (int i = lastChangedStep; i >= 0; i--)
       {
-         dcmCornerPoints.get(i).set(dcmCornerPoints.get(i + 1));
-         dcmCornerPoints.get(i).sub(vrpCornerPoints.get(i));
-         dcmCornerPoints.get(i).scale(Math.exp(-omega * (this.timesAtStartOfSteps[i + 1] - this.timesAtStartOfSteps[i])));
-         dcmCornerPoints.get(i).add(vrpCornerPoints.get(i));
+         double stepDuration = this.timesAtStartOfSteps[i + 1] - this.timesAtStartOfSteps[i];
+         if (recomputeAll || stepDuration != stepDurations[i])
+         {
+            stepDurations[i] = stepDuration;
+            exponentialOverStep[i] = Math.exp(-omega * stepDuration);
+         }
+
+         double exponential = exponentialOverStep[i];
+         int index = 3 * i;
+         for (int axis = 0; axis < 3; axis++)
+         {
+            double vrp = vrpCornerTable[index + axis];
+            dcmCornerTable[index + axis] = vrp + exponential * (dcmCornerTable[index + 3 + axis] - vrp);
+         }
+         dcmCornerPoints.get(i).set(index, dcmCornerTable);
       }
       this.initialized = true;
+      isTableValid = true;
       computeTrajectory(this.timesAtStartOfSteps[0]);
    }
 
+   /**
+    * Returns how many DCM corner points had to be recomputed during the last call to
+    * {@link #initializeTrajectory(int, List, List, double, FramePoint3DReadOnly)}.
+    */
+   public int getNumberOfRecomputedCorners()
+   {
+      return numberOfRecomputedCorners;
+   }
 
    public void computeTrajectory(double currentTime)
+   {
+      if (!initialized)
+         throw new RuntimeException("trajectory must be initialized before calling computeTrajectory");
+
+      int step = compute(currentTime, numberOfSteps - 1, dcmPosition, dcmVelocity);
+      dcmPositionAtEndOfSwing.set(3 * (step + 1), dcmCornerTable);
+   }
+
+   /**
+    * Evaluates the trajectory at the given time without modifying the state of this trajectory.
+    *
+    * @param time            the time at which to evaluate the trajectory, clamped to the trajectory
+    *                        time interval.
+    * @param stepToStartFrom the search for the step containing the time goes backward from this step.
+    *                        When evaluating increasing times, passing the step returned by the
+    *                        previous call keeps the search short.
+    * @return the step containing the given time.
+    */
+   public int compute(double time, int stepToStartFrom, Tuple3DBasics dcmPositionToPack, Tuple3DBasics dcmVelocityToPack)
    {
       if (!initialized)
          throw new RuntimeException("trajectory must be initialized before calling computeTrajectory");
 
       // compute constant virtual repellent point trajectory between steps
-      currentTime = Math.min(Math.max(currentTime, timesAtStartOfSteps[0]), timesAtStartOfSteps[numberOfSteps]);
+      time = Math.min(Math.max(time, timesAtStartOfSteps[0]), timesAtStartOfSteps[numberOfSteps]);
       double omega = this.omega.getValue();
-      for (int i = numberOfSteps - 1; i >= 0; i--)
-      {
-         if (currentTime >= timesAtStartOfSteps[i])
-         {
-            double exponential = Math.exp(omega * (currentTime - timesAtStartOfSteps[i]));
-            dcmPositionAtEndOfSwing.set(dcmCornerPoints.get(i + 1));
-            dcmPosition.interpolate(vrpCornerPoints.get(i), dcmCornerPoints.get(i), exponential);
-            dcmVelocity.sub(dcmPosition, vrpCornerPoints.get(i));
-            dcmVelocity.scale(omega);
-            break;
-         }
-      }
+
+      int step = MathTools.clamp(stepToStartFrom, 0, numberOfSteps - 1);
+      while (step < numberOfSteps - 1 && time >= timesAtStartOfSteps[step + 1])
+         step++;
+      while (step > 0 && time < timesAtStartOfSteps[step])
+         step--;
+
+      double exponential = Math.exp(omega * (time - timesAtStartOfSteps[step]));
+      int index = 3 * step;
+      double x = vrpCornerTable[index] + exponential * (dcmCornerTable[index] - vrpCornerTable[index]);
+      double y = vrpCornerTable[index + 1] + exponential * (dcmCornerTable[index + 1] - vrpCornerTable[index + 1]);
+      double z = vrpCornerTable[index + 2] + exponential * (dcmCornerTable[index + 2] - vrpCornerTable[index + 2]);
+      dcmPositionToPack.set(x, y, z);
+      if (dcmVelocityToPack != null)
+         dcmVelocityToPack.set(omega * (x - vrpCornerTable[index]), omega * (y - vrpCornerTable[index + 1]), omega * (z - vrpCornerTable[index + 2]));
+
+      return step;
    }
 
    public double getStartTime()
@@ -48,6 +48,15 @@ public class QuadrupedPiecewiseConstantCopTrajectory
    private final WeightDistributionCalculator weightDistributionCalculator;
    private final DCMPlannerParameters plannerParameters;
 
+   /**
+    * The center of pressure of an interval only depends on its contact state, its sole positions, the
+    * next steps and the parameters. These are hashed into a fingerprint for each interval, so the
+    * intervals left unchanged since the previous call can reuse their center of pressure.
+    */
+   private IntervalCache intervalCache;
+   private IntervalCache previousIntervalCache;
+   private int numberOfRecomputedIntervals = 0;
+
    public QuadrupedPiecewiseConstantCopTrajectory(int maxIntervals, DCMPlannerParameters plannerParameters, YoRegistry registry)
    {
       this.plannerParameters = plannerParameters;
@@ -55,6 +64,8 @@ public class QuadrupedPiecewiseConstantCopTrajectory
 
       copPositionAtCurrentTime = new FramePoint3D();
       numberOfIntervals = 0;
+      intervalCache = new IntervalCache(maxIntervals);
+      previousIntervalCache = new IntervalCache(maxIntervals);
       timeAtStartOfInterval = new ArrayList<>(maxIntervals);
       timeAtEndOfInterval = new ArrayList<>(maxIntervals);
       copPositionsAtStartOfInterval = new ArrayList<>(maxIntervals);
@@ -84,11 +95,20 @@ public class QuadrupedPiecewiseConstantCopTrajectory
 
    public void resetVariables()
    {
-      for (int i = 0; i < copPositionsAtStartOfInterval.size(); i++)
+      resetVariables(0);
+      intervalCache.size = 0;
+   }
+
+   /**
+    * Only resets the intervals past the given one, the others are about to be set.
+    */
+   private void resetVariables(int fromInterval)
+   {
+      for (int i = fromInterval; i < copPositionsAtStartOfInterval.size(); i++)
       {
          copPositionsAtStartOfInterval.get(i).setToNaN();
       }
-      for (int i = 0; i < stanceShifts.size(); i++)
+      for (int i = fromInterval; i < stanceShifts.size(); i++)
       {
          stanceShifts.get(i).setToNaN();
          stepShifts.get(i).setToNaN();
@@ -111,7 +131,8 @@ public class QuadrupedPiecewiseConstantCopTrajectory
    private final FrameVector3D copOffsetFromSteps = new FrameVector3D();
 
    /**
-    * compute piecewise constant center of pressure plan given the upcoming contact states
+    * compute piecewise constant center of pressure plan given the upcoming contact states. The center
+    * of pressure is only recomputed for the intervals that changed since the previous call.
     * @param timedContactSequence contact sequence (input)
     */
    public void initializeTrajectory(double currentTime, QuadrupedTimedContactSequence timedContactSequence,
@@ -122,31 +143,63 @@ public class QuadrupedPiecewiseConstantCopTrajectory
          throw new RuntimeException("Input contact sequence must have at least one time interval.");
       }
 
-      resetVariables();
-
+      int previousNumberOfIntervals = numberOfIntervals;
       numberOfIntervals = timedContactSequence.size();
+      if (numberOfIntervals < previousNumberOfIntervals)
+         resetVariables(numberOfIntervals);
+
+      IntervalCache swap = previousIntervalCache;
+      previousIntervalCache = intervalCache;
+      intervalCache = swap;
+      intervalCache.size = numberOfIntervals;
+
+      // the next steps are the same for all the intervals
+      findNextSteps(currentTime, stepSequence);
+      long commonHash = hashParameters(hashNextSteps(INITIAL_HASH));
+
+      numberOfRecomputedIntervals = 0;
+      // the intervals are in chronological order, so a cached interval matching an interval can't match the following ones
+      int firstCachedIntervalToSearch = 0;
+
       for (int interval = 0; interval < numberOfIntervals; interval++)
       {
          QuadrantDependentList<FramePoint3D> solePosition = timedContactSequence.get(interval).getSolePosition();
          QuadrantDependentList<ContactState> contactState = timedContactSequence.get(interval).getContactState();
          FixedFramePoint3DBasics copPositionAtStartOfInterval = copPositionsAtStartOfInterval.get(interval);
 
-         QuadrupedCenterOfPressureTools.computeNominalNormalizedContactPressure(normalizedPressureAtStartOfInterval.get(interval), contactState, solePosition,
-                                                                                weightDistributionCalculator);
-         QuadrupedCenterOfPressureTools.computeCenterOfPressure(copPositionAtStartOfInterval, solePosition, normalizedPressureAtStartOfInterval.get(interval));
+         long fingerprint = hashInterval(commonHash, contactState, solePosition);
+         int cachedInterval = previousIntervalCache.find(fingerprint, firstCachedIntervalToSearch);
+
+         if (cachedInterval >= 0)
+         {
+            firstCachedIntervalToSearch = cachedInterval + 1;
+            intervalCache.copy(previousIntervalCache, cachedInterval, interval);
+            intervalCache.getCopPosition(interval, copPositionAtStartOfInterval);
+            intervalCache.getOffsets(interval, copOffsetFromStance, copOffsetFromSteps);
+         }
+         else
+         {
+            QuadrupedCenterOfPressureTools.computeNominalNormalizedContactPressure(normalizedPressureAtStartOfInterval.get(interval), contactState, solePosition,
+                                                                                   weightDistributionCalculator);
+            QuadrupedCenterOfPressureTools.computeCenterOfPressure(copPositionAtStartOfInterval, solePosition, normalizedPressureAtStartOfInterval.get(interval));
+
+            computeCoPOffsetFromStance(contactState, solePosition, copOffsetFromStance);
+            computeCoPOffsetFromSteps(contactState, solePosition, copOffsetFromSteps);
 
-         computeCoPOffsetFromStance(contactState, solePosition, copOffsetFromStance);
-         computeCoPOffsetFromSteps(currentTime, contactState, solePosition, stepSequence, copOffsetFromSteps);
+            copPositionAtStartOfInterval.add(copOffsetFromStance);
+            copPositionAtStartOfInterval.add(copOffsetFromSteps);
+
+            constrainToPolygon(contactState, solePosition, copPositionAtStartOfInterval);
+
+            intervalCache.set(interval, fingerprint, copPositionAtStartOfInterval, copOffsetFromStance, copOffsetFromSteps);
+            numberOfRecomputedIntervals++;
+         }
 
          if (interval < stanceShifts.size())
          {
             stanceShifts.get(interval).set(copOffsetFromStance);
             stepShifts.get(interval).set(copOffsetFromSteps);
          }
-         copPositionAtStartOfInterval.add(copOffsetFromStance);
-         copPositionAtStartOfInterval.add(copOffsetFromSteps);
-
-         constrainToPolygon(contactState, solePosition, copPositionAtStartOfInterval);
 
          timeAtStartOfInterval.get(interval).setValue(timedContactSequence.get(interval).getTimeInterval().getStartTime());
          timeAtEndOfInterval.get(interval).setValue(timedContactSequence.get(interval).getTimeInterval().getEndTime());
@@ -178,6 +231,16 @@ public class QuadrupedPiecewiseConstantCopTrajectory
       return numberOfIntervals;
    }
 
+   /**
+    * Returns the number of intervals for which the center of pressure had to be computed during the
+    * last call to {@link #initializeTrajectory(double, QuadrupedTimedContactSequence, List)}, the
+    * other ones were unchanged.
+    */
+   public int getNumberOfRecomputedIntervals()
+   {
+      return numberOfRecomputedIntervals;
+   }
+
    public double getTimeAtStartOfInterval(int interval)
    {
       return timeAtStartOfInterval.get(interval).doubleValue();
@@ -302,21 +365,8 @@ public class QuadrupedPiecewiseConstantCopTrajectory
    private final List<QuadrupedTimedStep> nextSteps = new ArrayList<>();
 
 
-   private void computeCoPOffsetFromSteps(double currentTime, QuadrantDependentList<ContactState> contactState, QuadrantDependentList<FramePoint3D> solePositions,
-                                          List<? extends QuadrupedTimedStep> stepSequence, FrameVector3D copOffsetToPack)
+   private void findNextSteps(double currentTime, List<? extends QuadrupedTimedStep> stepSequence)
    {
-      int numberOfFeetInContact = 0;
-      for (RobotQuadrant robotQuadrant : RobotQuadrant.values)
-      {
-         if (contactState.get(robotQuadrant).isLoadBearing())
-            numberOfFeetInContact++;
-      }
-
-      copOffsetToPack.setToZero();
-
-      if (numberOfFeetInContact < 3)
-         return;
-
       double nextStepTime = Double.NaN;
       nextSteps.clear();
       for (int i = 0; i < stepSequence.size(); i++)
@@ -342,6 +392,22 @@ public class QuadrupedPiecewiseConstantCopTrajectory
             }
          }
       }
+   }
+
+   private void computeCoPOffsetFromSteps(QuadrantDependentList<ContactState> contactState, QuadrantDependentList<FramePoint3D> solePositions,
+                                          FrameVector3D copOffsetToPack)
+   {
+      int numberOfFeetInContact = 0;
+      for (RobotQuadrant robotQuadrant : RobotQuadrant.values)
+      {
+         if (contactState.get(robotQuadrant).isLoadBearing())
+            numberOfFeetInContact++;
+      }
+
+      copOffsetToPack.setToZero();
+
+      if (numberOfFeetInContact < 3)
+         return;
 
       if (nextSteps.isEmpty())
          return;
@@ -429,4 +495,116 @@ public class QuadrupedPiecewiseConstantCopTrajectory
       }
       return QuadrupedSupportPolygon.getNominalYaw(tempList, numberOfVertices);
    }
-}
\ No newline at end of file
+
+   private static final long INITIAL_HASH = 1L;
+
+   private long hashNextSteps(long hash)
+   {
+      hash = hash(hash, nextSteps.size());
+      for (int i = 0; i < nextSteps.size(); i++)
+      {
+         QuadrupedTimedStep nextStep = nextSteps.get(i);
+         hash = hash(hash, nextStep.getRobotQuadrant().ordinal());
+         hash = hash(hash, nextStep.getGoalPosition().getX());
+         hash = hash(hash, nextStep.getGoalPosition().getY());
+         hash = hash(hash, nextStep.getGoalPosition().getZ());
+      }
+      return hash;
+   }
+
+   private long hashParameters(long hash)
+   {
+      hash = hash(hash, plannerParameters.getSafeDistanceFromSupportPolygonEdges());
+      hash = hash(hash, plannerParameters.getStanceWidthCoPShiftFactor());
+      hash = hash(hash, plannerParameters.getStanceLengthCoPShiftFactor());
+      hash = hash(hash, plannerParameters.getMaxStanceWidthCoPShift());
+      hash = hash(hash, plannerParameters.getMaxStanceLengthCoPShift());
+      hash = hash(hash, plannerParameters.getStepWidthCoPShiftFactor());
+      hash = hash(hash, plannerParameters.getStepLengthCoPShiftFactor());
+      hash = hash(hash, plannerParameters.getMaxStepWidthCoPShift());
+      hash = hash(hash, plannerParameters.getMaxStepLengthCoPShift());
+      hash = hash(hash, plannerParameters.getMaximumWeightShiftForward());
+      hash = hash(hash, plannerParameters.getAngleForMaxWeightShiftForward());
+      return hash;
+   }
+
+   private static long hashInterval(long hash, QuadrantDependentList<ContactState> contactState, QuadrantDependentList<FramePoint3D> solePositions)
+   {
+      for (RobotQuadrant robotQuadrant : RobotQuadrant.values)
+      {
+         hash = hash(hash, contactState.get(robotQuadrant).ordinal());
+         FramePoint3D solePosition = solePositions.get(robotQuadrant);
+         hash = hash(hash, solePosition.getX());
+         hash = hash(hash, solePosition.getY());
+         hash = hash(hash, solePosition.getZ());
+      }
+      return hash;
+   }
+
+   private static long hash(long hash, double value)
+   {
+      return hash(hash, Double.doubleToLongBits(value));
+   }
+
+   private static long hash(long hash, long value)
+   {
+      hash ^= value;
+      hash *= 0x9E3779B97F4A7C15L;
+      return hash ^ (hash >>> 29);
+   }
+
+   /**
+    * Center of pressure and offsets of each interval, with the fingerprint of the inputs they were
+    * computed from.
+    */
+   private static class IntervalCache
+   {
+      private int size = 0;
+      private final long[] fingerprints;
+      private final double[] copPositions;
+      private final double[] offsets;
+
+      private IntervalCache(int maxIntervals)
+      {
+         fingerprints = new long[maxIntervals];
+         copPositions = new double[3 * maxIntervals];
+         offsets = new double[6 * maxIntervals];
+      }
+
+      private int find(long fingerprint, int fromInterval)
+      {
+         for (int i = fromInterval; i < size; i++)
+         {
+            if (fingerprints[i] == fingerprint)
+               return i;
+         }
+         return -1;
+      }
+
+      private void set(int interval, long fingerprint, FramePoint3DReadOnly copPosition, FrameVector3D copOffsetFromStance, FrameVector3D copOffsetFromSteps)
+      {
+         fingerprints[interval] = fingerprint;
+         copPosition.get(3 * interval, copPositions);
+         copOffsetFromStance.get(6 * interval, offsets);
+         copOffsetFromSteps.get(6 * interval + 3, offsets);
+      }
+
+      private void copy(IntervalCache other, int otherInterval, int interval)
+      {
+         fingerprints[interval] = other.fingerprints[otherInterval];
+         System.arraycopy(other.copPositions, 3 * otherInterval, copPositions, 3 * interval, 3);
+         System.arraycopy(other.offsets, 6 * otherInterval, offsets, 6 * interval, 6);
+      }
+
+      private void getCopPosition(int interval, FixedFramePoint3DBasics copPositionToPack)
+      {
+         copPositionToPack.set(3 * interval, copPositions);
+      }
+
+      private void getOffsets(int interval, FrameVector3D copOffsetFromStanceToPack, FrameVector3D copOffsetFromStepsToPack)
+      {
+         copOffsetFromStanceToPack.setIncludingFrame(ReferenceFrame.getWorldFrame(), 6 * interval, offsets);
+         copOffsetFromStepsToPack.setIncludingFrame(ReferenceFrame.getWorldFrame(), 6 * interval + 3, offsets);
+      }
+   }
+}
@@ -0,0 +1,181 @@
+package us.ihmc.quadrupedRobotics.planning.trajectory;
+
+import static us.ihmc.robotics.Assert.assertEquals;
+import static us.ihmc.robotics.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.commons.MathTools;
+import us.ihmc.euclid.referenceFrame.FramePoint3D;
+import us.ihmc.euclid.referenceFrame.FrameVector3D;
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.euclid.referenceFrame.tools.EuclidFrameTestTools;
+import us.ihmc.euclid.tuple3D.Point3D;
+import us.ihmc.mecano.frames.MovingReferenceFrame;
+import us.ihmc.quadrupedBasics.gait.QuadrupedTimedStep;
+import us.ihmc.quadrupedRobotics.planning.QuadrupedTimedContactSequence;
+import us.ihmc.quadrupedRobotics.planning.comPlanning.DCMPlanningTestTools;
+import us.ihmc.quadrupedRobotics.planning.comPlanning.TestDCMPlannerParameters;
+import us.ihmc.robotics.robotSide.QuadrantDependentList;
+import us.ihmc.robotics.robotSide.RobotQuadrant;
+import us.ihmc.yoVariables.registry.YoRegistry;
+
+public class ContinuousDCMPlannerTest
+{
+   private static final double epsilon = 1e-9;
+
+   private static final double gravityZ = 9.81;
+   private static final double nominalHeight = gravityZ / MathTools.square(3.0);
+   private static final double nominalLength = 1.0;
+   private static final double nominalWidth = 0.5;
+
+   private final QuadrantDependentList<MovingReferenceFrame> soleFrames = DCMPlanningTestTools.createSimpleSoleFrames(nominalLength, nominalWidth);
+
+   @Test
+   public void testIncrementalPlanMatchesFullRecomputation()
+   {
+      List<QuadrupedTimedStep> steps = createTrotSteps(2);
+      List<RobotQuadrant> feetInContact = createAllFeetInContact();
+      ContinuousDCMPlanner planner = createPlanner();
+
+      for (double time = 0.0; time < 3.0; time += 0.1)
+      {
+         // keep appending steps to the queue, as a step teleoperation would
+         if (time > 1.0 && steps.size() < 16)
+            steps.addAll(createTrotSteps(steps.size() / 4 + 1).subList(steps.size(), steps.size() + 4));
+
+         planner.computeSetpoints(time, steps, feetInContact);
+
+         ContinuousDCMPlanner freshPlanner = createPlanner();
+         freshPlanner.computeSetpoints(time, steps, feetInContact);
+
+         EuclidFrameTestTools.assertFramePoint3DGeometricallyEquals("time = " + time, freshPlanner.getDesiredDCMPosition(), planner.getDesiredDCMPosition(),
+                                                                    epsilon);
+         EuclidFrameTestTools.assertFrameVector3DGeometricallyEquals("time = " + time, freshPlanner.getDesiredDCMVelocity(), planner.getDesiredDCMVelocity(),
+                                                                     epsilon);
+         EuclidFrameTestTools.assertFramePoint3DGeometricallyEquals("time = " + time, freshPlanner.getFinalDCMPosition(), planner.getFinalDCMPosition(),
+                                                                    epsilon);
+      }
+   }
+
+   @Test
+   public void testPreviewMatchesSetpoints()
+   {
+      List<QuadrupedTimedStep> steps = createTrotSteps(3);
+      List<RobotQuadrant> feetInContact = createAllFeetInContact();
+      ContinuousDCMPlanner planner = createPlanner();
+      planner.computeSetpoints(0.0, steps, feetInContact);
+
+      int numberOfTimes = 200;
+      double[] times = new double[numberOfTimes];
+      List<FramePoint3D> previewPositions = new ArrayList<>();
+      List<FrameVector3D> previewVelocities = new ArrayList<>();
+      for (int i = 0; i < numberOfTimes; i++)
+      {
+         times[i] = 0.01 * i;
+         previewPositions.add(new FramePoint3D());
+         previewVelocities.add(new FrameVector3D());
+      }
+
+      planner.computePreview(times, numberOfTimes, previewPositions, previewVelocities);
+
+      for (int i = 0; i < numberOfTimes; i++)
+      {
+         planner.computeSetpoints(times[i], steps, feetInContact);
+
+         EuclidFrameTestTools.assertFramePoint3DGeometricallyEquals("time = " + times[i], planner.getDesiredDCMPosition(), previewPositions.get(i), 1.0e-6);
+         EuclidFrameTestTools.assertFrameVector3DGeometricallyEquals("time = " + times[i], planner.getDesiredDCMVelocity(), previewVelocities.get(i), 1.0e-6);
+      }
+   }
+
+   @Test
+   public void testOnlyChangedIntervalsAreRecomputed()
+   {
+      YoRegistry registry = new YoRegistry("test");
+      QuadrupedPiecewiseConstantCopTrajectory copTrajectory = new QuadrupedPiecewiseConstantCopTrajectory(100, new TestDCMPlannerParameters(), registry);
+      QuadrupedTimedContactSequence contactSequence = new QuadrupedTimedContactSequence(100);
+      List<RobotQuadrant> feetInContact = createAllFeetInContact();
+
+      List<QuadrupedTimedStep> steps = createTrotSteps(3);
+      contactSequence.update(steps, soleFrames, feetInContact, 0.0);
+      copTrajectory.initializeTrajectory(0.0, contactSequence, steps);
+      assertEquals(copTrajectory.getNumberOfIntervals(), copTrajectory.getNumberOfRecomputedIntervals());
+
+      copTrajectory.initializeTrajectory(0.0, contactSequence, steps);
+      assertEquals(0, copTrajectory.getNumberOfRecomputedIntervals());
+
+      // moving the last step only affects the last intervals
+      QuadrupedTimedStep lastStep = steps.get(steps.size() - 1);
+      Point3D movedGoalPosition = new Point3D(lastStep.getGoalPosition());
+      movedGoalPosition.addX(0.05);
+      lastStep.setGoalPosition(movedGoalPosition);
+      contactSequence.update(steps, soleFrames, feetInContact, 0.0);
+      copTrajectory.initializeTrajectory(0.0, contactSequence, steps);
+      int numberOfRecomputedIntervals = copTrajectory.getNumberOfRecomputedIntervals();
+      assertTrue(numberOfRecomputedIntervals > 0);
+      assertTrue(numberOfRecomputedIntervals < copTrajectory.getNumberOfIntervals() / 2);
+
+      QuadrupedPiecewiseConstantCopTrajectory expectedCopTrajectory = new QuadrupedPiecewiseConstantCopTrajectory(100, new TestDCMPlannerParameters(),
+                                                                                                                    registry);
+      expectedCopTrajectory.initializeTrajectory(0.0, contactSequence, steps);
+
+      assertEquals(expectedCopTrajectory.getNumberOfIntervals(), copTrajectory.getNumberOfIntervals());
+      for (int i = 0; i < copTrajectory.getNumberOfIntervals(); i++)
+      {
+         EuclidFrameTestTools.assertFramePoint3DGeometricallyEquals(expectedCopTrajectory.getCopPositionAtStartOfInterval(i),
+                                                                    copTrajectory.getCopPositionAtStartOfInterval(i), epsilon);
+         assertEquals(expectedCopTrajectory.getTimeAtStartOfInterval(i), copTrajectory.getTimeAtStartOfInterval(i), epsilon);
+      }
+   }
+
+   private ContinuousDCMPlanner createPlanner()
+   {
+      ContinuousDCMPlanner planner = new ContinuousDCMPlanner(new TestDCMPlannerParameters(), nominalHeight, gravityZ, ReferenceFrame.getWorldFrame(),
+                                                              soleFrames, new YoRegistry("test"), null);
+      planner.initialize();
+      planner.setInitialState(0.0, new FramePoint3D(ReferenceFrame.getWorldFrame(), 0.0, 0.0, nominalHeight), new FrameVector3D(), new FramePoint3D());
+      return planner;
+   }
+
+   private static List<RobotQuadrant> createAllFeetInContact()
+   {
+      List<RobotQuadrant> feetInContact = new ArrayList<>();
+      for (RobotQuadrant quadrant : RobotQuadrant.values)
+         feetInContact.add(quadrant);
+      return feetInContact;
+   }
+
+   /**
+    * Creates the given number of trot cycles, each made of two pairs of diagonal steps moving forward.
+    */
+   private static List<QuadrupedTimedStep> createTrotSteps(int numberOfCycles)
+   {
+      double stepDuration = 0.3;
+      double transferDuration = 0.05;
+      double stepLength = 0.1;
+      List<QuadrupedTimedStep> steps = new ArrayList<>();
+
+      for (int i = 0; i < 2 * numberOfCycles; i++)
+      {
+         double startTime = 0.5 + i * (stepDuration + transferDuration);
+         RobotQuadrant[] pair = i % 2 == 0 ? new RobotQuadrant[] {RobotQuadrant.FRONT_LEFT, RobotQuadrant.HIND_RIGHT}
+               : new RobotQuadrant[] {RobotQuadrant.FRONT_RIGHT, RobotQuadrant.HIND_LEFT};
+
+         for (RobotQuadrant robotQuadrant : pair)
+         {
+            QuadrupedTimedStep step = new QuadrupedTimedStep();
+            step.setRobotQuadrant(robotQuadrant);
+            double x = robotQuadrant.getEnd().negateIfHindEnd(nominalLength / 2.0) + (i / 2 + 1) * stepLength;
+            double y = robotQuadrant.getSide().negateIfRightSide(nominalWidth / 2.0);
+            step.setGoalPosition(new FramePoint3D(ReferenceFrame.getWorldFrame(), x, y, 0.0));
+            step.getTimeInterval().setInterval(startTime, startTime + stepDuration);
+            steps.add(step);
+         }
+      }
+
+      return steps;
+   }
+}
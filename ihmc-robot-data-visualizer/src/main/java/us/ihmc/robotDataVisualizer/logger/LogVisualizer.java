@@ -212,6 +212,7 @@ public class LogVisualizer
 
          scs.attachPlaybackListener(players);
          scs.attachSimulationRewoundListener(players);
+         scs.attachExitActionListener(players);
 
       }
       catch (Exception e)
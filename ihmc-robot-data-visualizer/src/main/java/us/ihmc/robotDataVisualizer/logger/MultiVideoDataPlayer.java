@@ -12,10 +12,11 @@ import us.ihmc.robotDataLogger.LogProperties;
 import us.ihmc.robotDataVisualizer.logger.util.CustomProgressMonitor;
 import us.ihmc.robotDataVisualizer.logger.util.ProgressMonitorInterface;
 import us.ihmc.yoVariables.variable.YoLong;
+import us.ihmc.simulationconstructionset.ExitActionListener;
 import us.ihmc.simulationconstructionset.PlaybackListener;
 import us.ihmc.simulationconstructionset.RewoundListener;
 
-public class MultiVideoDataPlayer implements PlaybackListener, RewoundListener
+public class MultiVideoDataPlayer implements PlaybackListener, RewoundListener, ExitActionListener
 {
    private final YoLong timestamp;
 
@@ -109,6 +110,13 @@ public class MultiVideoDataPlayer implements PlaybackListener, RewoundListener
 
    }
 
+   @Override
+   public void exitActionPerformed()
+   {
+      activePlayer = null;
+      players.values().forEach(VideoDataPlayer::close);
+   }
+
    public long getCurrentTimestamp()
    {
       return timestamp.getLongValue();
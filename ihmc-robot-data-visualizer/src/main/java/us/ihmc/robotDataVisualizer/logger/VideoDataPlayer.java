@@ -2,23 +2,16 @@ package us.ihmc.robotDataVisualizer.logger;
 
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.Arrays;
 
 import javax.swing.ImageIcon;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.SwingUtilities;
 
-import gnu.trove.list.array.TLongArrayList;
 import us.ihmc.codecs.demuxer.MP4VideoDemuxer;
-import us.ihmc.codecs.generated.YUVPicture;
-import us.ihmc.codecs.yuv.YUVPictureConverter;
 import us.ihmc.robotDataLogger.Camera;
 import us.ihmc.robotDataVisualizer.logger.converters.VideoConverter;
 import us.ihmc.robotDataVisualizer.logger.util.ProgressMonitorInterface;
@@ -29,18 +22,11 @@ public class VideoDataPlayer
    private final boolean hasTimebase;
    private final boolean interlaced;
 
-   private long[] robotTimestamps;
-   private long[] videoTimestamps;
-
-   private long bmdTimeBaseNum;
-   private long bmdTimeBaseDen;
-
-   private final MP4VideoDemuxer demuxer;
+   private final VideoFrameIndex index;
+   private final VideoFrameCache frameCache;
    private final HideableMediaFrame viewer;
 
-   private final YUVPictureConverter converter = new YUVPictureConverter();
-
-   private int currentlyShowingIndex = 0;
+   private int currentlyShowingFrame = -1;
    private long currentlyShowingRobottimestamp = 0;
    private long upcomingRobottimestamp = 0;
 
@@ -64,11 +50,16 @@ public class VideoDataPlayer
 
       File timestampFile = new File(dataDirectory, camera.getTimestampFileAsString());
 
-      parseTimestampData(timestampFile);
-
-      demuxer = new MP4VideoDemuxer(videoFile);
+      MP4VideoDemuxer demuxer = new MP4VideoDemuxer(videoFile);
+      index = VideoFrameIndex.loadOrBuild(videoFile, timestampFile, demuxer, hasTimebase, interlaced);
+      if (index.getNumberOfEntries() == 0 || index.getNumberOfFrames() == 0)
+      {
+         demuxer.delete();
+         throw new IOException("No frames in video: " + videoFile);
+      }
 
       viewer = new HideableMediaFrame(camera.getNameAsString(), demuxer.getWidth(), demuxer.getHeight());
+      frameCache = new VideoFrameCache(name, demuxer, index, VideoFrameCache.DEFAULT_MEMORY_BUDGET, viewer::update);
    }
 
    public synchronized void showVideoFrame(long timestamp)
@@ -78,48 +69,32 @@ public class VideoDataPlayer
          return;
       }
 
-      long previousTimestamp = videoTimestamps[currentlyShowingIndex];
-
-      long videoTimestamp;
-      if (robotTimestamps.length > currentlyShowingIndex + 1 && robotTimestamps[currentlyShowingIndex + 1] == timestamp)
-      {
-         currentlyShowingIndex++;
-         videoTimestamp = videoTimestamps[currentlyShowingIndex];
-         currentlyShowingRobottimestamp = robotTimestamps[currentlyShowingIndex];
-
-      }
-      else
-      {
-         videoTimestamp = getVideoTimestamp(timestamp);
-
-      }
+      int entryIndex = index.getEntryIndex(timestamp);
+      currentlyShowingRobottimestamp = index.getRobotTimestamp(entryIndex);
 
-      if (currentlyShowingIndex + 1 < robotTimestamps.length)
+      if (entryIndex + 1 < index.getNumberOfEntries())
       {
-         upcomingRobottimestamp = robotTimestamps[currentlyShowingIndex + 1];
+         upcomingRobottimestamp = index.getRobotTimestamp(entryIndex + 1);
       }
       else
       {
          upcomingRobottimestamp = currentlyShowingRobottimestamp;
       }
 
-      if (previousTimestamp == videoTimestamp)
+      int frameNumber = index.getFrameNumber(entryIndex);
+      if (frameNumber == currentlyShowingFrame)
       {
          return;
       }
 
-      try
-      {
-         demuxer.seekToPTS(videoTimestamp);
-         YUVPicture nextFrame = demuxer.getNextFrame();
-         viewer.update(nextFrame);
-      }
-      catch (IOException e)
+      currentlyShowingFrame = frameNumber;
+
+      // When the frame is not cached yet, the cache shows it as soon as it is decoded
+      BufferedImage cachedFrame = frameCache.moveCursor(frameNumber);
+      if (cachedFrame != null)
       {
-         // TODO Auto-generated catch block
-         e.printStackTrace();
+         viewer.update(cachedFrame);
       }
-
    }
 
    public void setVisible(boolean visible)
@@ -127,106 +102,18 @@ public class VideoDataPlayer
       viewer.setVisible(visible);
    }
 
-   private long getVideoTimestamp(long timestamp)
+   /**
+    * Stops the frame decoder, which releases the video, and disposes the viewer.
+    */
+   public void close()
    {
-      currentlyShowingIndex = Arrays.binarySearch(robotTimestamps, timestamp);
-
-      if (currentlyShowingIndex < 0)
-      {
-         int nextIndex = -currentlyShowingIndex + 1;
-         if ((nextIndex < robotTimestamps.length) && (Math.abs(robotTimestamps[-currentlyShowingIndex] - timestamp) > Math.abs(robotTimestamps[nextIndex])))
-         {
-            currentlyShowingIndex = nextIndex;
-         }
-         else
-         {
-            currentlyShowingIndex = -currentlyShowingIndex;
-         }
-      }
-
-      if (currentlyShowingIndex < 0)
-         currentlyShowingIndex = 0;
-      if (currentlyShowingIndex >= robotTimestamps.length)
-         currentlyShowingIndex = robotTimestamps.length - 1;
-      currentlyShowingRobottimestamp = robotTimestamps[currentlyShowingIndex];
-
-      long videoTimestamp = videoTimestamps[currentlyShowingIndex];
-
-      if (hasTimebase)
-      {
-         videoTimestamp = (videoTimestamp * bmdTimeBaseNum * demuxer.getTimescale()) / (bmdTimeBaseDen);
-      }
-
-      return videoTimestamp;
+      frameCache.stop();
+      viewer.dispose();
    }
 
-   private void parseTimestampData(File timestampFile) throws IOException
+   private long getVideoTimestamp(long timestamp)
    {
-      BufferedReader reader = null;
-      try
-      {
-         reader = new BufferedReader(new FileReader(timestampFile));
-
-         String line;
-         if (hasTimebase)
-         {
-            if ((line = reader.readLine()) != null)
-            {
-               bmdTimeBaseNum = Long.valueOf(line);
-            }
-            else
-            {
-               throw new IOException("Cannot read numerator");
-            }
-
-            if ((line = reader.readLine()) != null)
-            {
-               bmdTimeBaseDen = Long.valueOf(line);
-            }
-            else
-            {
-               throw new IOException("Cannot read denumerator");
-            }
-         }
-
-         TLongArrayList robotTimestamps = new TLongArrayList();
-         TLongArrayList videoTimestamps = new TLongArrayList();
-         while ((line = reader.readLine()) != null)
-         {
-            String[] stamps = line.split("\\s");
-            long robotStamp = Long.valueOf(stamps[0]);
-            long videoStamp = Long.valueOf(stamps[1]);
-
-            if (interlaced)
-            {
-               videoStamp /= 2;
-            }
-
-            robotTimestamps.add(robotStamp);
-            videoTimestamps.add(videoStamp);
-
-         }
-
-         this.robotTimestamps = robotTimestamps.toArray();
-         this.videoTimestamps = videoTimestamps.toArray();
-
-      }
-      catch (FileNotFoundException e)
-      {
-         throw new RuntimeException(e);
-      } finally
-      {
-         try
-         {
-            if (reader != null)
-            {
-               reader.close();
-            }
-         }
-         catch (IOException e)
-         {
-         }
-      }
+      return index.getFramePTS(index.getFrameNumber(index.getEntryIndex(timestamp)));
    }
 
    public void exportVideo(File selectedFile, long startTimestamp, long endTimestamp, ProgressMonitorInterface monitor)
@@ -262,9 +149,9 @@ public class VideoDataPlayer
       /*
        * PTS gets reorderd to be monotonically increaseing starting from 0
        */
-      for (int i = 0; i < robotTimestamps.length; i++)
+      for (int i = 0; i < index.getNumberOfEntries(); i++)
       {
-         long robotTimestamp = robotTimestamps[i];
+         long robotTimestamp = index.getRobotTimestamp(i);
 
          if (robotTimestamp >= startTimestamp && robotTimestamp <= endTimestamp)
          {
@@ -287,7 +174,6 @@ public class VideoDataPlayer
    {
       private static final long serialVersionUID = -3494797002318746347L;
       final JLabel label = new JLabel();
-      private BufferedImage img;
       private int width, height;
 
       public HideableMediaFrame(String name, int width, int height)
@@ -300,15 +186,13 @@ public class VideoDataPlayer
          pack();
       }
 
-      public void update(final YUVPicture nextFrame)
+      public void update(final BufferedImage img)
       {
          SwingUtilities.invokeLater(new Runnable()
          {
             @Override
             public void run()
             {
-               img = converter.toBufferedImage(nextFrame, img);
-               nextFrame.delete();
                ImageIcon icon = new ImageIcon(img);
                label.setIcon(icon);
 
@@ -341,17 +225,18 @@ public class VideoDataPlayer
 
       VideoDataPlayer player = new VideoDataPlayer(camera, dataDirectory, true);
 
-      for (int i = 1; i < player.robotTimestamps.length; i++)
+      VideoFrameIndex index = player.index;
+      for (int i = 1; i < index.getNumberOfEntries(); i++)
       {
-         if (player.robotTimestamps[i - 1] > player.robotTimestamps[i])
+         if (index.getRobotTimestamp(i - 1) > index.getRobotTimestamp(i))
          {
             System.out.println("Non-monotonic robot timestamps");
-            System.out.println(player.robotTimestamps[i - 1]);
+            System.out.println(index.getRobotTimestamp(i - 1));
          }
-         if (player.videoTimestamps[i - 1] >= player.videoTimestamps[i])
+         if (index.getVideoTimestamp(i - 1) >= index.getVideoTimestamp(i))
          {
             System.out.println("Non-monotonic video timestamps");
-            System.out.println(player.videoTimestamps[i - 1]);
+            System.out.println(index.getVideoTimestamp(i - 1));
          }
 
       }
@@ -359,10 +244,10 @@ public class VideoDataPlayer
       player.viewer.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
       player.setVisible(true);
 
-      for (int i = 1; i < player.robotTimestamps.length; i++)
+      for (int i = 1; i < index.getNumberOfEntries(); i++)
       {
 
-         player.showVideoFrame(player.robotTimestamps[i]);
+         player.showVideoFrame(index.getRobotTimestamp(i));
       }
 
    }
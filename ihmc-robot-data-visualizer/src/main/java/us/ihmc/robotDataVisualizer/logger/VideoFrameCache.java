@@ -0,0 +1,223 @@
+package us.ihmc.robotDataVisualizer.logger;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import us.ihmc.codecs.demuxer.MP4VideoDemuxer;
+import us.ihmc.codecs.generated.YUVPicture;
+import us.ihmc.codecs.yuv.YUVPictureConverter;
+import us.ihmc.commons.thread.ThreadTools;
+import us.ihmc.log.LogTools;
+
+/**
+ * Bounded cache of decoded video frames around a cursor, filled by a background thread.
+ * <p>
+ * The background thread owns the demuxer. Once the frame under the cursor is decoded, it keeps
+ * decoding the frames following it, then the frames preceding it, such that scrubbing in either
+ * direction mostly hits the cache. When decoding a frame that is not cached, the frames are decoded
+ * forward from the current position of the demuxer unless a keyframe makes seeking cheaper.
+ * </p>
+ */
+public class VideoFrameCache
+{
+   public static final long DEFAULT_MEMORY_BUDGET = 128L * 1024L * 1024L;
+   private static final int MINIMUM_NUMBER_OF_FRAMES = 4;
+   private static final int MAXIMUM_NUMBER_OF_FRAMES = 256;
+   /** Fraction of the cache used for the frames following the cursor, the rest is for the frames preceding it. */
+   private static final double AHEAD_FRACTION = 0.75;
+
+   private final MP4VideoDemuxer demuxer;
+   private final VideoFrameIndex index;
+   private final Consumer<BufferedImage> frameDisplay;
+   private final YUVPictureConverter converter = new YUVPictureConverter();
+
+   private final int capacity;
+   private final int framesAhead;
+   private final int framesBehind;
+
+   private final Map<Integer, BufferedImage> cachedFrames = new HashMap<>();
+
+   private int cursorFrame = -1;
+   private volatile long cursorRevision = 0;
+   private long processedRevision = 0;
+   private boolean isCursorFrameDisplayed = true;
+   private volatile boolean running = true;
+
+   /** Frame returned by the next call to {@link MP4VideoDemuxer#getNextFrame()}, -1 if unknown. */
+   private int nextDemuxedFrame = -1;
+
+   /**
+    * @param frameDisplay called from the background thread when the frame under the cursor was not
+    *                     cached and is now decoded.
+    */
+   public VideoFrameCache(String name, MP4VideoDemuxer demuxer, VideoFrameIndex index, long memoryBudget, Consumer<BufferedImage> frameDisplay)
+   {
+      this.demuxer = demuxer;
+      this.index = index;
+      this.frameDisplay = frameDisplay;
+
+      long frameSize = 4L * Math.max(1, demuxer.getWidth()) * Math.max(1, demuxer.getHeight());
+      capacity = (int) Math.max(MINIMUM_NUMBER_OF_FRAMES, Math.min(MAXIMUM_NUMBER_OF_FRAMES, memoryBudget / frameSize));
+      framesAhead = (int) (AHEAD_FRACTION * (capacity - 1));
+      framesBehind = capacity - 1 - framesAhead;
+
+      Thread decoderThread = ThreadTools.createNamedDaemonThreadFactory(name + "FrameDecoder").newThread(this::runDecoder);
+      decoderThread.start();
+   }
+
+   /**
+    * Moves the cursor to the given frame.
+    *
+    * @return the decoded frame if it is cached, {@code null} otherwise in which case it will be passed
+    *         to the frame display once decoded.
+    */
+   public synchronized BufferedImage moveCursor(int frameNumber)
+   {
+      cursorFrame = frameNumber;
+      cursorRevision++;
+      BufferedImage cachedFrame = cachedFrames.get(frameNumber);
+      isCursorFrameDisplayed = cachedFrame != null;
+      notifyAll();
+      return cachedFrame;
+   }
+
+   public void stop()
+   {
+      running = false;
+      synchronized (this)
+      {
+         notifyAll();
+      }
+   }
+
+   public int getCapacity()
+   {
+      return capacity;
+   }
+
+   private void runDecoder()
+   {
+      while (running)
+      {
+         int target;
+         long revision;
+
+         synchronized (this)
+         {
+            while (running && processedRevision == cursorRevision)
+            {
+               try
+               {
+                  wait();
+               }
+               catch (InterruptedException e)
+               {
+                  return;
+               }
+            }
+
+            target = cursorFrame;
+            revision = cursorRevision;
+         }
+
+         if (!running)
+            break;
+
+         try
+         {
+            int lastFrame = index.getNumberOfFrames() - 1;
+            if (decodeRange(target, Math.min(target + framesAhead, lastFrame), revision))
+               decodeRange(Math.max(0, target - framesBehind), target - 1, revision);
+         }
+         catch (IOException e)
+         {
+            LogTools.error("Cannot decode frame " + target + ": " + e.getMessage());
+            nextDemuxedFrame = -1;
+         }
+
+         synchronized (this)
+         {
+            if (processedRevision < revision)
+               processedRevision = revision;
+         }
+      }
+
+      demuxer.delete();
+   }
+
+   /**
+    * Decodes the frames of the range that are not cached yet.
+    *
+    * @return whether the whole range was processed before the cursor moved.
+    */
+   private boolean decodeRange(int firstFrame, int lastFrame, long revision) throws IOException
+   {
+      int frame = firstFrame;
+      while (frame <= lastFrame && isCached(frame))
+         frame++;
+      if (frame > lastFrame)
+         return true;
+
+      if (nextDemuxedFrame < 0 || nextDemuxedFrame > frame || index.getKeyframeNumber(frame) > nextDemuxedFrame)
+      {
+         demuxer.seekToFrame(frame);
+         nextDemuxedFrame = frame;
+      }
+
+      for (; nextDemuxedFrame <= lastFrame; nextDemuxedFrame++)
+      {
+         if (cursorRevision != revision)
+            return false;
+
+         YUVPicture picture = demuxer.getNextFrame();
+         if (picture == null)
+         {
+            nextDemuxedFrame = -1;
+            return true;
+         }
+
+         if (nextDemuxedFrame >= frame && !isCached(nextDemuxedFrame))
+         {
+            BufferedImage image = converter.toBufferedImage(picture, null);
+            store(nextDemuxedFrame, image);
+         }
+         picture.delete();
+      }
+
+      return true;
+   }
+
+   private synchronized boolean isCached(int frameNumber)
+   {
+      return cachedFrames.containsKey(frameNumber);
+   }
+
+   private synchronized void store(int frameNumber, BufferedImage image)
+   {
+      cachedFrames.put(frameNumber, image);
+
+      // evict the frames furthest from the cursor
+      while (cachedFrames.size() > capacity)
+      {
+         Iterator<Integer> iterator = cachedFrames.keySet().iterator();
+         int furthestFrame = iterator.next();
+         while (iterator.hasNext())
+         {
+            int candidate = iterator.next();
+            if (Math.abs(candidate - cursorFrame) > Math.abs(furthestFrame - cursorFrame))
+               furthestFrame = candidate;
+         }
+         cachedFrames.remove(furthestFrame);
+      }
+
+      if (frameNumber == cursorFrame && !isCursorFrameDisplayed)
+      {
+         isCursorFrameDisplayed = true;
+         frameDisplay.accept(image);
+      }
+   }
+}
@@ -0,0 +1,323 @@
+package us.ihmc.robotDataVisualizer.logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.jcodec.containers.mp4.MP4Packet;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import us.ihmc.codecs.demuxer.MP4VideoDemuxer;
+import us.ihmc.log.LogTools;
+
+/**
+ * Maps the robot timestamps of a logged camera stream to the frames of its video.
+ * <p>
+ * Building it requires parsing the timestamp file and scanning the packets of the video, so the
+ * result is saved next to the video and loaded back as long as neither file changed.
+ * </p>
+ */
+public class VideoFrameIndex
+{
+   private static final int MAGIC = 0x56464958;
+   private static final int VERSION = 1;
+   private static final String INDEX_FILE_EXTENSION = ".index";
+
+   /** Sorted robot timestamps of the logged frames. */
+   private final long[] robotTimestamps;
+   /** Timestamp written by the logger for each logged frame, used when cropping. */
+   private final long[] videoTimestamps;
+   /** Video frame shown for each logged frame. */
+   private final int[] frameNumbers;
+   /** Presentation timestamp of each video frame, in the video timescale. */
+   private final long[] framePTS;
+   /** For each video frame, the closest keyframe at or before it. */
+   private final int[] keyframeNumbers;
+
+   private VideoFrameIndex(long[] robotTimestamps, long[] videoTimestamps, int[] frameNumbers, long[] framePTS, int[] keyframeNumbers)
+   {
+      this.robotTimestamps = robotTimestamps;
+      this.videoTimestamps = videoTimestamps;
+      this.frameNumbers = frameNumbers;
+      this.framePTS = framePTS;
+      this.keyframeNumbers = keyframeNumbers;
+   }
+
+   /**
+    * Loads the index saved for this video, or builds and saves it if it is missing or outdated.
+    */
+   public static VideoFrameIndex loadOrBuild(File videoFile, File timestampFile, MP4VideoDemuxer demuxer, boolean hasTimebase, boolean interlaced)
+         throws IOException
+   {
+      return loadOrBuild(videoFile, timestampFile, hasTimebase, interlaced, () -> build(timestampFile, demuxer, hasTimebase, interlaced));
+   }
+
+   /** Creates the index when there is no valid saved one. */
+   interface Builder
+   {
+      VideoFrameIndex build() throws IOException;
+   }
+
+   static VideoFrameIndex loadOrBuild(File videoFile, File timestampFile, boolean hasTimebase, boolean interlaced, Builder builder) throws IOException
+   {
+      File indexFile = new File(videoFile.getPath() + INDEX_FILE_EXTENSION);
+
+      if (indexFile.exists())
+      {
+         try
+         {
+            VideoFrameIndex index = load(indexFile, videoFile, timestampFile, hasTimebase, interlaced);
+            if (index != null)
+               return index;
+         }
+         catch (IOException e)
+         {
+            LogTools.warn("Cannot read video index " + indexFile + ", rebuilding it: " + e.getMessage());
+         }
+      }
+
+      VideoFrameIndex index = builder.build();
+
+      try
+      {
+         index.save(indexFile, videoFile, timestampFile, hasTimebase, interlaced);
+      }
+      catch (IOException e)
+      {
+         LogTools.warn("Cannot save video index " + indexFile + ": " + e.getMessage());
+      }
+
+      return index;
+   }
+
+   public static VideoFrameIndex build(File timestampFile, MP4VideoDemuxer demuxer, boolean hasTimebase, boolean interlaced) throws IOException
+   {
+      TLongArrayList framePTSList = new TLongArrayList();
+      TIntArrayList keyframeList = new TIntArrayList();
+
+      demuxer.seekToFrame(0);
+      MP4Packet packet;
+      int lastKeyframe = 0;
+      while ((packet = demuxer.getNextPacket()) != null)
+      {
+         if (packet.isKeyFrame())
+            lastKeyframe = framePTSList.size();
+         framePTSList.add(packet.getPts());
+         keyframeList.add(lastKeyframe);
+      }
+      demuxer.seekToFrame(0);
+
+      return build(timestampFile, framePTSList.toArray(), keyframeList.toArray(), demuxer.getTimescale(), hasTimebase, interlaced);
+   }
+
+   /**
+    * @param framePTS        the presentation timestamp of each frame of the video, in the video timescale.
+    * @param keyframeNumbers for each frame of the video, the closest keyframe at or before it.
+    */
+   static VideoFrameIndex build(File timestampFile, long[] framePTS, int[] keyframeNumbers, long timescale, boolean hasTimebase, boolean interlaced)
+         throws IOException
+   {
+      long bmdTimeBaseNum = 1, bmdTimeBaseDen = 1;
+      TLongArrayList robotTimestamps = new TLongArrayList();
+      TLongArrayList videoTimestamps = new TLongArrayList();
+
+      try (BufferedReader reader = new BufferedReader(new FileReader(timestampFile)))
+      {
+         String line;
+         if (hasTimebase)
+         {
+            if ((line = reader.readLine()) != null)
+            {
+               bmdTimeBaseNum = Long.valueOf(line);
+            }
+            else
+            {
+               throw new IOException("Cannot read numerator");
+            }
+
+            if ((line = reader.readLine()) != null)
+            {
+               bmdTimeBaseDen = Long.valueOf(line);
+            }
+            else
+            {
+               throw new IOException("Cannot read denumerator");
+            }
+         }
+
+         while ((line = reader.readLine()) != null)
+         {
+            String[] stamps = line.split("\\s");
+            long robotStamp = Long.valueOf(stamps[0]);
+            long videoStamp = Long.valueOf(stamps[1]);
+
+            if (interlaced)
+            {
+               videoStamp /= 2;
+            }
+
+            robotTimestamps.add(robotStamp);
+            videoTimestamps.add(videoStamp);
+         }
+      }
+
+      int[] frameNumbers = new int[robotTimestamps.size()];
+      for (int i = 0; i < frameNumbers.length; i++)
+      {
+         long pts = videoTimestamps.get(i);
+         if (hasTimebase)
+            pts = (pts * bmdTimeBaseNum * timescale) / bmdTimeBaseDen;
+         frameNumbers[i] = findFrameAtPTS(framePTS, pts);
+      }
+
+      return new VideoFrameIndex(robotTimestamps.toArray(), videoTimestamps.toArray(), frameNumbers, framePTS, keyframeNumbers);
+   }
+
+   /**
+    * Finds the last frame presented at or before the given time.
+    */
+   static int findFrameAtPTS(long[] framePTS, long pts)
+   {
+      int frame = Arrays.binarySearch(framePTS, pts);
+      if (frame < 0)
+         frame = -frame - 2;
+      return Math.max(0, Math.min(frame, framePTS.length - 1));
+   }
+
+   private static VideoFrameIndex load(File indexFile, File videoFile, File timestampFile, boolean hasTimebase, boolean interlaced) throws IOException
+   {
+      try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile))))
+      {
+         if (input.readInt() != MAGIC || input.readInt() != VERSION)
+            return null;
+         if (input.readLong() != videoFile.length() || input.readLong() != videoFile.lastModified())
+            return null;
+         if (input.readLong() != timestampFile.length() || input.readLong() != timestampFile.lastModified())
+            return null;
+         if (input.readBoolean() != hasTimebase || input.readBoolean() != interlaced)
+            return null;
+
+         int numberOfEntries = input.readInt();
+         long[] robotTimestamps = new long[numberOfEntries];
+         long[] videoTimestamps = new long[numberOfEntries];
+         int[] frameNumbers = new int[numberOfEntries];
+         for (int i = 0; i < numberOfEntries; i++)
+         {
+            robotTimestamps[i] = input.readLong();
+            videoTimestamps[i] = input.readLong();
+            frameNumbers[i] = input.readInt();
+         }
+
+         int numberOfFrames = input.readInt();
+         long[] framePTS = new long[numberOfFrames];
+         int[] keyframeNumbers = new int[numberOfFrames];
+         for (int i = 0; i < numberOfFrames; i++)
+         {
+            framePTS[i] = input.readLong();
+            keyframeNumbers[i] = input.readInt();
+         }
+
+         return new VideoFrameIndex(robotTimestamps, videoTimestamps, frameNumbers, framePTS, keyframeNumbers);
+      }
+   }
+
+   private void save(File indexFile, File videoFile, File timestampFile, boolean hasTimebase, boolean interlaced) throws IOException
+   {
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile))))
+      {
+         output.writeInt(MAGIC);
+         output.writeInt(VERSION);
+         output.writeLong(videoFile.length());
+         output.writeLong(videoFile.lastModified());
+         output.writeLong(timestampFile.length());
+         output.writeLong(timestampFile.lastModified());
+         output.writeBoolean(hasTimebase);
+         output.writeBoolean(interlaced);
+
+         output.writeInt(robotTimestamps.length);
+         for (int i = 0; i < robotTimestamps.length; i++)
+         {
+            output.writeLong(robotTimestamps[i]);
+            output.writeLong(videoTimestamps[i]);
+            output.writeInt(frameNumbers[i]);
+         }
+
+         output.writeInt(framePTS.length);
+         for (int i = 0; i < framePTS.length; i++)
+         {
+            output.writeLong(framePTS[i]);
+            output.writeInt(keyframeNumbers[i]);
+         }
+      }
+   }
+
+   /**
+    * Finds the logged frame whose robot timestamp is the closest to the given one.
+    */
+   public int getEntryIndex(long robotTimestamp)
+   {
+      if (robotTimestamps.length == 0)
+         return -1;
+
+      int index = Arrays.binarySearch(robotTimestamps, robotTimestamp);
+
+      if (index < 0)
+      {
+         int nextIndex = -index - 1;
+         if (nextIndex == 0)
+            return 0;
+         if (nextIndex == robotTimestamps.length)
+            return robotTimestamps.length - 1;
+         if (robotTimestamps[nextIndex] - robotTimestamp < robotTimestamp - robotTimestamps[nextIndex - 1])
+            return nextIndex;
+         else
+            return nextIndex - 1;
+      }
+
+      return index;
+   }
+
+   public int getNumberOfEntries()
+   {
+      return robotTimestamps.length;
+   }
+
+   public long getRobotTimestamp(int entryIndex)
+   {
+      return robotTimestamps[entryIndex];
+   }
+
+   public long getVideoTimestamp(int entryIndex)
+   {
+      return videoTimestamps[entryIndex];
+   }
+
+   public int getFrameNumber(int entryIndex)
+   {
+      return frameNumbers[entryIndex];
+   }
+
+   public int getNumberOfFrames()
+   {
+      return framePTS.length;
+   }
+
+   public long getFramePTS(int frameNumber)
+   {
+      return framePTS[frameNumber];
+   }
+
+   public int getKeyframeNumber(int frameNumber)
+   {
+      return keyframeNumbers[frameNumber];
+   }
+}
@@ -1,18 +1,17 @@
 package us.ihmc.robotDataVisualizer.logger;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-
-import com.jmatio.io.MatFileWriter;
-import com.jmatio.types.MLArray;
-import com.jmatio.types.MLDouble;
-import com.jmatio.types.MLInt64;
-import com.jmatio.types.MLNumericArray;
+import java.util.stream.IntStream;
 
 import us.ihmc.commons.Conversions;
 import us.ihmc.log.LogTools;
@@ -20,16 +19,23 @@ import us.ihmc.robotDataLogger.LogProperties;
 import us.ihmc.robotDataLogger.logger.YoVariableLogReader;
 import us.ihmc.robotDataVisualizer.logger.util.CustomProgressMonitor;
 import us.ihmc.robotDataVisualizer.logger.util.ProgressMonitorInterface;
+import us.ihmc.robotDataVisualizer.logger.util.StreamingMatFileWriter;
+import us.ihmc.robotDataVisualizer.logger.util.StreamingMatFileWriter.ColumnType;
 import us.ihmc.simulationconstructionset.SimulationConstructionSet;
 import us.ihmc.simulationconstructionset.gui.config.VarGroup;
 import us.ihmc.yoVariables.variable.*;
 
 public class YoVariableExporter extends YoVariableLogReader
 {
+   public static final long DEFAULT_MEMORY_CEILING = 256L * 1024L * 1024L;
+   private static final long MINIMUM_MEMORY_CEILING = 1024L * 1024L;
+
    private final List<YoVariable> variables;
    private final Map<String, YoVariable> fullnameToVariableMap;
    private final Map<String, List<YoVariable>> nameToVariablesMap = new HashMap<>();
 
+   private long memoryCeiling = DEFAULT_MEMORY_CEILING;
+
    public YoVariableExporter(SimulationConstructionSet scs, File logDirectory, LogProperties logProperties, List<YoVariable> variables)
    {
       super(logDirectory, logProperties);
@@ -50,79 +56,260 @@ public class YoVariableExporter extends YoVariableLogReader
       }
    }
 
+   /**
+    * Sets the approximate amount of memory used to buffer the data while exporting, the data
+    * exceeding it is staged in a temporary file.
+    */
+   public void setMemoryCeiling(long memoryCeilingInBytes)
+   {
+      this.memoryCeiling = Math.max(memoryCeilingInBytes, MINIMUM_MEMORY_CEILING);
+   }
+
    public void exportMatlabData(File file, long start, long end, VarGroup vargroup)
    {
-      ProgressMonitorInterface monitor = new CustomProgressMonitor("Export data to Matlab", "Reading variable data", 0, 100);
+      exportMatlabData(file, start, end, 1, vargroup);
+   }
 
-      if (!initialize())
+   /**
+    * Exports the data between the two timestamps to a MAT-file.
+    * <p>
+    * The rows are read once and staged, transposed, in a temporary file. The columns are then
+    * gathered from it in parallel and streamed one after the other to the MAT-file, such that
+    * neither step needs more than the memory ceiling.
+    * </p>
+    *
+    * @param decimation only every {@code decimation}th row is read and exported.
+    */
+   public void exportMatlabData(File file, long start, long end, int decimation, VarGroup vargroup)
+   {
+      exportMatlabData(file, start, end, decimation, vargroup, new CustomProgressMonitor("Export data to Matlab", "Reading variable data", 0, 100));
+   }
+
+   public void exportMatlabData(File file, long start, long end, int decimation, VarGroup vargroup, ProgressMonitorInterface monitor)
+   {
+      if (decimation < 1)
+         throw new IllegalArgumentException("The decimation has to be at least 1, was: " + decimation);
+
+      if (!initializeReader())
       {
          return;
       }
 
+      File stagingFile = null;
+
       try
       {
-         int startPosition = getPosition(start);
-         int endPosition = getPosition(end);
-         int elements = endPosition - startPosition + 1;
+         int startPosition = findPosition(start);
+         int endPosition = findPosition(end);
+         int rows = (endPosition - startPosition) / decimation + 1;
 
-         // Time element
-         MLInt64 timestamp = new MLInt64("timestamp", new int[] {elements, 1});
-         MLDouble robotTime = new MLDouble("robotTime", new int[] {elements, 1});
+         List<ExportColumn> columns = toExportColumns(vargroup);
+         int numberOfColumns = columns.size();
 
-         List<DataHolder<?>> dataHolders = toDataHolders(elements, vargroup);
+         stagingFile = File.createTempFile("YoVariableExport", ".bin");
 
-         int step = elements / 90;
-
-         long firstTimestamp = -1;
-         for (int i = startPosition; i <= endPosition; i++)
+         try (RandomAccessFile stagingAccess = new RandomAccessFile(stagingFile, "rw"))
          {
-            if ((i - startPosition) % step == 0)
-            {
-               monitor.setProgress((i - startPosition) / step);
-            }
+            FileChannel stagingChannel = stagingAccess.getChannel();
+            int rowsPerBlock = (int) Math.max(1, Math.min(rows, memoryCeiling / 2 / (8L * numberOfColumns)));
+
+            stageTransposedRows(stagingChannel, startPosition, decimation, rows, rowsPerBlock, columns, monitor);
+
+            monitor.setNote("Writing data to disk");
+            writeColumns(file, stagingChannel, rows, rowsPerBlock, columns, monitor);
+         }
+
+         monitor.close();
+      }
+      catch (IOException e)
+      {
+         throw new RuntimeException(e);
+      }
+      finally
+      {
+         if (stagingFile != null && !stagingFile.delete())
+            stagingFile.deleteOnExit();
+      }
+   }
 
-            ByteBuffer data = readData(i);
-            LongBuffer dataAsLong = data.asLongBuffer();
+   /**
+    * Reads the selected rows and writes them in blocks, each holding {@code rowsPerBlock} rows stored
+    * column after column.
+    */
+   private void stageTransposedRows(FileChannel stagingChannel, int startPosition, int decimation, int rows, int rowsPerBlock, List<ExportColumn> columns,
+                                    ProgressMonitorInterface monitor)
+         throws IOException
+   {
+      int numberOfColumns = columns.size();
+      ByteBuffer block = ByteBuffer.allocate(8 * rowsPerBlock * numberOfColumns);
+      LongBuffer blockAsLong = block.asLongBuffer();
+      int progressStep = Math.max(1, rows / 60);
+      long firstTimestamp = -1;
 
-            long entryTimestamp = dataAsLong.get();
+      for (int blockStart = 0; blockStart < rows; blockStart += rowsPerBlock)
+      {
+         int rowsInBlock = Math.min(rowsPerBlock, rows - blockStart);
+
+         for (int row = 0; row < rowsInBlock; row++)
+         {
+            int rowIndex = blockStart + row;
+            if (rowIndex % progressStep == 0)
+               monitor.setProgress(rowIndex / progressStep);
+
+            LongBuffer dataAsLong = readRow(startPosition + rowIndex * decimation);
+            long entryTimestamp = dataAsLong.get(0);
 
             if (firstTimestamp == -1)
             {
                firstTimestamp = entryTimestamp;
             }
 
-            timestamp.setReal(entryTimestamp, i - startPosition);
-            robotTime.setReal(Conversions.nanosecondsToSeconds(entryTimestamp - firstTimestamp), i - startPosition);
-            dataHolders.forEach(dataHolder -> dataHolder.addEntry(dataAsLong));
+            blockAsLong.put(row, entryTimestamp);
+            blockAsLong.put(rowsInBlock + row, Double.doubleToRawLongBits(Conversions.nanosecondsToSeconds(entryTimestamp - firstTimestamp)));
+
+            for (int column = 2; column < numberOfColumns; column++)
+            {
+               ExportColumn exportColumn = columns.get(column);
+               long entryAsLong = dataAsLong.get(exportColumn.offset);
+               if (exportColumn.isBoolean)
+                  entryAsLong = entryAsLong == 0L ? 0L : 1L; // Force true to equal 1L in all cases
+               blockAsLong.put(column * rowsInBlock + row, entryAsLong);
+            }
          }
 
-         monitor.setNote("Writing data to disk");
-         ArrayList<MLArray> matlabData = new ArrayList<>();
+         block.limit(8 * rowsInBlock * numberOfColumns);
+         block.position(0);
+         while (block.hasRemaining())
+            stagingChannel.write(block);
+         block.clear();
+      }
+   }
+
+   /**
+    * Writes the staged columns in order. Groups of columns fitting in memory are gathered in parallel
+    * before being written, a column too large for it is copied segment by segment.
+    */
+   private void writeColumns(File file, FileChannel stagingChannel, int rows, int rowsPerBlock, List<ExportColumn> columns, ProgressMonitorInterface monitor)
+         throws IOException
+   {
+      int numberOfColumns = columns.size();
+      int columnsPerGroup = (int) Math.min(numberOfColumns, memoryCeiling / 2 / (8L * rows));
 
-         matlabData.add(timestamp);
-         matlabData.add(robotTime);
-         dataHolders.forEach(dataHolder -> matlabData.add(dataHolder.getData()));
+      try (StreamingMatFileWriter writer = new StreamingMatFileWriter(file))
+      {
+         int column = 0;
 
-         new MatFileWriter(file, matlabData);
+         while (column < numberOfColumns)
+         {
+            monitor.setProgress(60 + 40 * column / numberOfColumns);
 
-         monitor.close();
+            if (columnsPerGroup == 0)
+            {
+               ExportColumn exportColumn = columns.get(column);
+               writer.beginColumn(exportColumn.name, exportColumn.type, rows);
+               long[] segment = new long[rowsPerBlock];
+
+               for (int blockStart = 0; blockStart < rows; blockStart += rowsPerBlock)
+               {
+                  int rowsInBlock = readSegment(stagingChannel, column, blockStart, rows, rowsPerBlock, numberOfColumns, segment, 0);
+                  writer.writeValues(segment, 0, rowsInBlock);
+               }
 
+               column++;
+            }
+            else
+            {
+               int groupStart = column;
+               int groupEnd = Math.min(numberOfColumns, column + columnsPerGroup);
+               long[][] groupData = new long[groupEnd - groupStart][];
+
+               IntStream.range(groupStart, groupEnd).parallel().forEach(groupColumn ->
+               {
+                  long[] columnData = new long[rows];
+                  try
+                  {
+                     for (int blockStart = 0; blockStart < rows; blockStart += rowsPerBlock)
+                        readSegment(stagingChannel, groupColumn, blockStart, rows, rowsPerBlock, numberOfColumns, columnData, blockStart);
+                  }
+                  catch (IOException e)
+                  {
+                     throw new UncheckedIOException(e);
+                  }
+                  groupData[groupColumn - groupStart] = columnData;
+               });
+
+               for (int i = 0; i < groupData.length; i++)
+               {
+                  ExportColumn exportColumn = columns.get(groupStart + i);
+                  writer.beginColumn(exportColumn.name, exportColumn.type, rows);
+                  writer.writeValues(groupData[i], 0, rows);
+                  groupData[i] = null;
+               }
+
+               column = groupEnd;
+            }
+         }
       }
-      catch (IOException e)
+      catch (UncheckedIOException e)
       {
-         throw new RuntimeException(e);
+         throw e.getCause();
       }
    }
 
-   private List<DataHolder<?>> toDataHolders(int elements, VarGroup vargroup)
+   boolean initializeReader()
    {
-      List<DataHolder<?>> dataHolders = new ArrayList<>();
+      return initialize();
+   }
+
+   int findPosition(long timestamp)
+   {
+      return getPosition(timestamp);
+   }
+
+   /**
+    * @return the row at the given position: the timestamp followed by the variables.
+    */
+   LongBuffer readRow(int position)
+   {
+      return readData(position).asLongBuffer();
+   }
+
+   /**
+    * Reads the values of one column within the block starting at the given row.
+    *
+    * @return the number of rows in the block.
+    */
+   private static int readSegment(FileChannel stagingChannel, int column, int blockStart, int rows, int rowsPerBlock, int numberOfColumns, long[] dataToPack,
+                                  int dataOffset)
+         throws IOException
+   {
+      int rowsInBlock = Math.min(rowsPerBlock, rows - blockStart);
+      long position = 8L * ((long) blockStart * numberOfColumns + (long) column * rowsInBlock);
+      ByteBuffer segment = ByteBuffer.allocate(8 * rowsInBlock);
+
+      while (segment.hasRemaining())
+      {
+         int bytesRead = stagingChannel.read(segment, position + segment.position());
+         if (bytesRead < 0)
+            throw new EOFException("Unexpected end of the staging file.");
+      }
+
+      segment.flip();
+      segment.asLongBuffer().get(dataToPack, dataOffset, rowsInBlock);
+      return rowsInBlock;
+   }
+
+   private List<ExportColumn> toExportColumns(VarGroup vargroup)
+   {
+      List<ExportColumn> columns = new ArrayList<>();
+      columns.add(new ExportColumn("timestamp", 0, ColumnType.INT64, false));
+      columns.add(new ExportColumn("robotTime", 0, ColumnType.DOUBLE, false));
 
       if (vargroup == null)
       {
          for (int i = 0; i < variables.size(); i++)
          {
-            dataHolders.add(createDataHolder(i + 1, elements, variables.get(i)));
+            columns.add(createExportColumn(i + 1, variables.get(i)));
          }
       }
       else
@@ -148,15 +335,12 @@ public class YoVariableExporter extends YoVariableLogReader
                if (offset == -1)
                   throw new IllegalStateException("Should not get here");
                offset++;
-               dataHolders.add(createDataHolder(offset, elements, variable));
+               columns.add(createExportColumn(offset, variable));
             }
          }
       }
 
-      if (dataHolders.isEmpty())
-         return null;
-      else
-         return dataHolders;
+      return columns;
    }
 
    private List<YoVariable> findVariable(String varName)
@@ -169,68 +353,20 @@ public class YoVariableExporter extends YoVariableLogReader
          return nameToVariablesMap.get(varName);
    }
 
-   private DataHolder<?> createDataHolder(int offset, int elements, YoVariable variable)
+   private ExportColumn createExportColumn(int offset, YoVariable variable)
    {
-      int[] dims = {elements, 1};
       String name = variable.getName();
-      if (variable instanceof YoEnum<?>)
-      {
-         return new DataHolder<Long>(offset, new MLInt64(name, dims))
-         {
-            @Override
-            public void set(long entryAsLong)
-            {
-               set((Long) entryAsLong);
-            }
-
-         };
-      }
-      else if (variable instanceof YoLong)
-      {
-         return new DataHolder<Long>(offset, new MLInt64(name, dims))
-         {
-            @Override
-            public void set(long entryAsLong)
-            {
-               set((Long) entryAsLong);
-            }
-
-         };
-      }
-      else if (variable instanceof YoInteger)
+      if (variable instanceof YoEnum<?> || variable instanceof YoLong || variable instanceof YoInteger)
       {
-         return new DataHolder<Long>(offset, new MLInt64(name, dims))
-         {
-            @Override
-            public void set(long entryAsLong)
-            {
-               set((Long) entryAsLong);
-            }
-
-         };
+         return new ExportColumn(name, offset, ColumnType.INT64, false);
       }
       else if (variable instanceof YoDouble)
       {
-         return new DataHolder<Double>(offset, new MLDouble(name, dims))
-         {
-            @Override
-            public void set(long entryAsLong)
-            {
-               set(Double.longBitsToDouble(entryAsLong));
-            }
-
-         };
+         return new ExportColumn(name, offset, ColumnType.DOUBLE, false);
       }
       else if (variable instanceof YoBoolean)
       {
-         return new DataHolder<Long>(offset, new MLInt64(name, dims))
-         {
-            @Override
-            public void set(long entryAsLong)
-            {
-               set((Long) (entryAsLong == 0L ? 0L : 1L)); // Force true to equal 1L in all cases
-            }
-         };
+         return new ExportColumn(name, offset, ColumnType.INT64, true);
       }
       else
       {
@@ -238,37 +374,19 @@ public class YoVariableExporter extends YoVariableLogReader
       }
    }
 
-   private abstract class DataHolder<T extends Number>
+   private static class ExportColumn
    {
-      private final MLNumericArray<T> data;
+      private final String name;
       private final int offset;
+      private final ColumnType type;
+      private final boolean isBoolean;
 
-      private int index = 0;
-
-      private DataHolder(int offset, MLNumericArray<T> data)
+      private ExportColumn(String name, int offset, ColumnType type, boolean isBoolean)
       {
-         this.data = data;
+         this.name = name;
          this.offset = offset;
-      }
-
-      public void addEntry(LongBuffer dataAsLong)
-      {
-         long entryAsLong = dataAsLong.get(offset);
-         set(entryAsLong);
-         index++;
-      }
-
-      public abstract void set(long entryAsLong);
-
-      protected void set(T entryAsDataType)
-      {
-         data.setReal(entryAsDataType, index);
-      }
-
-      public MLNumericArray<T> getData()
-      {
-         return data;
+         this.type = type;
+         this.isBoolean = isBoolean;
       }
    }
-
 }
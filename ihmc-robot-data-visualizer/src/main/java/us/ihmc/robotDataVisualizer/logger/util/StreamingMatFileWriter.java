@@ -0,0 +1,165 @@
+package us.ihmc.robotDataVisualizer.logger.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Writes column vectors to a Matlab level 5 MAT-file without keeping them in memory.
+ * <p>
+ * Unlike {@code MatFileWriter}, which needs all the arrays before writing the file, the size of
+ * each column is declared when starting it and its values are then appended in as many calls as
+ * needed.
+ * </p>
+ */
+public class StreamingMatFileWriter implements Closeable
+{
+   public enum ColumnType
+   {
+      /** The values are the raw bits of doubles, see {@link Double#doubleToRawLongBits(double)}. */
+      DOUBLE(MX_DOUBLE_CLASS, MI_DOUBLE),
+      INT64(MX_INT64_CLASS, MI_INT64);
+
+      private final int arrayClass;
+      private final int dataType;
+
+      ColumnType(int arrayClass, int dataType)
+      {
+         this.arrayClass = arrayClass;
+         this.dataType = dataType;
+      }
+   }
+
+   private static final int HEADER_TEXT_LENGTH = 116;
+   private static final int MI_INT8 = 1;
+   private static final int MI_INT32 = 5;
+   private static final int MI_UINT32 = 6;
+   private static final int MI_DOUBLE = 9;
+   private static final int MI_MATRIX = 14;
+   private static final int MI_INT64 = 12;
+   private static final int MX_DOUBLE_CLASS = 6;
+   private static final int MX_INT64_CLASS = 14;
+
+   private final FileChannel channel;
+   private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.BIG_ENDIAN);
+
+   private int remainingValuesInColumn = 0;
+
+   public StreamingMatFileWriter(File file) throws IOException
+   {
+      RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+      randomAccessFile.setLength(0);
+      channel = randomAccessFile.getChannel();
+
+      byte[] headerText = new byte[HEADER_TEXT_LENGTH];
+      Arrays.fill(headerText, (byte) ' ');
+      byte[] description = ("MATLAB 5.0 MAT-file, Platform: " + System.getProperty("os.name") + ", Created on: " + new Date()).getBytes(StandardCharsets.US_ASCII);
+      System.arraycopy(description, 0, headerText, 0, Math.min(description.length, HEADER_TEXT_LENGTH));
+
+      buffer.put(headerText);
+      buffer.putLong(0L); // subsystem data offset
+      buffer.putShort((short) 0x0100); // version
+      buffer.put((byte) 'M').put((byte) 'I'); // endian indicator, the data is big endian
+   }
+
+   /**
+    * Starts a new column vector, the previous one has to be complete.
+    *
+    * @param name the name of the variable in Matlab.
+    * @param type the class of the values.
+    * @param rows the number of values that will be written with {@link #writeValues(long[], int, int)}.
+    */
+   public void beginColumn(String name, ColumnType type, int rows) throws IOException
+   {
+      if (remainingValuesInColumn != 0)
+         throw new IllegalStateException("The previous column is missing " + remainingValuesInColumn + " values.");
+      if (rows > (Integer.MAX_VALUE - 7) / 8)
+         throw new IllegalArgumentException("Too many rows for a MAT-file column: " + rows);
+
+      byte[] nameBytes = name.getBytes(StandardCharsets.US_ASCII);
+      int paddedNameLength = padToEightBytes(nameBytes.length);
+      int dataLength = 8 * rows;
+
+      ensureRemaining(64 + paddedNameLength);
+      buffer.putInt(MI_MATRIX);
+      buffer.putInt(16 + 16 + 8 + paddedNameLength + 8 + dataLength);
+
+      // array flags
+      buffer.putInt(MI_UINT32).putInt(8);
+      buffer.putInt(type.arrayClass).putInt(0);
+
+      // dimensions
+      buffer.putInt(MI_INT32).putInt(8);
+      buffer.putInt(rows).putInt(1);
+
+      // name
+      buffer.putInt(MI_INT8).putInt(nameBytes.length);
+      buffer.put(nameBytes);
+      for (int i = nameBytes.length; i < paddedNameLength; i++)
+         buffer.put((byte) 0);
+
+      // real part
+      buffer.putInt(type.dataType).putInt(dataLength);
+
+      remainingValuesInColumn = rows;
+   }
+
+   /**
+    * Appends values to the current column.
+    */
+   public void writeValues(long[] values, int offset, int length) throws IOException
+   {
+      if (length > remainingValuesInColumn)
+         throw new IllegalStateException("Writing " + length + " values to a column expecting " + remainingValuesInColumn + " more.");
+
+      for (int i = offset; i < offset + length; i++)
+      {
+         ensureRemaining(8);
+         buffer.putLong(values[i]);
+      }
+
+      remainingValuesInColumn -= length;
+   }
+
+   private void ensureRemaining(int bytes) throws IOException
+   {
+      if (buffer.remaining() < bytes)
+         flush();
+   }
+
+   private void flush() throws IOException
+   {
+      buffer.flip();
+      while (buffer.hasRemaining())
+         channel.write(buffer);
+      buffer.clear();
+   }
+
+   private static int padToEightBytes(int length)
+   {
+      return (length + 7) & ~7;
+   }
+
+   @Override
+   public void close() throws IOException
+   {
+      try
+      {
+         flush();
+      }
+      finally
+      {
+         channel.close();
+      }
+
+      if (remainingValuesInColumn != 0)
+         throw new IOException("The last column is missing " + remainingValuesInColumn + " values.");
+   }
+}
@@ -0,0 +1,233 @@
+package us.ihmc.robotDataVisualizer.logger;
+
+import static us.ihmc.robotics.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class VideoFrameIndexTest
+{
+   @Test
+   public void testGetEntryIndex() throws IOException
+   {
+      File directory = Files.createTempDirectory("VideoFrameIndexTest").toFile();
+
+      try
+      {
+         File timestampFile = writeTimestampFile(directory, null, new long[] {1000, 2000, 3000, 4000}, new long[] {0, 100, 200, 300});
+         VideoFrameIndex index = VideoFrameIndex.build(timestampFile, new long[] {0, 100, 200, 300}, new int[] {0, 0, 0, 0}, 1, false, false);
+
+         assertEquals(0, index.getEntryIndex(0));
+         assertEquals(0, index.getEntryIndex(1000));
+         assertEquals(0, index.getEntryIndex(1499));
+         assertEquals(0, index.getEntryIndex(1500)); // A tie goes to the earlier entry.
+         assertEquals(1, index.getEntryIndex(1501));
+         assertEquals(1, index.getEntryIndex(2000));
+         assertEquals(2, index.getEntryIndex(2600));
+         assertEquals(3, index.getEntryIndex(3999));
+         assertEquals(3, index.getEntryIndex(4000));
+         assertEquals(3, index.getEntryIndex(100000));
+
+         File emptyTimestampFile = writeTimestampFile(directory, null, new long[0], new long[0]);
+         VideoFrameIndex emptyIndex = VideoFrameIndex.build(emptyTimestampFile, new long[] {0}, new int[] {0}, 1, false, false);
+         assertEquals(-1, emptyIndex.getEntryIndex(1000));
+      }
+      finally
+      {
+         deleteDirectory(directory);
+      }
+   }
+
+   @Test
+   public void testFindFrameAtPTS()
+   {
+      long[] framePTS = {0, 100, 200, 300};
+
+      assertEquals(0, VideoFrameIndex.findFrameAtPTS(framePTS, -50));
+      assertEquals(0, VideoFrameIndex.findFrameAtPTS(framePTS, 0));
+      assertEquals(0, VideoFrameIndex.findFrameAtPTS(framePTS, 99));
+      assertEquals(1, VideoFrameIndex.findFrameAtPTS(framePTS, 100));
+      assertEquals(2, VideoFrameIndex.findFrameAtPTS(framePTS, 250));
+      assertEquals(3, VideoFrameIndex.findFrameAtPTS(framePTS, 300));
+      assertEquals(3, VideoFrameIndex.findFrameAtPTS(framePTS, 1000));
+
+      assertEquals(0, VideoFrameIndex.findFrameAtPTS(new long[] {500}, 0));
+      assertEquals(0, VideoFrameIndex.findFrameAtPTS(new long[] {500}, 1000));
+   }
+
+   @Test
+   public void testFrameNumbers() throws IOException
+   {
+      File directory = Files.createTempDirectory("VideoFrameIndexTest").toFile();
+
+      try
+      {
+         long timescale = 90000;
+         long[] framePTS = new long[10];
+         int[] keyframeNumbers = new int[10];
+         for (int i = 0; i < framePTS.length; i++)
+         {
+            framePTS[i] = 3000 * i;
+            keyframeNumbers[i] = 5 * (i / 5);
+         }
+
+         long[] robotTimestamps = {10, 20, 30, 40};
+
+         // The logger wrote frame numbers at 30 frames per second.
+         File timestampFile = writeTimestampFile(directory, new long[] {1, 30}, robotTimestamps, new long[] {0, 1, 5, 9});
+         VideoFrameIndex index = VideoFrameIndex.build(timestampFile, framePTS, keyframeNumbers, timescale, true, false);
+         assertFrameNumbers(index, 0, 1, 5, 9);
+         assertEquals(10, index.getNumberOfFrames());
+         assertEquals(3000 * 5, index.getFramePTS(5));
+         assertEquals(5, index.getKeyframeNumber(7));
+
+         // Interlaced, each frame number is doubled.
+         timestampFile = writeTimestampFile(directory, new long[] {1, 30}, robotTimestamps, new long[] {0, 2, 10, 18});
+         index = VideoFrameIndex.build(timestampFile, framePTS, keyframeNumbers, timescale, true, true);
+         assertFrameNumbers(index, 0, 1, 5, 9);
+         assertEquals(5, index.getVideoTimestamp(2));
+
+         // Without timebase, the logger wrote the PTS directly.
+         timestampFile = writeTimestampFile(directory, null, robotTimestamps, new long[] {0, 4500, 6000, 100000});
+         index = VideoFrameIndex.build(timestampFile, framePTS, keyframeNumbers, timescale, false, false);
+         assertFrameNumbers(index, 0, 1, 2, 9);
+      }
+      finally
+      {
+         deleteDirectory(directory);
+      }
+   }
+
+   @Test
+   public void testSaveAndLoad() throws IOException
+   {
+      File directory = Files.createTempDirectory("VideoFrameIndexTest").toFile();
+
+      try
+      {
+         File videoFile = new File(directory, "video.mov");
+         try (FileOutputStream output = new FileOutputStream(videoFile))
+         {
+            output.write(new byte[1024]);
+         }
+         File timestampFile = writeTimestampFile(directory, new long[] {1, 30}, new long[] {10, 20, 30}, new long[] {0, 1, 2});
+         File indexFile = new File(videoFile.getPath() + ".index");
+
+         long[] framePTS = {0, 3000, 6000};
+         int[] keyframeNumbers = {0, 0, 2};
+         AtomicInteger numberOfBuilds = new AtomicInteger();
+         VideoFrameIndex.Builder builder = () ->
+         {
+            numberOfBuilds.incrementAndGet();
+            return VideoFrameIndex.build(timestampFile, framePTS, keyframeNumbers, 90000, true, false);
+         };
+
+         VideoFrameIndex builtIndex = VideoFrameIndex.loadOrBuild(videoFile, timestampFile, true, false, builder);
+         assertEquals(1, numberOfBuilds.get());
+         assertTrue(indexFile.exists());
+
+         VideoFrameIndex loadedIndex = VideoFrameIndex.loadOrBuild(videoFile, timestampFile, true, false, builder);
+         assertEquals(1, numberOfBuilds.get());
+         assertIndexEquals(builtIndex, loadedIndex);
+
+         // The saved index is only valid for the same settings.
+         VideoFrameIndex.loadOrBuild(videoFile, timestampFile, true, true, builder);
+         assertEquals(2, numberOfBuilds.get());
+         VideoFrameIndex.loadOrBuild(videoFile, timestampFile, true, false, builder);
+         assertEquals(3, numberOfBuilds.get());
+
+         // Changing the video or the timestamps invalidates the index.
+         try (FileOutputStream output = new FileOutputStream(videoFile, true))
+         {
+            output.write(new byte[16]);
+         }
+         VideoFrameIndex.loadOrBuild(videoFile, timestampFile, true, false, builder);
+         assertEquals(4, numberOfBuilds.get());
+
+         assertTrue(timestampFile.setLastModified(timestampFile.lastModified() - 10000));
+         VideoFrameIndex.loadOrBuild(videoFile, timestampFile, true, false, builder);
+         assertEquals(5, numberOfBuilds.get());
+
+         VideoFrameIndex.loadOrBuild(videoFile, timestampFile, true, false, builder);
+         assertEquals(5, numberOfBuilds.get());
+
+         // A corrupted index is rebuilt.
+         try (FileOutputStream output = new FileOutputStream(indexFile))
+         {
+            output.write(new byte[] {1, 2, 3});
+         }
+         VideoFrameIndex rebuiltIndex = VideoFrameIndex.loadOrBuild(videoFile, timestampFile, true, false, builder);
+         assertEquals(6, numberOfBuilds.get());
+         assertIndexEquals(builtIndex, rebuiltIndex);
+      }
+      finally
+      {
+         deleteDirectory(directory);
+      }
+   }
+
+   private static void assertFrameNumbers(VideoFrameIndex index, int... expectedFrameNumbers)
+   {
+      assertEquals(expectedFrameNumbers.length, index.getNumberOfEntries());
+      for (int i = 0; i < expectedFrameNumbers.length; i++)
+         assertEquals(expectedFrameNumbers[i], index.getFrameNumber(i));
+   }
+
+   private static void assertIndexEquals(VideoFrameIndex expected, VideoFrameIndex actual)
+   {
+      assertEquals(expected.getNumberOfEntries(), actual.getNumberOfEntries());
+      for (int i = 0; i < expected.getNumberOfEntries(); i++)
+      {
+         assertEquals(expected.getRobotTimestamp(i), actual.getRobotTimestamp(i));
+         assertEquals(expected.getVideoTimestamp(i), actual.getVideoTimestamp(i));
+         assertEquals(expected.getFrameNumber(i), actual.getFrameNumber(i));
+      }
+
+      assertEquals(expected.getNumberOfFrames(), actual.getNumberOfFrames());
+      for (int i = 0; i < expected.getNumberOfFrames(); i++)
+      {
+         assertEquals(expected.getFramePTS(i), actual.getFramePTS(i));
+         assertEquals(expected.getKeyframeNumber(i), actual.getKeyframeNumber(i));
+      }
+   }
+
+   /**
+    * Writes a timestamp file as the logger does: the timebase, if any, followed by one line per
+    * logged frame with the robot timestamp and the video timestamp.
+    */
+   private static File writeTimestampFile(File directory, long[] timebase, long[] robotTimestamps, long[] videoTimestamps) throws IOException
+   {
+      File timestampFile = new File(directory, "timestamps.dat");
+
+      try (PrintWriter writer = new PrintWriter(timestampFile))
+      {
+         if (timebase != null)
+         {
+            writer.println(timebase[0]);
+            writer.println(timebase[1]);
+         }
+
+         for (int i = 0; i < robotTimestamps.length; i++)
+            writer.println(robotTimestamps[i] + " " + videoTimestamps[i]);
+      }
+
+      return timestampFile;
+   }
+
+   private static void deleteDirectory(File directory)
+   {
+      File[] files = directory.listFiles();
+      if (files != null)
+      {
+         for (File file : files)
+            file.delete();
+      }
+      directory.delete();
+   }
+}
@@ -0,0 +1,293 @@
+package us.ihmc.robotDataVisualizer.logger;
+
+import static us.ihmc.robotics.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.jmatio.io.MatFileReader;
+import com.jmatio.io.MatFileWriter;
+import com.jmatio.types.MLArray;
+import com.jmatio.types.MLDouble;
+import com.jmatio.types.MLInt64;
+import com.jmatio.types.MLNumericArray;
+
+import us.ihmc.commons.Conversions;
+import us.ihmc.robotDataLogger.LogProperties;
+import us.ihmc.robotDataVisualizer.logger.util.ProgressMonitorInterface;
+import us.ihmc.simulationconstructionset.gui.config.VarGroup;
+import us.ihmc.yoVariables.registry.YoRegistry;
+import us.ihmc.yoVariables.variable.YoBoolean;
+import us.ihmc.yoVariables.variable.YoDouble;
+import us.ihmc.yoVariables.variable.YoEnum;
+import us.ihmc.yoVariables.variable.YoInteger;
+import us.ihmc.yoVariables.variable.YoLong;
+import us.ihmc.yoVariables.variable.YoVariable;
+
+public class YoVariableExporterTest
+{
+   enum TestEnum
+   {
+      A, B, C, D
+   }
+
+   private final YoRegistry registry = new YoRegistry("exporter");
+   private final List<YoVariable> variables = Arrays.asList(new YoDouble("position", registry),
+                                                            new YoLong("counter", registry),
+                                                            new YoInteger("index", registry),
+                                                            new YoBoolean("enabled", registry),
+                                                            new YoEnum<>("mode", "", registry, TestEnum.class, true));
+
+   @Test
+   public void testExportMatchesMatFileWriter() throws IOException
+   {
+      long[][] rows = createRows(new Random(6734L), 2000);
+      assertExportMatchesMatFileWriter(rows, 0, rows.length - 1, 1, null, YoVariableExporter.DEFAULT_MEMORY_CEILING);
+   }
+
+   @Test
+   public void testExportWithRangeAndDecimation() throws IOException
+   {
+      long[][] rows = createRows(new Random(2389L), 2000);
+      assertExportMatchesMatFileWriter(rows, 17, 1800, 3, null, YoVariableExporter.DEFAULT_MEMORY_CEILING);
+      assertExportMatchesMatFileWriter(rows, 17, 1800, 7, null, YoVariableExporter.DEFAULT_MEMORY_CEILING);
+      assertExportMatchesMatFileWriter(rows, 5, 5, 4, null, YoVariableExporter.DEFAULT_MEMORY_CEILING);
+   }
+
+   @Test
+   public void testExportUnderMemoryCeiling() throws IOException
+   {
+      // Several columns are gathered at once.
+      long[][] rows = createRows(new Random(9812L), 20000);
+      assertExportMatchesMatFileWriter(rows, 0, rows.length - 1, 1, null, 0L);
+
+      // A single column exceeds the ceiling and is copied segment by segment.
+      rows = createRows(new Random(4512L), 70000);
+      assertExportMatchesMatFileWriter(rows, 0, rows.length - 1, 1, null, 0L);
+      assertExportMatchesMatFileWriter(rows, 100, rows.length - 100, 2, null, 0L);
+   }
+
+   @Test
+   public void testExportVarGroup() throws IOException
+   {
+      long[][] rows = createRows(new Random(1290L), 500);
+
+      VarGroup varGroup = new VarGroup("test");
+      varGroup.addVar("mode");
+      varGroup.addVar(variables.get(0).getFullNameString());
+      varGroup.addVar("doesNotExist");
+      varGroup.addVar("enabled");
+
+      Map<String, MLArray> content = assertExportMatchesMatFileWriter(rows, 0, rows.length - 1, 1, varGroup, YoVariableExporter.DEFAULT_MEMORY_CEILING);
+      assertEquals(new HashSet<>(Arrays.asList("timestamp", "robotTime", "mode", "position", "enabled")), content.keySet());
+   }
+
+   /**
+    * Exports the rows and compares the MAT-file, once read back, with the one written by
+    * {@link MatFileWriter} from the same data as the exporter used to.
+    */
+   private Map<String, MLArray> assertExportMatchesMatFileWriter(long[][] rows, int startPosition, int endPosition, int decimation, VarGroup varGroup,
+                                                                 long memoryCeiling)
+         throws IOException
+   {
+      File expectedFile = File.createTempFile("YoVariableExporterTestExpected", ".mat");
+      File actualFile = File.createTempFile("YoVariableExporterTestActual", ".mat");
+
+      try
+      {
+         new MatFileWriter(expectedFile, createExpectedData(rows, startPosition, endPosition, decimation, varGroup));
+
+         InMemoryExporter exporter = new InMemoryExporter(variables, rows);
+         exporter.setMemoryCeiling(memoryCeiling);
+         exporter.exportMatlabData(actualFile, rows[startPosition][0], rows[endPosition][0], decimation, varGroup, new SilentProgressMonitor());
+
+         Map<String, MLArray> expected = new MatFileReader(expectedFile).getContent();
+         Map<String, MLArray> actual = new MatFileReader(actualFile).getContent();
+         assertEquals(expected.keySet(), actual.keySet());
+
+         for (String name : expected.keySet())
+         {
+            MLNumericArray<?> expectedArray = (MLNumericArray<?>) expected.get(name);
+            MLNumericArray<?> actualArray = (MLNumericArray<?>) actual.get(name);
+
+            assertEquals(name, expectedArray.getType(), actualArray.getType());
+            assertEquals(name, expectedArray.getM(), actualArray.getM());
+            assertEquals(name, expectedArray.getN(), actualArray.getN());
+
+            for (int i = 0; i < expectedArray.getM(); i++)
+               assertEquals(name + "[" + i + "]", expectedArray.getReal(i), actualArray.getReal(i));
+         }
+
+         return actual;
+      }
+      finally
+      {
+         expectedFile.delete();
+         actualFile.delete();
+      }
+   }
+
+   /**
+    * Builds the arrays the way the exporter did before streaming the columns.
+    */
+   private List<MLArray> createExpectedData(long[][] rows, int startPosition, int endPosition, int decimation, VarGroup varGroup)
+   {
+      List<YoVariable> exportedVariables = new ArrayList<>();
+
+      if (varGroup == null)
+      {
+         exportedVariables.addAll(variables);
+      }
+      else
+      {
+         for (String varName : varGroup.getVars())
+         {
+            variables.stream().filter(variable -> variable.getName().equals(varName) || variable.getFullNameString().equals(varName))
+                     .forEach(exportedVariables::add);
+         }
+      }
+
+      int elements = (endPosition - startPosition) / decimation + 1;
+      int[] dims = {elements, 1};
+
+      MLInt64 timestamp = new MLInt64("timestamp", dims);
+      MLDouble robotTime = new MLDouble("robotTime", dims);
+      List<MLArray> data = new ArrayList<>();
+      data.add(timestamp);
+      data.add(robotTime);
+
+      for (int i = 0; i < elements; i++)
+      {
+         long[] row = rows[startPosition + i * decimation];
+         timestamp.setReal(row[0], i);
+         robotTime.setReal(Conversions.nanosecondsToSeconds(row[0] - rows[startPosition][0]), i);
+      }
+
+      for (YoVariable variable : exportedVariables)
+      {
+         int offset = variables.indexOf(variable) + 1;
+
+         if (variable instanceof YoDouble)
+         {
+            MLDouble array = new MLDouble(variable.getName(), dims);
+            for (int i = 0; i < elements; i++)
+               array.setReal(Double.longBitsToDouble(rows[startPosition + i * decimation][offset]), i);
+            data.add(array);
+         }
+         else
+         {
+            MLInt64 array = new MLInt64(variable.getName(), dims);
+            for (int i = 0; i < elements; i++)
+            {
+               long value = rows[startPosition + i * decimation][offset];
+               if (variable instanceof YoBoolean)
+                  value = value == 0L ? 0L : 1L;
+               array.setReal(value, i);
+            }
+            data.add(array);
+         }
+      }
+
+      return data;
+   }
+
+   /**
+    * Creates rows as they are stored in the log: the timestamp followed by the variables as longs.
+    */
+   private long[][] createRows(Random random, int numberOfRows)
+   {
+      long[][] rows = new long[numberOfRows][variables.size() + 1];
+      long timestamp = 1000000000L + random.nextInt(1000000);
+
+      for (long[] row : rows)
+      {
+         timestamp += 1000000L + random.nextInt(1000);
+         row[0] = timestamp;
+         row[1] = Double.doubleToLongBits(random.nextGaussian());
+         row[2] = random.nextLong();
+         row[3] = random.nextInt();
+         row[4] = random.nextBoolean() ? 0L : random.nextInt(3) + 1; // Any non-zero value is exported as true.
+         row[5] = random.nextInt(TestEnum.values().length + 1) - 1; // -1 for null.
+      }
+
+      return rows;
+   }
+
+   private static class InMemoryExporter extends YoVariableExporter
+   {
+      private final long[][] rows;
+
+      public InMemoryExporter(List<YoVariable> variables, long[][] rows)
+      {
+         super(null, null, new LogProperties(), variables);
+         this.rows = rows;
+      }
+
+      @Override
+      boolean initializeReader()
+      {
+         return true;
+      }
+
+      @Override
+      int findPosition(long timestamp)
+      {
+         for (int i = 0; i < rows.length; i++)
+         {
+            if (rows[i][0] >= timestamp)
+               return i;
+         }
+         return rows.length - 1;
+      }
+
+      @Override
+      LongBuffer readRow(int position)
+      {
+         return LongBuffer.wrap(rows[position]);
+      }
+   }
+
+   private static class SilentProgressMonitor implements ProgressMonitorInterface
+   {
+      @Override
+      public void setNote(String note)
+      {
+      }
+
+      @Override
+      public void setProgress(int i)
+      {
+      }
+
+      @Override
+      public PrintStream getPrintStream()
+      {
+         return System.out;
+      }
+
+      @Override
+      public void close()
+      {
+      }
+
+      @Override
+      public void setError(String string)
+      {
+      }
+
+      @Override
+      public void initialize(String message, String note, int min, int max)
+      {
+      }
+   }
+}
@@ -8,6 +8,10 @@ import java.util.List;
 import us.ihmc.euclid.tuple3D.Point3D;
 import us.ihmc.robotics.geometry.InclusionFunction;
 
+/**
+ * Height map backed by nested boxed hash maps. Prefer {@link LongHashHeightMap} for point streams,
+ * which stores the same cells without boxing and supports allocation-free area queries.
+ */
 public class DoubleHashHeightMap implements HeightMapWithPoints
 {
    private HashMap<Integer, LinkedHashMap<Integer, Double>> rows;
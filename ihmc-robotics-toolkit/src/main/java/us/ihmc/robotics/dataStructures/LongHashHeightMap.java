@@ -0,0 +1,266 @@
+package us.ihmc.robotics.dataStructures;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import gnu.trove.iterator.TLongDoubleIterator;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongDoubleHashMap;
+import us.ihmc.commons.lists.RecyclingArrayList;
+import us.ihmc.euclid.tuple3D.Point3D;
+import us.ihmc.euclid.tuple3D.interfaces.Point3DReadOnly;
+import us.ihmc.robotics.geometry.InclusionFunction;
+
+/**
+ * Height map storing one height per grid cell in a primitive open-addressing {@code long -> double}
+ * table. The x and y cell indices are packed into a single {@code long} key so that inserting and
+ * querying points neither boxes nor allocates.
+ * <p>
+ * This is a drop-in replacement for {@link DoubleHashHeightMap}: cells are indexed the same way and
+ * area queries return the points sorted by x index and then y index. In addition to the
+ * {@link HeightMapWithPoints} API, it provides a bulk insert and area queries that pack
+ * caller-supplied buffers.
+ * </p>
+ */
+public class LongHashHeightMap implements HeightMapWithPoints
+{
+   private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+   private static final float LOAD_FACTOR = 0.5f;
+   private static final long NO_ENTRY_KEY = Long.MIN_VALUE;
+
+   private final double gridSize;
+   private final TLongDoubleHashMap heights;
+
+   private final TLongArrayList sortedKeys = new TLongArrayList();
+   private final Point3D pointToTest = new Point3D();
+
+   public LongHashHeightMap(double gridSize)
+   {
+      this(gridSize, DEFAULT_INITIAL_CAPACITY);
+   }
+
+   public LongHashHeightMap(double gridSize, int initialCapacity)
+   {
+      this.gridSize = gridSize;
+      heights = new TLongDoubleHashMap(initialCapacity, LOAD_FACTOR, NO_ENTRY_KEY, Double.NaN);
+   }
+
+   @Override
+   public synchronized double getHeightAtPoint(double x, double y)
+   {
+      return heights.get(key(index(x), index(y)));
+   }
+
+   @Override
+   public synchronized boolean containsPoint(double x, double y)
+   {
+      return heights.containsKey(key(index(x), index(y)));
+   }
+
+   @Override
+   public synchronized boolean addPoint(double x, double y, double z)
+   {
+      addPointUnsafe(x, y, z);
+      return true;
+   }
+
+   /**
+    * Adds a batch of points, growing the underlying table at most once for the whole batch.
+    *
+    * @param points the points to add. Points with a non-finite height are ignored.
+    */
+   public synchronized void addPoints(List<? extends Point3DReadOnly> points)
+   {
+      heights.ensureCapacity(points.size());
+
+      for (int i = 0; i < points.size(); i++)
+      {
+         Point3DReadOnly point = points.get(i);
+         addPointUnsafe(point.getX(), point.getY(), point.getZ());
+      }
+   }
+
+   /**
+    * Adds a batch of points, growing the underlying table at most once for the whole batch.
+    *
+    * @param points the array containing the points to add. Points with a non-finite height are ignored.
+    * @param numberOfPoints the number of points to add from the beginning of {@code points}.
+    */
+   public synchronized void addPoints(Point3DReadOnly[] points, int numberOfPoints)
+   {
+      heights.ensureCapacity(numberOfPoints);
+
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         Point3DReadOnly point = points[i];
+         addPointUnsafe(point.getX(), point.getY(), point.getZ());
+      }
+   }
+
+   /**
+    * Adds a batch of points packed as consecutive {@code x, y, z} triplets, as received from most
+    * point cloud messages.
+    *
+    * @param xyzPoints the packed coordinates. Points with a non-finite height are ignored.
+    * @param numberOfPoints the number of points to read from {@code xyzPoints}.
+    */
+   public synchronized void addPoints(double[] xyzPoints, int numberOfPoints)
+   {
+      heights.ensureCapacity(numberOfPoints);
+
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         int offset = 3 * i;
+         addPointUnsafe(xyzPoints[offset], xyzPoints[offset + 1], xyzPoints[offset + 2]);
+      }
+   }
+
+   private void addPointUnsafe(double x, double y, double z)
+   {
+      if (Double.isFinite(z))
+         heights.put(key(index(x), index(y)), z);
+   }
+
+   @Override
+   public synchronized void clear()
+   {
+      heights.clear();
+   }
+
+   public synchronized int size()
+   {
+      return heights.size();
+   }
+
+   public double gridSize()
+   {
+      return gridSize;
+   }
+
+   @Override
+   public List<Point3D> getAllPointsWithinArea(double xCenter, double yCenter, double xExtent, double yExtent)
+   {
+      return getAllPointsWithinArea(xCenter, yCenter, xExtent, yExtent, null);
+   }
+
+   @Override
+   public List<Point3D> getAllPointsWithinArea(double xCenter, double yCenter, double xExtent, double yExtent,
+                                               InclusionFunction<Point3D> maskFunctionAboutCenter)
+   {
+      RecyclingArrayList<Point3D> points = new RecyclingArrayList<>(Point3D.class);
+      getAllPointsWithinArea(xCenter, yCenter, xExtent, yExtent, maskFunctionAboutCenter, points);
+
+      List<Point3D> pointsToReturn = new ArrayList<>(points.size());
+      for (int i = 0; i < points.size(); i++)
+         pointsToReturn.add(points.get(i));
+      return pointsToReturn;
+   }
+
+   /**
+    * Packs all the points within the given area, without allocating once {@code pointsToPack} has
+    * grown to the query size.
+    *
+    * @param pointsToPack the list in which the points are stored. Modified.
+    * @return the number of points found.
+    */
+   public int getAllPointsWithinArea(double xCenter, double yCenter, double xExtent, double yExtent, RecyclingArrayList<Point3D> pointsToPack)
+   {
+      return getAllPointsWithinArea(xCenter, yCenter, xExtent, yExtent, null, pointsToPack);
+   }
+
+   /**
+    * Packs all the points within the given area that pass the mask, without allocating once
+    * {@code pointsToPack} has grown to the query size.
+    *
+    * @param maskFunctionAboutCenter the mask to apply to each point, or {@code null} to keep all the
+    *           points.
+    * @param pointsToPack the list in which the points are stored. Modified.
+    * @return the number of points found.
+    */
+   public synchronized int getAllPointsWithinArea(double xCenter, double yCenter, double xExtent, double yExtent,
+                                                  InclusionFunction<Point3D> maskFunctionAboutCenter, RecyclingArrayList<Point3D> pointsToPack)
+   {
+      pointsToPack.clear();
+
+      int xMin = index(xCenter - 0.5 * xExtent);
+      int xMax = index(xCenter + 0.5 * xExtent);
+      int yMin = index(yCenter - 0.5 * yExtent);
+      int yMax = index(yCenter + 0.5 * yExtent);
+
+      if (xMax < xMin || yMax < yMin || heights.isEmpty())
+         return 0;
+
+      long numberOfCellsInArea = ((long) xMax - xMin + 1) * ((long) yMax - yMin + 1);
+
+      if (numberOfCellsInArea <= heights.size())
+      {
+         for (int xIndex = xMin; xIndex <= xMax; xIndex++)
+         {
+            for (int yIndex = yMin; yIndex <= yMax; yIndex++)
+            {
+               double height = heights.get(key(xIndex, yIndex));
+               if (!Double.isNaN(height))
+                  packPoint(xIndex, yIndex, height, maskFunctionAboutCenter, pointsToPack);
+            }
+         }
+      }
+      else
+      {
+         // The area is larger than the map, scan the table and sort the matching keys to preserve the row-major ordering.
+         sortedKeys.resetQuick();
+
+         for (TLongDoubleIterator iterator = heights.iterator(); iterator.hasNext();)
+         {
+            iterator.advance();
+            long key = iterator.key();
+            int xIndex = xIndex(key);
+            int yIndex = yIndex(key);
+
+            if (xIndex >= xMin && xIndex <= xMax && yIndex >= yMin && yIndex <= yMax)
+               sortedKeys.add(key);
+         }
+
+         sortedKeys.sort();
+
+         for (int i = 0; i < sortedKeys.size(); i++)
+         {
+            long key = sortedKeys.getQuick(i);
+            packPoint(xIndex(key), yIndex(key), heights.get(key), maskFunctionAboutCenter, pointsToPack);
+         }
+      }
+
+      return pointsToPack.size();
+   }
+
+   private void packPoint(int xIndex, int yIndex, double height, InclusionFunction<Point3D> maskFunction, RecyclingArrayList<Point3D> pointsToPack)
+   {
+      pointToTest.set(xIndex * gridSize, yIndex * gridSize, height);
+
+      if (maskFunction == null || maskFunction.isIncluded(pointToTest))
+         pointsToPack.add().set(pointToTest);
+   }
+
+   private int index(double coordinate)
+   {
+      return (int) Math.round(coordinate / gridSize);
+   }
+
+   /**
+    * The sign bit of the y index is flipped so that the natural ordering of the keys matches the
+    * ordering by x index and then y index.
+    */
+   static long key(int xIndex, int yIndex)
+   {
+      return ((long) xIndex << 32) | ((yIndex ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+   }
+
+   static int xIndex(long key)
+   {
+      return (int) (key >> 32);
+   }
+
+   static int yIndex(long key)
+   {
+      return ((int) key) ^ Integer.MIN_VALUE;
+   }
+}
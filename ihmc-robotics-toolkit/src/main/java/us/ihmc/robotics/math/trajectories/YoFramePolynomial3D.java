@@ -6,6 +6,8 @@ import java.util.List;
 import us.ihmc.euclid.referenceFrame.FramePoint3D;
 import us.ihmc.euclid.referenceFrame.FrameVector3D;
 import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.euclid.referenceFrame.interfaces.FixedFramePoint3DBasics;
+import us.ihmc.euclid.referenceFrame.interfaces.FixedFrameVector3DBasics;
 import us.ihmc.euclid.tuple3D.interfaces.Point3DReadOnly;
 import us.ihmc.euclid.tuple3D.interfaces.Tuple3DReadOnly;
 import us.ihmc.euclid.tuple3D.interfaces.Vector3DReadOnly;
@@ -500,6 +502,20 @@ public class YoFramePolynomial3D extends YoPolynomial3D
    }
 
 
+   /**
+    * Evaluates the three polynomials at {@code t} in a single pass, see
+    * {@link YoPolynomial3D#compute(double, us.ihmc.euclid.tuple3D.interfaces.Point3DBasics, us.ihmc.euclid.tuple3D.interfaces.Vector3DBasics, us.ihmc.euclid.tuple3D.interfaces.Vector3DBasics)}.
+    */
+   public void compute(double t, FixedFramePoint3DBasics positionToPack, FixedFrameVector3DBasics velocityToPack,
+                       FixedFrameVector3DBasics accelerationToPack)
+   {
+      positionToPack.checkReferenceFrameMatch(referenceFrame);
+      velocityToPack.checkReferenceFrameMatch(referenceFrame);
+      accelerationToPack.checkReferenceFrameMatch(referenceFrame);
+
+      super.compute(t, positionToPack, velocityToPack, accelerationToPack);
+   }
+
    public FramePoint3D getFramePosition()
    {
       framePosition.setToZero(referenceFrame);
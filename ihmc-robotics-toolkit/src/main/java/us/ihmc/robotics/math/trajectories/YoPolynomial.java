@@ -14,6 +14,13 @@ import us.ihmc.yoVariables.variable.YoInteger;
 
 public class YoPolynomial implements PolynomialReadOnly, PolynomialVariableHolder
 {
+   /**
+    * The closed-form solutions of the standard boundary conditions are used when the duration is
+    * larger than this, otherwise the general constraint system is solved.
+    */
+   private static final double CLOSED_FORM_MINIMUM_DURATION = 1.0e-10;
+   private static final double CLOSED_FORM_MINIMUM_DETERMINANT = 1.0e-50;
+
    private final int maximumNumberOfCoefficients;
    private double pos, vel, acc, jerk, dPos;
    private final YoDouble[] a;
@@ -144,6 +151,17 @@ public class YoPolynomial implements PolynomialReadOnly, PolynomialVariableHolde
    public void setLinear(double t0, double tFinal, double z0, double zf)
    {
       reshape(2);
+
+      double duration = tFinal - t0;
+      if (Math.abs(duration) > CLOSED_FORM_MINIMUM_DURATION)
+      {
+         coefficientVector.set(0, 0, z0);
+         coefficientVector.set(1, 0, (zf - z0) / duration);
+         shiftCoefficients(t0);
+         setYoVariables();
+         return;
+      }
+
       setPositionRow(0, t0, z0);
       setPositionRow(1, tFinal, zf);
       solveForCoefficients();
@@ -153,15 +171,34 @@ public class YoPolynomial implements PolynomialReadOnly, PolynomialVariableHolde
    public void setLinear(double t, double z, double zd)
    {
       reshape(2);
-      setPositionRow(0, t, z);
-      setVelocityRow(1, t, zd);
-      solveForCoefficients();
+      coefficientVector.set(0, 0, z);
+      coefficientVector.set(1, 0, zd);
+      shiftCoefficients(t);
       setYoVariables();
    }
 
    public void setQuintic(double t0, double tFinal, double z0, double zd0, double zdd0, double zf, double zdf, double zddf)
    {
       reshape(6);
+
+      double duration = tFinal - t0;
+      if (Math.abs(duration) > CLOSED_FORM_MINIMUM_DURATION)
+      {
+         double duration2 = duration * duration;
+         double duration3 = duration2 * duration;
+         double deltaZ = zf - z0;
+
+         coefficientVector.set(0, 0, z0);
+         coefficientVector.set(1, 0, zd0);
+         coefficientVector.set(2, 0, 0.5 * zdd0);
+         coefficientVector.set(3, 0, (20.0 * deltaZ - (8.0 * zdf + 12.0 * zd0) * duration - (3.0 * zdd0 - zddf) * duration2) / (2.0 * duration3));
+         coefficientVector.set(4, 0, (-30.0 * deltaZ + (14.0 * zdf + 16.0 * zd0) * duration + (3.0 * zdd0 - 2.0 * zddf) * duration2) / (2.0 * duration3 * duration));
+         coefficientVector.set(5, 0, (12.0 * deltaZ - 6.0 * (zdf + zd0) * duration + (zddf - zdd0) * duration2) / (2.0 * duration3 * duration2));
+         shiftCoefficients(t0);
+         setYoVariables();
+         return;
+      }
+
       setPositionRow(0, t0, z0);
       setVelocityRow(1, t0, zd0);
       setAccelerationRow(2, t0, zdd0);
@@ -176,6 +213,52 @@ public class YoPolynomial implements PolynomialReadOnly, PolynomialVariableHolde
                                        double zdf)
    {
       reshape(6);
+
+      double intermediateDuration = tIntermediate - t0;
+      double duration = tFinal - t0;
+      if (Math.abs(intermediateDuration) > CLOSED_FORM_MINIMUM_DURATION && Math.abs(duration - intermediateDuration) > CLOSED_FORM_MINIMUM_DURATION)
+      {
+         // The first three coefficients are given by the initial conditions, the last three are the solution of a 3-by-3 system solved with Cramer's rule.
+         double c2 = 0.5 * zdd0;
+         double ti2 = intermediateDuration * intermediateDuration;
+         double ti3 = ti2 * intermediateDuration;
+         double ti4 = ti3 * intermediateDuration;
+         double ti5 = ti4 * intermediateDuration;
+         double tf2 = duration * duration;
+         double tf3 = tf2 * duration;
+         double tf4 = tf3 * duration;
+         double tf5 = tf4 * duration;
+
+         double intermediateResidual = zIntermediate - (z0 + zd0 * intermediateDuration + c2 * ti2);
+         double finalResidual = zf - (z0 + zd0 * duration + c2 * tf2);
+         double finalVelocityResidual = zdf - (zd0 + 2.0 * c2 * duration);
+
+         double m00 = ti3, m01 = ti4, m02 = ti5;
+         double m10 = tf3, m11 = tf4, m12 = tf5;
+         double m20 = 3.0 * tf2, m21 = 4.0 * tf3, m22 = 5.0 * tf4;
+
+         double cofactor00 = m11 * m22 - m12 * m21;
+         double cofactor01 = m12 * m20 - m10 * m22;
+         double cofactor02 = m10 * m21 - m11 * m20;
+         double determinant = m00 * cofactor00 + m01 * cofactor01 + m02 * cofactor02;
+
+         if (Math.abs(determinant) > CLOSED_FORM_MINIMUM_DETERMINANT)
+         {
+            double inverseDeterminant = 1.0 / determinant;
+            double r0 = intermediateResidual, r1 = finalResidual, r2 = finalVelocityResidual;
+
+            coefficientVector.set(0, 0, z0);
+            coefficientVector.set(1, 0, zd0);
+            coefficientVector.set(2, 0, c2);
+            coefficientVector.set(3, 0, inverseDeterminant * (r0 * cofactor00 + m01 * (m12 * r2 - r1 * m22) + m02 * (r1 * m21 - m11 * r2)));
+            coefficientVector.set(4, 0, inverseDeterminant * (m00 * (r1 * m22 - m12 * r2) + r0 * cofactor01 + m02 * (m10 * r2 - r1 * m20)));
+            coefficientVector.set(5, 0, inverseDeterminant * (m00 * (m11 * r2 - r1 * m21) + m01 * (r1 * m20 - m10 * r2) + r0 * cofactor02));
+            shiftCoefficients(t0);
+            setYoVariables();
+            return;
+         }
+      }
+
       setPositionRow(0, t0, z0);
       setVelocityRow(1, t0, zd0);
       setAccelerationRow(2, t0, zdd0);
@@ -383,18 +466,28 @@ public class YoPolynomial implements PolynomialReadOnly, PolynomialVariableHolde
 
    public void setCubic(double t0, double tFinal, double z0, double zFinal)
    {
-      reshape(4);
-      setPositionRow(0, t0, z0);
-      setVelocityRow(1, t0, 0.0);
-      setPositionRow(2, tFinal, zFinal);
-      setVelocityRow(3, tFinal, 0.0);
-      solveForCoefficients();
-      setYoVariables();
+      setCubic(t0, tFinal, z0, 0.0, zFinal, 0.0);
    }
 
    public void setCubic(double t0, double tFinal, double z0, double zd0, double zFinal, double zdFinal)
    {
       reshape(4);
+
+      double duration = tFinal - t0;
+      if (Math.abs(duration) > CLOSED_FORM_MINIMUM_DURATION)
+      {
+         double deltaZ = zFinal - z0;
+         double duration2 = duration * duration;
+
+         coefficientVector.set(0, 0, z0);
+         coefficientVector.set(1, 0, zd0);
+         coefficientVector.set(2, 0, (3.0 * deltaZ - (2.0 * zd0 + zdFinal) * duration) / duration2);
+         coefficientVector.set(3, 0, (-2.0 * deltaZ + (zd0 + zdFinal) * duration) / (duration2 * duration));
+         shiftCoefficients(t0);
+         setYoVariables();
+         return;
+      }
+
       setPositionRow(0, t0, z0);
       setVelocityRow(1, t0, zd0);
       setPositionRow(2, tFinal, zFinal);
@@ -562,6 +655,28 @@ public class YoPolynomial implements PolynomialReadOnly, PolynomialVariableHolde
       setYoVariables();
    }
 
+   /**
+    * Converts the coefficients held in {@code coefficientVector}, expressed for the polynomial in
+    * {@code (x - x0)}, into the coefficients of the polynomial in {@code x}.
+    */
+   private void shiftCoefficients(double x0)
+   {
+      if (x0 == 0.0)
+         return;
+
+      int n = numberOfCoefficients.getIntegerValue();
+      double[] coefficients = coefficientVector.getData();
+
+      // Taylor shift by -x0 using repeated synthetic division.
+      for (int i = 0; i < n - 1; i++)
+      {
+         for (int j = n - 2; j >= i; j--)
+         {
+            coefficients[j] -= x0 * coefficients[j + 1];
+         }
+      }
+   }
+
    protected void solveForCoefficients()
    {
       solver.setA(constraintMatrix);
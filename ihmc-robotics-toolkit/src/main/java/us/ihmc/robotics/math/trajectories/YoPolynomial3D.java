@@ -4,11 +4,14 @@ import java.util.ArrayList;
 import java.util.List;
 
 import us.ihmc.euclid.Axis3D;
+import us.ihmc.euclid.tuple3D.interfaces.Point3DBasics;
 import us.ihmc.euclid.tuple3D.interfaces.Point3DReadOnly;
 import us.ihmc.euclid.tuple3D.interfaces.Tuple3DReadOnly;
+import us.ihmc.euclid.tuple3D.interfaces.Vector3DBasics;
 import us.ihmc.euclid.tuple3D.interfaces.Vector3DReadOnly;
 import us.ihmc.graphicsDescription.yoGraphics.YoGraphicPolynomial3D.Polynomial3DVariableHolder;
 import us.ihmc.yoVariables.registry.YoRegistry;
+import us.ihmc.yoVariables.variable.YoDouble;
 
 /**
  * {@code YoPolynomial3D} is the simplest 3D wrapper around the 1D {@link YoPolynomial}.
@@ -92,6 +95,9 @@ public class YoPolynomial3D implements Polynomial3DVariableHolder
       }
    };
 
+   /** Buffer for {@link #compute(double, Point3DBasics, Vector3DBasics, Vector3DBasics)}. */
+   private final double[] positionVelocityAcceleration = new double[9];
+
    private double xIntegralResult = Double.NaN;
    private double yIntegralResult = Double.NaN;
    private double zIntegralResult = Double.NaN;
@@ -216,6 +222,50 @@ public class YoPolynomial3D implements Polynomial3DVariableHolder
       zPolynomial.compute(t);
    }
 
+   /**
+    * Evaluates the three polynomials at {@code t} in a single pass and packs the result.
+    * <p>
+    * Unlike {@link #compute(double)}, the jerk is not computed and the output of the 1D polynomials,
+    * as well as {@link #getPosition()}, {@link #getVelocity()}, and {@link #getAcceleration()}, are
+    * not updated.
+    * </p>
+    *
+    * @param t                  the time at which the polynomials are evaluated.
+    * @param positionToPack     the position. Modified.
+    * @param velocityToPack     the velocity. Modified.
+    * @param accelerationToPack the acceleration. Modified.
+    */
+   public void compute(double t, Point3DBasics positionToPack, Vector3DBasics velocityToPack, Vector3DBasics accelerationToPack)
+   {
+      computeAxis(xPolynomial, t, 0);
+      computeAxis(yPolynomial, t, 1);
+      computeAxis(zPolynomial, t, 2);
+
+      positionToPack.set(positionVelocityAcceleration[0], positionVelocityAcceleration[1], positionVelocityAcceleration[2]);
+      velocityToPack.set(positionVelocityAcceleration[3], positionVelocityAcceleration[4], positionVelocityAcceleration[5]);
+      accelerationToPack.set(positionVelocityAcceleration[6], positionVelocityAcceleration[7], positionVelocityAcceleration[8]);
+   }
+
+   private void computeAxis(YoPolynomial polynomial, double t, int axis)
+   {
+      YoDouble[] coefficients = polynomial.getYoCoefficients();
+      double position = 0.0;
+      double velocity = 0.0;
+      double halfAcceleration = 0.0;
+
+      // Horner's scheme carrying the first two derivatives.
+      for (int i = polynomial.getNumberOfCoefficients() - 1; i >= 0; i--)
+      {
+         halfAcceleration = halfAcceleration * t + velocity;
+         velocity = velocity * t + position;
+         position = position * t + coefficients[i].getDoubleValue();
+      }
+
+      positionVelocityAcceleration[axis] = position;
+      positionVelocityAcceleration[3 + axis] = velocity;
+      positionVelocityAcceleration[6 + axis] = 2.0 * halfAcceleration;
+   }
+
    public Point3DReadOnly getPosition()
    {
       return position;
@@ -296,11 +296,7 @@ public class MultipleWaypointsPositionTrajectoryGenerator extends PositionTrajec
       }
 
       double subTrajectoryTime = MathTools.clamp(time - start.getTime(), 0.0, end.getTime() - start.getTime());
-      subTrajectory.compute(subTrajectoryTime);
-
-      currentPosition.set(subTrajectory.getPosition());
-      currentVelocity.set(subTrajectory.getVelocity());
-      currentAcceleration.set(subTrajectory.getAcceleration());
+      subTrajectory.compute(subTrajectoryTime, currentPosition, currentVelocity, currentAcceleration);
    }
 
    @Override
@@ -154,21 +154,24 @@ public class LevenbergMarquardtParameterOptimizer
 
       // start.      
       // compute jacobian.
-      perturbedInput.set(currentInput);
-      for (int i = 0; i < inputDimension; i++)
+      if (!outputCalculator.computeJacobian(currentInput, jacobian))
       {
-         perturbedInput.add(i, 0, perturbationVector.get(i));
+         perturbedInput.set(currentInput);
+         for (int i = 0; i < inputDimension; i++)
+         {
+            perturbedInput.add(i, 0, perturbationVector.get(i));
 
-         DMatrixRMaj perturbedOutput = outputCalculator.apply(perturbedInput);
-         DMatrixRMaj currentOutput = currentOutputSpace.getCorrespondingOutput();
+            DMatrixRMaj perturbedOutput = outputCalculator.apply(perturbedInput);
+            DMatrixRMaj currentOutput = currentOutputSpace.getCorrespondingOutput();
 
-         for (int j = 0; j < numberOfCorrespondences; j++)
-         {
-            double partialValue = (perturbedOutput.get(j) - currentOutput.get(j)) / perturbationVector.get(i);
-            jacobian.set(j, i, partialValue);
-         }
+            for (int j = 0; j < numberOfCorrespondences; j++)
+            {
+               double partialValue = (perturbedOutput.get(j) - currentOutput.get(j)) / perturbationVector.get(i);
+               jacobian.set(j, i, partialValue);
+            }
 
-         perturbedInput.add(i, 0, -perturbationVector.get(i));
+            perturbedInput.add(i, 0, -perturbationVector.get(i));
+         }
       }
 
       // compute direction.
@@ -281,8 +284,9 @@ public class LevenbergMarquardtParameterOptimizer
    private class OutputSpace
    {
       private final DMatrixRMaj output;
-      private DMatrixRMaj correspondingOutput;
+      private final DMatrixRMaj correspondingOutput;
       private final boolean[] correspondence;
+      private final Random random = new Random();
       private final TIntArrayList correspondingIndices = new TIntArrayList();
       private double correspondingQuality;
       private double quality;
@@ -290,6 +294,7 @@ public class LevenbergMarquardtParameterOptimizer
       private OutputSpace(int dimension)
       {
          output = new DMatrixRMaj(dimension, 1);
+         correspondingOutput = new DMatrixRMaj(dimension, 1);
          correspondence = new boolean[dimension];
       }
 
@@ -322,7 +327,7 @@ public class LevenbergMarquardtParameterOptimizer
 
          randomlySampleCorrespondences(correspondingIndices, maximumNumberOfCorrespondences);
 
-         correspondingOutput = new DMatrixRMaj(correspondingIndices.size(), 1);
+         correspondingOutput.reshape(correspondingIndices.size(), 1);
          int index = 0;
          TIntIterator iterator = correspondingIndices.iterator();
          while (iterator.hasNext())
@@ -333,7 +338,6 @@ public class LevenbergMarquardtParameterOptimizer
 
       private void randomlySampleCorrespondences(TIntArrayList correpsondencesToSample, int maxNumberOfCorrespondences)
       {
-         Random random = new Random();
          while (correpsondencesToSample.size() > maxNumberOfCorrespondences)
             correpsondencesToSample.remove(RandomNumbers.nextInt(random, 0, correpsondencesToSample.size() - 1));
       }
@@ -12,4 +12,17 @@ public interface OutputCalculator extends UnaryOperator<DMatrixRMaj>
 
    default void resetIndicesToCompute()
    {}
+
+   /**
+    * Computes the Jacobian of the outputs for the current indices to compute with respect to the
+    * input parameter. This is called with the same input parameter as the last call to
+    * {@link #apply(Object)} made with all the indices to compute.
+    *
+    * @return {@code false} if the Jacobian is not available, in which case it is computed by finite
+    *         differences.
+    */
+   default boolean computeJacobian(DMatrixRMaj inputParameter, DMatrixRMaj jacobianToPack)
+   {
+      return false;
+   }
 }
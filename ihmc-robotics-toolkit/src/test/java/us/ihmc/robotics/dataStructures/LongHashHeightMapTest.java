@@ -0,0 +1,118 @@
+package us.ihmc.robotics.dataStructures;
+
+import static us.ihmc.robotics.Assert.assertEquals;
+import static us.ihmc.robotics.Assert.assertFalse;
+import static us.ihmc.robotics.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.commons.lists.RecyclingArrayList;
+import us.ihmc.euclid.tuple3D.Point3D;
+
+public class LongHashHeightMapTest extends AbstractHeightMapTest
+{
+   private static final double RESOLUTION = 0.1;
+   private static final double eps = 1e-7;
+
+   @Test
+   public void testKeyPacking()
+   {
+      int[] indices = {Integer.MIN_VALUE, -280, -1, 0, 1, 280, Integer.MAX_VALUE};
+
+      for (int xIndex : indices)
+      {
+         for (int yIndex : indices)
+         {
+            long key = LongHashHeightMap.key(xIndex, yIndex);
+            assertEquals(xIndex, LongHashHeightMap.xIndex(key));
+            assertEquals(yIndex, LongHashHeightMap.yIndex(key));
+
+            for (int otherXIndex : indices)
+            {
+               for (int otherYIndex : indices)
+               {
+                  int expectedComparison = xIndex != otherXIndex ? Integer.compare(xIndex, otherXIndex) : Integer.compare(yIndex, otherYIndex);
+                  int comparison = Long.compare(key, LongHashHeightMap.key(otherXIndex, otherYIndex));
+                  assertEquals(Integer.signum(expectedComparison), Integer.signum(comparison));
+               }
+            }
+         }
+      }
+   }
+
+   @Test
+   public void testAgainstDoubleHashHeightMap()
+   {
+      Random random = new Random(4562L);
+
+      DoubleHashHeightMap expectedMap = new DoubleHashHeightMap(RESOLUTION);
+      LongHashHeightMap map = new LongHashHeightMap(RESOLUTION, 16);
+      List<Point3D> batch = new ArrayList<>();
+
+      for (int i = 0; i < 5000; i++)
+      {
+         Point3D point = new Point3D(random.nextDouble() * 10.0 - 5.0, random.nextDouble() * 10.0 - 5.0, random.nextDouble());
+         if (i % 100 == 0)
+            point.setZ(Double.NaN);
+
+         expectedMap.addPoint(point.getX(), point.getY(), point.getZ());
+         batch.add(point);
+      }
+
+      map.addPoints(batch);
+
+      RecyclingArrayList<Point3D> points = new RecyclingArrayList<>(Point3D.class);
+
+      for (int i = 0; i < 200; i++)
+      {
+         double xCenter = random.nextDouble() * 12.0 - 6.0;
+         double yCenter = random.nextDouble() * 12.0 - 6.0;
+         double xExtent = random.nextDouble() * (i < 100 ? 1.0 : 20.0);
+         double yExtent = random.nextDouble() * (i < 100 ? 1.0 : 20.0);
+
+         assertEquals(expectedMap.getHeightAtPoint(xCenter, yCenter), map.getHeightAtPoint(xCenter, yCenter), eps);
+         assertEquals(expectedMap.containsPoint(xCenter, yCenter), map.containsPoint(xCenter, yCenter));
+
+         // DoubleHashHeightMap only sorts the cells when the area is smaller than the map.
+         List<Point3D> expectedPoints = expectedMap.getAllPointsWithinArea(xCenter, yCenter, xExtent, yExtent);
+         expectedPoints.sort(Comparator.comparingDouble(Point3D::getX).thenComparingDouble(Point3D::getY));
+         int numberOfPoints = map.getAllPointsWithinArea(xCenter, yCenter, xExtent, yExtent, points);
+
+         assertEquals(expectedPoints.size(), numberOfPoints);
+         for (int j = 0; j < numberOfPoints; j++)
+            assertTrue(expectedPoints.get(j).epsilonEquals(points.get(j), eps));
+      }
+   }
+
+   @Test
+   public void testPackedBatchAndMask()
+   {
+      LongHashHeightMap map = new LongHashHeightMap(RESOLUTION);
+      double[] xyzPoints = {0.0, 0.0, 1.0, 0.1, 0.0, 2.0, 0.0, 0.1, Double.POSITIVE_INFINITY, 0.1, 0.1, 3.0};
+
+      map.addPoints(xyzPoints, 4);
+      assertEquals(3, map.size());
+      assertFalse(map.containsPoint(0.0, 0.1));
+
+      RecyclingArrayList<Point3D> points = new RecyclingArrayList<>(Point3D.class);
+      int numberOfPoints = map.getAllPointsWithinArea(0.05, 0.05, 0.2, 0.2, point -> point.getZ() > 1.5, points);
+      assertEquals(2, numberOfPoints);
+      assertEquals(2.0, points.get(0).getZ(), eps);
+      assertEquals(3.0, points.get(1).getZ(), eps);
+
+      map.clear();
+      assertEquals(0, map.getAllPointsWithinArea(0.05, 0.05, 0.2, 0.2, points));
+      assertEquals(0, points.size());
+   }
+
+   @Override
+   public HeightMapWithPoints getHeightMap(double minX, double minY, double maxX, double maxY, double resolution)
+   {
+      return new LongHashHeightMap(resolution);
+   }
+}
@@ -0,0 +1,151 @@
+package us.ihmc.robotics.math.trajectories;
+
+import java.util.Random;
+
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.factory.LinearSolverFactory_DDRM;
+import org.ejml.interfaces.linsol.LinearSolverDense;
+
+import us.ihmc.euclid.tuple3D.Point3D;
+import us.ihmc.euclid.tuple3D.Vector3D;
+import us.ihmc.log.LogTools;
+import us.ihmc.yoVariables.registry.YoRegistry;
+
+/**
+ * Compares the per-tick cost of refitting and evaluating a 3D quintic trajectory, as done by the
+ * swing, pelvis, chest, and hand trajectory generators, when solving the constraint system with a
+ * general LU decomposition as {@link YoPolynomial} used to and with the closed-form solution.
+ * <p>
+ * The boundary conditions of the closed-form solution are asserted in {@link YoPolynomialTest}.
+ * </p>
+ */
+public class YoPolynomialBenchmark
+{
+   private static final int warmupIterations = 20000;
+   private static final int iterations = 200000;
+
+   public static void main(String[] args)
+   {
+      Random random = new Random(3463L);
+      YoRegistry registry = new YoRegistry(YoPolynomialBenchmark.class.getSimpleName());
+      YoPolynomial3D polynomial = new YoPolynomial3D("polynomial", 6, registry);
+      LUQuinticSolver luSolver = new LUQuinticSolver();
+
+      double[] boundaryConditions = new double[18];
+      Point3D position = new Point3D();
+      Vector3D velocity = new Vector3D();
+      Vector3D acceleration = new Vector3D();
+
+      for (int i = 0; i < warmupIterations; i++)
+      {
+         updateWithLU(random, polynomial, luSolver, boundaryConditions);
+         updateWithClosedForm(random, polynomial, boundaryConditions, position, velocity, acceleration);
+      }
+
+      long luTime = 0;
+      long closedFormTime = 0;
+
+      for (int i = 0; i < iterations; i++)
+      {
+         luTime -= System.nanoTime();
+         updateWithLU(random, polynomial, luSolver, boundaryConditions);
+         luTime += System.nanoTime();
+
+         closedFormTime -= System.nanoTime();
+         updateWithClosedForm(random, polynomial, boundaryConditions, position, velocity, acceleration);
+         closedFormTime += System.nanoTime();
+      }
+
+      LogTools.info(String.format("Per tick quintic 3D trajectory update: LU %.3f us, closed-form %.3f us, speedup %.1fx",
+                                  1.0e-3 * luTime / iterations,
+                                  1.0e-3 * closedFormTime / iterations,
+                                  (double) luTime / closedFormTime));
+   }
+
+   private static void updateWithLU(Random random, YoPolynomial3D polynomial, LUQuinticSolver luSolver, double[] boundaryConditions)
+   {
+      double tFinal = nextBoundaryConditions(random, boundaryConditions);
+      YoPolynomial[] axes = {polynomial.getYoPolynomialX(), polynomial.getYoPolynomialY(), polynomial.getYoPolynomialZ()};
+
+      for (int axis = 0; axis < 3; axis++)
+      {
+         luSolver.solve(tFinal, boundaryConditions, 6 * axis);
+         axes[axis].setDirectly(luSolver.coefficients);
+      }
+
+      polynomial.compute(0.5 * tFinal);
+      polynomial.getPosition();
+      polynomial.getVelocity();
+      polynomial.getAcceleration();
+   }
+
+   private static void updateWithClosedForm(Random random, YoPolynomial3D polynomial, double[] boundaryConditions, Point3D position, Vector3D velocity,
+                                            Vector3D acceleration)
+   {
+      double tFinal = nextBoundaryConditions(random, boundaryConditions);
+      YoPolynomial[] axes = {polynomial.getYoPolynomialX(), polynomial.getYoPolynomialY(), polynomial.getYoPolynomialZ()};
+
+      for (int axis = 0; axis < 3; axis++)
+      {
+         int offset = 6 * axis;
+         axes[axis].setQuintic(0.0,
+                               tFinal,
+                               boundaryConditions[offset],
+                               boundaryConditions[offset + 1],
+                               boundaryConditions[offset + 2],
+                               boundaryConditions[offset + 3],
+                               boundaryConditions[offset + 4],
+                               boundaryConditions[offset + 5]);
+      }
+
+      polynomial.compute(0.5 * tFinal, position, velocity, acceleration);
+   }
+
+   private static double nextBoundaryConditions(Random random, double[] boundaryConditions)
+   {
+      for (int i = 0; i < boundaryConditions.length; i++)
+         boundaryConditions[i] = random.nextDouble() - 0.5;
+      return 0.5 + random.nextDouble();
+   }
+
+   /**
+    * Reproduces what {@link YoPolynomial#setQuintic(double, double, double, double, double, double, double, double)}
+    * was doing before the closed-form solution.
+    */
+   private static class LUQuinticSolver
+   {
+      private final LinearSolverDense<DMatrixRMaj> solver = LinearSolverFactory_DDRM.general(6, 6);
+      private final DMatrixRMaj constraintMatrix = new DMatrixRMaj(6, 6);
+      private final DMatrixRMaj constraintVector = new DMatrixRMaj(6, 1);
+      private final DMatrixRMaj coefficients = new DMatrixRMaj(6, 1);
+
+      void solve(double tFinal, double[] boundaryConditions, int offset)
+      {
+         constraintMatrix.zero();
+         setConstraintRow(0, 0.0, boundaryConditions[offset], 0);
+         setConstraintRow(1, 0.0, boundaryConditions[offset + 1], 1);
+         setConstraintRow(2, 0.0, boundaryConditions[offset + 2], 2);
+         setConstraintRow(3, tFinal, boundaryConditions[offset + 3], 0);
+         setConstraintRow(4, tFinal, boundaryConditions[offset + 4], 1);
+         setConstraintRow(5, tFinal, boundaryConditions[offset + 5], 2);
+         solver.setA(constraintMatrix);
+         solver.solve(constraintVector, coefficients);
+      }
+
+      private void setConstraintRow(int row, double x, double value, int derivativeOrder)
+      {
+         double xPower = 1.0;
+
+         for (int col = derivativeOrder; col < 6; col++)
+         {
+            double columnPower = 1.0;
+            for (int i = 0; i < derivativeOrder; i++)
+               columnPower *= col - i;
+            constraintMatrix.set(row, col, xPower * columnPower);
+            xPower *= x;
+         }
+
+         constraintVector.set(row, 0, value);
+      }
+   }
+}
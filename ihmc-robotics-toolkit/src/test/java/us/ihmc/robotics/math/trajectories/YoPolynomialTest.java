@@ -2,9 +2,17 @@ package us.ihmc.robotics.math.trajectories;
 
 import static us.ihmc.robotics.Assert.assertEquals;
 
+import java.util.Random;
+
 import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.factory.LinearSolverFactory_DDRM;
+import org.ejml.interfaces.linsol.LinearSolverDense;
 import org.junit.jupiter.api.Test;
 
+import us.ihmc.euclid.tools.EuclidCoreRandomTools;
+import us.ihmc.euclid.tools.EuclidCoreTestTools;
+import us.ihmc.euclid.tuple3D.Point3D;
+import us.ihmc.euclid.tuple3D.Vector3D;
 import us.ihmc.yoVariables.registry.YoRegistry;
 
 public class YoPolynomialTest
@@ -180,8 +188,132 @@ public class YoPolynomialTest
          compareDerivativeVersions(cubic, x);
       }
    }
-   
-   
+
+   @Test
+   public void testClosedFormBoundaryConditions()
+   {
+      YoRegistry registry = new YoRegistry(namePrefix);
+      YoPolynomial polynomial = new YoPolynomial(namePrefix + "ClosedForm", 6, registry);
+      Random random = new Random(5674);
+
+      for (int i = 0; i < 100; i++)
+      {
+         double t0 = EuclidCoreRandomTools.nextDouble(random, 5.0);
+         double tIntermediate = t0 + EuclidCoreRandomTools.nextDouble(random, 0.1, 1.0);
+         double tFinal = tIntermediate + EuclidCoreRandomTools.nextDouble(random, 0.1, 1.0);
+         double z0 = EuclidCoreRandomTools.nextDouble(random, 1.0);
+         double zd0 = EuclidCoreRandomTools.nextDouble(random, 1.0);
+         double zdd0 = EuclidCoreRandomTools.nextDouble(random, 1.0);
+         double zIntermediate = EuclidCoreRandomTools.nextDouble(random, 1.0);
+         double zFinal = EuclidCoreRandomTools.nextDouble(random, 1.0);
+         double zdFinal = EuclidCoreRandomTools.nextDouble(random, 1.0);
+         double zddFinal = EuclidCoreRandomTools.nextDouble(random, 1.0);
+
+         polynomial.setLinear(t0, tFinal, z0, zFinal);
+         assertDerivativeEquals(polynomial, t0, 0, z0);
+         assertDerivativeEquals(polynomial, tFinal, 0, zFinal);
+
+         polynomial.setLinear(t0, z0, zd0);
+         assertDerivativeEquals(polynomial, t0, 0, z0);
+         assertDerivativeEquals(polynomial, t0, 1, zd0);
+
+         polynomial.setCubic(t0, tFinal, z0, zd0, zFinal, zdFinal);
+         assertDerivativeEquals(polynomial, t0, 0, z0);
+         assertDerivativeEquals(polynomial, t0, 1, zd0);
+         assertDerivativeEquals(polynomial, tFinal, 0, zFinal);
+         assertDerivativeEquals(polynomial, tFinal, 1, zdFinal);
+
+         polynomial.setQuintic(t0, tFinal, z0, zd0, zdd0, zFinal, zdFinal, zddFinal);
+         assertDerivativeEquals(polynomial, t0, 0, z0);
+         assertDerivativeEquals(polynomial, t0, 1, zd0);
+         assertDerivativeEquals(polynomial, t0, 2, zdd0);
+         assertDerivativeEquals(polynomial, tFinal, 0, zFinal);
+         assertDerivativeEquals(polynomial, tFinal, 1, zdFinal);
+         assertDerivativeEquals(polynomial, tFinal, 2, zddFinal);
+
+         polynomial.setQuinticUsingWayPoint(t0, tIntermediate, tFinal, z0, zd0, zdd0, zIntermediate, zFinal, zdFinal);
+         assertDerivativeEquals(polynomial, t0, 0, z0);
+         assertDerivativeEquals(polynomial, t0, 1, zd0);
+         assertDerivativeEquals(polynomial, t0, 2, zdd0);
+         assertDerivativeEquals(polynomial, tIntermediate, 0, zIntermediate);
+         assertDerivativeEquals(polynomial, tFinal, 0, zFinal);
+         assertDerivativeEquals(polynomial, tFinal, 1, zdFinal);
+      }
+   }
+
+   @Test
+   public void testClosedFormQuinticMatchesLinearSolve()
+   {
+      YoRegistry registry = new YoRegistry(namePrefix);
+      YoPolynomial polynomial = new YoPolynomial(namePrefix + "Quintic", 6, registry);
+      Random random = new Random(8734);
+      LinearSolverDense<DMatrixRMaj> solver = LinearSolverFactory_DDRM.general(6, 6);
+      DMatrixRMaj constraintMatrix = new DMatrixRMaj(6, 6);
+      DMatrixRMaj constraintVector = new DMatrixRMaj(6, 1);
+      DMatrixRMaj expectedCoefficients = new DMatrixRMaj(6, 1);
+
+      for (int i = 0; i < 100; i++)
+      {
+         double t0 = EuclidCoreRandomTools.nextDouble(random, 2.0);
+         double tFinal = t0 + EuclidCoreRandomTools.nextDouble(random, 0.1, 2.0);
+         double[] boundaryConditions = new double[6];
+         for (int j = 0; j < 6; j++)
+            boundaryConditions[j] = EuclidCoreRandomTools.nextDouble(random, 1.0);
+
+         constraintMatrix.zero();
+         for (int row = 0; row < 6; row++)
+         {
+            double x = row < 3 ? t0 : tFinal;
+            int order = row % 3;
+            for (int col = order; col < 6; col++)
+               constraintMatrix.set(row, col, polynomial.getDerivativeCoefficient(order, col) * Math.pow(x, col - order));
+            constraintVector.set(row, 0, boundaryConditions[row]);
+         }
+         solver.setA(constraintMatrix);
+         solver.solve(constraintVector, expectedCoefficients);
+
+         polynomial.setQuintic(t0, tFinal, boundaryConditions[0], boundaryConditions[1], boundaryConditions[2], boundaryConditions[3],
+                               boundaryConditions[4], boundaryConditions[5]);
+
+         double[] coefficients = polynomial.getCoefficients();
+         for (int j = 0; j < 6; j++)
+            assertEquals(expectedCoefficients.get(j), coefficients[j], EPSILON * Math.max(1.0, Math.abs(expectedCoefficients.get(j))));
+      }
+   }
+
+   @Test
+   public void testCompute3D()
+   {
+      YoRegistry registry = new YoRegistry(namePrefix);
+      YoPolynomial3D polynomial = new YoPolynomial3D(namePrefix + "3D", 6, registry);
+      Random random = new Random(2356);
+      Point3D position = new Point3D();
+      Vector3D velocity = new Vector3D();
+      Vector3D acceleration = new Vector3D();
+
+      for (int i = 0; i < 100; i++)
+      {
+         double tFinal = EuclidCoreRandomTools.nextDouble(random, 0.1, 2.0);
+         polynomial.getYoPolynomialX().setQuintic(0.0, tFinal, random.nextDouble(), random.nextDouble(), random.nextDouble(), random.nextDouble(),
+                                                  random.nextDouble(), random.nextDouble());
+         polynomial.getYoPolynomialY().setCubic(0.0, tFinal, random.nextDouble(), random.nextDouble(), random.nextDouble(), random.nextDouble());
+         polynomial.getYoPolynomialZ().setLinear(0.0, tFinal, random.nextDouble(), random.nextDouble());
+
+         double t = EuclidCoreRandomTools.nextDouble(random, 0.0, tFinal);
+         polynomial.compute(t);
+         polynomial.compute(t, position, velocity, acceleration);
+
+         EuclidCoreTestTools.assertTuple3DEquals(polynomial.getPosition(), position, EPSILON);
+         EuclidCoreTestTools.assertTuple3DEquals(polynomial.getVelocity(), velocity, EPSILON);
+         EuclidCoreTestTools.assertTuple3DEquals(polynomial.getAcceleration(), acceleration, EPSILON);
+      }
+   }
+
+   private static void assertDerivativeEquals(YoPolynomial polynomial, double x, int order, double expected)
+   {
+      assertEquals(expected, polynomial.getDerivative(order, x), EPSILON);
+   }
+
    public void compareDerivativesPoint(YoPolynomial polynomial, double x)
    {
       double[] coefficients = polynomial.getCoefficients();
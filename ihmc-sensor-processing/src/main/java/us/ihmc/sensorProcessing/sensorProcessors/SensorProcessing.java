@@ -4,6 +4,7 @@ import static us.ihmc.sensorProcessing.sensorProcessors.SensorProcessing.SensorT
 
 import java.util.*;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 import org.ejml.data.DMatrixRMaj;
 
@@ -187,6 +188,28 @@ public class SensorProcessing implements SensorOutputMapReadOnly
    private final LinkedHashMap<ForceSensorDefinition, List<ProcessingYoVariable>> processedForces = new LinkedHashMap<>();
    private final LinkedHashMap<ForceSensorDefinition, List<ProcessingYoVariable>> processedTorques = new LinkedHashMap<>();
 
+   /**
+    * Flat view of the processor chains above that is iterated at every tick instead of looking up
+    * the chains in the maps. Built by {@link #compileProcessors()} and invalidated whenever a
+    * processor is added.
+    */
+   private boolean processorsCompiled = false;
+   private ProcessingYoVariable[] compiledJointProcessors;
+   private ProcessingYoVariable[][] compiledIMUProcessors;
+   private ProcessingYoVariable[][] compiledForceSensorProcessors;
+
+   private YoFrameQuaternion[] compiledInputOrientations;
+   private YoFrameVector3D[] compiledInputAngularVelocities;
+   private YoFrameVector3D[] compiledInputLinearAccelerations;
+   private YoFrameQuaternion[] compiledIntermediateOrientations;
+   private YoFrameVector3D[] compiledIntermediateAngularVelocities;
+   private YoFrameVector3D[] compiledIntermediateLinearAccelerations;
+
+   private YoFrameVector3D[] compiledInputForces;
+   private YoFrameVector3D[] compiledInputTorques;
+   private YoFrameVector3D[] compiledIntermediateForces;
+   private YoFrameVector3D[] compiledIntermediateTorques;
+
    private final LinkedHashMap<OneDoFJointBasics, YoDouble> outputJointPositions = new LinkedHashMap<>();
    private final LinkedHashMap<OneDoFJointBasics, YoDouble> outputJointVelocities = new LinkedHashMap<>();
    private final LinkedHashMap<OneDoFJointBasics, YoDouble> outputJointAccelerations = new LinkedHashMap<>();
@@ -288,28 +311,28 @@ public class SensorProcessing implements SensorOutputMapReadOnly
          YoDouble rawJointPosition = new YoDouble(prefix + suffix, registry);
          inputJointPositions.put(oneDoFJoint, rawJointPosition);
          outputJointPositions.put(oneDoFJoint, rawJointPosition);
-         processedJointPositions.put(oneDoFJoint, new ArrayList<ProcessingYoVariable>());
+         processedJointPositions.put(oneDoFJoint, new ProcessorChain());
 
          prefix = JOINT_VELOCITY.getProcessorNamePrefix(RAW);
          suffix = JOINT_VELOCITY.getProcessorNameSuffix(jointName, -1);
          YoDouble rawJointVelocity = new YoDouble(prefix + suffix, registry);
          inputJointVelocities.put(oneDoFJoint, rawJointVelocity);
          outputJointVelocities.put(oneDoFJoint, rawJointVelocity);
-         processedJointVelocities.put(oneDoFJoint, new ArrayList<ProcessingYoVariable>());
+         processedJointVelocities.put(oneDoFJoint, new ProcessorChain());
 
          prefix = JOINT_ACCELERATION.getProcessorNamePrefix(RAW);
          suffix = JOINT_ACCELERATION.getProcessorNameSuffix(jointName, -1);
          YoDouble rawJointAcceleration = new YoDouble(prefix + suffix, registry);
          inputJointAccelerations.put(oneDoFJoint, rawJointAcceleration);
          outputJointAccelerations.put(oneDoFJoint, rawJointAcceleration);
-         processedJointAccelerations.put(oneDoFJoint, new ArrayList<ProcessingYoVariable>());
+         processedJointAccelerations.put(oneDoFJoint, new ProcessorChain());
 
          prefix = JOINT_TAU.getProcessorNamePrefix(RAW);
          suffix = JOINT_TAU.getProcessorNameSuffix(jointName, -1);
          YoDouble rawJointTau = new YoDouble(prefix + suffix, registry);
          inputJointTaus.put(oneDoFJoint, rawJointTau);
          outputJointTaus.put(oneDoFJoint, rawJointTau);
-         processedJointTaus.put(oneDoFJoint, new ArrayList<ProcessingYoVariable>());
+         processedJointTaus.put(oneDoFJoint, new ProcessorChain());
 
          YoBoolean jointEnabledIndicator = new YoBoolean("joint_enabled_" + jointName, registry);
          jointEnabledIndicator.set(true);
@@ -339,21 +362,21 @@ public class SensorProcessing implements SensorOutputMapReadOnly
          YoFrameQuaternion rawOrientation = new YoFrameQuaternion(prefix, suffix, worldFrame, registry);
          inputOrientations.put(imuDefinition, rawOrientation);
          intermediateOrientations.put(imuDefinition, rawOrientation);
-         processedOrientations.put(imuDefinition, new ArrayList<ProcessingYoVariable>());
+         processedOrientations.put(imuDefinition, new ProcessorChain());
 
          prefix = IMU_ANGULAR_VELOCITY.getProcessorNamePrefix(RAW);
          suffix = IMU_ANGULAR_VELOCITY.getProcessorNameSuffix(imuName, -1);
          YoFrameVector3D rawAngularVelocity = new YoFrameVector3D(prefix, suffix, sensorFrame, registry);
          inputAngularVelocities.put(imuDefinition, rawAngularVelocity);
          intermediateAngularVelocities.put(imuDefinition, rawAngularVelocity);
-         processedAngularVelocities.put(imuDefinition, new ArrayList<ProcessingYoVariable>());
+         processedAngularVelocities.put(imuDefinition, new ProcessorChain());
 
          prefix = IMU_LINEAR_ACCELERATION.getProcessorNamePrefix(RAW);
          suffix = IMU_LINEAR_ACCELERATION.getProcessorNameSuffix(imuName, -1);
          YoFrameVector3D rawLinearAcceleration = new YoFrameVector3D(prefix, suffix, sensorFrame, registry);
          inputLinearAccelerations.put(imuDefinition, rawLinearAcceleration);
          intermediateLinearAccelerations.put(imuDefinition, rawLinearAcceleration);
-         processedLinearAccelerations.put(imuDefinition, new ArrayList<ProcessingYoVariable>());
+         processedLinearAccelerations.put(imuDefinition, new ProcessorChain());
 
          inputIMUs.add(new IMUSensor(imuDefinition, sensorNoiseParameters));
          outputIMUs.add(new IMUSensor(imuDefinition, sensorNoiseParameters));
@@ -371,14 +394,14 @@ public class SensorProcessing implements SensorOutputMapReadOnly
          YoFrameVector3D rawForce = new YoFrameVector3D(prefix, suffix, sensorFrame, registry);
          inputForces.put(forceSensorDefinition, rawForce);
          intermediateForces.put(forceSensorDefinition, rawForce);
-         processedForces.put(forceSensorDefinition, new ArrayList<ProcessingYoVariable>());
+         processedForces.put(forceSensorDefinition, new ProcessorChain());
 
          prefix = TORQUE_SENSOR.getProcessorNamePrefix(RAW);
          suffix = TORQUE_SENSOR.getProcessorNameSuffix(sensorName, -1);
          YoFrameVector3D rawTorque = new YoFrameVector3D(prefix, suffix, sensorFrame, registry);
          inputTorques.put(forceSensorDefinition, rawTorque);
          intermediateTorques.put(forceSensorDefinition, rawTorque);
-         processedTorques.put(forceSensorDefinition, new ArrayList<ProcessingYoVariable>());
+         processedTorques.put(forceSensorDefinition, new ProcessorChain());
       }
 
       inputForceSensors = new ForceSensorDataHolder(forceSensorDefinitions);
@@ -401,38 +424,35 @@ public class SensorProcessing implements SensorOutputMapReadOnly
          outputJointSensorMap.put(oneDoFJoint, processedSensorOutput);
       }
 
+      compileProcessors();
+
       parentRegistry.addChild(registry);
    }
 
    public void initialize()
    {
-      for (int i = 0; i < jointSensorDefinitions.size(); i++)
-      {
-         OneDoFJointBasics oneDoFJoint = jointSensorDefinitions.get(i);
+      if (!processorsCompiled)
+         compileProcessors();
 
-         resetProcessors(processedJointPositions.get(oneDoFJoint));
-         resetProcessors(processedJointVelocities.get(oneDoFJoint));
-         resetProcessors(processedJointAccelerations.get(oneDoFJoint));
-         resetProcessors(processedJointTaus.get(oneDoFJoint));
-      }
+      resetProcessors(compiledJointProcessors);
 
       for (int i = 0; i < imuSensorDefinitions.size(); i++)
       {
-         IMUDefinition imuDefinition = imuSensorDefinitions.get(i);
+         YoFrameQuaternion inputOrientation = compiledInputOrientations[i];
+         YoFrameVector3D inputAngularVelocity = compiledInputAngularVelocities[i];
+         YoFrameVector3D inputLinearAcceleration = compiledInputLinearAccelerations[i];
 
-         inputOrientations.get(imuDefinition).setToZero();
-         inputAngularVelocities.get(imuDefinition).setToZero();
-         inputLinearAccelerations.get(imuDefinition).setToZero();
+         inputOrientation.setToZero();
+         inputAngularVelocity.setToZero();
+         inputLinearAcceleration.setToZero();
 
-         resetProcessors(processedOrientations.get(imuDefinition));
-         resetProcessors(processedAngularVelocities.get(imuDefinition));
-         resetProcessors(processedLinearAccelerations.get(imuDefinition));
+         resetProcessors(compiledIMUProcessors[i]);
 
          IMUSensor outputIMU = outputIMUs.get(i);
-         tempOrientation.set(inputOrientations.get(imuDefinition));
+         tempOrientation.set(inputOrientation);
          outputIMU.setOrientationMeasurement(tempOrientation);
-         outputIMU.setAngularVelocityMeasurement(inputAngularVelocities.get(imuDefinition));
-         outputIMU.setLinearAccelerationMeasurement(inputLinearAccelerations.get(imuDefinition));
+         outputIMU.setAngularVelocityMeasurement(inputAngularVelocity);
+         outputIMU.setLinearAccelerationMeasurement(inputLinearAcceleration);
       }
 
       for (int i = 0; i < forceSensorDefinitions.size(); i++)
@@ -440,11 +460,10 @@ public class SensorProcessing implements SensorOutputMapReadOnly
          ForceSensorDefinition forceSensorDefinition = forceSensorDefinitions.get(i);
 
          inputForceSensors.getForceSensorValue(forceSensorDefinition, tempWrench);
-         inputForces.get(forceSensorDefinition).setToZero();
-         inputTorques.get(forceSensorDefinition).setToZero();
+         compiledInputForces[i].setToZero();
+         compiledInputTorques[i].setToZero();
 
-         resetProcessors(processedForces.get(forceSensorDefinition));
-         resetProcessors(processedTorques.get(forceSensorDefinition));
+         resetProcessors(compiledForceSensorProcessors[i]);
 
          tempWrench.setToZero();
          outputForceSensors.setForceSensorValue(forceSensorDefinition, tempWrench);
@@ -475,6 +494,61 @@ public class SensorProcessing implements SensorOutputMapReadOnly
       this.monotonicTime.set(monotonicTime);
       this.syncTimestamp.set(syncTimestamp);
 
+      if (!processorsCompiled)
+         compileProcessors();
+
+      updateProcessors(compiledJointProcessors);
+
+      for (int i = 0; i < imuSensorDefinitions.size(); i++)
+      {
+         IMUSensor inputIMU = inputIMUs.get(i);
+         tempOrientation.set(compiledInputOrientations[i]);
+         inputIMU.setOrientationMeasurement(tempOrientation);
+         inputIMU.setAngularVelocityMeasurement(compiledInputAngularVelocities[i]);
+         inputIMU.setLinearAccelerationMeasurement(compiledInputLinearAccelerations[i]);
+
+         updateProcessors(compiledIMUProcessors[i]);
+
+         IMUSensor outputIMU = outputIMUs.get(i);
+         tempOrientation.set(compiledIntermediateOrientations[i]);
+         outputIMU.setOrientationMeasurement(tempOrientation);
+         outputIMU.setAngularVelocityMeasurement(compiledIntermediateAngularVelocities[i]);
+         outputIMU.setLinearAccelerationMeasurement(compiledIntermediateLinearAccelerations[i]);
+      }
+
+      for (int i = 0; i < forceSensorDefinitions.size(); i++)
+      {
+         ForceSensorDefinition forceSensorDefinition = forceSensorDefinitions.get(i);
+
+         inputForceSensors.getForceSensorValue(forceSensorDefinition, tempWrench);
+         tempForce.setIncludingFrame(tempWrench.getLinearPart());
+         tempTorque.setIncludingFrame(tempWrench.getAngularPart());
+         compiledInputForces[i].set(tempForce);
+         compiledInputTorques[i].set(tempTorque);
+
+         updateProcessors(compiledForceSensorProcessors[i]);
+
+         tempForce.setIncludingFrame(compiledIntermediateForces[i]);
+         tempTorque.setIncludingFrame(compiledIntermediateTorques[i]);
+         tempWrench.set(tempTorque, tempForce);
+         outputForceSensors.setForceSensorValue(forceSensorDefinition, tempWrench);
+      }
+
+      for (int i = 0; i < diagnosticModules.size(); i++)
+         diagnosticModules.get(i).update();
+   }
+
+   /**
+    * Same as {@link #startComputation(long, long, long)} but looking up the processor chains in the
+    * maps at every tick, as done before the processors were compiled. Only used to test that the
+    * compiled processors do not change the outputs.
+    */
+   void startComputationFromProcessorMaps(long wallTime, long monotonicTime, long syncTimestamp)
+   {
+      this.wallTime.set(wallTime);
+      this.monotonicTime.set(monotonicTime);
+      this.syncTimestamp.set(syncTimestamp);
+
       for (int i = 0; i < jointSensorDefinitions.size(); i++)
       {
          OneDoFJointBasics oneDoFJoint = jointSensorDefinitions.get(i);
@@ -529,7 +603,7 @@ public class SensorProcessing implements SensorOutputMapReadOnly
          diagnosticModules.get(i).update();
    }
 
-   private void updateProcessors(List<ProcessingYoVariable> processors)
+   private static void updateProcessors(List<ProcessingYoVariable> processors)
    {
       for (int j = 0; j < processors.size(); j++)
       {
@@ -537,11 +611,208 @@ public class SensorProcessing implements SensorOutputMapReadOnly
       }
    }
 
-   private void resetProcessors(List<ProcessingYoVariable> processors)
+   private static void updateProcessors(ProcessingYoVariable[] processors)
    {
-      for (int j = 0; j < processors.size(); j++)
+      for (int j = 0; j < processors.length; j++)
+      {
+         processors[j].update();
+      }
+   }
+
+   private static void resetProcessors(ProcessingYoVariable[] processors)
+   {
+      for (int j = 0; j < processors.length; j++)
+      {
+         processors[j].reset();
+      }
+   }
+
+   /**
+    * Flattens the processor chains into arrays, one for all the joints and one per IMU and force
+    * sensor, and resolves the input and intermediate signals of the IMUs and force sensors.
+    * <p>
+    * The processors are stored in the exact order they used to be updated in: for each joint the
+    * position, velocity, acceleration, and then tau chains, and for each IMU the orientation, angular
+    * velocity, and linear acceleration chains. Processors can read the output of another chain, e.g.
+    * the elasticity compensators use the processed tau, such that this order has to be preserved.
+    * </p>
+    */
+   private void compileProcessors()
+   {
+      List<ProcessingYoVariable> jointProcessors = new ArrayList<>();
+
+      for (int i = 0; i < jointSensorDefinitions.size(); i++)
+      {
+         OneDoFJointBasics oneDoFJoint = jointSensorDefinitions.get(i);
+         jointProcessors.addAll(processedJointPositions.get(oneDoFJoint));
+         jointProcessors.addAll(processedJointVelocities.get(oneDoFJoint));
+         jointProcessors.addAll(processedJointAccelerations.get(oneDoFJoint));
+         jointProcessors.addAll(processedJointTaus.get(oneDoFJoint));
+      }
+
+      compiledJointProcessors = jointProcessors.toArray(new ProcessingYoVariable[0]);
+
+      int numberOfIMUs = imuSensorDefinitions.size();
+      compiledIMUProcessors = new ProcessingYoVariable[numberOfIMUs][];
+      compiledInputOrientations = new YoFrameQuaternion[numberOfIMUs];
+      compiledInputAngularVelocities = new YoFrameVector3D[numberOfIMUs];
+      compiledInputLinearAccelerations = new YoFrameVector3D[numberOfIMUs];
+      compiledIntermediateOrientations = new YoFrameQuaternion[numberOfIMUs];
+      compiledIntermediateAngularVelocities = new YoFrameVector3D[numberOfIMUs];
+      compiledIntermediateLinearAccelerations = new YoFrameVector3D[numberOfIMUs];
+
+      for (int i = 0; i < numberOfIMUs; i++)
+      {
+         IMUDefinition imuDefinition = imuSensorDefinitions.get(i);
+         List<ProcessingYoVariable> imuProcessors = new ArrayList<>();
+         imuProcessors.addAll(processedOrientations.get(imuDefinition));
+         imuProcessors.addAll(processedAngularVelocities.get(imuDefinition));
+         imuProcessors.addAll(processedLinearAccelerations.get(imuDefinition));
+         compiledIMUProcessors[i] = imuProcessors.toArray(new ProcessingYoVariable[0]);
+
+         compiledInputOrientations[i] = inputOrientations.get(imuDefinition);
+         compiledInputAngularVelocities[i] = inputAngularVelocities.get(imuDefinition);
+         compiledInputLinearAccelerations[i] = inputLinearAccelerations.get(imuDefinition);
+         compiledIntermediateOrientations[i] = intermediateOrientations.get(imuDefinition);
+         compiledIntermediateAngularVelocities[i] = intermediateAngularVelocities.get(imuDefinition);
+         compiledIntermediateLinearAccelerations[i] = intermediateLinearAccelerations.get(imuDefinition);
+      }
+
+      int numberOfForceSensors = forceSensorDefinitions.size();
+      compiledForceSensorProcessors = new ProcessingYoVariable[numberOfForceSensors][];
+      compiledInputForces = new YoFrameVector3D[numberOfForceSensors];
+      compiledInputTorques = new YoFrameVector3D[numberOfForceSensors];
+      compiledIntermediateForces = new YoFrameVector3D[numberOfForceSensors];
+      compiledIntermediateTorques = new YoFrameVector3D[numberOfForceSensors];
+
+      for (int i = 0; i < numberOfForceSensors; i++)
+      {
+         ForceSensorDefinition forceSensorDefinition = forceSensorDefinitions.get(i);
+         List<ProcessingYoVariable> forceSensorProcessors = new ArrayList<>();
+         forceSensorProcessors.addAll(processedForces.get(forceSensorDefinition));
+         forceSensorProcessors.addAll(processedTorques.get(forceSensorDefinition));
+         compiledForceSensorProcessors[i] = forceSensorProcessors.toArray(new ProcessingYoVariable[0]);
+
+         compiledInputForces[i] = inputForces.get(forceSensorDefinition);
+         compiledInputTorques[i] = inputTorques.get(forceSensorDefinition);
+         compiledIntermediateForces[i] = intermediateForces.get(forceSensorDefinition);
+         compiledIntermediateTorques[i] = intermediateTorques.get(forceSensorDefinition);
+      }
+
+      processorsCompiled = true;
+   }
+
+   /**
+    * Chain of processors for a single sensor signal. Any modification of the chain invalidates the
+    * compiled processors such that they are rebuilt before the next tick.
+    */
+   private class ProcessorChain extends ArrayList<ProcessingYoVariable>
+   {
+      private static final long serialVersionUID = 4219658360432918406L;
+
+      @Override
+      public boolean add(ProcessingYoVariable processor)
+      {
+         processorsCompiled = false;
+         return super.add(processor);
+      }
+
+      @Override
+      public void add(int index, ProcessingYoVariable processor)
+      {
+         processorsCompiled = false;
+         super.add(index, processor);
+      }
+
+      @Override
+      public boolean addAll(Collection<? extends ProcessingYoVariable> processors)
+      {
+         processorsCompiled = false;
+         return super.addAll(processors);
+      }
+
+      @Override
+      public boolean addAll(int index, Collection<? extends ProcessingYoVariable> processors)
+      {
+         processorsCompiled = false;
+         return super.addAll(index, processors);
+      }
+
+      @Override
+      public ProcessingYoVariable set(int index, ProcessingYoVariable processor)
+      {
+         processorsCompiled = false;
+         return super.set(index, processor);
+      }
+
+      @Override
+      public ProcessingYoVariable remove(int index)
+      {
+         processorsCompiled = false;
+         return super.remove(index);
+      }
+
+      @Override
+      public boolean remove(Object processor)
+      {
+         processorsCompiled = false;
+         return super.remove(processor);
+      }
+
+      @Override
+      protected void removeRange(int fromIndex, int toIndex)
+      {
+         processorsCompiled = false;
+         super.removeRange(fromIndex, toIndex);
+      }
+
+      @Override
+      public boolean removeAll(Collection<?> processors)
+      {
+         processorsCompiled = false;
+         return super.removeAll(processors);
+      }
+
+      @Override
+      public boolean retainAll(Collection<?> processors)
+      {
+         processorsCompiled = false;
+         return super.retainAll(processors);
+      }
+
+      @Override
+      public boolean removeIf(Predicate<? super ProcessingYoVariable> filter)
+      {
+         processorsCompiled = false;
+         return super.removeIf(filter);
+      }
+
+      @Override
+      public void replaceAll(UnaryOperator<ProcessingYoVariable> operator)
+      {
+         processorsCompiled = false;
+         super.replaceAll(operator);
+      }
+
+      @Override
+      public void sort(Comparator<? super ProcessingYoVariable> comparator)
+      {
+         processorsCompiled = false;
+         super.sort(comparator);
+      }
+
+      @Override
+      public void clear()
+      {
+         processorsCompiled = false;
+         super.clear();
+      }
+
+      /** The sub-list would bypass the invalidation. */
+      @Override
+      public List<ProcessingYoVariable> subList(int fromIndex, int toIndex)
       {
-         processors.get(j).reset();
+         return Collections.unmodifiableList(super.subList(fromIndex, toIndex));
       }
    }
 
@@ -0,0 +1,218 @@
+package us.ihmc.sensorProcessing.sensorProcessors;
+
+import static us.ihmc.robotics.Assert.assertEquals;
+import static us.ihmc.robotics.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.ejml.data.DMatrixRMaj;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.euclid.tools.EuclidCoreRandomTools;
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.euclid.tuple3D.Vector3D;
+import us.ihmc.euclid.tuple4D.Quaternion;
+import us.ihmc.mecano.multiBodySystem.RevoluteJoint;
+import us.ihmc.mecano.multiBodySystem.interfaces.OneDoFJointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools;
+import us.ihmc.sensorProcessing.sensorProcessors.SensorProcessing.SensorType;
+import us.ihmc.sensorProcessing.simulatedSensors.SensorNoiseParameters;
+import us.ihmc.sensorProcessing.simulatedSensors.StateEstimatorSensorDefinitions;
+import us.ihmc.sensorProcessing.stateEstimation.IMUSensorReadOnly;
+import us.ihmc.sensorProcessing.stateEstimation.SensorProcessingConfiguration;
+import us.ihmc.robotics.sensors.ForceSensorDefinition;
+import us.ihmc.robotics.sensors.IMUDefinition;
+import us.ihmc.yoVariables.parameters.DefaultParameterReader;
+import us.ihmc.yoVariables.providers.DoubleProvider;
+import us.ihmc.yoVariables.registry.YoRegistry;
+import us.ihmc.yoVariables.variable.YoVariable;
+
+public class SensorProcessingTest
+{
+   private static final int NUMBER_OF_JOINTS = 6;
+   private static final int NUMBER_OF_TICKS = 500;
+   private static final double DT = 0.001;
+
+   /**
+    * The compiled processors have to give exactly the same outputs as updating the processor chains
+    * from the maps, also after processors are added once the sensor processing has been constructed.
+    */
+   @Test
+   public void testCompiledProcessorsMatchProcessorMaps()
+   {
+      Random random = new Random(65420L);
+
+      List<RevoluteJoint> joints = MultiBodySystemRandomTools.nextRevoluteJointChain(random, NUMBER_OF_JOINTS);
+      RigidBodyBasics pelvis = joints.get(0).getSuccessor();
+      RigidBodyBasics foot = joints.get(NUMBER_OF_JOINTS - 1).getSuccessor();
+
+      StateEstimatorSensorDefinitions sensorDefinitions = new StateEstimatorSensorDefinitions();
+      joints.forEach(sensorDefinitions::addJointSensorDefinition);
+      IMUDefinition pelvisIMU = new IMUDefinition("pelvisIMU", pelvis, new RigidBodyTransform());
+      IMUDefinition footIMU = new IMUDefinition("footIMU", foot, EuclidCoreRandomTools.nextRigidBodyTransform(random));
+      sensorDefinitions.addIMUSensorDefinition(pelvisIMU);
+      sensorDefinitions.addIMUSensorDefinition(footIMU);
+      ForceSensorDefinition footForceSensor = new ForceSensorDefinition("footForceSensor", foot, foot.getBodyFixedFrame());
+      sensorDefinitions.addForceSensorDefinition(footForceSensor);
+
+      YoRegistry compiledRegistry = new YoRegistry("compiled");
+      YoRegistry referenceRegistry = new YoRegistry("reference");
+      SensorProcessing compiled = new SensorProcessing(sensorDefinitions, createConfiguration(), compiledRegistry);
+      SensorProcessing reference = new SensorProcessing(sensorDefinitions, createConfiguration(), referenceRegistry);
+      new DefaultParameterReader().readParametersInRegistry(compiledRegistry);
+      new DefaultParameterReader().readParametersInRegistry(referenceRegistry);
+
+      compiled.initialize();
+      reference.initialize();
+
+      List<YoVariable> compiledVariables = compiledRegistry.collectSubtreeVariables();
+      List<YoVariable> referenceVariables = referenceRegistry.collectSubtreeVariables();
+      assertEquals(referenceVariables.size(), compiledVariables.size());
+
+      Quaternion orientation = new Quaternion();
+      Vector3D angularVelocity = new Vector3D();
+      Vector3D linearAcceleration = new Vector3D();
+      DMatrixRMaj wrench = new DMatrixRMaj(6, 1);
+
+      for (int tick = 0; tick < NUMBER_OF_TICKS; tick++)
+      {
+         if (tick == NUMBER_OF_TICKS / 3)
+         {
+            // The parameters of the registries have already been read, the new processors use constant providers instead.
+            for (SensorProcessing sensorProcessing : new SensorProcessing[] {compiled, reference})
+            {
+               sensorProcessing.computeJointVelocityFromFiniteDifferenceOnlyForSpecifiedJoints(() -> 0.8, false, joints.get(1).getName());
+               sensorProcessing.addJointVelocityBacklashFilter(() -> 0.01, false);
+               sensorProcessing.addSensorAlphaFilter(() -> 0.5, false, SensorType.IMU_LINEAR_ACCELERATION);
+               sensorProcessing.addSensorAlphaFilter(() -> 0.3, false, SensorType.FORCE_SENSOR);
+            }
+
+            compiledVariables = compiledRegistry.collectSubtreeVariables();
+            referenceVariables = referenceRegistry.collectSubtreeVariables();
+            assertEquals(referenceVariables.size(), compiledVariables.size());
+         }
+
+         for (int i = 0; i < NUMBER_OF_JOINTS; i++)
+         {
+            RevoluteJoint joint = joints.get(i);
+            double position = Math.sin(0.01 * tick + i) + 0.01 * random.nextGaussian();
+            double velocity = Math.cos(0.01 * tick + i) + 0.1 * random.nextGaussian();
+            double acceleration = random.nextGaussian();
+            double tau = 50.0 * Math.sin(0.02 * tick - i) + random.nextGaussian();
+
+            for (SensorProcessing sensorProcessing : new SensorProcessing[] {compiled, reference})
+            {
+               sensorProcessing.setJointPositionSensorValue(joint, position);
+               sensorProcessing.setJointVelocitySensorValue(joint, velocity);
+               sensorProcessing.setJointAccelerationSensorValue(joint, acceleration);
+               sensorProcessing.setJointTauSensorValue(joint, tau);
+            }
+         }
+
+         for (IMUDefinition imuDefinition : new IMUDefinition[] {pelvisIMU, footIMU})
+         {
+            orientation.set(EuclidCoreRandomTools.nextQuaternion(random, 0.1));
+            angularVelocity.set(EuclidCoreRandomTools.nextVector3D(random, 1.0));
+            linearAcceleration.set(EuclidCoreRandomTools.nextVector3D(random, 10.0));
+
+            for (SensorProcessing sensorProcessing : new SensorProcessing[] {compiled, reference})
+            {
+               sensorProcessing.setOrientationSensorValue(imuDefinition, orientation);
+               sensorProcessing.setAngularVelocitySensorValue(imuDefinition, angularVelocity);
+               sensorProcessing.setLinearAccelerationSensorValue(imuDefinition, linearAcceleration);
+            }
+         }
+
+         for (int i = 0; i < 6; i++)
+            wrench.set(i, 0, 100.0 * random.nextGaussian());
+         compiled.setForceSensorValue(footForceSensor, wrench);
+         reference.setForceSensorValue(footForceSensor, wrench);
+
+         long time = tick * (long) (DT * 1.0e9);
+         compiled.startComputation(time, time, time);
+         reference.startComputationFromProcessorMaps(time, time, time);
+
+         for (int i = 0; i < referenceVariables.size(); i++)
+         {
+            YoVariable expected = referenceVariables.get(i);
+            YoVariable actual = compiledVariables.get(i);
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals("Tick " + tick + ", " + expected.getName(), expected.getValueAsDouble(), actual.getValueAsDouble(), 0.0);
+         }
+
+         for (int i = 0; i < NUMBER_OF_JOINTS; i++)
+         {
+            RevoluteJoint joint = joints.get(i);
+            String message = "Tick " + tick + ", " + joint.getName();
+            assertEquals(message, reference.getOneDoFJointOutput(joint).getPosition(), compiled.getOneDoFJointOutput(joint).getPosition(), 0.0);
+            assertEquals(message, reference.getOneDoFJointOutput(joint).getVelocity(), compiled.getOneDoFJointOutput(joint).getVelocity(), 0.0);
+            assertEquals(message, reference.getOneDoFJointOutput(joint).getAcceleration(), compiled.getOneDoFJointOutput(joint).getAcceleration(), 0.0);
+            assertEquals(message, reference.getOneDoFJointOutput(joint).getTau(), compiled.getOneDoFJointOutput(joint).getTau(), 0.0);
+         }
+
+         for (int i = 0; i < reference.getIMUOutputs().size(); i++)
+         {
+            IMUSensorReadOnly expected = reference.getIMUOutputs().get(i);
+            IMUSensorReadOnly actual = compiled.getIMUOutputs().get(i);
+            String message = "Tick " + tick + ", " + expected.getSensorName();
+            assertTrue(message, expected.getOrientationMeasurement().equals(actual.getOrientationMeasurement()));
+            assertTrue(message, expected.getAngularVelocityMeasurement().equals(actual.getAngularVelocityMeasurement()));
+            assertTrue(message, expected.getLinearAccelerationMeasurement().equals(actual.getLinearAccelerationMeasurement()));
+         }
+
+         DMatrixRMaj expectedWrench = new DMatrixRMaj(6, 1);
+         DMatrixRMaj actualWrench = new DMatrixRMaj(6, 1);
+         reference.getForceSensorOutputs().getForceSensorValue(footForceSensor, expectedWrench);
+         compiled.getForceSensorOutputs().getForceSensorValue(footForceSensor, actualWrench);
+         for (int i = 0; i < 6; i++)
+            assertEquals("Tick " + tick, expectedWrench.get(i), actualWrench.get(i), 0.0);
+      }
+   }
+
+   /**
+    * Configures every kind of processor the robots use: alpha filters, elasticity compensation based
+    * on the filtered joint torques, backlash compensation, finite-difference velocity and acceleration,
+    * and the IMU and force sensor chains.
+    */
+   private static SensorProcessingConfiguration createConfiguration()
+   {
+      return new SensorProcessingConfiguration()
+      {
+         @Override
+         public void configureSensorProcessing(SensorProcessing sensorProcessing)
+         {
+            Map<String, Integer> tauProcessorIDs = sensorProcessing.addSensorAlphaFilter(sensorProcessing.createAlphaFilter("tauAlphaFilter", 50.0), false, SensorType.JOINT_TAU);
+            sensorProcessing.addSensorAlphaFilter(sensorProcessing.createAlphaFilter("positionAlphaFilter", 100.0), false, SensorType.JOINT_POSITION);
+
+            Map<OneDoFJointBasics, DoubleProvider> stiffnesses = sensorProcessing.createStiffness("Stiffness", 5000.0, null);
+            DoubleProvider maxDeflection = sensorProcessing.createMaxDeflection("maxDeflection", 0.1);
+            sensorProcessing.addJointPositionElasticyCompensatorWithJointsToIgnore(stiffnesses, maxDeflection, tauProcessorIDs, false);
+            sensorProcessing.computeJointVelocityWithBacklashCompensator(sensorProcessing.createAlphaFilter("velocityAlphaFilter", 25.0), () -> 0.03, false);
+            sensorProcessing.addJointVelocityElasticyCompensatorWithJointsToIgnore(stiffnesses, maxDeflection, tauProcessorIDs, false);
+            sensorProcessing.computeJointAccelerationFromFiniteDifference(sensorProcessing.createAlphaFilter("accelerationAlphaFilter", 10.0), false);
+
+            sensorProcessing.addSensorAlphaFilter(sensorProcessing.createAlphaFilter("angularVelocityAlphaFilter", 30.0), false, SensorType.IMU_ANGULAR_VELOCITY);
+            sensorProcessing.addSensorAlphaFilter(sensorProcessing.createAlphaFilter("linearAccelerationAlphaFilter", 20.0), false, SensorType.IMU_LINEAR_ACCELERATION);
+            sensorProcessing.addIMUAngularVelocityBacklashFilter(() -> 0.02, false);
+
+            sensorProcessing.addSensorAlphaFilter(sensorProcessing.createAlphaFilter("forceAlphaFilter", 20.0), false, SensorType.FORCE_SENSOR);
+            sensorProcessing.addSensorAlphaFilter(sensorProcessing.createAlphaFilter("torqueAlphaFilter", 20.0), true, SensorType.TORQUE_SENSOR);
+         }
+
+         @Override
+         public SensorNoiseParameters getSensorNoiseParameters()
+         {
+            return null;
+         }
+
+         @Override
+         public double getEstimatorDT()
+         {
+            return DT;
+         }
+      };
+   }
+}
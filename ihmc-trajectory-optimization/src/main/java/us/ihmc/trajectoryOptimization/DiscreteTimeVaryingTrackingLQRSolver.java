@@ -5,10 +5,10 @@ import org.ejml.dense.row.CommonOps_DDRM;
 import org.ejml.dense.row.factory.LinearSolverFactory_DDRM;
 import org.ejml.interfaces.linsol.LinearSolverDense;
 
-import us.ihmc.commons.lists.RecyclingArrayList;
-
 public class DiscreteTimeVaryingTrackingLQRSolver<E extends Enum> implements LQRSolverInterface<E>
 {
+   private static final int DEFAULT_SEQUENCE_CAPACITY = 1000;
+
    private final DiscreteOptimizationData optimalSequence;
    private final DiscreteOptimizationData desiredSequence;
 
@@ -17,10 +17,17 @@ public class DiscreteTimeVaryingTrackingLQRSolver<E extends Enum> implements LQR
 
    private final DiscreteSequence constantsSequence;
 
-   private final RecyclingArrayList<DMatrixRMaj> s1Sequence;
-   private final RecyclingArrayList<DMatrixRMaj> s2Sequence;
+   /** Value function Hessians S1 of all the steps, stored one after the other in row-major order. */
+   private double[] s1Buffer;
+   /** Value function gradients S2 of all the steps, stored one after the other. */
+   private double[] s2Buffer;
+   /** Range of steps for which the buffers and the gains hold the solution of the last backward pass. */
+   private int solvedStartIndex = -1;
+   private int solvedEndIndex = -1;
 
-   private final LinearSolverDense<DMatrixRMaj> linearSolver = LinearSolverFactory_DDRM.linear(0);
+   /** G is symmetric positive definite as long as R is, the general solver is only used if the decomposition fails. */
+   private final LinearSolverDense<DMatrixRMaj> choleskySolver;
+   private final LinearSolverDense<DMatrixRMaj> linearSolver;
 
    private final DMatrixRMaj Q;
    private final DMatrixRMaj R;
@@ -31,16 +38,28 @@ public class DiscreteTimeVaryingTrackingLQRSolver<E extends Enum> implements LQR
    private final DMatrixRMaj B;
 
    private final DMatrixRMaj G;
-   private final DMatrixRMaj G_inv;
+   private final DMatrixRMaj G_decomposed;
    private final DMatrixRMaj H;
 
+   private DMatrixRMaj currentS1;
+   private DMatrixRMaj currentS2;
+   private DMatrixRMaj nextS1;
+   private DMatrixRMaj nextS2;
+   private final DMatrixRMaj valueHessian;
+
+   private final DMatrixRMaj S1B;
+   private final DMatrixRMaj S1BF;
+   private final DMatrixRMaj S1H;
+   private final DMatrixRMaj RK;
+   private final DMatrixRMaj gainsRightHandSide;
+   private final DMatrixRMaj gainsSolution;
+   private final DMatrixRMaj feedForwardError;
+   private final DMatrixRMaj s2Row;
+
    private final DiscreteHybridDynamics<E> dynamics;
    private final LQTrackingCostFunction<E> costFunction;
    private final LQTrackingCostFunction<E> terminalCostFunction;
 
-   private final DMatrixRMaj tempMatrix = new DMatrixRMaj(0, 0);
-   private final DMatrixRMaj tempMatrix2 = new DMatrixRMaj(0, 0);
-
    private final boolean debug;
 
    public DiscreteTimeVaryingTrackingLQRSolver(DiscreteHybridDynamics<E> dynamics, LQTrackingCostFunction<E> costFunction,
@@ -64,13 +83,31 @@ public class DiscreteTimeVaryingTrackingLQRSolver<E extends Enum> implements LQR
       Q = new DMatrixRMaj(stateSize, stateSize);
       Qf = new DMatrixRMaj(stateSize, stateSize);
       R = new DMatrixRMaj(controlSize, controlSize);
-      G_inv = new DMatrixRMaj(controlSize, controlSize);
       G = new DMatrixRMaj(controlSize, controlSize);
+      G_decomposed = new DMatrixRMaj(controlSize, controlSize);
 
       A = new DMatrixRMaj(stateSize, stateSize);
       B = new DMatrixRMaj(stateSize, controlSize);
       H = new DMatrixRMaj(stateSize, stateSize);
 
+      currentS1 = new DMatrixRMaj(stateSize, stateSize);
+      currentS2 = new DMatrixRMaj(1, stateSize);
+      nextS1 = new DMatrixRMaj(stateSize, stateSize);
+      nextS2 = new DMatrixRMaj(1, stateSize);
+      valueHessian = new DMatrixRMaj(stateSize, stateSize);
+
+      S1B = new DMatrixRMaj(stateSize, controlSize);
+      S1BF = new DMatrixRMaj(stateSize, 1);
+      S1H = new DMatrixRMaj(stateSize, stateSize);
+      RK = new DMatrixRMaj(controlSize, stateSize);
+      gainsRightHandSide = new DMatrixRMaj(controlSize, stateSize + 1);
+      gainsSolution = new DMatrixRMaj(controlSize, stateSize + 1);
+      feedForwardError = new DMatrixRMaj(controlSize, 1);
+      s2Row = new DMatrixRMaj(1, stateSize);
+
+      choleskySolver = LinearSolverFactory_DDRM.symmPosDef(controlSize);
+      linearSolver = LinearSolverFactory_DDRM.linear(controlSize);
+
       optimalSequence = new DiscreteOptimizationSequence(stateSize, controlSize);
       desiredSequence = new DiscreteOptimizationSequence(stateSize, controlSize);
 
@@ -79,34 +116,46 @@ public class DiscreteTimeVaryingTrackingLQRSolver<E extends Enum> implements LQR
 
       constantsSequence = new DiscreteSequence(constantSize);
 
-      s1Sequence = new RecyclingArrayList<>(1000, new VariableVectorBuilder(stateSize, stateSize));
-      s2Sequence = new RecyclingArrayList<>(1000, new VariableVectorBuilder(1, stateSize));
+      s1Buffer = new double[DEFAULT_SEQUENCE_CAPACITY * stateSize * stateSize];
+      s2Buffer = new double[DEFAULT_SEQUENCE_CAPACITY * stateSize];
 
       feedbackGainSequence.clear();
       feedforwardSequence.clear();
-
-      s1Sequence.clear();
-      s2Sequence.clear();
    }
 
+   /**
+    * {@inheritDoc}
+    * <p>
+    * If the sequence has the same length as the previous one, the gains and value function of the
+    * previous backward pass are kept such that it can be resumed with
+    * {@link #solveRiccatiEquation(Enum, int, int, int)}.
+    * </p>
+    */
    @Override
    public void setDesiredSequence(DiscreteOptimizationData desiredSequence, DiscreteSequence constantsSequence, DMatrixRMaj initialState)
    {
+      int stateSize = dynamics.getStateVectorSize();
+      int size = desiredSequence.size();
+
       this.desiredSequence.set(desiredSequence);
       this.optimalSequence.setZero(desiredSequence);
 
-      this.s1Sequence.clear();
-      this.s2Sequence.clear();
-
       this.constantsSequence.set(constantsSequence);
 
-      feedbackGainSequence.setLength(desiredSequence.size());
-      feedforwardSequence.setLength(desiredSequence.size());
+      if (feedbackGainSequence.size() != size)
+      {
+         feedbackGainSequence.setLength(size);
+         feedforwardSequence.setLength(size);
+         solvedStartIndex = -1;
+         solvedEndIndex = -1;
+      }
 
-      for (int i = 0; i < desiredSequence.size(); i++)
+      if (s1Buffer.length < size * stateSize * stateSize)
       {
-         s1Sequence.add();
-         s2Sequence.add();
+         s1Buffer = new double[size * stateSize * stateSize];
+         s2Buffer = new double[size * stateSize];
+         solvedStartIndex = -1;
+         solvedEndIndex = -1;
       }
 
       optimalSequence.setState(0, initialState);
@@ -115,111 +164,157 @@ public class DiscreteTimeVaryingTrackingLQRSolver<E extends Enum> implements LQR
    @Override
    public void solveRiccatiEquation(E dynamicState, int startIndex, int endIndex) // backwards pass
    {
-      int stateSize = dynamics.getStateVectorSize();
-      int controlSize = dynamics.getControlVectorSize();
+      solveRiccatiEquation(dynamicState, startIndex, endIndex, endIndex);
+   }
 
-      int i = endIndex;
+   /**
+    * Backward pass that reuses the solution of the previous pass from {@code resumeIndex} to
+    * {@code endIndex}, for instance when replanning only changed the beginning of the desired
+    * sequence.
+    * <p>
+    * The desired sequence, constants, dynamics and cost functions from {@code resumeIndex} onwards are
+    * expected to be the same as for the previous pass. If the previous pass does not cover this range,
+    * the whole backward pass is done.
+    * </p>
+    */
+   public void solveRiccatiEquation(E dynamicState, int startIndex, int endIndex, int resumeIndex) // backwards pass
+   {
+      if (resumeIndex >= endIndex || endIndex != solvedEndIndex || resumeIndex < solvedStartIndex)
+      {
+         DMatrixRMaj terminalDesiredControl = desiredSequence.getControl(endIndex);
+         DMatrixRMaj terminalDesiredState = desiredSequence.getState(endIndex);
+         DMatrixRMaj terminalConstants = constantsSequence.get(endIndex);
 
-      DMatrixRMaj currentDesiredControl = desiredSequence.getControl(i);
-      DMatrixRMaj currentDesiredState = desiredSequence.getState(i);
-      DMatrixRMaj currentConstants = constantsSequence.get(i);
+         terminalCostFunction.getCostStateHessian(dynamicState, terminalDesiredState, terminalDesiredControl, terminalConstants, Qf);
 
-      terminalCostFunction.getCostStateHessian(dynamicState, currentDesiredState, currentDesiredControl, currentConstants, Qf);
+         nextS1.set(Qf);
+         CommonOps_DDRM.multTransA(-2.0, terminalDesiredState, Qf, nextS2);
+         storeValueFunction(endIndex, nextS1, nextS2);
 
-      DMatrixRMaj initialS1 = s1Sequence.get(i);
-      DMatrixRMaj initialS2 = s2Sequence.get(i);
-      initialS1.set(Qf);
-      CommonOps_DDRM.multTransA(-2.0, desiredSequence.getState(i), Qf, initialS2);
+         resumeIndex = endIndex;
+         solvedStartIndex = endIndex;
+      }
+      else
+      {
+         loadValueFunction(resumeIndex, nextS1, nextS2);
+      }
 
-      i--;
+      int firstInvalidIndex = -1;
 
-      for (; i >= startIndex; i--)
+      for (int i = resumeIndex - 1; i >= startIndex; i--)
       {
-         currentDesiredControl = desiredSequence.getControl(i);
-         currentDesiredState = desiredSequence.getState(i);
-         currentConstants = constantsSequence.get(i);
+         DMatrixRMaj currentDesiredControl = desiredSequence.getControl(i);
+         DMatrixRMaj currentDesiredState = desiredSequence.getState(i);
+         DMatrixRMaj currentConstants = constantsSequence.get(i);
          dynamics.getDynamicsStateGradient(dynamicState, currentDesiredState, currentDesiredControl, currentConstants, A);
          dynamics.getDynamicsControlGradient(dynamicState, currentDesiredState, currentDesiredControl, currentConstants, B);
          costFunction.getCostStateHessian(dynamicState, currentDesiredState, currentDesiredControl, currentConstants, Q);
          costFunction.getCostControlHessian(dynamicState, currentDesiredState, currentDesiredControl, currentConstants, R);
 
-         if (debug)
-         {
-            if (isAnyInvalid(A))
-               throw new RuntimeException("The A matrix is invalid.");
-            if (isAnyInvalid(B))
-               throw new RuntimeException("The B matrix is invalid.");
-            if (isAnyInvalid(Q))
-               throw new RuntimeException("The state Hessian is invalid.");
-            if (isAnyInvalid(R))
-               throw new RuntimeException("The control Hessian is invalid.");
-            if (isAnyInvalid(Qf))
-               throw new RuntimeException("The final state Hessian is invalid.");
-         }
+         if (debug && firstInvalidIndex < 0 && (isAnyInvalid(A) || isAnyInvalid(B) || isAnyInvalid(Q) || isAnyInvalid(R)))
+            firstInvalidIndex = i;
 
          DMatrixRMaj currentGainMatrix = feedbackGainSequence.get(i);
          DMatrixRMaj currentFeedForwardMatrix = feedforwardSequence.get(i);
 
-         DMatrixRMaj currentS1Matrix = s1Sequence.get(i);
-         DMatrixRMaj currentS2Matrix = s2Sequence.get(i);
-         DMatrixRMaj nextS1Matrix = s1Sequence.get(i + 1);
-         DMatrixRMaj nextS2Matrix = s2Sequence.get(i + 1);
-
-         dynamics.getDynamicsStateGradient(dynamicState, currentDesiredState, currentDesiredControl, currentConstants, A);
-         dynamics.getDynamicsControlGradient(dynamicState, currentDesiredState, currentDesiredControl, currentConstants, B);
+         // S1_k+1 is symmetric, so B^T S1_k+1 = (S1_k+1 B)^T
+         CommonOps_DDRM.mult(nextS1, B, S1B);
 
          // G = R + B^T S1 B
          G.set(R);
-         addMultQuad(B, nextS1Matrix, B, G);
-
-         linearSolver.setA(G);
-         linearSolver.invert(G_inv);
-
-         // K = -G^-1 B^T S1 A
-         tempMatrix.reshape(controlSize, stateSize);
-         CommonOps_DDRM.multTransB(G_inv, B, tempMatrix);
-
-         tempMatrix2.reshape(stateSize, stateSize);
-         CommonOps_DDRM.mult(nextS1Matrix, A, tempMatrix2);
+         CommonOps_DDRM.multAddTransA(B, S1B, G);
 
-         CommonOps_DDRM.mult(-1.0, tempMatrix, tempMatrix2, currentGainMatrix);
+         // G [K F] = [-B^T S1 A, R u_d - 0.5 B^T S2^T]
+         CommonOps_DDRM.multTransA(-1.0, S1B, A, RK);
+         CommonOps_DDRM.insert(RK, gainsRightHandSide, 0, 0);
+         CommonOps_DDRM.multTransAB(-0.5, B, nextS2, feedForwardError);
+         CommonOps_DDRM.multAdd(R, currentDesiredControl, feedForwardError);
+         CommonOps_DDRM.insert(feedForwardError, gainsRightHandSide, 0, A.numCols);
 
-         // F = G^-1 (R u_d - 0.5 B^T S2^T)
-         tempMatrix.reshape(controlSize, 1);
-         CommonOps_DDRM.multTransAB(-0.5, B, nextS2Matrix, tempMatrix);
-         CommonOps_DDRM.multAdd(R, currentDesiredControl, tempMatrix);
-         CommonOps_DDRM.mult(G_inv, tempMatrix, currentFeedForwardMatrix);
+         solveControlHessian(gainsRightHandSide, gainsSolution);
+         CommonOps_DDRM.extract(gainsSolution, 0, G.numRows, 0, A.numCols, currentGainMatrix, 0, 0);
+         CommonOps_DDRM.extract(gainsSolution, 0, G.numRows, A.numCols, A.numCols + 1, currentFeedForwardMatrix, 0, 0);
 
          // S1_k = Q + K^T R K + (A + B K)^T S1_k+1 (A + B K)
-         currentS1Matrix.set(Q);
-         addMultQuad(currentGainMatrix, R, currentGainMatrix, currentS1Matrix);
-
          H.set(A);
          CommonOps_DDRM.multAdd(B, currentGainMatrix, H);
-         addMultQuad(H, nextS1Matrix, H, currentS1Matrix);
+
+         CommonOps_DDRM.mult(R, currentGainMatrix, RK);
+         CommonOps_DDRM.mult(nextS1, H, S1H);
+
+         currentS1.set(Q);
+         addMultTransASymmetric(currentGainMatrix, RK, currentS1);
+         addMultTransASymmetric(H, S1H, currentS1);
 
          // S2_k = 2 (B F)^T S1_k+1 (A + B K) + S2_k+1 (A + B K) + 2 (F - u_d)^T R K - 2 x_d^T Q
-         tempMatrix.reshape(stateSize, 1);
 
-         // (S2_k+1 + 2 (B F)^T S1_k+1) (A + B K)
-         tempMatrix2.set(nextS2Matrix);
-         CommonOps_DDRM.mult(B, currentFeedForwardMatrix, tempMatrix);
-         CommonOps_DDRM.multAddTransA(2.0, tempMatrix, nextS1Matrix, tempMatrix2);
-         CommonOps_DDRM.mult(tempMatrix2, H, currentS2Matrix);
+         // (S2_k+1 + 2 (S1_k+1 B F)^T) (A + B K), a row and a column vector have the same layout
+         CommonOps_DDRM.mult(S1B, currentFeedForwardMatrix, S1BF);
+         for (int j = 0; j < s2Row.numCols; j++)
+            s2Row.data[j] = nextS2.data[j] + 2.0 * S1BF.data[j];
+         CommonOps_DDRM.mult(s2Row, H, currentS2);
 
-         CommonOps_DDRM.multAddTransA(-2.0, currentDesiredState, Q, currentS2Matrix);
+         CommonOps_DDRM.multAddTransA(-2.0, currentDesiredState, Q, currentS2);
 
          // 2 (F - u_d)^T R K
-         tempMatrix.reshape(controlSize, stateSize);
-         CommonOps_DDRM.mult(R, currentGainMatrix, tempMatrix);
-         CommonOps_DDRM.multAddTransA(-2.0, currentDesiredControl, tempMatrix, currentS2Matrix);
-         CommonOps_DDRM.multAddTransA(2.0, currentFeedForwardMatrix, tempMatrix, currentS2Matrix);
+         CommonOps_DDRM.subtract(currentFeedForwardMatrix, currentDesiredControl, feedForwardError);
+         CommonOps_DDRM.multAddTransA(2.0, feedForwardError, RK, currentS2);
+
+         storeValueFunction(i, currentS1, currentS2);
+
+         DMatrixRMaj previousS1 = nextS1;
+         DMatrixRMaj previousS2 = nextS2;
+         nextS1 = currentS1;
+         nextS2 = currentS2;
+         currentS1 = previousS1;
+         currentS2 = previousS2;
+      }
+
+      solvedStartIndex = Math.min(solvedStartIndex, startIndex);
+      solvedEndIndex = endIndex;
 
-         if (debug && (isAnyInvalid(currentS2Matrix) || isAnyInvalid(currentS1Matrix)))
+      if (debug)
+      {
+         if (isAnyInvalid(Qf))
+            throw new RuntimeException("The final state Hessian is invalid.");
+         if (firstInvalidIndex >= 0)
+            throw new RuntimeException("The dynamics or cost matrices are invalid at index " + firstInvalidIndex + ".");
+         if (isAnyInvalid(s1Buffer, startIndex * Q.getNumElements(), (resumeIndex + 1) * Q.getNumElements())
+               || isAnyInvalid(s2Buffer, startIndex * Q.numCols, (resumeIndex + 1) * Q.numCols))
             throw new RuntimeException("The computed Riccati equation solutions are ill-conditioned.");
       }
    }
 
+   /**
+    * Solves G X = B, using a Cholesky decomposition of G.
+    */
+   private void solveControlHessian(DMatrixRMaj B, DMatrixRMaj XToPack)
+   {
+      // the decompositions may modify their input, G is kept for the fallback.
+      G_decomposed.set(G);
+      if (choleskySolver.setA(G_decomposed))
+      {
+         choleskySolver.solve(B, XToPack);
+         return;
+      }
+
+      G_decomposed.set(G);
+      linearSolver.setA(G_decomposed);
+      linearSolver.solve(B, XToPack);
+   }
+
+   private void storeValueFunction(int index, DMatrixRMaj S1, DMatrixRMaj S2)
+   {
+      System.arraycopy(S1.data, 0, s1Buffer, index * S1.getNumElements(), S1.getNumElements());
+      System.arraycopy(S2.data, 0, s2Buffer, index * S2.getNumElements(), S2.getNumElements());
+   }
+
+   private void loadValueFunction(int index, DMatrixRMaj S1ToPack, DMatrixRMaj S2ToPack)
+   {
+      System.arraycopy(s1Buffer, index * S1ToPack.getNumElements(), S1ToPack.data, 0, S1ToPack.getNumElements());
+      System.arraycopy(s2Buffer, index * S2ToPack.getNumElements(), S2ToPack.data, 0, S2ToPack.getNumElements());
+   }
+
    @Override
    public void computeOptimalSequences(E dynamicState, int startIndex, int endIndex) // forward pass
    {
@@ -298,25 +393,55 @@ public class DiscreteTimeVaryingTrackingLQRSolver<E extends Enum> implements LQR
    @Override
    public DMatrixRMaj getValueHessian()
    {
-      return s1Sequence.get(0);
+      System.arraycopy(s1Buffer, 0, valueHessian.data, 0, valueHessian.getNumElements());
+      return valueHessian;
    }
 
-   private final DMatrixRMaj tempMatrix3 = new DMatrixRMaj(0, 0);
    /**
-    * D = D + A^T *  B * C
+    * Packs the value function Hessian S1 and gradient S2 of the step {@code index}, as computed by the
+    * last backward pass.
     */
-   private void addMultQuad(DMatrixRMaj A, DMatrixRMaj B, DMatrixRMaj C, DMatrixRMaj DToPack)
+   void getValueFunction(int index, DMatrixRMaj S1ToPack, DMatrixRMaj S2ToPack)
    {
-      tempMatrix3.reshape(A.numCols, B.numCols);
-      CommonOps_DDRM.multTransA(A, B, tempMatrix3);
-      CommonOps_DDRM.multAdd(tempMatrix3, C, DToPack);
+      S1ToPack.reshape(Q.numRows, Q.numCols);
+      S2ToPack.reshape(1, Q.numCols);
+      loadValueFunction(index, S1ToPack, S2ToPack);
+   }
+
+   /**
+    * C = C + A^T * MA, where A^T * MA is known to be symmetric, for instance when MA = M * A with M
+    * symmetric. Only the upper triangle is computed and then mirrored.
+    */
+   private static void addMultTransASymmetric(DMatrixRMaj A, DMatrixRMaj MA, DMatrixRMaj CToPack)
+   {
+      int size = A.numCols;
+      int innerSize = A.numRows;
+
+      for (int row = 0; row < size; row++)
+      {
+         for (int col = row; col < size; col++)
+         {
+            double total = 0.0;
+            for (int k = 0; k < innerSize; k++)
+               total += A.data[k * size + row] * MA.data[k * size + col];
+
+            CToPack.data[row * size + col] += total;
+            if (col != row)
+               CToPack.data[col * size + row] += total;
+         }
+      }
    }
 
    private boolean isAnyInvalid(DMatrixRMaj matrix)
    {
-      for (int i = 0; i < matrix.getNumElements(); i++)
+      return isAnyInvalid(matrix.data, 0, matrix.getNumElements());
+   }
+
+   private boolean isAnyInvalid(double[] data, int startIndex, int endIndex)
+   {
+      for (int i = startIndex; i < endIndex; i++)
       {
-         if (!Double.isFinite(matrix.get(i)))
+         if (!Double.isFinite(data[i]))
             return true;
       }
       return false;
@@ -0,0 +1,484 @@
+package us.ihmc.trajectoryOptimization;
+
+import java.util.Random;
+
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.NormOps_DDRM;
+import org.ejml.dense.row.RandomMatrices_DDRM;
+import org.ejml.dense.row.factory.LinearSolverFactory_DDRM;
+import org.ejml.interfaces.linsol.LinearSolverDense;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.matrixlib.MatrixTestTools;
+
+public class DiscreteTimeVaryingTrackingLQRSolverTest
+{
+   private static final int stateSize = 6;
+   private static final int controlSize = 3;
+   private static final double deltaT = 0.01;
+   private static final double epsilon = 1.0e-8;
+
+   @Test
+   public void testBackwardPassMatchesInversion()
+   {
+      Random random = new Random(1738L);
+
+      for (int iter = 0; iter < 10; iter++)
+      {
+         TestDynamics dynamics = new TestDynamics(random);
+         TestCostFunction costFunction = new TestCostFunction(random, 1.0);
+         TestCostFunction terminalCostFunction = new TestCostFunction(random, 10.0);
+         DiscreteTimeVaryingTrackingLQRSolver<DefaultDiscreteState> solver = new DiscreteTimeVaryingTrackingLQRSolver<>(dynamics, costFunction,
+                                                                                                                        terminalCostFunction, true);
+
+         int length = 50 + random.nextInt(100);
+         DiscreteOptimizationSequence desiredSequence = createDesiredSequence(random, length);
+         DiscreteSequence constantsSequence = createConstantsSequence(random, length);
+         solver.setDesiredSequence(desiredSequence, constantsSequence, desiredSequence.getState(0));
+         solver.solveRiccatiEquation(DefaultDiscreteState.DEFAULT, 0, length - 1);
+
+         ReferenceSolution expected = solveWithInversion(dynamics, costFunction, terminalCostFunction, desiredSequence, constantsSequence, 0, length - 1);
+         assertSolutionEquals(expected, solver, 0, length - 1);
+         MatrixTestTools.assertMatrixEquals(expected.s1Sequence[0], solver.getValueHessian(), scaledEpsilon(expected.s1Sequence[0]));
+      }
+   }
+
+   @Test
+   public void testResumedBackwardPassMatchesFullPass()
+   {
+      Random random = new Random(4590L);
+
+      for (int iter = 0; iter < 10; iter++)
+      {
+         TestDynamics dynamics = new TestDynamics(random);
+         TestCostFunction costFunction = new TestCostFunction(random, 1.0);
+         TestCostFunction terminalCostFunction = new TestCostFunction(random, 10.0);
+
+         int length = 50 + random.nextInt(100);
+         int resumeIndex = 1 + random.nextInt(length - 2);
+         DiscreteOptimizationSequence desiredSequence = createDesiredSequence(random, length);
+         DiscreteSequence constantsSequence = createConstantsSequence(random, length);
+
+         DiscreteTimeVaryingTrackingLQRSolver<DefaultDiscreteState> resumedSolver = new DiscreteTimeVaryingTrackingLQRSolver<>(dynamics, costFunction,
+                                                                                                                               terminalCostFunction, true);
+         resumedSolver.setDesiredSequence(desiredSequence, constantsSequence, desiredSequence.getState(0));
+         resumedSolver.solveRiccatiEquation(DefaultDiscreteState.DEFAULT, 0, length - 1);
+
+         // Replanning only changes the head of the sequence, before the resume index.
+         DiscreteOptimizationSequence newDesiredSequence = new DiscreteOptimizationSequence(stateSize, controlSize);
+         newDesiredSequence.set(desiredSequence);
+         DiscreteSequence newConstantsSequence = new DiscreteSequence(1);
+         newConstantsSequence.set(constantsSequence);
+         for (int i = 0; i < resumeIndex; i++)
+         {
+            newDesiredSequence.setState(i, RandomMatrices_DDRM.rectangle(stateSize, 1, -1.0, 1.0, random));
+            newDesiredSequence.setControl(i, RandomMatrices_DDRM.rectangle(controlSize, 1, -1.0, 1.0, random));
+            newConstantsSequence.get(i).set(0, 0.5 + random.nextDouble());
+         }
+
+         resumedSolver.setDesiredSequence(newDesiredSequence, newConstantsSequence, newDesiredSequence.getState(0));
+         resumedSolver.solveRiccatiEquation(DefaultDiscreteState.DEFAULT, 0, length - 1, resumeIndex);
+
+         DiscreteTimeVaryingTrackingLQRSolver<DefaultDiscreteState> fullSolver = new DiscreteTimeVaryingTrackingLQRSolver<>(dynamics, costFunction,
+                                                                                                                            terminalCostFunction, true);
+         fullSolver.setDesiredSequence(newDesiredSequence, newConstantsSequence, newDesiredSequence.getState(0));
+         fullSolver.solveRiccatiEquation(DefaultDiscreteState.DEFAULT, 0, length - 1);
+
+         assertSolutionEquals(fullSolver, resumedSolver, 0, length - 1);
+
+         // Without a previous pass to resume from, the whole backward pass is done.
+         DiscreteTimeVaryingTrackingLQRSolver<DefaultDiscreteState> newSolver = new DiscreteTimeVaryingTrackingLQRSolver<>(dynamics, costFunction,
+                                                                                                                           terminalCostFunction, true);
+         newSolver.setDesiredSequence(newDesiredSequence, newConstantsSequence, newDesiredSequence.getState(0));
+         newSolver.solveRiccatiEquation(DefaultDiscreteState.DEFAULT, 0, length - 1, resumeIndex);
+
+         assertSolutionEquals(fullSolver, newSolver, 0, length - 1);
+      }
+   }
+
+   private static void assertSolutionEquals(ReferenceSolution expected, DiscreteTimeVaryingTrackingLQRSolver<?> solver, int startIndex, int endIndex)
+   {
+      DMatrixRMaj S1 = new DMatrixRMaj(stateSize, stateSize);
+      DMatrixRMaj S2 = new DMatrixRMaj(1, stateSize);
+
+      for (int i = startIndex; i <= endIndex; i++)
+      {
+         solver.getValueFunction(i, S1, S2);
+         MatrixTestTools.assertMatrixEquals(expected.s1Sequence[i], S1, scaledEpsilon(expected.s1Sequence[i]));
+         MatrixTestTools.assertMatrixEquals(expected.s2Sequence[i], S2, scaledEpsilon(expected.s2Sequence[i]));
+
+         if (i < endIndex)
+         {
+            DMatrixRMaj gains = solver.getOptimalFeedbackGainSequence().get(i);
+            DMatrixRMaj feedForward = solver.getOptimalFeedForwardControlSequence().get(i);
+            MatrixTestTools.assertMatrixEquals(expected.feedbackGainSequence[i], gains, scaledEpsilon(expected.feedbackGainSequence[i]));
+            MatrixTestTools.assertMatrixEquals(expected.feedForwardSequence[i], feedForward, scaledEpsilon(expected.feedForwardSequence[i]));
+         }
+      }
+   }
+
+   private static void assertSolutionEquals(DiscreteTimeVaryingTrackingLQRSolver<?> expected, DiscreteTimeVaryingTrackingLQRSolver<?> actual, int startIndex,
+                                            int endIndex)
+   {
+      ReferenceSolution expectedSolution = new ReferenceSolution(endIndex + 1);
+
+      for (int i = startIndex; i <= endIndex; i++)
+      {
+         expected.getValueFunction(i, expectedSolution.s1Sequence[i], expectedSolution.s2Sequence[i]);
+
+         if (i < endIndex)
+         {
+            expectedSolution.feedbackGainSequence[i].set(expected.getOptimalFeedbackGainSequence().get(i));
+            expectedSolution.feedForwardSequence[i].set(expected.getOptimalFeedForwardControlSequence().get(i));
+         }
+      }
+
+      assertSolutionEquals(expectedSolution, actual, startIndex, endIndex);
+   }
+
+   private static double scaledEpsilon(DMatrixRMaj expected)
+   {
+      return epsilon * Math.max(1.0, NormOps_DDRM.normPInf(expected));
+   }
+
+   /**
+    * Backward pass as it was done by inverting the control Hessian G at each step.
+    */
+   private static ReferenceSolution solveWithInversion(TestDynamics dynamics, TestCostFunction costFunction, TestCostFunction terminalCostFunction,
+                                                       DiscreteOptimizationData desiredSequence, DiscreteSequence constantsSequence, int startIndex,
+                                                       int endIndex)
+   {
+      ReferenceSolution solution = new ReferenceSolution(endIndex + 1);
+
+      DMatrixRMaj A = new DMatrixRMaj(stateSize, stateSize);
+      DMatrixRMaj B = new DMatrixRMaj(stateSize, controlSize);
+      DMatrixRMaj Q = new DMatrixRMaj(stateSize, stateSize);
+      DMatrixRMaj R = new DMatrixRMaj(controlSize, controlSize);
+      DMatrixRMaj G = new DMatrixRMaj(controlSize, controlSize);
+      DMatrixRMaj G_inv = new DMatrixRMaj(controlSize, controlSize);
+      DMatrixRMaj H = new DMatrixRMaj(stateSize, stateSize);
+      DMatrixRMaj BF = new DMatrixRMaj(stateSize, 1);
+      DMatrixRMaj RK = new DMatrixRMaj(controlSize, stateSize);
+      DMatrixRMaj feedForwardRightHandSide = new DMatrixRMaj(controlSize, 1);
+      DMatrixRMaj s2Row = new DMatrixRMaj(1, stateSize);
+      LinearSolverDense<DMatrixRMaj> linearSolver = LinearSolverFactory_DDRM.linear(0);
+
+      DMatrixRMaj terminalDesiredState = desiredSequence.getState(endIndex);
+      terminalCostFunction.getCostStateHessian(DefaultDiscreteState.DEFAULT, terminalDesiredState, desiredSequence.getControl(endIndex),
+                                               constantsSequence.get(endIndex), solution.s1Sequence[endIndex]);
+      CommonOps_DDRM.multTransA(-2.0, terminalDesiredState, solution.s1Sequence[endIndex], solution.s2Sequence[endIndex]);
+
+      for (int i = endIndex - 1; i >= startIndex; i--)
+      {
+         DMatrixRMaj desiredState = desiredSequence.getState(i);
+         DMatrixRMaj desiredControl = desiredSequence.getControl(i);
+         DMatrixRMaj constants = constantsSequence.get(i);
+         dynamics.getDynamicsStateGradient(DefaultDiscreteState.DEFAULT, desiredState, desiredControl, constants, A);
+         dynamics.getDynamicsControlGradient(DefaultDiscreteState.DEFAULT, desiredState, desiredControl, constants, B);
+         costFunction.getCostStateHessian(DefaultDiscreteState.DEFAULT, desiredState, desiredControl, constants, Q);
+         costFunction.getCostControlHessian(DefaultDiscreteState.DEFAULT, desiredState, desiredControl, constants, R);
+
+         DMatrixRMaj nextS1 = solution.s1Sequence[i + 1];
+         DMatrixRMaj nextS2 = solution.s2Sequence[i + 1];
+         DMatrixRMaj S1 = solution.s1Sequence[i];
+         DMatrixRMaj S2 = solution.s2Sequence[i];
+         DMatrixRMaj K = solution.feedbackGainSequence[i];
+         DMatrixRMaj F = solution.feedForwardSequence[i];
+
+         // G = R + B^T S1 B
+         G.set(R);
+         addMultQuad(B, nextS1, B, G);
+         linearSolver.setA(G);
+         linearSolver.invert(G_inv);
+
+         // K = -G^-1 B^T S1 A
+         DMatrixRMaj G_invBTranspose = new DMatrixRMaj(controlSize, stateSize);
+         CommonOps_DDRM.multTransB(G_inv, B, G_invBTranspose);
+         DMatrixRMaj S1A = new DMatrixRMaj(stateSize, stateSize);
+         CommonOps_DDRM.mult(nextS1, A, S1A);
+         CommonOps_DDRM.mult(-1.0, G_invBTranspose, S1A, K);
+
+         // F = G^-1 (R u_d - 0.5 B^T S2^T)
+         CommonOps_DDRM.multTransAB(-0.5, B, nextS2, feedForwardRightHandSide);
+         CommonOps_DDRM.multAdd(R, desiredControl, feedForwardRightHandSide);
+         CommonOps_DDRM.mult(G_inv, feedForwardRightHandSide, F);
+
+         // S1_k = Q + K^T R K + (A + B K)^T S1_k+1 (A + B K)
+         S1.set(Q);
+         addMultQuad(K, R, K, S1);
+         H.set(A);
+         CommonOps_DDRM.multAdd(B, K, H);
+         addMultQuad(H, nextS1, H, S1);
+
+         // S2_k = (S2_k+1 + 2 (B F)^T S1_k+1) (A + B K) - 2 x_d^T Q + 2 (F - u_d)^T R K
+         s2Row.set(nextS2);
+         CommonOps_DDRM.mult(B, F, BF);
+         CommonOps_DDRM.multAddTransA(2.0, BF, nextS1, s2Row);
+         CommonOps_DDRM.mult(s2Row, H, S2);
+         CommonOps_DDRM.multAddTransA(-2.0, desiredState, Q, S2);
+         CommonOps_DDRM.mult(R, K, RK);
+         CommonOps_DDRM.multAddTransA(-2.0, desiredControl, RK, S2);
+         CommonOps_DDRM.multAddTransA(2.0, F, RK, S2);
+      }
+
+      return solution;
+   }
+
+   /**
+    * D = D + A^T * B * C
+    */
+   private static void addMultQuad(DMatrixRMaj A, DMatrixRMaj B, DMatrixRMaj C, DMatrixRMaj DToPack)
+   {
+      DMatrixRMaj ATransposeB = new DMatrixRMaj(A.numCols, B.numCols);
+      CommonOps_DDRM.multTransA(A, B, ATransposeB);
+      CommonOps_DDRM.multAdd(ATransposeB, C, DToPack);
+   }
+
+   private static DiscreteOptimizationSequence createDesiredSequence(Random random, int length)
+   {
+      DiscreteOptimizationSequence desiredSequence = new DiscreteOptimizationSequence(stateSize, controlSize);
+      desiredSequence.setLength(length);
+
+      for (int i = 0; i < length; i++)
+      {
+         desiredSequence.setState(i, RandomMatrices_DDRM.rectangle(stateSize, 1, -1.0, 1.0, random));
+         desiredSequence.setControl(i, RandomMatrices_DDRM.rectangle(controlSize, 1, -1.0, 1.0, random));
+      }
+
+      return desiredSequence;
+   }
+
+   private static DiscreteSequence createConstantsSequence(Random random, int length)
+   {
+      DiscreteSequence constantsSequence = new DiscreteSequence(1);
+      constantsSequence.setLength(length);
+
+      for (int i = 0; i < length; i++)
+         constantsSequence.get(i).set(0, 0.5 + random.nextDouble());
+
+      return constantsSequence;
+   }
+
+   private static class ReferenceSolution
+   {
+      private final DMatrixRMaj[] s1Sequence;
+      private final DMatrixRMaj[] s2Sequence;
+      private final DMatrixRMaj[] feedbackGainSequence;
+      private final DMatrixRMaj[] feedForwardSequence;
+
+      public ReferenceSolution(int length)
+      {
+         s1Sequence = new DMatrixRMaj[length];
+         s2Sequence = new DMatrixRMaj[length];
+         feedbackGainSequence = new DMatrixRMaj[length];
+         feedForwardSequence = new DMatrixRMaj[length];
+
+         for (int i = 0; i < length; i++)
+         {
+            s1Sequence[i] = new DMatrixRMaj(stateSize, stateSize);
+            s2Sequence[i] = new DMatrixRMaj(1, stateSize);
+            feedbackGainSequence[i] = new DMatrixRMaj(controlSize, stateSize);
+            feedForwardSequence[i] = new DMatrixRMaj(controlSize, 1);
+         }
+      }
+   }
+
+   /**
+    * Linear dynamics x_k+1 = A x_k + B u_k, where A and B are scaled at each step by the constant.
+    */
+   private static class TestDynamics implements DiscreteHybridDynamics<DefaultDiscreteState>
+   {
+      private final DMatrixRMaj continuousA;
+      private final DMatrixRMaj continuousB;
+      private final DMatrixRMaj A = new DMatrixRMaj(stateSize, stateSize);
+      private final DMatrixRMaj B = new DMatrixRMaj(stateSize, controlSize);
+      private double deltaT = DiscreteTimeVaryingTrackingLQRSolverTest.deltaT;
+
+      public TestDynamics(Random random)
+      {
+         continuousA = RandomMatrices_DDRM.rectangle(stateSize, stateSize, -1.0, 1.0, random);
+         continuousB = RandomMatrices_DDRM.rectangle(stateSize, controlSize, -1.0, 1.0, random);
+      }
+
+      @Override
+      public void setTimeStepSize(double deltaT)
+      {
+         this.deltaT = deltaT;
+      }
+
+      @Override
+      public int getStateVectorSize()
+      {
+         return stateSize;
+      }
+
+      @Override
+      public int getControlVectorSize()
+      {
+         return controlSize;
+      }
+
+      @Override
+      public int getConstantVectorSize()
+      {
+         return 1;
+      }
+
+      @Override
+      public void getNextState(DefaultDiscreteState hybridState, DMatrixRMaj currentState, DMatrixRMaj currentControl, DMatrixRMaj constants,
+                               DMatrixRMaj matrixToPack)
+      {
+         getDynamicsStateGradient(hybridState, currentState, currentControl, constants, A);
+         getDynamicsControlGradient(hybridState, currentState, currentControl, constants, B);
+         CommonOps_DDRM.mult(A, currentState, matrixToPack);
+         CommonOps_DDRM.multAdd(B, currentControl, matrixToPack);
+      }
+
+      @Override
+      public void getDynamicsStateGradient(DefaultDiscreteState hybridState, DMatrixRMaj currentState, DMatrixRMaj currentControl, DMatrixRMaj constants,
+                                           DMatrixRMaj matrixToPack)
+      {
+         matrixToPack.reshape(stateSize, stateSize);
+         CommonOps_DDRM.scale(deltaT * constants.get(0), continuousA, matrixToPack);
+         for (int i = 0; i < stateSize; i++)
+            matrixToPack.add(i, i, 1.0);
+      }
+
+      @Override
+      public void getDynamicsControlGradient(DefaultDiscreteState hybridState, DMatrixRMaj currentState, DMatrixRMaj currentControl, DMatrixRMaj constants,
+                                             DMatrixRMaj matrixToPack)
+      {
+         matrixToPack.reshape(stateSize, controlSize);
+         CommonOps_DDRM.scale(deltaT * constants.get(0), continuousB, matrixToPack);
+      }
+
+      @Override
+      public void getDynamicsStateHessian(DefaultDiscreteState hybridState, int stateVariable, DMatrixRMaj currentState, DMatrixRMaj currentControl,
+                                          DMatrixRMaj constants, DMatrixRMaj matrixToPack)
+      {
+         matrixToPack.reshape(stateSize, stateSize);
+         matrixToPack.zero();
+      }
+
+      @Override
+      public void getDynamicsControlHessian(DefaultDiscreteState hybridState, int controlVariable, DMatrixRMaj currentState, DMatrixRMaj currentControl,
+                                            DMatrixRMaj constants, DMatrixRMaj matrixToPack)
+      {
+         matrixToPack.reshape(stateSize, controlSize);
+         matrixToPack.zero();
+      }
+
+      @Override
+      public void getDynamicsStateGradientOfControlGradient(DefaultDiscreteState hybridState, int stateVariable, DMatrixRMaj currentState,
+                                                            DMatrixRMaj currentControl, DMatrixRMaj constants, DMatrixRMaj matrixToPack)
+      {
+         matrixToPack.reshape(stateSize, controlSize);
+         matrixToPack.zero();
+      }
+
+      @Override
+      public void getDynamicsControlGradientOfStateGradient(DefaultDiscreteState hybridState, int controlVariable, DMatrixRMaj currentState,
+                                                            DMatrixRMaj currentControl, DMatrixRMaj constants, DMatrixRMaj matrixToPack)
+      {
+         matrixToPack.reshape(stateSize, stateSize);
+         matrixToPack.zero();
+      }
+
+      @Override
+      public void getContinuousAMatrix(DMatrixRMaj A)
+      {
+         A.set(continuousA);
+      }
+
+      @Override
+      public void getContinuousBMatrix(DMatrixRMaj B)
+      {
+         B.set(continuousB);
+      }
+   }
+
+   /**
+    * Quadratic tracking cost (x - x_d)^T Q (x - x_d) + (u - u_d)^T R (u - u_d), with random positive
+    * definite weights.
+    */
+   private static class TestCostFunction implements LQTrackingCostFunction<DefaultDiscreteState>
+   {
+      private final DMatrixRMaj Q;
+      private final DMatrixRMaj R;
+      private final DMatrixRMaj stateError = new DMatrixRMaj(stateSize, 1);
+      private final DMatrixRMaj controlError = new DMatrixRMaj(controlSize, 1);
+
+      public TestCostFunction(Random random, double scale)
+      {
+         Q = RandomMatrices_DDRM.symmetricPosDef(stateSize, random);
+         R = RandomMatrices_DDRM.symmetricPosDef(controlSize, random);
+         CommonOps_DDRM.scale(scale, Q);
+         CommonOps_DDRM.scale(scale, R);
+      }
+
+      @Override
+      public double getCost(DefaultDiscreteState state, DMatrixRMaj controlVector, DMatrixRMaj stateVector, DMatrixRMaj desiredControlVector,
+                            DMatrixRMaj desiredStateVector, DMatrixRMaj constants)
+      {
+         CommonOps_DDRM.subtract(stateVector, desiredStateVector, stateError);
+         CommonOps_DDRM.subtract(controlVector, desiredControlVector, controlError);
+         return computeQuadraticForm(stateError, Q) + computeQuadraticForm(controlError, R);
+      }
+
+      private static double computeQuadraticForm(DMatrixRMaj vector, DMatrixRMaj weight)
+      {
+         DMatrixRMaj weightedVector = new DMatrixRMaj(vector.numRows, 1);
+         CommonOps_DDRM.mult(weight, vector, weightedVector);
+         return CommonOps_DDRM.dot(vector, weightedVector);
+      }
+
+      @Override
+      public void getCostStateGradient(DefaultDiscreteState state, DMatrixRMaj controlVector, DMatrixRMaj stateVector, DMatrixRMaj desiredControlVector,
+                                       DMatrixRMaj desiredStateVector, DMatrixRMaj constants, DMatrixRMaj matrixToPack)
+      {
+         CommonOps_DDRM.subtract(stateVector, desiredStateVector, stateError);
+         matrixToPack.reshape(stateSize, 1);
+         CommonOps_DDRM.mult(2.0, Q, stateError, matrixToPack);
+      }
+
+      @Override
+      public void getCostControlGradient(DefaultDiscreteState state, DMatrixRMaj controlVector, DMatrixRMaj stateVector, DMatrixRMaj desiredControlVector,
+                                         DMatrixRMaj desiredStateVector, DMatrixRMaj constants, DMatrixRMaj matrixToPack)
+      {
+         CommonOps_DDRM.subtract(controlVector, desiredControlVector, controlError);
+         matrixToPack.reshape(controlSize, 1);
+         CommonOps_DDRM.mult(2.0, R, controlError, matrixToPack);
+      }
+
+      @Override
+      public void getCostStateHessian(DefaultDiscreteState state, DMatrixRMaj controlVector, DMatrixRMaj stateVector, DMatrixRMaj constants,
+                                      DMatrixRMaj matrixToPack)
+      {
+         matrixToPack.set(Q);
+      }
+
+      @Override
+      public void getCostControlHessian(DefaultDiscreteState state, DMatrixRMaj controlVector, DMatrixRMaj stateVector, DMatrixRMaj constants,
+                                        DMatrixRMaj matrixToPack)
+      {
+         matrixToPack.set(R);
+      }
+
+      @Override
+      public void getCostStateGradientOfControlGradient(DefaultDiscreteState state, DMatrixRMaj controlVector, DMatrixRMaj stateVector,
+                                                        DMatrixRMaj constants, DMatrixRMaj matrixToPack)
+      {
+         matrixToPack.reshape(controlSize, stateSize);
+         matrixToPack.zero();
+      }
+
+      @Override
+      public void getCostControlGradientOfStateGradient(DefaultDiscreteState state, DMatrixRMaj controlVector, DMatrixRMaj stateVector,
+                                                        DMatrixRMaj constants, DMatrixRMaj matrixToPack)
+      {
+         matrixToPack.reshape(stateSize, controlSize);
+         matrixToPack.zero();
+      }
+   }
+}
@@ -0,0 +1,172 @@
+package us.ihmc.wholeBodyController.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import us.ihmc.yoVariables.registry.YoRegistry;
+import us.ihmc.yoVariables.variable.YoDouble;
+import us.ihmc.yoVariables.variable.YoLong;
+
+/**
+ * Fixed-bin latency histogram that can be recorded into from any thread without locking. The bin
+ * counts and a few summary statistics are mirrored into YoVariables when {@link #update()} is
+ * called, which should be done from the thread that owns the registry.
+ */
+public class ConcurrentLatencyHistogram
+{
+   private final long binWidthNanos;
+   private final AtomicLongArray binCounts;
+   private final AtomicLong totalCount = new AtomicLong();
+   private final AtomicLong totalLatencyNanos = new AtomicLong();
+   private final AtomicLong maxLatencyNanos = new AtomicLong();
+   private volatile long lastLatencyNanos;
+
+   private final YoLong[] yoBinCounts;
+   private final YoLong yoTotalCount;
+   private final YoDouble yoLastLatencyInMicros;
+   private final YoDouble yoMaxLatencyInMicros;
+   private final YoDouble yoAverageLatencyInMicros;
+   private final YoDouble yoPercentile99LatencyInMicros;
+
+   /**
+    * @param name           prefix for the YoVariables.
+    * @param binWidthNanos  width of a single bin.
+    * @param numberOfBins   number of bins. The last bin collects every latency above
+    *                       {@code (numberOfBins - 1) * binWidthNanos}.
+    * @param parentRegistry registry the YoVariables are added to.
+    */
+   public ConcurrentLatencyHistogram(String name, long binWidthNanos, int numberOfBins, YoRegistry parentRegistry)
+   {
+      if (binWidthNanos <= 0 || numberOfBins < 2)
+         throw new IllegalArgumentException("Invalid histogram size, binWidthNanos: " + binWidthNanos + ", numberOfBins: " + numberOfBins);
+
+      this.binWidthNanos = binWidthNanos;
+      binCounts = new AtomicLongArray(numberOfBins);
+
+      YoRegistry registry = new YoRegistry(name + "Histogram");
+      yoBinCounts = new YoLong[numberOfBins];
+      for (int i = 0; i < numberOfBins; i++)
+      {
+         yoBinCounts[i] = new YoLong(name + "Bin" + i, registry);
+      }
+      yoTotalCount = new YoLong(name + "TotalCount", registry);
+      yoLastLatencyInMicros = new YoDouble(name + "LastInMicros", registry);
+      yoMaxLatencyInMicros = new YoDouble(name + "MaxInMicros", registry);
+      yoAverageLatencyInMicros = new YoDouble(name + "AverageInMicros", registry);
+      yoPercentile99LatencyInMicros = new YoDouble(name + "Percentile99InMicros", registry);
+
+      if (parentRegistry != null)
+         parentRegistry.addChild(registry);
+   }
+
+   public void record(long latencyNanos)
+   {
+      if (latencyNanos < 0)
+         latencyNanos = 0;
+
+      int bin = (int) Math.min(latencyNanos / binWidthNanos, binCounts.length() - 1);
+      binCounts.incrementAndGet(bin);
+      totalCount.incrementAndGet();
+      totalLatencyNanos.addAndGet(latencyNanos);
+      lastLatencyNanos = latencyNanos;
+
+      long currentMax = maxLatencyNanos.get();
+      while (latencyNanos > currentMax && !maxLatencyNanos.compareAndSet(currentMax, latencyNanos))
+      {
+         currentMax = maxLatencyNanos.get();
+      }
+   }
+
+   /**
+    * Copies the current state of the histogram into the YoVariables.
+    */
+   public void update()
+   {
+      long count = totalCount.get();
+      yoTotalCount.set(count);
+      yoLastLatencyInMicros.set(1.0e-3 * lastLatencyNanos);
+      yoMaxLatencyInMicros.set(1.0e-3 * maxLatencyNanos.get());
+      yoAverageLatencyInMicros.set(count > 0 ? 1.0e-3 * totalLatencyNanos.get() / count : 0.0);
+
+      for (int i = 0; i < yoBinCounts.length; i++)
+      {
+         yoBinCounts[i].set(binCounts.get(i));
+      }
+
+      yoPercentile99LatencyInMicros.set(1.0e-3 * getPercentileNanos(0.99));
+   }
+
+   /**
+    * Estimates a percentile of the recorded latencies from the bins.
+    *
+    * @param percentile the percentile in [0, 1], 0.99 for the 99th percentile.
+    * @return the upper edge of the bin containing the percentile, or 0 if nothing was recorded. When
+    *         the percentile falls in the last bin, the returned value is its lower edge plus one bin
+    *         width, which underestimates the latencies it collected.
+    */
+   public long getPercentileNanos(double percentile)
+   {
+      if (percentile < 0.0 || percentile > 1.0)
+         throw new IllegalArgumentException("The percentile must be in [0, 1], was: " + percentile);
+
+      // Counted from the bins so the threshold is reached even when recording concurrently.
+      long count = 0;
+      for (int i = 0; i < binCounts.length(); i++)
+      {
+         count += binCounts.get(i);
+      }
+
+      if (count == 0)
+         return 0;
+
+      long threshold = Math.max(1, (long) Math.ceil(percentile * count));
+      long cumulativeCount = 0;
+
+      for (int i = 0; i < binCounts.length(); i++)
+      {
+         cumulativeCount += binCounts.get(i);
+         if (cumulativeCount >= threshold)
+            return (i + 1) * binWidthNanos;
+      }
+
+      // Only reached if the bins were recorded into while iterating.
+      return binCounts.length() * binWidthNanos;
+   }
+
+   public void reset()
+   {
+      for (int i = 0; i < binCounts.length(); i++)
+      {
+         binCounts.set(i, 0);
+      }
+      totalCount.set(0);
+      totalLatencyNanos.set(0);
+      maxLatencyNanos.set(0);
+      lastLatencyNanos = 0;
+   }
+
+   public long getBinWidthNanos()
+   {
+      return binWidthNanos;
+   }
+
+   public int getNumberOfBins()
+   {
+      return binCounts.length();
+   }
+
+   public long getBinCount(int bin)
+   {
+      return binCounts.get(bin);
+   }
+
+   public long getTotalCount()
+   {
+      return totalCount.get();
+   }
+
+   public long getMaxLatencyNanos()
+   {
+      return maxLatencyNanos.get();
+   }
+}
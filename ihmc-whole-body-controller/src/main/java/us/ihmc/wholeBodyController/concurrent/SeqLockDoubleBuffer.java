@@ -0,0 +1,94 @@
+package us.ihmc.wholeBodyController.concurrent;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Preallocated {@code double[]} shared between a single writer and a single reader through a
+ * {@link StampedLock} used as a sequence lock.
+ * <p>
+ * The reader copies the buffer out under an optimistic read and only falls back to a blocking read
+ * after {@code maxOptimisticReadAttempts} failed validations, such that a read never returns data
+ * from two different writes.
+ * </p>
+ */
+class SeqLockDoubleBuffer
+{
+   private final StampedLock lock = new StampedLock();
+   private final double[] buffer;
+   private final int maxOptimisticReadAttempts;
+
+   /** Only accessed by the reader thread. */
+   private int lastFailedOptimisticReads = 0;
+
+   SeqLockDoubleBuffer(int size, int maxOptimisticReadAttempts)
+   {
+      buffer = new double[size];
+      this.maxOptimisticReadAttempts = maxOptimisticReadAttempts;
+   }
+
+   /**
+    * Copies the first {@link #size()} elements of {@code source} into the shared buffer. Must only be
+    * called from the writer thread.
+    */
+   void write(double[] source)
+   {
+      long stamp = lock.writeLock();
+      try
+      {
+         System.arraycopy(source, 0, buffer, 0, buffer.length);
+      }
+      finally
+      {
+         lock.unlockWrite(stamp);
+      }
+   }
+
+   /**
+    * Copies the shared buffer into the first {@link #size()} elements of {@code destination}. Must
+    * only be called from the reader thread.
+    *
+    * @return {@code true} if the copy was done under an optimistic read, {@code false} if it had to
+    *         fall back to the blocking read lock.
+    */
+   boolean read(double[] destination)
+   {
+      lastFailedOptimisticReads = 0;
+
+      for (int attempt = 0; attempt < maxOptimisticReadAttempts; attempt++)
+      {
+         long stamp = lock.tryOptimisticRead();
+         if (stamp != 0L)
+         {
+            System.arraycopy(buffer, 0, destination, 0, buffer.length);
+            if (lock.validate(stamp))
+               return true;
+         }
+         lastFailedOptimisticReads++;
+      }
+
+      long stamp = lock.readLock();
+      try
+      {
+         System.arraycopy(buffer, 0, destination, 0, buffer.length);
+      }
+      finally
+      {
+         lock.unlockRead(stamp);
+      }
+      return false;
+   }
+
+   /**
+    * @return the number of optimistic reads that failed validation during the last call to
+    *         {@link #read(double[])}.
+    */
+   int getLastFailedOptimisticReads()
+   {
+      return lastFailedOptimisticReads;
+   }
+
+   int size()
+   {
+      return buffer.length;
+   }
+}
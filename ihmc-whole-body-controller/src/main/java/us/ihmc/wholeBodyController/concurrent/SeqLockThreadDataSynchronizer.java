@@ -0,0 +1,497 @@
+package us.ihmc.wholeBodyController.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.ejml.data.DMatrixRMaj;
+
+import us.ihmc.concurrent.ConcurrentCopier;
+import us.ihmc.euclid.referenceFrame.FrameVector3D;
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.humanoidRobotics.model.CenterOfPressureDataHolder;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+import us.ihmc.mecano.spatial.Wrench;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+import us.ihmc.robotModels.FullHumanoidRobotModel;
+import us.ihmc.robotModels.FullHumanoidRobotModelFactory;
+import us.ihmc.robotics.robotSide.RobotSide;
+import us.ihmc.robotics.sensors.CenterOfMassDataHolder;
+import us.ihmc.robotics.sensors.CenterOfMassDataHolderReadOnly;
+import us.ihmc.robotics.sensors.ForceSensorData;
+import us.ihmc.robotics.sensors.ForceSensorDataHolder;
+import us.ihmc.robotics.sensors.ForceSensorDefinition;
+import us.ihmc.sensorProcessing.model.RobotMotionStatusHolder;
+import us.ihmc.sensorProcessing.outputData.JointDesiredOutputList;
+import us.ihmc.sensorProcessing.sensors.RawJointSensorDataHolder;
+import us.ihmc.sensorProcessing.sensors.RawJointSensorDataHolderMap;
+import us.ihmc.yoVariables.registry.YoRegistry;
+import us.ihmc.yoVariables.variable.YoLong;
+
+/**
+ * Alternative to {@link ThreadDataSynchronizer} that hands the estimator state to the controller
+ * through a single preallocated {@code double[]} guarded by a sequence lock instead of copying
+ * object graphs through a {@link ConcurrentCopier}.
+ * <p>
+ * The estimator serializes its joint states, force sensor wrenches, center of mass velocity and raw
+ * joint data into a thread-local buffer, then copies it into the shared buffer while holding the
+ * write lock. The controller copies the shared buffer out under an optimistic read and only falls
+ * back to a blocking read after repeated failed validations. The time from publishing to reading is
+ * recorded in a {@link ConcurrentLatencyHistogram} exposed through {@link #getYoRegistry()}.
+ * </p>
+ * <p>
+ * The controller to estimator direction is small and still goes through a {@link ConcurrentCopier}.
+ * </p>
+ */
+public class SeqLockThreadDataSynchronizer implements ThreadDataSynchronizerInterface
+{
+   private static final int MAX_OPTIMISTIC_READ_ATTEMPTS = 4;
+
+   private static final int TIMESTAMP_INDEX = 0;
+   private static final int ESTIMATOR_TICK_INDEX = 1;
+   private static final int ESTIMATOR_CLOCK_START_TIME_INDEX = 2;
+   private static final int PUBLISH_NANO_TIME_INDEX = 3;
+   private static final int PUBLISH_COUNT_INDEX = 4;
+   private static final int HEADER_SIZE = 5;
+
+   private static final int RAW_JOINT_DATA_SIZE = 15;
+
+   private final YoRegistry registry = new YoRegistry(getClass().getSimpleName());
+
+   private final FullHumanoidRobotModel estimatorFullRobotModel;
+   private final ForceSensorDataHolder estimatorForceSensorDataHolder;
+   private final CenterOfMassDataHolder estimatorCenterOfMassDataHolder;
+   private final RawJointSensorDataHolderMap estimatorRawJointSensorDataHolderMap;
+   private final CenterOfPressureDataHolder estimatorCenterOfPressureDataHolder;
+   private final RobotMotionStatusHolder estimatorRobotMotionStatusHolder;
+
+   private final FullHumanoidRobotModel controllerFullRobotModel;
+   private final ForceSensorDataHolder controllerForceSensorDataHolder;
+   private final CenterOfMassDataHolder controllerCenterOfMassDataHolder;
+   private final RawJointSensorDataHolderMap controllerRawJointSensorDataHolderMap;
+   private final CenterOfPressureDataHolder controllerCenterOfPressureDataHolder;
+   private final RobotMotionStatusHolder controllerRobotMotionStatusHolder;
+
+   private final JointDesiredOutputList estimatorDesiredJointDataHolder;
+   private final JointDesiredOutputList controllerDesiredJointDataHolder;
+
+   private final ConcurrentCopier<ControllerDataForEstimatorHolder> controllerStateCopier;
+
+   private final JointBasics[] estimatorJoints;
+   private final JointBasics[] controllerJoints;
+   private final ForceSensorData[] estimatorForceSensorDatas;
+   private final ForceSensorData[] controllerForceSensorDatas;
+   private final int numberOfRawJoints;
+
+   private final int bufferSize;
+
+   private final SeqLockDoubleBuffer sharedBuffer;
+   /** Only accessed by the estimator thread. */
+   private final DMatrixRMaj estimatorBuffer;
+   /** Only accessed by the controller thread. */
+   private final DMatrixRMaj controllerBuffer;
+
+   private final DMatrixRMaj tempWrench = new DMatrixRMaj(Wrench.SIZE, 1);
+   private final FrameVector3D tempCenterOfMassVelocity = new FrameVector3D();
+
+   private long publishCount = 0;
+   private long lastReadPublishCount = 0;
+
+   private long timestamp;
+   private long estimatorClockStartTime;
+   private long estimatorTick;
+
+   private final ConcurrentLatencyHistogram handoffLatencyHistogram;
+   private final YoLong failedOptimisticReads = new YoLong("failedOptimisticReads", registry);
+   private final YoLong blockingReads = new YoLong("blockingReads", registry);
+   private final YoLong skippedEstimatorStates = new YoLong("skippedEstimatorStates", registry);
+
+   public SeqLockThreadDataSynchronizer(FullHumanoidRobotModelFactory robotModelFactory)
+   {
+      this(robotModelFactory, 50000, 40);
+   }
+
+   /**
+    * @param robotModelFactory        factory used to create the estimator and controller models.
+    * @param latencyBinWidthNanos     width of a single bin of the handoff latency histogram.
+    * @param numberOfLatencyBins      number of bins of the handoff latency histogram.
+    */
+   public SeqLockThreadDataSynchronizer(FullHumanoidRobotModelFactory robotModelFactory, long latencyBinWidthNanos, int numberOfLatencyBins)
+   {
+      estimatorFullRobotModel = robotModelFactory.createFullRobotModel();
+      estimatorForceSensorDataHolder = new ForceSensorDataHolder(Arrays.asList(estimatorFullRobotModel.getForceSensorDefinitions()));
+      estimatorCenterOfMassDataHolder = new CenterOfMassDataHolder();
+      estimatorRawJointSensorDataHolderMap = new RawJointSensorDataHolderMap(estimatorFullRobotModel);
+      estimatorRobotMotionStatusHolder = new RobotMotionStatusHolder();
+      estimatorDesiredJointDataHolder = new JointDesiredOutputList(estimatorFullRobotModel.getControllableOneDoFJoints());
+
+      List<ReferenceFrame> estimatorSoleFrames = new ArrayList<>();
+      List<RigidBodyBasics> estimatorFeet = new ArrayList<>();
+      for (RobotSide robotSide : RobotSide.values)
+      {
+         estimatorSoleFrames.add(estimatorFullRobotModel.getSoleFrame(robotSide));
+         estimatorFeet.add(estimatorFullRobotModel.getFoot(robotSide));
+      }
+      estimatorCenterOfPressureDataHolder = new CenterOfPressureDataHolder(estimatorFeet);
+
+      controllerFullRobotModel = robotModelFactory.createFullRobotModel();
+      controllerForceSensorDataHolder = new ForceSensorDataHolder(Arrays.asList(controllerFullRobotModel.getForceSensorDefinitions()));
+      controllerCenterOfMassDataHolder = new CenterOfMassDataHolder();
+      controllerRawJointSensorDataHolderMap = new RawJointSensorDataHolderMap(controllerFullRobotModel);
+      controllerRobotMotionStatusHolder = new RobotMotionStatusHolder();
+      controllerDesiredJointDataHolder = new JointDesiredOutputList(controllerFullRobotModel.getControllableOneDoFJoints());
+
+      List<ReferenceFrame> controllerSoleFrames = new ArrayList<>();
+      List<RigidBodyBasics> controllerFeet = new ArrayList<>();
+      for (RobotSide robotSide : RobotSide.values)
+      {
+         controllerSoleFrames.add(controllerFullRobotModel.getSoleFrame(robotSide));
+         controllerFeet.add(controllerFullRobotModel.getFoot(robotSide));
+      }
+      controllerCenterOfPressureDataHolder = new CenterOfPressureDataHolder(controllerFeet);
+
+      ControllerDataForEstimatorHolder.Builder controllerStateCopierBuilder = new ControllerDataForEstimatorHolder.Builder(estimatorCenterOfPressureDataHolder,
+                                                                                                                           controllerCenterOfPressureDataHolder,
+                                                                                                                           estimatorRobotMotionStatusHolder,
+                                                                                                                           controllerRobotMotionStatusHolder,
+                                                                                                                           estimatorDesiredJointDataHolder,
+                                                                                                                           controllerDesiredJointDataHolder,
+                                                                                                                           estimatorSoleFrames,
+                                                                                                                           controllerSoleFrames);
+      controllerStateCopier = new ConcurrentCopier<>(controllerStateCopierBuilder);
+
+      estimatorJoints = MultiBodySystemTools.collectSubtreeJoints(estimatorFullRobotModel.getElevator());
+      controllerJoints = MultiBodySystemTools.collectSubtreeJoints(controllerFullRobotModel.getElevator());
+
+      if (estimatorJoints.length != controllerJoints.length)
+         throw new RuntimeException("The estimator and controller models do not have the same number of joints.");
+
+      int jointStateSize = 0;
+      for (int i = 0; i < estimatorJoints.length; i++)
+      {
+         JointBasics estimatorJoint = estimatorJoints[i];
+         JointBasics controllerJoint = controllerJoints[i];
+         if (!estimatorJoint.getClass().equals(controllerJoint.getClass()) || !estimatorJoint.getName().equals(controllerJoint.getName()))
+            throw new RuntimeException(estimatorJoint.getName() + " differs from " + controllerJoint.getName());
+
+         jointStateSize += estimatorJoint.getConfigurationMatrixSize() + 2 * estimatorJoint.getDegreesOfFreedom();
+      }
+
+      List<ForceSensorDefinition> forceSensorDefinitions = estimatorForceSensorDataHolder.getForceSensorDefinitions();
+      estimatorForceSensorDatas = new ForceSensorData[forceSensorDefinitions.size()];
+      controllerForceSensorDatas = new ForceSensorData[forceSensorDefinitions.size()];
+      for (int i = 0; i < forceSensorDefinitions.size(); i++)
+      {
+         String sensorName = forceSensorDefinitions.get(i).getSensorName();
+         estimatorForceSensorDatas[i] = estimatorForceSensorDataHolder.getByName(sensorName);
+         controllerForceSensorDatas[i] = controllerForceSensorDataHolder.getByName(sensorName);
+      }
+
+      numberOfRawJoints = estimatorRawJointSensorDataHolderMap.getNumberOfJoints();
+      if (numberOfRawJoints != controllerRawJointSensorDataHolderMap.getNumberOfJoints())
+         throw new RuntimeException("The estimator and controller raw joint sensor data maps do not have the same number of joints.");
+
+      bufferSize = HEADER_SIZE + jointStateSize + Wrench.SIZE * estimatorForceSensorDatas.length + 3 + RAW_JOINT_DATA_SIZE * numberOfRawJoints;
+
+      sharedBuffer = new SeqLockDoubleBuffer(bufferSize, MAX_OPTIMISTIC_READ_ATTEMPTS);
+      estimatorBuffer = new DMatrixRMaj(bufferSize, 1);
+      controllerBuffer = new DMatrixRMaj(bufferSize, 1);
+
+      handoffLatencyHistogram = new ConcurrentLatencyHistogram("estimatorToControllerLatency", latencyBinWidthNanos, numberOfLatencyBins, registry);
+   }
+
+   @Override
+   public boolean receiveEstimatorStateForController()
+   {
+      double[] data = controllerBuffer.getData();
+
+      if (!sharedBuffer.read(data))
+         blockingReads.increment();
+      failedOptimisticReads.set(failedOptimisticReads.getLongValue() + sharedBuffer.getLastFailedOptimisticReads());
+
+      long readNanoTime = System.nanoTime();
+      long currentPublishCount = Double.doubleToRawLongBits(data[PUBLISH_COUNT_INDEX]);
+
+      if (currentPublishCount == lastReadPublishCount)
+      {
+         handoffLatencyHistogram.update();
+         return false;
+      }
+
+      if (currentPublishCount > lastReadPublishCount + 1)
+         skippedEstimatorStates.set(skippedEstimatorStates.getLongValue() + currentPublishCount - lastReadPublishCount - 1);
+      lastReadPublishCount = currentPublishCount;
+
+      timestamp = Double.doubleToRawLongBits(data[TIMESTAMP_INDEX]);
+      estimatorTick = Double.doubleToRawLongBits(data[ESTIMATOR_TICK_INDEX]);
+      estimatorClockStartTime = Double.doubleToRawLongBits(data[ESTIMATOR_CLOCK_START_TIME_INDEX]);
+      long publishNanoTime = Double.doubleToRawLongBits(data[PUBLISH_NANO_TIME_INDEX]);
+
+      unpackIntoControllerModel();
+
+      handoffLatencyHistogram.record(readNanoTime - publishNanoTime);
+      handoffLatencyHistogram.update();
+      return true;
+   }
+
+   @Override
+   public void publishEstimatorState(long timestamp, long estimatorTick, long estimatorClockStartTime)
+   {
+      double[] data = estimatorBuffer.getData();
+
+      data[TIMESTAMP_INDEX] = Double.longBitsToDouble(timestamp);
+      data[ESTIMATOR_TICK_INDEX] = Double.longBitsToDouble(estimatorTick);
+      data[ESTIMATOR_CLOCK_START_TIME_INDEX] = Double.longBitsToDouble(estimatorClockStartTime);
+      data[PUBLISH_COUNT_INDEX] = Double.longBitsToDouble(++publishCount);
+
+      packFromEstimatorModel();
+
+      data[PUBLISH_NANO_TIME_INDEX] = Double.longBitsToDouble(System.nanoTime());
+
+      sharedBuffer.write(data);
+   }
+
+   private void packFromEstimatorModel()
+   {
+      double[] data = estimatorBuffer.getData();
+
+      int index = HEADER_SIZE;
+      for (int i = 0; i < estimatorJoints.length; i++)
+      {
+         JointBasics joint = estimatorJoints[i];
+         joint.getJointConfiguration(index, estimatorBuffer);
+         index += joint.getConfigurationMatrixSize();
+         joint.getJointVelocity(index, estimatorBuffer);
+         index += joint.getDegreesOfFreedom();
+         joint.getJointAcceleration(index, estimatorBuffer);
+         index += joint.getDegreesOfFreedom();
+      }
+
+      for (int i = 0; i < estimatorForceSensorDatas.length; i++)
+      {
+         estimatorForceSensorDatas[i].getWrench(tempWrench);
+         System.arraycopy(tempWrench.getData(), 0, data, index, Wrench.SIZE);
+         index += Wrench.SIZE;
+      }
+
+      estimatorCenterOfMassDataHolder.getCenterOfMassVelocity(tempCenterOfMassVelocity);
+      tempCenterOfMassVelocity.changeFrame(ReferenceFrame.getWorldFrame());
+      data[index++] = tempCenterOfMassVelocity.getX();
+      data[index++] = tempCenterOfMassVelocity.getY();
+      data[index++] = tempCenterOfMassVelocity.getZ();
+
+      if (estimatorRawJointSensorDataHolderMap.getNumberOfJoints() != numberOfRawJoints)
+         throw new RuntimeException("The number of joints in the estimator raw joint sensor data map changed.");
+
+      for (int i = 0; i < numberOfRawJoints; i++)
+      {
+         RawJointSensorDataHolder rawData = estimatorRawJointSensorDataHolderMap.get(i);
+         data[index++] = rawData.isUseOutputEncoderQ() ? 1.0 : 0.0;
+         data[index++] = rawData.isUseOutputEncoderQd() ? 1.0 : 0.0;
+         data[index++] = rawData.getIsEnabled() ? 1.0 : 0.0;
+         data[index++] = rawData.getQ_raw();
+         data[index++] = rawData.getQ_out_raw();
+         data[index++] = rawData.getQd_out_raw();
+         data[index++] = rawData.getQd_raw();
+         data[index++] = rawData.getF_raw();
+         data[index++] = rawData.getPsi_neg_raw();
+         data[index++] = rawData.getPsi_pos_raw();
+         data[index++] = rawData.getMotorCurrent();
+         data[index++] = rawData.getCommandedMotorCurrent();
+         data[index++] = rawData.getTemperature();
+         data[index++] = rawData.getMotorAngle(0);
+         data[index++] = rawData.getMotorAngle(1);
+      }
+   }
+
+   private void unpackIntoControllerModel()
+   {
+      double[] data = controllerBuffer.getData();
+
+      int index = HEADER_SIZE;
+      for (int i = 0; i < controllerJoints.length; i++)
+      {
+         JointBasics joint = controllerJoints[i];
+         joint.setJointConfiguration(index, controllerBuffer);
+         index += joint.getConfigurationMatrixSize();
+         joint.setJointVelocity(index, controllerBuffer);
+         index += joint.getDegreesOfFreedom();
+         joint.setJointAcceleration(index, controllerBuffer);
+         index += joint.getDegreesOfFreedom();
+      }
+
+      for (int i = 0; i < controllerForceSensorDatas.length; i++)
+      {
+         System.arraycopy(data, index, tempWrench.getData(), 0, Wrench.SIZE);
+         controllerForceSensorDatas[i].setWrench(tempWrench);
+         index += Wrench.SIZE;
+      }
+
+      tempCenterOfMassVelocity.setIncludingFrame(ReferenceFrame.getWorldFrame(), data[index], data[index + 1], data[index + 2]);
+      controllerCenterOfMassDataHolder.setCenterOfMassVelocity(tempCenterOfMassVelocity);
+      index += 3;
+
+      for (int i = 0; i < numberOfRawJoints; i++)
+      {
+         RawJointSensorDataHolder rawData = controllerRawJointSensorDataHolderMap.get(i);
+         rawData.setUsesOutputEncoderQ(data[index++] != 0.0);
+         rawData.setUsesOutputEncoderQd(data[index++] != 0.0);
+         rawData.setIsEnabled(data[index++] != 0.0);
+         rawData.setQ_raw(data[index++]);
+         rawData.setQ_out_raw(data[index++]);
+         rawData.setQd_out_raw(data[index++]);
+         rawData.setQd_raw(data[index++]);
+         rawData.setF_raw(data[index++]);
+         rawData.setPsi_neg_raw(data[index++]);
+         rawData.setPsi_pos_raw(data[index++]);
+         rawData.setMotorCurrent(data[index++]);
+         rawData.setCommandedMotorCurrent(data[index++]);
+         rawData.setTemperature(data[index++]);
+         rawData.setMotorAngle(0, data[index++]);
+         rawData.setMotorAngle(1, data[index++]);
+      }
+   }
+
+   /**
+    * Registry holding the handoff statistics. The variables are updated by the controller thread and
+    * should be attached to the controller registry.
+    */
+   public YoRegistry getYoRegistry()
+   {
+      return registry;
+   }
+
+   public ConcurrentLatencyHistogram getHandoffLatencyHistogram()
+   {
+      return handoffLatencyHistogram;
+   }
+
+   @Override
+   public FullHumanoidRobotModel getEstimatorFullRobotModel()
+   {
+      return estimatorFullRobotModel;
+   }
+
+   @Override
+   public ForceSensorDataHolder getEstimatorForceSensorDataHolder()
+   {
+      return estimatorForceSensorDataHolder;
+   }
+
+   @Override
+   public CenterOfMassDataHolder getEstimatorCenterOfMassDataHolder()
+   {
+      return estimatorCenterOfMassDataHolder;
+   }
+
+   @Override
+   public FullHumanoidRobotModel getControllerFullRobotModel()
+   {
+      return controllerFullRobotModel;
+   }
+
+   @Override
+   public ForceSensorDataHolder getControllerForceSensorDataHolder()
+   {
+      return controllerForceSensorDataHolder;
+   }
+
+   @Override
+   public CenterOfMassDataHolderReadOnly getControllerCenterOfMassDataHolder()
+   {
+      return controllerCenterOfMassDataHolder;
+   }
+
+   @Override
+   public RawJointSensorDataHolderMap getEstimatorRawJointSensorDataHolderMap()
+   {
+      return estimatorRawJointSensorDataHolderMap;
+   }
+
+   @Override
+   public RawJointSensorDataHolderMap getControllerRawJointSensorDataHolderMap()
+   {
+      return controllerRawJointSensorDataHolderMap;
+   }
+
+   @Override
+   public CenterOfPressureDataHolder getEstimatorCenterOfPressureDataHolder()
+   {
+      return estimatorCenterOfPressureDataHolder;
+   }
+
+   @Override
+   public CenterOfPressureDataHolder getControllerCenterOfPressureDataHolder()
+   {
+      return controllerCenterOfPressureDataHolder;
+   }
+
+   @Override
+   public RobotMotionStatusHolder getEstimatorRobotMotionStatusHolder()
+   {
+      return estimatorRobotMotionStatusHolder;
+   }
+
+   @Override
+   public RobotMotionStatusHolder getControllerRobotMotionStatusHolder()
+   {
+      return controllerRobotMotionStatusHolder;
+   }
+
+   @Override
+   public JointDesiredOutputList getEstimatorDesiredJointDataHolder()
+   {
+      return estimatorDesiredJointDataHolder;
+   }
+
+   @Override
+   public JointDesiredOutputList getControllerDesiredJointDataHolder()
+   {
+      return controllerDesiredJointDataHolder;
+   }
+
+   @Override
+   public long getTimestamp()
+   {
+      return timestamp;
+   }
+
+   @Override
+   public long getEstimatorClockStartTime()
+   {
+      return estimatorClockStartTime;
+   }
+
+   @Override
+   public long getEstimatorTick()
+   {
+      return estimatorTick;
+   }
+
+   @Override
+   public void publishControllerData()
+   {
+      ControllerDataForEstimatorHolder holder = controllerStateCopier.getCopyForWriting();
+      if (holder != null)
+      {
+         holder.writeControllerDataFromController();
+         controllerStateCopier.commit();
+      }
+   }
+
+   @Override
+   public boolean receiveControllerDataForEstimator()
+   {
+      ControllerDataForEstimatorHolder holder = controllerStateCopier.getCopyForReading();
+      if (holder != null)
+      {
+         holder.readControllerDataIntoEstimator();
+         return true;
+      }
+      else
+      {
+         return false;
+      }
+   }
+}
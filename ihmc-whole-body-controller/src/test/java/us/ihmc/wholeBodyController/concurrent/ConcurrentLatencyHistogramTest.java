@@ -0,0 +1,100 @@
+package us.ihmc.wholeBodyController.concurrent;
+
+import static us.ihmc.robotics.Assert.assertEquals;
+import static us.ihmc.robotics.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.yoVariables.registry.YoRegistry;
+
+public class ConcurrentLatencyHistogramTest
+{
+   @Test
+   public void testPercentile()
+   {
+      ConcurrentLatencyHistogram histogram = new ConcurrentLatencyHistogram("latency", 10, 100, new YoRegistry("test"));
+      assertEquals(0, histogram.getPercentileNanos(0.99));
+
+      // 10 latencies per bin.
+      for (long latency = 0; latency < 1000; latency++)
+         histogram.record(latency);
+
+      assertEquals(1000, histogram.getTotalCount());
+      assertEquals(999, histogram.getMaxLatencyNanos());
+      for (int bin = 0; bin < histogram.getNumberOfBins(); bin++)
+         assertEquals(10, histogram.getBinCount(bin));
+
+      assertEquals(10, histogram.getPercentileNanos(0.0));
+      assertEquals(10, histogram.getPercentileNanos(0.01));
+      assertEquals(20, histogram.getPercentileNanos(0.015));
+      assertEquals(500, histogram.getPercentileNanos(0.5));
+      assertEquals(990, histogram.getPercentileNanos(0.99));
+      assertEquals(1000, histogram.getPercentileNanos(1.0));
+
+      // The latencies above the last bin are collected by it.
+      for (int i = 0; i < 1000; i++)
+         histogram.record(1000000);
+      histogram.record(-5);
+
+      assertEquals(2001, histogram.getTotalCount());
+      assertEquals(1010, histogram.getBinCount(histogram.getNumberOfBins() - 1));
+      assertEquals(11, histogram.getBinCount(0));
+      assertEquals(500, histogram.getPercentileNanos(0.25));
+      assertEquals(1000, histogram.getPercentileNanos(0.99));
+
+      histogram.reset();
+      assertEquals(0, histogram.getTotalCount());
+      assertEquals(0, histogram.getPercentileNanos(0.5));
+   }
+
+   @Test
+   public void testPercentileOfSkewedDistribution()
+   {
+      Random random = new Random(8751L);
+      ConcurrentLatencyHistogram histogram = new ConcurrentLatencyHistogram("latency", 1000, 50, null);
+
+      // 98% of the latencies below 5us, 2% between 20us and 30us.
+      for (int i = 0; i < 9800; i++)
+         histogram.record(random.nextInt(5000));
+      for (int i = 0; i < 200; i++)
+         histogram.record(20000 + random.nextInt(10000));
+
+      assertTrue(histogram.getPercentileNanos(0.5) <= 5000);
+      assertEquals(5000, histogram.getPercentileNanos(0.98));
+      long percentile99 = histogram.getPercentileNanos(0.99);
+      assertTrue("99th percentile: " + percentile99, percentile99 > 20000 && percentile99 <= 30000);
+   }
+
+   @Test
+   public void testConcurrentRecording() throws InterruptedException
+   {
+      int numberOfThreads = 4;
+      int recordsPerThread = 100000;
+      ConcurrentLatencyHistogram histogram = new ConcurrentLatencyHistogram("latency", 10, 20, null);
+
+      List<Thread> threads = new ArrayList<>();
+      for (int thread = 0; thread < numberOfThreads; thread++)
+      {
+         // Every thread records the same latencies, one per bin.
+         threads.add(new Thread(() ->
+         {
+            for (int i = 0; i < recordsPerThread; i++)
+               histogram.record(10 * (i % 20));
+         }));
+      }
+
+      threads.forEach(Thread::start);
+      for (Thread thread : threads)
+         thread.join();
+
+      assertEquals(numberOfThreads * recordsPerThread, histogram.getTotalCount());
+      assertEquals(190, histogram.getMaxLatencyNanos());
+      for (int bin = 0; bin < histogram.getNumberOfBins(); bin++)
+         assertEquals(numberOfThreads * recordsPerThread / 20, histogram.getBinCount(bin));
+      assertEquals(100, histogram.getPercentileNanos(0.5));
+   }
+}
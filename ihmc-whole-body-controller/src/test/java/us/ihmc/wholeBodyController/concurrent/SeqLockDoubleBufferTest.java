@@ -0,0 +1,112 @@
+package us.ihmc.wholeBodyController.concurrent;
+
+import static us.ihmc.robotics.Assert.assertEquals;
+import static us.ihmc.robotics.Assert.assertFalse;
+import static us.ihmc.robotics.Assert.assertTrue;
+import static us.ihmc.robotics.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+public class SeqLockDoubleBufferTest
+{
+   private static final int BUFFER_SIZE = 2000;
+   private static final int NUMBER_OF_WRITES = 20000;
+
+   @Test
+   public void testReadWithoutContention()
+   {
+      SeqLockDoubleBuffer buffer = new SeqLockDoubleBuffer(BUFFER_SIZE, 4);
+      double[] source = new double[BUFFER_SIZE];
+      double[] destination = new double[BUFFER_SIZE];
+
+      fillBuffer(source, 42);
+      buffer.write(source);
+
+      assertTrue(buffer.read(destination));
+      assertEquals(0, buffer.getLastFailedOptimisticReads());
+      for (int i = 0; i < BUFFER_SIZE; i++)
+         assertEquals(source[i], destination[i], 0.0);
+
+      // Without optimistic attempts, every read takes the read lock.
+      buffer = new SeqLockDoubleBuffer(BUFFER_SIZE, 0);
+      buffer.write(source);
+      assertFalse(buffer.read(destination));
+      for (int i = 0; i < BUFFER_SIZE; i++)
+         assertEquals(source[i], destination[i], 0.0);
+   }
+
+   @Test
+   public void testConcurrentReadWriteHasNoTornReads() throws InterruptedException
+   {
+      // From always blocking to mostly optimistic.
+      for (int maxOptimisticReadAttempts : new int[] {0, 1, 4})
+      {
+         SeqLockDoubleBuffer buffer = new SeqLockDoubleBuffer(BUFFER_SIZE, maxOptimisticReadAttempts);
+         AtomicReference<Throwable> writerException = new AtomicReference<>();
+
+         Thread writer = new Thread(() ->
+         {
+            try
+            {
+               double[] source = new double[BUFFER_SIZE];
+               for (int write = 1; write <= NUMBER_OF_WRITES; write++)
+               {
+                  fillBuffer(source, write);
+                  buffer.write(source);
+               }
+            }
+            catch (Throwable e)
+            {
+               writerException.set(e);
+            }
+         }, "SeqLockDoubleBufferTestWriter");
+
+         double[] destination = new double[BUFFER_SIZE];
+         int previousWrite = 0;
+         int numberOfReads = 0;
+
+         writer.start();
+
+         while (previousWrite < NUMBER_OF_WRITES)
+         {
+            boolean optimistic = buffer.read(destination);
+            numberOfReads++;
+
+            if (maxOptimisticReadAttempts == 0)
+               assertFalse(optimistic);
+            assertTrue(buffer.getLastFailedOptimisticReads() <= maxOptimisticReadAttempts);
+
+            int write = (int) destination[0];
+            for (int i = 0; i < BUFFER_SIZE; i++)
+            {
+               if (destination[i] != write + i * NUMBER_OF_WRITES)
+                  fail("Torn read after " + numberOfReads + " reads: element " + i + " is from write " + (int) (destination[i] - i * NUMBER_OF_WRITES)
+                        + ", element 0 from write " + write);
+            }
+
+            assertTrue("Went back from write " + previousWrite + " to " + write, write >= previousWrite);
+            previousWrite = write;
+
+            if (!writer.isAlive() && writerException.get() != null)
+               break;
+         }
+
+         writer.join();
+         if (writerException.get() != null)
+            throw new RuntimeException(writerException.get());
+         assertEquals(NUMBER_OF_WRITES, previousWrite);
+      }
+   }
+
+   /**
+    * Every element encodes both the write it belongs to and its index, such that a read mixing two
+    * writes or shifting the elements is detected.
+    */
+   private static void fillBuffer(double[] buffer, int write)
+   {
+      for (int i = 0; i < buffer.length; i++)
+         buffer[i] = write + i * NUMBER_OF_WRITES;
+   }
+}
@@ -1,5 +1,7 @@
 package us.ihmc.robotEnvironmentAwareness.communication.converters;
 
+import java.util.Collection;
+
 import us.ihmc.jOctoMap.key.OcTreeKeyReadOnly;
 import us.ihmc.jOctoMap.node.NormalOcTreeNode;
 import us.ihmc.jOctoMap.ocTree.NormalOcTree;
@@ -78,4 +80,19 @@ public class OcTreeMessageConverter
    {
       return createOcTreeKeyMessage(other.getKey(0), other.getKey(1), other.getKey(2));
    }
+
+   /**
+    * @return the key messages, or {@code null} if {@code keys} is {@code null}.
+    */
+   public static OcTreeKeyMessage[] createOcTreeKeyMessages(Collection<? extends OcTreeKeyReadOnly> keys)
+   {
+      if (keys == null)
+         return null;
+
+      OcTreeKeyMessage[] messages = new OcTreeKeyMessage[keys.size()];
+      int index = 0;
+      for (OcTreeKeyReadOnly key : keys)
+         messages[index++] = createOcTreeKeyMessage(key);
+      return messages;
+   }
 }
@@ -8,6 +8,13 @@ public class NormalOcTreeMessage extends Packet<NormalOcTreeMessage>
    public int treeDepth = 0;
    public float resolution = Float.NaN;
    public NormalOcTreeNodeMessage root = null;
+   /** Index of this update of the octree, {@code -1} if the octree is not reported as a sequence of updates. */
+   public long updateIndex = -1;
+   /**
+    * Keys of the leaves that have been updated or removed since the update {@code updateIndex - 1},
+    * {@code null} if they are unknown in which case the whole octree should be considered changed.
+    */
+   public OcTreeKeyMessage[] changedLeafKeys = null;
 
    public NormalOcTreeMessage()
    {
@@ -20,6 +27,23 @@ public class NormalOcTreeMessage extends Packet<NormalOcTreeMessage>
       resolution = other.resolution;
       root = new NormalOcTreeNodeMessage();
       root.set(other.root);
+      updateIndex = other.updateIndex;
+
+      if (other.changedLeafKeys != null)
+      {
+         changedLeafKeys = new OcTreeKeyMessage[other.changedLeafKeys.length];
+
+         for (int i = 0; i < changedLeafKeys.length; i++)
+         {
+            changedLeafKeys[i] = new OcTreeKeyMessage();
+            changedLeafKeys[i].set(other.changedLeafKeys[i]);
+         }
+      }
+      else
+      {
+         changedLeafKeys = null;
+      }
+
       setPacketInformation(other);
    }
 
@@ -0,0 +1,416 @@
+package us.ihmc.robotEnvironmentAwareness.geometry;
+
+import java.util.List;
+
+import us.ihmc.euclid.tuple2D.interfaces.Point2DReadOnly;
+
+/**
+ * Computes the same concave hulls as {@link SimpleConcaveHullFactory} without using JTS: the
+ * Delaunay triangulation is computed with a {@link HalfEdgeDelaunayTriangulation} and the border
+ * triangles are eroded using primitive arrays and an indexed heap instead of sets and a queue of
+ * pairs.
+ * <p>
+ * Instead of splitting the hull into sub-hulls as soon as a triangle removal creates an
+ * intersection vertex, the erosion is applied to the whole triangulation and the concave hulls are
+ * extracted at the end by walking along the remaining border edges.
+ * </p>
+ * <p>
+ * Line constraints are not supported, use {@link SimpleConcaveHullFactory} for these. An instance
+ * is not thread-safe but can be reused without allocating other than for the resulting hulls.
+ * </p>
+ */
+public class HalfEdgeConcaveHullFactory
+{
+   private final HalfEdgeDelaunayTriangulation triangulation = new HalfEdgeDelaunayTriangulation();
+
+   private double[] coordinates = new double[0];
+   private int[] sortedIndices = new int[0];
+   private double[] sortKeys = new double[0];
+
+   private boolean[] isTriangleRemoved = new boolean[0];
+   /** Number of border half-edges starting or ending at each vertex. */
+   private int[] vertexBorderCount = new int[0];
+   private double[] edgeLengths = new double[0];
+   private boolean[] isInHeap = new boolean[0];
+   private boolean[] isVisited = new boolean[0];
+   private int[] heap = new int[0];
+   private int heapSize = 0;
+
+   /** Triangles incident to each vertex, in compressed row storage. */
+   private int[] vertexTrianglesStart = new int[0];
+   private int[] vertexTrianglesEnd = new int[0];
+   private int[] vertexTriangles = new int[0];
+
+   public HalfEdgeConcaveHullFactory()
+   {
+   }
+
+   /**
+    * Computes the concave hull(s) of the given point cloud.
+    *
+    * @param pointCloud2d the point cloud from which the concave hulls are computed.
+    * @param parameters   the parameters to use.
+    * @return the concave hulls, or {@code null} if the triangulation failed, for instance when the
+    *         points are all collinear.
+    */
+   public ConcaveHullCollection createConcaveHullCollection(List<? extends Point2DReadOnly> pointCloud2d, ConcaveHullFactoryParameters parameters)
+   {
+      if (pointCloud2d.size() <= 3)
+         return new ConcaveHullCollection(pointCloud2d);
+
+      int numberOfPoints = packPoints(pointCloud2d, parameters.getTriangulationTolerance());
+
+      if (!triangulation.triangulate(coordinates, numberOfPoints) || triangulation.getNumberOfTriangles() == 0)
+         return null;
+
+      initializeErosion();
+      erodeBorderTriangles(parameters);
+      return extractConcaveHulls();
+   }
+
+   /**
+    * Packs the point cloud in {@link #coordinates}, merging the points that are within
+    * {@code tolerance} of a point already packed in the same way the JTS triangulation does.
+    */
+   private int packPoints(List<? extends Point2DReadOnly> pointCloud2d, double tolerance)
+   {
+      int size = pointCloud2d.size();
+
+      if (coordinates.length < 2 * size)
+      {
+         coordinates = new double[2 * size];
+         sortedIndices = new int[size];
+         sortKeys = new double[size];
+      }
+
+      if (tolerance <= 0.0)
+      {
+         for (int i = 0; i < size; i++)
+         {
+            Point2DReadOnly point = pointCloud2d.get(i);
+            coordinates[2 * i] = point.getX();
+            coordinates[2 * i + 1] = point.getY();
+         }
+         return size;
+      }
+
+      for (int i = 0; i < size; i++)
+      {
+         sortedIndices[i] = i;
+         sortKeys[i] = pointCloud2d.get(i).getX();
+      }
+
+      HalfEdgeDelaunayTriangulation.sortIndices(sortedIndices, sortKeys, 0, size - 1);
+
+      double toleranceSquared = tolerance * tolerance;
+      int numberOfPoints = 0;
+
+      for (int i = 0; i < size; i++)
+      {
+         Point2DReadOnly point = pointCloud2d.get(sortedIndices[i]);
+         double x = point.getX();
+         double y = point.getY();
+         boolean isMerged = false;
+
+         // The packed points are sorted by x, only the last ones can be within tolerance.
+         for (int j = numberOfPoints - 1; j >= 0 && x - coordinates[2 * j] <= tolerance; j--)
+         {
+            double dx = x - coordinates[2 * j];
+            double dy = y - coordinates[2 * j + 1];
+
+            if (dx * dx + dy * dy <= toleranceSquared)
+            {
+               isMerged = true;
+               break;
+            }
+         }
+
+         if (!isMerged)
+         {
+            coordinates[2 * numberOfPoints] = x;
+            coordinates[2 * numberOfPoints + 1] = y;
+            numberOfPoints++;
+         }
+      }
+
+      return numberOfPoints;
+   }
+
+   private void initializeErosion()
+   {
+      int numberOfPoints = triangulation.getNumberOfPoints();
+      int numberOfTriangles = triangulation.getNumberOfTriangles();
+      int numberOfHalfEdges = triangulation.getNumberOfHalfEdges();
+
+      if (isTriangleRemoved.length < numberOfTriangles)
+         isTriangleRemoved = new boolean[numberOfTriangles];
+      if (edgeLengths.length < numberOfHalfEdges)
+      {
+         edgeLengths = new double[numberOfHalfEdges];
+         isInHeap = new boolean[numberOfHalfEdges];
+         isVisited = new boolean[numberOfHalfEdges];
+         heap = new int[numberOfHalfEdges];
+         vertexTriangles = new int[numberOfHalfEdges];
+      }
+      if (vertexBorderCount.length < numberOfPoints)
+      {
+         vertexBorderCount = new int[numberOfPoints];
+         vertexTrianglesStart = new int[numberOfPoints + 1];
+         vertexTrianglesEnd = new int[numberOfPoints];
+      }
+
+      for (int t = 0; t < numberOfTriangles; t++)
+         isTriangleRemoved[t] = false;
+      for (int v = 0; v <= numberOfPoints; v++)
+         vertexTrianglesStart[v] = 0;
+      for (int v = 0; v < numberOfPoints; v++)
+         vertexBorderCount[v] = 0;
+
+      heapSize = 0;
+
+      for (int e = 0; e < numberOfHalfEdges; e++)
+      {
+         int origin = triangulation.getTriangleVertex(e);
+         int destination = triangulation.getTriangleVertex(HalfEdgeDelaunayTriangulation.nextHalfEdge(e));
+         double dx = triangulation.getX(destination) - triangulation.getX(origin);
+         double dy = triangulation.getY(destination) - triangulation.getY(origin);
+         edgeLengths[e] = Math.sqrt(dx * dx + dy * dy);
+         isInHeap[e] = false;
+         isVisited[e] = false;
+
+         vertexTrianglesStart[origin + 1]++;
+
+         if (triangulation.getTwin(e) == -1)
+         {
+            vertexBorderCount[origin]++;
+            vertexBorderCount[destination]++;
+         }
+      }
+
+      // Each half-edge starts at one vertex of its triangle, so the triangles around a vertex are the ones of its outgoing half-edges.
+      for (int v = 0; v < numberOfPoints; v++)
+      {
+         vertexTrianglesStart[v + 1] += vertexTrianglesStart[v];
+         vertexTrianglesEnd[v] = vertexTrianglesStart[v];
+      }
+
+      for (int e = 0; e < numberOfHalfEdges; e++)
+      {
+         int origin = triangulation.getTriangleVertex(e);
+         vertexTriangles[vertexTrianglesEnd[origin]++] = e / 3;
+      }
+   }
+
+   private void erodeBorderTriangles(ConcaveHullFactoryParameters parameters)
+   {
+      int numberOfHalfEdges = triangulation.getNumberOfHalfEdges();
+
+      for (int e = 0; e < numberOfHalfEdges; e++)
+      {
+         if (isBorderEdge(e) && isRemovable(e, parameters))
+            pushToHeap(e);
+      }
+
+      int numberOfIterations = 0;
+
+      while (heapSize > 0 && numberOfIterations < parameters.getMaxNumberOfIterations())
+      {
+         int candidateEdge = popFromHeap();
+
+         // The heap is lazy: the candidate may have become non-removable since it was pushed.
+         if (!isBorderEdge(candidateEdge) || !isRemovable(candidateEdge, parameters))
+            continue;
+
+         int triangle = candidateEdge / 3;
+         removeTriangle(triangle);
+         numberOfIterations++;
+
+         // Only the triangles around the vertices of the removed triangle can have changed.
+         for (int i = 0; i < 3; i++)
+         {
+            int vertex = triangulation.getTriangleVertex(3 * triangle + i);
+
+            for (int j = vertexTrianglesStart[vertex]; j < vertexTrianglesStart[vertex + 1]; j++)
+            {
+               int neighbor = vertexTriangles[j];
+               if (isTriangleRemoved[neighbor])
+                  continue;
+
+               for (int e = 3 * neighbor; e < 3 * neighbor + 3; e++)
+               {
+                  if (!isInHeap[e] && isBorderEdge(e) && isRemovable(e, parameters))
+                     pushToHeap(e);
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Same rules as {@link SimpleConcaveHullFactory#determineCase}, without the line constraints.
+    */
+   private boolean isRemovable(int borderEdge, ConcaveHullFactoryParameters parameters)
+   {
+      int triangle = borderEdge / 3;
+      boolean isEdgeTooLong = edgeLengths[borderEdge] >= parameters.getEdgeLengthThreshold();
+
+      int numberOfBorderEdges = 0;
+      int numberOfBorderVertices = 0;
+      int nonBorderEdge = -1;
+
+      for (int e = 3 * triangle; e < 3 * triangle + 3; e++)
+      {
+         if (isBorderEdge(e))
+            numberOfBorderEdges++;
+         else
+            nonBorderEdge = e;
+
+         if (vertexBorderCount[triangulation.getTriangleVertex(e)] > 0)
+            numberOfBorderVertices++;
+      }
+
+      if (numberOfBorderVertices == 2)
+         return isEdgeTooLong;
+
+      if (numberOfBorderEdges == 2)
+      {
+         if (!parameters.doRemoveAllTrianglesWithTwoBorderEdges() && !isEdgeTooLong)
+            return false;
+
+         // The vertex opposite to the only inner edge is an intersection vertex if it has other border edges than the two of this triangle.
+         int oppositeVertex = triangulation.getTriangleVertex(HalfEdgeDelaunayTriangulation.previousHalfEdge(nonBorderEdge));
+         boolean isIntersectionTriangle = vertexBorderCount[oppositeVertex] > 2;
+         return !isIntersectionTriangle || parameters.isSplittingConcaveHullAllowed();
+      }
+
+      // Removing the triangle splits the hull.
+      return parameters.isSplittingConcaveHullAllowed();
+   }
+
+   private void removeTriangle(int triangle)
+   {
+      for (int e = 3 * triangle; e < 3 * triangle + 3; e++)
+      {
+         int origin = triangulation.getTriangleVertex(e);
+         int destination = triangulation.getTriangleVertex(HalfEdgeDelaunayTriangulation.nextHalfEdge(e));
+         // The edge either disappears from the border, or its twin becomes a border edge.
+         int delta = isBorderEdge(e) ? -1 : 1;
+         vertexBorderCount[origin] += delta;
+         vertexBorderCount[destination] += delta;
+      }
+
+      isTriangleRemoved[triangle] = true;
+   }
+
+   private boolean isBorderEdge(int halfEdge)
+   {
+      if (isTriangleRemoved[halfEdge / 3])
+         return false;
+
+      int twin = triangulation.getTwin(halfEdge);
+      return twin == -1 || isTriangleRemoved[twin / 3];
+   }
+
+   /**
+    * Walks along the border edges of the remaining triangles. At an intersection vertex, the walk
+    * turns around the vertex through the remaining triangles such that each hull is simple.
+    */
+   private ConcaveHullCollection extractConcaveHulls()
+   {
+      ConcaveHullCollection concaveHullCollection = new ConcaveHullCollection();
+      int numberOfHalfEdges = triangulation.getNumberOfHalfEdges();
+
+      for (int e = 0; e < numberOfHalfEdges; e++)
+         isVisited[e] = false;
+
+      for (int startEdge = 0; startEdge < numberOfHalfEdges; startEdge++)
+      {
+         if (isVisited[startEdge] || !isBorderEdge(startEdge))
+            continue;
+
+         ConcaveHull concaveHull = new ConcaveHull();
+         int edge = startEdge;
+
+         do
+         {
+            int vertex = triangulation.getTriangleVertex(edge);
+            concaveHull.addVertex(triangulation.getX(vertex), triangulation.getY(vertex));
+            isVisited[edge] = true;
+
+            edge = nextBorderEdge(edge);
+
+            if (edge == -1 || concaveHull.getNumberOfVertices() > numberOfHalfEdges)
+               return null; // Malformed triangulation
+         }
+         while (edge != startEdge);
+
+         if (concaveHull.getNumberOfVertices() >= 3)
+         {
+            concaveHull.ensureClockwiseOrdering();
+            concaveHullCollection.add(concaveHull);
+         }
+      }
+
+      return concaveHullCollection;
+   }
+
+   private int nextBorderEdge(int borderEdge)
+   {
+      int edge = HalfEdgeDelaunayTriangulation.nextHalfEdge(borderEdge);
+      int numberOfSteps = 0;
+
+      while (!isBorderEdge(edge))
+      {
+         int twin = triangulation.getTwin(edge);
+         if (twin == -1 || numberOfSteps++ > triangulation.getNumberOfHalfEdges())
+            return -1;
+         edge = HalfEdgeDelaunayTriangulation.nextHalfEdge(twin);
+      }
+
+      return edge;
+   }
+
+   private void pushToHeap(int edge)
+   {
+      isInHeap[edge] = true;
+      int index = heapSize++;
+
+      // Max-heap on the edge length, the longest edges are eroded first.
+      while (index > 0)
+      {
+         int parentIndex = (index - 1) >> 1;
+         int parent = heap[parentIndex];
+         if (edgeLengths[parent] >= edgeLengths[edge])
+            break;
+         heap[index] = parent;
+         index = parentIndex;
+      }
+
+      heap[index] = edge;
+   }
+
+   private int popFromHeap()
+   {
+      int top = heap[0];
+      isInHeap[top] = false;
+      int last = heap[--heapSize];
+      int index = 0;
+
+      while (true)
+      {
+         int child = 2 * index + 1;
+         if (child >= heapSize)
+            break;
+         if (child + 1 < heapSize && edgeLengths[heap[child + 1]] > edgeLengths[heap[child]])
+            child++;
+         if (edgeLengths[heap[child]] <= edgeLengths[last])
+            break;
+         heap[index] = heap[child];
+         index = child;
+      }
+
+      if (heapSize > 0)
+         heap[index] = last;
+      return top;
+   }
+}
@@ -0,0 +1,594 @@
+package us.ihmc.robotEnvironmentAwareness.geometry;
+
+/**
+ * Delaunay triangulation of a 2D point cloud stored entirely in primitive arrays, based on the
+ * sweep-hull algorithm used by the <a href="https://github.com/mapbox/delaunator">Delaunator</a>
+ * library.
+ * <p>
+ * The triangulation is described with half-edges: the half-edge {@code e} belongs to the triangle
+ * {@code e / 3}, starts at the vertex {@link #getTriangleVertex(int) getTriangleVertex(e)}, and its
+ * twin in the adjacent triangle is {@link #getTwin(int) getTwin(e)}, which is {@code -1} for the
+ * edges of the convex hull.
+ * </p>
+ * <p>
+ * The arrays are only grown when triangulating a larger point cloud, such that an instance can be
+ * reused without allocating.
+ * </p>
+ */
+public class HalfEdgeDelaunayTriangulation
+{
+   private static final double EPSILON = Math.ulp(1.0);
+
+   private double[] coordinates = new double[0];
+   private int numberOfPoints = 0;
+
+   private int[] triangles = new int[0];
+   private int[] halfEdges = new int[0];
+   private int numberOfHalfEdges = 0;
+
+   private int[] hullPrevious = new int[0];
+   private int[] hullNext = new int[0];
+   private int[] hullTriangle = new int[0];
+   private int[] hullHash = new int[0];
+   private int hullStart;
+   private int hashSize;
+   private double centerX, centerY;
+
+   private int[] ids = new int[0];
+   private double[] distances = new double[0];
+   private int[] edgeStack = new int[512];
+
+   public HalfEdgeDelaunayTriangulation()
+   {
+   }
+
+   /**
+    * Computes the triangulation of the given points.
+    *
+    * @param coordinates    the points stored as consecutive {@code x, y} pairs. Not modified, the
+    *                       array is referenced until the next call.
+    * @param numberOfPoints the number of points to read from {@code coordinates}.
+    * @return {@code false} if the triangulation failed, which happens when all the points are
+    *         collinear.
+    */
+   public boolean triangulate(double[] coordinates, int numberOfPoints)
+   {
+      this.coordinates = coordinates;
+      this.numberOfPoints = numberOfPoints;
+      numberOfHalfEdges = 0;
+
+      if (numberOfPoints < 3)
+         return false;
+
+      int maxNumberOfHalfEdges = 3 * Math.max(2 * numberOfPoints - 5, 0);
+      if (triangles.length < maxNumberOfHalfEdges)
+      {
+         triangles = new int[maxNumberOfHalfEdges];
+         halfEdges = new int[maxNumberOfHalfEdges];
+      }
+
+      if (ids.length < numberOfPoints)
+      {
+         ids = new int[numberOfPoints];
+         distances = new double[numberOfPoints];
+         hullPrevious = new int[numberOfPoints];
+         hullNext = new int[numberOfPoints];
+         hullTriangle = new int[numberOfPoints];
+      }
+
+      hashSize = (int) Math.ceil(Math.sqrt(numberOfPoints));
+      if (hullHash.length < hashSize)
+         hullHash = new int[hashSize];
+
+      double minX = Double.POSITIVE_INFINITY;
+      double minY = Double.POSITIVE_INFINITY;
+      double maxX = Double.NEGATIVE_INFINITY;
+      double maxY = Double.NEGATIVE_INFINITY;
+
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         double x = x(i);
+         double y = y(i);
+         minX = Math.min(minX, x);
+         minY = Math.min(minY, y);
+         maxX = Math.max(maxX, x);
+         maxY = Math.max(maxY, y);
+         ids[i] = i;
+      }
+
+      double boundingBoxCenterX = 0.5 * (minX + maxX);
+      double boundingBoxCenterY = 0.5 * (minY + maxY);
+
+      // Seed triangle: the point closest to the center, its closest point, and the point forming the smallest circumcircle with them.
+      int i0 = -1;
+      double minDistance = Double.POSITIVE_INFINITY;
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         double distance = distanceSquared(boundingBoxCenterX, boundingBoxCenterY, x(i), y(i));
+         if (distance < minDistance)
+         {
+            i0 = i;
+            minDistance = distance;
+         }
+      }
+
+      int i1 = -1;
+      minDistance = Double.POSITIVE_INFINITY;
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         if (i == i0)
+            continue;
+         double distance = distanceSquared(x(i0), y(i0), x(i), y(i));
+         if (distance < minDistance && distance > 0.0)
+         {
+            i1 = i;
+            minDistance = distance;
+         }
+      }
+
+      if (i1 == -1)
+         return false;
+
+      int i2 = -1;
+      double minRadius = Double.POSITIVE_INFINITY;
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         if (i == i0 || i == i1)
+            continue;
+         double radius = circumradiusSquared(x(i0), y(i0), x(i1), y(i1), x(i), y(i));
+         if (radius < minRadius)
+         {
+            i2 = i;
+            minRadius = radius;
+         }
+      }
+
+      // All the points are collinear.
+      if (i2 == -1 || minRadius == Double.POSITIVE_INFINITY)
+         return false;
+
+      if (orient(x(i0), y(i0), x(i1), y(i1), x(i2), y(i2)))
+      {
+         int temp = i1;
+         i1 = i2;
+         i2 = temp;
+      }
+
+      computeCircumcenter(x(i0), y(i0), x(i1), y(i1), x(i2), y(i2));
+
+      for (int i = 0; i < numberOfPoints; i++)
+         distances[i] = distanceSquared(x(i), y(i), centerX, centerY);
+
+      // Sort the points by distance from the seed triangle circumcenter.
+      sortIndices(ids, distances, 0, numberOfPoints - 1);
+
+      hullStart = i0;
+
+      hullNext[i0] = hullPrevious[i2] = i1;
+      hullNext[i1] = hullPrevious[i0] = i2;
+      hullNext[i2] = hullPrevious[i1] = i0;
+
+      hullTriangle[i0] = 0;
+      hullTriangle[i1] = 1;
+      hullTriangle[i2] = 2;
+
+      for (int i = 0; i < hashSize; i++)
+         hullHash[i] = -1;
+      hullHash[hashKey(x(i0), y(i0))] = i0;
+      hullHash[hashKey(x(i1), y(i1))] = i1;
+      hullHash[hashKey(x(i2), y(i2))] = i2;
+
+      addTriangle(i0, i1, i2, -1, -1, -1);
+
+      double previousX = Double.NaN;
+      double previousY = Double.NaN;
+
+      for (int k = 0; k < numberOfPoints; k++)
+      {
+         int i = ids[k];
+         double x = x(i);
+         double y = y(i);
+
+         // Skip near-duplicate points
+         if (k > 0 && Math.abs(x - previousX) <= EPSILON && Math.abs(y - previousY) <= EPSILON)
+            continue;
+         previousX = x;
+         previousY = y;
+
+         if (i == i0 || i == i1 || i == i2)
+            continue;
+
+         // Find a visible edge on the convex hull using the edge hash.
+         int start = 0;
+         for (int j = 0, key = hashKey(x, y); j < hashSize; j++)
+         {
+            start = hullHash[(key + j) % hashSize];
+            if (start != -1 && start != hullNext[start])
+               break;
+         }
+
+         start = hullPrevious[start];
+         int e = start;
+         int q;
+
+         while (true)
+         {
+            q = hullNext[e];
+            if (orient(x, y, x(e), y(e), x(q), y(q)))
+               break;
+
+            e = q;
+            if (e == start)
+            {
+               e = -1;
+               break;
+            }
+         }
+
+         // Likely a near-duplicate point, skip it.
+         if (e == -1)
+            continue;
+
+         // Add the first triangle from the point, then flip the triangles until they satisfy the Delaunay condition.
+         int t = addTriangle(e, i, hullNext[e], -1, -1, hullTriangle[e]);
+         hullTriangle[i] = legalize(t + 2);
+         hullTriangle[e] = t;
+
+         // Walk forward through the hull, adding more triangles and flipping recursively.
+         int n = hullNext[e];
+         while (true)
+         {
+            q = hullNext[n];
+            if (!orient(x, y, x(n), y(n), x(q), y(q)))
+               break;
+
+            t = addTriangle(n, i, q, hullTriangle[i], -1, hullTriangle[n]);
+            hullTriangle[i] = legalize(t + 2);
+            hullNext[n] = n; // Mark as removed
+            n = q;
+         }
+
+         // Walk backward from the other side, adding more triangles and flipping.
+         if (e == start)
+         {
+            while (true)
+            {
+               q = hullPrevious[e];
+               if (!orient(x, y, x(q), y(q), x(e), y(e)))
+                  break;
+
+               t = addTriangle(q, i, e, -1, hullTriangle[e], hullTriangle[q]);
+               legalize(t + 2);
+               hullTriangle[q] = t;
+               hullNext[e] = e; // Mark as removed
+               e = q;
+            }
+         }
+
+         hullStart = hullPrevious[i] = e;
+         hullNext[e] = hullPrevious[n] = i;
+         hullNext[i] = n;
+
+         hullHash[hashKey(x, y)] = i;
+         hullHash[hashKey(x(e), y(e))] = e;
+      }
+
+      return true;
+   }
+
+   /**
+    * Flips the triangles on both sides of the given half-edge if they do not satisfy the Delaunay
+    * condition, and then recursively the triangles around the flipped edges.
+    */
+   private int legalize(int a)
+   {
+      int stackSize = 0;
+      int ar;
+
+      while (true)
+      {
+         int b = halfEdges[a];
+
+         int a0 = a - a % 3;
+         ar = a0 + (a + 2) % 3;
+
+         if (b == -1)
+         {
+            if (stackSize == 0)
+               break;
+            a = edgeStack[--stackSize];
+            continue;
+         }
+
+         int b0 = b - b % 3;
+         int al = a0 + (a + 1) % 3;
+         int bl = b0 + (b + 2) % 3;
+
+         int p0 = triangles[ar];
+         int pr = triangles[a];
+         int pl = triangles[al];
+         int p1 = triangles[bl];
+
+         if (isInCircle(x(p0), y(p0), x(pr), y(pr), x(pl), y(pl), x(p1), y(p1)))
+         {
+            triangles[a] = p1;
+            triangles[b] = p0;
+
+            int hbl = halfEdges[bl];
+
+            // The edge swapped on the other side of the hull (rare), fix the half-edge reference.
+            if (hbl == -1)
+            {
+               int e = hullStart;
+               do
+               {
+                  if (hullTriangle[e] == bl)
+                  {
+                     hullTriangle[e] = a;
+                     break;
+                  }
+                  e = hullPrevious[e];
+               }
+               while (e != hullStart);
+            }
+
+            link(a, hbl);
+            link(b, halfEdges[ar]);
+            link(ar, bl);
+
+            int br = b0 + (b + 1) % 3;
+
+            if (stackSize == edgeStack.length)
+            {
+               int[] newEdgeStack = new int[2 * edgeStack.length];
+               System.arraycopy(edgeStack, 0, newEdgeStack, 0, edgeStack.length);
+               edgeStack = newEdgeStack;
+            }
+            edgeStack[stackSize++] = br;
+         }
+         else
+         {
+            if (stackSize == 0)
+               break;
+            a = edgeStack[--stackSize];
+         }
+      }
+
+      return ar;
+   }
+
+   private void link(int a, int b)
+   {
+      halfEdges[a] = b;
+      if (b != -1)
+         halfEdges[b] = a;
+   }
+
+   private int addTriangle(int i0, int i1, int i2, int a, int b, int c)
+   {
+      int t = numberOfHalfEdges;
+      triangles[t] = i0;
+      triangles[t + 1] = i1;
+      triangles[t + 2] = i2;
+      link(t, a);
+      link(t + 1, b);
+      link(t + 2, c);
+      numberOfHalfEdges += 3;
+      return t;
+   }
+
+   private int hashKey(double x, double y)
+   {
+      return (int) Math.floor(pseudoAngle(x - centerX, y - centerY) * hashSize) % hashSize;
+   }
+
+   private void computeCircumcenter(double ax, double ay, double bx, double by, double cx, double cy)
+   {
+      double dx = bx - ax;
+      double dy = by - ay;
+      double ex = cx - ax;
+      double ey = cy - ay;
+      double bl = dx * dx + dy * dy;
+      double cl = ex * ex + ey * ey;
+      double d = 0.5 / (dx * ey - dy * ex);
+      centerX = ax + (ey * bl - dy * cl) * d;
+      centerY = ay + (dx * cl - ex * bl) * d;
+   }
+
+   private double x(int pointIndex)
+   {
+      return coordinates[2 * pointIndex];
+   }
+
+   private double y(int pointIndex)
+   {
+      return coordinates[2 * pointIndex + 1];
+   }
+
+   public int getNumberOfPoints()
+   {
+      return numberOfPoints;
+   }
+
+   public int getNumberOfTriangles()
+   {
+      return numberOfHalfEdges / 3;
+   }
+
+   public int getNumberOfHalfEdges()
+   {
+      return numberOfHalfEdges;
+   }
+
+   /** @return the index of the point the given half-edge starts from. */
+   public int getTriangleVertex(int halfEdge)
+   {
+      return triangles[halfEdge];
+   }
+
+   /** @return the twin of the given half-edge, or {@code -1} if it is on the convex hull. */
+   public int getTwin(int halfEdge)
+   {
+      return halfEdges[halfEdge];
+   }
+
+   public double getX(int pointIndex)
+   {
+      return x(pointIndex);
+   }
+
+   public double getY(int pointIndex)
+   {
+      return y(pointIndex);
+   }
+
+   /** @return the next half-edge in the same triangle, which starts where the given one ends. */
+   public static int nextHalfEdge(int halfEdge)
+   {
+      return halfEdge % 3 == 2 ? halfEdge - 2 : halfEdge + 1;
+   }
+
+   /** @return the previous half-edge in the same triangle, which ends where the given one starts. */
+   public static int previousHalfEdge(int halfEdge)
+   {
+      return halfEdge % 3 == 0 ? halfEdge + 2 : halfEdge - 1;
+   }
+
+   /**
+    * Sorts {@code indices[left, right]} by increasing {@code keys[index]}.
+    */
+   static void sortIndices(int[] indices, double[] keys, int left, int right)
+   {
+      while (right - left > 20)
+      {
+         int median = (left + right) >>> 1;
+         int i = left + 1;
+         int j = right;
+         swap(indices, median, i);
+         if (keys[indices[left]] > keys[indices[right]])
+            swap(indices, left, right);
+         if (keys[indices[i]] > keys[indices[right]])
+            swap(indices, i, right);
+         if (keys[indices[left]] > keys[indices[i]])
+            swap(indices, left, i);
+
+         int pivot = indices[i];
+         double pivotKey = keys[pivot];
+
+         while (true)
+         {
+            do
+               i++;
+            while (keys[indices[i]] < pivotKey);
+            do
+               j--;
+            while (keys[indices[j]] > pivotKey);
+            if (j < i)
+               break;
+            swap(indices, i, j);
+         }
+
+         indices[left + 1] = indices[j];
+         indices[j] = pivot;
+
+         // Recurse on the smaller side to bound the stack depth.
+         if (right - i + 1 >= j - left)
+         {
+            sortIndices(indices, keys, left, j - 1);
+            left = i;
+         }
+         else
+         {
+            sortIndices(indices, keys, i, right);
+            right = j - 1;
+         }
+      }
+
+      for (int i = left + 1; i <= right; i++)
+      {
+         int index = indices[i];
+         double key = keys[index];
+         int j = i - 1;
+         while (j >= left && keys[indices[j]] > key)
+         {
+            indices[j + 1] = indices[j];
+            j--;
+         }
+         indices[j + 1] = index;
+      }
+   }
+
+   private static void swap(int[] array, int i, int j)
+   {
+      int temp = array[i];
+      array[i] = array[j];
+      array[j] = temp;
+   }
+
+   /** Monotonically increases with the angle of the given vector, without trigonometry. */
+   private static double pseudoAngle(double dx, double dy)
+   {
+      double p = dx / (Math.abs(dx) + Math.abs(dy));
+      return (dy > 0.0 ? 3.0 - p : 1.0 + p) / 4.0;
+   }
+
+   private static double distanceSquared(double ax, double ay, double bx, double by)
+   {
+      double dx = ax - bx;
+      double dy = ay - by;
+      return dx * dx + dy * dy;
+   }
+
+   private static double circumradiusSquared(double ax, double ay, double bx, double by, double cx, double cy)
+   {
+      double dx = bx - ax;
+      double dy = by - ay;
+      double ex = cx - ax;
+      double ey = cy - ay;
+      double bl = dx * dx + dy * dy;
+      double cl = ex * ex + ey * ey;
+      double d = 0.5 / (dx * ey - dy * ex);
+      double x = (ey * bl - dy * cl) * d;
+      double y = (dx * cl - ex * bl) * d;
+      double radius = x * x + y * y;
+      return Double.isNaN(radius) ? Double.POSITIVE_INFINITY : radius;
+   }
+
+   /**
+    * Returns the orientation sign only when it is larger than the error bound from J. Shewchuk's
+    * robust predicates, {@code 0} otherwise.
+    */
+   private static double orientIfSure(double px, double py, double rx, double ry, double qx, double qy)
+   {
+      double l = (ry - py) * (qx - px);
+      double r = (rx - px) * (qy - py);
+      return Math.abs(l - r) >= 3.3306690738754716e-16 * Math.abs(l + r) ? l - r : 0.0;
+   }
+
+   /** Orientation test that is stable for a given triangle regardless of the order of its vertices. */
+   private static boolean orient(double rx, double ry, double qx, double qy, double px, double py)
+   {
+      double sign = orientIfSure(px, py, rx, ry, qx, qy);
+      if (sign == 0.0)
+         sign = orientIfSure(rx, ry, qx, qy, px, py);
+      if (sign == 0.0)
+         sign = orientIfSure(qx, qy, px, py, rx, ry);
+      return sign < 0.0;
+   }
+
+   private static boolean isInCircle(double ax, double ay, double bx, double by, double cx, double cy, double px, double py)
+   {
+      double dx = ax - px;
+      double dy = ay - py;
+      double ex = bx - px;
+      double ey = by - py;
+      double fx = cx - px;
+      double fy = cy - py;
+
+      double ap = dx * dx + dy * dy;
+      double bp = ex * ex + ey * ey;
+      double cp = fx * fx + fy * fy;
+
+      return dx * (ey * cp - bp * fy) - dy * (ex * cp - bp * fx) + ap * (ex * fy - ey * fx) < 0.0;
+   }
+}
@@ -44,6 +44,72 @@ public abstract class SimpleConcaveHullFactory
    private static final boolean VERBOSE = false;
    private static final boolean REPORT_TIME = false;
 
+   private static final ThreadLocal<HalfEdgeConcaveHullFactory> HALF_EDGE_CONCAVE_HULL_FACTORY = ThreadLocal.withInitial(HalfEdgeConcaveHullFactory::new);
+
+   /**
+    * Computes the concave hulls of several point clouds concurrently, typically one per region of a
+    * segmentation result.
+    * <p>
+    * The point clouds without line constraints are processed with a
+    * {@link HalfEdgeConcaveHullFactory}, which only relies on primitive arrays. The JTS based
+    * triangulation is used for the point clouds with line constraints and as a fallback when the
+    * former fails.
+    * </p>
+    *
+    * @param pointClouds2d   the point clouds from which the concave hulls are computed.
+    * @param lineConstraints the line constraints for each point cloud, can be {@code null} or contain
+    *                        {@code null} elements when there is no constraint.
+    * @param parameters      the parameters used for all the point clouds.
+    * @return the concave hulls for each point cloud, in the same order. An element is empty if the
+    *         JTS triangulation failed to locate a point, and {@code null} if the computation failed
+    *         for any other reason.
+    */
+   public static List<ConcaveHullCollection> createConcaveHullCollections(List<? extends List<? extends Point2DReadOnly>> pointClouds2d,
+                                                                          List<? extends List<? extends LineSegment2DReadOnly>> lineConstraints,
+                                                                          ConcaveHullFactoryParameters parameters)
+   {
+      ConcaveHullCollection[] concaveHullCollections = new ConcaveHullCollection[pointClouds2d.size()];
+
+      IntStream.range(0, pointClouds2d.size()).parallel().forEach(i ->
+      {
+         List<? extends LineSegment2DReadOnly> pointCloudLineConstraints = lineConstraints == null ? null : lineConstraints.get(i);
+
+         try
+         {
+            concaveHullCollections[i] = createConcaveHullCollectionWithFallback(pointClouds2d.get(i), pointCloudLineConstraints, parameters);
+         }
+         catch (LocateFailureException e)
+         {
+            // Same as computing the hulls one region at a time: the region is dropped without being reported as a failure.
+            LogTools.warn("Locate failed to converge.");
+            concaveHullCollections[i] = new ConcaveHullCollection();
+         }
+         catch (RuntimeException e)
+         {
+            LogTools.error("Failed to compute concave hull: " + e.getMessage());
+         }
+      });
+
+      return Arrays.asList(concaveHullCollections);
+   }
+
+   private static ConcaveHullCollection createConcaveHullCollectionWithFallback(List<? extends Point2DReadOnly> pointCloud2d,
+                                                                                List<? extends LineSegment2DReadOnly> lineConstraints,
+                                                                                ConcaveHullFactoryParameters parameters)
+   {
+      if (lineConstraints == null || lineConstraints.isEmpty())
+      {
+         ConcaveHullCollection concaveHullCollection = HALF_EDGE_CONCAVE_HULL_FACTORY.get().createConcaveHullCollection(pointCloud2d, parameters);
+
+         if (concaveHullCollection != null)
+            return concaveHullCollection;
+
+         lineConstraints = Collections.emptyList();
+      }
+
+      return createConcaveHullCollection(pointCloud2d, lineConstraints, parameters);
+   }
+
    public static ConcaveHullCollection createConcaveHullCollection(List<? extends Point2DReadOnly> pointCloud2d, ConcaveHullFactoryParameters parameters)
    {
       return createConcaveHullCollection(pointCloud2d, Collections.emptyList(), parameters);
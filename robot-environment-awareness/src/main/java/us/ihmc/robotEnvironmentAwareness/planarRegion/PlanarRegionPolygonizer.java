@@ -3,8 +3,8 @@ package us.ihmc.robotEnvironmentAwareness.planarRegion;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
-import com.vividsolutions.jts.triangulate.quadedge.LocateFailureException;
 import us.ihmc.euclid.geometry.ConvexPolygon2D;
 import us.ihmc.euclid.geometry.LineSegment2D;
 import us.ihmc.euclid.transform.RigidBodyTransform;
@@ -40,23 +40,24 @@ public abstract class PlanarRegionPolygonizer
                                                          ConcaveHullFactoryParameters concaveHullFactoryParameters, PolygonizerParameters polygonizerParameters,
                                                          PlanarRegionSegmentationDataExporter dataExporter)
    {
-      List<List<PlanarRegion>> regions = rawData.parallelStream().filter(data -> data.size() >= polygonizerParameters.getMinNumberOfNodes())
-                                                .map(data ->
-                                                     {
-                                                        List<PlanarRegion> planarRegion;
-                                                        try
-                                                        {
-                                                           planarRegion = createPlanarRegion(data, concaveHullFactoryParameters,
-                                                                                             polygonizerParameters, dataExporter);
-                                                        }
-                                                        catch (LocateFailureException e)
-                                                        {
-                                                           LogTools.warn("Locate failed to converge.");
-                                                           planarRegion = new ArrayList<>();
-                                                        }
-                                                        return planarRegion;
-                                                     })
-                                                .filter(region -> region != null).collect(Collectors.toList());
+      List<PlanarRegionSegmentationRawData> filteredRawData = rawData.stream().filter(data -> data.size() >= polygonizerParameters.getMinNumberOfNodes())
+                                                                     .collect(Collectors.toList());
+
+      // First compute the set of concave hulls for all the regions at once
+      List<List<Point2D>> pointCloudsInPlane = filteredRawData.parallelStream().map(PlanarRegionSegmentationRawData::getPointCloudInPlane)
+                                                              .collect(Collectors.toList());
+      List<List<LineSegment2D>> intersections = filteredRawData.stream().map(PlanarRegionSegmentationRawData::getIntersectionsInPlane)
+                                                               .collect(Collectors.toList());
+      List<ConcaveHullCollection> concaveHullCollections = SimpleConcaveHullFactory.createConcaveHullCollections(pointCloudsInPlane,
+                                                                                                                 intersections,
+                                                                                                                 concaveHullFactoryParameters);
+
+      List<List<PlanarRegion>> regions = IntStream.range(0, filteredRawData.size()).parallel()
+                                                  .mapToObj(i -> createPlanarRegion(filteredRawData.get(i),
+                                                                                    concaveHullCollections.get(i),
+                                                                                    polygonizerParameters,
+                                                                                    dataExporter))
+                                                  .filter(region -> region != null).collect(Collectors.toList());
 
       List<PlanarRegion> flattenedRegions = new ArrayList<>();
       for (List<PlanarRegion> regionsSublist : regions)
@@ -66,18 +67,21 @@ public abstract class PlanarRegionPolygonizer
       return flattenedRegions;
    }
 
-   private static List<PlanarRegion> createPlanarRegion(PlanarRegionSegmentationRawData rawData, ConcaveHullFactoryParameters concaveHullFactoryParameters,
+   private static List<PlanarRegion> createPlanarRegion(PlanarRegionSegmentationRawData rawData, ConcaveHullCollection concaveHullCollection,
                                                         PolygonizerParameters polygonizerParameters, PlanarRegionSegmentationDataExporter dataExporter)
    {
+      if (concaveHullCollection == null)
+      { // The concave hull computation threw, the exception has already been logged.
+         if (dataExporter != null)
+         {
+            LogTools.error("Failed to compute the concave hull, exporting segmentation data.");
+            dataExporter.exportSegmentationRawData(rawData);
+         }
+         return null;
+      }
+
       try
       {
-         // First compute the set of concave hulls for this region
-         List<Point2D> pointCloudInPlane = rawData.getPointCloudInPlane();
-         List<LineSegment2D> intersections = rawData.getIntersectionsInPlane();
-         ConcaveHullCollection concaveHullCollection = SimpleConcaveHullFactory.createConcaveHullCollection(pointCloudInPlane,
-                                                                                                            intersections,
-                                                                                                            concaveHullFactoryParameters);
-
          // Apply some simple filtering to reduce the number of vertices and hopefully the number of convex polygons.
          double shallowAngleThreshold = polygonizerParameters.getShallowAngleThreshold();
          double peakAngleThreshold = polygonizerParameters.getPeakAngleThreshold();
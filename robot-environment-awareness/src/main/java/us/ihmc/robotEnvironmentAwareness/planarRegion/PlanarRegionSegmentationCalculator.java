@@ -2,6 +2,7 @@ package us.ihmc.robotEnvironmentAwareness.planarRegion;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashSet;
@@ -9,7 +10,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang3.mutable.MutableBoolean;
 
@@ -29,7 +34,11 @@ public class PlanarRegionSegmentationCalculator
 {
    private final Random random = new Random(234324L);
 
-   private final Set<NormalOcTreeNode> allRegionNodes = new HashSet<>();
+   /**
+    * Maps every node that belongs to a region to its owner. Used to claim nodes when growing regions in parallel. It is kept up-to-date as nodes are
+    * added to or removed from the regions, such that an incremental update does not need to go through all the nodes.
+    */
+   private final Map<NormalOcTreeNode, PlanarRegionSegmentationNodeData> nodeToRegionMap = new ConcurrentHashMap<>();
    private List<PlanarRegionSegmentationNodeData> regionsNodeData = new ArrayList<>();
    private final List<NormalOcTreeNode> nodesWithoutRegion = new ArrayList<>();
 
@@ -39,30 +48,122 @@ public class PlanarRegionSegmentationCalculator
 
    private Vector3D estimatedSensorPosition = new Vector3D();
 
+   /**
+    * Performs a full segmentation: every region is grown from all its nodes and every leaf in the
+    * bounding box that does not belong to a region is considered for seeding a new region.
+    */
    public void compute(NormalOcTreeNode root)
    {
-      allRegionNodes.clear();
+      prepareExistingRegions();
+
+      regionsNodeData.parallelStream().forEach(region -> growPlanarRegion(root, region, boundingBox, parameters));
+      discardRegions(region -> region.getNumberOfNodes() <= parameters.getMinRegionSize());
+
+      nodesWithoutRegion.clear();
+      new OcTreeIterable<>(root, leafInBoundingBoxWithNormalSetRule(boundingBox)).forEach(node ->
+      {
+         if (!nodeToRegionMap.containsKey(node))
+            nodesWithoutRegion.add(node);
+      });
+
+      finalizeSegmentation(root);
+   }
+
+   /**
+    * Performs an incremental segmentation that only considers the leaves that have changed since the
+    * last update.
+    * <p>
+    * Existing regions are only grown from their nodes that are within the search radius of a changed
+    * leaf, and only the changed leaves that do not belong to a region are considered for seeding new
+    * regions. The cost of this method scales with the amount of new data instead of the size of the
+    * map. Leaves entering the bounding box without being updated are not considered, so
+    * {@link #compute(NormalOcTreeNode)} should still be called once in a while.
+    * </p>
+    *
+    * @param root         the root of the octree to segment.
+    * @param updatedNodes the leaves that have been updated since the last call.
+    */
+   public void compute(NormalOcTreeNode root, Collection<NormalOcTreeNode> updatedNodes)
+   {
+      prepareExistingRegions();
+
+      double searchRadius = parameters.getSearchRadius();
+      List<NormalOcTreeNode> validUpdatedNodes = updatedNodes.parallelStream().filter(node -> node.isNormalSet() && isNodeInBoundingBox(node, boundingBox))
+                                                             .collect(Collectors.toList());
 
+      // Find for each region the nodes that neighbor the updated leaves, these are the only nodes the region can grow from.
+      Map<PlanarRegionSegmentationNodeData, Set<NormalOcTreeNode>> regionToSeedsMap = new ConcurrentHashMap<>();
+      validUpdatedNodes.parallelStream().forEach(updatedNode ->
+      {
+         addGrowthSeed(updatedNode, regionToSeedsMap);
+         OcTreeNearestNeighborTools.findRadiusNeighbors(root, updatedNode, searchRadius, neighbor -> addGrowthSeed(neighbor, regionToSeedsMap));
+      });
+
+      regionToSeedsMap.entrySet().parallelStream().forEach(entry -> growPlanarRegion(root, entry.getKey(), entry.getValue(), boundingBox, parameters));
+      discardRegions(region -> region.getNumberOfNodes() <= parameters.getMinRegionSize());
+
+      nodesWithoutRegion.clear();
+      validUpdatedNodes.stream().filter(node -> !nodeToRegionMap.containsKey(node)).forEach(nodesWithoutRegion::add);
+
+      finalizeSegmentation(root);
+   }
+
+   private void prepareExistingRegions()
+   {
       regionsNodeData.parallelStream().forEach(region -> removeBadNodesFromRegion(boundingBox, parameters, region));
       regionsNodeData = regionsNodeData.parallelStream().filter(region -> !region.isEmpty()).collect(Collectors.toList());
-      regionsNodeData.forEach(region -> region.nodeStream().forEach(allRegionNodes::add));
-      regionsNodeData.forEach(region -> growPlanarRegion(root, region, boundingBox, parameters));
-      regionsNodeData = regionsNodeData.stream().filter(region -> region.getNumberOfNodes() > parameters.getMinRegionSize()).collect(Collectors.toList());
+   }
 
-      Set<NormalOcTreeNode> nodeSet = new HashSet<>();
-      nodeSet.clear();
-      new OcTreeIterable<>(root, leafInBoundingBoxWithNormalSetRule(boundingBox)).forEach(nodeSet::add);
-      nodeSet.removeAll(allRegionNodes);
+   /**
+    * Removes the regions matching the given filter and releases their nodes.
+    */
+   private void discardRegions(Predicate<PlanarRegionSegmentationNodeData> filter)
+   {
+      Map<Boolean, List<PlanarRegionSegmentationNodeData>> discardedAndKeptRegions = regionsNodeData.parallelStream()
+                                                                                                    .collect(Collectors.partitioningBy(filter));
+      discardedAndKeptRegions.get(true).parallelStream().forEach(this::releaseNodes);
+      regionsNodeData = discardedAndKeptRegions.get(false);
+   }
 
-      nodesWithoutRegion.clear();
-      nodesWithoutRegion.addAll(nodeSet);
+   private void releaseNodes(PlanarRegionSegmentationNodeData region)
+   {
+      releaseNodes(region, region.nodeStream());
+   }
 
+   private void releaseNodes(PlanarRegionSegmentationNodeData region, Stream<NormalOcTreeNode> nodes)
+   {
+      nodes.forEach(node -> nodeToRegionMap.remove(node, region));
+   }
+
+   /**
+    * Called when {@code mergedRegion} has been merged into {@code region}, the nodes that were not taken by {@code region} are released.
+    */
+   private void transferNodes(PlanarRegionSegmentationNodeData region, PlanarRegionSegmentationNodeData mergedRegion)
+   {
+      mergedRegion.nodeStream().forEach(node ->
+      {
+         if (region.contains(node))
+            nodeToRegionMap.put(node, region);
+         else
+            nodeToRegionMap.remove(node, mergedRegion);
+      });
+   }
+
+   private void addGrowthSeed(NormalOcTreeNode node, Map<PlanarRegionSegmentationNodeData, Set<NormalOcTreeNode>> regionToSeedsMap)
+   {
+      PlanarRegionSegmentationNodeData owner = nodeToRegionMap.get(node);
+      if (owner != null)
+         regionToSeedsMap.computeIfAbsent(owner, region -> ConcurrentHashMap.newKeySet()).add(node);
+   }
+
+   private void finalizeSegmentation(NormalOcTreeNode root)
+   {
       regionsNodeData.addAll(searchNewPlanarRegions(root, boundingBox, parameters, random));
       regionsNodeData.parallelStream().forEach(PlanarRegionSegmentationNodeData::recomputeNormalAndOrigin);
       regionsNodeData.parallelStream().forEach(PlanarRegionSegmentationCalculator::flipNormalOfOutliers);
-      regionsNodeData = regionsNodeData.parallelStream().filter(region -> !isRegionSparse(region)).collect(Collectors.toList());
+      discardRegions(this::isRegionSparse);
 
-      regionsNodeData = mergePlanarRegionsIfPossible(root, regionsNodeData, parameters);
+      regionsNodeData = mergePlanarRegionsIfPossible(root, regionsNodeData, parameters, this::transferNodes);
    }
 
    public boolean isRegionSparse(PlanarRegionSegmentationNodeData region)
@@ -92,6 +193,7 @@ public class PlanarRegionSegmentationCalculator
    public void clear()
    {
       regionsNodeData.clear();
+      nodeToRegionMap.clear();
    }
 
    private IteratorSelectionRule<NormalOcTreeNode> leafInBoundingBoxWithNormalSetRule(OcTreeBoundingBoxInterface boundingBox)
@@ -121,6 +223,18 @@ public class PlanarRegionSegmentationCalculator
 
    public static List<PlanarRegionSegmentationNodeData> mergePlanarRegionsIfPossible(NormalOcTreeNode root, List<PlanarRegionSegmentationNodeData> inputRegions,
                                                                                      PlanarRegionSegmentationParameters parameters)
+   {
+      return mergePlanarRegionsIfPossible(root, inputRegions, parameters, (region, mergedRegion) ->
+      {
+      });
+   }
+
+   /**
+    * @param mergeListener called with each region and the other region that has just been merged into it.
+    */
+   public static List<PlanarRegionSegmentationNodeData> mergePlanarRegionsIfPossible(NormalOcTreeNode root, List<PlanarRegionSegmentationNodeData> inputRegions,
+                                                                                     PlanarRegionSegmentationParameters parameters,
+                                                                                     BiConsumer<PlanarRegionSegmentationNodeData, PlanarRegionSegmentationNodeData> mergeListener)
    {
       List<PlanarRegionSegmentationNodeData> mergedRegions = new ArrayList<>();
       while (!inputRegions.isEmpty())
@@ -134,7 +248,11 @@ public class PlanarRegionSegmentationCalculator
                                                                                                                                                                        parameters)));
 
          // Merge all the mergeable regions onto the candidate.
-         mergeableAndNonMergeableGroups.getOrDefault(true, Collections.emptyList()).forEach(candidateForMergeOtherRegions::addNodesFromOtherRegion);
+         mergeableAndNonMergeableGroups.getOrDefault(true, Collections.emptyList()).forEach(other ->
+         {
+            candidateForMergeOtherRegions.addNodesFromOtherRegion(other);
+            mergeListener.accept(candidateForMergeOtherRegions, other);
+         });
          // All non mergeable regions, used for the next iteration.
          inputRegions = mergeableAndNonMergeableGroups.getOrDefault(false, Collections.emptyList());
          // We're done with candidate, put it in the output list.
@@ -212,6 +330,7 @@ public class PlanarRegionSegmentationCalculator
                                                                         PlanarRegionSegmentationParameters parameters, Random random)
    {
       List<PlanarRegionSegmentationNodeData> newRegions = new ArrayList<>();
+      List<PlanarRegionSegmentationNodeData> regionsTooSmall = new ArrayList<>();
 
       float minNormalQuality = (float) parameters.getMinNormalQuality();
 
@@ -227,8 +346,13 @@ public class PlanarRegionSegmentationCalculator
 
          if (region.getNumberOfNodes() > parameters.getMinRegionSize())
             newRegions.add(region);
+         else
+            regionsTooSmall.add(region);
       }
 
+      // The nodes of the regions too small remain claimed during the search, they are only released for the next update.
+      regionsTooSmall.forEach(this::releaseNodes);
+
       return newRegions;
    }
 
@@ -237,6 +361,8 @@ public class PlanarRegionSegmentationCalculator
                                                                            PlanarRegionSegmentationParameters parameters)
    {
       PlanarRegionSegmentationNodeData newRegion = new PlanarRegionSegmentationNodeData(regionId);
+      if (nodeToRegionMap.putIfAbsent(seedNode, newRegion) != null)
+         return newRegion;
       newRegion.addNode(seedNode);
       growPlanarRegion(root, newRegion, boundingBox, parameters);
       return newRegion;
@@ -250,6 +376,25 @@ public class PlanarRegionSegmentationCalculator
     */
    public void growPlanarRegion(NormalOcTreeNode root, PlanarRegionSegmentationNodeData ocTreeNodePlanarRegion, OcTreeBoundingBoxInterface boundingBox,
                                 PlanarRegionSegmentationParameters parameters)
+   {
+      growPlanarRegion(root, ocTreeNodePlanarRegion, ocTreeNodePlanarRegion.nodeStream(), boundingBox, parameters);
+   }
+
+   /**
+    * Grows the region by exploring the neighborhood of the given seeds only.
+    * <p>
+    * The nodes are claimed through a concurrent map before being added to the region, such that
+    * independent regions can be grown in parallel without ever sharing a node.
+    * </p>
+    */
+   public void growPlanarRegion(NormalOcTreeNode root, PlanarRegionSegmentationNodeData ocTreeNodePlanarRegion, Collection<NormalOcTreeNode> seeds,
+                                OcTreeBoundingBoxInterface boundingBox, PlanarRegionSegmentationParameters parameters)
+   {
+      growPlanarRegion(root, ocTreeNodePlanarRegion, seeds.stream(), boundingBox, parameters);
+   }
+
+   private void growPlanarRegion(NormalOcTreeNode root, PlanarRegionSegmentationNodeData ocTreeNodePlanarRegion, Stream<NormalOcTreeNode> seeds,
+                                 OcTreeBoundingBoxInterface boundingBox, PlanarRegionSegmentationParameters parameters)
    {
       double searchRadius = parameters.getSearchRadius();
 
@@ -264,25 +409,23 @@ public class PlanarRegionSegmentationCalculator
          double lowerBound = Math.cos(surfaceNormalLowerBound) * Math.signum(surfaceNormalLowerBound);
          double upperBound = Math.cos(surfaceNormalUpperBound) * Math.signum(surfaceNormalUpperBound);
 
-         ocTreeNodePlanarRegion.nodeStream() // TODO This should be in parallel, but the previous lambda makes threads share data which is no good.
-                               .filter(node -> isNodeInBoundingBox(node, boundingBox)
-                                     && isNodeSurfaceNormalInBoundary(node, estimatedSensorPosition, lowerBound, upperBound))
-                               .forEach(regionNode -> OcTreeNearestNeighborTools.findRadiusNeighbors(root, regionNode, searchRadius, extendSearchRule));
+         seeds.filter(node -> isNodeInBoundingBox(node, boundingBox) && isNodeSurfaceNormalInBoundary(node, estimatedSensorPosition, lowerBound, upperBound))
+              .forEach(regionNode -> OcTreeNearestNeighborTools.findRadiusNeighbors(root, regionNode, searchRadius, extendSearchRule));
       }
       else
       {
-         ocTreeNodePlanarRegion.nodeStream() // TODO This should be in parallel, but the previous lambda makes threads share data which is no good.
-                               .filter(node -> isNodeInBoundingBox(node, boundingBox))
-                               .forEach(regionNode -> OcTreeNearestNeighborTools.findRadiusNeighbors(root, regionNode, searchRadius, extendSearchRule));
+         seeds.filter(node -> isNodeInBoundingBox(node, boundingBox))
+              .forEach(regionNode -> OcTreeNearestNeighborTools.findRadiusNeighbors(root, regionNode, searchRadius, extendSearchRule));
       }
       Deque<NormalOcTreeNode> nodesToExplore = new ArrayDeque<>(newSetToExplore);
 
       while (!nodesToExplore.isEmpty())
       {
          NormalOcTreeNode currentNode = nodesToExplore.poll();
+         if (nodeToRegionMap.putIfAbsent(currentNode, ocTreeNodePlanarRegion) != null) // Already claimed by this or another region.
+            continue;
          if (!ocTreeNodePlanarRegion.addNode(currentNode)) // TODO This updates the region normal based on the average of the nodes' normals, can very likely be improved.
             continue;
-         allRegionNodes.add(currentNode);
          newSetToExplore.clear();
          OcTreeNearestNeighborTools.findRadiusNeighbors(root, currentNode, searchRadius, extendSearchRule);
          nodesToExplore.addAll(newSetToExplore);
@@ -292,7 +435,7 @@ public class PlanarRegionSegmentationCalculator
    public void recordCandidatesForRegion(NormalOcTreeNode neighborNode, PlanarRegionSegmentationNodeData region, Set<NormalOcTreeNode> newSetToExplore,
                                          OcTreeBoundingBoxInterface boundingBox, PlanarRegionSegmentationParameters parameters)
    {
-      if (allRegionNodes.contains(neighborNode))
+      if (nodeToRegionMap.containsKey(neighborNode))
          return;
       if (!isNodeInBoundingBox(neighborNode, boundingBox))
          return;
@@ -305,21 +448,23 @@ public class PlanarRegionSegmentationCalculator
       newSetToExplore.add(neighborNode);
    }
 
-   private static void removeBadNodesFromRegion(OcTreeBoundingBoxInterface boundingBox, PlanarRegionSegmentationParameters parameters,
-                                                PlanarRegionSegmentationNodeData region)
+   private void removeBadNodesFromRegion(OcTreeBoundingBoxInterface boundingBox, PlanarRegionSegmentationParameters parameters,
+                                         PlanarRegionSegmentationNodeData region)
    {
       List<NormalOcTreeNode> nodesToRemove = region.nodeStream().collect(Collectors.groupingBy(node -> isBadNode(node, region, boundingBox, parameters)))
                                                    .getOrDefault(true, Collections.emptyList());
 
       region.removeNodesAndUpdate(nodesToRemove);
+      releaseNodes(region, nodesToRemove.stream());
    }
 
-   private static void removeDeadNodesFromRegion(PlanarRegionSegmentationNodeData region)
+   private void removeDeadNodesFromRegion(PlanarRegionSegmentationNodeData region)
    {
       List<NormalOcTreeNode> nodesToRemove = region.nodeStream().collect(Collectors.groupingBy(node -> isNodeDead(node))).getOrDefault(true,
                                                                                                                                        Collections.emptyList());
 
       region.removeNodesAndUpdate(nodesToRemove);
+      releaseNodes(region, nodesToRemove.stream());
    }
 
    private static boolean isNodeInBoundingBox(NormalOcTreeNode node, OcTreeBoundingBoxInterface boundingBox)
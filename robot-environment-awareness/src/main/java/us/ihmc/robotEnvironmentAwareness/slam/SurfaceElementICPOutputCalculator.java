@@ -0,0 +1,329 @@
+package us.ihmc.robotEnvironmentAwareness.slam;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import gnu.trove.list.array.TIntArrayList;
+import org.ejml.data.DMatrixRMaj;
+
+import us.ihmc.euclid.geometry.interfaces.Plane3DReadOnly;
+import us.ihmc.euclid.matrix.Matrix3D;
+import us.ihmc.euclid.matrix.interfaces.RotationMatrixReadOnly;
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.euclid.transform.interfaces.RigidBodyTransformReadOnly;
+import us.ihmc.euclid.tuple3D.Point3D;
+import us.ihmc.euclid.tuple3D.Vector3D;
+import us.ihmc.euclid.tuple3D.interfaces.Point3DReadOnly;
+import us.ihmc.jOctoMap.key.OcTreeKey;
+import us.ihmc.jOctoMap.node.NormalOcTreeNode;
+import us.ihmc.jOctoMap.ocTree.NormalOcTree;
+import us.ihmc.jOctoMap.tools.OcTreeNearestNeighborTools;
+import us.ihmc.robotEnvironmentAwareness.slam.tools.SLAMTools;
+import us.ihmc.robotics.optimization.OutputCalculator;
+
+/**
+ * Computes the distances between the surface elements of a {@link SLAMFrame} and the map for a
+ * given drift correction.
+ * <p>
+ * The distance for each surface element is the same as
+ * {@link SLAMTools#computeBoundedPerpendicularDistancePointToNormalOctree(NormalOcTree, Point3DReadOnly, double)}
+ * but:
+ * <ul>
+ * <li>the surface elements are evaluated in parallel into preallocated buffers,
+ * <li>the map nodes neighboring a surface element are cached and only searched again when the
+ * surface element moves to another octree cell,
+ * <li>the gradient of each distance with respect to the surface element position is saved such
+ * that the point-to-plane Jacobian can be computed analytically in
+ * {@link #computeJacobian(DMatrixRMaj, DMatrixRMaj)}.
+ * </ul>
+ * </p>
+ */
+public class SurfaceElementICPOutputCalculator implements OutputCalculator
+{
+   private final NormalOcTree map;
+   private final RigidBodyTransformReadOnly uncorrectedLocalPoseInWorld;
+   private final Function<DMatrixRMaj, RigidBodyTransform> transformConverter;
+   private final boolean includePitchAndRoll;
+   private final boolean useAnalyticJacobian;
+   private final double bound;
+   private final double resolution;
+
+   private final int numberOfSurfaceElements;
+   private final Point3D[] surfaceElementPointsInLocal;
+   private final Point3D[] correctedSurfaceElementPointsInWorld;
+
+   private final TIntArrayList indicesToCompute = new TIntArrayList();
+   private boolean computeAllIndices = true;
+   private final DMatrixRMaj output;
+
+   /** Index of the octree cell each surface element was in when its neighbors were last searched. */
+   private final int[] cachedCellIndices;
+   private final boolean[] isCacheValid;
+   private final List<List<NormalOcTreeNode>> cachedNeighbors;
+   /** Gradient of the distance with respect to the surface element position in world, 3 values per surface element. */
+   private final double[] distanceGradients;
+
+   private final RigidBodyTransform correctedLocalPoseInWorld = new RigidBodyTransform();
+
+   /** The surface elements are evaluated in parallel, each thread gets its own key for the nearest neighbor search. */
+   private final ThreadLocal<OcTreeKey> nearestKey = ThreadLocal.withInitial(OcTreeKey::new);
+
+   private final Matrix3D[] rotationDerivatives;
+   private final Matrix3D yawRotation = new Matrix3D();
+   private final Matrix3D pitchRotation = new Matrix3D();
+   private final Matrix3D rollRotation = new Matrix3D();
+   private final Matrix3D yawRotationDerivative = new Matrix3D();
+   private final Matrix3D pitchRotationDerivative = new Matrix3D();
+   private final Matrix3D rollRotationDerivative = new Matrix3D();
+   private final Vector3D rotatedGradient = new Vector3D();
+   private final Vector3D rotationDerivativeTimesPoint = new Vector3D();
+
+   public SurfaceElementICPOutputCalculator(NormalOcTree map, SLAMFrame frame, Function<DMatrixRMaj, RigidBodyTransform> transformConverter,
+                                            SurfaceElementICPSLAMParameters parameters)
+   {
+      this(map, frame.getSurfaceElementsInLocalFrame(), frame.getUncorrectedLocalPoseInWorld(), transformConverter, parameters);
+   }
+
+   SurfaceElementICPOutputCalculator(NormalOcTree map, List<Plane3DReadOnly> surfaceElements, RigidBodyTransformReadOnly uncorrectedLocalPoseInWorld,
+                                     Function<DMatrixRMaj, RigidBodyTransform> transformConverter, SurfaceElementICPSLAMParameters parameters)
+   {
+      this.map = map;
+      this.uncorrectedLocalPoseInWorld = uncorrectedLocalPoseInWorld;
+      this.transformConverter = transformConverter;
+      includePitchAndRoll = parameters.getIncludePitchAndRoll();
+      useAnalyticJacobian = parameters.getUseAnalyticJacobian();
+      resolution = map.getResolution();
+      bound = resolution * parameters.getBoundRatio();
+
+      numberOfSurfaceElements = surfaceElements.size();
+      surfaceElementPointsInLocal = new Point3D[numberOfSurfaceElements];
+      correctedSurfaceElementPointsInWorld = new Point3D[numberOfSurfaceElements];
+      cachedNeighbors = new ArrayList<>(numberOfSurfaceElements);
+
+      for (int i = 0; i < numberOfSurfaceElements; i++)
+      {
+         surfaceElementPointsInLocal[i] = new Point3D(surfaceElements.get(i).getPoint());
+         correctedSurfaceElementPointsInWorld[i] = new Point3D();
+         cachedNeighbors.add(new ArrayList<>());
+      }
+
+      output = new DMatrixRMaj(numberOfSurfaceElements, 1);
+      cachedCellIndices = new int[3 * numberOfSurfaceElements];
+      isCacheValid = new boolean[numberOfSurfaceElements];
+      distanceGradients = new double[3 * numberOfSurfaceElements];
+
+      rotationDerivatives = new Matrix3D[includePitchAndRoll ? 3 : 1];
+      for (int i = 0; i < rotationDerivatives.length; i++)
+         rotationDerivatives[i] = new Matrix3D();
+   }
+
+   @Override
+   public void setIndicesToCompute(TIntArrayList indicesToCompute)
+   {
+      this.indicesToCompute.reset();
+      this.indicesToCompute.addAll(indicesToCompute);
+      computeAllIndices = false;
+   }
+
+   @Override
+   public void resetIndicesToCompute()
+   {
+      computeAllIndices = true;
+   }
+
+   private int getNumberOfIndicesToCompute()
+   {
+      return computeAllIndices ? numberOfSurfaceElements : indicesToCompute.size();
+   }
+
+   private int getSurfaceElementIndex(int row)
+   {
+      return computeAllIndices ? row : indicesToCompute.get(row);
+   }
+
+   @Override
+   public DMatrixRMaj apply(DMatrixRMaj inputParameter)
+   {
+      correctedLocalPoseInWorld.set(uncorrectedLocalPoseInWorld);
+      correctedLocalPoseInWorld.multiply(transformConverter.apply(inputParameter));
+
+      int size = getNumberOfIndicesToCompute();
+      output.reshape(size, 1);
+
+      IntStream.range(0, size).parallel().forEach(row ->
+      {
+         int index = getSurfaceElementIndex(row);
+         Point3D correctedPoint = correctedSurfaceElementPointsInWorld[index];
+         correctedLocalPoseInWorld.transform(surfaceElementPointsInLocal[index], correctedPoint);
+         output.set(row, 0, computeClosestDistance(index, correctedPoint));
+      });
+
+      return output;
+   }
+
+   private double computeClosestDistance(int index, Point3DReadOnly point)
+   {
+      List<NormalOcTreeNode> neighbors = cachedNeighbors.get(index);
+
+      int cellX = (int) Math.floor(point.getX() / resolution);
+      int cellY = (int) Math.floor(point.getY() / resolution);
+      int cellZ = (int) Math.floor(point.getZ() / resolution);
+
+      if (!isCacheValid[index] || cachedCellIndices[3 * index] != cellX || cachedCellIndices[3 * index + 1] != cellY
+            || cachedCellIndices[3 * index + 2] != cellZ)
+      {
+         neighbors.clear();
+         OcTreeKey occupiedKey = map.coordinateToKey(point);
+         OcTreeKey nearestKey = this.nearestKey.get();
+         OcTreeNearestNeighborTools.findNearestNeighbor(map.getRoot(), map.keyToCoordinate(occupiedKey), nearestKey);
+         OcTreeNearestNeighborTools.findRadiusNeighbors(map.getRoot(), map.keyToCoordinate(nearestKey), resolution * 2, neighbors::add);
+
+         cachedCellIndices[3 * index] = cellX;
+         cachedCellIndices[3 * index + 1] = cellY;
+         cachedCellIndices[3 * index + 2] = cellZ;
+         isCacheValid[index] = true;
+      }
+
+      double closestDistance = Double.POSITIVE_INFINITY;
+      double gradientX = 0.0;
+      double gradientY = 0.0;
+      double gradientZ = 0.0;
+
+      for (int i = 0; i < neighbors.size(); i++)
+      {
+         NormalOcTreeNode node = neighbors.get(i);
+         double dx = point.getX() - node.getHitLocationX();
+         double dy = point.getY() - node.getHitLocationY();
+         double dz = point.getZ() - node.getHitLocationZ();
+         double linearDistance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+
+         if (linearDistance < bound)
+         {
+            double normalX = node.getNormalX();
+            double normalY = node.getNormalY();
+            double normalZ = node.getNormalZ();
+            double normalLength = Math.sqrt(normalX * normalX + normalY * normalY + normalZ * normalZ);
+            double signedDistance = (dx * normalX + dy * normalY + dz * normalZ) / normalLength;
+            double distanceToSurfel = Math.abs(signedDistance);
+
+            if (distanceToSurfel < closestDistance)
+            {
+               closestDistance = distanceToSurfel;
+               double scale = Math.signum(signedDistance) / normalLength;
+               gradientX = scale * normalX;
+               gradientY = scale * normalY;
+               gradientZ = scale * normalZ;
+            }
+         }
+         else if (linearDistance < closestDistance)
+         {
+            closestDistance = linearDistance;
+            gradientX = dx / linearDistance;
+            gradientY = dy / linearDistance;
+            gradientZ = dz / linearDistance;
+         }
+      }
+
+      distanceGradients[3 * index] = gradientX;
+      distanceGradients[3 * index + 1] = gradientY;
+      distanceGradients[3 * index + 2] = gradientZ;
+
+      return closestDistance;
+   }
+
+   /**
+    * Computes the point-to-plane Jacobian analytically from the gradients saved during the last call
+    * to {@link #apply(DMatrixRMaj)}, which is expected to have been done with the same input
+    * parameter.
+    */
+   @Override
+   public boolean computeJacobian(DMatrixRMaj inputParameter, DMatrixRMaj jacobianToPack)
+   {
+      if (!useAnalyticJacobian)
+         return false;
+
+      updateRotationDerivatives(inputParameter);
+      RotationMatrixReadOnly uncorrectedRotation = uncorrectedLocalPoseInWorld.getRotation();
+
+      int size = getNumberOfIndicesToCompute();
+      jacobianToPack.reshape(size, 3 + rotationDerivatives.length);
+
+      for (int row = 0; row < size; row++)
+      {
+         int index = getSurfaceElementIndex(row);
+
+         // The drift correction is applied in the local frame: p_world = R_local * (R_drift * p_local + t_drift) + t_local
+         rotatedGradient.set(distanceGradients[3 * index], distanceGradients[3 * index + 1], distanceGradients[3 * index + 2]);
+         uncorrectedRotation.inverseTransform(rotatedGradient);
+
+         jacobianToPack.set(row, 0, rotatedGradient.getX());
+         jacobianToPack.set(row, 1, rotatedGradient.getY());
+         jacobianToPack.set(row, 2, rotatedGradient.getZ());
+
+         for (int i = 0; i < rotationDerivatives.length; i++)
+         {
+            rotationDerivatives[i].transform(surfaceElementPointsInLocal[index], rotationDerivativeTimesPoint);
+            jacobianToPack.set(row, 3 + i, rotatedGradient.dot(rotationDerivativeTimesPoint));
+         }
+      }
+
+      return true;
+   }
+
+   /**
+    * Computes the derivatives of the drift rotation with respect to the rotation parameters, see
+    * {@link us.ihmc.robotics.optimization.LevenbergMarquardtParameterOptimizer#createSpatialInputFunction(boolean)}.
+    */
+   private void updateRotationDerivatives(DMatrixRMaj inputParameter)
+   {
+      if (!includePitchAndRoll)
+      {
+         double yaw = inputParameter.get(3);
+         double cy = Math.cos(yaw);
+         double sy = Math.sin(yaw);
+         rotationDerivatives[0].set(-sy, -cy, 0.0, cy, -sy, 0.0, 0.0, 0.0, 0.0);
+         return;
+      }
+
+      double roll = inputParameter.get(3);
+      double pitch = inputParameter.get(4);
+      double yaw = inputParameter.get(5);
+      double cr = Math.cos(roll), sr = Math.sin(roll);
+      double cp = Math.cos(pitch), sp = Math.sin(pitch);
+      double cy = Math.cos(yaw), sy = Math.sin(yaw);
+
+      // R = Rz(yaw) * Ry(pitch) * Rx(roll)
+      yawRotation.set(cy, -sy, 0.0, sy, cy, 0.0, 0.0, 0.0, 1.0);
+      pitchRotation.set(cp, 0.0, sp, 0.0, 1.0, 0.0, -sp, 0.0, cp);
+      rollRotation.set(1.0, 0.0, 0.0, 0.0, cr, -sr, 0.0, sr, cr);
+      yawRotationDerivative.set(-sy, -cy, 0.0, cy, -sy, 0.0, 0.0, 0.0, 0.0);
+      pitchRotationDerivative.set(-sp, 0.0, cp, 0.0, 0.0, 0.0, -cp, 0.0, -sp);
+      rollRotationDerivative.set(0.0, 0.0, 0.0, 0.0, -sr, -cr, 0.0, cr, -sr);
+
+      Matrix3D rollDerivative = rotationDerivatives[0];
+      rollDerivative.set(yawRotation);
+      rollDerivative.multiply(pitchRotation);
+      rollDerivative.multiply(rollRotationDerivative);
+
+      Matrix3D pitchDerivative = rotationDerivatives[1];
+      pitchDerivative.set(yawRotation);
+      pitchDerivative.multiply(pitchRotationDerivative);
+      pitchDerivative.multiply(rollRotation);
+
+      Matrix3D yawDerivative = rotationDerivatives[2];
+      yawDerivative.set(yawRotationDerivative);
+      yawDerivative.multiply(pitchRotation);
+      yawDerivative.multiply(rollRotation);
+   }
+
+   /**
+    * Gets the surface element locations in world as corrected by the last evaluated drift
+    * correction.
+    */
+   public Point3D[] getCorrectedSurfaceElementPointsInWorld()
+   {
+      return correctedSurfaceElementPointsInWorld;
+   }
+}
@@ -1,29 +1,16 @@
 package us.ihmc.robotEnvironmentAwareness.slam;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
-import java.util.function.UnaryOperator;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
-import gnu.trove.list.array.TIntArrayList;
 import org.ejml.data.DMatrixRMaj;
 
-import us.ihmc.euclid.geometry.Plane3D;
-import us.ihmc.euclid.geometry.interfaces.Plane3DReadOnly;
 import us.ihmc.euclid.matrix.RotationMatrix;
 import us.ihmc.euclid.transform.RigidBodyTransform;
-import us.ihmc.euclid.transform.interfaces.RigidBodyTransformBasics;
 import us.ihmc.euclid.transform.interfaces.RigidBodyTransformReadOnly;
-import us.ihmc.euclid.tuple3D.Point3D;
-import us.ihmc.euclid.tuple3D.interfaces.Point3DReadOnly;
 import us.ihmc.euclid.tuple4D.Quaternion;
 import us.ihmc.log.LogTools;
-import us.ihmc.robotEnvironmentAwareness.slam.tools.SLAMTools;
 import us.ihmc.robotics.optimization.LevenbergMarquardtParameterOptimizer;
-import us.ihmc.robotics.optimization.OutputCalculator;
 
 public class SurfaceElementICPSLAM extends SLAMBasics
 {
@@ -63,67 +50,16 @@ public class SurfaceElementICPSLAM extends SLAMBasics
                                     maxNumberOfSurfels);
 
       int numberOfSurfel = frame.getNumberOfSurfaceElements();
-      correctedCorrespondingPointLocation = new Point3D[numberOfSurfel];
 
       if (DEBUG)
          LogTools.info("numberOfSurfel " + numberOfSurfel);
 
-      OutputCalculator outputCalculator = new OutputCalculator()
-      {
-         private List<Point3DReadOnly> surfaceElementPoints = new ArrayList<>();
-
-         public void setIndicesToCompute(TIntArrayList indicesToCompute)
-         {
-            surfaceElementPoints.clear();
-            for (int i = 0; i < indicesToCompute.size(); i++)
-               surfaceElementPoints.add(frame.getSurfaceElementsInLocalFrame().get(indicesToCompute.get(i)).getPoint());
-         }
-
-         public void resetIndicesToCompute()
-         {
-            Stream<Plane3DReadOnly> planeStream = frame.getSurfaceElementsInLocalFrame().stream();
-            surfaceElementPoints = planeStream.map(Plane3DReadOnly::getPoint).collect(Collectors.toList());
-         }
-
-         @Override
-         public DMatrixRMaj apply(DMatrixRMaj inputParameter)
-         {
-            RigidBodyTransformReadOnly driftCorrectionTransform = transformConverter.apply(inputParameter);
-            RigidBodyTransformBasics correctedLocalPoseInWorld = new RigidBodyTransform(frame.getUncorrectedLocalPoseInWorld());
-            correctedLocalPoseInWorld.multiply(driftCorrectionTransform);
+      SurfaceElementICPOutputCalculator outputCalculator = new SurfaceElementICPOutputCalculator(mapOcTree,
+                                                                                                 frame,
+                                                                                                 transformConverter,
+                                                                                                 surfaceElementICPSLAMParameters);
+      correctedCorrespondingPointLocation = outputCalculator.getCorrectedSurfaceElementPointsInWorld();
 
-            int size = surfaceElementPoints.size();
-            correctedCorrespondingPointLocation = new Point3D[size];
-            DMatrixRMaj errorSpace = new DMatrixRMaj(size, 1);
-
-            Stream<Point3DReadOnly> surfelPointStream = surfaceElementPoints.stream();
-            List<Point3D> surfelPointsInWorld = surfelPointStream.map(point ->
-                                                              {
-                                                                 Point3D correctedSurfelInWorld = new Point3D();
-                                                                 correctedLocalPoseInWorld.transform(point, correctedSurfelInWorld);
-                                                                 return correctedSurfelInWorld;
-                                                              }).collect(Collectors.toList());
-
-            for (int i = 0; i < size; i++)
-            {
-               Point3D correctedSurfelInWorld = surfelPointsInWorld.get(i);
-
-               correctedCorrespondingPointLocation[i] = correctedSurfelInWorld;
-
-               double distance = computeClosestDistance(correctedSurfelInWorld);
-               errorSpace.set(i, distance);
-            }
-
-            return errorSpace;
-         }
-
-         private double computeClosestDistance(Point3DReadOnly surfelLocation)
-         {
-            return SLAMTools.computeBoundedPerpendicularDistancePointToNormalOctree(mapOcTree,
-                                                                                    surfelLocation,
-                                                                                    mapOcTree.getResolution() * surfaceElementICPSLAMParameters.getBoundRatio());
-         }
-      };
       int problemSize = surfaceElementICPSLAMParameters.getIncludePitchAndRoll() ? 6 : 4;
       LevenbergMarquardtParameterOptimizer optimizer = new LevenbergMarquardtParameterOptimizer(transformConverter, outputCalculator, problemSize, numberOfSurfel);
       if (frame.getPreviousFrame() != null && surfaceElementICPSLAMParameters.getWarmStartDriftTransform())
@@ -30,6 +30,7 @@ public class SurfaceElementICPSLAMParameters
    private static final boolean DEFAULT_INSERT_MISS_IN_OCTREE = true;
    private static final boolean DEFAULT_COMPUTE_FRAMES_IN_PARALLEL = false;
    private static final boolean DEFAULT_WARM_START_DRIFT_TRANSFORM = false;
+   private static final boolean DEFAULT_USE_ANALYTIC_JACOBIAN = false;
 
    private static final double DEFAULT_TRANSLATION_PERTURBATION = 0.002;
    private static final double DEFAULT_ROTATION_PERTURBATION = 0.00001;
@@ -70,6 +71,7 @@ public class SurfaceElementICPSLAMParameters
    private double rotationPerturbation;
    private boolean includePitchAndRoll;
    private boolean warmStartDriftTransform;
+   private boolean useAnalyticJacobian;
 
    private int maximumQueueSize;
    private double maximumTimeBetweenFrames;
@@ -117,6 +119,7 @@ public class SurfaceElementICPSLAMParameters
       rotationPerturbation = other.rotationPerturbation;
       includePitchAndRoll = other.includePitchAndRoll;
       warmStartDriftTransform = other.warmStartDriftTransform;
+      useAnalyticJacobian = other.useAnalyticJacobian;
 
       maximumQueueSize = other.maximumQueueSize;
       maximumTimeBetweenFrames = other.maximumTimeBetweenFrames;
@@ -152,6 +155,7 @@ public class SurfaceElementICPSLAMParameters
       insertMissInOcTree = DEFAULT_INSERT_MISS_IN_OCTREE;
       computeFramesInParalel = DEFAULT_COMPUTE_FRAMES_IN_PARALLEL;
       warmStartDriftTransform = DEFAULT_WARM_START_DRIFT_TRANSFORM;
+      useAnalyticJacobian = DEFAULT_USE_ANALYTIC_JACOBIAN;
 
       translationPerturbation = DEFAULT_TRANSLATION_PERTURBATION;
       rotationPerturbation = DEFAULT_ROTATION_PERTURBATION;
@@ -298,6 +302,11 @@ public class SurfaceElementICPSLAMParameters
       return warmStartDriftTransform;
    }
 
+   public boolean getUseAnalyticJacobian()
+   {
+      return useAnalyticJacobian;
+   }
+
    public void setSurfaceElementResolution(double surfaceElementResolution)
    {
       this.surfaceElementResolution = surfaceElementResolution;
@@ -428,6 +437,11 @@ public class SurfaceElementICPSLAMParameters
       this.warmStartDriftTransform = warmStartDriftTransform;
    }
 
+   public void setUseAnalyticJacobian(boolean useAnalyticJacobian)
+   {
+      this.useAnalyticJacobian = useAnalyticJacobian;
+   }
+
    @Override
    public String toString()
    {
@@ -443,7 +457,8 @@ public class SurfaceElementICPSLAMParameters
              + getMaximumTimeBetweenFrames() + ", longestTimeToLag: " + getLongestTimeToLag() + ", maximumNumberOfSurfaceElements: "
              + getMaxNumberOfSurfaceElements() + ", maxNumberOfCorrespondences: " + getMaxNumberOfCorrespondences()
              + ", computeFramesInParallel: " + getComputeFramesInParallel() + ", stationaryVelocity: " + getStationaryVelocity()
-            + ", maxVelocity: " + getMaxVelocity() + ", warmStartDriftTransform: " + getWarmStartDriftTransform();
+            + ", maxVelocity: " + getMaxVelocity() + ", warmStartDriftTransform: " + getWarmStartDriftTransform()
+            + ", useAnalyticJacobian: " + getUseAnalyticJacobian();
    }
 
    public static SurfaceElementICPSLAMParameters parse(String parametersAsString)
@@ -478,6 +493,7 @@ public class SurfaceElementICPSLAMParameters
       parameters.setStationaryVelocity(ScannerTools.readNextDouble(scanner, parameters.getStationaryVelocity()));
       parameters.setMaxVelocity(ScannerTools.readNextDouble(scanner, parameters.getMaxVelocity()));
       parameters.setWarmStartDriftTransform(ScannerTools.readNextBoolean(scanner, parameters.getWarmStartDriftTransform()));
+      parameters.setUseAnalyticJacobian(ScannerTools.readNextBoolean(scanner, parameters.getUseAnalyticJacobian()));
       scanner.close();
       return parameters;
    }
@@ -61,6 +61,8 @@ public class SurfaceElementICPPaneController extends REABasicUIController
    private ToggleButton computeFramesInParallel;
    @FXML
    private ToggleButton warmStartDriftTransform;
+   @FXML
+   private ToggleButton useAnalyticJacobian;
 
    @FXML
    private ToggleButton includePitchAndRoll;
@@ -137,6 +139,7 @@ public class SurfaceElementICPPaneController extends REABasicUIController
       surfaceElementICPSLAMParametersProperty.bindBidirectionalInsertMissInOcTree(insertMissInOcTree.selectedProperty());
       surfaceElementICPSLAMParametersProperty.bindBidirectionalComputeFramesInParallel(computeFramesInParallel.selectedProperty());
       surfaceElementICPSLAMParametersProperty.bindBidirectionalWarmStartDriftTransform(warmStartDriftTransform.selectedProperty());
+      surfaceElementICPSLAMParametersProperty.bindBidirectionalUseAnalyticJacobian(useAnalyticJacobian.selectedProperty());
 
       surfaceElementICPSLAMParametersProperty.bindBidirectionalIncludePitchAndRoll(includePitchAndRoll.selectedProperty());
       surfaceElementICPSLAMParametersProperty.bindBidirectionalTranslationPerturbation(translationPerturbation.getValueFactory().valueProperty());
@@ -4,16 +4,22 @@ import static us.ihmc.jOctoMap.iterators.OcTreeIteratorFactory.*;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
 import javafx.beans.property.Property;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.ObservableList;
@@ -21,13 +27,15 @@ import javafx.scene.Group;
 import javafx.scene.Node;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Material;
-import javafx.scene.shape.Mesh;
+import javafx.scene.shape.TriangleMesh;
 import us.ihmc.commons.lists.RecyclingArrayList;
 import us.ihmc.commons.lists.SupplierBuilder;
+import us.ihmc.euclid.geometry.Pose3D;
 import us.ihmc.euclid.tuple3D.Point3D;
 import us.ihmc.euclid.tuple3D.Point3D32;
 import us.ihmc.euclid.tuple3D.Vector3D;
 import us.ihmc.euclid.tuple3D.Vector3D32;
+import us.ihmc.graphicsDescription.MeshDataGenerator;
 import us.ihmc.graphicsDescription.MeshDataHolder;
 import us.ihmc.graphicsDescription.TexCoord2f;
 import us.ihmc.jOctoMap.key.OcTreeKey;
@@ -37,6 +45,7 @@ import us.ihmc.log.LogTools;
 import us.ihmc.messager.MessagerAPIFactory.Topic;
 import us.ihmc.robotEnvironmentAwareness.communication.REAUIMessager;
 import us.ihmc.robotEnvironmentAwareness.communication.packets.NormalOcTreeMessage;
+import us.ihmc.robotEnvironmentAwareness.communication.packets.OcTreeKeyMessage;
 import us.ihmc.robotEnvironmentAwareness.communication.packets.PlanarRegionSegmentationMessage;
 import us.ihmc.robotEnvironmentAwareness.geometry.IntersectionPlaneBoxCalculator;
 import us.ihmc.robotEnvironmentAwareness.ui.UIOcTree;
@@ -49,6 +58,9 @@ public class OcTreeMeshBuilder implements Runnable
 {
    private static final int FX_NODE_DEPTH = 8;
    private static final Color DEFAULT_COLOR = Color.DARKCYAN;
+   /** The intersection between a plane and a cube has at most 6 vertices. */
+   private static final int MAX_PLANE_VERTICES = 6;
+   private static final int NORMAL_COLOR_RESOLUTION = 120;
 
    public enum ColoringType
    {
@@ -71,13 +83,33 @@ public class OcTreeMeshBuilder implements Runnable
    private final Group root = new Group();
    private final ObservableList<Node> children = root.getChildren();
 
-   private final JavaFXMultiColorMeshBuilder meshBuilder;
-
    private final TextureColorPalette1D normalBasedColorPalette1D = new TextureColorPalette1D();
+   private final Map<Color, TexCoord2f> textureLocations = new HashMap<>();
+   private final Material material;
+
+   /** Vertex data of the sub-tree mesh being built, reused for every sub-tree. */
+   private final TriangleMeshBuffer meshBuffer = new TriangleMeshBuffer();
+   private final MeshDataHolder unitCube = MeshDataGenerator.Cube(1.0, 1.0, 1.0, true, null);
+   private final MeshDataHolder hitLocationTetrahedron = MeshDataGenerator.Tetrahedron(0.0075);
 
    private final RecyclingArrayList<Point3D> plane = new RecyclingArrayList<>(0, SupplierBuilder.createFromEmptyConstructor(Point3D.class));
    private final IntersectionPlaneBoxCalculator intersectionPlaneBoxCalculator = new IntersectionPlaneBoxCalculator();
 
+   private final Vector3D tempNormal = new Vector3D();
+   private final Point3D tempHitLocation = new Point3D();
+   private final Point3D tempSubTreeCenter = new Point3D();
+   /** Plane meshes indexed by number of vertices, their data is overwritten for every node. */
+   private final MeshDataHolder[] planeMeshBuffers = new MeshDataHolder[MAX_PLANE_VERTICES + 1];
+   private final Color[] normalColors = new Color[NORMAL_COLOR_RESOLUTION + 1];
+   private final Map<Integer, Color> regionColors = new HashMap<>();
+
+   /** The meshes of the sub-trees from the last build, used to only rebuild the sub-trees that have changed. */
+   private final SubTreeMeshCache<UIOcTreeNodeMeshView> subTreeMeshCache = new SubTreeMeshCache<>();
+   /** Index of the last octree update received, used to detect missed updates. */
+   private long lastOcTreeUpdateIndex = -1;
+   private Map<OcTreeKey, Integer> lastNodeKeyToRegionIdMap = null;
+   private AtomicReference<Pose3D> levelOfDetailFocus = null;
+
    private final AtomicReference<NormalOcTreeMessage> ocTreeState;
    private final AtomicReference<PlanarRegionSegmentationMessage[]> planarRegionSegmentationState;
 
@@ -124,7 +156,23 @@ public class OcTreeMeshBuilder implements Runnable
       planarRegionSegmentationState = uiMessager.createInput(planarRegionsSegmentationStateTopic);
 
       normalBasedColorPalette1D.setHueBased(0.9, 0.8);
-      meshBuilder = new JavaFXMultiColorMeshBuilder(normalBasedColorPalette1D);
+      // The meshes are built from the buffer, the builder is only needed for the material which is the same for every mesh.
+      material = new JavaFXMultiColorMeshBuilder(normalBasedColorPalette1D).generateMaterial();
+
+      for (int numberOfVertices = 3; numberOfVertices <= MAX_PLANE_VERTICES; numberOfVertices++)
+         planeMeshBuffers[numberOfVertices] = createPlaneMeshBuffer(numberOfVertices);
+
+      for (int i = 0; i <= NORMAL_COLOR_RESOLUTION; i++)
+         normalColors[i] = Color.hsb(120.0 * i / NORMAL_COLOR_RESOLUTION, 1.0, 1.0);
+   }
+
+   /**
+    * Enables the level of detail: the sub-trees far from the given pose are displayed with a coarser
+    * depth than {@code uiOcTreeDepthTopic}.
+    */
+   public void setLevelOfDetailFocusTopic(Topic<Pose3D> focusPoseTopic)
+   {
+      levelOfDetailFocus = uiMessager.createInput(focusPoseTopic);
    }
 
    private <T> void setProcessChange(ObservableValue<? extends T> observableValue, T oldValue, T newValue)
@@ -158,8 +206,12 @@ public class OcTreeMeshBuilder implements Runnable
          children.clear();
          children.addAll(newChildren);
 
+         // Sub-trees that have not changed are the same instances as the ones already displayed.
+         Map<Node, Node> displayedMeshViews = new IdentityHashMap<>();
+         newChildren.forEach(child -> displayedMeshViews.put(child, child));
+
          meshViewsBeingProcessed.clear();
-         meshViewsBeingProcessed.addAll(newMeshViews);
+         newMeshViews.stream().filter(meshView -> !displayedMeshViews.containsKey(meshView)).forEach(meshViewsBeingProcessed::add);
       }
 
       if (meshViewsBeingProcessed.isEmpty())
@@ -193,68 +245,142 @@ public class OcTreeMeshBuilder implements Runnable
          if (newMessage == null || nodeKeyToRegionIdMap == null)
             return;
 
-         uiOcTree.set(new UIOcTree(ocTreeState.getAndSet(null), nodeKeyToRegionIdMap));
-         buildUIOcTreeMesh(uiOcTree.get());
+         NormalOcTreeMessage ocTreeMessage = ocTreeState.getAndSet(null);
+         UIOcTree newOcTree = new UIOcTree(ocTreeMessage, nodeKeyToRegionIdMap);
+         TLongSet dirtySubTrees = computeDirtySubTrees(ocTreeMessage, nodeKeyToRegionIdMap);
+         uiOcTree.set(newOcTree);
+         buildUIOcTreeMesh(newOcTree, dirtySubTrees);
       }
       else if (processChange.getAndSet(false) && uiOcTree.get() != null)
       {
-         buildUIOcTreeMesh(uiOcTree.get());
+         // Only the display settings have changed, which is handled by the mesh cache.
+         buildUIOcTreeMesh(uiOcTree.get(), new TLongHashSet());
       }
    }
 
-   private void buildUIOcTreeMesh(UIOcTree ocTree)
+   /**
+    * Finds the sub-trees that have changed since the previous octree from the keys of the leaves
+    * that changed in this update, and from the leaves that are now part of a different planar
+    * region.
+    *
+    * @return the indices of the changed sub-trees, or {@code null} if the changed leaves are unknown,
+    *         e.g. when an update was missed, such that every sub-tree has to be rebuilt.
+    */
+   private TLongSet computeDirtySubTrees(NormalOcTreeMessage ocTreeMessage, Map<OcTreeKey, Integer> nodeKeyToRegionIdMap)
+   {
+      boolean isContinuousUpdate = ocTreeMessage.updateIndex >= 0 && ocTreeMessage.updateIndex == lastOcTreeUpdateIndex + 1;
+      Map<OcTreeKey, Integer> previousNodeKeyToRegionIdMap = lastNodeKeyToRegionIdMap;
+      lastOcTreeUpdateIndex = ocTreeMessage.updateIndex;
+      lastNodeKeyToRegionIdMap = nodeKeyToRegionIdMap;
+
+      if (!isContinuousUpdate || ocTreeMessage.changedLeafKeys == null || previousNodeKeyToRegionIdMap == null)
+         return null;
+
+      int treeDepth = ocTreeMessage.treeDepth;
+      TLongSet dirtySubTrees = new TLongHashSet();
+
+      for (OcTreeKeyMessage changedLeafKey : ocTreeMessage.changedLeafKeys)
+         dirtySubTrees.add(SubTreeMeshCache.computeSubTreeIndex(changedLeafKey.k[0], changedLeafKey.k[1], changedLeafKey.k[2], treeDepth, FX_NODE_DEPTH));
+
+      for (Entry<OcTreeKey, Integer> entry : nodeKeyToRegionIdMap.entrySet())
+      {
+         if (!Objects.equals(entry.getValue(), previousNodeKeyToRegionIdMap.get(entry.getKey())))
+            dirtySubTrees.add(computeSubTreeIndex(entry.getKey(), treeDepth));
+      }
+
+      for (OcTreeKey nodeKey : previousNodeKeyToRegionIdMap.keySet())
+      {
+         if (!nodeKeyToRegionIdMap.containsKey(nodeKey))
+            dirtySubTrees.add(computeSubTreeIndex(nodeKey, treeDepth));
+      }
+
+      return dirtySubTrees;
+   }
+
+   private static long computeSubTreeIndex(OcTreeKey nodeKey, int treeDepth)
+   {
+      return SubTreeMeshCache.computeSubTreeIndex(nodeKey.getKey(0), nodeKey.getKey(1), nodeKey.getKey(2), treeDepth, FX_NODE_DEPTH);
+   }
+
+   private void buildUIOcTreeMesh(UIOcTree ocTree, TLongSet dirtySubTrees)
    {
       Set<UIOcTreeNodeMeshView> meshViews = new HashSet<>();
 
       List<UIOcTreeNode> rootNodes = new ArrayList<>();
       createLeafIterable(ocTree.getRoot(), FX_NODE_DEPTH).forEach(rootNodes::add);
 
+      Pose3D focus = levelOfDetailFocus == null ? null : levelOfDetailFocus.get();
+      int treeDepth = ocTree.getTreeDepth();
+      int displayDepth = Math.min(treeDepthForDisplay.getValue(), treeDepth);
+
+      subTreeMeshCache.startUpdate(dirtySubTrees, computeSettingsHash(ocTree));
+
       for (UIOcTreeNode rootNode : rootNodes)
-         meshViews.add(createSubTreeMeshView(rootNode));
+      {
+         tempSubTreeCenter.set(rootNode.getX(), rootNode.getY(), rootNode.getZ());
+         int subTreeDepth = SubTreeMeshCache.computeSubTreeDisplayDepth(tempSubTreeCenter, displayDepth, FX_NODE_DEPTH, focus);
+         long subTreeIndex = SubTreeMeshCache.computeSubTreeIndex(rootNode.getKey0(), rootNode.getKey1(), rootNode.getKey2(), treeDepth, FX_NODE_DEPTH);
+
+         meshViews.add(subTreeMeshCache.getMesh(subTreeIndex, subTreeDepth, () -> createSubTreeMeshView(rootNode, rootNode.getKeyCopy(), subTreeDepth)));
+      }
 
       newSubOcTreeMeshViews.set(meshViews);
    }
 
-   private UIOcTreeNodeMeshView createSubTreeMeshView(UIOcTreeNode subTreeRoot)
+   /**
+    * Hashes the settings that are used to create the mesh of every sub-tree, such that all the meshes
+    * are rebuilt when one of them changes.
+    */
+   private long computeSettingsHash(UIOcTree ocTree)
+   {
+      long hash = hash(ocTree.getTreeDepth(), Double.doubleToLongBits(ocTree.getResolution()));
+      hash = hash(hash, displayType.getValue().ordinal());
+      hash = hash(hash, coloringType.getValue().ordinal());
+      return hash(hash, hidePlanarRegionNodes.getValue() ? 1 : 0);
+   }
+
+   private static long hash(long hash, long value)
    {
-      meshBuilder.clear();
+      hash ^= value;
+      hash *= 0x9E3779B97F4A7C15L;
+      return hash ^ (hash >>> 29);
+   }
 
-      Iterable<UIOcTreeNode> iterable = createLeafIterable(subTreeRoot, treeDepthForDisplay.getValue());
+   private UIOcTreeNodeMeshView createSubTreeMeshView(UIOcTreeNode subTreeRoot, OcTreeKey rootKey, int subTreeDepth)
+   {
+      meshBuffer.clear();
+
+      Iterable<UIOcTreeNode> iterable = createLeafIterable(subTreeRoot, subTreeDepth);
 
       for (UIOcTreeNode node : iterable)
       {
          if (!node.isPartOfRegion() || !hidePlanarRegionNodes.getValue())
-            addNodeMesh(meshBuilder, displayType.getValue(), coloringType.getValue(), node);
+            addNodeMesh(displayType.getValue(), coloringType.getValue(), node);
       }
 
-      OcTreeKey rootKey = subTreeRoot.getKeyCopy();
-      Mesh mesh = meshBuilder.generateMesh();
-      Material material = meshBuilder.generateMaterial();
-      UIOcTreeNodeMeshView meshView = new UIOcTreeNodeMeshView(rootKey, mesh, material);
-      meshBuilder.clear();
-      return meshView;
+      return new UIOcTreeNodeMeshView(rootKey, meshBuffer.createMesh(), material);
    }
 
-   private void addNodeMesh(JavaFXMultiColorMeshBuilder meshBuilder, DisplayType displayType, ColoringType coloringType, UIOcTreeNode node)
+   private void addNodeMesh(DisplayType displayType, ColoringType coloringType, UIOcTreeNode node)
    {
-      Color color = getNodeColor(coloringType, node);
+      TexCoord2f textureLocation = textureLocations.computeIfAbsent(getNodeColor(coloringType, node), normalBasedColorPalette1D::getTextureLocation);
       double size = node.getSize();
 
       switch (displayType)
       {
          case CELL:
-            meshBuilder.addCube(size, node.getX(), node.getY(), node.getZ(), color);
+            meshBuffer.addMesh(unitCube, size, node.getX(), node.getY(), node.getZ(), textureLocation);
             break;
          case PLANE:
-            if (node.isNormalSet())
-               meshBuilder.addMesh(createNormalBasedPlane(node), color);
+            MeshDataHolder plane = createNormalBasedPlane(node);
+            if (plane != null)
+               meshBuffer.addMesh(plane, 1.0, 0.0, 0.0, 0.0, textureLocation);
             break;
          case HIT_LOCATION:
             if (node.isHitLocationSet())
             {
-               Point3D hitLocation = new Point3D();
-               node.getHitLocation(hitLocation);
-               meshBuilder.addTetrahedron(0.0075, hitLocation, color);
+               node.getHitLocation(tempHitLocation);
+               meshBuffer.addMesh(hitLocationTetrahedron, 1.0, tempHitLocation.getX(), tempHitLocation.getY(), tempHitLocation.getZ(), textureLocation);
             }
             break;
          default:
@@ -269,7 +395,7 @@ public class OcTreeMeshBuilder implements Runnable
          case REGION:
             if (node.isPartOfRegion())
             {
-               return getRegionColor(node.getRegionId());
+               return regionColors.computeIfAbsent(node.getRegionId(), OcTreeMeshBuilder::getRegionColor);
             }
             else
             {
@@ -280,13 +406,10 @@ public class OcTreeMeshBuilder implements Runnable
          case NORMAL:
             if (node.isNormalSet())
             {
-               Vector3D normal = new Vector3D();
-               node.getNormal(normal);
-               Vector3D zUp = new Vector3D(0.0, 0.0, 1.0);
-               normal.normalize();
-               double angle = Math.abs(zUp.dot(normal));
-               double hue = 120.0 * angle;
-               return Color.hsb(hue, 1.0, 1.0);
+               node.getNormal(tempNormal);
+               tempNormal.normalize();
+               double angle = Math.abs(tempNormal.getZ());
+               return normalColors[(int) Math.round(NORMAL_COLOR_RESOLUTION * angle)];
             }
             else
                return DEFAULT_COLOR;
@@ -298,8 +421,8 @@ public class OcTreeMeshBuilder implements Runnable
 
    public static Color getRegionColor(int regionId)
    {
-      java.awt.Color awtColor = new java.awt.Color(regionId);
-      return Color.rgb(awtColor.getRed(), awtColor.getGreen(), awtColor.getBlue());
+      // Same as java.awt.Color(regionId), the id is interpreted as a packed RGB value.
+      return Color.rgb((regionId >> 16) & 0xFF, (regionId >> 8) & 0xFF, regionId & 0xFF);
    }
 
    private MeshDataHolder createNormalBasedPlane(UIOcTreeNode node)
@@ -307,39 +430,53 @@ public class OcTreeMeshBuilder implements Runnable
       if (!node.isNormalSet() || !node.isHitLocationSet())
          return null;
 
-      Vector3D planeNormal = new Vector3D();
-      Point3D pointOnPlane = new Point3D();
       double size = node.getSize();
 
-      node.getNormal(planeNormal);
-      node.getHitLocation(pointOnPlane);
+      node.getNormal(tempNormal);
+      node.getHitLocation(tempHitLocation);
 
       intersectionPlaneBoxCalculator.setCube(size, node.getX(), node.getY(), node.getZ());
-      intersectionPlaneBoxCalculator.setPlane(pointOnPlane, planeNormal);
+      intersectionPlaneBoxCalculator.setPlane(tempHitLocation, tempNormal);
       intersectionPlaneBoxCalculator.computeIntersections(plane);
 
-      if (plane.size() < 3)
+      if (plane.size() < 3 || plane.size() > MAX_PLANE_VERTICES)
          return null;
 
-      int numberOfTriangles = plane.size() - 2;
+      // The mesh buffer copies the data when adding the mesh, so the plane can be overwritten for the next node.
+      MeshDataHolder planeMesh = planeMeshBuffers[plane.size()];
+      Point3D32[] vertices = planeMesh.getVertices();
+      Vector3D32[] normals = planeMesh.getVertexNormals();
+
+      for (int i = 0; i < plane.size(); i++)
+      {
+         vertices[i].set(plane.get(i));
+         normals[i].set(tempNormal);
+      }
+
+      return planeMesh;
+   }
+
+   private static MeshDataHolder createPlaneMeshBuffer(int numberOfVertices)
+   {
+      int numberOfTriangles = numberOfVertices - 2;
       int[] triangleIndices = new int[3 * numberOfTriangles];
       int index = 0;
-      for (int j = 2; j < plane.size(); j++)
+      for (int j = 2; j < numberOfVertices; j++)
       {
          triangleIndices[index++] = 0;
          triangleIndices[index++] = j - 1;
          triangleIndices[index++] = j;
       }
 
-      Point3D32[] vertices = new Point3D32[plane.size()];
-      TexCoord2f[] texCoords = new TexCoord2f[plane.size()];
-      Vector3D32[] normals = new Vector3D32[plane.size()];
+      Point3D32[] vertices = new Point3D32[numberOfVertices];
+      TexCoord2f[] texCoords = new TexCoord2f[numberOfVertices];
+      Vector3D32[] normals = new Vector3D32[numberOfVertices];
 
-      for (int i = 0; i < plane.size(); i++)
+      for (int i = 0; i < numberOfVertices; i++)
       {
-         vertices[i] = new Point3D32(plane.get(i));
+         vertices[i] = new Point3D32();
          texCoords[i] = new TexCoord2f(); // No need for real coordinates, the MultiColorMeshBuilder creates new ones.
-         normals[i] = new Vector3D32(planeNormal);
+         normals[i] = new Vector3D32();
       }
 
       return new MeshDataHolder(vertices, texCoords, triangleIndices, normals);
@@ -372,4 +509,77 @@ public class OcTreeMeshBuilder implements Runnable
    {
       return root;
    }
+
+   /**
+    * Growable primitive buffers the vertices, texture coordinates, and faces of a mesh are written
+    * to, such that building a mesh does not allocate anything besides the final {@link TriangleMesh}.
+    */
+   private static class TriangleMeshBuffer
+   {
+      private float[] points = new float[3 * 1024];
+      private float[] texCoords = new float[2 * 256];
+      private int[] faces = new int[6 * 1024];
+
+      private int pointsSize = 0;
+      private int texCoordsSize = 0;
+      private int facesSize = 0;
+
+      private void clear()
+      {
+         pointsSize = 0;
+         texCoordsSize = 0;
+         facesSize = 0;
+      }
+
+      /**
+       * Appends the given mesh, scaled and then translated, with a single texture coordinate for all
+       * its vertices.
+       */
+      private void addMesh(MeshDataHolder mesh, double scale, double offsetX, double offsetY, double offsetZ, TexCoord2f textureLocation)
+      {
+         Point3D32[] vertices = mesh.getVertices();
+         int[] triangleIndices = mesh.getTriangleIndices();
+
+         int firstVertexIndex = pointsSize / 3;
+         int texCoordIndex = texCoordsSize / 2;
+
+         points = ensureCapacity(points, pointsSize + 3 * vertices.length);
+         for (Point3D32 vertex : vertices)
+         {
+            points[pointsSize++] = (float) (scale * vertex.getX() + offsetX);
+            points[pointsSize++] = (float) (scale * vertex.getY() + offsetY);
+            points[pointsSize++] = (float) (scale * vertex.getZ() + offsetZ);
+         }
+
+         texCoords = ensureCapacity(texCoords, texCoordsSize + 2);
+         texCoords[texCoordsSize++] = textureLocation.getX32();
+         texCoords[texCoordsSize++] = textureLocation.getY32();
+
+         faces = ensureCapacity(faces, facesSize + 2 * triangleIndices.length);
+         for (int triangleIndex : triangleIndices)
+         {
+            faces[facesSize++] = firstVertexIndex + triangleIndex;
+            faces[facesSize++] = texCoordIndex;
+         }
+      }
+
+      private TriangleMesh createMesh()
+      {
+         TriangleMesh mesh = new TriangleMesh();
+         mesh.getPoints().setAll(points, 0, pointsSize);
+         mesh.getTexCoords().setAll(texCoords, 0, texCoordsSize);
+         mesh.getFaces().setAll(faces, 0, facesSize);
+         return mesh;
+      }
+
+      private static float[] ensureCapacity(float[] array, int capacity)
+      {
+         return capacity <= array.length ? array : Arrays.copyOf(array, Math.max(capacity, 2 * array.length));
+      }
+
+      private static int[] ensureCapacity(int[] array, int capacity)
+      {
+         return capacity <= array.length ? array : Arrays.copyOf(array, Math.max(capacity, 2 * array.length));
+      }
+   }
 }
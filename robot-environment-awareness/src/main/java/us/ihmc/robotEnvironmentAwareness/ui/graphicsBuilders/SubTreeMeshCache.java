@@ -0,0 +1,144 @@
+package us.ihmc.robotEnvironmentAwareness.ui.graphicsBuilders;
+
+import java.util.function.Supplier;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import us.ihmc.euclid.geometry.interfaces.Pose3DReadOnly;
+import us.ihmc.euclid.tuple3D.interfaces.Point3DReadOnly;
+
+/**
+ * Keeps the mesh of each sub-tree of an octree from one update to the next, such that only the
+ * sub-trees that contain a changed leaf, or that are displayed with a different depth or different
+ * settings, are rebuilt.
+ * <p>
+ * The sub-trees are identified by the index computed with
+ * {@link #computeSubTreeIndex(int, int, int, int, int)}, which is the same for the root of a
+ * sub-tree and for all its leaves.
+ * </p>
+ *
+ * @param <M> the type of mesh.
+ */
+class SubTreeMeshCache<M>
+{
+   /**
+    * Distance from the focus point beyond which sub-trees are displayed one level coarser, and again
+    * each time the distance doubles.
+    */
+   static final double LEVEL_OF_DETAIL_DISTANCE = 4.0;
+   static final int MAX_LEVEL_OF_DETAIL_REDUCTION = 3;
+
+   private static final int KEY_BITS = 21;
+
+   private TLongObjectHashMap<SubTreeMesh<M>> subTreeMeshes = new TLongObjectHashMap<>();
+   private TLongObjectHashMap<SubTreeMesh<M>> previousSubTreeMeshes = new TLongObjectHashMap<>();
+
+   private TLongSet dirtySubTrees = null;
+   private long settingsHash;
+
+   /**
+    * Starts a new update, every sub-tree that is not requested with
+    * {@link #getMesh(long, int, Supplier)} before the next update is dropped.
+    *
+    * @param dirtySubTrees indices of the sub-trees that contain a changed leaf, {@code null} if they
+    *                      are unknown in which case every mesh is rebuilt.
+    * @param settingsHash  hash of the settings used to build all the meshes, the meshes are rebuilt
+    *                      when it changes.
+    */
+   void startUpdate(TLongSet dirtySubTrees, long settingsHash)
+   {
+      TLongObjectHashMap<SubTreeMesh<M>> swap = previousSubTreeMeshes;
+      previousSubTreeMeshes = subTreeMeshes;
+      subTreeMeshes = swap;
+      subTreeMeshes.clear();
+
+      this.dirtySubTrees = dirtySubTrees;
+      this.settingsHash = settingsHash;
+   }
+
+   /**
+    * Gets the mesh of a sub-tree, the mesh from the previous update is reused if the sub-tree has not
+    * changed, otherwise a new one is built.
+    *
+    * @param subTreeIndex the index of the sub-tree.
+    * @param displayDepth the depth the sub-tree is displayed with.
+    * @param meshBuilder  builds the mesh of the sub-tree when the previous one cannot be reused.
+    * @return the mesh of the sub-tree.
+    */
+   M getMesh(long subTreeIndex, int displayDepth, Supplier<M> meshBuilder)
+   {
+      SubTreeMesh<M> subTreeMesh = previousSubTreeMeshes.get(subTreeIndex);
+
+      if (subTreeMesh == null || !subTreeMesh.isValid(displayDepth, settingsHash) || dirtySubTrees == null || dirtySubTrees.contains(subTreeIndex))
+         subTreeMesh = new SubTreeMesh<>(meshBuilder.get(), displayDepth, settingsHash);
+
+      subTreeMeshes.put(subTreeIndex, subTreeMesh);
+      return subTreeMesh.mesh;
+   }
+
+   int getNumberOfMeshes()
+   {
+      return subTreeMeshes.size();
+   }
+
+   /**
+    * Computes the index of the sub-tree rooted at {@code subTreeRootDepth} that contains the node
+    * with the given key.
+    * <p>
+    * Only the first {@code subTreeRootDepth} bits of each key component are used, such that the
+    * index is the same for the root of the sub-tree and all the nodes below it.
+    * </p>
+    */
+   static long computeSubTreeIndex(int key0, int key1, int key2, int treeDepth, int subTreeRootDepth)
+   {
+      int shift = Math.max(0, treeDepth - subTreeRootDepth);
+      return ((long) (key0 >>> shift) << 2 * KEY_BITS) | ((long) (key1 >>> shift) << KEY_BITS) | (key2 >>> shift);
+   }
+
+   /**
+    * Computes the depth a sub-tree is displayed with. The sub-trees far from the focus pose are
+    * displayed with a coarser depth: one level is dropped beyond {@link #LEVEL_OF_DETAIL_DISTANCE}
+    * and another one each time the distance doubles, up to {@link #MAX_LEVEL_OF_DETAIL_REDUCTION}
+    * levels.
+    *
+    * @param subTreeCenter    the center of the root of the sub-tree.
+    * @param displayDepth     the depth used for the sub-trees close to the focus.
+    * @param subTreeRootDepth the depth of the root of the sub-trees, the display depth is never
+    *                         reduced below it.
+    * @param focus            the pose the level of detail is centered on, {@code null} to display
+    *                         every sub-tree with {@code displayDepth}.
+    * @return the depth the sub-tree is displayed with.
+    */
+   static int computeSubTreeDisplayDepth(Point3DReadOnly subTreeCenter, int displayDepth, int subTreeRootDepth, Pose3DReadOnly focus)
+   {
+      if (focus == null)
+         return displayDepth;
+
+      double distance = focus.getPosition().distance(subTreeCenter);
+      int reduction = 0;
+
+      while (reduction < MAX_LEVEL_OF_DETAIL_REDUCTION && distance > LEVEL_OF_DETAIL_DISTANCE * (1 << reduction))
+         reduction++;
+
+      return Math.max(Math.min(subTreeRootDepth, displayDepth), displayDepth - reduction);
+   }
+
+   private static class SubTreeMesh<M>
+   {
+      private final M mesh;
+      private final int displayDepth;
+      private final long settingsHash;
+
+      private SubTreeMesh(M mesh, int displayDepth, long settingsHash)
+      {
+         this.mesh = mesh;
+         this.displayDepth = displayDepth;
+         this.settingsHash = settingsHash;
+      }
+
+      private boolean isValid(int displayDepth, long settingsHash)
+      {
+         return this.displayDepth == displayDepth && this.settingsHash == settingsHash;
+      }
+   }
+}
@@ -51,6 +51,8 @@ public class SurfaceElementICPSLAMParametersProperty extends ParametersProperty<
                                                                          SurfaceElementICPSLAMParameters::setComputeFramesInParallel);
    private final BooleanField warmStartDriftTransform = new BooleanField(SurfaceElementICPSLAMParameters::getWarmStartDriftTransform,
                                                                          SurfaceElementICPSLAMParameters::setWarmStartDriftTransform);
+   private final BooleanField useAnalyticJacobian = new BooleanField(SurfaceElementICPSLAMParameters::getUseAnalyticJacobian,
+                                                                     SurfaceElementICPSLAMParameters::setUseAnalyticJacobian);
 
    private final BooleanField includePitchAndRoll = new BooleanField(SurfaceElementICPSLAMParameters::getIncludePitchAndRoll,
                                                                      SurfaceElementICPSLAMParameters::setIncludePitchAndRoll);
@@ -169,6 +171,11 @@ public class SurfaceElementICPSLAMParametersProperty extends ParametersProperty<
       bindFieldBidirectionalToBooleanProperty(property, warmStartDriftTransform);
    }
 
+   public void bindBidirectionalUseAnalyticJacobian(Property<Boolean> property)
+   {
+      bindFieldBidirectionalToBooleanProperty(property, useAnalyticJacobian);
+   }
+
    public void bindBidirectionalIncludePitchAndRoll(Property<Boolean> property)
    {
       bindFieldBidirectionalToBooleanProperty(property, includePitchAndRoll);
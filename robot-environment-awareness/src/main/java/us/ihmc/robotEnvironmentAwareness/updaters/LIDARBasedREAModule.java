@@ -1,6 +1,7 @@
 package us.ihmc.robotEnvironmentAwareness.updaters;
 
 import java.util.HashMap;
+import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -20,6 +21,7 @@ import us.ihmc.communication.packets.PlanarRegionsRequestType;
 import us.ihmc.communication.util.NetworkPorts;
 import us.ihmc.euclid.geometry.Pose3D;
 import us.ihmc.euclid.geometry.interfaces.Pose3DReadOnly;
+import us.ihmc.jOctoMap.node.NormalOcTreeNode;
 import us.ihmc.jOctoMap.normalEstimation.NormalEstimationParameters;
 import us.ihmc.jOctoMap.ocTree.NormalOcTree;
 import us.ihmc.jOctoMap.tools.JOctoMapTools;
@@ -299,13 +301,14 @@ public class LIDARBasedREAModule implements PerceptionModule
                mainUpdater.clearOcTreeOnNextUpdate(depthCloudBufferUpdater);
 
             timeReporter.run(mainUpdater::update, ocTreeTimeReport);
-            timeReporter.run(() -> moduleStateReporter.reportOcTreeState(mainOctree), reportOcTreeStateTimeReport);
+            timeReporter.run(() -> moduleStateReporter.reportOcTreeState(mainOctree, mainUpdater::pollChangedLeafKeys), reportOcTreeStateTimeReport);
             moduleStateReporter.reportSensorPose(sensorPose);
 
             if (isThreadInterrupted())
                return;
 
-            timeReporter.run(() -> planarRegionFeatureUpdater.update(mainOctree, sensorPose.getPosition()), planarRegionsTimeReport);
+            Set<NormalOcTreeNode> updatedNodes = mainUpdater.pollUpdatedNodes();
+            timeReporter.run(() -> planarRegionFeatureUpdater.update(mainOctree, updatedNodes, sensorPose.getPosition()), planarRegionsTimeReport);
             timeReporter.run(() -> moduleStateReporter.reportPlanarRegionsState(planarRegionFeatureUpdater), reportPlanarRegionsStateTimeReport);
 
             networkProvider.update(planarRegionFeatureUpdater, ocTreeUpdateSuccess);
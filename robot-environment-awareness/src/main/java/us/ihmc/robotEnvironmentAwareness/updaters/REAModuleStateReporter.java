@@ -1,18 +1,22 @@
 package us.ihmc.robotEnvironmentAwareness.updaters;
 
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import controller_msgs.msg.dds.LidarScanMessage;
 import controller_msgs.msg.dds.StereoVisionPointCloudMessage;
 import us.ihmc.communication.packets.PlanarRegionMessageConverter;
 import us.ihmc.euclid.geometry.Pose3D;
 import us.ihmc.euclid.geometry.interfaces.Pose3DReadOnly;
+import us.ihmc.jOctoMap.key.OcTreeKey;
 import us.ihmc.jOctoMap.ocTree.NormalOcTree;
 import us.ihmc.messager.Messager;
 import us.ihmc.robotEnvironmentAwareness.communication.REAModuleAPI;
 import us.ihmc.robotEnvironmentAwareness.communication.converters.BoundingBoxMessageConverter;
 import us.ihmc.robotEnvironmentAwareness.communication.converters.OcTreeMessageConverter;
 import us.ihmc.robotEnvironmentAwareness.communication.converters.REAPlanarRegionsConverter;
+import us.ihmc.robotEnvironmentAwareness.communication.packets.NormalOcTreeMessage;
 import us.ihmc.robotics.geometry.PlanarRegionsList;
 
 public class REAModuleStateReporter
@@ -24,6 +28,8 @@ public class REAModuleStateReporter
    private final AtomicReference<Boolean> isPlanarRegionSegmentationRequested;
    private final AtomicReference<Boolean> arePlanarRegionsIntersectionsRequested;
 
+   private long ocTreeUpdateIndex = 0;
+
    public REAModuleStateReporter(Messager reaMessager)
    {
       this.reaMessager = reaMessager;
@@ -37,9 +43,28 @@ public class REAModuleStateReporter
    }
 
    public void reportOcTreeState(NormalOcTree ocTree)
+   {
+      reportOcTreeState(ocTree, () -> null);
+   }
+
+   /**
+    * Reports the octree if it has been requested, along with the keys of the leaves that changed
+    * since the previous report.
+    *
+    * @param ocTree                the octree to report.
+    * @param changedLeafKeysPoller polls the keys of the leaves that changed since the last poll, only
+    *                              called when the octree is reported. It can return {@code null}
+    *                              when they are unknown.
+    */
+   public void reportOcTreeState(NormalOcTree ocTree, Supplier<Set<OcTreeKey>> changedLeafKeysPoller)
    {
       if (isOcTreeRequested.getAndSet(false))
-         reaMessager.submitMessage(REAModuleAPI.OcTreeState, OcTreeMessageConverter.convertToMessage(ocTree));
+      {
+         NormalOcTreeMessage ocTreeMessage = OcTreeMessageConverter.convertToMessage(ocTree);
+         ocTreeMessage.updateIndex = ocTreeUpdateIndex++;
+         ocTreeMessage.changedLeafKeys = OcTreeMessageConverter.createOcTreeKeyMessages(changedLeafKeysPoller.get());
+         reaMessager.submitMessage(REAModuleAPI.OcTreeState, ocTreeMessage);
+      }
       if (isOcTreeBoundingBoxRequested.getAndSet(false))
          reaMessager.submitMessage(REAModuleAPI.OcTreeBoundingBoxState, BoundingBoxMessageConverter.convertToMessage(ocTree.getBoundingBox()));
    }
@@ -14,6 +14,7 @@ import us.ihmc.euclid.tuple3D.Point3D;
 import us.ihmc.euclid.tuple3D.interfaces.Point3DReadOnly;
 import us.ihmc.euclid.tuple4D.Quaternion;
 import us.ihmc.jOctoMap.boundingBox.OcTreeBoundingBoxWithCenterAndYaw;
+import us.ihmc.jOctoMap.key.OcTreeKey;
 import us.ihmc.jOctoMap.node.NormalOcTreeNode;
 import us.ihmc.jOctoMap.normalEstimation.NormalEstimationParameters;
 import us.ihmc.jOctoMap.ocTree.NormalOcTree;
@@ -27,6 +28,9 @@ import us.ihmc.robotEnvironmentAwareness.io.FilePropertyHelper;
 
 public class REAOcTreeUpdater
 {
+   /** Beyond this number of changed leaves, the octree is reported as entirely changed. */
+   private static final int MAX_NUMBER_OF_CHANGED_LEAF_KEYS = 100000;
+
    private final Messager reaMessager;
    private NormalOcTree referenceOctree;
    private Pose3DBasics sensorPose = new Pose3D();
@@ -49,6 +53,14 @@ public class REAOcTreeUpdater
    /** Lifetime of a node in milliseconds before it decays when not being hit. */
    private final AtomicReference<Long> nodeLifetimeMilliseconds;
 
+   /** Leaves updated by the scans inserted since the last call to {@link #pollUpdatedNodes()}. */
+   private Set<NormalOcTreeNode> updatedNodesSinceLastPoll = new HashSet<>();
+   /**
+    * Keys of the leaves updated or removed since the last call to {@link #pollChangedLeafKeys()},
+    * {@code null} when they are unknown, e.g. after the octree was cleared.
+    */
+   private Set<OcTreeKey> changedLeafKeysSinceLastPoll = new HashSet<>();
+
    public REAOcTreeUpdater(double octreeResolution, REAOcTreeBuffer[] buffers, Map<REAOcTreeBuffer, AtomicReference<Pose3D>> sensorPoses, Messager reaMessager)
    {
       initializeReferenceOctree(octreeResolution);
@@ -86,6 +98,7 @@ public class REAOcTreeUpdater
       referenceOctree.enableParallelComputationForNormals(true);
       referenceOctree.enableParallelInsertionOfMisses(true);
       referenceOctree.setCustomRayMissProbabilityUpdater(new AdaptiveRayMissProbabilityUpdater());
+      changedLeafKeysSinceLastPoll = null;
    }
 
    private void sendCurrentState()
@@ -176,14 +189,26 @@ public class REAOcTreeUpdater
          if (bufferOctree != null)
          {
             if (bufferClearRequest.get(buffer).getAndSet(false))
+            {
                referenceOctree.clear();
+               updatedNodesSinceLastPoll.clear();
+               changedLeafKeysSinceLastPoll = null;
+            }
 
             PointCloud pointCloud = new PointCloud();
             bufferOctree.forEach(node -> pointCloud.add(node.getHitLocationX(), node.getHitLocationY(), node.getHitLocationZ()));
             pointCloud.setTimestamp(TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
             Scan scan = new Scan(sensorOrigin, pointCloud);
             Set<NormalOcTreeNode> updatedNodes = new HashSet<>();
-            referenceOctree.insertScan(scan, updatedNodes, null);
+            Set<OcTreeKey> deletedLeaves = new HashSet<>();
+            referenceOctree.insertScan(scan, updatedNodes, deletedLeaves);
+            updatedNodesSinceLastPoll.addAll(updatedNodes);
+
+            if (changedLeafKeysSinceLastPoll != null)
+            {
+               updatedNodes.forEach(node -> changedLeafKeysSinceLastPoll.add(node.getKeyCopy()));
+               changedLeafKeysSinceLastPoll.addAll(deletedLeaves);
+            }
 
             if (nodeLifetimeMilliseconds.get() > 0L)
                decayOcTreeNodes();
@@ -197,9 +222,13 @@ public class REAOcTreeUpdater
          }
       }
 
+      if (changedLeafKeysSinceLastPoll != null && changedLeafKeysSinceLastPoll.size() > MAX_NUMBER_OF_CHANGED_LEAF_KEYS)
+         changedLeafKeysSinceLastPoll = null;
+
       if (clearNormals.getAndSet(false))
       {
          referenceOctree.clearNormals();
+         changedLeafKeysSinceLastPoll = null;
          return;
       }
 
@@ -219,7 +248,13 @@ public class REAOcTreeUpdater
          if (currentTimestamp - node.getLastHitTimestamp() >= nodeLifetimeMilliseconds.get())
             decayedNodes.add(node);
       }
-      decayedNodes.forEach(node -> referenceOctree.deleteNode(node.getKeyCopy()));
+      decayedNodes.forEach(node ->
+      {
+         OcTreeKey nodeKey = node.getKeyCopy();
+         referenceOctree.deleteNode(nodeKey);
+         if (changedLeafKeysSinceLastPoll != null)
+            changedLeafKeysSinceLastPoll.add(nodeKey);
+      });
    }
 
    public void clearOcTreeOnNextUpdate(REAOcTreeBuffer bufferToClear)
@@ -230,6 +265,44 @@ public class REAOcTreeUpdater
    public void clearOcTree()
    {
       referenceOctree.clear();
+      updatedNodesSinceLastPoll.clear();
+      changedLeafKeysSinceLastPoll = null;
+   }
+
+   /**
+    * Gets the leaves that have been updated since the last call to this method and resets the
+    * record. These can be used to perform an incremental planar region segmentation.
+    * <p>
+    * The leaves that have since been removed from the octree, because they decayed, were cleared by a
+    * later scan, or were pruned into their parent, are filtered out as they would otherwise seed new
+    * regions.
+    * </p>
+    */
+   public Set<NormalOcTreeNode> pollUpdatedNodes()
+   {
+      Set<NormalOcTreeNode> updatedNodes = updatedNodesSinceLastPoll;
+      updatedNodesSinceLastPoll = new HashSet<>();
+      updatedNodes.removeIf(node -> referenceOctree.search(node.getKeyCopy()) != node);
+      return updatedNodes;
+   }
+
+   /**
+    * Gets the keys of the leaves that have been updated or removed since the last call to this
+    * method and resets the record. These are used by the UI to only rebuild the parts of the octree
+    * mesh that have changed.
+    * <p>
+    * The normals refined by {@link NormalOcTree#updateNormals()} away from the inserted scans are not
+    * recorded, they show up the next time a leaf of the same region of the octree changes.
+    * </p>
+    *
+    * @return the keys of the changed leaves, or {@code null} if they are unknown because the octree
+    *         was cleared, re-initialized, or changed too much since the last call.
+    */
+   public Set<OcTreeKey> pollChangedLeafKeys()
+   {
+      Set<OcTreeKey> changedLeafKeys = changedLeafKeysSinceLastPoll;
+      changedLeafKeysSinceLastPoll = new HashSet<>();
+      return changedLeafKeys;
    }
 
    private void handleBoundingBox()
@@ -1,6 +1,7 @@
 package us.ihmc.robotEnvironmentAwareness.updaters;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
@@ -8,6 +9,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import us.ihmc.euclid.geometry.LineSegment3D;
 import us.ihmc.euclid.tuple3D.interfaces.Tuple3DReadOnly;
+import us.ihmc.jOctoMap.node.NormalOcTreeNode;
 import us.ihmc.jOctoMap.ocTree.NormalOcTree;
 import us.ihmc.messager.Messager;
 import us.ihmc.messager.MessagerAPIFactory.Topic;
@@ -32,6 +34,11 @@ import us.ihmc.robotics.geometry.PlanarRegionsList;
 public class REAPlanarRegionFeatureUpdater implements RegionFeaturesProvider
 {
    private static final boolean EXPORT_SEGMENTATION_ON_EXCEPTION = false;
+   /**
+    * When performing incremental segmentation, a full segmentation is still performed every this
+    * number of updates to catch the leaves entering the bounding box without being updated.
+    */
+   private static final int FULL_SEGMENTATION_PERIOD = 20;
 
    private static final String segmentationTimeReport = "Segmentation took: ";
    private static final String intersectionsTimeReport = "Processing intersections took: ";
@@ -47,6 +54,9 @@ public class REAPlanarRegionFeatureUpdater implements RegionFeaturesProvider
    private final TIntObjectHashMap<PlanarRegion> customPlanarRegions = new TIntObjectHashMap<>();
 
    private PlanarRegionsList planarRegionsList = null;
+   private int updatesSinceLastFullSegmentation = Integer.MAX_VALUE;
+   private PlanarRegionSegmentationParameters lastSegmentationParameters = null;
+   private SurfaceNormalFilterParameters lastSurfaceNormalFilterParameters = null;
    private List<LineSegment3D> planarRegionsIntersections = null;
 
    private AtomicReference<Boolean> isOcTreeEnabled;
@@ -282,6 +292,20 @@ public class REAPlanarRegionFeatureUpdater implements RegionFeaturesProvider
    }
 
    public void update(NormalOcTree octree, Tuple3DReadOnly sensorPosition)
+   {
+      update(octree, null, sensorPosition);
+   }
+
+   /**
+    * Updates the planar regions.
+    *
+    * @param octree         the octree to segment.
+    * @param updatedNodes   the leaves updated since the last call, when provided the segmentation is
+    *                       performed incrementally. Can be {@code null}, in which case a full
+    *                       segmentation is performed.
+    * @param sensorPosition the current sensor position.
+    */
+   public void update(NormalOcTree octree, Collection<NormalOcTreeNode> updatedNodes, Tuple3DReadOnly sensorPosition)
    {
       if (!isOcTreeEnabled.get())
          return;
@@ -289,6 +313,7 @@ public class REAPlanarRegionFeatureUpdater implements RegionFeaturesProvider
       if (clearSegmentation.getAndSet(false))
       {
          segmentationCalculator.clear();
+         updatesSinceLastFullSegmentation = Integer.MAX_VALUE;
          return;
       }
 
@@ -303,7 +328,22 @@ public class REAPlanarRegionFeatureUpdater implements RegionFeaturesProvider
       segmentationCalculator.setSurfaceNormalFilterParameters(surfaceNormalFilterParameters.get());
       segmentationCalculator.setSensorPosition(sensorPosition);
 
-      timeReporter.run(() -> segmentationCalculator.compute(octree.getRoot()), segmentationTimeReport);
+      PlanarRegionSegmentationParameters segmentationParameters = planarRegionSegmentationParameters.get();
+      SurfaceNormalFilterParameters normalFilterParameters = surfaceNormalFilterParameters.get();
+      boolean haveParametersChanged = segmentationParameters != lastSegmentationParameters || normalFilterParameters != lastSurfaceNormalFilterParameters;
+      lastSegmentationParameters = segmentationParameters;
+      lastSurfaceNormalFilterParameters = normalFilterParameters;
+
+      if (updatedNodes == null || haveParametersChanged || updatesSinceLastFullSegmentation >= FULL_SEGMENTATION_PERIOD)
+      {
+         timeReporter.run(() -> segmentationCalculator.compute(octree.getRoot()), segmentationTimeReport);
+         updatesSinceLastFullSegmentation = 0;
+      }
+      else
+      {
+         timeReporter.run(() -> segmentationCalculator.compute(octree.getRoot(), updatedNodes), segmentationTimeReport);
+         updatesSinceLastFullSegmentation++;
+      }
 
       List<PlanarRegionSegmentationRawData> rawData = segmentationCalculator.getSegmentationRawData();
 
@@ -360,6 +400,7 @@ public class REAPlanarRegionFeatureUpdater implements RegionFeaturesProvider
    public void clearOcTree()
    {
       segmentationCalculator.clear();
+      updatesSinceLastFullSegmentation = Integer.MAX_VALUE;
    }
 
    private void updatePolygons(List<PlanarRegionSegmentationRawData> rawData)
@@ -0,0 +1,234 @@
+package us.ihmc.robotEnvironmentAwareness.geometry;
+
+import static us.ihmc.robotics.Assert.assertEquals;
+import static us.ihmc.robotics.Assert.assertNull;
+import static us.ihmc.robotics.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.euclid.geometry.ConvexPolygon2D;
+import us.ihmc.euclid.geometry.interfaces.Vertex2DSupplier;
+import us.ihmc.euclid.geometry.tools.EuclidGeometryRandomTools;
+import us.ihmc.euclid.tuple2D.Point2D;
+
+public class HalfEdgeConcaveHullFactoryTest
+{
+   @Test
+   public void testSimplePointcloudFormingASquare()
+   {
+      List<Point2D> expectedHull = new ArrayList<>();
+      List<Point2D> pointcloud = new ArrayList<>();
+
+      double density = 0.005;
+      int sizeN = 20;
+
+      for (int i = 0; i < sizeN; i++)
+      {
+         for (int j = 0; j < sizeN; j++)
+         {
+            Point2D point = new Point2D(i * density + 0.4, j * density);
+            pointcloud.add(point);
+
+            if (i == 0 || i == sizeN - 1 || j == 0 || j == sizeN - 1)
+               expectedHull.add(point);
+         }
+      }
+
+      ConcaveHullFactoryParameters parameters = new ConcaveHullFactoryParameters();
+      parameters.setRemoveAllTrianglesWithTwoBorderEdges(false);
+      parameters.setTriangulationTolerance(1.0e-3);
+      parameters.setEdgeLengthThreshold(1.1 * density);
+
+      ConcaveHullCollection concaveHullCollection = new HalfEdgeConcaveHullFactory().createConcaveHullCollection(pointcloud, parameters);
+
+      assertEquals(1, concaveHullCollection.getNumberOfConcaveHulls());
+      ConcaveHull concaveHull = concaveHullCollection.iterator().next();
+      assertEquals(expectedHull.size(), concaveHull.getNumberOfVertices());
+
+      for (Point2D vertex : concaveHull)
+         assertTrue(expectedHull.contains(vertex));
+   }
+
+   @Test
+   public void testRandomCircleBasedConvexPointCloud()
+   {
+      Random random = new Random(5435);
+      HalfEdgeConcaveHullFactory factory = new HalfEdgeConcaveHullFactory();
+
+      for (int iteration = 0; iteration < 10; iteration++)
+      {
+         List<Point2D> expectedHull = EuclidGeometryRandomTools.nextCircleBasedConvexPolygon2D(random, 0.0, 0.08, 100);
+
+         List<Point2D> pointcloud = new ArrayList<>(expectedHull);
+         for (int i = 0; i < 2000; i++)
+            pointcloud.add(SimpleConcaveHullFactoryTest.nextPointInPointCloudHull(random, expectedHull));
+         Collections.shuffle(pointcloud, random);
+
+         ConcaveHullFactoryParameters parameters = new ConcaveHullFactoryParameters();
+         parameters.setTriangulationTolerance(1.0e-5);
+         parameters.setEdgeLengthThreshold(0.15);
+
+         ConcaveHullCollection concaveHullCollection = factory.createConcaveHullCollection(pointcloud, parameters);
+
+         assertEquals(1, concaveHullCollection.getNumberOfConcaveHulls());
+         for (Point2D vertex : concaveHullCollection.iterator().next())
+            assertTrue(expectedHull.contains(vertex));
+      }
+   }
+
+   @Test
+   public void testSplittingConcaveHull()
+   {
+      Random random = new Random(3453);
+      List<Point2D> pointcloud = new ArrayList<>();
+
+      // Two squares connected by a thin line of points which gets eroded.
+      for (int i = 0; i < 2000; i++)
+      {
+         double x = 0.4 * random.nextDouble();
+         double y = 0.4 * random.nextDouble();
+         pointcloud.add(new Point2D(x, y));
+         pointcloud.add(new Point2D(x + 0.6, y));
+      }
+
+      for (int i = 0; i < 20; i++)
+         pointcloud.add(new Point2D(0.4 + 0.01 * i, 0.2));
+
+      ConcaveHullFactoryParameters parameters = new ConcaveHullFactoryParameters();
+      parameters.setEdgeLengthThreshold(0.05);
+
+      HalfEdgeConcaveHullFactory factory = new HalfEdgeConcaveHullFactory();
+      ConcaveHullCollection concaveHullCollection = factory.createConcaveHullCollection(pointcloud, parameters);
+      assertEquals(2, concaveHullCollection.getNumberOfConcaveHulls());
+
+      for (ConcaveHull concaveHull : concaveHullCollection)
+      {
+         ConvexPolygon2D convexHull = new ConvexPolygon2D(Vertex2DSupplier.asVertex2DSupplier(concaveHull.getConcaveHullVertices()));
+         assertEquals(0.16, convexHull.getArea(), 0.01);
+      }
+
+      parameters.setAllowSplittingConcaveHull(false);
+      concaveHullCollection = factory.createConcaveHullCollection(pointcloud, parameters);
+      assertEquals(1, concaveHullCollection.getNumberOfConcaveHulls());
+   }
+
+   @Test
+   public void testCollinearPoints()
+   {
+      List<Point2D> pointcloud = new ArrayList<>();
+      for (int i = 0; i < 10; i++)
+         pointcloud.add(new Point2D(0.1 * i, 0.2 * i));
+
+      assertNull(new HalfEdgeConcaveHullFactory().createConcaveHullCollection(pointcloud, new ConcaveHullFactoryParameters()));
+   }
+
+   @Test
+   public void testBatchAgainstSingleRegion()
+   {
+      Random random = new Random(6574);
+      List<List<Point2D>> pointclouds = new ArrayList<>();
+
+      for (int i = 0; i < 20; i++)
+      {
+         List<Point2D> hull = EuclidGeometryRandomTools.nextCircleBasedConvexPolygon2D(random, 1.0, 0.5, 30);
+         List<Point2D> pointcloud = new ArrayList<>(hull);
+         for (int j = 0; j < 500; j++)
+            pointcloud.add(SimpleConcaveHullFactoryTest.nextPointInPointCloudHull(random, hull));
+         pointclouds.add(pointcloud);
+      }
+
+      ConcaveHullFactoryParameters parameters = new ConcaveHullFactoryParameters();
+      List<ConcaveHullCollection> concaveHullCollections = SimpleConcaveHullFactory.createConcaveHullCollections(pointclouds, null, parameters);
+      HalfEdgeConcaveHullFactory factory = new HalfEdgeConcaveHullFactory();
+
+      assertEquals(pointclouds.size(), concaveHullCollections.size());
+
+      for (int i = 0; i < pointclouds.size(); i++)
+      {
+         ConcaveHullCollection expected = factory.createConcaveHullCollection(pointclouds.get(i), parameters);
+         ConcaveHullCollection actual = concaveHullCollections.get(i);
+
+         assertEquals(expected.getNumberOfConcaveHulls(), actual.getNumberOfConcaveHulls());
+         assertTrue(expected.getConcaveHulls().containsAll(actual.getConcaveHulls()));
+      }
+   }
+
+   @Test
+   public void testParityWithJTSOnRandomPointClouds()
+   {
+      Random random = new Random(23423);
+      HalfEdgeConcaveHullFactory factory = new HalfEdgeConcaveHullFactory();
+      ConcaveHullFactoryParameters parameters = new ConcaveHullFactoryParameters();
+      parameters.setEdgeLengthThreshold(0.1);
+
+      for (int iteration = 0; iteration < 10; iteration++)
+      {
+         List<Point2D> hull = EuclidGeometryRandomTools.nextCircleBasedConvexPolygon2D(random, 1.0, 0.5, 30);
+         List<Point2D> pointcloud = new ArrayList<>(hull);
+         for (int i = 0; i < 1000; i++)
+            pointcloud.add(SimpleConcaveHullFactoryTest.nextPointInPointCloudHull(random, hull));
+         Collections.shuffle(pointcloud, random);
+
+         assertSameConcaveHulls(SimpleConcaveHullFactory.createConcaveHullCollection(pointcloud, parameters),
+                                factory.createConcaveHullCollection(pointcloud, parameters));
+      }
+   }
+
+   @Test
+   public void testParityWithJTSOnConcavePointClouds()
+   {
+      Random random = new Random(7456);
+      HalfEdgeConcaveHullFactory factory = new HalfEdgeConcaveHullFactory();
+      ConcaveHullFactoryParameters parameters = new ConcaveHullFactoryParameters();
+      parameters.setEdgeLengthThreshold(0.05);
+
+      for (int iteration = 0; iteration < 10; iteration++)
+      {
+         // U-shaped point cloud: a unit square without a notch of random width and depth.
+         double notchMinX = 0.2 + 0.2 * random.nextDouble();
+         double notchMaxX = notchMinX + 0.2 + 0.2 * random.nextDouble();
+         double notchMinY = 0.2 + 0.3 * random.nextDouble();
+         List<Point2D> pointcloud = new ArrayList<>();
+
+         while (pointcloud.size() < 3000)
+         {
+            double x = random.nextDouble();
+            double y = random.nextDouble();
+            if (x > notchMinX && x < notchMaxX && y > notchMinY)
+               continue;
+            pointcloud.add(new Point2D(x, y));
+         }
+
+         ConcaveHullCollection expected = SimpleConcaveHullFactory.createConcaveHullCollection(pointcloud, parameters);
+         ConcaveHullCollection actual = factory.createConcaveHullCollection(pointcloud, parameters);
+         assertSameConcaveHulls(expected, actual);
+
+         // The notch is part of the hull: the hull goes below its top.
+         ConcaveHull concaveHull = actual.iterator().next();
+         assertTrue(concaveHull.getConcaveHullVertices().stream().anyMatch(vertex -> vertex.getX() > notchMinX + 0.05 && vertex.getX() < notchMaxX - 0.05
+               && vertex.getY() < 0.9));
+      }
+   }
+
+   private static void assertSameConcaveHulls(ConcaveHullCollection expected, ConcaveHullCollection actual)
+   {
+      assertEquals(expected.getNumberOfConcaveHulls(), actual.getNumberOfConcaveHulls());
+      assertEquals(toVertexSets(expected), toVertexSets(actual));
+   }
+
+   /** The hulls may start at different vertices and be listed in different orders. */
+   private static Set<Set<Point2D>> toVertexSets(ConcaveHullCollection concaveHullCollection)
+   {
+      Set<Set<Point2D>> vertexSets = new HashSet<>();
+      for (ConcaveHull concaveHull : concaveHullCollection)
+         vertexSets.add(new HashSet<>(concaveHull.getConcaveHullVertices()));
+      return vertexSets;
+   }
+}
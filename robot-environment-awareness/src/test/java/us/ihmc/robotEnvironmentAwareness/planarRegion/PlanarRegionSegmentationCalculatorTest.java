@@ -0,0 +1,124 @@
+package us.ihmc.robotEnvironmentAwareness.planarRegion;
+
+import static us.ihmc.robotics.Assert.assertEquals;
+import static us.ihmc.robotics.Assert.assertFalse;
+import static us.ihmc.robotics.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.euclid.tuple3D.Point3D;
+import us.ihmc.jOctoMap.node.NormalOcTreeNode;
+import us.ihmc.jOctoMap.ocTree.NormalOcTree;
+import us.ihmc.jOctoMap.pointCloud.PointCloud;
+import us.ihmc.jOctoMap.pointCloud.Scan;
+
+public class PlanarRegionSegmentationCalculatorTest
+{
+   private static final double OCTREE_RESOLUTION = 0.05;
+   private static final double MIN_OVERLAP = 0.95;
+
+   @Test
+   public void testIncrementalSegmentationMatchesFullSegmentation()
+   {
+      Point3D sensorPosition = new Point3D(0.0, 0.0, 2.0);
+      NormalOcTree octree = new NormalOcTree(OCTREE_RESOLUTION);
+
+      PlanarRegionSegmentationCalculator fullCalculator = createCalculator(sensorPosition);
+      PlanarRegionSegmentationCalculator incrementalCalculator = createCalculator(sensorPosition);
+
+      // First scan: a patch of ground, both calculators start with a full segmentation.
+      PointCloud firstPointCloud = new PointCloud();
+      addHorizontalPatch(firstPointCloud, -0.5, 0.5, -0.5, 0.5, 0.0);
+      insertScan(octree, sensorPosition, firstPointCloud);
+
+      fullCalculator.compute(octree.getRoot());
+      incrementalCalculator.compute(octree.getRoot());
+      assertSegmentationsMatch(fullCalculator.getSegmentationNodeData(), incrementalCalculator.getSegmentationNodeData());
+      assertEquals(1, fullCalculator.getSegmentationNodeData().size());
+
+      // Second scan: extends the ground and sees a new platform.
+      PointCloud secondPointCloud = new PointCloud();
+      addHorizontalPatch(secondPointCloud, 0.5, 1.0, -0.5, 0.5, 0.0);
+      addHorizontalPatch(secondPointCloud, -0.5, 0.5, 0.8, 1.3, 0.4);
+      Set<NormalOcTreeNode> updatedNodes = insertScan(octree, sensorPosition, secondPointCloud);
+      assertFalse(updatedNodes.isEmpty());
+
+      fullCalculator.compute(octree.getRoot());
+      incrementalCalculator.compute(octree.getRoot(), updatedNodes);
+      assertEquals(2, fullCalculator.getSegmentationNodeData().size());
+      assertSegmentationsMatch(fullCalculator.getSegmentationNodeData(), incrementalCalculator.getSegmentationNodeData());
+
+      // The ground region has been grown from the new data.
+      assertTrue(incrementalCalculator.getSegmentationNodeData().stream().flatMap(PlanarRegionSegmentationNodeData::nodeStream)
+                                      .anyMatch(node -> node.getHitLocationX() > 0.6 && node.getHitLocationZ() < 0.2));
+
+      // No new data: the incremental update keeps the regions as they are.
+      incrementalCalculator.compute(octree.getRoot(), new HashSet<>());
+      assertSegmentationsMatch(fullCalculator.getSegmentationNodeData(), incrementalCalculator.getSegmentationNodeData());
+   }
+
+   private static PlanarRegionSegmentationCalculator createCalculator(Point3D sensorPosition)
+   {
+      PlanarRegionSegmentationCalculator calculator = new PlanarRegionSegmentationCalculator();
+      calculator.setParameters(new PlanarRegionSegmentationParameters());
+      calculator.setSurfaceNormalFilterParameters(new SurfaceNormalFilterParameters());
+      calculator.setBoundingBox(null);
+      calculator.setSensorPosition(sensorPosition);
+      return calculator;
+   }
+
+   private static void addHorizontalPatch(PointCloud pointCloud, double xMin, double xMax, double yMin, double yMax, double z)
+   {
+      double step = 0.5 * OCTREE_RESOLUTION;
+
+      for (double x = xMin; x < xMax; x += step)
+      {
+         for (double y = yMin; y < yMax; y += step)
+            pointCloud.add(x, y, z);
+      }
+   }
+
+   private static Set<NormalOcTreeNode> insertScan(NormalOcTree octree, Point3D sensorPosition, PointCloud pointCloud)
+   {
+      Set<NormalOcTreeNode> updatedNodes = new HashSet<>();
+      octree.insertScan(new Scan(sensorPosition, pointCloud), updatedNodes, null);
+
+      for (int i = 0; i < 5; i++)
+         octree.updateNormals();
+
+      return updatedNodes;
+   }
+
+   /**
+    * Each region of the full segmentation has to match a region of the incremental segmentation,
+    * such that most of their nodes are shared. The nodes at the border of a region can end up in
+    * either since the growth order differs.
+    */
+   private static void assertSegmentationsMatch(List<PlanarRegionSegmentationNodeData> expected, List<PlanarRegionSegmentationNodeData> actual)
+   {
+      assertEquals(expected.size(), actual.size());
+
+      List<Set<NormalOcTreeNode>> actualNodeSets = actual.stream().map(region -> region.nodeStream().collect(Collectors.toSet()))
+                                                         .collect(Collectors.toList());
+
+      for (PlanarRegionSegmentationNodeData expectedRegion : expected)
+      {
+         Set<NormalOcTreeNode> expectedNodes = expectedRegion.nodeStream().collect(Collectors.toSet());
+         double bestOverlap = 0.0;
+
+         for (Set<NormalOcTreeNode> actualNodes : actualNodeSets)
+         {
+            long numberOfSharedNodes = expectedNodes.stream().filter(actualNodes::contains).count();
+            double overlap = numberOfSharedNodes / (double) Math.max(expectedNodes.size(), actualNodes.size());
+            bestOverlap = Math.max(bestOverlap, overlap);
+         }
+
+         assertTrue("Region overlap: " + bestOverlap, bestOverlap >= MIN_OVERLAP);
+      }
+   }
+}
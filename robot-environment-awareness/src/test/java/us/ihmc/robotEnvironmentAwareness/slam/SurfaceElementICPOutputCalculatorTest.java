@@ -0,0 +1,173 @@
+package us.ihmc.robotEnvironmentAwareness.slam;
+
+import static us.ihmc.robotics.Assert.assertEquals;
+import static us.ihmc.robotics.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.ejml.data.DMatrixRMaj;
+import org.junit.jupiter.api.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import us.ihmc.euclid.geometry.Plane3D;
+import us.ihmc.euclid.geometry.interfaces.Plane3DReadOnly;
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.euclid.tuple3D.Point3D;
+import us.ihmc.euclid.tuple3D.Vector3D;
+import us.ihmc.jOctoMap.ocTree.NormalOcTree;
+import us.ihmc.robotEnvironmentAwareness.slam.tools.SLAMTools;
+import us.ihmc.robotics.optimization.LevenbergMarquardtParameterOptimizer;
+
+public class SurfaceElementICPOutputCalculatorTest
+{
+   private static final double OCTREE_RESOLUTION = 0.02;
+   private static final double FINITE_DIFFERENCE_STEP = 1.0e-5;
+   private static final double EPSILON = 1.0e-4;
+
+   /** The map is a single tilted plane z = a x + b y + c. */
+   private static final double PLANE_A = 0.2;
+   private static final double PLANE_B = -0.1;
+   private static final double PLANE_C = 0.5;
+
+   @Test
+   public void testAnalyticJacobianMatchesFiniteDifference()
+   {
+      Random random = new Random(3429L);
+      NormalOcTree map = createPlaneMap();
+
+      for (boolean includePitchAndRoll : new boolean[] {false, true})
+      {
+         RigidBodyTransform uncorrectedLocalPoseInWorld = new RigidBodyTransform();
+         uncorrectedLocalPoseInWorld.getRotation().setYawPitchRoll(0.4, -0.1, 0.2);
+         uncorrectedLocalPoseInWorld.getTranslation().set(0.1, -0.2, 0.3);
+         List<Plane3DReadOnly> surfaceElements = createSurfaceElementsInLocal(random, uncorrectedLocalPoseInWorld, 50);
+
+         SurfaceElementICPSLAMParameters parameters = new SurfaceElementICPSLAMParameters();
+         parameters.setIncludePitchAndRoll(includePitchAndRoll);
+         parameters.setUseAnalyticJacobian(true);
+         parameters.setBoundRatio(4.0);
+
+         Function<DMatrixRMaj, RigidBodyTransform> transformConverter = LevenbergMarquardtParameterOptimizer.createSpatialInputFunction(includePitchAndRoll);
+         SurfaceElementICPOutputCalculator calculator = new SurfaceElementICPOutputCalculator(map,
+                                                                                              surfaceElements,
+                                                                                              uncorrectedLocalPoseInWorld,
+                                                                                              transformConverter,
+                                                                                              parameters);
+
+         DMatrixRMaj inputParameter = new DMatrixRMaj(includePitchAndRoll ? 6 : 4, 1);
+         inputParameter.set(0, 0.003);
+         inputParameter.set(1, -0.002);
+         inputParameter.set(2, 0.001);
+         inputParameter.set(3, 0.02);
+         if (includePitchAndRoll)
+         {
+            inputParameter.set(4, -0.015);
+            inputParameter.set(5, 0.01);
+         }
+
+         DMatrixRMaj expectedJacobian = computeFiniteDifferenceJacobian(calculator, inputParameter);
+
+         // The analytic Jacobian uses the gradients saved by the last evaluation.
+         DMatrixRMaj output = calculator.apply(inputParameter);
+         for (int i = 0; i < output.getNumRows(); i++)
+            assertTrue("Surface element " + i + " has no neighbor: " + output.get(i), output.get(i) < OCTREE_RESOLUTION * parameters.getBoundRatio());
+
+         DMatrixRMaj actualJacobian = new DMatrixRMaj(0, 0);
+         assertTrue(calculator.computeJacobian(inputParameter, actualJacobian));
+         assertJacobianEquals(expectedJacobian, actualJacobian, null);
+
+         // Only a subset of the surface elements, as done by the optimizer for the correspondences.
+         TIntArrayList indicesToCompute = new TIntArrayList();
+         for (int i = 0; i < surfaceElements.size(); i += 3)
+            indicesToCompute.add(i);
+         calculator.setIndicesToCompute(indicesToCompute);
+         calculator.apply(inputParameter);
+         assertTrue(calculator.computeJacobian(inputParameter, actualJacobian));
+         assertJacobianEquals(expectedJacobian, actualJacobian, indicesToCompute);
+      }
+   }
+
+   private static DMatrixRMaj computeFiniteDifferenceJacobian(SurfaceElementICPOutputCalculator calculator, DMatrixRMaj inputParameter)
+   {
+      int numberOfRows = calculator.apply(inputParameter).getNumRows();
+      DMatrixRMaj jacobian = new DMatrixRMaj(numberOfRows, inputParameter.getNumRows());
+      DMatrixRMaj perturbedInput = new DMatrixRMaj(inputParameter);
+
+      for (int col = 0; col < inputParameter.getNumRows(); col++)
+      {
+         perturbedInput.set(inputParameter);
+         perturbedInput.add(col, 0, FINITE_DIFFERENCE_STEP);
+         DMatrixRMaj outputPlus = new DMatrixRMaj(calculator.apply(perturbedInput));
+
+         perturbedInput.set(inputParameter);
+         perturbedInput.add(col, 0, -FINITE_DIFFERENCE_STEP);
+         DMatrixRMaj outputMinus = new DMatrixRMaj(calculator.apply(perturbedInput));
+
+         for (int row = 0; row < numberOfRows; row++)
+            jacobian.set(row, col, (outputPlus.get(row) - outputMinus.get(row)) / (2.0 * FINITE_DIFFERENCE_STEP));
+      }
+
+      return jacobian;
+   }
+
+   private static void assertJacobianEquals(DMatrixRMaj expectedJacobian, DMatrixRMaj actualJacobian, TIntArrayList indices)
+   {
+      int numberOfRows = indices == null ? expectedJacobian.getNumRows() : indices.size();
+      assertEquals(numberOfRows, actualJacobian.getNumRows());
+      assertEquals(expectedJacobian.getNumCols(), actualJacobian.getNumCols());
+
+      for (int row = 0; row < numberOfRows; row++)
+      {
+         int expectedRow = indices == null ? row : indices.get(row);
+
+         for (int col = 0; col < expectedJacobian.getNumCols(); col++)
+            assertEquals("Row " + expectedRow + ", column " + col, expectedJacobian.get(expectedRow, col), actualJacobian.get(row, col), EPSILON);
+      }
+   }
+
+   private static NormalOcTree createPlaneMap()
+   {
+      List<Point3D> pointCloud = new ArrayList<>();
+      double step = 0.5 * OCTREE_RESOLUTION;
+
+      for (double x = -0.6; x < 0.6; x += step)
+      {
+         for (double y = -0.6; y < 0.6; y += step)
+            pointCloud.add(new Point3D(x, y, PLANE_A * x + PLANE_B * y + PLANE_C));
+      }
+
+      return SLAMTools.computeOctreeData(pointCloud, new Point3D(0.0, 0.0, 2.0), OCTREE_RESOLUTION);
+   }
+
+   /**
+    * Creates surface elements in the interior of the plane, offset on either side of it such that the
+    * distance to the map is differentiable.
+    */
+   private static List<Plane3DReadOnly> createSurfaceElementsInLocal(Random random, RigidBodyTransform localPoseInWorld, int numberOfSurfaceElements)
+   {
+      Vector3D planeNormal = new Vector3D(-PLANE_A, -PLANE_B, 1.0);
+      planeNormal.normalize();
+
+      List<Plane3DReadOnly> surfaceElements = new ArrayList<>();
+
+      for (int i = 0; i < numberOfSurfaceElements; i++)
+      {
+         double x = 0.6 * (random.nextDouble() - 0.5);
+         double y = 0.6 * (random.nextDouble() - 0.5);
+         double offset = (random.nextBoolean() ? 1.0 : -1.0) * (0.005 + 0.01 * random.nextDouble());
+
+         Point3D pointInWorld = new Point3D(x, y, PLANE_A * x + PLANE_B * y + PLANE_C);
+         pointInWorld.scaleAdd(offset, planeNormal, pointInWorld);
+
+         Plane3D surfaceElement = new Plane3D(pointInWorld, planeNormal);
+         localPoseInWorld.inverseTransform(surfaceElement.getPoint());
+         localPoseInWorld.inverseTransform(surfaceElement.getNormal());
+         surfaceElements.add(surfaceElement);
+      }
+
+      return surfaceElements;
+   }
+}
@@ -0,0 +1,146 @@
+package us.ihmc.robotEnvironmentAwareness.ui.graphicsBuilders;
+
+import static us.ihmc.robotics.Assert.assertEquals;
+import static us.ihmc.robotics.Assert.assertNotNull;
+import static us.ihmc.robotics.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import gnu.trove.set.hash.TLongHashSet;
+import us.ihmc.euclid.geometry.Pose3D;
+import us.ihmc.euclid.tuple3D.Point3D;
+
+public class SubTreeMeshCacheTest
+{
+   private static final int TREE_DEPTH = 16;
+   private static final int SUB_TREE_ROOT_DEPTH = 8;
+   /** Number of leaves along each axis of a sub-tree. */
+   private static final int SUB_TREE_WIDTH = 1 << (TREE_DEPTH - SUB_TREE_ROOT_DEPTH);
+
+   @Test
+   public void testSubTreeIndex()
+   {
+      int base0 = 130 * SUB_TREE_WIDTH;
+      int base1 = 127 * SUB_TREE_WIDTH;
+      int base2 = 129 * SUB_TREE_WIDTH;
+      long subTreeIndex = computeSubTreeIndex(base0, base1, base2);
+
+      // The root of the sub-tree, whatever the key of an inner node is, and all its leaves share the index.
+      assertEquals(subTreeIndex, computeSubTreeIndex(base0 + SUB_TREE_WIDTH / 2, base1 + SUB_TREE_WIDTH / 2, base2 + SUB_TREE_WIDTH / 2));
+      assertEquals(subTreeIndex, computeSubTreeIndex(base0 + SUB_TREE_WIDTH - 1, base1 + 3, base2 + SUB_TREE_WIDTH - 1));
+
+      // Crossing the border of the sub-tree along any axis changes the index.
+      assertTrue(subTreeIndex != computeSubTreeIndex(base0 + SUB_TREE_WIDTH, base1, base2));
+      assertTrue(subTreeIndex != computeSubTreeIndex(base0, base1 - 1, base2));
+      assertTrue(subTreeIndex != computeSubTreeIndex(base0, base1, base2 + SUB_TREE_WIDTH));
+      // The key components are not mixed up.
+      assertTrue(computeSubTreeIndex(base0, base1, base2) != computeSubTreeIndex(base2, base1, base0));
+   }
+
+   @Test
+   public void testOnlyChangedSubTreesAreRebuilt()
+   {
+      SubTreeMeshCache<Object> cache = new SubTreeMeshCache<>();
+      AtomicInteger numberOfBuiltMeshes = new AtomicInteger();
+      long[] subTrees = {computeSubTreeIndex(0, 0, 0), computeSubTreeIndex(SUB_TREE_WIDTH, 0, 0), computeSubTreeIndex(0, 0, SUB_TREE_WIDTH)};
+      Object[] meshes = new Object[subTrees.length];
+
+      // First update, everything is built.
+      cache.startUpdate(null, 1L);
+      for (int i = 0; i < subTrees.length; i++)
+         meshes[i] = getMesh(cache, subTrees[i], 16, numberOfBuiltMeshes);
+      assertEquals(3, numberOfBuiltMeshes.get());
+
+      // Nothing changed, the meshes are reused.
+      cache.startUpdate(new TLongHashSet(), 1L);
+      for (int i = 0; i < subTrees.length; i++)
+         assertTrue(meshes[i] == getMesh(cache, subTrees[i], 16, numberOfBuiltMeshes));
+      assertEquals(3, numberOfBuiltMeshes.get());
+
+      // A leaf of the second sub-tree changed.
+      TLongHashSet dirtySubTrees = new TLongHashSet();
+      dirtySubTrees.add(computeSubTreeIndex(SUB_TREE_WIDTH + 5, 7, 2));
+      cache.startUpdate(dirtySubTrees, 1L);
+      assertTrue(meshes[0] == getMesh(cache, subTrees[0], 16, numberOfBuiltMeshes));
+      Object rebuiltMesh = getMesh(cache, subTrees[1], 16, numberOfBuiltMeshes);
+      assertTrue(meshes[1] != rebuiltMesh);
+      meshes[1] = rebuiltMesh;
+      assertTrue(meshes[2] == getMesh(cache, subTrees[2], 16, numberOfBuiltMeshes));
+      assertEquals(4, numberOfBuiltMeshes.get());
+
+      // The display depth of the third sub-tree changed.
+      cache.startUpdate(new TLongHashSet(), 1L);
+      assertTrue(meshes[0] == getMesh(cache, subTrees[0], 16, numberOfBuiltMeshes));
+      assertTrue(meshes[1] == getMesh(cache, subTrees[1], 16, numberOfBuiltMeshes));
+      rebuiltMesh = getMesh(cache, subTrees[2], 15, numberOfBuiltMeshes);
+      assertTrue(meshes[2] != rebuiltMesh);
+      meshes[2] = rebuiltMesh;
+      assertEquals(5, numberOfBuiltMeshes.get());
+
+      // The first sub-tree is gone, it is dropped from the cache and built again if it comes back.
+      cache.startUpdate(new TLongHashSet(), 1L);
+      assertTrue(meshes[1] == getMesh(cache, subTrees[1], 16, numberOfBuiltMeshes));
+      assertTrue(meshes[2] == getMesh(cache, subTrees[2], 15, numberOfBuiltMeshes));
+      assertEquals(2, cache.getNumberOfMeshes());
+      cache.startUpdate(new TLongHashSet(), 1L);
+      assertNotNull(getMesh(cache, subTrees[0], 16, numberOfBuiltMeshes));
+      assertEquals(6, numberOfBuiltMeshes.get());
+
+      // The display settings changed, everything is rebuilt.
+      cache.startUpdate(new TLongHashSet(), 2L);
+      for (int i = 0; i < subTrees.length; i++)
+         assertTrue(meshes[i] != getMesh(cache, subTrees[i], i == 2 ? 15 : 16, numberOfBuiltMeshes));
+      assertEquals(9, numberOfBuiltMeshes.get());
+
+      // The changed leaves are unknown, everything is rebuilt.
+      cache.startUpdate(null, 2L);
+      for (int i = 0; i < subTrees.length; i++)
+         getMesh(cache, subTrees[i], i == 2 ? 15 : 16, numberOfBuiltMeshes);
+      assertEquals(12, numberOfBuiltMeshes.get());
+   }
+
+   @Test
+   public void testSubTreeDisplayDepth()
+   {
+      Pose3D focus = new Pose3D(1.0, 2.0, 0.5, 0.3, 0.0, 0.0);
+      double distanceUnit = SubTreeMeshCache.LEVEL_OF_DETAIL_DISTANCE;
+
+      assertEquals(16, SubTreeMeshCache.computeSubTreeDisplayDepth(pointAtDistance(focus, 100.0), 16, SUB_TREE_ROOT_DEPTH, null));
+      assertEquals(16, SubTreeMeshCache.computeSubTreeDisplayDepth(pointAtDistance(focus, 0.0), 16, SUB_TREE_ROOT_DEPTH, focus));
+      assertEquals(16, SubTreeMeshCache.computeSubTreeDisplayDepth(pointAtDistance(focus, 0.9 * distanceUnit), 16, SUB_TREE_ROOT_DEPTH, focus));
+      assertEquals(15, SubTreeMeshCache.computeSubTreeDisplayDepth(pointAtDistance(focus, 1.1 * distanceUnit), 16, SUB_TREE_ROOT_DEPTH, focus));
+      assertEquals(15, SubTreeMeshCache.computeSubTreeDisplayDepth(pointAtDistance(focus, 1.9 * distanceUnit), 16, SUB_TREE_ROOT_DEPTH, focus));
+      assertEquals(14, SubTreeMeshCache.computeSubTreeDisplayDepth(pointAtDistance(focus, 2.1 * distanceUnit), 16, SUB_TREE_ROOT_DEPTH, focus));
+      assertEquals(13, SubTreeMeshCache.computeSubTreeDisplayDepth(pointAtDistance(focus, 4.1 * distanceUnit), 16, SUB_TREE_ROOT_DEPTH, focus));
+      // The reduction is bounded.
+      assertEquals(16 - SubTreeMeshCache.MAX_LEVEL_OF_DETAIL_REDUCTION,
+                   SubTreeMeshCache.computeSubTreeDisplayDepth(pointAtDistance(focus, 1000.0), 16, SUB_TREE_ROOT_DEPTH, focus));
+
+      // Never coarser than the root of the sub-trees, unless the requested depth already is.
+      assertEquals(SUB_TREE_ROOT_DEPTH, SubTreeMeshCache.computeSubTreeDisplayDepth(pointAtDistance(focus, 1000.0), 9, SUB_TREE_ROOT_DEPTH, focus));
+      assertEquals(6, SubTreeMeshCache.computeSubTreeDisplayDepth(pointAtDistance(focus, 1000.0), 6, SUB_TREE_ROOT_DEPTH, focus));
+   }
+
+   private static Object getMesh(SubTreeMeshCache<Object> cache, long subTreeIndex, int displayDepth, AtomicInteger numberOfBuiltMeshes)
+   {
+      return cache.getMesh(subTreeIndex, displayDepth, () ->
+      {
+         numberOfBuiltMeshes.incrementAndGet();
+         return new Object();
+      });
+   }
+
+   private static long computeSubTreeIndex(int key0, int key1, int key2)
+   {
+      return SubTreeMeshCache.computeSubTreeIndex(key0, key1, key2, TREE_DEPTH, SUB_TREE_ROOT_DEPTH);
+   }
+
+   private static Point3D pointAtDistance(Pose3D focus, double distance)
+   {
+      Point3D point = new Point3D(0.6, -0.8, 0.0);
+      point.scaleAdd(distance, focus.getPosition());
+      return point;
+   }
+}
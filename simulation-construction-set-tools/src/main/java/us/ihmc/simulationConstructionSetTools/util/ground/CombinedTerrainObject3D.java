@@ -39,6 +39,11 @@ public class CombinedTerrainObject3D implements TerrainObject3D, HeightMapWithNo
 
    private final ArrayList<Shape3DReadOnly> terrainCollisionShapes = new ArrayList<>();
 
+   /** Built on the first query after adding objects, to only check the objects near the query point. */
+   private final TerrainObject3DGrid terrainObjectGrid = new TerrainObject3DGrid();
+   private boolean isTerrainObjectGridUpToDate = false;
+   private int[] candidateObjects = new int[0];
+
    public CombinedTerrainObject3D(String name)
    {
       linkGraphics = new Graphics3DObject();
@@ -144,6 +149,7 @@ public class CombinedTerrainObject3D implements TerrainObject3D, HeightMapWithNo
    public void addTerrainObject(TerrainObject3D object)
    {
       terrainObjects.add(object);
+      isTerrainObjectGridUpToDate = false;
       linkGraphics.combine(object.getLinkGraphics());
 
       if (object.getTerrainCollisionShapes() != null)
@@ -192,9 +198,11 @@ public class CombinedTerrainObject3D implements TerrainObject3D, HeightMapWithNo
       intersectionToPack.set(x, y, 0.0);
       normalToPack.set(0.0, 0.0, 1.0);
 
-      for (int i = 0; i < terrainObjects.size(); i++)
+      int numberOfCandidates = findCandidateObjects(x, y);
+
+      for (int i = 0; i < numberOfCandidates; i++)
       {
-         TerrainObject3D terrainObject = terrainObjects.get(i);
+         TerrainObject3D terrainObject = terrainObjects.get(candidateObjects[i]);
          if (terrainObject.isClose(x, y, z))
          {
             boolean localIsInside = terrainObject.checkIfInside(x, y, z, localIntersection, localNormal);
@@ -299,9 +307,11 @@ public class CombinedTerrainObject3D implements TerrainObject3D, HeightMapWithNo
    {
       double heightAt = Double.NEGATIVE_INFINITY;
 
-      for (int i = 0; i < terrainObjects.size(); i++)
+      int numberOfCandidates = findCandidateObjects(x, y);
+
+      for (int i = 0; i < numberOfCandidates; i++)
       {
-         TerrainObject3D terrainObject = terrainObjects.get(i);
+         TerrainObject3D terrainObject = terrainObjects.get(candidateObjects[i]);
 
          if (terrainObject.isClose(x, y, z))
          {
@@ -325,9 +335,11 @@ public class CombinedTerrainObject3D implements TerrainObject3D, HeightMapWithNo
    {
       double heightAt = Double.NEGATIVE_INFINITY;
 
-      for (int i = 0; i < terrainObjects.size(); i++)
+      int numberOfCandidates = findCandidateObjects(x, y);
+
+      for (int i = 0; i < numberOfCandidates; i++)
       {
-         TerrainObject3D terrainObject = terrainObjects.get(i);
+         TerrainObject3D terrainObject = terrainObjects.get(candidateObjects[i]);
 
          if (terrainObject.isClose(x, y, z))
          {
@@ -346,6 +358,19 @@ public class CombinedTerrainObject3D implements TerrainObject3D, HeightMapWithNo
       return heightAt;
    }
 
+   private int findCandidateObjects(double x, double y)
+   {
+      // The list returned by getTerrainObjects() may also have been modified directly
+      if (!isTerrainObjectGridUpToDate || terrainObjectGrid.getNumberOfObjects() != terrainObjects.size())
+      {
+         terrainObjectGrid.build(terrainObjects);
+         candidateObjects = new int[terrainObjects.size()];
+         isTerrainObjectGridUpToDate = true;
+      }
+
+      return terrainObjectGrid.findCandidateObjects(x, y, candidateObjects);
+   }
+
    public double getXMin()
    {
       return boundingBox.getMinX();
@@ -0,0 +1,198 @@
+package us.ihmc.simulationConstructionSetTools.util.ground;
+
+import java.util.Arrays;
+import java.util.List;
+
+import us.ihmc.euclid.geometry.BoundingBox3D;
+import us.ihmc.simulationconstructionset.util.ground.TerrainObject3D;
+
+/**
+ * Uniform xy-grid over the bounding boxes of a list of terrain objects, used to only query the
+ * objects that can be close to a point.
+ * <p>
+ * A point query returns the objects whose bounding box contains the point in the xy-plane, in the
+ * order they appear in the list, such that ties are resolved the same way as when going through the
+ * whole list. The height is not used to discard objects as some objects, like
+ * {@link PlanarRegionTerrainObject}, are close to any point above or below them. Objects without a
+ * finite bounding box, or much larger than the others, are not stored in the grid and are always
+ * returned.
+ * </p>
+ */
+public class TerrainObject3DGrid
+{
+   private static final int MAXIMUM_NUMBER_OF_CELLS = 1 << 18;
+   /** Objects larger than this multiple of the typical object size are checked for every query instead of filling many cells. */
+   private static final double LARGE_OBJECT_RATIO = 32.0;
+   private static final double MINIMUM_CELL_SIZE = 0.01;
+
+   private int numberOfObjects = 0;
+
+   private double cellSize;
+   private double xMin, yMin;
+   private int numberOfCellsX = 0, numberOfCellsY = 0;
+
+   /** The objects of the cell {@code i} are stored between {@code cellStartIndices[i]} and {@code cellStartIndices[i + 1]}. */
+   private int[] cellStartIndices = new int[1];
+   private int[] cellObjectIndices = new int[0];
+   /** Objects that are not in the grid, sorted. */
+   private int[] unindexedObjectIndices = new int[0];
+
+   public void build(List<? extends TerrainObject3D> terrainObjects)
+   {
+      numberOfObjects = terrainObjects.size();
+
+      int[] indexedObjects = new int[numberOfObjects];
+      int[] unindexedObjects = new int[numberOfObjects];
+      int numberOfIndexedObjects = 0, numberOfUnindexedObjects = 0;
+      double[] objectSizes = new double[numberOfObjects];
+      int numberOfFiniteObjects = 0;
+
+      for (int i = 0; i < numberOfObjects; i++)
+      {
+         BoundingBox3D boundingBox = terrainObjects.get(i).getBoundingBox();
+         if (isFinite(boundingBox))
+            objectSizes[numberOfFiniteObjects++] = Math.max(boundingBox.getMaxX() - boundingBox.getMinX(), boundingBox.getMaxY() - boundingBox.getMinY());
+      }
+
+      double typicalSize = MINIMUM_CELL_SIZE;
+      if (numberOfFiniteObjects > 0)
+      {
+         Arrays.sort(objectSizes, 0, numberOfFiniteObjects);
+         typicalSize = Math.max(objectSizes[numberOfFiniteObjects / 2], MINIMUM_CELL_SIZE);
+      }
+
+      double xMax = Double.NEGATIVE_INFINITY, yMax = Double.NEGATIVE_INFINITY;
+      xMin = Double.POSITIVE_INFINITY;
+      yMin = Double.POSITIVE_INFINITY;
+
+      for (int i = 0; i < numberOfObjects; i++)
+      {
+         BoundingBox3D boundingBox = terrainObjects.get(i).getBoundingBox();
+
+         if (!isFinite(boundingBox)
+               || Math.max(boundingBox.getMaxX() - boundingBox.getMinX(), boundingBox.getMaxY() - boundingBox.getMinY()) > LARGE_OBJECT_RATIO * typicalSize)
+         {
+            unindexedObjects[numberOfUnindexedObjects++] = i;
+            continue;
+         }
+
+         indexedObjects[numberOfIndexedObjects++] = i;
+         xMin = Math.min(xMin, boundingBox.getMinX());
+         yMin = Math.min(yMin, boundingBox.getMinY());
+         xMax = Math.max(xMax, boundingBox.getMaxX());
+         yMax = Math.max(yMax, boundingBox.getMaxY());
+      }
+
+      unindexedObjectIndices = Arrays.copyOf(unindexedObjects, numberOfUnindexedObjects);
+
+      if (numberOfIndexedObjects == 0)
+      {
+         numberOfCellsX = 0;
+         numberOfCellsY = 0;
+         cellStartIndices = new int[1];
+         cellObjectIndices = new int[0];
+         return;
+      }
+
+      cellSize = typicalSize;
+      double numberOfCells = Math.ceil((xMax - xMin) / cellSize + 1.0) * Math.ceil((yMax - yMin) / cellSize + 1.0);
+      if (numberOfCells > MAXIMUM_NUMBER_OF_CELLS)
+         cellSize *= Math.sqrt(numberOfCells / MAXIMUM_NUMBER_OF_CELLS);
+
+      numberOfCellsX = (int) ((xMax - xMin) / cellSize) + 1;
+      numberOfCellsY = (int) ((yMax - yMin) / cellSize) + 1;
+
+      // first pass counts the objects of each cell, second pass fills them in, in increasing order
+      cellStartIndices = new int[numberOfCellsX * numberOfCellsY + 1];
+
+      for (int i = 0; i < numberOfIndexedObjects; i++)
+      {
+         BoundingBox3D boundingBox = terrainObjects.get(indexedObjects[i]).getBoundingBox();
+         for (int xIndex = toIndexX(boundingBox.getMinX()); xIndex <= toIndexX(boundingBox.getMaxX()); xIndex++)
+         {
+            for (int yIndex = toIndexY(boundingBox.getMinY()); yIndex <= toIndexY(boundingBox.getMaxY()); yIndex++)
+               cellStartIndices[toCellIndex(xIndex, yIndex) + 1]++;
+         }
+      }
+
+      for (int i = 1; i < cellStartIndices.length; i++)
+         cellStartIndices[i] += cellStartIndices[i - 1];
+
+      cellObjectIndices = new int[cellStartIndices[cellStartIndices.length - 1]];
+      int[] cellFillIndices = Arrays.copyOf(cellStartIndices, cellStartIndices.length - 1);
+
+      for (int i = 0; i < numberOfIndexedObjects; i++)
+      {
+         int objectIndex = indexedObjects[i];
+         BoundingBox3D boundingBox = terrainObjects.get(objectIndex).getBoundingBox();
+         for (int xIndex = toIndexX(boundingBox.getMinX()); xIndex <= toIndexX(boundingBox.getMaxX()); xIndex++)
+         {
+            for (int yIndex = toIndexY(boundingBox.getMinY()); yIndex <= toIndexY(boundingBox.getMaxY()); yIndex++)
+               cellObjectIndices[cellFillIndices[toCellIndex(xIndex, yIndex)]++] = objectIndex;
+         }
+      }
+   }
+
+   /**
+    * Finds the objects that may be close to the given point.
+    *
+    * @param candidateObjectsToPack the indices of the candidate objects, sorted in increasing order.
+    *                               Needs to be at least as long as the number of objects. Modified.
+    * @return the number of candidate objects.
+    */
+   public int findCandidateObjects(double x, double y, int[] candidateObjectsToPack)
+   {
+      int cellStart = 0, cellEnd = 0;
+
+      if (numberOfCellsX > 0 && x >= xMin && y >= yMin && x <= xMin + numberOfCellsX * cellSize && y <= yMin + numberOfCellsY * cellSize)
+      {
+         int cellIndex = toCellIndex(toIndexX(x), toIndexY(y));
+         cellStart = cellStartIndices[cellIndex];
+         cellEnd = cellStartIndices[cellIndex + 1];
+      }
+
+      // merge the objects of the cell with the ones that are not in the grid
+      int numberOfCandidates = 0;
+      int cellCursor = cellStart;
+      int unindexedCursor = 0;
+
+      while (cellCursor < cellEnd || unindexedCursor < unindexedObjectIndices.length)
+      {
+         if (unindexedCursor == unindexedObjectIndices.length
+               || (cellCursor < cellEnd && cellObjectIndices[cellCursor] < unindexedObjectIndices[unindexedCursor]))
+            candidateObjectsToPack[numberOfCandidates++] = cellObjectIndices[cellCursor++];
+         else
+            candidateObjectsToPack[numberOfCandidates++] = unindexedObjectIndices[unindexedCursor++];
+      }
+
+      return numberOfCandidates;
+   }
+
+   public int getNumberOfObjects()
+   {
+      return numberOfObjects;
+   }
+
+   private static boolean isFinite(BoundingBox3D boundingBox)
+   {
+      if (boundingBox == null)
+         return false;
+      return Double.isFinite(boundingBox.getMinX()) && Double.isFinite(boundingBox.getMaxX()) && Double.isFinite(boundingBox.getMinY())
+            && Double.isFinite(boundingBox.getMaxY());
+   }
+
+   private int toIndexX(double x)
+   {
+      return Math.min(Math.max((int) Math.floor((x - xMin) / cellSize), 0), numberOfCellsX - 1);
+   }
+
+   private int toIndexY(double y)
+   {
+      return Math.min(Math.max((int) Math.floor((y - yMin) / cellSize), 0), numberOfCellsY - 1);
+   }
+
+   private int toCellIndex(int xIndex, int yIndex)
+   {
+      return xIndex * numberOfCellsY + yIndex;
+   }
+}
@@ -1,16 +1,22 @@
 package us.ihmc.simulationConstructionSetTools.util.ground;
 
+import static us.ihmc.robotics.Assert.assertEquals;
+
+import java.util.Random;
+
 import org.junit.jupiter.api.Test;
 
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Disabled;
 import us.ihmc.euclid.geometry.ConvexPolygon2D;
 import us.ihmc.euclid.geometry.interfaces.Vertex2DSupplier;
+import us.ihmc.euclid.tools.EuclidCoreRandomTools;
 import us.ihmc.euclid.tools.EuclidCoreTestTools;
 import us.ihmc.euclid.tuple3D.Point3D;
 import us.ihmc.euclid.tuple3D.Vector3D;
 import us.ihmc.simulationConstructionSetTools.util.ground.CombinedTerrainObject3D;
 import us.ihmc.simulationConstructionSetTools.util.ground.RotatableConvexPolygonTerrainObject;
+import us.ihmc.simulationconstructionset.util.ground.TerrainObject3D;
 
 public class CombinedTerrainObjectTest
 {
@@ -39,6 +45,68 @@ public class CombinedTerrainObjectTest
       EuclidCoreTestTools.assertTuple3DEquals(expectedNormal, resultNormal, 1e-4);
    }
 
+   @Test
+   public void testQueriesMatchCheckingAllObjects()
+   {
+      Random random = new Random(4598);
+      CombinedTerrainObject3D combinedTerrainObject = new CombinedTerrainObject3D("Stepping Stones");
+      combinedTerrainObject.addBox(-20.0, -20.0, 20.0, 20.0, -0.5, 0.0);
+
+      for (int i = 0; i < 300; i++)
+      {
+         double x = EuclidCoreRandomTools.nextDouble(random, 10.0);
+         double y = EuclidCoreRandomTools.nextDouble(random, 10.0);
+         double halfSize = EuclidCoreRandomTools.nextDouble(random, 0.05, 0.5);
+         double[][] vertices = {{x - halfSize, y - halfSize}, {x + halfSize, y - halfSize}, {x + halfSize, y + halfSize}, {x - halfSize, y + halfSize}};
+         ConvexPolygon2D polygon = new ConvexPolygon2D(Vertex2DSupplier.asVertex2DSupplier(vertices));
+         Vector3D normal = EuclidCoreRandomTools.nextVector3DWithFixedLength(random, 1.0);
+         normal.setZ(Math.abs(normal.getZ()) + 1.0);
+         normal.normalize();
+         combinedTerrainObject.addTerrainObject(new RotatableConvexPolygonTerrainObject(normal, polygon, EuclidCoreRandomTools.nextDouble(random, 0.0, 1.0)));
+      }
+
+      Point3D resultIntersection = new Point3D();
+      Vector3D resultNormal = new Vector3D();
+      Point3D expectedIntersection = new Point3D();
+      Vector3D expectedNormal = new Vector3D();
+      Point3D localIntersection = new Point3D();
+      Vector3D localNormal = new Vector3D();
+
+      for (int i = 0; i < 5000; i++)
+      {
+         Point3D query = EuclidCoreRandomTools.nextPoint3D(random, 12.0, 12.0, 1.0);
+         double x = query.getX(), y = query.getY(), z = query.getZ();
+
+         // reference results going through all the objects
+         double expectedHeight = Double.NEGATIVE_INFINITY;
+         boolean expectedIsInside = false;
+         double smallestDistance = Double.MAX_VALUE;
+         expectedIntersection.set(x, y, 0.0);
+         expectedNormal.set(0.0, 0.0, 1.0);
+
+         for (TerrainObject3D terrainObject : combinedTerrainObject.getTerrainObjects())
+         {
+            if (!terrainObject.isClose(x, y, z))
+               continue;
+
+            expectedHeight = Math.max(expectedHeight, terrainObject.getHeightMapIfAvailable().heightAt(x, y, z));
+
+            if (terrainObject.checkIfInside(x, y, z, localIntersection, localNormal) && query.distance(localIntersection) < smallestDistance)
+            {
+               smallestDistance = query.distance(localIntersection);
+               expectedIntersection.set(localIntersection);
+               expectedNormal.set(localNormal);
+               expectedIsInside = true;
+            }
+         }
+
+         assertEquals(expectedHeight, combinedTerrainObject.heightAt(x, y, z), 1.0e-12);
+         assertEquals(expectedIsInside, combinedTerrainObject.checkIfInside(x, y, z, resultIntersection, resultNormal));
+         EuclidCoreTestTools.assertTuple3DEquals(expectedIntersection, resultIntersection, 1.0e-12);
+         EuclidCoreTestTools.assertTuple3DEquals(expectedNormal, resultNormal, 1.0e-12);
+      }
+   }
+
    private void setupTwoIntersectingBoxesMadeFromPolygons(CombinedTerrainObject3D combinedTerrainObject)
    {
       Vector3D normalVector = new Vector3D(0.0, 0.0, 1.0);
@@ -27,6 +27,11 @@ public class EfficientPushRodTransmission implements PushRodTransmissionInterfac
 
    private YoDouble pitchAngleOffset;
 
+   // Precomputed approximations of the closed-form Jacobian, null when disabled.
+   private PushRodTransmissionJacobianTable futekJacobianTable;
+   private PushRodTransmissionJacobianTable renishawJacobianTable;
+   private final double[][] precomputedJacobian = new double[2][2];
+
    private boolean USING_A2J_VEL_FOR_ROBOT_CONTROL = true;
 
    //TODO: YoVariablize this boolean
@@ -46,6 +51,60 @@ public class EfficientPushRodTransmission implements PushRodTransmissionInterfac
       this.pushRodTransmissionJoint = pushRodTransmissionJoint;
    }
 
+   /**
+    * Switches between evaluating {@link ClosedFormJacobian} on every call and interpolating in tables
+    * precomputed from it over the joint range. The tables are created the first time this is
+    * enabled, which should be done before starting the control loop.
+    */
+   public void usePrecomputedJacobian(boolean usePrecomputedJacobian)
+   {
+      if (!usePrecomputedJacobian)
+      {
+         futekJacobianTable = null;
+         renishawJacobianTable = null;
+      }
+      else if (futekJacobianTable == null)
+      {
+         futekJacobianTable = PushRodTransmissionJacobianTable.createFromClosedForm(pushRodTransmissionJoint, true);
+         renishawJacobianTable = PushRodTransmissionJacobianTable.createFromClosedForm(pushRodTransmissionJoint, false);
+      }
+   }
+
+   public boolean isUsingPrecomputedJacobian()
+   {
+      return futekJacobianTable != null;
+   }
+
+   /**
+    * When enabled, the precomputed Jacobian is checked against {@link ClosedFormJacobian} on every
+    * call, see {@link #getMaxPrecomputedJacobianError()}.
+    */
+   public void setVerifyPrecomputedJacobian(boolean verify)
+   {
+      if (futekJacobianTable == null)
+         throw new IllegalStateException("The precomputed Jacobian is not in use.");
+
+      futekJacobianTable.setVerificationMode(verify);
+      renishawJacobianTable.setVerificationMode(verify);
+   }
+
+   public double getMaxPrecomputedJacobianError()
+   {
+      if (futekJacobianTable == null)
+         return 0.0;
+      return Math.max(futekJacobianTable.getMaxObservedError(), renishawJacobianTable.getMaxObservedError());
+   }
+
+   private double[][] computeJacobian(ClosedFormJacobian closedFormJacobian, double rollAngle, double pitchAngle)
+   {
+      if (futekJacobianTable == null)
+         return closedFormJacobian.getUpdatedTransform(rollAngle, pitchAngle);
+
+      PushRodTransmissionJacobianTable table = closedFormJacobian.isUsingFuteks() ? futekJacobianTable : renishawJacobianTable;
+      table.compute(rollAngle, pitchAngle, precomputedJacobian);
+      return precomputedJacobian;
+   }
+
    private int numActuators()
    {
       return 2;
@@ -110,7 +169,7 @@ public class EfficientPushRodTransmission implements PushRodTransmissionInterfac
          pitchAngle += pitchAngleOffset.getDoubleValue();
       double rollAngle = reflect * jointData[1].getPosition();
 
-      jacobian = efficientPushrodTransmissionJacobian.getUpdatedTransform(rollAngle, pitchAngle);
+      jacobian = computeJacobian(efficientPushrodTransmissionJacobian, rollAngle, pitchAngle);
       transposeMatrix(jacobian, jacobianTranspose);
 
       // tau = (J^T) * F
@@ -140,7 +199,7 @@ public class EfficientPushRodTransmission implements PushRodTransmissionInterfac
          pitchAngle += pitchAngleOffset.getDoubleValue();
       double rollAngle = reflect * jnt_data[1].getPosition();
 
-      jacobian = efficientPushrodTransmissionForQdValidation.getUpdatedTransform(rollAngle, pitchAngle);
+      jacobian = computeJacobian(efficientPushrodTransmissionForQdValidation, rollAngle, pitchAngle);
       invertMatrix(jacobian, jacobianInverse);
 
       // theta_dot = J^-1 * x_dot
@@ -193,7 +252,7 @@ public class EfficientPushRodTransmission implements PushRodTransmissionInterfac
          throw new RuntimeException("jointToActuatorEffort: pitchAngle or rollAngle is infinity!!\n");
       }
 
-      jacobian = efficientPushrodTransmissionJacobian.getUpdatedTransform(rollAngle, pitchAngle);
+      jacobian = computeJacobian(efficientPushrodTransmissionJacobian, rollAngle, pitchAngle);
       transposeMatrix(jacobian, jacobianTranspose);
       invertMatrix(jacobianTranspose, jacobianInvertedTranspose);
 
@@ -225,7 +284,7 @@ public class EfficientPushRodTransmission implements PushRodTransmissionInterfac
          throw new RuntimeException("jointToActuatorEffort: pitchAngle or rollAngle is infinity!!\n");
       }
 
-      jacobian = efficientPushrodTransmissionJacobian.getUpdatedTransform(rollAngle, pitchAngle);
+      jacobian = computeJacobian(efficientPushrodTransmissionJacobian, rollAngle, pitchAngle);
       transposeMatrix(jacobian, jacobianTranspose);
       invertMatrix(jacobianTranspose, jacobianInvertedTranspose);
 
@@ -269,7 +328,7 @@ public class EfficientPushRodTransmission implements PushRodTransmissionInterfac
          if (pitchAngleOffset != null)
             pitchAngle += pitchAngleOffset.getDoubleValue();
          double rollAngle = reflect * jointData[1].getPosition();
-         jacobian = efficientPushrodTransmissionJacobian.getUpdatedTransform(rollAngle, pitchAngle);
+         jacobian = computeJacobian(efficientPushrodTransmissionJacobian, rollAngle, pitchAngle);
          transposeMatrix(jacobian, jacobianTranspose);
 
          // tau = (J^T) * F
@@ -277,7 +336,7 @@ public class EfficientPushRodTransmission implements PushRodTransmissionInterfac
          double rollTorque = jacobianTranspose[1][0] * actuatorForce0 + jacobianTranspose[1][1] * actuatorForce1;
 
          efficientPushrodTransmissionJacobian.useFuteks(true);
-         jacobian = efficientPushrodTransmissionJacobian.getUpdatedTransform(rollAngle, pitchAngle);
+         jacobian = computeJacobian(efficientPushrodTransmissionJacobian, rollAngle, pitchAngle);
          transposeMatrix(jacobian, jacobianTranspose);
          invertMatrix(jacobianTranspose, jacobianInvertedTranspose);
 
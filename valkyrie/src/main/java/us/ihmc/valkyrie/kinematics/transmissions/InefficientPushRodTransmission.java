@@ -44,6 +44,11 @@ public class InefficientPushRodTransmission implements PushRodTransmissionInterf
    private final double[][] jacobianInverse = new double[2][2];
 
    private final PushrodTransmissionJacobian pushrodTransmissionJacobian;
+   private boolean useFuteks = true;
+
+   // Precomputed approximations of the Jacobian, null when disabled.
+   private PushRodTransmissionJacobianTable futekJacobianTable;
+   private PushRodTransmissionJacobianTable renishawJacobianTable;
    
    private final double reflectBottom;
    private final double reflectTop;
@@ -81,9 +86,44 @@ public class InefficientPushRodTransmission implements PushRodTransmissionInterf
   
    public void setUseFuteks(boolean useFuteks)
    {
+      this.useFuteks = useFuteks;
       pushrodTransmissionJacobian.setUseFuteks(useFuteks);
    }
 
+   /**
+    * Switches between computing the Jacobian geometrically on every call and interpolating in
+    * tables precomputed from the same model over the joint range. The tables are created the first
+    * time this is enabled, which should be done before starting the control loop.
+    */
+   public void usePrecomputedJacobian(boolean usePrecomputedJacobian)
+   {
+      if (!usePrecomputedJacobian)
+      {
+         futekJacobianTable = null;
+         renishawJacobianTable = null;
+      }
+      else if (futekJacobianTable == null)
+      {
+         futekJacobianTable = PushRodTransmissionJacobianTable.createFromInefficient(pushRodTransmissionJoint, true);
+         renishawJacobianTable = PushRodTransmissionJacobianTable.createFromInefficient(pushRodTransmissionJoint, false);
+      }
+   }
+
+   public boolean isUsingPrecomputedJacobian()
+   {
+      return futekJacobianTable != null;
+   }
+
+   private void computeJacobian(double topJointAngle, double bottomJointAngle)
+   {
+      if (futekJacobianTable == null)
+         pushrodTransmissionJacobian.computeJacobian(jacobian, topJointAngle, bottomJointAngle);
+      else if (useFuteks)
+         futekJacobianTable.compute(topJointAngle, bottomJointAngle, jacobian);
+      else
+         renishawJacobianTable.compute(topJointAngle, bottomJointAngle, jacobian);
+   }
+
    private boolean invertMatrix(double[][] matrix, double[][] inverseTransposeToPack)
    {
       double determinant = (matrix[0][0] * matrix[1][1] - matrix[0][1] * matrix[1][0]);
@@ -183,7 +223,7 @@ public class InefficientPushRodTransmission implements PushRodTransmissionInterf
       if (topJointAngleOffset != null) topJointAngle += topJointAngleOffset.getDoubleValue();
       double bottomJointAngle = reflectBottom * bottomJointInterface.getPosition();
       
-      pushrodTransmissionJacobian.computeJacobian(jacobian, topJointAngle, bottomJointAngle);
+      computeJacobian(topJointAngle, bottomJointAngle);
 
 //      System.out.println("m11: " + jacobian[0][0] + ", m12: " + jacobian[0][1] + ", m21: " + jacobian[1][0] + ", m22: " + jacobian[1][1]);
       double topJointTorque = jacobian[0][0] * leftActuatorForce + jacobian[0][1] * rightActuatorForce;
@@ -235,7 +275,7 @@ public class InefficientPushRodTransmission implements PushRodTransmissionInterf
          throw new RuntimeException("jointToActuatorEffort: pitchAngle or rollAngle is infinity!!\n");
       }
 
-      pushrodTransmissionJacobian.computeJacobian(jacobian, topJointAngle, bottomJointAngle);
+      computeJacobian(topJointAngle, bottomJointAngle);
       invertMatrix(jacobian, jacobianInverse);
       double leftJointForce = jacobianInverse[0][0] * topJointTorque + jacobianInverse[0][1] * bottomJointTorque;
       double rightJointForce = jacobianInverse[1][0] * topJointTorque + jacobianInverse[1][1] * bottomJointTorque;
@@ -283,7 +323,7 @@ public class InefficientPushRodTransmission implements PushRodTransmissionInterf
          throw new RuntimeException("jointToActuatorEffort: pitchAngle or rollAngle is infinity!!\n");
       }
 
-      pushrodTransmissionJacobian.computeJacobian(jacobian, topJointAngle, bottomJointAngle);
+      computeJacobian(topJointAngle, bottomJointAngle);
       invertMatrix(jacobian, jacobianInverse);
       double leftJointForce = jacobianInverse[0][0] * topJointTorque + jacobianInverse[0][1] * bottomJointTorque;
       double rightJointForce = jacobianInverse[1][0] * topJointTorque + jacobianInverse[1][1] * bottomJointTorque;
@@ -302,7 +342,7 @@ public class InefficientPushRodTransmission implements PushRodTransmissionInterf
       double topJointTorque = reflectTop * jointTorques[0];
       double bottomJointTorque = reflectBottom * jointTorques[1];
 
-      pushrodTransmissionJacobian.computeJacobian(jacobian, topJointAngle, bottomJointAngle);
+      computeJacobian(topJointAngle, bottomJointAngle);
       invertMatrix(jacobian, jacobianInverse);
       double leftJointForce = jacobianInverse[0][0] * topJointTorque + jacobianInverse[0][1] * bottomJointTorque;
       double rightJointForce = jacobianInverse[1][0] * topJointTorque + jacobianInverse[1][1] * bottomJointTorque;
@@ -0,0 +1,418 @@
+package us.ihmc.valkyrie.kinematics.transmissions;
+
+import us.ihmc.valkyrie.kinematics.util.ClosedFormJacobian;
+
+/**
+ * Precomputed approximation of a push-rod transmission Jacobian over a rectangular range of the two
+ * joint angles.
+ * <p>
+ * Each of the four Jacobian entries is represented by a bicubic Hermite patch per grid cell. The
+ * value, first derivatives, and cross derivative at every grid node are sampled once from the exact
+ * model when the table is created. The grid is refined until the approximation error, measured
+ * against the exact model inside every cell, is below the requested tolerance. Evaluating the table
+ * afterwards is allocation free and only costs a few multiply-adds per entry.
+ * </p>
+ * <p>
+ * Angles outside the table range, or in cells where the exact model is not defined, are forwarded
+ * to the exact model. The verification mode evaluates the exact model on every call and records
+ * the largest difference observed.
+ * </p>
+ */
+public class PushRodTransmissionJacobianTable
+{
+   public static final double DEFAULT_TOLERANCE = 1.0e-8;
+
+   private static final int INITIAL_NUMBER_OF_CELLS = 16;
+   private static final int MAXIMUM_NUMBER_OF_CELLS = 128;
+   private static final double DERIVATIVE_STEP = 1.0e-4;
+   private static final int VALUES_PER_NODE = 16;
+
+   /**
+    * Exact Jacobian of a push-rod transmission. Implementations pack NaN when the transmission
+    * cannot reach the given configuration.
+    */
+   public interface JacobianFunction
+   {
+      void compute(double firstAngle, double secondAngle, double[][] jacobianToPack);
+   }
+
+   private final JacobianFunction exactJacobian;
+   private final double firstMin, firstMax, secondMin, secondMax;
+   private final double tolerance;
+
+   private int numberOfCells;
+   private double firstStep, secondStep;
+   private double inverseFirstStep, inverseSecondStep;
+   /**
+    * {@link #VALUES_PER_NODE} values per grid node, the node {@code (i, j)} starting at
+    * {@code (i * (numberOfCells + 1) + j) * VALUES_PER_NODE}. For each Jacobian entry, in row-major
+    * order, the node holds 4 values: the entry, its derivative with respect to the first angle, its
+    * derivative with respect to the second angle, and its cross derivative. The derivatives are
+    * scaled by the step of the corresponding angles such that they apply to the cell coordinates in
+    * [0, 1].
+    */
+   private double[] nodeData;
+   private boolean[] validCells;
+   private double maxApproximationError;
+
+   private final double[][] exactJacobianTemp = new double[2][2];
+   private boolean verificationMode = false;
+   private double maxObservedError = 0.0;
+   private long numberOfFallbacks = 0;
+
+   /**
+    * Creates a table for the Jacobian used by {@link EfficientPushRodTransmission}, indexed by
+    * {@code (roll, pitch)} as {@link ClosedFormJacobian#getUpdatedTransform(double, double)}.
+    */
+   public static PushRodTransmissionJacobianTable createFromClosedForm(PushRodTransmissionJoint joint, boolean useFuteks)
+   {
+      if (joint == PushRodTransmissionJoint.WRIST)
+         throw new IllegalArgumentException("The closed-form Jacobian is not available for the " + joint);
+
+      ClosedFormJacobian closedFormJacobian = new ClosedFormJacobian(joint);
+      closedFormJacobian.useFuteks(useFuteks);
+
+      JacobianFunction function = (roll, pitch, jacobianToPack) ->
+      {
+         double[][] jacobian = closedFormJacobian.getUpdatedTransform(roll, pitch);
+         for (int row = 0; row < 2; row++)
+         {
+            jacobianToPack[row][0] = jacobian[row][0];
+            jacobianToPack[row][1] = jacobian[row][1];
+         }
+      };
+
+      double[] rollRange = getRollRange();
+      double[] pitchRange = getPitchRange(joint);
+      return new PushRodTransmissionJacobianTable(function, rollRange[0], rollRange[1], pitchRange[0], pitchRange[1], DEFAULT_TOLERANCE);
+   }
+
+   /**
+    * Creates a table for the Jacobian used by {@link InefficientPushRodTransmission}, indexed by
+    * {@code (topJointAngle, bottomJointAngle)} as
+    * {@link InefficientPushrodTransmissionJacobian#computeJacobian(double[][], double, double)}.
+    */
+   public static PushRodTransmissionJacobianTable createFromInefficient(PushRodTransmissionJoint joint, boolean useFuteks)
+   {
+      InefficientPushrodTransmissionJacobian inefficientJacobian = new InefficientPushrodTransmissionJacobian(joint, null, null);
+      inefficientJacobian.setUseFuteks(useFuteks);
+
+      JacobianFunction function = (topJointAngle, bottomJointAngle, jacobianToPack) -> inefficientJacobian.computeJacobian(jacobianToPack,
+                                                                                                                         topJointAngle,
+                                                                                                                         bottomJointAngle);
+
+      // The waist has the roll joint on top, the ankle and wrist have the pitch joint on top.
+      double[] topRange = joint == PushRodTransmissionJoint.WAIST ? getRollRange() : getPitchRange(joint);
+      double[] bottomRange = joint == PushRodTransmissionJoint.WAIST ? getPitchRange(joint) : getRollRange();
+      return new PushRodTransmissionJacobianTable(function, topRange[0], topRange[1], bottomRange[0], bottomRange[1], DEFAULT_TOLERANCE);
+   }
+
+   /**
+    * The ranges cover the joint limits of the robot with some margin, in both directions as the
+    * transmissions may reflect the joint angles. The roll range is the same for every joint.
+    */
+   private static double[] getRollRange()
+   {
+      return new double[] {-0.5, 0.5};
+   }
+
+   private static double[] getPitchRange(PushRodTransmissionJoint joint)
+   {
+      switch (joint)
+      {
+      case WAIST:
+         return new double[] {-0.9, 0.9};
+      default:
+         return new double[] {-1.0, 1.0};
+      }
+   }
+
+   public PushRodTransmissionJacobianTable(JacobianFunction exactJacobian, double firstMin, double firstMax, double secondMin, double secondMax,
+                                           double tolerance)
+   {
+      if (!(firstMax > firstMin) || !(secondMax > secondMin))
+         throw new IllegalArgumentException("Invalid range: first [" + firstMin + ", " + firstMax + "], second [" + secondMin + ", " + secondMax + "]");
+
+      this.exactJacobian = exactJacobian;
+      this.firstMin = firstMin;
+      this.firstMax = firstMax;
+      this.secondMin = secondMin;
+      this.secondMax = secondMax;
+      this.tolerance = tolerance;
+
+      numberOfCells = INITIAL_NUMBER_OF_CELLS;
+
+      while (true)
+      {
+         build(numberOfCells);
+         maxApproximationError = computeMaxApproximationError();
+
+         if (maxApproximationError <= tolerance || numberOfCells >= MAXIMUM_NUMBER_OF_CELLS)
+            break;
+
+         numberOfCells *= 2;
+      }
+   }
+
+   private void build(int numberOfCells)
+   {
+      this.numberOfCells = numberOfCells;
+      firstStep = (firstMax - firstMin) / numberOfCells;
+      secondStep = (secondMax - secondMin) / numberOfCells;
+      inverseFirstStep = 1.0 / firstStep;
+      inverseSecondStep = 1.0 / secondStep;
+
+      int numberOfNodes = numberOfCells + 1;
+      nodeData = new double[numberOfNodes * numberOfNodes * VALUES_PER_NODE];
+      boolean[] validNodes = new boolean[numberOfNodes * numberOfNodes];
+
+      double[][] f = new double[2][2];
+      double[][] fPlusFirst = new double[2][2];
+      double[][] fMinusFirst = new double[2][2];
+      double[][] fPlusSecond = new double[2][2];
+      double[][] fMinusSecond = new double[2][2];
+      double[][] fPlusPlus = new double[2][2];
+      double[][] fPlusMinus = new double[2][2];
+      double[][] fMinusPlus = new double[2][2];
+      double[][] fMinusMinus = new double[2][2];
+
+      double d = DERIVATIVE_STEP;
+
+      for (int i = 0; i < numberOfNodes; i++)
+      {
+         double first = firstMin + i * firstStep;
+
+         for (int j = 0; j < numberOfNodes; j++)
+         {
+            double second = secondMin + j * secondStep;
+
+            exactJacobian.compute(first, second, f);
+            exactJacobian.compute(first + d, second, fPlusFirst);
+            exactJacobian.compute(first - d, second, fMinusFirst);
+            exactJacobian.compute(first, second + d, fPlusSecond);
+            exactJacobian.compute(first, second - d, fMinusSecond);
+            exactJacobian.compute(first + d, second + d, fPlusPlus);
+            exactJacobian.compute(first + d, second - d, fPlusMinus);
+            exactJacobian.compute(first - d, second + d, fMinusPlus);
+            exactJacobian.compute(first - d, second - d, fMinusMinus);
+
+            int nodeIndex = i * numberOfNodes + j;
+            int offset = nodeIndex * VALUES_PER_NODE;
+            boolean valid = true;
+
+            for (int entry = 0; entry < 4; entry++)
+            {
+               int row = entry >> 1;
+               int col = entry & 1;
+
+               double value = f[row][col];
+               double dFirst = (fPlusFirst[row][col] - fMinusFirst[row][col]) / (2.0 * d);
+               double dSecond = (fPlusSecond[row][col] - fMinusSecond[row][col]) / (2.0 * d);
+               double dCross = (fPlusPlus[row][col] - fPlusMinus[row][col] - fMinusPlus[row][col] + fMinusMinus[row][col]) / (4.0 * d * d);
+
+               nodeData[offset + 4 * entry] = value;
+               nodeData[offset + 4 * entry + 1] = dFirst * firstStep;
+               nodeData[offset + 4 * entry + 2] = dSecond * secondStep;
+               nodeData[offset + 4 * entry + 3] = dCross * firstStep * secondStep;
+
+               valid &= Double.isFinite(value) && Double.isFinite(dFirst) && Double.isFinite(dSecond) && Double.isFinite(dCross);
+            }
+
+            validNodes[nodeIndex] = valid;
+         }
+      }
+
+      validCells = new boolean[numberOfCells * numberOfCells];
+
+      for (int i = 0; i < numberOfCells; i++)
+      {
+         for (int j = 0; j < numberOfCells; j++)
+         {
+            validCells[i * numberOfCells + j] = validNodes[i * numberOfNodes + j] && validNodes[(i + 1) * numberOfNodes + j]
+                  && validNodes[i * numberOfNodes + j + 1] && validNodes[(i + 1) * numberOfNodes + j + 1];
+         }
+      }
+   }
+
+   /**
+    * Compares the table against the exact model at 9 points inside every valid cell.
+    */
+   private double computeMaxApproximationError()
+   {
+      double[][] approximation = new double[2][2];
+      double[][] exact = new double[2][2];
+      double maxError = 0.0;
+
+      for (int i = 0; i < numberOfCells; i++)
+      {
+         for (int j = 0; j < numberOfCells; j++)
+         {
+            if (!validCells[i * numberOfCells + j])
+               continue;
+
+            for (int k = 1; k <= 3; k++)
+            {
+               double first = firstMin + (i + 0.25 * k) * firstStep;
+
+               for (int l = 1; l <= 3; l++)
+               {
+                  double second = secondMin + (j + 0.25 * l) * secondStep;
+
+                  exactJacobian.compute(first, second, exact);
+                  if (!interpolate(first, second, approximation))
+                     continue;
+
+                  maxError = Math.max(maxError, computeMaxDifference(approximation, exact));
+               }
+            }
+         }
+      }
+
+      return maxError;
+   }
+
+   /**
+    * Packs the Jacobian at the given angles.
+    */
+   public void compute(double firstAngle, double secondAngle, double[][] jacobianToPack)
+   {
+      if (!interpolate(firstAngle, secondAngle, jacobianToPack))
+      {
+         numberOfFallbacks++;
+         exactJacobian.compute(firstAngle, secondAngle, jacobianToPack);
+         return;
+      }
+
+      if (verificationMode)
+      {
+         exactJacobian.compute(firstAngle, secondAngle, exactJacobianTemp);
+         double error = computeMaxDifference(jacobianToPack, exactJacobianTemp);
+         if (error > maxObservedError)
+            maxObservedError = error;
+      }
+   }
+
+   private boolean interpolate(double firstAngle, double secondAngle, double[][] jacobianToPack)
+   {
+      double x = (firstAngle - firstMin) * inverseFirstStep;
+      double y = (secondAngle - secondMin) * inverseSecondStep;
+
+      // Written such that NaN angles are rejected as well.
+      if (!(x >= 0.0 && x <= numberOfCells && y >= 0.0 && y <= numberOfCells))
+         return false;
+
+      int i = Math.min((int) x, numberOfCells - 1);
+      int j = Math.min((int) y, numberOfCells - 1);
+
+      if (!validCells[i * numberOfCells + j])
+         return false;
+
+      double u = x - i;
+      double v = y - j;
+
+      // Cubic Hermite basis functions.
+      double u2 = u * u;
+      double u3 = u2 * u;
+      double hu00 = 2.0 * u3 - 3.0 * u2 + 1.0;
+      double hu01 = -2.0 * u3 + 3.0 * u2;
+      double hu10 = u3 - 2.0 * u2 + u;
+      double hu11 = u3 - u2;
+
+      double v2 = v * v;
+      double v3 = v2 * v;
+      double hv00 = 2.0 * v3 - 3.0 * v2 + 1.0;
+      double hv01 = -2.0 * v3 + 3.0 * v2;
+      double hv10 = v3 - 2.0 * v2 + v;
+      double hv11 = v3 - v2;
+
+      int numberOfNodes = numberOfCells + 1;
+      int node00 = (i * numberOfNodes + j) * VALUES_PER_NODE;
+      int node10 = node00 + numberOfNodes * VALUES_PER_NODE;
+      int node01 = node00 + VALUES_PER_NODE;
+      int node11 = node10 + VALUES_PER_NODE;
+
+      for (int entry = 0; entry < 4; entry++)
+      {
+         int e = 4 * entry;
+         double value = hu00 * (hv00 * nodeData[node00 + e] + hv10 * nodeData[node00 + e + 2])
+               + hu10 * (hv00 * nodeData[node00 + e + 1] + hv10 * nodeData[node00 + e + 3])
+               + hu01 * (hv00 * nodeData[node10 + e] + hv10 * nodeData[node10 + e + 2])
+               + hu11 * (hv00 * nodeData[node10 + e + 1] + hv10 * nodeData[node10 + e + 3])
+               + hu00 * (hv01 * nodeData[node01 + e] + hv11 * nodeData[node01 + e + 2])
+               + hu10 * (hv01 * nodeData[node01 + e + 1] + hv11 * nodeData[node01 + e + 3])
+               + hu01 * (hv01 * nodeData[node11 + e] + hv11 * nodeData[node11 + e + 2])
+               + hu11 * (hv01 * nodeData[node11 + e + 1] + hv11 * nodeData[node11 + e + 3]);
+         jacobianToPack[entry >> 1][entry & 1] = value;
+      }
+
+      return true;
+   }
+
+   private static double computeMaxDifference(double[][] a, double[][] b)
+   {
+      double maxDifference = 0.0;
+      for (int row = 0; row < 2; row++)
+      {
+         for (int col = 0; col < 2; col++)
+            maxDifference = Math.max(maxDifference, Math.abs(a[row][col] - b[row][col]));
+      }
+      return maxDifference;
+   }
+
+   /**
+    * When enabled, every call to {@link #compute(double, double, double[][])} also evaluates the
+    * exact model and records the largest difference, see {@link #getMaxObservedError()}.
+    */
+   public void setVerificationMode(boolean verificationMode)
+   {
+      this.verificationMode = verificationMode;
+   }
+
+   public boolean isVerificationMode()
+   {
+      return verificationMode;
+   }
+
+   public double getMaxObservedError()
+   {
+      return maxObservedError;
+   }
+
+   public void resetVerification()
+   {
+      maxObservedError = 0.0;
+      numberOfFallbacks = 0;
+   }
+
+   /**
+    * @return the number of calls that were forwarded to the exact model because the angles were not
+    *         covered by the table.
+    */
+   public long getNumberOfFallbacks()
+   {
+      return numberOfFallbacks;
+   }
+
+   /**
+    * @return the largest difference with the exact model measured when the table was created.
+    */
+   public double getMaxApproximationError()
+   {
+      return maxApproximationError;
+   }
+
+   public boolean isWithinTolerance()
+   {
+      return maxApproximationError <= tolerance;
+   }
+
+   public double getTolerance()
+   {
+      return tolerance;
+   }
+
+   public int getNumberOfCellsPerAxis()
+   {
+      return numberOfCells;
+   }
+}
@@ -61,8 +61,10 @@ import us.ihmc.wholeBodyController.DRCOutputProcessorWithStateChangeSmoother;
 import us.ihmc.wholeBodyController.RobotContactPointParameters;
 import us.ihmc.wholeBodyController.concurrent.MultiThreadedRealTimeRobotController;
 import us.ihmc.wholeBodyController.concurrent.MultiThreadedRobotControlElementCoordinator;
+import us.ihmc.wholeBodyController.concurrent.SeqLockThreadDataSynchronizer;
 import us.ihmc.wholeBodyController.concurrent.SynchronousMultiThreadedRobotController;
 import us.ihmc.wholeBodyController.concurrent.ThreadDataSynchronizer;
+import us.ihmc.wholeBodyController.concurrent.ThreadDataSynchronizerInterface;
 import us.ihmc.yoVariables.registry.YoRegistry;
 
 public class ValkyrieRosControlController extends IHMCWholeRobotControlJavaBridge
@@ -135,6 +137,7 @@ public class ValkyrieRosControlController extends IHMCWholeRobotControlJavaBridg
    public static final boolean USE_YOVARIABLE_DESIREDS = false;
    public static final boolean USE_USB_MICROSTRAIN_IMUS = false;
    public static final boolean USE_SWITCHABLE_FILTER_HOLDER_FOR_NON_USB_IMUS = false;
+   public static final boolean USE_SEQ_LOCK_THREAD_DATA_SYNCHRONIZER = false;
    public static final String[] readIMUs = USE_USB_MICROSTRAIN_IMUS ? new String[0] : new String[ValkyrieSensorInformation.imuSensorsToUse.length];
 
    static
@@ -388,7 +391,11 @@ public class ValkyrieRosControlController extends IHMCWholeRobotControlJavaBridg
       /*
        * Build controller
        */
-      ThreadDataSynchronizer threadDataSynchronizer = new ThreadDataSynchronizer(robotModel);
+      ThreadDataSynchronizerInterface threadDataSynchronizer;
+      if (USE_SEQ_LOCK_THREAD_DATA_SYNCHRONIZER)
+         threadDataSynchronizer = new SeqLockThreadDataSynchronizer(robotModel);
+      else
+         threadDataSynchronizer = new ThreadDataSynchronizer(robotModel);
       RobotContactPointParameters<RobotSide> contactPointParameters = robotModel.getContactPointParameters();
       DRCEstimatorThread estimatorThread = new DRCEstimatorThread(robotModel.getSimpleRobotName(),
                                                                   sensorInformation,
@@ -421,6 +428,8 @@ public class ValkyrieRosControlController extends IHMCWholeRobotControlJavaBridg
                                                                      estimatorDT);
       if (!LOG_SECONDARY_HIGH_LEVEL_STATES)
          detachSecondaryRegistries(controllerThread.getYoVariableRegistry());
+      if (threadDataSynchronizer instanceof SeqLockThreadDataSynchronizer)
+         controllerThread.getYoVariableRegistry().addChild(((SeqLockThreadDataSynchronizer) threadDataSynchronizer).getYoRegistry());
 
       ValkyrieCalibrationControllerState calibrationControllerState = calibrationStateFactory.getCalibrationControllerState();
       calibrationControllerState.attachForceSensorCalibrationModule(estimatorThread.getForceSensorCalibrationModule());
@@ -45,6 +45,18 @@ public class ValkyrieKinematicsPlanningToolboxControllerTest extends AvatarKinem
       super.testLinearInterpolatedTrajectory();
    }
 
+   @Test
+   public void testConcurrentKeyFrameSolving() throws Exception, UnreasonableAccelerationException
+   {
+      super.testConcurrentKeyFrameSolving();
+   }
+
+   @Test
+   public void testConcurrentKeyFrameSolvingKeepsSequentialSupport() throws Exception
+   {
+      super.testConcurrentKeyFrameSolvingKeepsSequentialSupport();
+   }
+
    @Test
    public void testReachToAPoint() throws Exception, UnreasonableAccelerationException
    {
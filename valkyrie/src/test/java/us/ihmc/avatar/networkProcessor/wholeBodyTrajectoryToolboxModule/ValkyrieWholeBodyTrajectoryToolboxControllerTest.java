@@ -64,6 +64,13 @@ public class ValkyrieWholeBodyTrajectoryToolboxControllerTest extends AvatarWhol
       super.testOneBigCircle();
    }
 
+   @Override
+   @Test
+   public void testSameSolutionForAnyNumberOfSolvers() throws Exception
+   {
+      super.testSameSolutionForAnyNumberOfSolvers();
+   }
+
    @Override
    @Test
    public void testHandCirclePositionAndYaw() throws Exception, UnreasonableAccelerationException
@@ -0,0 +1,20 @@
+package us.ihmc.valkyrie;
+
+import java.io.IOException;
+
+import javax.xml.bind.JAXBException;
+
+import us.ihmc.avatar.drcRobot.RobotModelStartupTimer;
+import us.ihmc.avatar.drcRobot.RobotTarget;
+import us.ihmc.valkyrie.configuration.ValkyrieRobotVersion;
+
+public class ValkyrieModelStartupTimer
+{
+   public static void main(String[] args) throws IOException, JAXBException
+   {
+      String sdfFile = ValkyrieRobotVersion.DEFAULT.getSimSdfFile();
+      RobotModelStartupTimer.run("Valkyrie",
+                                 () -> ValkyrieModelStartupTimer.class.getClassLoader().getResourceAsStream(sdfFile),
+                                 () -> new ValkyrieRobotModel(RobotTarget.SCS));
+   }
+}
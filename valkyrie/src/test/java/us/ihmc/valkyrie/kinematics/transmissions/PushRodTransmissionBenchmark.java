@@ -0,0 +1,86 @@
+package us.ihmc.valkyrie.kinematics.transmissions;
+
+import java.util.Random;
+
+import us.ihmc.valkyrie.kinematics.LinearActuator;
+import us.ihmc.valkyrie.kinematics.ValkyrieJointInterface;
+import us.ihmc.valkyrie.kinematics.YoValkyrieJointWriter;
+import us.ihmc.yoVariables.registry.YoRegistry;
+
+/**
+ * Compares the per-tick cost of the push-rod transmissions, effort and velocity mapping for one
+ * ankle, when the Jacobian is computed from the exact model and when it is interpolated from the
+ * precomputed tables.
+ * <p>
+ * The outputs of the two are compared in {@link PushRodTransmissionJacobianTableTest}.
+ * </p>
+ */
+public class PushRodTransmissionBenchmark
+{
+   private static final int warmupIterations = 20000;
+   private static final int iterations = 200000;
+
+   public static void main(String[] args)
+   {
+      EfficientPushRodTransmission exactEfficientTransmission = new EfficientPushRodTransmission(PushRodTransmissionJoint.ANKLE, 1.0, true);
+      EfficientPushRodTransmission precomputedEfficientTransmission = new EfficientPushRodTransmission(PushRodTransmissionJoint.ANKLE, 1.0, true);
+      precomputedEfficientTransmission.usePrecomputedJacobian(true);
+
+      compare("EfficientPushRodTransmission", exactEfficientTransmission, precomputedEfficientTransmission);
+
+      InefficientPushRodTransmission exactInefficientTransmission = new InefficientPushRodTransmission(PushRodTransmissionJoint.ANKLE, 1.0, 1.0, true, null, null);
+      InefficientPushRodTransmission precomputedInefficientTransmission = new InefficientPushRodTransmission(PushRodTransmissionJoint.ANKLE, 1.0, 1.0, true, null, null);
+      precomputedInefficientTransmission.usePrecomputedJacobian(true);
+
+      compare("InefficientPushRodTransmission", exactInefficientTransmission, precomputedInefficientTransmission);
+   }
+
+   private static void compare(String name, PushRodTransmissionInterface exactTransmission, PushRodTransmissionInterface precomputedTransmission)
+   {
+      Random random = new Random(5642L);
+      YoRegistry registry = new YoRegistry("benchmark");
+      LinearActuator[] actuatorData = {new LinearActuator("actuator0"), new LinearActuator("actuator1")};
+      ValkyrieJointInterface[] jointData = {new YoValkyrieJointWriter("joint0", registry), new YoValkyrieJointWriter("joint1", registry)};
+
+      for (int i = 0; i < warmupIterations; i++)
+      {
+         tick(random, exactTransmission, actuatorData, jointData);
+         tick(random, precomputedTransmission, actuatorData, jointData);
+      }
+
+      long exactTime = 0;
+      long precomputedTime = 0;
+
+      for (int i = 0; i < iterations; i++)
+      {
+         exactTime -= System.nanoTime();
+         tick(random, exactTransmission, actuatorData, jointData);
+         exactTime += System.nanoTime();
+
+         precomputedTime -= System.nanoTime();
+         tick(random, precomputedTransmission, actuatorData, jointData);
+         precomputedTime += System.nanoTime();
+      }
+
+      System.out.println(name + " per tick:");
+      System.out.println("   Exact:       " + 1.0e-3 * exactTime / iterations + " us");
+      System.out.println("   Precomputed: " + 1.0e-3 * precomputedTime / iterations + " us");
+      System.out.println("   Speedup:     " + ((double) exactTime / precomputedTime));
+   }
+
+   private static void tick(Random random, PushRodTransmissionInterface transmission, LinearActuator[] actuatorData, ValkyrieJointInterface[] jointData)
+   {
+      jointData[0].setPosition(-0.8 + 1.6 * random.nextDouble());
+      jointData[1].setPosition(-0.3 + 0.6 * random.nextDouble());
+      jointData[0].setDesiredEffort(-50.0 + 100.0 * random.nextDouble());
+      jointData[1].setDesiredEffort(-50.0 + 100.0 * random.nextDouble());
+      actuatorData[0].setEffortCommand(-500.0 + 1000.0 * random.nextDouble());
+      actuatorData[1].setEffortCommand(-500.0 + 1000.0 * random.nextDouble());
+      actuatorData[0].setVelocityCommand(-0.1 + 0.2 * random.nextDouble());
+      actuatorData[1].setVelocityCommand(-0.1 + 0.2 * random.nextDouble());
+
+      transmission.actuatorToJointEffort(actuatorData, jointData);
+      transmission.actuatorToJointVelocity(actuatorData, jointData);
+      transmission.jointToActuatorEffort(actuatorData, jointData);
+   }
+}
@@ -0,0 +1,192 @@
+package us.ihmc.valkyrie.kinematics.transmissions;
+
+import static us.ihmc.robotics.Assert.assertEquals;
+import static us.ihmc.robotics.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.valkyrie.kinematics.LinearActuator;
+import us.ihmc.valkyrie.kinematics.ValkyrieJointInterface;
+import us.ihmc.valkyrie.kinematics.YoValkyrieJointWriter;
+import us.ihmc.valkyrie.kinematics.util.ClosedFormJacobian;
+import us.ihmc.yoVariables.registry.YoRegistry;
+
+public class PushRodTransmissionJacobianTableTest
+{
+   private static final int ITERATIONS = 5000;
+   private static final double EPSILON = 1.0e-7;
+
+   @Test
+   public void testAnkleTableMatchesClosedForm()
+   {
+      compareTableWithClosedForm(PushRodTransmissionJoint.ANKLE, true, -0.349, 0.348, -0.8644, 0.875);
+      compareTableWithClosedForm(PushRodTransmissionJoint.ANKLE, false, -0.349, 0.348, -0.8644, 0.875);
+   }
+
+   @Test
+   public void testWaistTableMatchesClosedForm()
+   {
+      compareTableWithClosedForm(PushRodTransmissionJoint.WAIST, true, -0.23, 0.255, -0.13, 0.666);
+      compareTableWithClosedForm(PushRodTransmissionJoint.WAIST, false, -0.23, 0.255, -0.13, 0.666);
+   }
+
+   @Test
+   public void testAnkleTableMatchesInefficientJacobian()
+   {
+      Random random = new Random(3461L);
+
+      for (boolean useFuteks : new boolean[] {true, false})
+      {
+         PushRodTransmissionJacobianTable table = PushRodTransmissionJacobianTable.createFromInefficient(PushRodTransmissionJoint.ANKLE, useFuteks);
+         InefficientPushrodTransmissionJacobian inefficientJacobian = new InefficientPushrodTransmissionJacobian(PushRodTransmissionJoint.ANKLE, null, null);
+         inefficientJacobian.setUseFuteks(useFuteks);
+
+         assertTrue(table.isWithinTolerance());
+
+         double[][] expected = new double[2][2];
+         double[][] actual = new double[2][2];
+
+         for (int i = 0; i < ITERATIONS; i++)
+         {
+            double pitch = nextDouble(random, -0.8644, 0.875);
+            double roll = nextDouble(random, -0.349, 0.348);
+            inefficientJacobian.computeJacobian(expected, pitch, roll);
+            table.compute(pitch, roll, actual);
+            compareMatrices(expected, actual, EPSILON);
+         }
+      }
+   }
+
+   @Test
+   public void testOutOfRangeFallsBackToExactModel()
+   {
+      PushRodTransmissionJacobianTable table = PushRodTransmissionJacobianTable.createFromClosedForm(PushRodTransmissionJoint.ANKLE, true);
+      ClosedFormJacobian closedFormJacobian = new ClosedFormJacobian(PushRodTransmissionJoint.ANKLE);
+
+      double[][] actual = new double[2][2];
+      table.compute(0.6, 0.0, actual);
+      compareMatrices(closedFormJacobian.getUpdatedTransform(0.6, 0.0), actual, 0.0);
+      assertEquals(1, table.getNumberOfFallbacks());
+   }
+
+   @Test
+   public void testPrecomputedEfficientTransmission()
+   {
+      EfficientPushRodTransmission exactTransmission = new EfficientPushRodTransmission(PushRodTransmissionJoint.ANKLE, 1.0, true);
+      EfficientPushRodTransmission precomputedTransmission = new EfficientPushRodTransmission(PushRodTransmissionJoint.ANKLE, 1.0, true);
+      precomputedTransmission.usePrecomputedJacobian(true);
+      precomputedTransmission.setVerifyPrecomputedJacobian(true);
+
+      compareTransmissions(new Random(1255L), exactTransmission, precomputedTransmission);
+
+      assertTrue(precomputedTransmission.getMaxPrecomputedJacobianError() < EPSILON);
+   }
+
+   @Test
+   public void testPrecomputedInefficientTransmission()
+   {
+      InefficientPushRodTransmission exactTransmission = new InefficientPushRodTransmission(PushRodTransmissionJoint.ANKLE, 1.0, 1.0, true, null, null);
+      InefficientPushRodTransmission precomputedTransmission = new InefficientPushRodTransmission(PushRodTransmissionJoint.ANKLE, 1.0, 1.0, true, null, null);
+      precomputedTransmission.usePrecomputedJacobian(true);
+
+      compareTransmissions(new Random(5642L), exactTransmission, precomputedTransmission);
+   }
+
+   /**
+    * Runs the mappings used every tick by the robot, effort and velocity in both directions, through
+    * the two transmissions and compares their outputs.
+    */
+   private static void compareTransmissions(Random random, PushRodTransmissionInterface exactTransmission, PushRodTransmissionInterface precomputedTransmission)
+   {
+      YoRegistry registry = new YoRegistry("test");
+      LinearActuator[] exactActuatorData = {new LinearActuator("exactActuator0"), new LinearActuator("exactActuator1")};
+      LinearActuator[] actuatorData = {new LinearActuator("actuator0"), new LinearActuator("actuator1")};
+      ValkyrieJointInterface[] exactJointData = {new YoValkyrieJointWriter("exactJoint0", registry), new YoValkyrieJointWriter("exactJoint1", registry)};
+      ValkyrieJointInterface[] jointData = {new YoValkyrieJointWriter("joint0", registry), new YoValkyrieJointWriter("joint1", registry)};
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         double pitch = nextDouble(random, -0.8644, 0.875);
+         double roll = nextDouble(random, -0.349, 0.348);
+         double pitchTorque = nextDouble(random, -50.0, 50.0);
+         double rollTorque = nextDouble(random, -50.0, 50.0);
+         double force0 = nextDouble(random, -1000.0, 1000.0);
+         double force1 = nextDouble(random, -1000.0, 1000.0);
+         double velocity0 = nextDouble(random, -0.1, 0.1);
+         double velocity1 = nextDouble(random, -0.1, 0.1);
+
+         for (ValkyrieJointInterface[] joints : new ValkyrieJointInterface[][] {exactJointData, jointData})
+         {
+            joints[0].setPosition(pitch);
+            joints[1].setPosition(roll);
+            joints[0].setDesiredEffort(pitchTorque);
+            joints[1].setDesiredEffort(rollTorque);
+         }
+
+         for (LinearActuator[] actuators : new LinearActuator[][] {exactActuatorData, actuatorData})
+         {
+            actuators[0].setEffortCommand(force0);
+            actuators[1].setEffortCommand(force1);
+            actuators[0].setVelocityCommand(velocity0);
+            actuators[1].setVelocityCommand(velocity1);
+         }
+
+         exactTransmission.actuatorToJointEffort(exactActuatorData, exactJointData);
+         precomputedTransmission.actuatorToJointEffort(actuatorData, jointData);
+         exactTransmission.actuatorToJointVelocity(exactActuatorData, exactJointData);
+         precomputedTransmission.actuatorToJointVelocity(actuatorData, jointData);
+         exactTransmission.jointToActuatorEffort(exactActuatorData, exactJointData);
+         precomputedTransmission.jointToActuatorEffort(actuatorData, jointData);
+
+         for (int j = 0; j < 2; j++)
+         {
+            // 1000 N on a lever arm approximated within 1e-7 m.
+            assertEquals(exactJointData[j].getEffort(), jointData[j].getEffort(), 1.0e-3);
+            assertEquals(exactJointData[j].getValidationVelocity(), jointData[j].getValidationVelocity(), 1.0e-6);
+            // The inverse amplifies the approximation error by the squared inverse of the lever arms.
+            assertEquals(exactActuatorData[j].getEffort(), actuatorData[j].getEffort(), 1.0e-2);
+         }
+      }
+   }
+
+   private static void compareTableWithClosedForm(PushRodTransmissionJoint joint, boolean useFuteks, double rollMin, double rollMax, double pitchMin,
+                                                  double pitchMax)
+   {
+      Random random = new Random(4536L);
+      PushRodTransmissionJacobianTable table = PushRodTransmissionJacobianTable.createFromClosedForm(joint, useFuteks);
+      ClosedFormJacobian closedFormJacobian = new ClosedFormJacobian(joint);
+      closedFormJacobian.useFuteks(useFuteks);
+
+      assertTrue("Approximation error: " + table.getMaxApproximationError(), table.isWithinTolerance());
+
+      double[][] actual = new double[2][2];
+      table.setVerificationMode(true);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         double roll = nextDouble(random, rollMin, rollMax);
+         double pitch = nextDouble(random, pitchMin, pitchMax);
+         table.compute(roll, pitch, actual);
+         compareMatrices(closedFormJacobian.getUpdatedTransform(roll, pitch), actual, EPSILON);
+      }
+
+      assertEquals(0, table.getNumberOfFallbacks());
+      assertTrue(table.getMaxObservedError() < EPSILON);
+   }
+
+   private static double nextDouble(Random random, double min, double max)
+   {
+      return min + (max - min) * random.nextDouble();
+   }
+
+   private static void compareMatrices(double[][] expected, double[][] actual, double epsilon)
+   {
+      for (int row = 0; row < 2; row++)
+      {
+         for (int col = 0; col < 2; col++)
+            assertEquals(expected[row][col], actual[row][col], epsilon);
+      }
+   }
+}